@@ -26,6 +26,7 @@ package io.bosonnetwork;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jspecify.annotations.Nullable;
 
@@ -33,6 +34,7 @@ import io.bosonnetwork.crypto.CryptoBox;
 import io.bosonnetwork.crypto.CryptoBox.Nonce;
 import io.bosonnetwork.crypto.CryptoBox.PrivateKey;
 import io.bosonnetwork.crypto.CryptoBox.PublicKey;
+import io.bosonnetwork.crypto.CipherSuite;
 import io.bosonnetwork.crypto.CryptoException;
 
 /**
@@ -48,6 +50,12 @@ import io.bosonnetwork.crypto.CryptoException;
  * decryption may therefore be driven from several threads at once. That is the whole of it: nothing
  * here makes the underlying box or the caller's own message handling thread-safe.
  * </p>
+ * <p>
+ * <b>Cipher suites:</b> outgoing messages are sealed with the context's {@link CipherSuite}, which
+ * starts as {@link CipherSuite#XSALSA20_POLY1305} and is changed with {@link #setCipherSuite} once the
+ * caller knows the peer understands another one. Incoming messages are accepted in any available
+ * suite, the current one tried first, so the two sides never have to switch at the same moment.
+ * </p>
  */
 public class CryptoContext implements AutoCloseable {
 	private final Id id;
@@ -59,6 +67,12 @@ public class CryptoContext implements AutoCloseable {
 	// nonce, both find no match, and a duplicate passes between them.
 	private final AtomicReference<@Nullable Nonce> lastPeerNonce = new AtomicReference<>();
 
+	private volatile CipherSuite suite = CipherSuite.XSALSA20_POLY1305;
+	// The AEAD keys, indexed by suite ordinal and derived on first use; a context that only ever
+	// speaks the box never derives one.
+	private final AtomicReferenceArray<CipherSuite.@Nullable Key> keys =
+			new AtomicReferenceArray<>(CipherSuite.values().length);
+
 	/**
 	 * Constructs a CryptoContext with the given Id and CryptoBox.
 	 * <p>
@@ -110,6 +124,44 @@ public class CryptoContext implements AutoCloseable {
 		return id;
 	}
 
+	/**
+	 * Returns the cipher suite outgoing messages are sealed with.
+	 *
+	 * @return the current {@link CipherSuite}.
+	 */
+	public CipherSuite getCipherSuite() {
+		return suite;
+	}
+
+	/**
+	 * Selects the cipher suite for outgoing messages. Only select a suite the peer is known to
+	 * support: a peer that does not will fail to decrypt everything sent from then on. Incoming
+	 * messages are unaffected, they are accepted in any suite.
+	 *
+	 * @param suite the suite to seal outgoing messages with.
+	 * @throws IllegalArgumentException if the suite is not available in this JVM.
+	 */
+	public void setCipherSuite(CipherSuite suite) {
+		Objects.requireNonNull(suite, "suite");
+		if (!suite.isAvailable())
+			throw new IllegalArgumentException("Cipher suite not available: " + suite);
+		this.suite = suite;
+	}
+
+	private CipherSuite.Key keyOf(CipherSuite suite) {
+		CipherSuite.Key key = keys.get(suite.ordinal());
+		if (key != null)
+			return key;
+
+		CipherSuite.Key derived = suite.deriveKey(box);
+		if (keys.compareAndSet(suite.ordinal(), null, derived))
+			return derived;
+
+		derived.destroy();
+		//noinspection DataFlowIssue
+		return keys.get(suite.ordinal());
+	}
+
 	/**
 	 * Generates and returns the next unique nonce for encryption, then increments the internal counter.
 	 * <p>
@@ -136,13 +188,18 @@ public class CryptoContext implements AutoCloseable {
 	 * @throws NullPointerException if {@code data} is {@code null}.
 	 */
 	public byte[] encrypt(byte[] data) {
-		// TODO: how to avoid the memory copy?!
+		Objects.requireNonNull(data, "data");
 		Nonce nonce = getAndIncrementNonce();
-		byte[] cipher = box.encrypt(data, nonce);
 
-		byte[] buf = new byte[Nonce.BYTES + cipher.length];
+		// One array for the whole frame: the cipher writes the cipher text in place behind the nonce.
+		// Both layouts are the same size - MAC in front for the box, tag behind for the AEAD suites.
+		byte[] buf = new byte[Nonce.BYTES + CryptoBox.MAC_BYTES + data.length];
 		System.arraycopy(nonce.bytes(), 0, buf, 0, Nonce.BYTES);
-		System.arraycopy(cipher, 0, buf, Nonce.BYTES, cipher.length);
+		CipherSuite suite = this.suite;
+		if (suite.isAead())
+			keyOf(suite).seal(data, 0, data.length, buf, 0, buf, Nonce.BYTES);
+		else
+			box.encrypt(data, 0, data.length, nonce, buf, Nonce.BYTES);
 		return buf;
 	}
 
@@ -161,6 +218,11 @@ public class CryptoContext implements AutoCloseable {
 	 * between them. This matters because a caller may well decrypt several messages from one peer at
 	 * the same time - the DHT decrypts every datagram on a worker pool.
 	 * </p>
+	 * <p>
+	 * The frame does not name its suite. The current {@link #getCipherSuite() suite} is tried first,
+	 * then the others, so a peer that switched before this side did is still understood; a forged
+	 * frame costs one failed authentication per available suite.
+	 * </p>
 	 *
 	 * @param data The encrypted data, with the nonce prepended (nonce || ciphertext).
 	 * @return The decrypted plaintext data.
@@ -172,14 +234,37 @@ public class CryptoContext implements AutoCloseable {
 		if (data.length <= Nonce.BYTES + CryptoBox.MAC_BYTES)
 			throw new CryptoException("Invalid cipher size");
 
-		// TODO: how to avoid the memory copy?!
-		byte[] n = Arrays.copyOfRange(data, 0, Nonce.BYTES);
-		Nonce nonce = Nonce.fromBytes(n);
+		Nonce nonce = Nonce.fromBytes(Arrays.copyOfRange(data, 0, Nonce.BYTES));
 		if (Objects.equals(nonce, lastPeerNonce.getAndSet(nonce)))
 			throw new CryptoException("Duplicated nonce");
 
-		byte[] cipher = Arrays.copyOfRange(data, Nonce.BYTES, data.length);
-		return box.decrypt(cipher, nonce);
+		// Decrypted straight out of the frame: no copy of the cipher text.
+		byte[] plain = new byte[data.length - Nonce.BYTES - CryptoBox.MAC_BYTES];
+		CipherSuite preferred = this.suite;
+		CryptoException failure = open(preferred, data, nonce, plain);
+		if (failure == null)
+			return plain;
+
+		for (CipherSuite other : CipherSuite.values()) {
+			if (other != preferred && other.isAvailable() && open(other, data, nonce, plain) == null)
+				return plain;
+		}
+
+		throw failure;
+	}
+
+	// Opens the frame with one suite; returns the failure rather than throwing it, as failing is the
+	// expected outcome for every suite but the one the peer used.
+	private @Nullable CryptoException open(CipherSuite suite, byte[] data, Nonce nonce, byte[] plain) {
+		try {
+			if (suite.isAead())
+				keyOf(suite).open(data, Nonce.BYTES, data.length - Nonce.BYTES, data, 0, plain, 0);
+			else
+				box.decrypt(data, Nonce.BYTES, data.length - Nonce.BYTES, nonce, plain, 0);
+			return null;
+		} catch (CryptoException e) {
+			return e;
+		}
 	}
 
 	/**
@@ -208,6 +293,11 @@ public class CryptoContext implements AutoCloseable {
 	 */
 	@Override
 	public void close() {
+		for (int i = 0; i < keys.length(); i++) {
+			CipherSuite.Key key = keys.getAndSet(i, null);
+			if (key != null)
+				key.destroy();
+		}
 		box.close();
 	}
 }
\ No newline at end of file
@@ -22,6 +22,7 @@
 
 package io.bosonnetwork;
 
+import io.bosonnetwork.crypto.CipherSuite;
 import io.bosonnetwork.crypto.CryptoException;
 
 
@@ -111,6 +112,35 @@ public interface Identity {
 	 */
 	byte[] decrypt(Id sender, byte[] nonce, byte[] data) throws CryptoException;
 
+	/**
+	 * Returns the cipher suite {@link #encrypt(Id, byte[])} seals messages to the given peer with.
+	 * <p>
+	 * The default is {@link CipherSuite#XSALSA20_POLY1305} for every peer: only an identity that keeps
+	 * per-peer state, such as a caching one, can remember a negotiated suite.
+	 * </p>
+	 *
+	 * @param peer the {@link Id} of the peer
+	 * @return the suite used for messages to that peer
+	 */
+	default CipherSuite getCipherSuite(Id peer) {
+		return CipherSuite.XSALSA20_POLY1305;
+	}
+
+	/**
+	 * Records the cipher suite the caller negotiated with the given peer, for
+	 * {@link #encrypt(Id, byte[])} to use from now on. {@link #decrypt(Id, byte[])} accepts every suite
+	 * regardless.
+	 * <p>
+	 * The default ignores the call and keeps sealing with {@link CipherSuite#XSALSA20_POLY1305}, which
+	 * every peer understands, so an identity without per-peer state stays interoperable.
+	 * </p>
+	 *
+	 * @param peer  the {@link Id} of the peer
+	 * @param suite the suite the peer is known to support
+	 */
+	default void setCipherSuite(Id peer, CipherSuite suite) {
+	}
+
 	/**
 	 * Creates a reusable cryptographic context for secure communication with the specified identity.
 	 * <p>
@@ -45,6 +45,7 @@ import java.util.Set;
 import io.vertx.core.Vertx;
 import org.jspecify.annotations.Nullable;
 
+import io.bosonnetwork.crypto.CryptoProviders;
 import io.bosonnetwork.crypto.Signature;
 import io.bosonnetwork.database.SqlSafety;
 import io.bosonnetwork.utils.AddressUtils;
@@ -64,7 +65,8 @@ import io.bosonnetwork.utils.Hex;
  */
 public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature.KeyPair keyPair,
 								Path dataDir, NodeDatabaseOptions database,
-								KademliaOptions kademlia, Set<NodeInfo> bootstraps, SecurityOptions security) {
+								KademliaOptions kademlia, Set<NodeInfo> bootstraps, SecurityOptions security,
+								String cryptoProvider, boolean persistCryptoContexts) {
 	/**
 	 * The default port for the DHT node, chosen from the IANA unassigned range (38866-39062).
 	 * See: <a href="https://www.iana.org/assignments/service-names-port-numbers/service-names-port-numbers.xhtml">
@@ -116,6 +118,20 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 	 */
 	public static final boolean DEFAULT_SUSPICIOUS_NODE_DETECTOR = true;
 
+	/**
+	 * Whether the suspicious node detector keeps its per-source counts in a fixed-size sketch by
+	 * default, which it does not.
+	 * <p>
+	 * The default detector keeps an exact entry per source address, so its memory grows with the
+	 * number of distinct senders it sees. The bounded one counts in a count-min sketch of fixed
+	 * size and only promotes the sources that cross the threshold to exact tracking, trading a
+	 * bounded overcount for a footprint a flood of spoofed addresses cannot grow.
+	 * </p>
+	 *
+	 * @see SecurityOptions#boundedSuspiciousNodeDetector()
+	 */
+	public static final boolean DEFAULT_BOUNDED_SUSPICIOUS_NODE_DETECTOR = false;
+
 	/**
 	 * Whether developer mode is enabled by default, which it is not.
 	 * <p>
@@ -129,6 +145,25 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 	 */
 	public static final boolean DEFAULT_DEVELOPER_MODE = false;
 
+	/**
+	 * The crypto backend a node selects by default: the native libsodium provider when libsodium is
+	 * installed, the pure-Java Bouncy Castle one otherwise.
+	 *
+	 * @see CryptoProviders#select(String)
+	 */
+	public static final String DEFAULT_CRYPTO_PROVIDER = CryptoProviders.AUTO;
+
+	/**
+	 * Whether the derived per-peer encryption keys are saved across restarts by default, which they
+	 * are not.
+	 * <p>
+	 * Saving them spares a restarted node one key agreement per contact in its reloaded routing table.
+	 * The file is encrypted under the node's own key, but it is still key material at rest, so a node
+	 * opts in.
+	 * </p>
+	 */
+	public static final boolean DEFAULT_PERSIST_CRYPTO_CONTEXTS = false;
+
 	private static final String DEFAULT_DATABASE_URI = "jdbc:sqlite:node.db";
 
 	/**
@@ -353,16 +388,21 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 	 *
 	 * @param spamThrottling         whether high-frequency requests from a single peer are throttled
 	 * @param suspiciousNodeDetector whether peers behaving abnormally are identified and isolated
+	 * @param boundedSuspiciousNodeDetector whether that detection counts in a fixed-size sketch
+	 *                                      rather than per source address
 	 * @param developerMode          whether the node may participate over local/private addresses
 	 */
-	public record SecurityOptions(boolean spamThrottling, boolean suspiciousNodeDetector, boolean developerMode) {
+	public record SecurityOptions(boolean spamThrottling, boolean suspiciousNodeDetector,
+								  boolean boundedSuspiciousNodeDetector, boolean developerMode) {
 		static SecurityOptions fromMap(@Nullable ConfigMap cm) {
 			if (cm == null || cm.isEmpty())
-				return new SecurityOptions(DEFAULT_SPAM_THROTTLING, DEFAULT_SUSPICIOUS_NODE_DETECTOR, DEFAULT_DEVELOPER_MODE);
+				return new SecurityOptions(DEFAULT_SPAM_THROTTLING, DEFAULT_SUSPICIOUS_NODE_DETECTOR,
+						DEFAULT_BOUNDED_SUSPICIOUS_NODE_DETECTOR, DEFAULT_DEVELOPER_MODE);
 
 			return new SecurityOptions(
 					cm.getBoolean("spamThrottling", DEFAULT_SPAM_THROTTLING),
 					cm.getBoolean("suspiciousNodeDetector", DEFAULT_SUSPICIOUS_NODE_DETECTOR),
+					cm.getBoolean("boundedSuspiciousNodeDetector", DEFAULT_BOUNDED_SUSPICIOUS_NODE_DETECTOR),
 					cm.getBoolean("developerMode", DEFAULT_DEVELOPER_MODE)
 			);
 		}
@@ -371,6 +411,7 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 			Map<String, Object> map = new LinkedHashMap<>();
 			map.put("spamThrottling", spamThrottling);
 			map.put("suspiciousNodeDetector", suspiciousNodeDetector);
+			map.put("boundedSuspiciousNodeDetector", boundedSuspiciousNodeDetector);
 			map.put("developerMode", developerMode);
 			return map;
 		}
@@ -387,7 +428,12 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 	 * @param kademlia   the Kademlia routing and lookup parameters
 	 * @param bootstraps the entry points into the DHT network
 	 * @param security   the node's protective behaviors
-	 * @throws NullPointerException if any argument is null
+	 * @param cryptoProvider the name of the crypto backend to select, or {@value #DEFAULT_CRYPTO_PROVIDER};
+	 *                   the choice is process-wide, see {@link CryptoProviders#select(String)}
+	 * @param persistCryptoContexts whether the derived per-peer encryption keys are saved in the data
+	 *                   directory on shutdown and restored on start
+	 * @throws NullPointerException     if any argument is null
+	 * @throws IllegalArgumentException if the crypto provider name is empty
 	 */
 	public NodeConfiguration {
 		Objects.requireNonNull(vertx, "vertx");
@@ -398,6 +444,9 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 		Objects.requireNonNull(kademlia, "kademlia");
 		Objects.requireNonNull(bootstraps, "bootstraps");
 		Objects.requireNonNull(security, "security");
+		Objects.requireNonNull(cryptoProvider, "cryptoProvider");
+		if (cryptoProvider.isEmpty())
+			throw new IllegalArgumentException("Crypto provider name must not be empty");
 		bootstraps = Set.copyOf(bootstraps);
 	}
 
@@ -463,6 +512,8 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 		map.put("kademlia", kademlia.toMap());
 		map.put("bootstraps", bootstrapsToList(bootstraps));
 		map.put("security", security.toMap());
+		map.put("cryptoProvider", cryptoProvider);
+		map.put("persistCryptoContexts", persistCryptoContexts);
 		return map;
 	}
 
@@ -623,11 +674,26 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 		 */
 		private boolean suspiciousNodeDetector = true;
 
+		/**
+		 * Whether suspicious node detection counts in a fixed-size sketch.
+		 */
+		private boolean boundedSuspiciousNodeDetector = DEFAULT_BOUNDED_SUSPICIOUS_NODE_DETECTOR;
+
 		/**
 		 * Whether developer mode is enabled for this node.
 		 */
 		private boolean developerMode = false;
 
+		/**
+		 * Name of the crypto backend to select.
+		 */
+		private String cryptoProvider = DEFAULT_CRYPTO_PROVIDER;
+
+		/**
+		 * Whether the derived per-peer encryption keys are saved across restarts.
+		 */
+		private boolean persistCryptoContexts = DEFAULT_PERSIST_CRYPTO_CONTEXTS;
+
 		/**
 		 * Constructs a new Builder with default settings.
 		 */
@@ -1232,6 +1298,18 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 			return this;
 		}
 
+		/**
+		 * Sets whether suspicious node detection counts in a fixed-size sketch rather than keeping
+		 * an exact entry per source address. Has no effect while detection itself is disabled.
+		 *
+		 * @param enable true to use the bounded detector, false to use the exact one
+		 * @return this Builder for chaining
+		 */
+		public Builder boundedSuspiciousNodeDetector(boolean enable) {
+			this.boundedSuspiciousNodeDetector = enable;
+			return this;
+		}
+
 		/**
 		 * Sets whether developer mode is enabled for the node.
 		 *
@@ -1243,6 +1321,39 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 			return this;
 		}
 
+		/**
+		 * Sets the crypto backend the node selects when it is created: {@code "libsodium"},
+		 * {@code "bc"}, or {@value NodeConfiguration#DEFAULT_CRYPTO_PROVIDER} to keep the one already
+		 * in use by the process, which unless pinned is the fastest one available. Whether a named
+		 * backend is actually available, and whether the process already uses another one, is only
+		 * known at run time, so it is checked when the node is created rather than here.
+		 *
+		 * @param name the provider name (must not be null or empty)
+		 * @return this Builder for chaining
+		 * @throws NullPointerException     if name is null
+		 * @throws IllegalArgumentException if name is empty
+		 */
+		public Builder cryptoProvider(String name) {
+			Objects.requireNonNull(name, "Crypto provider name must not be null");
+			if (name.isEmpty())
+				throw new IllegalArgumentException("Crypto provider name must not be empty");
+			this.cryptoProvider = name;
+			return this;
+		}
+
+		/**
+		 * Sets whether the node saves its derived per-peer encryption keys in the data directory on
+		 * shutdown, encrypted under its own key, and restores them on start. This removes the burst of
+		 * key agreements a restarted node otherwise pays for its reloaded routing table.
+		 *
+		 * @param enable {@code true} to persist the keys
+		 * @return this Builder for chaining
+		 */
+		public Builder persistCryptoContexts(boolean enable) {
+			this.persistCryptoContexts = enable;
+			return this;
+		}
+
 		/**
 		 * Applies the settings in the given map on top of this builder.
 		 * <p>
@@ -1343,12 +1454,19 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 				SecurityOptions security = SecurityOptions.fromMap(m.getObject("security"));
 				spamThrottling(security.spamThrottling());
 				suspiciousNodeDetector(security.suspiciousNodeDetector());
+				boundedSuspiciousNodeDetector(security.boundedSuspiciousNodeDetector());
 				developerMode(security.developerMode());
 			}
 
 			if (m.containsKey("bootstraps"))
 				bootstraps(bootstrapsFromList(m.getList("bootstraps")));
 
+			if (m.containsKey("cryptoProvider"))
+				cryptoProvider(m.getString("cryptoProvider", DEFAULT_CRYPTO_PROVIDER));
+
+			if (m.containsKey("persistCryptoContexts"))
+				persistCryptoContexts(m.getBoolean("persistCryptoContexts", DEFAULT_PERSIST_CRYPTO_CONTEXTS));
+
 			return this;
 		}
 
@@ -1379,7 +1497,9 @@ public record NodeConfiguration(Vertx vertx, NodeListenOptions listen, Signature
 						new NodeDatabaseOptions(databaseUri, databasePoolSize, databaseSchemaName),
 						new KademliaOptions(alpha, k, replacements, concurrentTasks),
 						bootstraps,
-						new SecurityOptions(spamThrottling, suspiciousNodeDetector, developerMode));
+						new SecurityOptions(spamThrottling, suspiciousNodeDetector, boundedSuspiciousNodeDetector, developerMode),
+						cryptoProvider,
+						persistCryptoContexts);
 			} catch (NullPointerException | IllegalArgumentException e) {
 				throw new IllegalStateException("Invalid NodeConfiguration: " + e.getMessage(), e);
 			}
@@ -28,7 +28,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.security.MessageDigest;
 import java.text.Normalizer;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -484,6 +486,89 @@ public class PeerInfo {
 	 * @return {@code true} if the value is valid, {@code false} otherwise.
 	 */
 	public boolean isValid() {
+		if (!isWellFormed())
+			return false;
+
+		// Through the cache of past successes: a popular peer arrives in every lookup response that
+		// covers it, and again with every re-announce from its owner.
+		if (nodeId != null) {
+			byte[] digest = computeNodeDigest(publicKey, nodeId, fingerprint, sequenceNumber);
+			if (!Signature.verifyCached(digest, Objects.requireNonNull(nodeSig), nodeId.bytesUnsafe()))
+				return false;
+		}
+
+		byte[] digest = computeDigest(publicKey, sequenceNumber, nodeId, nodeSig, fingerprint, endpoint, extraData);
+		return Signature.verifyCached(digest, signature, publicKey.bytesUnsafe());
+	}
+
+	/**
+	 * Checks whether every one of the given peers is valid, as one decision.
+	 * <p>
+	 * Equivalent to calling {@link #isValid()} on each, but every signature of every peer is verified
+	 * in a single {@link Signature.Batch}: the peers of one lookup response share their public key -
+	 * the looked-up id - and often repeat each other, and the batch decodes that key once, checks
+	 * each distinct signature once, and lets the crypto provider check them all with one batch
+	 * equation where it has one.
+	 *
+	 * @param peers the peers to check.
+	 * @return {@code true} if all the peers are valid, including when there are none.
+	 */
+	public static boolean isValid(Collection<PeerInfo> peers) {
+		Signature.Batch signatures = new Signature.Batch();
+		for (PeerInfo peer : peers) {
+			if (!peer.isWellFormed())
+				return false;
+
+			peer.addSignatures(signatures);
+		}
+
+		return signatures.verifyAll();
+	}
+
+	/**
+	 * Checks each of the given peers as {@link #isValid()} does, verifying all their signatures as one
+	 * {@link Signature.Batch}.
+	 * <p>
+	 * Unlike {@link #isValid(Collection)}, the peers are independent of each other - the ANNOUNCE PEER
+	 * requests that arrive together - and every one of them needs a verdict of its own.
+	 *
+	 * @param peers the peers to check.
+	 * @return the result of {@link #isValid()} for every peer, in order.
+	 */
+	public static boolean[] isEachValid(List<PeerInfo> peers) {
+		int n = peers.size();
+		boolean[] wellFormed = new boolean[n];
+		int[] firstSlots = new int[n];
+		Signature.Batch signatures = new Signature.Batch();
+		for (int i = 0; i < n; i++) {
+			PeerInfo peer = peers.get(i);
+			firstSlots[i] = signatures.size();
+			wellFormed[i] = peer.isWellFormed();
+			if (wellFormed[i])
+				peer.addSignatures(signatures);
+		}
+
+		boolean[] verified = signatures.verify();
+		boolean[] results = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			if (!wellFormed[i])
+				continue;
+
+			int end = i + 1 < n ? firstSlots[i + 1] : signatures.size();
+			results[i] = true;
+			for (int slot = firstSlots[i]; slot < end; slot++)
+				results[i] &= verified[slot];
+		}
+
+		return results;
+	}
+
+	/**
+	 * Runs every check of {@link #isValid()} that needs no signature verification.
+	 *
+	 * @return {@code false} if the peer is invalid whatever its signatures.
+	 */
+	private boolean isWellFormed() {
 		if (signature.length != Signature.BYTES)
 			return false;
 
@@ -493,22 +578,26 @@ public class PeerInfo {
 		if (payloadSize() > MAX_PAYLOAD_BYTES)
 			return false;
 
-		if (nodeId != null) {
-			if (nodeSig == null || nodeSig.length != Signature.BYTES)
-				return false;
+		if (nodeId != null)
+			return nodeSig != null && nodeSig.length == Signature.BYTES;
+		else
+			return nodeSig == null;
+	}
 
-			Signature.PublicKey nodePk = nodeId.toSignatureKey();
+	/**
+	 * Adds the signatures of a well-formed peer to the given batch: the node signature first if the
+	 * peer has one, then the peer signature.
+	 *
+	 * @param signatures the batch to add the signatures to.
+	 */
+	private void addSignatures(Signature.Batch signatures) {
+		if (nodeId != null) {
 			byte[] digest = computeNodeDigest(publicKey, nodeId, fingerprint, sequenceNumber);
-			if (!Signature.verify(digest, nodeSig, nodePk))
-				return false;
-		} else {
-			if (nodeSig != null)
-				return false;
+			signatures.add(digest, Objects.requireNonNull(nodeSig), nodeId.bytesUnsafe());
 		}
 
 		byte[] digest = computeDigest(publicKey, sequenceNumber, nodeId, nodeSig, fingerprint, endpoint, extraData);
-		Signature.PublicKey peerPk = publicKey.toSignatureKey();
-		return Signature.verify(digest, signature, peerPk);
+		signatures.add(digest, signature, publicKey.bytesUnsafe());
 	}
 
 	/**
@@ -26,6 +26,7 @@ package io.bosonnetwork;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import org.jspecify.annotations.Nullable;
@@ -664,6 +665,68 @@ public class Value {
 	 * @return {@code true} if the value is valid, {@code false} otherwise.
 	 */
 	public boolean isValid() {
+		if (!isWellFormed())
+			return false;
+
+		if (publicKey == null)
+			return id.equals(calculateId(null, data));
+
+		// Through the cache of past successes: the same value arrives from every node a lookup asks,
+		// and again with every re-announce.
+		byte[] digest = computeDigest(publicKey, recipient, nonce, sequenceNumber, data);
+		return Signature.verifyCached(digest, Objects.requireNonNull(signature), publicKey.bytesUnsafe());
+	}
+
+	/**
+	 * Checks each of the given values as {@link #isValid()} does, verifying all their signatures as one
+	 * {@link Signature.Batch}.
+	 * <p>
+	 * For callers that hold several values at once and need a verdict on every one - the STORE VALUE
+	 * requests that arrive together, the answers a lookup collected. The batch checks a value that
+	 * arrived more than once only once, and lets the crypto provider check the rest with one batch
+	 * equation where it has one.
+	 *
+	 * @param values the values to check.
+	 * @return the result of {@link #isValid()} for every value, in order.
+	 */
+	public static boolean[] isEachValid(List<Value> values) {
+		boolean[] results = new boolean[values.size()];
+		int[] slots = new int[values.size()];
+		Signature.Batch signatures = new Signature.Batch();
+		for (int i = 0; i < slots.length; i++) {
+			Value value = values.get(i);
+			slots[i] = -1;
+			if (!value.isWellFormed())
+				continue;
+
+			if (value.publicKey == null) {
+				results[i] = value.id.equals(calculateId(null, value.data));
+				continue;
+			}
+
+			byte[] digest = computeDigest(value.publicKey, value.recipient, value.nonce, value.sequenceNumber, value.data);
+			slots[i] = signatures.add(digest, Objects.requireNonNull(value.signature), value.publicKey.bytesUnsafe());
+		}
+
+		if (signatures.size() == 0)
+			return results;
+
+		boolean[] verified = signatures.verify();
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] >= 0)
+				results[i] = verified[slots[i]];
+		}
+
+		return results;
+	}
+
+	/**
+	 * Runs every check of {@link #isValid()} that needs neither a signature verification nor a hash
+	 * of the data.
+	 *
+	 * @return {@code false} if the value is invalid whatever its signature or id.
+	 */
+	private boolean isWellFormed() {
 		if (data.length == 0 || data.length > maxDataBytes())
 			return false;
 
@@ -679,17 +742,9 @@ public class Value {
 				return false;
 			}
 
-			if (sequenceNumber < 0)
-				return false;
-
-			byte[] digest = computeDigest(publicKey, recipient, nonce, sequenceNumber, data);
-			Signature.PublicKey pk = publicKey.toSignatureKey();
-			return Signature.verify(digest, signature, pk);
+			return sequenceNumber >= 0;
 		} else {
-			if (recipient != null || nonce != null || sequenceNumber < 0 || signature != null)
-				return false;
-
-			return id.equals(calculateId(null, data));
+			return recipient == null && nonce == null && sequenceNumber >= 0 && signature == null;
 		}
 	}
 
@@ -63,7 +63,6 @@ import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.crypto.engines.ChaCha7539Engine;
-import org.bouncycastle.crypto.engines.XSalsa20Engine;
 import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
 import org.bouncycastle.crypto.macs.Poly1305;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -75,6 +74,7 @@ import org.bouncycastle.crypto.signers.Ed25519Signer;
 import org.bouncycastle.crypto.util.PrivateKeyInfoFactory;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 import org.bouncycastle.math.ec.rfc7748.X25519;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.DigestCalculator;
 import org.bouncycastle.operator.OperatorCreationException;
@@ -94,8 +94,8 @@ import io.bosonnetwork.utils.Base58;
  * Every construction is byte-for-byte compatible with libsodium. Where Bouncy Castle does not
  * expose a libsodium building block directly, it is implemented here against verified test
  * vectors (see the crypto compatibility test): the HSalsa20 core used by {@code crypto_box}
- * key derivation, the Ed25519 to Curve25519 birational map, the NaCl secretbox layout, and the
- * Argon2 PHC string format produced by {@code crypto_pwhash_str}.
+ * key derivation, the XSalsa20 keystream and NaCl layout of secretbox, the Ed25519 to Curve25519
+ * birational map, and the Argon2 PHC string format produced by {@code crypto_pwhash_str}.
  */
 public class BouncyCastleCryptoProvider implements CryptoProvider {
 	// "expand 32-byte k" - the Salsa20/HSalsa20 sigma constant.
@@ -256,10 +256,32 @@ public class BouncyCastleCryptoProvider implements CryptoProvider {
 
 	@Override
 	public boolean ed25519Verify(byte[] message, byte[] signature, Signature.PublicKey publicKey) {
-		Ed25519Signer verifier = new Ed25519Signer();
-		verifier.init(false, keyOf(publicKey));
-		verifier.update(message, 0, message.length);
-		return verifier.verifySignature(signature);
+		// Straight to the key's pre-decoded point: an Ed25519Signer would only buffer the message
+		// into a stream of its own first, and this runs for every signature a lookup brings back.
+		return keyOf(publicKey).verify(Ed25519.Algorithm.Ed25519, null, message, 0, message.length, signature, 0);
+	}
+
+	@Override
+	public boolean[] ed25519VerifyBatch(byte[][] messages, byte[][] signatures, byte[][] publicKeys) {
+		// One equation for the batch; one that fails is narrowed down by halves, on entries decoded
+		// and hashed once, so a forged entry costs the batch about one more pass over it rather than a
+		// single check of every entry - which would let one forgery per batch make every honest entry
+		// dearer than unbatched. A lone entry has nothing to share and takes the single check.
+		if (messages.length == 1)
+			return new boolean[] { verifyEntry(messages[0], signatures[0], publicKeys[0]) };
+
+		return Ed25519BatchVerifier.verifyEach(messages, signatures, publicKeys);
+	}
+
+	private boolean verifyEntry(byte[] message, byte[] signature, byte[] publicKey) {
+		Ed25519PublicKeyParameters key;
+		try {
+			key = new Ed25519PublicKeyParameters(publicKey, 0);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+
+		return key.verify(Ed25519.Algorithm.Ed25519, null, message, 0, message.length, signature, 0);
 	}
 
 	// ---- crypto_kdf (keyed BLAKE2b) ---------------------------------------
@@ -534,6 +556,13 @@ public class BouncyCastleCryptoProvider implements CryptoProvider {
 		return sharedKeyOf(box).clone();
 	}
 
+	@Override
+	public CryptoBox boxFromKeyBytes(byte[] sharedKey) {
+		if (sharedKey.length != BOX_SHARED_KEY_BYTES)
+			throw new IllegalArgumentException("Invalid shared key length: " + sharedKey.length);
+		return new BcCryptoBox(sharedKey.clone());
+	}
+
 	@Override
 	public byte[] boxEncrypt(byte[] message, CryptoBox.Nonce nonce, CryptoBox box) {
 		return secretboxSeal(message, nonceOf(nonce), sharedKeyOf(box));
@@ -596,46 +625,152 @@ public class BouncyCastleCryptoProvider implements CryptoProvider {
 
 	// ---- crypto_secretbox: XSalsa20-Poly1305 (NaCl easy layout) -----------
 
-	private static byte[] secretboxSeal(byte[] message, byte[] nonce, byte[] key) {
-		XSalsa20Engine cipher = new XSalsa20Engine();
-		cipher.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
-
-		byte[] subkey = new byte[32];
-		cipher.processBytes(new byte[32], 0, 32, subkey, 0); // first 32 keystream bytes -> Poly1305 key
+	// One keystream and MAC state per thread, re-keyed for every message. A crypto_box message needs
+	// a fresh XSalsa20 key schedule anyway - the subkey depends on the nonce - so there is nothing
+	// worth keeping per peer beyond the shared key the box already holds; what used to cost was the
+	// engine, the MAC and the scratch arrays allocated around every packet. Per thread rather than per
+	// box because the DHT decrypts one peer's datagrams on several workers at once: state owned by
+	// the box would need a lock on the hottest path there is, state owned by the thread needs none.
+	private static final ThreadLocal<SecretboxState> SECRETBOX = ThreadLocal.withInitial(SecretboxState::new);
 
+	private static byte[] secretboxSeal(byte[] message, byte[] nonce, byte[] key) {
 		byte[] out = new byte[BOX_MAC_BYTES + message.length];
-		cipher.processBytes(message, 0, message.length, out, BOX_MAC_BYTES);
-
-		Poly1305 mac = new Poly1305();
-		mac.init(new KeyParameter(subkey));
-		mac.update(out, BOX_MAC_BYTES, message.length);
-		mac.doFinal(out, 0);
+		SECRETBOX.get().seal(message, 0, message.length, nonce, key, out, 0);
 		return out;
 	}
 
 	private static byte @Nullable [] secretboxOpen(byte[] boxed, byte[] nonce, byte[] key) {
 		if (boxed.length < BOX_MAC_BYTES)
 			return null;
-		int clen = boxed.length - BOX_MAC_BYTES;
 
-		XSalsa20Engine cipher = new XSalsa20Engine();
-		cipher.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
+		byte[] message = new byte[boxed.length - BOX_MAC_BYTES];
+		return SECRETBOX.get().open(boxed, 0, boxed.length, nonce, key, message, 0) < 0 ? null : message;
+	}
 
-		byte[] subkey = new byte[32];
-		cipher.processBytes(new byte[32], 0, 32, subkey, 0);
+	@Override
+	public int boxEncrypt(byte[] message, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		return SECRETBOX.get().seal(message, offset, length, nonceOf(nonce), sharedKeyOf(box), out, outOffset);
+	}
 
-		Poly1305 mac = new Poly1305();
-		mac.init(new KeyParameter(subkey));
-		mac.update(boxed, BOX_MAC_BYTES, clen);
-		byte[] tag = new byte[BOX_MAC_BYTES];
-		mac.doFinal(tag, 0);
+	@Override
+	public int boxDecrypt(byte[] cipher, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		return SECRETBOX.get().open(cipher, offset, length, nonceOf(nonce), sharedKeyOf(box), out, outOffset);
+	}
 
-		if (!constantTimeAreEqual(BOX_MAC_BYTES, tag, 0, boxed, 0))
-			return null;
+	/**
+	 * Reusable XSalsa20-Poly1305 state: the Salsa20 input and working words, one keystream block,
+	 * and a Poly1305 keyed through a {@link KeyParameter} whose backing array is rewritten in place
+	 * ({@code getKey()} hands out that array, not a copy). Sealing or opening a message allocates
+	 * nothing. Every operation wipes the key-derived words and the keystream on the way out, so the
+	 * last message's key does not linger in a long-lived thread.
+	 * <p>
+	 * Confined to its thread: see {@link #SECRETBOX}.
+	 */
+	private static final class SecretboxState {
+		private final int[] input = new int[16];
+		private final int[] x = new int[16];
+		private final byte[] keystream = new byte[64];
+		private int keystreamPos;
+		private final KeyParameter macKey = new KeyParameter(new byte[32]);
+		private final Poly1305 mac = new Poly1305();
+		private final byte[] tag = new byte[BOX_MAC_BYTES];
+
+		int seal(byte[] message, int offset, int length, byte[] nonce, byte[] key, byte[] out, int outOffset) {
+			try {
+				init(key, nonce);
+				xor(message, offset, out, outOffset + BOX_MAC_BYTES, length);
+				mac.update(out, outOffset + BOX_MAC_BYTES, length);
+				mac.doFinal(out, outOffset);
+				return BOX_MAC_BYTES + length;
+			} finally {
+				wipe();
+			}
+		}
+
+		int open(byte[] boxed, int offset, int length, byte[] nonce, byte[] key, byte[] out, int outOffset) {
+			if (length < BOX_MAC_BYTES)
+				return -1;
+
+			int clen = length - BOX_MAC_BYTES;
+			try {
+				init(key, nonce);
+				mac.update(boxed, offset + BOX_MAC_BYTES, clen);
+				mac.doFinal(tag, 0);
+				if (!constantTimeAreEqual(BOX_MAC_BYTES, tag, 0, boxed, offset))
+					return -1;
+
+				xor(boxed, offset + BOX_MAC_BYTES, out, outOffset, clen);
+				return clen;
+			} finally {
+				wipe();
+			}
+		}
+
+		// XSalsa20: subkey = HSalsa20(key, nonce[0..16]), then Salsa20(subkey, nonce[16..24]) from
+		// block 0. The first 32 bytes of block 0 key the Poly1305, the message starts right after.
+		private void init(byte[] key, byte[] nonce) {
+			int[] in = input;
+			in[0] = load(SIGMA, 0);
+			in[5] = load(SIGMA, 4);
+			in[10] = load(SIGMA, 8);
+			in[15] = load(SIGMA, 12);
+			for (int i = 0; i < 4; i++) {
+				in[1 + i] = load(key, i * 4);
+				in[11 + i] = load(key, 16 + i * 4);
+				in[6 + i] = load(nonce, i * 4);
+			}
 
-		byte[] message = new byte[clen];
-		cipher.processBytes(boxed, BOX_MAC_BYTES, clen, message, 0);
-		return message;
+			salsaRounds(in, x);
+			in[1] = x[0];
+			in[2] = x[5];
+			in[3] = x[10];
+			in[4] = x[15];
+			in[11] = x[6];
+			in[12] = x[7];
+			in[13] = x[8];
+			in[14] = x[9];
+			in[6] = load(nonce, 16);
+			in[7] = load(nonce, 20);
+			in[8] = 0;
+			in[9] = 0;
+
+			nextBlock();
+			byte[] k = macKey.getKey();
+			System.arraycopy(keystream, 0, k, 0, k.length);
+			mac.init(macKey);
+			keystreamPos = 32;
+		}
+
+		private void nextBlock() {
+			salsaRounds(input, x);
+			for (int i = 0; i < 16; i++)
+				store(keystream, i * 4, x[i] + input[i]);
+
+			if (++input[8] == 0)
+				++input[9];
+			keystreamPos = 0;
+		}
+
+		// Reads each input byte before writing the output byte at the same or a lower index, so the
+		// output may start at or before the input in the same buffer.
+		private void xor(byte[] in, int inOffset, byte[] out, int outOffset, int length) {
+			for (int i = 0; i < length; i++) {
+				if (keystreamPos == keystream.length)
+					nextBlock();
+				out[outOffset + i] = (byte) (in[inOffset + i] ^ keystream[keystreamPos++]);
+			}
+		}
+
+		private void wipe() {
+			Arrays.fill(input, 0);
+			Arrays.fill(x, 0);
+			Arrays.fill(keystream, (byte) 0);
+			Arrays.fill(macKey.getKey(), (byte) 0);
+			Arrays.fill(tag, (byte) 0);
+			mac.reset();
+		}
 	}
 
 	// ---- HSalsa20 core (crypto_core_hsalsa20) -----------------------------
@@ -644,10 +779,36 @@ public class BouncyCastleCryptoProvider implements CryptoProvider {
 
 	@SuppressWarnings("SameParameterValue")
 	private static byte[] hsalsa20(byte[] key, byte[] in, byte[] c) {
-		int x0 = load(c, 0), x5 = load(c, 4), x10 = load(c, 8), x15 = load(c, 12);
-		int x1 = load(key, 0), x2 = load(key, 4), x3 = load(key, 8), x4 = load(key, 12);
-		int x11 = load(key, 16), x12 = load(key, 20), x13 = load(key, 24), x14 = load(key, 28);
-		int x6 = load(in, 0), x7 = load(in, 4), x8 = load(in, 8), x9 = load(in, 12);
+		int[] input = {
+				load(c, 0), load(key, 0), load(key, 4), load(key, 8),
+				load(key, 12), load(c, 4), load(in, 0), load(in, 4),
+				load(in, 8), load(in, 12), load(c, 8), load(key, 16),
+				load(key, 20), load(key, 24), load(key, 28), load(c, 12)
+		};
+		int[] x = new int[16];
+		salsaRounds(input, x);
+
+		byte[] out = new byte[32];
+		store(out, 0, x[0]);
+		store(out, 4, x[5]);
+		store(out, 8, x[10]);
+		store(out, 12, x[15]);
+		store(out, 16, x[6]);
+		store(out, 20, x[7]);
+		store(out, 24, x[8]);
+		store(out, 28, x[9]);
+		Arrays.fill(input, 0);
+		Arrays.fill(x, 0);
+		return out;
+	}
+
+	// The 20 Salsa20 rounds (ten double rounds) over the sixteen input words, without the final
+	// feed-forward add: HSalsa20 takes the words as they are, a Salsa20 block adds the input back.
+	private static void salsaRounds(int[] in, int[] out) {
+		int x0 = in[0], x1 = in[1], x2 = in[2], x3 = in[3];
+		int x4 = in[4], x5 = in[5], x6 = in[6], x7 = in[7];
+		int x8 = in[8], x9 = in[9], x10 = in[10], x11 = in[11];
+		int x12 = in[12], x13 = in[13], x14 = in[14], x15 = in[15];
 
 		for (int i = 0; i < 10; i++) {
 			x4 ^= Integer.rotateLeft(x0 + x12, 7);
@@ -685,16 +846,22 @@ public class BouncyCastleCryptoProvider implements CryptoProvider {
 			x15 ^= Integer.rotateLeft(x14 + x13, 18);
 		}
 
-		byte[] out = new byte[32];
-		store(out, 0, x0);
-		store(out, 4, x5);
-		store(out, 8, x10);
-		store(out, 12, x15);
-		store(out, 16, x6);
-		store(out, 20, x7);
-		store(out, 24, x8);
-		store(out, 28, x9);
-		return out;
+		out[0] = x0;
+		out[1] = x1;
+		out[2] = x2;
+		out[3] = x3;
+		out[4] = x4;
+		out[5] = x5;
+		out[6] = x6;
+		out[7] = x7;
+		out[8] = x8;
+		out[9] = x9;
+		out[10] = x10;
+		out[11] = x11;
+		out[12] = x12;
+		out[13] = x13;
+		out[14] = x14;
+		out[15] = x15;
 	}
 
 	private static int load(byte[] b, int off) {
@@ -22,6 +22,10 @@
 
 package io.bosonnetwork.crypto;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -46,6 +50,13 @@ import io.bosonnetwork.Identity;
  * {@link #decrypt(Id, byte[])} methods only. Cached contexts are closed when evicted, so they are
  * never handed out to callers; {@link #createCryptoContext(Id)} always returns a new, caller-owned
  * instance.
+ * <p>
+ * Deriving a context costs an X25519 agreement plus an HSalsa20 key derivation, which is why a node
+ * that just reloaded a routing table of a few hundred peers pays for all of them at once when it
+ * pings the table. {@link #warmCache(Collection)} lets the caller compute them ahead of time on
+ * threads of its choosing, and {@link #exportCache()} / {@link #importCache(byte[])} carry the
+ * derived keys across a restart, encrypted under this identity's own key, so the next start skips
+ * the agreements altogether.
  */
 public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 	private volatile @Nullable LoadingCache<Id, CryptoContext> cryptoContexts;
@@ -101,7 +112,13 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 		if (cryptoContexts != null)
 			throw new IllegalStateException("Cache already initialized");
 
-		this.cryptoContexts = caffeine.removalListener(this::removalListener).build(super::createCryptoContext);
+		this.cryptoContexts = caffeine.removalListener(this::removalListener).build(this::loadContext);
+	}
+
+	// The cached variant of createCryptoContext: keeps the box so exportCache can read its key back.
+	private CryptoContext loadContext(Id id) {
+		CryptoBox box = CryptoBox.fromKeys(id.toEncryptionKey(), getEncryptionKeyPair().privateKey());
+		return new CachedContext(id, box);
 	}
 
 	private void removalListener(@Nullable Id id, @Nullable CryptoContext ctx, RemovalCause cause) {
@@ -125,6 +142,159 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 			cryptoContexts.invalidateAll();
 	}
 
+	/**
+	 * Computes and caches the {@link CryptoContext} for each of the given peers that is not cached
+	 * yet, on the calling thread.
+	 * <p>
+	 * This is the blocking building block of a cache warm-up: call it from worker threads, splitting
+	 * the peers across as many calls as the parallelism allowed. A peer whose id is not a valid
+	 * encryption key is skipped; it would fail the same way on first use.
+	 *
+	 * @param ids the peers to derive contexts for; must not be {@code null}
+	 * @return the number of contexts computed by this call
+	 */
+	public int warmCache(Collection<Id> ids) {
+		Objects.requireNonNull(ids, "ids");
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		if (cryptoContexts == null)
+			return 0;
+
+		int computed = 0;
+		for (Id id : ids) {
+			if (cryptoContexts.getIfPresent(id) != null)
+				continue;
+
+			try {
+				cryptoContexts.get(id);
+				computed++;
+			} catch (RuntimeException e) {
+				// invalid peer key: nothing to cache
+			}
+		}
+
+		return computed;
+	}
+
+	/**
+	 * Returns the number of cached {@link CryptoContext} instances.
+	 *
+	 * @return the estimated number of cached contexts, or 0 if there is no cache
+	 */
+	public long cacheSize() {
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		return cryptoContexts != null ? cryptoContexts.estimatedSize() : 0;
+	}
+
+	/**
+	 * Serializes the cached contexts' shared keys, encrypted at rest under this identity's own key.
+	 * <p>
+	 * The blob is {@code nonce || box(count || (peerId || sharedKey)*)}, sealed with the box this
+	 * identity shares with itself, so only the same identity can read it back. Only the derived
+	 * keys are kept: nonce state is per-process and starts fresh on import.
+	 *
+	 * @return the encrypted cache, or {@code null} if there is no cache or nothing cached
+	 */
+	public byte @Nullable [] exportCache() {
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		if (cryptoContexts == null)
+			return null;
+
+		Map<Id, CryptoContext> snapshot = Map.copyOf(cryptoContexts.asMap());
+		if (snapshot.isEmpty())
+			return null;
+
+		CryptoProvider provider = CryptoProviders.getDefault();
+		ByteBuffer plain = ByteBuffer.allocate(Integer.BYTES +
+				snapshot.size() * (Id.BYTES + CryptoProvider.BOX_SHARED_KEY_BYTES));
+		int count = 0;
+		plain.putInt(0);
+		for (CryptoContext ctx : snapshot.values()) {
+			if (!(ctx instanceof CachedContext cached))
+				continue;
+
+			byte[] key;
+			try {
+				key = provider.boxKeyBytes(cached.box);
+			} catch (IllegalStateException e) {
+				continue; // evicted and closed since the snapshot
+			}
+
+			plain.put(ctx.getId().bytesUnsafe()).put(key);
+			Arrays.fill(key, (byte) 0);
+			count++;
+		}
+		plain.putInt(0, count);
+
+		byte[] data = Arrays.copyOf(plain.array(), plain.position());
+		Arrays.fill(plain.array(), (byte) 0);
+		try (CryptoContext self = selfContext()) {
+			return self.encrypt(data);
+		} finally {
+			Arrays.fill(data, (byte) 0);
+		}
+	}
+
+	/**
+	 * Restores contexts saved by {@link #exportCache()}, skipping the key agreement for every peer
+	 * in it. Peers that are already cached keep their current context.
+	 *
+	 * @param data the encrypted cache; must not be {@code null}
+	 * @return the number of contexts restored, or 0 if there is no cache
+	 * @throws CryptoException if the data was not written by this identity or is corrupt
+	 */
+	public int importCache(byte[] data) throws CryptoException {
+		Objects.requireNonNull(data, "data");
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		if (cryptoContexts == null)
+			return 0;
+
+		if (data.length <= CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES)
+			throw new CryptoException("Invalid cipher size");
+
+		byte[] plain;
+		try (CryptoContext self = selfContext()) {
+			plain = self.decrypt(data);
+		}
+
+		try {
+			ByteBuffer buf = ByteBuffer.wrap(plain);
+			int entryBytes = Id.BYTES + CryptoProvider.BOX_SHARED_KEY_BYTES;
+			int count = buf.remaining() >= Integer.BYTES ? buf.getInt() : -1;
+			if (count < 0 || (long) count * entryBytes != buf.remaining())
+				throw new CryptoException("Corrupt crypto context cache");
+
+			CryptoProvider provider = CryptoProviders.getDefault();
+			byte[] id = new byte[Id.BYTES];
+			byte[] key = new byte[CryptoProvider.BOX_SHARED_KEY_BYTES];
+			int restored = 0;
+			try {
+				for (int i = 0; i < count; i++) {
+					buf.get(id).get(key);
+					Id peer = Id.of(id);
+					if (cryptoContexts.getIfPresent(peer) != null)
+						continue;
+
+					CryptoContext ctx = new CachedContext(peer, provider.boxFromKeyBytes(key));
+					if (cryptoContexts.asMap().putIfAbsent(peer, ctx) != null)
+						ctx.close();
+					else
+						restored++;
+				}
+			} finally {
+				Arrays.fill(key, (byte) 0);
+			}
+
+			return restored;
+		} finally {
+			Arrays.fill(plain, (byte) 0);
+		}
+	}
+
+	// The context this identity shares with itself: the key for the at-rest cache blob.
+	private CryptoContext selfContext() {
+		return new CryptoContext(getId(), getEncryptionKeyPair().privateKey());
+	}
+
 	/**
 	 * Destroys this identity, first closing and clearing any cached {@link CryptoContext}
 	 * instances (each holds a native shared key) and then wiping the underlying key material.
@@ -181,6 +351,44 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 		return getContext(sender).decrypt(data);
 	}
 
+	/**
+	 * Returns the cipher suite messages to the given peer are sealed with: the one recorded on its
+	 * cached context, or {@link CipherSuite#XSALSA20_POLY1305} if there is none.
+	 *
+	 * @param peer the {@link Id} of the peer; must not be {@code null}
+	 * @return the suite used for messages to that peer
+	 */
+	@Override
+	public CipherSuite getCipherSuite(Id peer) {
+		Objects.requireNonNull(peer, "peer");
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		CryptoContext ctx = cryptoContexts != null ? cryptoContexts.getIfPresent(peer) : null;
+		return ctx != null ? ctx.getCipherSuite() : CipherSuite.XSALSA20_POLY1305;
+	}
+
+	/**
+	 * Records the negotiated cipher suite on the peer's cached context, deriving the context if
+	 * needed. The suite lives and dies with the context: once it is evicted the peer is back to
+	 * {@link CipherSuite#XSALSA20_POLY1305} until the caller negotiates again. Without a cache there
+	 * is nowhere to record it, and the call has no effect.
+	 *
+	 * @param peer  the {@link Id} of the peer; must not be {@code null}
+	 * @param suite the suite the peer is known to support; must not be {@code null}
+	 * @throws IllegalArgumentException if the suite is not available in this JVM
+	 */
+	@Override
+	public void setCipherSuite(Id peer, CipherSuite suite) {
+		Objects.requireNonNull(peer, "peer");
+		Objects.requireNonNull(suite, "suite");
+		LoadingCache<Id, CryptoContext> cryptoContexts = this.cryptoContexts;
+		if (cryptoContexts == null)
+			return;
+
+		CryptoContext ctx = cryptoContexts.get(peer);
+		if (ctx.getCipherSuite() != suite)
+			ctx.setCipherSuite(suite);
+	}
+
 	/**
 	 * Creates a {@link CryptoContext} for secure communications with the specified identity.
 	 * <p>
@@ -202,4 +410,14 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 		Objects.requireNonNull(id, "id");
 		return super.createCryptoContext(id);
 	}
-}
\ No newline at end of file
+
+	// A cached context that remembers its precomputed box, so exportCache can read the shared key.
+	private static final class CachedContext extends CryptoContext {
+		private final CryptoBox box;
+
+		CachedContext(Id id, CryptoBox box) {
+			super(id, box);
+			this.box = box;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.Destroyable;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The authenticated encryption constructions a {@link io.bosonnetwork.CryptoContext} can protect
+ * messages with.
+ * <p>
+ * {@link #XSALSA20_POLY1305} is the {@link CryptoBox} construction every node understands, and the
+ * one a context uses until told otherwise. The other suites are there for throughput on large
+ * payloads: the JDK's {@code AES/GCM} is intrinsified on CPUs with AES and carry-less multiply
+ * instructions, and runs several times faster per byte than a pure-Java Salsa20, while
+ * {@code ChaCha20-Poly1305} is the fallback for hardware without them. Which suite a peer gets is
+ * negotiated by the caller (the DHT uses the peer's protocol version); a context only records it.
+ * <p>
+ * All suites share one frame layout and one size, so switching suites never changes how big a
+ * message is: {@code nonce(24) || ciphertext || tag(16)} for the AEAD suites against
+ * {@code nonce(24) || MAC(16) || ciphertext} for the box. The AEAD suites use the first 12 bytes of
+ * the 24-byte context nonce as their IV - the bytes the context's little-endian nonce increment
+ * advances - and each derives its key from the box's X25519 shared key with a suite-specific label,
+ * so no key is ever used by two constructions.
+ */
+public enum CipherSuite {
+	/** XSalsa20-Poly1305, the {@link CryptoBox} construction; understood by every node. */
+	XSALSA20_POLY1305(null, null),
+	/** AES-256 in GCM mode, from the JDK. */
+	AES_256_GCM("AES/GCM/NoPadding", "AES"),
+	/** ChaCha20-Poly1305 (RFC 8439), from the JDK. */
+	CHACHA20_POLY1305("ChaCha20-Poly1305", "ChaCha20");
+
+	/** The byte length of the IV the AEAD suites take from the context nonce. */
+	public static final int IV_BYTES = 12;
+	/** The byte length of the AEAD authentication tag; equal to {@link CryptoBox#MAC_BYTES}. */
+	public static final int TAG_BYTES = 16;
+
+	private final @Nullable String transformation;
+	private final @Nullable String keyAlgorithm;
+	private final @Nullable ThreadLocal<Cipher> ciphers;
+	private final boolean available;
+
+	CipherSuite(@Nullable String transformation, @Nullable String keyAlgorithm) {
+		this.transformation = transformation;
+		this.keyAlgorithm = keyAlgorithm;
+		// javax.crypto.Cipher is stateful and not thread-safe, and getInstance is a provider lookup:
+		// one instance per thread per suite, re-initialized for every message.
+		this.ciphers = transformation == null ? null : ThreadLocal.withInitial(() -> newCipher(transformation));
+		this.available = transformation == null || probe(transformation);
+	}
+
+	private static Cipher newCipher(String transformation) {
+		try {
+			return Cipher.getInstance(transformation);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Cipher not available: " + transformation, e);
+		}
+	}
+
+	private static boolean probe(String transformation) {
+		try {
+			Cipher.getInstance(transformation);
+			return true;
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether this suite can be used in this JVM. The box construction always can; the AEAD
+	 * suites need the JDK cipher, which a restricted security provider configuration may lack.
+	 *
+	 * @return {@code true} if the suite is usable.
+	 */
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * Returns whether this suite is one of the JDK AEAD constructions rather than the box.
+	 *
+	 * @return {@code true} for the AEAD suites.
+	 */
+	public boolean isAead() {
+		return transformation != null;
+	}
+
+	/**
+	 * Derives this suite's key from the shared key held by a precomputed box:
+	 * {@code SHA-256("boson:" || name() || 0x00 || sharedKey)}.
+	 *
+	 * @param box the precomputed box of the peer the key is for.
+	 * @return the derived key; the caller destroys it when done.
+	 * @throws UnsupportedOperationException if this is {@link #XSALSA20_POLY1305}, which uses the box
+	 *                                       itself.
+	 * @throws IllegalStateException         if the suite is not available or the box is closed.
+	 */
+	public Key deriveKey(CryptoBox box) {
+		Objects.requireNonNull(box, "box");
+		if (!isAead())
+			throw new UnsupportedOperationException(name() + " uses the box directly");
+		if (!available)
+			throw new IllegalStateException(name() + " is not available");
+
+		byte[] sharedKey = CryptoProviders.getDefault().boxKeyBytes(box);
+		byte[] label = ("boson:" + name()).getBytes(StandardCharsets.US_ASCII);
+		byte[] key = Hash.sha256(label, new byte[1], sharedKey);
+		Arrays.fill(sharedKey, (byte) 0);
+		return new Key(this, key);
+	}
+
+	private AlgorithmParameterSpec parameters(byte[] nonce, int offset) {
+		return this == AES_256_GCM ?
+				new GCMParameterSpec(TAG_BYTES * 8, nonce, offset, IV_BYTES) :
+				new IvParameterSpec(nonce, offset, IV_BYTES);
+	}
+
+	/**
+	 * A key of one AEAD suite. Safe for concurrent use: each thread seals and opens with its own
+	 * {@link Cipher}.
+	 */
+	public static final class Key implements Destroyable {
+		private final CipherSuite suite;
+		private final byte[] keyBytes;
+		private volatile @Nullable SecretKeySpec key;
+
+		private Key(CipherSuite suite, byte[] keyBytes) {
+			this.suite = suite;
+			this.keyBytes = keyBytes;
+			this.key = new SecretKeySpec(keyBytes, suite.keyAlgorithm);
+		}
+
+		/**
+		 * Returns the suite this key belongs to.
+		 *
+		 * @return the suite.
+		 */
+		public CipherSuite suite() {
+			return suite;
+		}
+
+		private SecretKeySpec keyOrThrow() {
+			SecretKeySpec k = key;
+			if (k == null)
+				throw new IllegalStateException("Key has been destroyed");
+			return k;
+		}
+
+		/**
+		 * Encrypts part of a buffer, writing {@code ciphertext || tag} into {@code out}.
+		 *
+		 * @param message   the buffer holding the plaintext.
+		 * @param offset    the offset of the plaintext in {@code message}.
+		 * @param length    the length of the plaintext.
+		 * @param nonce     the buffer holding the nonce; its first {@link #IV_BYTES} bytes from
+		 *                  {@code nonceOffset} are the IV, which must never repeat under this key.
+		 * @param nonceOffset the offset of the nonce in {@code nonce}.
+		 * @param out       the buffer to write into; needs {@code length + TAG_BYTES} bytes.
+		 * @param outOffset the offset in {@code out} to write at.
+		 * @return the number of bytes written.
+		 */
+		public int seal(byte[] message, int offset, int length, byte[] nonce, int nonceOffset,
+				byte[] out, int outOffset) {
+			Objects.checkFromIndexSize(offset, length, message.length);
+			Objects.checkFromIndexSize(nonceOffset, IV_BYTES, nonce.length);
+			Objects.checkFromIndexSize(outOffset, length + TAG_BYTES, out.length);
+
+			@SuppressWarnings("DataFlowIssue")
+			Cipher cipher = suite.ciphers.get();
+			try {
+				cipher.init(Cipher.ENCRYPT_MODE, keyOrThrow(), suite.parameters(nonce, nonceOffset));
+				return cipher.doFinal(message, offset, length, out, outOffset);
+			} catch (GeneralSecurityException e) {
+				// Only reachable through a repeated IV (the JDK refuses it) or a broken provider.
+				throw new IllegalStateException(suite.name() + " encryption failed", e);
+			}
+		}
+
+		/**
+		 * Decrypts and authenticates part of a buffer holding {@code ciphertext || tag}, writing the
+		 * plaintext into {@code out}.
+		 *
+		 * @param cipherText  the buffer holding the ciphertext and tag.
+		 * @param offset      the offset of the ciphertext in {@code cipherText}.
+		 * @param length      the length of the ciphertext including the tag.
+		 * @param nonce       the buffer holding the nonce the message was sealed with.
+		 * @param nonceOffset the offset of the nonce in {@code nonce}.
+		 * @param out         the buffer to write into; needs {@code length - TAG_BYTES} bytes.
+		 * @param outOffset   the offset in {@code out} to write at.
+		 * @return the number of plaintext bytes written.
+		 * @throws CryptoException if the message is too short or fails authentication.
+		 */
+		public int open(byte[] cipherText, int offset, int length, byte[] nonce, int nonceOffset,
+				byte[] out, int outOffset) throws CryptoException {
+			Objects.checkFromIndexSize(offset, length, cipherText.length);
+			Objects.checkFromIndexSize(nonceOffset, IV_BYTES, nonce.length);
+			if (length < TAG_BYTES)
+				throw new CryptoException("Invalid cipher size");
+			Objects.checkFromIndexSize(outOffset, length - TAG_BYTES, out.length);
+
+			try {
+				Cipher cipher = decryptor(nonce, nonceOffset);
+				return cipher.doFinal(cipherText, offset, length, out, outOffset);
+			} catch (AEADBadTagException e) {
+				throw new CryptoException("Decryption failed: invalid ciphertext or authentication failure");
+			} catch (GeneralSecurityException e) {
+				throw new CryptoException(suite.name() + " decryption failed", e);
+			}
+		}
+
+		// The JDK's ChaCha20 refuses to be re-initialized with the key and nonce it was last given, in
+		// either mode. The two directions of a link share one key, so a thread that sealed a frame and
+		// then opens it - a node talking to itself, two identities in one process - trips that check
+		// without any nonce having been reused on the wire. Opening leaks nothing, so it gets a fresh
+		// instance; sealing keeps the check.
+		private Cipher decryptor(byte[] nonce, int nonceOffset) throws GeneralSecurityException {
+			@SuppressWarnings("DataFlowIssue")
+			Cipher cipher = suite.ciphers.get();
+			try {
+				cipher.init(Cipher.DECRYPT_MODE, keyOrThrow(), suite.parameters(nonce, nonceOffset));
+			} catch (InvalidKeyException e) {
+				//noinspection DataFlowIssue
+				cipher = newCipher(suite.transformation);
+				cipher.init(Cipher.DECRYPT_MODE, keyOrThrow(), suite.parameters(nonce, nonceOffset));
+				suite.ciphers.set(cipher);
+			}
+			return cipher;
+		}
+
+		/**
+		 * Wipes the key. The JDK's own copy inside {@link SecretKeySpec} cannot be wiped, but
+		 * dropping it lets it be collected.
+		 */
+		@Override
+		public void destroy() {
+			key = null;
+			Arrays.fill(keyBytes, (byte) 0);
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return key == null;
+		}
+	}
+}
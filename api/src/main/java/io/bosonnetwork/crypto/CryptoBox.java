@@ -484,6 +484,70 @@ public interface CryptoBox extends AutoCloseable, Destroyable {
 		return plain;
 	}
 
+	/**
+	 * Encrypt part of a buffer with this precomputed box, writing the cipher text into a
+	 * caller-supplied buffer instead of a new array.
+	 * <p>
+	 * This is the steady-state packet path: the caller sizes one output buffer for whatever framing
+	 * surrounds the cipher text (a nonce in front, for instance) and the box fills its part in place,
+	 * so nothing is copied in or out. The input and output ranges must not overlap.
+	 *
+	 * @param message the buffer holding the message to encrypt. Must not be null.
+	 * @param offset the offset of the message in {@code message}.
+	 * @param length the length of the message.
+	 * @param nonce a unique nonce object. Must not be null.
+	 * @param out the buffer to receive the cipher text. Must not be null, and must have
+	 *        {@code length + MAC_BYTES} bytes of room from {@code outOffset}.
+	 * @param outOffset the offset in {@code out} to write the cipher text at.
+	 * @return the length of the cipher text written, always {@code length + MAC_BYTES}.
+	 * @throws NullPointerException if any argument is null.
+	 * @throws IndexOutOfBoundsException if a range falls outside its buffer.
+	 */
+	default int encrypt(byte[] message, int offset, int length, Nonce nonce, byte[] out, int outOffset) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(nonce, "nonce");
+		Objects.requireNonNull(out, "out");
+		Objects.checkFromIndexSize(offset, length, message.length);
+		Objects.checkFromIndexSize(outOffset, length + MAC_BYTES, out.length);
+		return provider().boxEncrypt(message, offset, length, nonce, this, out, outOffset);
+	}
+
+	/**
+	 * Decrypt part of a buffer with this precomputed box, writing the plain text into a
+	 * caller-supplied buffer instead of a new array.
+	 * <p>
+	 * Nothing is written to {@code out} unless the cipher text authenticates. The output may start at
+	 * or before the cipher text in the same buffer - decrypting in place is allowed - but must not
+	 * start inside it.
+	 *
+	 * @param cipher the buffer holding the cipher text to decrypt. Must not be null.
+	 * @param offset the offset of the cipher text in {@code cipher}.
+	 * @param length the length of the cipher text, MAC included.
+	 * @param nonce the nonce that was used for encryption. Must not be null.
+	 * @param out the buffer to receive the plain text. Must not be null, and must have
+	 *        {@code length - MAC_BYTES} bytes of room from {@code outOffset}.
+	 * @param outOffset the offset in {@code out} to write the plain text at.
+	 * @return the length of the plain text written, always {@code length - MAC_BYTES}.
+	 * @throws NullPointerException if any argument is null.
+	 * @throws IndexOutOfBoundsException if a range falls outside its buffer.
+	 * @throws CryptoException if the cipher text is too short, or the verification or decryption failed.
+	 */
+	default int decrypt(byte[] cipher, int offset, int length, Nonce nonce, byte[] out, int outOffset) throws CryptoException {
+		Objects.requireNonNull(cipher, "cipher");
+		Objects.requireNonNull(nonce, "nonce");
+		Objects.requireNonNull(out, "out");
+		Objects.checkFromIndexSize(offset, length, cipher.length);
+		if (length < MAC_BYTES)
+			throw new CryptoException("Invalid cipher size");
+		Objects.checkFromIndexSize(outOffset, length - MAC_BYTES, out.length);
+
+		int plainLength = provider().boxDecrypt(cipher, offset, length, nonce, this, out, outOffset);
+		if (plainLength < 0)
+			throw new CryptoException("Decryption failed: invalid ciphertext or authentication failure");
+
+		return plainLength;
+	}
+
 	@Override
 	void close();
 
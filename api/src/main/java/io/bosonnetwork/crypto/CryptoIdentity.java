@@ -22,7 +22,6 @@
 
 package io.bosonnetwork.crypto;
 
-import java.util.Arrays;
 import java.util.Objects;
 import javax.security.auth.Destroyable;
 
@@ -141,14 +140,11 @@ public class CryptoIdentity implements Identity, Destroyable {
 		if (data.length <= CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES)
 			throw new CryptoException("Invalid cipher size");
 
-		// TODO: how to avoid the memory copy?!
-		byte[] n = Arrays.copyOfRange(data, 0, CryptoBox.Nonce.BYTES);
-		CryptoBox.Nonce nonce = CryptoBox.Nonce.fromBytes(n);
-
-		CryptoBox.PublicKey pk = sender.toEncryptionKey();
-		CryptoBox.PrivateKey sk = encryptionKeyPair.privateKey();
-		byte[] cipher = Arrays.copyOfRange(data, CryptoBox.Nonce.BYTES, data.length);
-		return CryptoBox.decrypt(cipher, pk, sk, nonce);
+		// Through a one-off context so a sender that negotiated another cipher suite with us is still
+		// understood; the context costs the same key agreement the box alone did.
+		try (CryptoContext ctx = createCryptoContext(sender)) {
+			return ctx.decrypt(data);
+		}
 	}
 
 	/**
@@ -22,6 +22,11 @@
 
 package io.bosonnetwork.crypto;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.security.auth.Destroyable;
 
 import org.jspecify.annotations.Nullable;
@@ -35,9 +40,10 @@ import org.jspecify.annotations.Nullable;
  * its native representation across calls; messages, ciphertexts, hashes and salts are plain
  * {@code byte[]}. The public wrapper classes ({@link Signature}, {@link CryptoBox},
  * {@link PasswordHash}) delegate to the active provider without exposing any implementation type.
- * The default backend is the pure-Java {@link BouncyCastleCryptoProvider}; an alternative backend
- * (for example a future JNI binding to libsodium) can be supplied through the
- * {@link java.util.ServiceLoader} mechanism, discovered by {@link CryptoProviders}.
+ * Two backends ship with Boson: the native {@link LibsodiumCryptoProvider}, used when libsodium is
+ * installed, and the pure-Java {@link BouncyCastleCryptoProvider} it falls back to. Further backends
+ * can be supplied through the {@link java.util.ServiceLoader} mechanism, discovered by
+ * {@link CryptoProviders}.
  * <p>
  * A key object is owned by the provider that created it. A provider that is handed a foreign key
  * object (for example after the active provider was swapped) must still accept it by reconstructing
@@ -65,7 +71,8 @@ import org.jspecify.annotations.Nullable;
  * key/nonce/salt sizes and value ranges - before dispatching to this interface. Implementations may
  * therefore assume non-null, correctly-sized inputs and are not expected to re-check them.
  * Implementations also never throw a checked exception: an authentication or decryption failure is
- * reported by returning {@code null} (see {@link #boxDecrypt} and {@link #boxSealOpen}), which the
+ * reported by returning {@code null} (see {@link #boxDecrypt} and {@link #boxSealOpen}) or, for the
+ * buffer variants, a negative length, which the
  * wrapper translates into a checked {@link CryptoException}. Keeping providers free of the Boson
  * exception hierarchy keeps a backend a pure cryptographic mechanism.
  */
@@ -176,6 +183,12 @@ public interface CryptoProvider {
 
 	/**
 	 * Verifies a detached Ed25519 signature.
+	 * <p>
+	 * The check is the cofactored one of RFC 8032, {@code [8]S·B = [8]R + [8]k·A}, with the
+	 * encodings of R and A required canonical, S required below the group order and small-order keys
+	 * rejected - the rules of Bouncy Castle's {@code Ed25519.verify}. Ed25519 implementations differ
+	 * on exactly these edge cases, and every node must accept the same signatures, or a crafted
+	 * record is valid on some nodes and not on others.
 	 *
 	 * @param message   the message.
 	 * @param signature the {@value #SIGN_BYTES}-byte signature.
@@ -184,6 +197,45 @@ public interface CryptoProvider {
 	 */
 	boolean ed25519Verify(byte[] message, byte[] signature, Signature.PublicKey publicKey);
 
+	/**
+	 * Verifies a batch of detached Ed25519 signatures, reporting each one's result.
+	 * <p>
+	 * The public keys come as raw bytes so that a batch holding many signatures by one key - every
+	 * peer in a FIND_PEER response is signed by the key of the looked-up id - decodes that key once.
+	 * A key that does not decode to a curve point fails its entries instead of throwing.
+	 * <p>
+	 * The default implementation checks the entries one by one with {@link #ed25519Verify}, decoding
+	 * each distinct key once. A backend with a batch equation (a random linear combination of the
+	 * entries, checked with one multi-scalar multiplication) tries that first and, when it fails,
+	 * narrows the bad entries down by checking halves of the batch the same way, so one bad entry
+	 * does not cost every good one an individual check. Whatever it does, the results must be exactly
+	 * those of {@link #ed25519Verify}: an equation that accepts a signature the single check rejects,
+	 * or the other way round, lets the validity of a record depend on what it happened to be batched
+	 * with. The wrapper layer has already removed duplicate entries and entries with a wrong-length
+	 * signature or key.
+	 *
+	 * @param messages   the messages.
+	 * @param signatures the {@value #SIGN_BYTES}-byte signatures, one per message.
+	 * @param publicKeys the {@value #SIGN_PUBLIC_KEY_BYTES}-byte public keys, one per message.
+	 * @return the verification result of every entry, in order.
+	 */
+	default boolean[] ed25519VerifyBatch(byte[][] messages, byte[][] signatures, byte[][] publicKeys) {
+		boolean[] results = new boolean[messages.length];
+		Map<ByteBuffer, Signature.@Nullable PublicKey> keys = new HashMap<>();
+		for (int i = 0; i < messages.length; i++) {
+			Signature.PublicKey key = keys.computeIfAbsent(ByteBuffer.wrap(publicKeys[i]), k -> {
+				try {
+					return ed25519PublicKeyFromBytes(k.array());
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			});
+			results[i] = key != null && ed25519Verify(messages[i], signatures[i], key);
+		}
+
+		return results;
+	}
+
 	// ---- crypto_kdf (keyed BLAKE2b) ---------------------------------------
 
 	/**
@@ -283,6 +335,17 @@ public interface CryptoProvider {
 	 */
 	byte[] boxKeyBytes(CryptoBox box);
 
+	/**
+	 * Rebuilds a precomputed {@link CryptoBox} from shared-key bytes previously read with
+	 * {@link #boxKeyBytes}, skipping the key agreement. This is what lets derived keys be cached
+	 * across restarts. Every provider must support it, as the inverse of {@link #boxKeyBytes}.
+	 *
+	 * @param sharedKey the {@value #BOX_SHARED_KEY_BYTES}-byte shared key; copied, not retained.
+	 * @return the precomputed crypto box.
+	 * @throws IllegalArgumentException if the key has the wrong length.
+	 */
+	CryptoBox boxFromKeyBytes(byte[] sharedKey);
+
 	/**
 	 * Encrypts a message with a precomputed shared key (libsodium {@code crypto_box_easy_afternm}).
 	 * <p>
@@ -310,6 +373,59 @@ public interface CryptoProvider {
 	 */
 	byte @Nullable [] boxDecrypt(byte[] cipher, CryptoBox.Nonce nonce, CryptoBox box);
 
+	/**
+	 * Encrypts part of a buffer with a precomputed shared key, writing the ciphertext (MAC prepended)
+	 * into a caller-supplied buffer.
+	 * <p>
+	 * This is the per-packet path, so a provider should serve it without allocating: the default
+	 * implementation only adapts {@link #boxEncrypt(byte[], CryptoBox.Nonce, CryptoBox)} and copies
+	 * in and out, which keeps a third-party provider working but gains it nothing. The ranges are
+	 * already checked by the caller and do not overlap.
+	 *
+	 * @param message   the buffer holding the plaintext.
+	 * @param offset    the offset of the plaintext in {@code message}.
+	 * @param length    the length of the plaintext.
+	 * @param nonce     the {@value #BOX_NONCE_BYTES}-byte nonce.
+	 * @param box       a precomputed crypto box created by this provider's {@link #boxBeforeNm}.
+	 * @param out       the buffer to receive {@code length + BOX_MAC_BYTES} bytes of ciphertext.
+	 * @param outOffset the offset in {@code out} to write at.
+	 * @return the number of bytes written.
+	 */
+	default int boxEncrypt(byte[] message, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		byte[] cipher = boxEncrypt(Arrays.copyOfRange(message, offset, offset + length), nonce, box);
+		System.arraycopy(cipher, 0, out, outOffset, cipher.length);
+		return cipher.length;
+	}
+
+	/**
+	 * Decrypts part of a buffer with a precomputed shared key, writing the plaintext into a
+	 * caller-supplied buffer.
+	 * <p>
+	 * The counterpart of {@link #boxEncrypt(byte[], int, int, CryptoBox.Nonce, CryptoBox, byte[], int)},
+	 * with the same note on the default implementation. Nothing may be written to {@code out} before
+	 * the MAC has been verified. The output range may start at or before the input range in the same
+	 * buffer, never inside it.
+	 *
+	 * @param cipher    the buffer holding the ciphertext.
+	 * @param offset    the offset of the ciphertext in {@code cipher}.
+	 * @param length    the length of the ciphertext, at least {@value #BOX_MAC_BYTES}.
+	 * @param nonce     the {@value #BOX_NONCE_BYTES}-byte nonce.
+	 * @param box       a precomputed crypto box created by this provider's {@link #boxBeforeNm}.
+	 * @param out       the buffer to receive {@code length - BOX_MAC_BYTES} bytes of plaintext.
+	 * @param outOffset the offset in {@code out} to write at.
+	 * @return the number of bytes written, or {@code -1} if authentication failed.
+	 */
+	default int boxDecrypt(byte[] cipher, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		byte[] message = boxDecrypt(Arrays.copyOfRange(cipher, offset, offset + length), nonce, box);
+		if (message == null)
+			return -1;
+
+		System.arraycopy(message, 0, out, outOffset, message.length);
+		return message.length;
+	}
+
 	/**
 	 * Encrypts a message with explicit keys (libsodium {@code crypto_box_easy}).
 	 *
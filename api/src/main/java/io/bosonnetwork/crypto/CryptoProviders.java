@@ -22,20 +22,59 @@
 
 package io.bosonnetwork.crypto;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 
 /**
  * Resolves and holds the active {@link CryptoProvider}.
  * <p>
- * The provider is discovered once via the {@link ServiceLoader} mechanism (allowing an
- * alternative backend, such as a future JNI binding, to register through a
- * {@code META-INF/services/io.bosonnetwork.crypto.CryptoProvider} entry). When no provider is
- * registered, the built-in pure-Java {@link BouncyCastleCryptoProvider} is used.
+ * Providers are discovered once via the {@link ServiceLoader} mechanism, in the order of the
+ * {@code META-INF/services/io.bosonnetwork.crypto.CryptoProvider} entries, which is also the order
+ * of preference: the native {@link LibsodiumCryptoProvider} is listed ahead of the pure-Java
+ * {@link BouncyCastleCryptoProvider}. A provider that cannot be instantiated - jnr-ffi missing from
+ * the class path, libsodium not installed, an Android runtime - is skipped rather than reported,
+ * so the first usable provider wins and Bouncy Castle is always there to fall back to.
+ * <p>
+ * The choice can be pinned by name, either with the {@value #PROVIDER_PROPERTY} system property
+ * at startup or by calling {@link #select(String)} before anything else does.
+ * <p>
+ * The active provider is process-wide, and it is chosen once. Switching it would not convert the
+ * objects already created by the previous one: keys are accepted across providers, but a
+ * precomputed {@link CryptoBox} is not. So once the system property has named a provider, or
+ * {@link #select(String)} has been called, the choice is fixed: {@value #AUTO} keeps it, and a
+ * different name is refused instead of pulling the provider from under the boxes already built.
+ * <p>
+ * All providers accept exactly the same Ed25519 signatures (see
+ * {@link CryptoProvider#ed25519Verify}), so the choice changes speed only, never which records a
+ * node takes for valid.
  */
 public final class CryptoProviders {
-	private static volatile CryptoProvider current = resolve();
+	/**
+	 * System property naming the provider to activate at startup; defaults to {@value #AUTO}.
+	 */
+	public static final String PROVIDER_PROPERTY = "io.bosonnetwork.crypto.provider";
+
+	/**
+	 * The name that leaves the choice to this class: the first available provider in order of
+	 * preference at startup, and the active provider afterwards.
+	 */
+	public static final String AUTO = "auto";
+
+	private static final List<CryptoProvider> available = discover();
+	private static volatile CryptoProvider current;
+	// Whether the active provider has been chosen, by the system property or by select()
+	private static boolean chosen;
+
+	static {
+		String name = System.getProperty(PROVIDER_PROPERTY, AUTO);
+		current = isAuto(name) ? available.get(0) : resolve(name);
+		chosen = !isAuto(name);
+	}
 
 	private CryptoProviders() {
 	}
@@ -50,20 +89,94 @@ public final class CryptoProviders {
 	}
 
 	/**
-	 * Overrides the active crypto provider. Package-private: intended for the compatibility
-	 * test suite to run the wrapper classes against an alternative backend.
+	 * Returns the providers that could be loaded in this process, most preferred first.
+	 *
+	 * @return the available providers; never empty.
+	 */
+	public static List<CryptoProvider> available() {
+		return available;
+	}
+
+	/**
+	 * Activates the provider with the given {@link CryptoProvider#name() name}, or keeps the active
+	 * one for {@value #AUTO}, and fixes the choice for the rest of the process.
+	 * <p>
+	 * Only the first choice can switch the provider: after it, selecting the active provider or
+	 * {@value #AUTO} is a no-op that keeps the existing instance, so several components configured
+	 * alike can each call this without disturbing the others, and selecting any other provider fails.
+	 *
+	 * @param name the provider name, for example {@code "bc"} or {@code "libsodium"}, or {@value #AUTO}.
+	 * @return the active provider.
+	 * @throws IllegalArgumentException if no available provider has that name; the message lists
+	 *                                  the names that are available.
+	 * @throws IllegalStateException    if a different provider has already been chosen.
+	 */
+	public static synchronized CryptoProvider select(String name) {
+		Objects.requireNonNull(name, "name");
+		if (!isAuto(name)) {
+			CryptoProvider provider = resolve(name);
+			if (!provider.name().equals(current.name())) {
+				if (chosen)
+					throw new IllegalStateException("Crypto provider '" + current.name() +
+							"' is already in use, cannot switch to '" + provider.name() + "'");
+
+				current = provider;
+			}
+		}
+
+		chosen = true;
+		return current;
+	}
+
+	/**
+	 * Overrides the active crypto provider and forgets the earlier choice. Package-private: intended
+	 * for the compatibility test suite to run the wrapper classes against an alternative backend.
 	 *
 	 * @param provider the provider to activate.
 	 */
-	static void setDefault(CryptoProvider provider) {
+	static synchronized void setDefault(CryptoProvider provider) {
 		current = Objects.requireNonNull(provider, "provider");
+		chosen = false;
 	}
 
-	private static CryptoProvider resolve() {
+	private static boolean isAuto(String name) {
+		return name.isEmpty() || name.equalsIgnoreCase(AUTO);
+	}
+
+	private static CryptoProvider resolve(String name) {
+		for (CryptoProvider provider : available) {
+			if (provider.name().equalsIgnoreCase(name))
+				return provider;
+		}
+
+		List<String> names = new ArrayList<>(available.size());
+		available.forEach(p -> names.add(p.name()));
+		throw new IllegalArgumentException("Crypto provider '" + name + "' is not available, available: " + names);
+	}
+
+	private static List<CryptoProvider> discover() {
+		List<CryptoProvider> providers = new ArrayList<>();
+		boolean bouncyCastle = false;
 		// Note: use iterator() rather than the Java 9 findFirst()/stream() ServiceLoader helpers,
 		// which are not present on older Android runtimes (e.g. API 33) and fail with
 		// NoSuchMethodError there. iterator() is available on every supported JDK/Android level.
 		Iterator<CryptoProvider> it = ServiceLoader.load(CryptoProvider.class).iterator();
-		return it.hasNext() ? it.next() : new BouncyCastleCryptoProvider();
+		while (true) {
+			try {
+				if (!it.hasNext())
+					break;
+				CryptoProvider provider = it.next();
+				providers.add(provider);
+				bouncyCastle |= provider instanceof BouncyCastleCryptoProvider;
+			} catch (ServiceConfigurationError | LinkageError e) {
+				// A provider whose native library or optional dependency is missing; the iterator
+				// moves on to the next entry.
+			}
+		}
+
+		if (!bouncyCastle)
+			providers.add(new BouncyCastleCryptoProvider());
+
+		return Collections.unmodifiableList(providers);
 	}
 }
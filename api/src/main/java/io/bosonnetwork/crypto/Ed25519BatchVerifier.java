@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.crypto;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.math.ec.rfc7748.X25519Field;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Checks a batch of Ed25519 signatures with one multi-scalar multiplication, for the Bouncy Castle
+ * provider.
+ * <p>
+ * A signature {@code (R, S)} by key {@code A} on message {@code M} holds when
+ * {@code [8](S·B - R - k·A)} is the neutral element, with {@code k = SHA-512(R || A || M) mod L}. Bouncy
+ * Castle checks exactly that, cofactor included, one signature at a time. A batch draws a random 128-bit
+ * {@code z} for every entry and checks the sum instead:
+ * <pre>
+ *   [8]((Σ z·S)·B - Σ z·R - Σ (z·k)·A) = 0
+ * </pre>
+ * Every term {@code [8](S·B - R - k·A)} lies in the prime-order subgroup, so if any of them is not zero,
+ * the sum is zero for at most one value of that entry's {@code z} in every 2^128: a batch with a bad
+ * entry passes with probability no better than 2^-128, and a batch of good entries always passes. The
+ * cofactor is what makes the batch agree with the single check in both directions; without it, the two
+ * would disagree on signatures whose {@code R} or {@code A} has a small-order component, which a sender
+ * can produce at will.
+ * <p>
+ * What makes it cheaper than the entries one by one is sharing. The whole sum is one Straus
+ * multiplication, so its 253 doublings are paid once rather than once per signature; the base point
+ * scalars collapse into one; and entries by the same key collapse into one scalar for that key - every
+ * peer in a FIND_PEER response is signed by the looked-up id, so a response costs one key term however
+ * many peers it holds. Each entry still pays for decompressing {@code R} and a 128-bit term of its own.
+ * <p>
+ * Every check the single verification makes before its equation is made here as well, with the same
+ * rules: {@code R} and {@code A} canonical and on the curve, {@code A} not of small order (through Bouncy
+ * Castle's own key validation), and {@code S} below the group order. {@link #verify} only says "all
+ * valid"; an entry that fails any of the checks fails the whole batch.
+ * <p>
+ * {@link #verifyEach} finds the bad entries as well, without going back to single verifications. The
+ * sum is linear in the entries, so with the same coefficients the sum of a range is the sum of its two
+ * halves: a range whose sum is not zero is split, the left half's sum is computed, and the right half's
+ * is the difference, for one point subtraction. Entries are decoded and hashed once for all of it. A
+ * bad entry costs the batch about one more multiplication over it, where falling back to single checks
+ * would cost every entry a verification of its own. The field arithmetic is Bouncy Castle's
+ * {@link X25519Field}; the point arithmetic is the extended twisted Edwards formulas of Hisil, Wong,
+ * Carter and Dawson, as in ref10. None of it is constant time, and none of it needs to be: everything
+ * here is public.
+ */
+final class Ed25519BatchVerifier {
+	// Curve25519 field prime: 2^255 - 19.
+	private static final BigInteger P = BigInteger.TWO.pow(255).subtract(BigInteger.valueOf(19));
+	// Order of the prime-order subgroup: 2^252 + 27742317777372353535851937790883648493.
+	private static final BigInteger L = BigInteger.TWO.pow(252).add(new BigInteger("27742317777372353535851937790883648493"));
+	// The curve constant d = -121665/121666, and 2d as the addition formula takes it.
+	private static final BigInteger D = BigInteger.valueOf(-121665).multiply(BigInteger.valueOf(121666).modInverse(P)).mod(P);
+	private static final int[] FIELD_D = fieldElement(D);
+	private static final int[] FIELD_D2 = fieldElement(D.shiftLeft(1).mod(P));
+
+	// Bits in each random coefficient; a batch with a bad entry passes with probability 2^-128 at most.
+	private static final int COEFFICIENT_BITS = 128;
+	// The signed sliding window yields odd digits up to 15, so a point's table holds its 8 odd multiples.
+	private static final int TABLE_SIZE = 8;
+	private static final int SCALAR_BITS = 256;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	// The base point (y = 4/5, x even), and its odd multiples - shared by every batch.
+	private static final Cached[] BASE_TABLE;
+
+	static {
+		Point base = decodePoint(Hex.decode("5866666666666666666666666666666666666666666666666666666666666666"), 0, false);
+		BASE_TABLE = new Ed25519BatchVerifier().table(base);
+	}
+
+	// Scratch field elements for the point formulas.
+	private final int[] a = X25519Field.create();
+	private final int[] b = X25519Field.create();
+	private final int[] c = X25519Field.create();
+	private final int[] d = X25519Field.create();
+	private final int[] e = X25519Field.create();
+	private final int[] f = X25519Field.create();
+	private final int[] g = X25519Field.create();
+	private final int[] h = X25519Field.create();
+
+	/** A point in extended coordinates: x = X/Z, y = Y/Z and x·y = T/Z. */
+	private static final class Point {
+		final int[] x = X25519Field.create();
+		final int[] y = X25519Field.create();
+		final int[] z = X25519Field.create();
+		final int[] t = X25519Field.create();
+	}
+
+	/** A point prepared as the second operand of an addition: Y+X, Y-X, 2Z and 2d·T. */
+	private static final class Cached {
+		final int[] ypx = X25519Field.create();
+		final int[] ymx = X25519Field.create();
+		final int[] z2 = X25519Field.create();
+		final int[] t2d = X25519Field.create();
+	}
+
+	// The entries that passed the checks before the equation, in order: where each came from, the
+	// multiples of its -R, the digits of its coefficient z, z·k and z·S, and the term of its key.
+	private int count;
+	private int[] origins = new int[0];
+	private Cached[][] rTables = new Cached[0][];
+	private byte[][] zDigits = new byte[0][];
+	private BigInteger[] zk = new BigInteger[0];
+	private BigInteger[] zs = new BigInteger[0];
+	private int[] keyTerms = new int[0];
+	// The multiples of -A of every distinct key.
+	private final List<Cached[]> keyTables = new ArrayList<>();
+
+	private Ed25519BatchVerifier() {
+	}
+
+	/**
+	 * Tells whether every signature of the batch is valid.
+	 *
+	 * @param messages   the messages.
+	 * @param signatures the {@value CryptoProvider#SIGN_BYTES}-byte signatures, one per message.
+	 * @param publicKeys the {@value CryptoProvider#SIGN_PUBLIC_KEY_BYTES}-byte public keys, one per message.
+	 * @return {@code true} if every entry verifies; {@code false} if at least one does not, without
+	 *         saying which.
+	 */
+	static boolean verify(byte[][] messages, byte[][] signatures, byte[][] publicKeys) {
+		Ed25519BatchVerifier verifier = new Ed25519BatchVerifier();
+		if (verifier.prepare(messages, signatures, publicKeys) < messages.length)
+			return false;
+
+		return verifier.holds(verifier.sum(0, verifier.count));
+	}
+
+	/**
+	 * Verifies every signature of the batch, with the result of the single verification for each.
+	 *
+	 * @param messages   the messages.
+	 * @param signatures the {@value CryptoProvider#SIGN_BYTES}-byte signatures, one per message.
+	 * @param publicKeys the {@value CryptoProvider#SIGN_PUBLIC_KEY_BYTES}-byte public keys, one per message.
+	 * @return the verification result of every entry, in order.
+	 */
+	static boolean[] verifyEach(byte[][] messages, byte[][] signatures, byte[][] publicKeys) {
+		Ed25519BatchVerifier verifier = new Ed25519BatchVerifier();
+		verifier.prepare(messages, signatures, publicKeys);
+
+		// An entry that failed the checks before the equation stays false
+		boolean[] results = new boolean[messages.length];
+		if (verifier.count > 0)
+			verifier.bisect(0, verifier.count, verifier.sum(0, verifier.count), results);
+
+		return results;
+	}
+
+	// Decodes, checks and hashes the entries and draws their coefficients; returns how many passed.
+	private int prepare(byte[][] messages, byte[][] signatures, byte[][] publicKeys) {
+		int n = messages.length;
+		origins = new int[n];
+		rTables = new Cached[n][];
+		zDigits = new byte[n][];
+		zk = new BigInteger[n];
+		zs = new BigInteger[n];
+		keyTerms = new int[n];
+
+		SHA512Digest sha512 = new SHA512Digest();
+		byte[] hash = new byte[sha512.getDigestSize()];
+		// The term of every key seen so far, or -1 for a key that failed its checks
+		Map<ByteBuffer, Integer> keys = new HashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			byte[] signature = signatures[i];
+			byte[] publicKey = publicKeys[i];
+
+			BigInteger s = decodeScalar(signature, 32, 32);
+			if (s.compareTo(L) >= 0)
+				continue;
+
+			// Negated on decoding, so that every term of the sum is added
+			Point r = decodePoint(signature, 0, true);
+			if (r == null)
+				continue;
+
+			int keyTerm = keys.computeIfAbsent(ByteBuffer.wrap(publicKey), k -> {
+				Point a = Ed25519.validatePublicKeyPartial(publicKey, 0) ? decodePoint(publicKey, 0, true) : null;
+				if (a == null)
+					return -1;
+
+				keyTables.add(table(a));
+				return keyTables.size() - 1;
+			});
+			if (keyTerm < 0)
+				continue;
+
+			sha512.update(signature, 0, 32);
+			sha512.update(publicKey, 0, publicKey.length);
+			sha512.update(messages[i], 0, messages[i].length);
+			sha512.doFinal(hash, 0);
+			BigInteger k = decodeScalar(hash, 0, hash.length).mod(L);
+
+			BigInteger z = new BigInteger(COEFFICIENT_BITS, random);
+			origins[count] = i;
+			rTables[count] = table(r);
+			zDigits[count] = slide(z);
+			zk[count] = z.multiply(k);
+			zs[count] = z.multiply(s);
+			keyTerms[count] = keyTerm;
+			count++;
+		}
+
+		return count;
+	}
+
+	// Singles out the bad entries of a range whose sum, before the cofactor, is given.
+	private void bisect(int from, int to, Point sum, boolean[] results) {
+		if (holds(sum)) {
+			for (int i = from; i < to; i++)
+				results[origins[i]] = true;
+			return;
+		}
+
+		// A single entry whose term is not zero is bad: a good entry's term is zero, always
+		if (to - from == 1)
+			return;
+
+		int mid = (from + to) >>> 1;
+		Point left = sum(from, mid);
+		Point right = new Point();
+		addPoint(sum, cache(left), true, right);
+		bisect(from, mid, left, results);
+		bisect(mid, to, right, results);
+	}
+
+	// The sum of the terms of the prepared entries from..to, before the cofactor multiplication.
+	private Point sum(int from, int to) {
+		// One term per entry for -R, one per distinct key for -A, and the base point term, added last.
+		List<Cached[]> tables = new ArrayList<>(to - from + 2);
+		List<byte[]> digits = new ArrayList<>(to - from + 2);
+		BigInteger[] keyScalars = new BigInteger[keyTables.size()];
+		BigInteger baseScalar = BigInteger.ZERO;
+
+		for (int i = from; i < to; i++) {
+			tables.add(rTables[i]);
+			digits.add(zDigits[i]);
+			int keyTerm = keyTerms[i];
+			keyScalars[keyTerm] = keyScalars[keyTerm] == null ? zk[i] : keyScalars[keyTerm].add(zk[i]);
+			baseScalar = baseScalar.add(zs[i]);
+		}
+
+		// Reduced mod L after the fact: harmless for the base point, and for the rest as well, since
+		// the cofactor multiplication leaves only their prime-order components to act on.
+		for (int j = 0; j < keyScalars.length; j++) {
+			if (keyScalars[j] != null) {
+				tables.add(keyTables.get(j));
+				digits.add(slide(keyScalars[j].mod(L)));
+			}
+		}
+		tables.add(BASE_TABLE);
+		digits.add(slide(baseScalar.mod(L)));
+
+		int n = tables.size();
+		int top = -1;
+		for (byte[] d : digits) {
+			for (int i = SCALAR_BITS - 1; i > top; i--) {
+				if (d[i] != 0) {
+					top = i;
+					break;
+				}
+			}
+		}
+
+		Point sum = new Point();
+		X25519Field.one(sum.y);
+		X25519Field.one(sum.z);
+		for (int i = top; i >= 0; i--) {
+			doublePoint(sum, sum);
+			for (int j = 0; j < n; j++) {
+				int digit = digits.get(j)[i];
+				if (digit > 0)
+					addPoint(sum, tables.get(j)[digit >> 1], false, sum);
+				else if (digit < 0)
+					addPoint(sum, tables.get(j)[-digit >> 1], true, sum);
+			}
+		}
+
+		return sum;
+	}
+
+	// Whether [8]p is the neutral element; p itself is left as it is.
+	private boolean holds(Point p) {
+		// The cofactor: [8] clears every small-order component, as the single verification does.
+		Point q = new Point();
+		doublePoint(p, q);
+		doublePoint(q, q);
+		doublePoint(q, q);
+		return isNeutral(q);
+	}
+
+	// r = 2p; dbl-2008-hwcd for a = -1, with every intermediate negated, which leaves the result as is.
+	private void doublePoint(Point p, Point r) {
+		X25519Field.sqr(p.x, a);
+		X25519Field.sqr(p.y, b);
+		X25519Field.sqr(p.z, c);
+		X25519Field.add(c, c, c);
+		X25519Field.apm(a, b, h, g);
+		X25519Field.add(p.x, p.y, e);
+		X25519Field.sqr(e, e);
+		X25519Field.sub(h, e, e);
+		X25519Field.add(c, g, f);
+		X25519Field.carry(e);
+		X25519Field.carry(f);
+		X25519Field.mul(e, f, r.x);
+		X25519Field.mul(g, h, r.y);
+		X25519Field.mul(e, h, r.t);
+		X25519Field.mul(f, g, r.z);
+	}
+
+	// r = p + q, or p - q if negate; add-2008-hwcd-3. The negation of q swaps Y+X with Y-X and negates T.
+	private void addPoint(Point p, Cached q, boolean negate, Point r) {
+		X25519Field.apm(p.y, p.x, b, a);
+		X25519Field.mul(a, negate ? q.ypx : q.ymx, a);
+		X25519Field.mul(b, negate ? q.ymx : q.ypx, b);
+		X25519Field.mul(p.t, q.t2d, c);
+		X25519Field.mul(p.z, q.z2, d);
+		if (negate)
+			X25519Field.apm(d, c, f, g);
+		else
+			X25519Field.apm(d, c, g, f);
+		X25519Field.apm(b, a, h, e);
+		X25519Field.mul(e, f, r.x);
+		X25519Field.mul(g, h, r.y);
+		X25519Field.mul(e, h, r.t);
+		X25519Field.mul(f, g, r.z);
+	}
+
+	private static Cached cache(Point p) {
+		Cached q = new Cached();
+		X25519Field.apm(p.y, p.x, q.ypx, q.ymx);
+		X25519Field.add(p.z, p.z, q.z2);
+		X25519Field.mul(p.t, FIELD_D2, q.t2d);
+		return q;
+	}
+
+	// The odd multiples p, 3p, ..., 15p.
+	private Cached[] table(Point p) {
+		Point twice = new Point();
+		doublePoint(p, twice);
+		Cached step = cache(twice);
+
+		Cached[] table = new Cached[TABLE_SIZE];
+		table[0] = cache(p);
+		Point q = new Point();
+		X25519Field.copy(p.x, 0, q.x, 0);
+		X25519Field.copy(p.y, 0, q.y, 0);
+		X25519Field.copy(p.z, 0, q.z, 0);
+		X25519Field.copy(p.t, 0, q.t, 0);
+		for (int i = 1; i < TABLE_SIZE; i++) {
+			addPoint(q, step, false, q);
+			table[i] = cache(q);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Decodes a point the way Bouncy Castle's verification does: a canonical y, an x that exists, and
+	 * no "negative zero" x.
+	 *
+	 * @return the point, negated if asked, or {@code null} if the encoding is not a point.
+	 */
+	private static Point decodePoint(byte[] encoded, int offset, boolean negate) {
+		if (!isCanonical(encoded, offset))
+			return null;
+
+		Point p = new Point();
+		X25519Field.decode(encoded, offset, p.y);
+
+		// x^2 = (y^2 - 1) / (d·y^2 + 1)
+		int[] u = X25519Field.create();
+		int[] v = X25519Field.create();
+		X25519Field.sqr(p.y, u);
+		X25519Field.mul(u, FIELD_D, v);
+		X25519Field.subOne(u);
+		X25519Field.addOne(v);
+		if (!X25519Field.sqrtRatioVar(u, v, p.x))
+			return null;
+
+		X25519Field.normalize(p.x);
+		int sign = (encoded[offset + 31] & 0x80) >>> 7;
+		if (sign == 1 && X25519Field.isZeroVar(p.x))
+			return null;
+
+		if (negate ^ (sign != (p.x[0] & 1)))
+			X25519Field.negate(p.x, p.x);
+
+		X25519Field.one(p.z);
+		X25519Field.mul(p.x, p.y, p.t);
+		return p;
+	}
+
+	// Whether the y of a point encoding, sign bit aside, is below p - that is, not one of p .. 2^255-1.
+	private static boolean isCanonical(byte[] encoded, int offset) {
+		if ((encoded[offset + 31] & 0x7f) != 0x7f)
+			return true;
+
+		for (int i = 30; i > 0; i--) {
+			if (encoded[offset + i] != (byte) 0xff)
+				return true;
+		}
+
+		return (encoded[offset] & 0xff) < 0xed;
+	}
+
+	private static boolean isNeutral(Point p) {
+		X25519Field.normalize(p.x);
+		X25519Field.normalize(p.y);
+		X25519Field.normalize(p.z);
+		return X25519Field.isZeroVar(p.x) && !X25519Field.isZeroVar(p.y) && X25519Field.areEqualVar(p.y, p.z);
+	}
+
+	/**
+	 * Recodes a scalar below 2^253 into signed digits - odd, at most 15 in magnitude, and mostly
+	 * zero - so that a multiplication takes one addition per non-zero digit from an 8-entry table.
+	 * The sliding window of ref10.
+	 */
+	private static byte[] slide(BigInteger scalar) {
+		byte[] r = new byte[SCALAR_BITS];
+		for (int i = 0; i < SCALAR_BITS; i++)
+			r[i] = (byte) (scalar.testBit(i) ? 1 : 0);
+
+		for (int i = 0; i < SCALAR_BITS; i++) {
+			if (r[i] == 0)
+				continue;
+
+			for (int w = 1; w <= 6 && i + w < SCALAR_BITS; w++) {
+				if (r[i + w] == 0)
+					continue;
+
+				int shifted = r[i + w] << w;
+				if (r[i] + shifted <= 15) {
+					r[i] += (byte) shifted;
+					r[i + w] = 0;
+				} else if (r[i] - shifted >= -15) {
+					r[i] -= (byte) shifted;
+					for (int k = i + w; k < SCALAR_BITS; k++) {
+						if (r[k] == 0) {
+							r[k] = 1;
+							break;
+						}
+						r[k] = 0;
+					}
+				} else {
+					break;
+				}
+			}
+		}
+
+		return r;
+	}
+
+	private static BigInteger decodeScalar(byte[] le, int offset, int length) {
+		byte[] be = new byte[length];
+		for (int i = 0; i < length; i++)
+			be[i] = le[offset + length - 1 - i];
+		return new BigInteger(1, be);
+	}
+
+	private static int[] fieldElement(BigInteger value) {
+		byte[] le = new byte[32];
+		byte[] be = value.toByteArray();
+		for (int i = 0; i < be.length && i < le.length; i++)
+			le[i] = be[be.length - 1 - i];
+
+		int[] fe = X25519Field.create();
+		X25519Field.decode(le, 0, fe);
+		return fe;
+	}
+}
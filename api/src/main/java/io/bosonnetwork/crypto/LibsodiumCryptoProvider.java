@@ -0,0 +1,881 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.crypto;
+
+import static org.bouncycastle.util.Arrays.constantTimeAreEqual;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.LibraryOption;
+import jnr.ffi.Pointer;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.types.size_t;
+import jnr.ffi.types.u_int64_t;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Native {@link CryptoProvider} calling the system libsodium through jnr-ffi.
+ * <p>
+ * The per-packet cost of the DHT is dominated by X25519 agreements and XSalsa20-Poly1305, where
+ * libsodium's assembly implementations are several times faster than the pure-Java Bouncy Castle
+ * code. This provider binds the libsodium functions directly - no wrapper library in between - and
+ * keeps every key, nonce and stream state in Java heap arrays that are handed to libsodium per call,
+ * so there is no native memory to leak and {@code destroy()} can wipe the material in place.
+ * <p>
+ * The provider is optional twice over: jnr-ffi is an optional dependency, and libsodium is a
+ * system library. The constructor fails when either is missing or the library is older than
+ * 1.0.15 (the first release with every function used here), which makes
+ * {@link java.util.ServiceLoader} skip it and lets {@link CryptoProviders} fall back to
+ * {@link BouncyCastleCryptoProvider}. The library is looked up under the platform's usual name
+ * ({@code libsodium.so}, {@code libsodium.dylib}, {@code libsodium.dll}); the system property
+ * {@value #LIBRARY_PROPERTY} names an explicit file instead.
+ * <p>
+ * X.509 certificate generation is not a libsodium facility and is delegated to Bouncy Castle.
+ */
+public class LibsodiumCryptoProvider implements CryptoProvider {
+	/**
+	 * System property naming the libsodium shared library file to load, overriding the search of
+	 * the platform's library path.
+	 */
+	public static final String LIBRARY_PROPERTY = "io.bosonnetwork.crypto.libsodium";
+
+	// crypto_pwhash_STRBYTES: the fixed buffer size of an encoded hash string, NUL included.
+	private static final int PWHASH_STR_BYTES = 128;
+
+	private final Sodium sodium;
+	private final int secretStreamStateBytes;
+	private final CryptoProvider fallback;
+
+	/**
+	 * Binds libsodium.
+	 *
+	 * @throws IllegalStateException if libsodium cannot be loaded, fails to initialize, or is older
+	 *                               than 1.0.15.
+	 */
+	public LibsodiumCryptoProvider() {
+		this.sodium = Holder.sodium();
+		this.secretStreamStateBytes = (int) sodium.crypto_secretstream_xchacha20poly1305_statebytes();
+		this.fallback = new BouncyCastleCryptoProvider();
+	}
+
+	/**
+	 * Tells whether libsodium can be loaded in this process, without failing when it cannot.
+	 *
+	 * @return true if the native provider is usable.
+	 */
+	public static boolean isAvailable() {
+		try {
+			Holder.sodium();
+			return true;
+		} catch (IllegalStateException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String name() {
+		return "libsodium";
+	}
+
+	// ---- native binding ---------------------------------------------------
+
+	/**
+	 * The subset of the libsodium C API used by this provider. Arguments follow the C prototypes
+	 * one for one; a {@code null} array or {@link Pointer} is passed as a C {@code NULL}.
+	 */
+	@SuppressWarnings("unused")
+	public interface Sodium {
+		int sodium_init();
+
+		String sodium_version_string();
+
+		int crypto_sign_seed_keypair(@Out byte[] pk, @Out byte[] sk, @In byte[] seed);
+
+		int crypto_sign_ed25519_sk_to_pk(@Out byte[] pk, @In byte[] sk);
+
+		int crypto_sign_detached(@Out byte[] sig, @Nullable Pointer siglen, @In byte[] m, @u_int64_t long mlen, @In byte[] sk);
+
+		int crypto_sign_verify_detached(@In byte[] sig, @In byte[] m, @u_int64_t long mlen, @In byte[] pk);
+
+		int crypto_kdf_derive_from_key(@Out byte[] subkey, @size_t long subkeyLen, @u_int64_t long subkeyId,
+		                               @In byte[] ctx, @In byte[] key);
+
+		int crypto_sign_ed25519_pk_to_curve25519(@Out byte[] curvePk, @In byte[] edPk);
+
+		int crypto_sign_ed25519_sk_to_curve25519(@Out byte[] curveSk, @In byte[] edSk);
+
+		int crypto_box_seed_keypair(@Out byte[] pk, @Out byte[] sk, @In byte[] seed);
+
+		int crypto_scalarmult_base(@Out byte[] q, @In byte[] n);
+
+		int crypto_box_beforenm(@Out byte[] k, @In byte[] pk, @In byte[] sk);
+
+		int crypto_box_easy_afternm(@Out byte[] c, @In byte[] m, @u_int64_t long mlen, @In byte[] n, @In byte[] k);
+
+		int crypto_box_open_easy_afternm(@Out byte[] m, @In byte[] c, @u_int64_t long clen, @In byte[] n, @In byte[] k);
+
+		// Buffer variants of the two above, for ranges of a larger heap array. The output carries no
+		// direction annotation on purpose: it is copied in as well as out, so a failed open leaves
+		// the caller's bytes as they were instead of overwriting them with scratch memory.
+		int crypto_box_easy_afternm(ByteBuffer c, @In ByteBuffer m, @u_int64_t long mlen, @In byte[] n, @In byte[] k);
+
+		int crypto_box_open_easy_afternm(ByteBuffer m, @In ByteBuffer c, @u_int64_t long clen, @In byte[] n, @In byte[] k);
+
+		int crypto_box_easy(@Out byte[] c, @In byte[] m, @u_int64_t long mlen, @In byte[] n, @In byte[] pk, @In byte[] sk);
+
+		int crypto_box_open_easy(@Out byte[] m, @In byte[] c, @u_int64_t long clen, @In byte[] n, @In byte[] pk, @In byte[] sk);
+
+		int crypto_box_seal(@Out byte[] c, @In byte[] m, @u_int64_t long mlen, @In byte[] pk);
+
+		int crypto_box_seal_open(@Out byte[] m, @In byte[] c, @u_int64_t long clen, @In byte[] pk, @In byte[] sk);
+
+		int crypto_pwhash(@Out byte[] out, @u_int64_t long outlen, @In byte[] passwd, @u_int64_t long passwdlen,
+		                  @In byte[] salt, @u_int64_t long opslimit, @size_t long memlimit, int alg);
+
+		int crypto_pwhash_str_alg(@Out byte[] out, @In byte[] passwd, @u_int64_t long passwdlen,
+		                          @u_int64_t long opslimit, @size_t long memlimit, int alg);
+
+		int crypto_pwhash_str_verify(@In byte[] str, @In byte[] passwd, @u_int64_t long passwdlen);
+
+		int crypto_pwhash_str_needs_rehash(@In byte[] str, @u_int64_t long opslimit, @size_t long memlimit);
+
+		@size_t long crypto_secretstream_xchacha20poly1305_statebytes();
+
+		int crypto_secretstream_xchacha20poly1305_init_push(byte[] state, @Out byte[] header, @In byte[] k);
+
+		int crypto_secretstream_xchacha20poly1305_push(byte[] state, @Out byte[] c, @Nullable Pointer clen,
+		                                               @In byte @Nullable [] m, @u_int64_t long mlen,
+		                                               @In byte @Nullable [] ad, @u_int64_t long adlen, byte tag);
+
+		int crypto_secretstream_xchacha20poly1305_init_pull(byte[] state, @In byte[] header, @In byte[] k);
+
+		int crypto_secretstream_xchacha20poly1305_pull(byte[] state, @Out byte[] m, @Nullable Pointer mlen,
+		                                               @Out byte[] tag, @In byte[] c, @u_int64_t long clen,
+		                                               @In byte @Nullable [] ad, @u_int64_t long adlen);
+	}
+
+	// Loads the library once per class loader; a failure is remembered so that every later probe
+	// reports the same cause without retrying the lookup.
+	private static final class Holder {
+		private static final @Nullable Sodium SODIUM;
+		private static final @Nullable Throwable FAILURE;
+
+		static {
+			Sodium sodium = null;
+			Throwable failure = null;
+			try {
+				sodium = load();
+			} catch (Throwable e) {
+				failure = e;
+			}
+			SODIUM = sodium;
+			FAILURE = failure;
+		}
+
+		private static Sodium sodium() {
+			if (SODIUM == null)
+				throw new IllegalStateException("libsodium is not available", FAILURE);
+			return SODIUM;
+		}
+
+		private static Sodium load() {
+			String path = System.getProperty(LIBRARY_PROPERTY);
+			// Errno is never consulted, so do not pay for saving it after every call.
+			LibraryLoader<Sodium> loader = LibraryLoader.create(Sodium.class)
+					.option(LibraryOption.IgnoreError, true);
+			Sodium sodium = path != null && !path.isEmpty() ? loader.load(path) : loader.load("sodium");
+
+			if (sodium.sodium_init() < 0)
+				throw new IllegalStateException("libsodium failed to initialize");
+
+			String version = sodium.sodium_version_string();
+			if (!isSupported(version))
+				throw new IllegalStateException("libsodium " + version + " is too old, 1.0.15 or later is required");
+
+			return sodium;
+		}
+
+		// crypto_pwhash_str_needs_rehash() arrived in 1.0.15; crypto_secretstream in 1.0.14.
+		private static boolean isSupported(String version) {
+			String[] parts = version.split("\\.");
+			try {
+				int major = Integer.parseInt(parts[0]);
+				int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+				int patch = parts.length > 2 ? Integer.parseInt(parts[2].replaceAll("\\D.*$", "")) : 0;
+				return major > 1 || (major == 1 && (minor > 0 || patch >= 15));
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+	}
+
+	// ---- Ed25519 ----------------------------------------------------------
+
+	private static final class Ed25519SecretKey implements Signature.PrivateKey {
+		// The libsodium 64-byte layout: seed || public key.
+		private byte @Nullable [] key;
+
+		private Ed25519SecretKey(byte[] key) {
+			this.key = key;
+		}
+
+		private byte[] keyOrThrow() {
+			if (key == null)
+				throw new IllegalStateException("Private key has been destroyed");
+			return key;
+		}
+
+		@Override
+		public byte[] seed() {
+			return Arrays.copyOfRange(keyOrThrow(), 0, SIGN_SEED_BYTES);
+		}
+
+		@Override
+		public byte[] bytes() {
+			return keyOrThrow().clone();
+		}
+
+		@Override
+		public void destroy() {
+			if (key != null) {
+				Arrays.fill(key, (byte) 0);
+				key = null;
+			}
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return key == null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Signature.PrivateKey that) || isDestroyed() || that.isDestroyed())
+				return false;
+			return constantTimeAreEqual(bytes(), that.bytes());
+		}
+
+		@Override
+		public int hashCode() {
+			return isDestroyed() ? 0 : Arrays.hashCode(bytes());
+		}
+	}
+
+	private static final class Ed25519PublicKey implements Signature.PublicKey {
+		private byte @Nullable [] key;
+
+		private Ed25519PublicKey(byte[] key) {
+			this.key = key;
+		}
+
+		private byte[] keyOrThrow() {
+			if (key == null)
+				throw new IllegalStateException("Public key has been destroyed");
+			return key;
+		}
+
+		@Override
+		public byte[] bytes() {
+			return keyOrThrow().clone();
+		}
+
+		@Override
+		public void destroy() {
+			key = null;
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return key == null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Signature.PublicKey that) || isDestroyed() || that.isDestroyed())
+				return false;
+			return Arrays.equals(bytes(), that.bytes());
+		}
+
+		@Override
+		public int hashCode() {
+			return isDestroyed() ? 0 : Arrays.hashCode(bytes());
+		}
+	}
+
+	private static byte[] keyOf(Signature.PrivateKey secretKey) {
+		return secretKey instanceof Ed25519SecretKey k ? k.keyOrThrow() : secretKey.bytes();
+	}
+
+	private static byte[] keyOf(Signature.PublicKey publicKey) {
+		return publicKey instanceof Ed25519PublicKey k ? k.keyOrThrow() : publicKey.bytes();
+	}
+
+	@Override
+	public Signature.PrivateKey ed25519SecretKeyFromSeed(byte[] seed) {
+		byte[] pk = new byte[SIGN_PUBLIC_KEY_BYTES];
+		byte[] sk = new byte[SIGN_SECRET_KEY_BYTES];
+		sodium.crypto_sign_seed_keypair(pk, sk, seed);
+		return new Ed25519SecretKey(sk);
+	}
+
+	@Override
+	public Signature.PrivateKey ed25519SecretKeyFromBytes(byte[] key) {
+		// Re-derive from the seed rather than trusting the public half, as Bouncy Castle does: a
+		// mismatched public half would otherwise produce signatures nobody can verify.
+		byte[] seed = Arrays.copyOfRange(key, 0, SIGN_SEED_BYTES);
+		try {
+			return ed25519SecretKeyFromSeed(seed);
+		} finally {
+			Arrays.fill(seed, (byte) 0);
+		}
+	}
+
+	@Override
+	public Signature.PublicKey ed25519PublicKeyFromSecretKey(Signature.PrivateKey secretKey) {
+		byte[] pk = new byte[SIGN_PUBLIC_KEY_BYTES];
+		sodium.crypto_sign_ed25519_sk_to_pk(pk, keyOf(secretKey));
+		return new Ed25519PublicKey(pk);
+	}
+
+	@Override
+	public Signature.PublicKey ed25519PublicKeyFromBytes(byte[] bytes) {
+		return new Ed25519PublicKey(bytes.clone());
+	}
+
+	@Override
+	public byte[] ed25519Sign(byte[] message, Signature.PrivateKey secretKey) {
+		byte[] sig = new byte[SIGN_BYTES];
+		sodium.crypto_sign_detached(sig, null, message, message.length, keyOf(secretKey));
+		return sig;
+	}
+
+	@Override
+	public boolean ed25519Verify(byte[] message, byte[] signature, Signature.PublicKey publicKey) {
+		// crypto_sign_verify_detached is cofactorless: it rejects small-order R outright and checks
+		// S·B = R + k·A exactly. Whatever it accepts the cofactored check accepts as well, but not the
+		// other way round, so a rejection is settled by the Bouncy Castle check. Honest signatures
+		// never get there; only a malformed or crafted one pays for both.
+		if (sodium.crypto_sign_verify_detached(signature, message, message.length, keyOf(publicKey)) == 0)
+			return true;
+
+		try {
+			return fallback.ed25519Verify(message, signature, publicKey);
+		} catch (IllegalArgumentException e) {
+			// a key Bouncy Castle refuses to decode at all: small order, not canonical, not a point
+			return false;
+		}
+	}
+
+	// No ed25519VerifyBatch of its own: libsodium has no batch verification to call, so the entries
+	// are checked one by one with the native check above.
+
+	// ---- crypto_kdf (keyed BLAKE2b) ---------------------------------------
+
+	@Override
+	public byte[] kdfDeriveFromKey(byte[] masterKey, long subKeyId, byte[] context, int subKeyLength) {
+		byte[] out = new byte[subKeyLength];
+		if (sodium.crypto_kdf_derive_from_key(out, subKeyLength, subKeyId, context, masterKey) != 0)
+			throw new IllegalArgumentException("Invalid sub-key length: " + subKeyLength);
+		return out;
+	}
+
+	// ---- Ed25519 -> Curve25519 conversions --------------------------------
+
+	@Override
+	public CryptoBox.PublicKey signPublicKeyToBoxPublicKey(Signature.PublicKey publicKey) {
+		byte[] pk = new byte[BOX_PUBLIC_KEY_BYTES];
+		// libsodium rejects a key that is not a canonical, full-order curve point; no valid
+		// Ed25519 identity is ever such a key.
+		if (sodium.crypto_sign_ed25519_pk_to_curve25519(pk, keyOf(publicKey)) != 0)
+			throw new IllegalArgumentException("Invalid Ed25519 public key");
+		return new BoxPublicKey(pk);
+	}
+
+	@Override
+	public CryptoBox.PrivateKey signSecretKeyToBoxSecretKey(Signature.PrivateKey secretKey) {
+		byte[] sk = new byte[BOX_SECRET_KEY_BYTES];
+		sodium.crypto_sign_ed25519_sk_to_curve25519(sk, keyOf(secretKey));
+		return new BoxSecretKey(sk);
+	}
+
+	// ---- crypto_box -------------------------------------------------------
+
+	private static final class BoxPublicKey implements CryptoBox.PublicKey {
+		private byte @Nullable [] key;
+
+		private BoxPublicKey(byte[] key) {
+			this.key = key;
+		}
+
+		private byte[] keyOrThrow() {
+			if (key == null)
+				throw new IllegalStateException("Public key has been destroyed");
+			return key;
+		}
+
+		@Override
+		public byte[] bytes() {
+			return keyOrThrow().clone();
+		}
+
+		@Override
+		public void destroy() {
+			if (key != null) {
+				Arrays.fill(key, (byte) 0);
+				key = null;
+			}
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return key == null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof CryptoBox.PublicKey that) || isDestroyed() || that.isDestroyed())
+				return false;
+			return Arrays.equals(bytes(), that.bytes());
+		}
+
+		@Override
+		public int hashCode() {
+			return isDestroyed() ? 0 : Arrays.hashCode(bytes());
+		}
+	}
+
+	private static final class BoxSecretKey implements CryptoBox.PrivateKey {
+		private byte @Nullable [] key;
+
+		private BoxSecretKey(byte[] key) {
+			this.key = key;
+		}
+
+		private byte[] keyOrThrow() {
+			if (key == null)
+				throw new IllegalStateException("Private key has been destroyed");
+			return key;
+		}
+
+		@Override
+		public byte[] bytes() {
+			return keyOrThrow().clone();
+		}
+
+		@Override
+		public void destroy() {
+			if (key != null) {
+				Arrays.fill(key, (byte) 0);
+				key = null;
+			}
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return key == null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof CryptoBox.PrivateKey that) || isDestroyed() || that.isDestroyed())
+				return false;
+			return constantTimeAreEqual(bytes(), that.bytes());
+		}
+
+		@Override
+		public int hashCode() {
+			return isDestroyed() ? 0 : Arrays.hashCode(bytes());
+		}
+	}
+
+	private static final class BoxNonce implements CryptoBox.Nonce {
+		private final byte[] nonce;
+
+		private BoxNonce(byte[] nonce) {
+			this.nonce = nonce;
+		}
+
+		@Override
+		public CryptoBox.Nonce increment() {
+			// sodium_increment(): little-endian, wrapping
+			byte[] next = nonce.clone();
+			int c = 1;
+			for (int i = 0; i < next.length; i++) {
+				c += next[i] & 0xff;
+				next[i] = (byte) c;
+				c >>>= 8;
+			}
+			return new BoxNonce(next);
+		}
+
+		@Override
+		public byte[] bytes() {
+			return nonce.clone();
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nonce);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof CryptoBox.Nonce that))
+				return false;
+			return Arrays.equals(nonce, that.bytes());
+		}
+	}
+
+	// Holds the crypto_box_beforenm() shared key in a heap array; destroy() wipes it.
+	private static final class SodiumCryptoBox implements CryptoBox {
+		private byte @Nullable [] sharedKey;
+
+		private SodiumCryptoBox(byte[] sharedKey) {
+			this.sharedKey = sharedKey;
+		}
+
+		private byte[] sharedKeyOrThrow() {
+			if (sharedKey == null)
+				throw new IllegalStateException("CryptoBox has been closed");
+			return sharedKey;
+		}
+
+		@Override
+		public void close() {
+			destroy();
+		}
+
+		@Override
+		public void destroy() {
+			if (sharedKey != null) {
+				Arrays.fill(sharedKey, (byte) 0);
+				sharedKey = null;
+			}
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return sharedKey == null;
+		}
+	}
+
+	private static byte[] boxKeyOf(CryptoBox.PublicKey publicKey) {
+		return publicKey instanceof BoxPublicKey k ? k.keyOrThrow() : publicKey.bytes();
+	}
+
+	private static byte[] boxKeyOf(CryptoBox.PrivateKey secretKey) {
+		return secretKey instanceof BoxSecretKey k ? k.keyOrThrow() : secretKey.bytes();
+	}
+
+	private static byte[] nonceOf(CryptoBox.Nonce nonce) {
+		return nonce instanceof BoxNonce n ? n.nonce : nonce.bytes();
+	}
+
+	private static byte[] sharedKeyOf(CryptoBox box) {
+		if (box instanceof SodiumCryptoBox c)
+			return c.sharedKeyOrThrow();
+
+		throw new IllegalStateException("Not a libsodium CryptoBox: " + box.getClass().getName());
+	}
+
+	@Override
+	public CryptoBox.PrivateKey boxSecretKeyFromSeed(byte[] seed) {
+		byte[] pk = new byte[BOX_PUBLIC_KEY_BYTES];
+		byte[] sk = new byte[BOX_SECRET_KEY_BYTES];
+		sodium.crypto_box_seed_keypair(pk, sk, seed);
+		return new BoxSecretKey(sk);
+	}
+
+	@Override
+	public CryptoBox.PublicKey boxPublicKeyFromBytes(byte[] bytes) {
+		return new BoxPublicKey(bytes.clone());
+	}
+
+	@Override
+	public CryptoBox.PrivateKey boxSecretKeyFromBytes(byte[] bytes) {
+		return new BoxSecretKey(bytes.clone());
+	}
+
+	@Override
+	public CryptoBox.PublicKey boxPublicKeyFromSecretKey(CryptoBox.PrivateKey secretKey) {
+		byte[] pk = new byte[BOX_PUBLIC_KEY_BYTES];
+		sodium.crypto_scalarmult_base(pk, boxKeyOf(secretKey));
+		return new BoxPublicKey(pk);
+	}
+
+	@Override
+	public CryptoBox.Nonce boxNonceFromBytes(byte[] bytes) {
+		return new BoxNonce(bytes.clone());
+	}
+
+	@Override
+	public CryptoBox boxBeforeNm(CryptoBox.PublicKey publicKey, CryptoBox.PrivateKey secretKey) {
+		byte[] k = new byte[BOX_SHARED_KEY_BYTES];
+		// Fails only for a low-order peer key, whose agreement is all zeros.
+		if (sodium.crypto_box_beforenm(k, boxKeyOf(publicKey), boxKeyOf(secretKey)) != 0)
+			throw new IllegalArgumentException("Invalid public key");
+		return new SodiumCryptoBox(k);
+	}
+
+	@Override
+	public byte[] boxKeyBytes(CryptoBox box) {
+		return sharedKeyOf(box).clone();
+	}
+
+	@Override
+	public CryptoBox boxFromKeyBytes(byte[] sharedKey) {
+		if (sharedKey.length != BOX_SHARED_KEY_BYTES)
+			throw new IllegalArgumentException("Invalid shared key length: " + sharedKey.length);
+		return new SodiumCryptoBox(sharedKey.clone());
+	}
+
+	@Override
+	public byte[] boxEncrypt(byte[] message, CryptoBox.Nonce nonce, CryptoBox box) {
+		byte[] cipher = new byte[BOX_MAC_BYTES + message.length];
+		sodium.crypto_box_easy_afternm(cipher, message, message.length, nonceOf(nonce), sharedKeyOf(box));
+		return cipher;
+	}
+
+	@Override
+	public byte @Nullable [] boxDecrypt(byte[] cipher, CryptoBox.Nonce nonce, CryptoBox box) {
+		if (cipher.length < BOX_MAC_BYTES)
+			return null;
+
+		byte[] message = new byte[cipher.length - BOX_MAC_BYTES];
+		return sodium.crypto_box_open_easy_afternm(message, cipher, cipher.length, nonceOf(nonce), sharedKeyOf(box)) == 0 ?
+				message : null;
+	}
+
+	// jnr marshals a heap array through native memory on every call whatever the signature, so the
+	// gain here is only the Java-side copies the default implementation would add on top.
+	@Override
+	public int boxEncrypt(byte[] message, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		sodium.crypto_box_easy_afternm(ByteBuffer.wrap(out, outOffset, BOX_MAC_BYTES + length),
+				ByteBuffer.wrap(message, offset, length), length, nonceOf(nonce), sharedKeyOf(box));
+		return BOX_MAC_BYTES + length;
+	}
+
+	@Override
+	public int boxDecrypt(byte[] cipher, int offset, int length, CryptoBox.Nonce nonce, CryptoBox box,
+			byte[] out, int outOffset) {
+		if (length < BOX_MAC_BYTES)
+			return -1;
+
+		int plainLength = length - BOX_MAC_BYTES;
+		return sodium.crypto_box_open_easy_afternm(ByteBuffer.wrap(out, outOffset, plainLength),
+				ByteBuffer.wrap(cipher, offset, length), length, nonceOf(nonce), sharedKeyOf(box)) == 0 ?
+				plainLength : -1;
+	}
+
+	@Override
+	public byte[] boxEncrypt(byte[] message, CryptoBox.Nonce nonce, CryptoBox.PublicKey publicKey, CryptoBox.PrivateKey secretKey) {
+		byte[] cipher = new byte[BOX_MAC_BYTES + message.length];
+		if (sodium.crypto_box_easy(cipher, message, message.length, nonceOf(nonce), boxKeyOf(publicKey), boxKeyOf(secretKey)) != 0)
+			throw new IllegalArgumentException("Invalid public key");
+		return cipher;
+	}
+
+	@Override
+	public byte @Nullable [] boxDecrypt(byte[] cipher, CryptoBox.Nonce nonce, CryptoBox.PublicKey publicKey, CryptoBox.PrivateKey secretKey) {
+		if (cipher.length < BOX_MAC_BYTES)
+			return null;
+
+		byte[] message = new byte[cipher.length - BOX_MAC_BYTES];
+		return sodium.crypto_box_open_easy(message, cipher, cipher.length, nonceOf(nonce), boxKeyOf(publicKey), boxKeyOf(secretKey)) == 0 ?
+				message : null;
+	}
+
+	@Override
+	public byte[] boxSeal(byte[] message, CryptoBox.PublicKey publicKey) {
+		byte[] cipher = new byte[BOX_PUBLIC_KEY_BYTES + BOX_MAC_BYTES + message.length];
+		if (sodium.crypto_box_seal(cipher, message, message.length, boxKeyOf(publicKey)) != 0)
+			throw new IllegalArgumentException("Invalid public key");
+		return cipher;
+	}
+
+	@Override
+	public byte @Nullable [] boxSealOpen(byte[] cipher, CryptoBox.PublicKey publicKey, CryptoBox.PrivateKey secretKey) {
+		if (cipher.length < BOX_PUBLIC_KEY_BYTES + BOX_MAC_BYTES)
+			return null;
+
+		byte[] message = new byte[cipher.length - BOX_PUBLIC_KEY_BYTES - BOX_MAC_BYTES];
+		return sodium.crypto_box_seal_open(message, cipher, cipher.length, boxKeyOf(publicKey), boxKeyOf(secretKey)) == 0 ?
+				message : null;
+	}
+
+	// ---- crypto_pwhash (Argon2) -------------------------------------------
+
+	@Override
+	public byte[] pwHash(byte[] password, int length, byte[] salt, long opsLimit, long memLimit, int algorithm) {
+		byte[] out = new byte[length];
+		// Fails only when the memory limit cannot be allocated.
+		if (sodium.crypto_pwhash(out, length, password, password.length, salt, opsLimit, memLimit, algorithm) != 0)
+			throw new IllegalStateException("crypto_pwhash failed, out of memory?");
+		return out;
+	}
+
+	@Override
+	public String pwHashString(byte[] password, long opsLimit, long memLimit, int algorithm) {
+		byte[] out = new byte[PWHASH_STR_BYTES];
+		if (sodium.crypto_pwhash_str_alg(out, password, password.length, opsLimit, memLimit, algorithm) != 0)
+			throw new IllegalStateException("crypto_pwhash_str failed, out of memory?");
+		return new String(out, 0, cstrlen(out), StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public boolean pwHashVerify(String hash, byte[] password) {
+		byte[] str = cstr(hash);
+		return str != null && sodium.crypto_pwhash_str_verify(str, password, password.length) == 0;
+	}
+
+	@Override
+	public boolean pwHashNeedsRehash(String hash, long opsLimit, long memLimit) {
+		byte[] str = cstr(hash);
+		// 1 = needs rehash, -1 = not a valid hash string: both mean "hash it again".
+		return str == null || sodium.crypto_pwhash_str_needs_rehash(str, opsLimit, memLimit) != 0;
+	}
+
+	// The hash string as the NUL-terminated, fixed-size buffer libsodium expects; null if it cannot fit.
+	private static byte @Nullable [] cstr(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+		if (bytes.length >= PWHASH_STR_BYTES)
+			return null;
+		return Arrays.copyOf(bytes, PWHASH_STR_BYTES);
+	}
+
+	private static int cstrlen(byte[] s) {
+		int n = 0;
+		while (n < s.length && s[n] != 0)
+			n++;
+		return n;
+	}
+
+	// ---- crypto_secretstream -------------------------------------------
+
+	private final class SecretStreamStateImpl implements SecretStreamState {
+		// The opaque crypto_secretstream_xchacha20poly1305_state, round-tripped through every call.
+		private final byte[] state;
+		private final byte[] header;
+		private boolean complete = false;
+		private boolean destroyed = false;
+
+		private SecretStreamStateImpl(byte[] state, byte[] header) {
+			this.state = state;
+			this.header = header;
+		}
+
+		@Override
+		public byte[] header() {
+			return header.clone();
+		}
+
+		@Override
+		public boolean isComplete() {
+			return complete;
+		}
+
+		@Override
+		public byte[] push(byte @Nullable [] message, byte @Nullable [] additional, boolean finalBlock) {
+			int mlen = message == null ? 0 : message.length;
+			int adlen = additional == null ? 0 : additional.length;
+			byte[] c = new byte[mlen + SECRET_STREAM_ABYTES];
+			sodium.crypto_secretstream_xchacha20poly1305_push(state, c, null, message, mlen, additional, adlen,
+					finalBlock ? SECRET_STREAM_TAG_FINAL : SECRET_STREAM_TAG_MESSAGE);
+			if (finalBlock)
+				complete = true;
+			return c;
+		}
+
+		@Override
+		public byte[] pull(byte[] ciphertext, byte @Nullable [] additional) {
+			if (ciphertext.length < SECRET_STREAM_ABYTES)
+				throw new IllegalArgumentException("ciphertext too short");
+
+			byte[] m = new byte[ciphertext.length - SECRET_STREAM_ABYTES];
+			byte[] tag = new byte[1];
+			int adlen = additional == null ? 0 : additional.length;
+			if (sodium.crypto_secretstream_xchacha20poly1305_pull(state, m, null, tag, ciphertext, ciphertext.length,
+					additional, adlen) != 0)
+				throw new IllegalStateException("Poly1305 tag mismatch");
+
+			if (tag[0] == SECRET_STREAM_TAG_FINAL)
+				complete = true;
+			return m;
+		}
+
+		@Override
+		public void destroy() {
+			destroyed = true;
+			Arrays.fill(state, (byte) 0);
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return destroyed;
+		}
+	}
+
+	@Override
+	public SecretStreamState secretStreamInitPush(byte[] key) {
+		byte[] state = new byte[secretStreamStateBytes];
+		byte[] header = new byte[SECRET_STREAM_HEADER_BYTES];
+		sodium.crypto_secretstream_xchacha20poly1305_init_push(state, header, key);
+		return new SecretStreamStateImpl(state, header);
+	}
+
+	@Override
+	public SecretStreamState secretStreamInitPull(byte[] header, byte[] key) {
+		byte[] state = new byte[secretStreamStateBytes];
+		sodium.crypto_secretstream_xchacha20poly1305_init_pull(state, header, key);
+		return new SecretStreamStateImpl(state, header.clone());
+	}
+
+	// ---- PEM certification -------------------------------------------
+
+	@Override
+	public PemKeyCertificate certificateFromSignatureKey(Signature.PrivateKey privateKey, @Nullable String ipAddress,
+	                                                     @Nullable String hostName, boolean enableWildcard) throws CryptoException {
+		return fallback.certificateFromSignatureKey(privateKey, ipAddress, hostName, enableWildcard);
+	}
+
+	@Override
+	public PemKeyCertificate certificateSelfSignedEcdsa(@Nullable String ipAddress, @Nullable String hostName,
+	                                                    boolean enableWildcard, Signature.@Nullable PrivateKey identityKey) throws CryptoException {
+		return fallback.certificateSelfSignedEcdsa(ipAddress, hostName, enableWildcard, identityKey);
+	}
+}
@@ -23,6 +23,12 @@
 
 package io.bosonnetwork.crypto;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.security.auth.Destroyable;
 
@@ -369,6 +375,216 @@ public interface Signature {
 		return key.verify(message, signature);
 	}
 
+	/**
+	 * Verifies the signature of a message, answering from a bounded cache of past successes when the
+	 * same key, message and signature verified before.
+	 * <p>
+	 * Meant for signed records that reach a node over and over - the same value from every node a
+	 * lookup asks, the same peer with every re-announce - where a repeat costs a hash instead of a
+	 * verification, and the key is only decoded on a miss. A key that does not decode fails the check
+	 * instead of throwing.
+	 *
+	 * @param message   the signed message. Must not be null.
+	 * @param signature the signature. Must not be null; one that is not {@link #BYTES} bytes long fails.
+	 * @param publicKey the {@link PublicKey#BYTES}-byte public key. Must not be null; one of another
+	 *                  length fails.
+	 * @return true if the signature matches the message according to the public key.
+	 * @throws NullPointerException if any argument is null.
+	 */
+	static boolean verifyCached(byte[] message, byte[] signature, byte[] publicKey) {
+		Objects.requireNonNull(message, "message");
+		Objects.requireNonNull(signature, "signature");
+		Objects.requireNonNull(publicKey, "publicKey");
+		if (signature.length != BYTES || publicKey.length != PublicKey.BYTES)
+			return false;
+
+		ByteBuffer cacheKey = null;
+		if (VerifiedSignatures.isEnabled()) {
+			cacheKey = VerifiedSignatures.key(publicKey, message, signature);
+			if (VerifiedSignatures.contains(cacheKey))
+				return true;
+		}
+
+		PublicKey key;
+		try {
+			key = provider().ed25519PublicKeyFromBytes(publicKey);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+
+		boolean verified = provider().ed25519Verify(message, signature, key);
+		if (verified && cacheKey != null)
+			VerifiedSignatures.add(cacheKey);
+
+		return verified;
+	}
+
+	/**
+	 * Collects detached signatures to be verified together.
+	 * <p>
+	 * A lookup response or a signed record carries several signatures that are checked as one
+	 * decision - a response is dropped whole if any of its peers does not verify - so there is no
+	 * reason to pay for them one call at a time. The batch removes duplicates before verifying (the
+	 * same record tends to arrive several times in one response), hands the provider the keys as raw
+	 * bytes so a key shared by many entries is decoded once, and lets a provider with a real batch
+	 * equation use it; see {@link CryptoProvider#ed25519VerifyBatch}. Signatures that verified
+	 * before - the same key, message and signature - are answered from a bounded cache of past
+	 * successes instead of being verified again.
+	 * <p>
+	 * Not thread-safe; meant to be filled and verified by one caller.
+	 */
+	final class Batch {
+		private record Entry(ByteBuffer key, ByteBuffer message, ByteBuffer signature) {}
+
+		private final Map<Entry, Integer> distinct = new HashMap<>();
+		private final List<Entry> entries = new ArrayList<>();
+		// Index into entries for every add() call, or -1 for one that cannot verify whatever happens.
+		private int[] slots = new int[8];
+		private int size;
+
+		/**
+		 * Creates an empty batch.
+		 */
+		public Batch() {
+		}
+
+		/**
+		 * Adds a signature to check. The arrays are kept by reference, not copied, and must not be
+		 * modified until the batch has been verified.
+		 *
+		 * @param message   the signed message. Must not be null.
+		 * @param signature the signature. Must not be null; one that is not {@link Signature#BYTES}
+		 *                  bytes long is recorded as failing, the same as {@link PublicKey#verify}.
+		 * @param publicKey the {@link PublicKey#BYTES}-byte public key. Must not be null; one of
+		 *                  another length is recorded as failing.
+		 * @return the index of this entry in the result of {@link #verify()}.
+		 * @throws NullPointerException if any argument is null.
+		 */
+		public int add(byte[] message, byte[] signature, byte[] publicKey) {
+			Objects.requireNonNull(message, "message");
+			Objects.requireNonNull(signature, "signature");
+			Objects.requireNonNull(publicKey, "publicKey");
+
+			int slot = -1;
+			if (signature.length == Signature.BYTES && publicKey.length == PublicKey.BYTES) {
+				Entry entry = new Entry(ByteBuffer.wrap(publicKey), ByteBuffer.wrap(message), ByteBuffer.wrap(signature));
+				slot = distinct.computeIfAbsent(entry, e -> {
+					entries.add(e);
+					return entries.size() - 1;
+				});
+			}
+
+			if (size == slots.length)
+				slots = Arrays.copyOf(slots, size * 2);
+			slots[size] = slot;
+			return size++;
+		}
+
+		/**
+		 * Adds a signature to check against a public key object.
+		 *
+		 * @param message   the signed message. Must not be null.
+		 * @param signature the signature. Must not be null.
+		 * @param publicKey the public key. Must not be null.
+		 * @return the index of this entry in the result of {@link #verify()}.
+		 * @throws NullPointerException if any argument is null.
+		 * @see #add(byte[], byte[], byte[])
+		 */
+		public int add(byte[] message, byte[] signature, PublicKey publicKey) {
+			return add(message, signature, Objects.requireNonNull(publicKey, "publicKey").bytes());
+		}
+
+		/**
+		 * Returns the number of signatures added.
+		 *
+		 * @return the number of signatures added, duplicates included.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Verifies every signature added so far.
+		 *
+		 * @return the result of every {@link #add} call, in the order they were made.
+		 */
+		public boolean[] verify() {
+			boolean[] verified = verifyDistinct();
+			boolean[] results = new boolean[size];
+			for (int i = 0; i < size; i++)
+				results[i] = slots[i] >= 0 && verified[slots[i]];
+
+			return results;
+		}
+
+		/**
+		 * Verifies every signature added so far, as one decision.
+		 *
+		 * @return true if every signature verifies, including when the batch is empty.
+		 */
+		public boolean verifyAll() {
+			for (int i = 0; i < size; i++) {
+				if (slots[i] < 0)
+					return false;
+			}
+
+			for (boolean v : verifyDistinct()) {
+				if (!v)
+					return false;
+			}
+
+			return true;
+		}
+
+		private boolean[] verifyDistinct() {
+			int n = entries.size();
+			boolean[] results = new boolean[n];
+			if (n == 0)
+				return results;
+
+			// Entries already known to verify are answered from the cache; only the rest go to the provider.
+			boolean cached = VerifiedSignatures.isEnabled();
+			ByteBuffer[] cacheKeys = cached ? new ByteBuffer[n] : null;
+			int[] pending = new int[n];
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (cached) {
+					Entry e = entries.get(i);
+					cacheKeys[i] = VerifiedSignatures.key(e.key().array(), e.message().array(), e.signature().array());
+					if (VerifiedSignatures.contains(cacheKeys[i])) {
+						results[i] = true;
+						continue;
+					}
+				}
+
+				pending[m++] = i;
+			}
+
+			if (m == 0)
+				return results;
+
+			byte[][] messages = new byte[m][];
+			byte[][] signatures = new byte[m][];
+			byte[][] keys = new byte[m][];
+			for (int j = 0; j < m; j++) {
+				Entry e = entries.get(pending[j]);
+				messages[j] = e.message().array();
+				signatures[j] = e.signature().array();
+				keys[j] = e.key().array();
+			}
+
+			boolean[] verified = provider().ed25519VerifyBatch(messages, signatures, keys);
+			for (int j = 0; j < m; j++) {
+				int i = pending[j];
+				results[i] = verified[j];
+				if (verified[j] && cached)
+					VerifiedSignatures.add(cacheKeys[i]);
+			}
+
+			return results;
+		}
+	}
+
 	private static CryptoProvider provider() {
 		return CryptoProviders.getDefault();
 	}
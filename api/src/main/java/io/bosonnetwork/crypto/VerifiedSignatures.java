@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A bounded record of signatures that have already verified, consulted by {@link Signature#verifyCached}
+ * and {@link Signature.Batch}.
+ * <p>
+ * The same signed record reaches a node over and over: a popular peer arrives in every lookup
+ * response that covers it, again with every re-announce from its owner, and again on reads - each
+ * time with the same key, digest and signature, and each time costing a full Ed25519 verification
+ * for no new information. Remembering the ones that passed turns the repeats into a hash and a
+ * lookup.
+ * <p>
+ * An entry is the SHA-256 of the public key, the signature and the signed message, in that order;
+ * the first two have fixed lengths, so the concatenation is unambiguous, and a hit proves the exact
+ * triple was verified before. Only successes are recorded, so a sender cannot fill the cache with
+ * forgeries - but anyone can create keys and sign records of their own, so a sender can still fill it
+ * with valid entries of its choosing and push the useful ones out. That is why this is bounded and
+ * least-recently-used, and why a miss costs nothing beyond the verification it would have taken anyway:
+ * churning the cache takes a signature per entry, and at worst brings the hit rate down to zero.
+ * <p>
+ * Deliberately free of dependencies. This sits on the path of every {@code Value} and {@code PeerInfo}
+ * validity check, which clients run too, and the client build carries no cache library; an
+ * access-ordered {@link LinkedHashMap} under one lock is enough here, since the lock is held for a
+ * lookup while what it saves is a signature verification.
+ * <p>
+ * The capacity comes from the {@value #CAPACITY_PROPERTY} system property, default
+ * {@value #DEFAULT_CAPACITY} entries; {@code 0} disables the cache.
+ */
+final class VerifiedSignatures {
+	/** System property holding the maximum number of remembered signatures. */
+	static final String CAPACITY_PROPERTY = "io.bosonnetwork.crypto.verifiedSignatures";
+	/** Default maximum number of remembered signatures, a few MiB of heap at most. */
+	static final int DEFAULT_CAPACITY = 32768;
+
+	private static final @Nullable Map<ByteBuffer, Boolean> cache = create(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+
+	private VerifiedSignatures() {
+	}
+
+	private static @Nullable Map<ByteBuffer, Boolean> create(int capacity) {
+		if (capacity <= 0)
+			return null;
+
+		return new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Tells whether the cache is in use at all.
+	 *
+	 * @return {@code false} if it is disabled by configuration.
+	 */
+	static boolean isEnabled() {
+		return cache != null;
+	}
+
+	/**
+	 * Computes the cache key of a (key, message, signature) triple.
+	 *
+	 * @param publicKey the public key bytes.
+	 * @param message   the signed message.
+	 * @param signature the signature.
+	 * @return the key.
+	 */
+	static ByteBuffer key(byte[] publicKey, byte[] message, byte[] signature) {
+		MessageDigest sha = Hash.sha256();
+		sha.update(publicKey);
+		sha.update(signature);
+		sha.update(message);
+		return ByteBuffer.wrap(sha.digest());
+	}
+
+	/**
+	 * Tells whether the triple behind the given key has verified before.
+	 *
+	 * @param key a key from {@link #key}.
+	 * @return {@code true} if it is remembered as verified.
+	 */
+	static boolean contains(ByteBuffer key) {
+		if (cache == null)
+			return false;
+
+		// A lookup reorders an access-ordered map, so it takes the lock as well
+		synchronized (cache) {
+			return cache.get(key) != null;
+		}
+	}
+
+	/**
+	 * Remembers the triple behind the given key as verified.
+	 *
+	 * @param key a key from {@link #key}, for a triple that has just verified.
+	 */
+	static void add(ByteBuffer key) {
+		if (cache == null)
+			return;
+
+		synchronized (cache) {
+			cache.put(key, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Returns the number of remembered signatures.
+	 *
+	 * @return the number of entries.
+	 */
+	static long size() {
+		if (cache == null)
+			return 0;
+
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Forgets every remembered signature.
+	 */
+	static void clear() {
+		if (cache == null)
+			return;
+
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+}
@@ -25,8 +25,8 @@ package io.bosonnetwork.crypto.pow;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.jspecify.annotations.Nullable;
@@ -68,20 +68,6 @@ public final class Equihash {
 	private Equihash() {
 	}
 
-	/**
-	 * An intermediate entry during solving: the current XOR of a subtree's leaf strings, together
-	 * with the (disjoint) set of leaf indices that produced it.
-	 */
-	private static final class Entry {
-		final byte[] bits;
-		final int[] indices;
-
-		Entry(byte[] bits, int[] indices) {
-			this.bits = bits;
-			this.indices = indices;
-		}
-	}
-
 	/**
 	 * Validates the parameters and returns the collision bit length {@code L = n / (k + 1)}.
 	 *
@@ -217,65 +203,184 @@ public final class Equihash {
 	 * @return the list of solutions found (possibly empty).
 	 */
 	public static List<int[]> solve(byte[] input, int n, int k) {
+		List<int[]> solutions = solve(input, n, k, () -> false);
+		return solutions != null ? solutions : List.of();
+	}
+
+	/**
+	 * Finds Equihash solutions for the given input, giving up as soon as {@code abandoned} says so.
+	 * <p>
+	 * The rows live in two flat arrays per round - the XOR strings back to back, the index sets back
+	 * to back - instead of one object per row, and each round groups them by collision key with a
+	 * stable LSD radix sort over the keys rather than a comparison sort that re-extracts the key bits
+	 * on every comparison. The sort is stable, so rows with equal keys stay in generation order and
+	 * the solutions, and their order, are fully determined by the input.
+	 * <p>
+	 * {@code abandoned} is polled between collision groups, so a solve whose nonce has lost the
+	 * search stops within a fraction of a round rather than finishing its work for nothing.
+	 *
+	 * @param input     the per-attempt seed.
+	 * @param n         the hash bit width.
+	 * @param k         the number of rounds.
+	 * @param abandoned polled while solving; once it returns {@code true} the solve stops.
+	 * @return the list of solutions found (possibly empty), or {@code null} if abandoned.
+	 */
+	static @Nullable List<int[]> solve(byte[] input, int n, int k, BooleanSupplier abandoned) {
 		int l = collisionBits(n, k);
-		int listSize = 1 << (l + 1);
+		int hb = hashBytes(n);
+		int count = 1 << (l + 1);
 
-		List<Entry> list = new ArrayList<>(listSize);
-		for (int i = 0; i < listSize; i++)
-			list.add(new Entry(leaf(input, i, n, k), new int[] { i }));
+		byte[] hashes = new byte[count * hb];
+		int[] indices = new int[count];
+		Blake2bDigest digest = new Blake2bDigest(null, hb, null, personalization(n, k));
+		byte[] idx = new byte[4];
+		for (int i = 0; i < count; i++) {
+			digest.update(input, 0, input.length);
+			putIntBE(idx, 0, i);
+			digest.update(idx, 0, 4);
+			digest.doFinal(hashes, i * hb); // doFinal resets the digest for the next leaf
+			maskTail(hashes, i * hb, hb, n);
+			indices[i] = i;
+		}
 
 		List<int[]> solutions = new ArrayList<>();
+		int[] keys = new int[count];
+		int[] order = new int[count];
+		int[] scratch = new int[count];
 		for (int round = 1; round <= k; round++) {
-			final int startBit = (round - 1) * l;
-			list.sort(Comparator.comparingLong(e -> extractBits(e.bits, startBit, l)));
+			int width = 1 << (round - 1); // indices per row going in
+			int startBit = (round - 1) * l;
+			if (keys.length < count) {
+				keys = new int[count];
+				order = new int[count];
+				scratch = new int[count];
+			}
+			for (int i = 0; i < count; i++) {
+				keys[i] = (int) extractBits(hashes, i * hb, startBit, l);
+				order[i] = i;
+			}
+			radixSort(keys, order, scratch, count, l);
 
-			List<Entry> next = new ArrayList<>(listSize);
+			Rows next = new Rows(round == k ? 0 : count, hb, width * 2);
 			int i = 0;
-			int size = list.size();
-			while (i < size) {
-				long key = extractBits(list.get(i).bits, startBit, l);
+			while (i < count) {
+				if (abandoned.getAsBoolean())
+					return null;
+
+				int key = keys[order[i]];
 				int j = i + 1;
-				while (j < size && extractBits(list.get(j).bits, startBit, l) == key)
+				while (j < count && keys[order[j]] == key)
 					j++;
 
 				// Collide every disjoint pair within the group.
 				for (int a = i; a < j; a++) {
+					int ra = order[a];
 					for (int b = a + 1; b < j; b++) {
-						Entry ea = list.get(a);
-						Entry eb = list.get(b);
-						if (!disjoint(ea.indices, eb.indices))
+						int rb = order[b];
+						if (!disjoint(indices, ra * width, indices, rb * width, width))
 							continue;
 
-						byte[] nb = xor(ea.bits, eb.bits);
-						int[] ni = mergeCanonical(ea.indices, eb.indices);
 						if (round == k) {
-							if (isAllZero(nb))
-								solutions.add(ni);
+							if (xorIsZero(hashes, ra * hb, rb * hb, hb))
+								solutions.add(mergeCanonical(indices, ra * width, rb * width, width));
 						} else {
-							next.add(new Entry(nb, ni));
-							if (next.size() > MAX_LIST_SIZE)
-								throw new IllegalStateException("Equihash intermediate list overflow");
+							next.add(hashes, ra * hb, rb * hb, indices, ra * width, rb * width, width);
 						}
 					}
 				}
 				i = j;
 			}
 
-			if (round < k)
-				list = next;
+			if (round < k) {
+				hashes = next.hashes;
+				indices = next.indices;
+				count = next.count;
+			}
 		}
 
 		return solutions;
 	}
 
+	/**
+	 * The rows of the next round, appended as collisions are found: XOR strings back to back in one
+	 * array, merged index sets back to back in another.
+	 */
+	private static final class Rows {
+		private final int hashBytes;
+		private final int width;
+		byte[] hashes;
+		int[] indices;
+		int count;
+
+		Rows(int capacity, int hashBytes, int width) {
+			this.hashBytes = hashBytes;
+			this.width = width;
+			capacity = Math.max(capacity, 16);
+			this.hashes = new byte[capacity * hashBytes];
+			this.indices = new int[capacity * width];
+		}
+
+		void add(byte[] srcHashes, int offA, int offB, int[] srcIndices, int idxA, int idxB, int half) {
+			if (count == MAX_LIST_SIZE)
+				throw new IllegalStateException("Equihash intermediate list overflow");
+
+			if ((count + 1) * hashBytes > hashes.length) {
+				int capacity = Math.min(count * 2, MAX_LIST_SIZE);
+				hashes = Arrays.copyOf(hashes, capacity * hashBytes);
+				indices = Arrays.copyOf(indices, capacity * width);
+			}
+
+			int h = count * hashBytes;
+			for (int b = 0; b < hashBytes; b++)
+				hashes[h + b] = (byte) (srcHashes[offA + b] ^ srcHashes[offB + b]);
+
+			// Canonical order: the half with the smaller first index goes first.
+			int first = srcIndices[idxA] < srcIndices[idxB] ? idxA : idxB;
+			int second = first == idxA ? idxB : idxA;
+			System.arraycopy(srcIndices, first, indices, count * width, half);
+			System.arraycopy(srcIndices, second, indices, count * width + half, half);
+			count++;
+		}
+	}
+
+	// Stable LSD radix sort of order[0, count) by keys[order[i]] (keyBits <= 30), in passes of at
+	// most 15 bits so the bucket counts stay small enough for the cache.
+	private static void radixSort(int[] keys, int[] order, int[] scratch, int count, int keyBits) {
+		int passes = (keyBits + 14) / 15;
+		int bitsPerPass = (keyBits + passes - 1) / passes;
+		int buckets = 1 << bitsPerPass;
+		int mask = buckets - 1;
+		int[] counts = new int[buckets + 1];
+
+		int[] src = order;
+		int[] dst = scratch;
+		for (int pass = 0, shift = 0; pass < passes; pass++, shift += bitsPerPass) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < count; i++)
+				counts[((keys[src[i]] >>> shift) & mask) + 1]++;
+			for (int b = 0; b < buckets; b++)
+				counts[b + 1] += counts[b];
+			for (int i = 0; i < count; i++)
+				dst[counts[(keys[src[i]] >>> shift) & mask]++] = src[i];
+
+			int[] t = src;
+			src = dst;
+			dst = t;
+		}
+
+		if (src != order)
+			System.arraycopy(src, 0, order, 0, count);
+	}
+
 	// ---- bit helpers ------------------------------------------------------
 
-	// Extracts lenBits bits (lenBits <= 32) starting at startBit, counting bit 0 as the MSB of byte 0.
-	private static long extractBits(byte[] bytes, int startBit, int lenBits) {
+	// Extracts lenBits bits (lenBits <= 32) starting at startBit of the row at offset, counting bit 0
+	// as the MSB of the row's first byte.
+	private static long extractBits(byte[] bytes, int offset, int startBit, int lenBits) {
 		long v = 0;
 		for (int i = 0; i < lenBits; i++) {
 			int bit = startBit + i;
-			int b = (bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+			int b = (bytes[offset + (bit >>> 3)] >>> (7 - (bit & 7))) & 1;
 			v = (v << 1) | b;
 		}
 		return v;
@@ -314,28 +419,41 @@ public final class Equihash {
 
 	// Zeroes the low (8 - n % 8) bits of the last byte so only the high n bits remain.
 	private static void maskTail(byte[] bytes, int n) {
+		maskTail(bytes, 0, bytes.length, n);
+	}
+
+	private static void maskTail(byte[] bytes, int offset, int length, int n) {
 		int rem = n & 7;
 		if (rem != 0)
-			bytes[bytes.length - 1] &= (byte) ((0xFF << (8 - rem)) & 0xFF);
+			bytes[offset + length - 1] &= (byte) ((0xFF << (8 - rem)) & 0xFF);
+	}
+
+	private static boolean xorIsZero(byte[] bytes, int offA, int offB, int length) {
+		for (int i = 0; i < length; i++) {
+			if (bytes[offA + i] != bytes[offB + i])
+				return false;
+		}
+		return true;
 	}
 
-	private static boolean disjoint(int[] a, int[] b) {
-		for (int x : a) {
-			for (int y : b) {
-				if (x == y)
+	private static boolean disjoint(int[] a, int offA, int[] b, int offB, int length) {
+		for (int i = 0; i < length; i++) {
+			int x = a[offA + i];
+			for (int j = 0; j < length; j++) {
+				if (x == b[offB + j])
 					return false;
 			}
 		}
 		return true;
 	}
 
-	// Concatenates the two index lists so the sublist with the smaller first index comes first.
-	private static int[] mergeCanonical(int[] a, int[] b) {
-		int[] first = a[0] < b[0] ? a : b;
-		int[] second = first == a ? b : a;
-		int[] out = new int[a.length + b.length];
-		System.arraycopy(first, 0, out, 0, first.length);
-		System.arraycopy(second, 0, out, first.length, second.length);
+	// Concatenates the two index runs so the run with the smaller first index comes first.
+	private static int[] mergeCanonical(int[] indices, int offA, int offB, int length) {
+		int first = indices[offA] < indices[offB] ? offA : offB;
+		int second = first == offA ? offB : offA;
+		int[] out = new int[length * 2];
+		System.arraycopy(indices, first, out, 0, length);
+		System.arraycopy(indices, second, out, length, length);
 		return out;
 	}
 
@@ -22,8 +22,14 @@
 
 package io.bosonnetwork.crypto.pow;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.jspecify.annotations.Nullable;
@@ -187,7 +193,7 @@ public final class ProofOfWork {
 
 	/**
 	 * Searches for a proof-of-work that satisfies both the Equihash puzzle and the effort target.
-	 * This is the memory-hard, time-consuming client-side operation.
+	 * This is the memory-hard, time-consuming client-side operation; it runs on the calling thread.
 	 *
 	 * @param seed         the puzzle seed (see {@link #seed}).
 	 * @param n            the Equihash bit width.
@@ -197,18 +203,129 @@ public final class ProofOfWork {
 	 * @return the discovered solution, or {@code null} if none was found within the nonce budget.
 	 */
 	public static @Nullable Solution solve(byte[] seed, int n, int k, int effort, long maxPowNonces) {
+		return solve(seed, n, k, effort, maxPowNonces, 1);
+	}
+
+	/**
+	 * Searches for a proof-of-work, trying up to {@code parallelism} candidate nonces at once.
+	 * <p>
+	 * Each nonce is an independent Equihash solve, so the search spreads them over a dedicated
+	 * {@link ForkJoinPool}: every worker takes the next untried nonce until one of them finds a
+	 * solution that meets the effort. From then on no worker starts a larger nonce, and workers still
+	 * solving a larger nonce abandon it mid-round; workers on smaller nonces finish, since one of
+	 * them may still win. The result is therefore the lowest winning nonce - exactly what the
+	 * sequential search returns - only found sooner.
+	 * <p>
+	 * Every in-flight solve holds its own intermediate lists, so peak memory grows linearly with
+	 * {@code parallelism}. Interrupting the calling thread stops all workers and throws
+	 * {@link CancellationException} with the interrupt status restored.
+	 *
+	 * @param seed         the puzzle seed (see {@link #seed}).
+	 * @param n            the Equihash bit width.
+	 * @param k            the Equihash rounds.
+	 * @param effort       the required leading zero bits of the effort hash.
+	 * @param maxPowNonces the maximum number of nonces to try before giving up.
+	 * @param parallelism  the number of nonces to solve concurrently; {@code 1} solves on the
+	 *                     calling thread.
+	 * @return the discovered solution, or {@code null} if none was found within the nonce budget.
+	 * @throws CancellationException if the calling thread is interrupted while waiting.
+	 */
+	public static @Nullable Solution solve(byte[] seed, int n, int k, int effort, long maxPowNonces,
+			int parallelism) {
 		requireLength(seed, SEED_BYTES, "seed");
 		Equihash.collisionBits(n, k); // validate parameters early
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive, got " + parallelism);
+
+		Search search = new Search(seed, n, k, effort, maxPowNonces);
+		if (parallelism == 1 || maxPowNonces <= 1) {
+			search.run();
+			return search.result();
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<?>> workers = new ArrayList<>(parallelism);
+			for (int i = 0; i < parallelism; i++)
+				workers.add(pool.submit(search));
 
-		for (long powNonce = 0; powNonce < maxPowNonces; powNonce++) {
-			byte[] input = puzzleInput(seed, powNonce);
-			List<int[]> candidates = Equihash.solve(input, n, k);
-			for (int[] indices : candidates) {
-				if (meetsEffort(effortHash(seed, powNonce, indices), effort))
-					return new Solution(powNonce, indices);
+			for (ForkJoinTask<?> worker : workers)
+				worker.get();
+
+			return search.result();
+		} catch (InterruptedException e) {
+			search.cancel();
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Proof-of-work search interrupted");
+		} catch (ExecutionException e) {
+			search.cancel();
+			if (e.getCause() instanceof RuntimeException re)
+				throw re;
+			if (e.getCause() instanceof Error err)
+				throw err;
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// The shared state of one nonce search; run() is the worker loop, executed by one or more threads.
+	private static final class Search implements Runnable {
+		private final byte[] seed;
+		private final int n;
+		private final int k;
+		private final int effort;
+		private final long maxPowNonces;
+
+		private final AtomicLong nextNonce = new AtomicLong();
+		private volatile boolean cancelled;
+		// The lowest winning nonce so far (Long.MAX_VALUE while none) and its solution, guarded by this.
+		private volatile long bestNonce = Long.MAX_VALUE;
+		private int @Nullable [] bestIndices;
+
+		Search(byte[] seed, int n, int k, int effort, long maxPowNonces) {
+			this.seed = seed;
+			this.n = n;
+			this.k = k;
+			this.effort = effort;
+			this.maxPowNonces = maxPowNonces;
+		}
+
+		@Override
+		public void run() {
+			while (!cancelled) {
+				long powNonce = nextNonce.getAndIncrement();
+				if (powNonce >= maxPowNonces || powNonce > bestNonce)
+					return;
+
+				List<int[]> candidates = Equihash.solve(puzzleInput(seed, powNonce), n, k,
+						() -> cancelled || bestNonce < powNonce);
+				if (candidates == null)
+					return; // abandoned: a smaller nonce already won, or the search was cancelled
+
+				for (int[] indices : candidates) {
+					if (meetsEffort(effortHash(seed, powNonce, indices), effort)) {
+						offer(powNonce, indices);
+						return;
+					}
+				}
 			}
 		}
-		return null;
+
+		private synchronized void offer(long powNonce, int[] indices) {
+			if (powNonce < bestNonce) {
+				bestIndices = indices;
+				bestNonce = powNonce;
+			}
+		}
+
+		synchronized @Nullable Solution result() {
+			return bestIndices == null ? null : new Solution(bestNonce, bestIndices);
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
 	}
 
 	/**
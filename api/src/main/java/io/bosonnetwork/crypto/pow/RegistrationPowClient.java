@@ -50,7 +50,9 @@ public final class RegistrationPowClient {
 	}
 
 	/**
-	 * Solves the challenge for an identity and signs the result with its key.
+	 * Solves the challenge for an identity and signs the result with its key, trying one candidate
+	 * nonce per available processor at a time (see {@link ProofOfWork#solve(byte[], int, int, int,
+	 * long, int)}).
 	 *
 	 * @param superNodeId  the 32-byte super node id (from {@code GET /client/id}).
 	 * @param signerKey    the identity keypair that will own the registration (user or device key).
@@ -61,9 +63,33 @@ public final class RegistrationPowClient {
 	 * @param maxPowNonces the search budget (number of nonces to try before failing).
 	 * @return the fields to submit with the registration request.
 	 * @throws IllegalStateException if no solution is found within the budget.
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted.
 	 */
 	public static Result solve(byte[] superNodeId, Signature.KeyPair signerKey, int n, int k,
 			int effort, byte[] challengeNonce, long maxPowNonces) {
+		return solve(superNodeId, signerKey, n, k, effort, challengeNonce, maxPowNonces,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Solves the challenge for an identity and signs the result with its key, trying up to
+	 * {@code parallelism} candidate nonces at a time. The result does not depend on the parallelism;
+	 * memory use grows with it, so constrained clients (mobile, small containers) may want a low value.
+	 *
+	 * @param superNodeId  the 32-byte super node id (from {@code GET /client/id}).
+	 * @param signerKey    the identity keypair that will own the registration (user or device key).
+	 * @param n            the Equihash bit width from the challenge.
+	 * @param k            the Equihash rounds from the challenge.
+	 * @param effort       the effort target from the challenge.
+	 * @param challengeNonce     the challenge nonce.
+	 * @param maxPowNonces the search budget (number of nonces to try before failing).
+	 * @param parallelism  the number of nonces to solve concurrently; {@code 1} solves on the calling thread.
+	 * @return the fields to submit with the registration request.
+	 * @throws IllegalStateException if no solution is found within the budget.
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted.
+	 */
+	public static Result solve(byte[] superNodeId, Signature.KeyPair signerKey, int n, int k,
+			int effort, byte[] challengeNonce, long maxPowNonces, int parallelism) {
 		Objects.requireNonNull(superNodeId, "superNodeId");
 		Objects.requireNonNull(signerKey, "signerKey");
 		Objects.requireNonNull(challengeNonce, "challengeNonce");
@@ -71,7 +97,7 @@ public final class RegistrationPowClient {
 		byte[] pubkey = signerKey.publicKey().bytes();
 		byte[] seed = ProofOfWork.seed(superNodeId, pubkey, challengeNonce);
 
-		ProofOfWork.Solution solution = ProofOfWork.solve(seed, n, k, effort, maxPowNonces);
+		ProofOfWork.Solution solution = ProofOfWork.solve(seed, n, k, effort, maxPowNonces, parallelism);
 		if (solution == null)
 			throw new IllegalStateException("No proof-of-work found within the nonce budget");
 
@@ -72,6 +72,11 @@ public class ContextualFuture<T> extends CompletableFuture<T> implements java.ut
 	 */
 	final @NonNull Future<T> future;
 
+	/**
+	 * What {@link #cancel(boolean)} tells the producer, or {@code null} if the producer is not listening.
+	 */
+	private final Runnable canceller;
+
 	/**
 	 * Wraps an existing Vert.x {@link Future} into a ContextualFuture.
 	 * Updates the internal state of this CompletableFuture whenever the Vert.x Future completes.
@@ -79,9 +84,22 @@ public class ContextualFuture<T> extends CompletableFuture<T> implements java.ut
 	 * @param future the Vert.x Future to wrap
 	 */
 	protected ContextualFuture(@NonNull Future<T> future) {
+		this(future, null);
+	}
+
+	/**
+	 * Wraps an existing Vert.x {@link Future} into a ContextualFuture whose cancellation is reported
+	 * back to the producer.
+	 *
+	 * @param future    the Vert.x Future to wrap
+	 * @param canceller run once, on the cancelling thread, when {@link #cancel(boolean)} settles this
+	 *                  future; {@code null} if the producer does not need to know
+	 */
+	protected ContextualFuture(@NonNull Future<T> future, Runnable canceller) {
 		// Keep the original future (so a Promise-backed one stays completable via complete());
 		// register the state-sync handler for the inherited CompletableFuture machinery.
 		this.future = future;
+		this.canceller = canceller;
 		future.andThen(ar -> {
 			// update the internal state of CompletableFuture
 			if (ar.succeeded())
@@ -102,6 +120,37 @@ public class ContextualFuture<T> extends CompletableFuture<T> implements java.ut
 		return new ContextualFuture<>(future);
 	}
 
+	/**
+	 * Creates a ContextualFuture that follows the given Vert.x Future and can be cancelled by its consumer.
+	 * <p>
+	 * The returned future settles with whatever {@code future} settles with, unless {@link #cancel(boolean)}
+	 * gets there first: then it fails with a {@link CancellationException} at once, {@code onCancel} runs,
+	 * and the later outcome of {@code future} is dropped. Stopping the work is the producer's business -
+	 * {@code onCancel} is how it hears that nobody is waiting any more.
+	 * </p>
+	 * <p>
+	 * The source future is never completed from here, so a producer may keep completing it with
+	 * {@code complete()} rather than {@code tryComplete()} whether or not its consumer cancelled.
+	 * </p>
+	 *
+	 * @param future   the Vert.x Future producing the result
+	 * @param onCancel run once when the returned future is cancelled
+	 * @param <T>      the type of the ContextualFuture result
+	 * @return a new cancellable ContextualFuture following the given future
+	 */
+	public static <T> @NonNull ContextualFuture<T> cancellable(@NonNull Future<T> future, @NonNull Runnable onCancel) {
+		Objects.requireNonNull(onCancel);
+
+		Promise<T> promise = Promise.promise();
+		future.onComplete(ar -> {
+			if (ar.succeeded())
+				promise.tryComplete(ar.result());
+			else
+				promise.tryFail(ar.cause());
+		});
+		return new ContextualFuture<>(promise.future(), onCancel);
+	}
+
 	/**
 	 * Converts a {@link CompletableFuture} into a {@link ContextualFuture}.
 	 * If the provided {@link CompletableFuture} is already an instance of {@link ContextualFuture},
@@ -754,15 +803,38 @@ public class ContextualFuture<T> extends CompletableFuture<T> implements java.ut
 		return future;
 	}
 
+	/**
+	 * Cancels this future if it has not completed yet.
+	 * <p>
+	 * Only a future created by {@link #cancellable(Future, Runnable)} can be cancelled: it settles a
+	 * promise of its own, never the producer's, and tells the producer so the work behind it stops
+	 * instead of running on to an answer nobody reads. Every other ContextualFuture reports
+	 * {@code false} and is left alone - including one wrapping a Promise-backed future, because in
+	 * Vert.x 5 {@code promise.future()} is the promise itself, and failing it from here would make the
+	 * producer's own later {@code complete()} or {@code fail()} throw. {@code mayInterruptIfRunning} has
+	 * no effect: nothing here owns a thread to interrupt.
+	 * </p>
+	 *
+	 * @param mayInterruptIfRunning ignored
+	 * @return true if this future is now cancelled
+	 */
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
-		// not support cancel
-		return false;
+		if (canceller == null)
+			return false;
+
+		// Created by cancellable(), so the promise behind this future is ours and nobody else completes it
+		if (future instanceof Promise<?> promise && promise.tryFail(new CancellationException())) {
+			canceller.run();
+			return true;
+		}
+
+		return isCancelled();
 	}
 
 	@Override
 	public boolean isCancelled() {
-		return false;
+		return future.failed() && future.cause() instanceof CancellationException;
 	}
 
 	@Override
@@ -802,10 +874,13 @@ public class ContextualFuture<T> extends CompletableFuture<T> implements java.ut
 	/**
 	 * Returns the result of the now-complete future, or throws its failure wrapped in an
 	 * {@link ExecutionException}. A complete Vert.x future is always either succeeded or failed.
+	 * A cancellation is thrown as it is, as {@link CompletableFuture#get()} does.
 	 */
 	private T resultOrThrow() throws ExecutionException {
 		if (future.succeeded())
 			return future.result();
+		else if (future.cause() instanceof CancellationException ce)
+			throw ce;
 		else
 			throw new ExecutionException(future.cause());
 	}
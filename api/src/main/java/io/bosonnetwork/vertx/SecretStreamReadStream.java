@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.vertx;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.crypto.SecretStream;
+
+/**
+ * A {@link ReadStream} that decrypts the output of a {@link SecretStreamWriteStream} as it arrives from
+ * another {@code ReadStream}, emitting one plaintext buffer per record.
+ * <p>
+ * Incoming chunks are gathered until a whole record is present - the header first, then each
+ * length-prefixed record - and every complete record is decrypted and emitted at once. Only the part of
+ * a record not yet complete is ever held, so a payload of any size can be piped through
+ * ({@code new SecretStreamReadStream(source, key).pipeTo(sink)}) without being buffered whole.
+ * <p>
+ * The stream ends only after the record carrying the final tag has been decrypted and the input has
+ * ended with nothing after it. Everything else is reported to the {@link #exceptionHandler(Handler)
+ * exception handler} and terminates the stream: a record that fails authentication, a declared length
+ * outside {@code [ABYTES, maxRecordSize + ABYTES]} (checked before anything is buffered for it), data
+ * after the final record, and - the case that matters most - an input that ends before the final record,
+ * which is how a truncated transfer shows up.
+ * <p>
+ * Back-pressure follows the Vert.x contract and is counted in emitted records: {@link #pause()},
+ * {@link #resume()} and {@link #fetch(long)} set the demand, and the input is paused whenever the demand
+ * is used up and resumed when it returns.
+ *
+ * <h2>Threading</h2>
+ * Like the Vert.x streams it wraps, the stream is not thread-safe: call it from the context the input
+ * stream delivers on.
+ */
+public class SecretStreamReadStream implements ReadStream<Buffer> {
+	private final ReadStream<Buffer> input;
+	private final byte[] key;
+	private final int maxRecordSize;
+
+	private SecretStream.@Nullable DecryptionStream decryptor;
+	// Received but not yet decrypted, from position onwards.
+	private Buffer pending = Buffer.buffer();
+	private int position;
+
+	// Long.MAX_VALUE means flowing, 0 paused, anything else the records a fetch still asks for.
+	private long demand = Long.MAX_VALUE;
+	private boolean inputEnded;
+	private boolean ended;
+	// Guards against re-entry: a data handler that calls fetch() or resume() lands back in process().
+	private boolean processing;
+
+	private @Nullable Handler<Buffer> dataHandler;
+	private @Nullable Handler<Void> endHandler;
+	private @Nullable Handler<Throwable> exceptionHandler;
+
+	/**
+	 * Creates a decrypting stream over {@code input} that accepts records up to
+	 * {@link SecretStreamWriteStream#MAX_RECORD_SIZE}.
+	 *
+	 * @param input the stream the ciphertext is read from
+	 * @param key   the secret stream key, {@link SecretStream#KEY_BYTES} bytes
+	 * @throws IllegalArgumentException if the key has the wrong length
+	 */
+	public SecretStreamReadStream(ReadStream<Buffer> input, byte[] key) {
+		this(input, key, SecretStreamWriteStream.MAX_RECORD_SIZE);
+	}
+
+	/**
+	 * Creates a decrypting stream over {@code input}.
+	 *
+	 * @param input         the stream the ciphertext is read from
+	 * @param key           the secret stream key, {@link SecretStream#KEY_BYTES} bytes; copied, and the
+	 *                      copy wiped once the header has been read
+	 * @param maxRecordSize the largest plaintext record to accept, which bounds what a sender can make
+	 *                      this stream buffer; must be at least the sender's record size
+	 * @throws IllegalArgumentException if the key has the wrong length or the size is not positive
+	 */
+	public SecretStreamReadStream(ReadStream<Buffer> input, byte[] key, int maxRecordSize) {
+		Objects.requireNonNull(input, "input");
+		Objects.requireNonNull(key, "key");
+		if (key.length != SecretStream.KEY_BYTES)
+			throw new IllegalArgumentException("key must be " + SecretStream.KEY_BYTES + " bytes long");
+		if (maxRecordSize <= 0)
+			throw new IllegalArgumentException("maxRecordSize must be positive");
+
+		this.input = input;
+		this.key = key.clone();
+		this.maxRecordSize = maxRecordSize;
+	}
+
+	@Override
+	public SecretStreamReadStream exceptionHandler(@Nullable Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	@Override
+	public SecretStreamReadStream handler(@Nullable Handler<Buffer> handler) {
+		this.dataHandler = handler;
+		if (handler == null) {
+			input.handler(null);
+			return this;
+		}
+
+		input.exceptionHandler(this::fail);
+		input.endHandler(v -> {
+			inputEnded = true;
+			process();
+		});
+		input.handler(chunk -> {
+			if (ended)
+				return;
+
+			pending.appendBuffer(chunk);
+			process();
+		});
+		return this;
+	}
+
+	@Override
+	public SecretStreamReadStream pause() {
+		demand = 0L;
+		input.pause();
+		return this;
+	}
+
+	@Override
+	public SecretStreamReadStream resume() {
+		demand = Long.MAX_VALUE;
+		process();
+		return this;
+	}
+
+	@Override
+	public SecretStreamReadStream fetch(long amount) {
+		if (amount <= 0)
+			throw new IllegalArgumentException("fetch amount must be > 0");
+
+		if (demand != Long.MAX_VALUE) {
+			demand += amount;
+			if (demand < 0) // overflow: treat as unbounded
+				demand = Long.MAX_VALUE;
+		}
+
+		process();
+		return this;
+	}
+
+	@Override
+	public SecretStreamReadStream endHandler(@Nullable Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		return this;
+	}
+
+	/**
+	 * Decrypts and emits every complete record the demand allows, then sets the input's flow to match
+	 * what is left of the demand, or finishes the stream if the input has ended.
+	 */
+	private void process() {
+		if (processing || ended || dataHandler == null)
+			return;
+
+		processing = true;
+		try {
+			while (!ended && demand > 0) {
+				Buffer plain = nextRecord();
+				if (plain == null)
+					break;
+
+				if (plain.length() == 0) // an empty final record carries only the tag
+					continue;
+
+				if (demand != Long.MAX_VALUE)
+					demand--;
+
+				Handler<Buffer> h = dataHandler;
+				if (h != null)
+					h.handle(plain);
+			}
+
+			compact();
+
+			if (ended)
+				return;
+
+			if (inputEnded) {
+				if (available() == 0 || demand > 0)
+					finish();
+			} else if (demand == 0) {
+				input.pause();
+			} else {
+				input.resume();
+			}
+		} catch (Throwable t) {
+			fail(t);
+		} finally {
+			processing = false;
+		}
+	}
+
+	/**
+	 * Takes the next record out of the pending bytes, reading the header first if it has not been.
+	 *
+	 * @return the decrypted record, or {@code null} if the next one is not complete yet
+	 */
+	private @Nullable Buffer nextRecord() {
+		if (decryptor == null) {
+			if (available() < SecretStream.HEADER_BYTES)
+				return null;
+
+			byte[] header = pending.getBytes(position, position + SecretStream.HEADER_BYTES);
+			position += SecretStream.HEADER_BYTES;
+			decryptor = SecretStream.decryptionStream(header, key);
+			Arrays.fill(key, (byte) 0);
+		}
+
+		if (decryptor.isComplete()) {
+			if (available() > 0)
+				throw new IllegalStateException("Data after the final record");
+			return null;
+		}
+
+		if (available() < Integer.BYTES)
+			return null;
+
+		// Checked as soon as the prefix is in: a hostile length must not get as far as being waited for.
+		int length = pending.getInt(position);
+		if (length < SecretStream.ABYTES || length - SecretStream.ABYTES > maxRecordSize)
+			throw new IllegalStateException("Invalid record length: " + length);
+
+		if (available() < Integer.BYTES + length)
+			return null;
+
+		int start = position + Integer.BYTES;
+		byte[] cipher = pending.getBytes(start, start + length);
+		position = start + length;
+		return Buffer.buffer(decryptor.pull(cipher));
+	}
+
+	private int available() {
+		return pending.length() - position;
+	}
+
+	// Drops what has been consumed: all of it when nothing is left over, which is the usual case, and the
+	// consumed prefix otherwise - a copy of less than one record.
+	private void compact() {
+		if (position == 0)
+			return;
+
+		pending = available() == 0 ? Buffer.buffer() : pending.getBuffer(position, pending.length());
+		position = 0;
+	}
+
+	private void finish() {
+		if (decryptor == null || !decryptor.isComplete()) {
+			fail(new IllegalStateException("Stream truncated: ended before the final record"));
+			return;
+		}
+		if (available() > 0) {
+			fail(new IllegalStateException("Data after the final record"));
+			return;
+		}
+
+		terminate();
+		Handler<Void> h = endHandler;
+		if (h != null) {
+			try {
+				h.handle(null);
+			} catch (Throwable ignored) {
+				// Swallow: an exception from the end handler must not propagate.
+			}
+		}
+	}
+
+	private void terminate() {
+		ended = true;
+		pending = Buffer.buffer();
+		position = 0;
+		Arrays.fill(key, (byte) 0);
+		if (decryptor != null)
+			decryptor.close();
+	}
+
+	private void fail(Throwable cause) {
+		if (ended)
+			return;
+
+		terminate();
+		input.pause();
+
+		Handler<Throwable> h = exceptionHandler;
+		if (h != null) {
+			try {
+				h.handle(cause);
+			} catch (Throwable ignored) {
+				// Swallow: an exception from the exception handler must not propagate.
+			}
+		}
+	}
+}
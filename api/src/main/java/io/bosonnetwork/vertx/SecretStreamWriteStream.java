@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.vertx;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.crypto.SecretStream;
+
+/**
+ * A {@link WriteStream} that encrypts what is written to it with a {@link SecretStream} and forwards the
+ * ciphertext to another {@code WriteStream}, one record at a time.
+ * <p>
+ * Plaintext is gathered into a record buffer of the configured size, allocated once and reused; each
+ * full record is encrypted and written downstream as soon as it fills, and the last, partial record is
+ * encrypted with the final tag on {@link #end()}. Nothing more than one record is ever held, so a
+ * payload of any size can be piped through - {@code source.pipeTo(new SecretStreamWriteStream(sink, key))}
+ * - without being buffered whole.
+ * <p>
+ * The wire format, read back by {@link SecretStreamReadStream}, is
+ * {@code header(24) || (length(4, big-endian) || record)*}, where each record is one
+ * {@link SecretStream.EncryptionStream#push pushed} message of at most {@code recordSize + ABYTES} bytes
+ * and only the last one carries the final tag. The length prefix is what lets the reader find record
+ * boundaries in a byte stream that arrives in arbitrary chunks; the final tag is what lets it tell a
+ * complete stream from a truncated one.
+ * <p>
+ * Back-pressure is the downstream's: {@link #writeQueueFull()}, {@link #setWriteQueueMaxSize(int)} and
+ * {@link #drainHandler(Handler)} delegate to it, so the limit is measured in ciphertext. A write that
+ * only fills the record buffer completes at once; a write that completes records returns the future of
+ * the last downstream write it made.
+ *
+ * <h2>Threading</h2>
+ * Like the Vert.x streams it wraps, the stream is not thread-safe: call it from the context the
+ * downstream stream belongs to.
+ */
+public class SecretStreamWriteStream implements WriteStream<Buffer> {
+	/**
+	 * The default plaintext record size, 64 KiB: large enough that the 4 + 17 bytes of framing and tag
+	 * are noise, small enough to stay well inside one socket write.
+	 */
+	public static final int DEFAULT_RECORD_SIZE = 64 * 1024;
+	/**
+	 * The largest accepted record size, 16 MiB; also the default limit of {@link SecretStreamReadStream}.
+	 */
+	public static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+	private final WriteStream<Buffer> output;
+	private final SecretStream.EncryptionStream encryptor;
+	private final byte[] record;
+	private int recordLength;
+
+	private boolean headerWritten;
+	private @Nullable Future<Void> endFuture;
+	private @Nullable Handler<Throwable> exceptionHandler;
+
+	/**
+	 * Creates an encrypting stream over {@code output} with the {@linkplain #DEFAULT_RECORD_SIZE default
+	 * record size}.
+	 *
+	 * @param output the stream the ciphertext is written to
+	 * @param key    the secret stream key, {@link SecretStream#KEY_BYTES} bytes
+	 * @throws IllegalArgumentException if the key has the wrong length
+	 */
+	public SecretStreamWriteStream(WriteStream<Buffer> output, byte[] key) {
+		this(output, key, DEFAULT_RECORD_SIZE);
+	}
+
+	/**
+	 * Creates an encrypting stream over {@code output}.
+	 *
+	 * @param output     the stream the ciphertext is written to
+	 * @param key        the secret stream key, {@link SecretStream#KEY_BYTES} bytes; not retained
+	 * @param recordSize the plaintext bytes per record, in {@code [1, MAX_RECORD_SIZE]}
+	 * @throws IllegalArgumentException if the key has the wrong length or the record size is out of range
+	 */
+	public SecretStreamWriteStream(WriteStream<Buffer> output, byte[] key, int recordSize) {
+		Objects.requireNonNull(output, "output");
+		if (recordSize <= 0 || recordSize > MAX_RECORD_SIZE)
+			throw new IllegalArgumentException("recordSize must be in range [1, " + MAX_RECORD_SIZE + "]");
+
+		this.output = output;
+		this.encryptor = SecretStream.encryptionStream(key);
+		this.record = new byte[recordSize];
+	}
+
+	@Override
+	public SecretStreamWriteStream exceptionHandler(@Nullable Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Fails with {@link IllegalStateException} once the stream has been {@linkplain #end() ended}.
+	 */
+	@Override
+	public Future<Void> write(Buffer data) {
+		if (data == null)
+			return fail(new NullPointerException("data is null"));
+		if (endFuture != null)
+			return Future.failedFuture(new IllegalStateException("Stream is already ended"));
+
+		Future<Void> written = Future.succeededFuture();
+		try {
+			int offset = 0;
+			int length = data.length();
+			while (offset < length) {
+				int n = Math.min(record.length - recordLength, length - offset);
+				data.getBytes(offset, offset + n, record, recordLength);
+				recordLength += n;
+				offset += n;
+
+				if (recordLength == record.length) {
+					written = writeRecord(record, false);
+					recordLength = 0;
+				}
+			}
+		} catch (RuntimeException e) {
+			return fail(e);
+		}
+
+		return written;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Encrypts whatever is left in the record buffer as the final record - an empty one if the plaintext
+	 * ended on a record boundary, so the reader always sees the final tag - then ends the downstream
+	 * stream. Idempotent: a repeated call returns the first call's future.
+	 */
+	@Override
+	public Future<Void> end() {
+		if (endFuture != null)
+			return endFuture;
+
+		Future<Void> written;
+		try {
+			written = writeRecord(Arrays.copyOf(record, recordLength), true);
+		} catch (RuntimeException e) {
+			written = fail(e);
+		} finally {
+			recordLength = 0;
+			Arrays.fill(record, (byte) 0);
+			encryptor.close();
+		}
+
+		endFuture = written.compose(v -> output.end());
+		return endFuture;
+	}
+
+	private Future<Void> writeRecord(byte[] plain, boolean last) {
+		byte[] cipher = encryptor.push(plain, null, last);
+
+		Buffer frame;
+		if (!headerWritten) {
+			// The header rides in front of the first record rather than in a write of its own.
+			byte[] header = encryptor.header();
+			frame = Buffer.buffer(header.length + Integer.BYTES + cipher.length).appendBytes(header);
+			headerWritten = true;
+		} else {
+			frame = Buffer.buffer(Integer.BYTES + cipher.length);
+		}
+
+		frame.appendInt(cipher.length).appendBytes(cipher);
+		return output.write(frame);
+	}
+
+	private Future<Void> fail(Throwable cause) {
+		Handler<Throwable> h = exceptionHandler;
+		if (h != null) {
+			try {
+				h.handle(cause);
+			} catch (Throwable ignored) {
+				// Swallow: an exception from the exception handler must not propagate.
+			}
+		}
+
+		return Future.failedFuture(cause);
+	}
+
+	@Override
+	public SecretStreamWriteStream setWriteQueueMaxSize(int maxSize) {
+		output.setWriteQueueMaxSize(maxSize);
+		return this;
+	}
+
+	@Override
+	public boolean writeQueueFull() {
+		return output.writeQueueFull();
+	}
+
+	@Override
+	public SecretStreamWriteStream drainHandler(@Nullable Handler<Void> handler) {
+		output.drainHandler(handler);
+		return this;
+	}
+}
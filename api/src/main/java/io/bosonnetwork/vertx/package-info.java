@@ -42,6 +42,10 @@
  *       {@link io.bosonnetwork.vertx.BufferReadStream} sources and
  *       {@link io.bosonnetwork.vertx.ByteArrayWriteStream} / {@link io.bosonnetwork.vertx.BufferWriteStream}
  *       sinks;</li>
+ *   <li>{@link io.bosonnetwork.vertx.SecretStreamWriteStream} / {@link io.bosonnetwork.vertx.SecretStreamReadStream}
+ *       - encrypting {@code WriteStream} and decrypting {@code ReadStream} wrappers over
+ *       {@link io.bosonnetwork.crypto.SecretStream}, record by record, so large payloads can be piped
+ *       encrypted without being buffered whole;</li>
  *   <li>{@link io.bosonnetwork.vertx.ObservableReadStream} - a {@code ReadStream} wrapper that
  *       observes each element (and treats an observer error as the authoritative failure signal);</li>
  *   <li>{@link io.bosonnetwork.vertx.VertxCaffeine} - an {@link java.util.concurrent.Executor} and
@@ -34,6 +34,7 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Random;
 
+import io.vertx.core.buffer.Buffer;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -343,7 +344,7 @@ public class IdTests {
 	void testBitsCopy() {
 		for (int i = 0; i < Id.SIZE; i++) {
 			var target = Id.of(Id.min());
-			Id.bitsCopy(Id.max(), target, i);
+			target = Id.of(Id.bitsCopy(Id.max(), target, i));
 			System.out.println(target.toBinaryString());
 
 			assertEquals(0, target.getLeadingZeros());
@@ -352,7 +353,7 @@ public class IdTests {
 
 		for (int i = 0; i < Id.SIZE; i++) {
 			var target = Id.of(Id.max());
-			Id.bitsCopy(Id.min(), target, i);
+			target = Id.of(Id.bitsCopy(Id.min(), target, i));
 			System.out.println(target.toBinaryString());
 
 			assertEquals(i + 1, target.getLeadingZeros());
@@ -365,7 +366,7 @@ public class IdTests {
 		for (int i = 0; i < Id.SIZE; i++) {
 			var target = Id.of(id2);
 
-			Id.bitsCopy(id1, target, i);
+			target = Id.of(Id.bitsCopy(id1, target, i));
 			System.out.printf("  -: %s\n", id1.toBinaryString());
 			System.out.printf("  -: %s\n", id2.toBinaryString());
 			System.out.printf("%-3d: %s\n\n", i, target.toBinaryString());
@@ -377,6 +378,72 @@ public class IdTests {
 		}
 	}
 
+	/**
+	 * The arithmetic runs on the long words; the reference here runs on the bytes via BigInteger. Ids
+	 * are drawn with shared prefixes of every length so the word boundaries are crossed, not just the
+	 * first word.
+	 */
+	@Test
+	void testWordArithmeticMatchesBytes() {
+		var random = new Random(0x1d);
+		var mask = BigInteger.ONE.shiftLeft(Id.SIZE).subtract(BigInteger.ONE);
+
+		for (int i = 0; i < 2000; i++) {
+			var target = Id.random();
+			var shared = random.nextInt(Id.SIZE);
+			var a = Id.of(Id.bitsCopy(target, Id.random(), shared));
+			var b = Id.of(Id.bitsCopy(a, Id.random(), random.nextInt(Id.SIZE)));
+
+			var ta = target.toInteger();
+			var ia = a.toInteger();
+			var ib = b.toInteger();
+
+			assertEquals(ia.xor(ib), a.distance(b).toInteger());
+			assertEquals(ia.add(ib).and(mask), a.add(b).toInteger());
+			assertEquals(Integer.signum(ia.compareTo(ib)), Id.compare(a, b));
+			assertEquals(Integer.signum(ta.xor(ia).compareTo(ta.xor(ib))), target.threeWayCompare(a, b));
+			assertEquals(ia.xor(ib).bitLength(), a.approxDistance(b));
+			assertEquals(Id.SIZE - ia.bitLength(), a.getLeadingZeros());
+			assertEquals(ia.signum() == 0 ? Id.SIZE : ia.getLowestSetBit(), a.getTrailingZeros());
+
+			var depth = random.nextInt(Id.SIZE);
+			assertEquals(ia.shiftRight(Id.SIZE - depth - 1).equals(ib.shiftRight(Id.SIZE - depth - 1)),
+					Id.bitsEqual(a, b, depth));
+		}
+
+		// The carry has to ripple across every word boundary.
+		assertEquals(Id.zero(), Id.max().add(Id.ofBit(Id.SIZE - 1)));
+		assertEquals(Id.ofBit(63), Id.ofHex("0x" + "0".repeat(15) + "0" + "f".repeat(48)).add(Id.ofBit(Id.SIZE - 1)));
+	}
+
+	@Test
+	void testHashCodeOfWordsMatchesBytes() {
+		for (int i = 0; i < 1000; i++) {
+			var id = Id.random();
+			var b = id.bytesUnsafe();
+			int expected = 0x6030A +
+					(((b[0] ^ b[1] ^ b[2] ^ b[3] ^ b[4] ^ b[5] ^ b[6] ^ b[7]) & 0xff) << 24)
+					| (((b[8] ^ b[9] ^ b[10] ^ b[11] ^ b[12] ^ b[13] ^ b[14] ^ b[15]) & 0xff) << 16)
+					| (((b[16] ^ b[17] ^ b[18] ^ b[19] ^ b[20] ^ b[21] ^ b[22] ^ b[23]) & 0xff) << 8)
+					| ((b[24] ^ b[25] ^ b[26] ^ b[27] ^ b[28] ^ b[29] ^ b[30] ^ b[31]) & 0xff);
+			assertEquals(expected, id.hashCode());
+		}
+	}
+
+	@Test
+	void testOfBuffer() {
+		var id = Id.random();
+		var buffer = Buffer.buffer().appendBytes(new byte[] { 1, 2, 3 }).appendBytes(id.bytesUnsafe());
+
+		var read = Id.of(buffer, 3);
+		assertEquals(id, read);
+		assertArrayEquals(id.bytesUnsafe(), read.bytesUnsafe());
+		assertEquals(Id.SIZE, read.distance(id).getLeadingZeros());
+
+		assertThrows(IllegalArgumentException.class, () -> Id.of(buffer, 4));
+		assertThrows(IllegalArgumentException.class, () -> Id.of(buffer, -1));
+	}
+
 	private static void timing(String name, Runnable action) {
 		var begin = System.currentTimeMillis();
 		action.run();
@@ -111,6 +111,7 @@ class NodeConfigurationTests {
 				.addBootstrap(Id.random(), "203.0.113.5", 1234, "2001:db8::1", 5678)
 				.spamThrottling(false)
 				.suspiciousNodeDetector(false)
+				.boundedSuspiciousNodeDetector(true)
 				.developerMode(true)
 				.build();
 
@@ -467,9 +468,33 @@ class NodeConfigurationTests {
 		NodeConfiguration config = baseBuilder().build();
 		assertEquals(new NodeConfiguration.SecurityOptions(NodeConfiguration.DEFAULT_SPAM_THROTTLING,
 				NodeConfiguration.DEFAULT_SUSPICIOUS_NODE_DETECTOR,
+				NodeConfiguration.DEFAULT_BOUNDED_SUSPICIOUS_NODE_DETECTOR,
 				NodeConfiguration.DEFAULT_DEVELOPER_MODE), config.security());
 	}
 
+	@Test
+	void testCryptoProvider() {
+		assertEquals(NodeConfiguration.DEFAULT_CRYPTO_PROVIDER, baseBuilder().build().cryptoProvider());
+
+		NodeConfiguration config = baseBuilder().cryptoProvider("bc").build();
+		assertEquals("bc", config.cryptoProvider());
+		assertEquals("bc", baseBuilder().fromMap(config.toMap()).build().cryptoProvider());
+
+		// Availability is a run time question, answered when the node selects the provider.
+		assertEquals("libsodium", baseBuilder().fromMap(Map.of("cryptoProvider", "libsodium")).build().cryptoProvider());
+		assertThrows(IllegalArgumentException.class, () -> baseBuilder().cryptoProvider(""));
+	}
+
+	@Test
+	void testPersistCryptoContexts() {
+		assertEquals(NodeConfiguration.DEFAULT_PERSIST_CRYPTO_CONTEXTS, baseBuilder().build().persistCryptoContexts());
+
+		NodeConfiguration config = baseBuilder().persistCryptoContexts(true).build();
+		assertTrue(config.persistCryptoContexts());
+		assertTrue(baseBuilder().fromMap(config.toMap()).build().persistCryptoContexts());
+		assertTrue(baseBuilder().fromMap(Map.of("persistCryptoContexts", true)).build().persistCryptoContexts());
+	}
+
 	@Test
 	void testFromMapEmpty() {
 		IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> NodeConfiguration.fromMap(Map.of()));
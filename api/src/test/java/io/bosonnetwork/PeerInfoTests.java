@@ -12,8 +12,10 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
@@ -429,6 +431,53 @@ public class PeerInfoTests {
 		assertFalse(Arrays.equals(first.getNodeSignature(), second.getNodeSignature()));
 	}
 
+	@Test
+	void testBatchValidation() {
+		Identity owner = new CryptoIdentity();
+		Identity node = new CryptoIdentity();
+		List<PeerInfo> peers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			peers.add(PeerInfo.builder().identity(owner).fingerprint(i)
+					.endpoint("tcp://203.0.113.126:" + (5000 + i)).build());
+			peers.add(PeerInfo.builder().identity(owner).node(node).fingerprint(100 + i)
+					.endpoint("tcp://203.0.113.126:" + (6000 + i)).build());
+		}
+		peers.add(peers.get(1)); // the same record twice, as responses often carry
+
+		assertTrue(PeerInfo.isValid(List.of()));
+		assertTrue(PeerInfo.isValid(peers));
+		peers.forEach(p -> assertTrue(p.isValid()));
+
+		// One peer whose node signature does not match is enough to fail the whole batch.
+		PeerInfo good = peers.get(3);
+		PeerInfo tampered = PeerInfo.of(good.getId(), good.getSequenceNumber(), good.getNodeId(),
+				peers.get(5).getNodeSignature(), good.getSignature(), good.getFingerprint(),
+				good.getEndpoint(), good.getExtraData());
+		assertFalse(tampered.isValid());
+		peers.add(tampered);
+		assertFalse(PeerInfo.isValid(peers));
+	}
+
+	@Test
+	void testEachValidation() {
+		Identity owner = new CryptoIdentity();
+		Identity node = new CryptoIdentity();
+		PeerInfo plain = PeerInfo.builder().identity(owner).fingerprint(1)
+				.endpoint("tcp://203.0.113.126:5001").build();
+		PeerInfo authenticated = PeerInfo.builder().identity(owner).node(node).fingerprint(2)
+				.endpoint("tcp://203.0.113.126:5002").build();
+		PeerInfo other = PeerInfo.builder().identity(owner).node(node).fingerprint(3)
+				.endpoint("tcp://203.0.113.126:5003").build();
+		// The peer signature holds, the node signature is another peer's
+		PeerInfo tampered = PeerInfo.of(authenticated.getId(), authenticated.getSequenceNumber(), authenticated.getNodeId(),
+				other.getNodeSignature(), authenticated.getSignature(), authenticated.getFingerprint(),
+				authenticated.getEndpoint(), authenticated.getExtraData());
+
+		List<PeerInfo> peers = List.of(plain, tampered, authenticated, other, plain);
+		assertArrayEquals(new boolean[] { true, false, true, true, true }, PeerInfo.isEachValid(peers));
+		assertEquals(0, PeerInfo.isEachValid(List.of()).length);
+	}
+
 	@Test
 	void testEqualsAndHashCode() {
 		PeerInfo p1 = PeerInfo.builder().endpoint("tcp://203.0.113.126:5678").build();
@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -269,6 +270,26 @@ public class ValueTests {
 		assertEquals(json, json2);
 	}
 
+	@Test
+	void testEachValidation() {
+		Value immutable = Value.immutableBuilder().data("immutable".getBytes()).build();
+		Value signed = Value.signedBuilder().data("signed".getBytes()).build();
+		Value encrypted = Value.encryptedBuilder()
+				.recipient(Id.of(Signature.KeyPair.random().publicKey().bytes()))
+				.data("encrypted".getBytes())
+				.build();
+		// Signed by its key, but over other data
+		Value forged = Value.of(signed.getPublicKey(), signed.getSequenceNumber(), signed.getSignature(), "forged".getBytes());
+		Value mismatched = Value.of(Id.random(), "data".getBytes());
+
+		List<Value> values = List.of(immutable, signed, forged, encrypted, mismatched, signed);
+		assertArrayEquals(new boolean[] { true, true, false, true, false, true }, Value.isEachValid(values));
+		for (int i = 0; i < values.size(); i++)
+			assertEquals(values.get(i).isValid(), Value.isEachValid(values)[i]);
+
+		assertEquals(0, Value.isEachValid(List.of()).length);
+	}
+
 	@ParameterizedTest
 	@ValueSource(strings = {"immutable", "signed", "encrypted"})
 	void testCbor(String mode) {
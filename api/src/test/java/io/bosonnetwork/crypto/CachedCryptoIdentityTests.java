@@ -1,18 +1,23 @@
 package io.bosonnetwork.crypto;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+
 import com.github.benmanes.caffeine.cache.Caffeine;
 
 import org.junit.jupiter.api.Test;
 
 import io.bosonnetwork.CryptoContext;
+import io.bosonnetwork.Id;
 import io.bosonnetwork.Identity;
 
 public class CachedCryptoIdentityTests {
@@ -160,4 +165,64 @@ public class CachedCryptoIdentityTests {
 
 		ctxAlice.close();
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testWarmCache() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder());
+		List<Id> peers = List.of(new CryptoIdentity().getId(), new CryptoIdentity().getId(),
+				new CryptoIdentity().getId());
+
+		assertEquals(3, alice.warmCache(peers));
+		assertEquals(3, alice.cacheSize());
+		// Already cached: nothing left to derive.
+		assertEquals(0, alice.warmCache(peers));
+
+		// Without a cache there is nothing to warm.
+		assertEquals(0, new CachedCryptoIdentity(null).warmCache(peers));
+	}
+
+	@Test
+	void testExportAndImportCache() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder());
+		CryptoIdentity bob = new CryptoIdentity();
+		CryptoIdentity carol = new CryptoIdentity();
+		alice.warmCache(List.of(bob.getId(), carol.getId()));
+
+		byte[] data = alice.exportCache();
+		assertNotNull(data);
+
+		// A restarted node: same key, empty cache.
+		CachedCryptoIdentity restarted = new CachedCryptoIdentity(alice.getKeyPair(), Caffeine.newBuilder());
+		assertEquals(2, restarted.importCache(data));
+		assertEquals(2, restarted.cacheSize());
+
+		byte[] message = "restored context".getBytes();
+		assertArrayEquals(message, bob.decrypt(alice.getId(), restarted.encrypt(bob.getId(), message)));
+		assertArrayEquals(message, restarted.decrypt(carol.getId(), carol.encrypt(alice.getId(), message)));
+
+		// Importing again keeps the contexts already cached.
+		assertEquals(0, restarted.importCache(data));
+	}
+
+	@Test
+	void testImportCacheRejectsForeignData() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder());
+		alice.warmCache(List.of(new CryptoIdentity().getId()));
+		byte[] data = alice.exportCache();
+		assertNotNull(data);
+
+		CachedCryptoIdentity mallory = new CachedCryptoIdentity(Caffeine.newBuilder());
+		assertThrows(CryptoException.class, () -> mallory.importCache(data));
+
+		data[data.length - 1] ^= 0x01;
+		CachedCryptoIdentity restarted = new CachedCryptoIdentity(alice.getKeyPair(), Caffeine.newBuilder());
+		assertThrows(CryptoException.class, () -> restarted.importCache(data));
+		assertEquals(0, restarted.cacheSize());
+	}
+
+	@Test
+	void testExportEmptyCache() {
+		assertNull(new CachedCryptoIdentity(Caffeine.newBuilder()).exportCache());
+		assertNull(new CachedCryptoIdentity(null).exportCache());
+	}
+}
@@ -0,0 +1,187 @@
+package io.bosonnetwork.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.bosonnetwork.CryptoContext;
+import io.bosonnetwork.Identity;
+
+public class CipherSuiteTests {
+	private static byte[] randomMessage(int length) {
+		byte[] message = new byte[length];
+		new Random(length).nextBytes(message);
+		return message;
+	}
+
+	@ParameterizedTest
+	@EnumSource(CipherSuite.class)
+	void testRoundTrip(CipherSuite suite) throws Exception {
+		assumeTrue(suite.isAvailable());
+
+		CryptoIdentity alice = new CryptoIdentity();
+		CryptoIdentity bob = new CryptoIdentity();
+
+		try (CryptoContext sender = alice.createCryptoContext(bob.getId());
+			 CryptoContext receiver = bob.createCryptoContext(alice.getId())) {
+			sender.setCipherSuite(suite);
+			assertEquals(suite, sender.getCipherSuite());
+
+			for (int length : new int[] { 1, 64, 1200, 65536 }) {
+				byte[] message = randomMessage(length);
+				byte[] frame = sender.encrypt(message);
+				// Every suite frames to the same size, so switching never changes the datagram budget.
+				assertEquals(CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES + length, frame.length);
+				// The receiver was never told which suite: it has to find it on its own.
+				assertArrayEquals(message, receiver.decrypt(frame));
+			}
+		}
+	}
+
+	/**
+	 * A receiver that has switched to an AEAD suite must still read a peer that has not, and the other
+	 * way round - the two ends learn of each other's capability one message apart.
+	 */
+	@Test
+	void testMismatchedSuitesInteroperate() throws Exception {
+		assumeTrue(CipherSuite.AES_256_GCM.isAvailable());
+
+		CryptoIdentity alice = new CryptoIdentity();
+		CryptoIdentity bob = new CryptoIdentity();
+
+		try (CryptoContext sender = alice.createCryptoContext(bob.getId());
+			 CryptoContext receiver = bob.createCryptoContext(alice.getId())) {
+			receiver.setCipherSuite(CipherSuite.AES_256_GCM);
+			byte[] message = randomMessage(256);
+			assertArrayEquals(message, receiver.decrypt(sender.encrypt(message)));
+
+			sender.setCipherSuite(CipherSuite.AES_256_GCM);
+			receiver.setCipherSuite(CipherSuite.XSALSA20_POLY1305);
+			assertArrayEquals(message, receiver.decrypt(sender.encrypt(message)));
+		}
+	}
+
+	/**
+	 * The default stays the box construction, bit for bit: a node that never negotiates anything
+	 * produces frames the plain {@link CryptoBox} API - all an older node has - can open.
+	 */
+	@Test
+	void testDefaultSuiteIsPlainBox() throws Exception {
+		CryptoIdentity alice = new CryptoIdentity();
+		CryptoIdentity bob = new CryptoIdentity();
+
+		byte[] message = randomMessage(100);
+		byte[] frame = alice.encrypt(bob.getId(), message);
+
+		byte[] nonce = new byte[CryptoBox.Nonce.BYTES];
+		System.arraycopy(frame, 0, nonce, 0, nonce.length);
+		byte[] cipher = new byte[frame.length - nonce.length];
+		System.arraycopy(frame, nonce.length, cipher, 0, cipher.length);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), nonce, cipher));
+	}
+
+	@ParameterizedTest
+	@EnumSource(CipherSuite.class)
+	void testTamperedFrameIsRejected(CipherSuite suite) throws Exception {
+		assumeTrue(suite.isAvailable());
+
+		CryptoIdentity alice = new CryptoIdentity();
+		CryptoIdentity bob = new CryptoIdentity();
+
+		try (CryptoContext sender = alice.createCryptoContext(bob.getId());
+			 CryptoContext receiver = bob.createCryptoContext(alice.getId())) {
+			sender.setCipherSuite(suite);
+			byte[] frame = sender.encrypt(randomMessage(128));
+			frame[frame.length - 1] ^= 0x01;
+			assertThrows(CryptoException.class, () -> receiver.decrypt(frame));
+		}
+	}
+
+	@Test
+	void testDuplicateNonceIsRejectedUnderAead() throws Exception {
+		assumeTrue(CipherSuite.CHACHA20_POLY1305.isAvailable());
+
+		CryptoIdentity alice = new CryptoIdentity();
+		CryptoIdentity bob = new CryptoIdentity();
+
+		try (CryptoContext sender = alice.createCryptoContext(bob.getId());
+			 CryptoContext receiver = bob.createCryptoContext(alice.getId())) {
+			sender.setCipherSuite(CipherSuite.CHACHA20_POLY1305);
+			byte[] frame = sender.encrypt(randomMessage(32));
+			receiver.decrypt(frame);
+			assertThrows(CryptoException.class, () -> receiver.decrypt(frame));
+		}
+	}
+
+	/**
+	 * Each suite's key is derived with its own label, so the same shared key never serves two
+	 * constructions: a frame sealed with one AEAD suite does not open under the other.
+	 */
+	@Test
+	void testSuiteKeysAreDistinct() throws Exception {
+		assumeTrue(CipherSuite.AES_256_GCM.isAvailable() && CipherSuite.CHACHA20_POLY1305.isAvailable());
+
+		CryptoBox.KeyPair a = CryptoBox.KeyPair.random();
+		CryptoBox.KeyPair b = CryptoBox.KeyPair.random();
+		try (CryptoBox box = CryptoBox.fromKeys(b.publicKey(), a.privateKey())) {
+			CipherSuite.Key aes = CipherSuite.AES_256_GCM.deriveKey(box);
+			CipherSuite.Key chacha = CipherSuite.CHACHA20_POLY1305.deriveKey(box);
+
+			byte[] nonce = new byte[CryptoBox.Nonce.BYTES];
+			byte[] message = randomMessage(48);
+			byte[] sealed = new byte[message.length + CipherSuite.TAG_BYTES];
+			aes.seal(message, 0, message.length, nonce, 0, sealed, 0);
+
+			byte[] plain = new byte[message.length];
+			assertThrows(CryptoException.class, () -> chacha.open(sealed, 0, sealed.length, nonce, 0, plain, 0));
+			assertEquals(message.length, aes.open(sealed, 0, sealed.length, nonce, 0, plain, 0));
+			assertArrayEquals(message, plain);
+
+			aes.destroy();
+			assertTrue(aes.isDestroyed());
+			assertThrows(IllegalStateException.class, () -> aes.seal(message, 0, message.length, nonce, 0, sealed, 0));
+			chacha.destroy();
+		}
+	}
+
+	@Test
+	void testBoxSuiteHasNoDerivedKey() {
+		assertFalse(CipherSuite.XSALSA20_POLY1305.isAead());
+		assertTrue(CipherSuite.XSALSA20_POLY1305.isAvailable());
+
+		CryptoBox.KeyPair a = CryptoBox.KeyPair.random();
+		try (CryptoBox box = CryptoBox.fromKeys(a.publicKey(), a.privateKey())) {
+			assertThrows(UnsupportedOperationException.class, () -> CipherSuite.XSALSA20_POLY1305.deriveKey(box));
+		}
+	}
+
+	@Test
+	void testCachedIdentityRemembersSuite() throws Exception {
+		assumeTrue(CipherSuite.AES_256_GCM.isAvailable());
+
+		Identity alice = new CachedCryptoIdentity(Signature.KeyPair.random(), Caffeine.newBuilder());
+		Identity bob = new CachedCryptoIdentity(Signature.KeyPair.random(), Caffeine.newBuilder());
+
+		assertEquals(CipherSuite.XSALSA20_POLY1305, alice.getCipherSuite(bob.getId()));
+		alice.setCipherSuite(bob.getId(), CipherSuite.AES_256_GCM);
+		assertEquals(CipherSuite.AES_256_GCM, alice.getCipherSuite(bob.getId()));
+
+		byte[] message = randomMessage(500);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), alice.encrypt(bob.getId(), message)));
+		// The plain identity keeps no state, so it keeps the default.
+		Identity plain = new CryptoIdentity();
+		plain.setCipherSuite(bob.getId(), CipherSuite.AES_256_GCM);
+		assertEquals(CipherSuite.XSALSA20_POLY1305, plain.getCipherSuite(bob.getId()));
+	}
+}
@@ -30,7 +30,12 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -191,6 +196,66 @@ public class CryptoBoxTests {
 		}
 	}
 
+	@Test
+	public void checkPrecomputedBufferEncryptAndDecrypt() throws CryptoException {
+		var alice = CryptoBox.KeyPair.random();
+		var bob = CryptoBox.KeyPair.random();
+		var message = "This is a test message".getBytes();
+
+		try (CryptoBox enc = CryptoBox.fromKeys(alice.publicKey(), bob.privateKey());
+			 CryptoBox dec = CryptoBox.fromKeys(bob.publicKey(), alice.privateKey())) {
+			byte[] framed = new byte[CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES + message.length];
+			int n = enc.encrypt(message, 0, message.length, nonce, framed, CryptoBox.Nonce.BYTES);
+			assertEquals(CryptoBox.MAC_BYTES + message.length, n);
+			assertArrayEquals(enc.encrypt(message, nonce), Arrays.copyOfRange(framed, CryptoBox.Nonce.BYTES, framed.length));
+
+			byte[] plain = new byte[message.length];
+			assertEquals(message.length, dec.decrypt(framed, CryptoBox.Nonce.BYTES, n, nonce, plain, 0));
+			assertArrayEquals(message, plain);
+
+			assertThrows(IndexOutOfBoundsException.class, () ->
+					enc.encrypt(message, 0, message.length, nonce, new byte[message.length], 0));
+			assertThrows(IndexOutOfBoundsException.class, () ->
+					dec.decrypt(framed, CryptoBox.Nonce.BYTES, n, nonce, new byte[message.length - 1], 0));
+			assertThrows(CryptoException.class, () ->
+					dec.decrypt(framed, 0, CryptoBox.MAC_BYTES - 1, nonce, plain, 0));
+
+			framed[framed.length - 1] ^= 0x01;
+			assertThrows(CryptoException.class, () ->
+					dec.decrypt(framed, CryptoBox.Nonce.BYTES, n, nonce, plain, 0));
+		}
+	}
+
+	@Test
+	public void checkConcurrentPrecomputedEncryptAndDecrypt() throws Exception {
+		var alice = CryptoBox.KeyPair.random();
+		var bob = CryptoBox.KeyPair.random();
+
+		try (CryptoBox enc = CryptoBox.fromKeys(alice.publicKey(), bob.privateKey());
+			 CryptoBox dec = CryptoBox.fromKeys(bob.publicKey(), alice.privateKey())) {
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				results.add(executor.submit(() -> {
+					CryptoBox.Nonce n = CryptoBox.Nonce.random();
+					for (int i = 0; i < 500; i++) {
+						byte[] message = Random.randomBytes(i % 300);
+						byte[] cipher = enc.encrypt(message, n);
+						if (!Arrays.equals(message, dec.decrypt(cipher, n)))
+							return false;
+						n = n.increment();
+					}
+					return true;
+				}));
+			}
+
+			for (Future<Boolean> result : results)
+				assertTrue(result.get());
+
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void checkBoxKeyPairFromSignatureKeyPair() {
 		var signKeyPair = Signature.KeyPair.random();
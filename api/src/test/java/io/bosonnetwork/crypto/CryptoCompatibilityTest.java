@@ -42,6 +42,7 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 
@@ -153,7 +154,7 @@ public class CryptoCompatibilityTest {
 
 		// precomputed (beforenm/afternm) path equals the full path on both backends
 		try (CryptoBox bcPre = BC.boxBeforeNm(bcPkB, bcSkA); CryptoBox lsPre = LS.boxBeforeNm(lsPkB, lsSkA)) {
-			assertArrayEquals(lsBox, bcPre.encrypt(msg, CryptoBox.Nonce.fromBytes(nonce.bytes())), "BC afternm == full");
+			assertArrayEquals(lsBox, BC.boxEncrypt(msg, nonce, bcPre), "BC afternm == full");
 			//assertArrayEquals(lsBox, lsPre.encrypt(msg, CryptoBox.Nonce.fromBytes(nonce.bytes())), "libsodium afternm == full");
 			// The libsodium backend (via Tuweni) encapsulates the shared key within its own
 			// Box object and does not expose the raw shared key bytes. This prevents
@@ -167,7 +168,7 @@ public class CryptoCompatibilityTest {
 				"libsodium opens BC box");
 
 		try (CryptoBox bcDec = BC.boxBeforeNm(bcPkA, bcSkB)) {
-			assertArrayEquals(msg, bcDec.decrypt(lsBox, CryptoBox.Nonce.fromBytes(nonce.bytes())), "BC afternm opens libsodium box");
+			assertArrayEquals(msg, BC.boxDecrypt(lsBox, nonce, bcDec), "BC afternm opens libsodium box");
 		}
 	}
 
@@ -327,7 +328,7 @@ public class CryptoCompatibilityTest {
 	void boxAfterNmMatches() {
 		// Direct differential coverage for the precomputed-box (afternm) SPI methods
 		// boxEncrypt(msg, nonce, CryptoBox) / boxDecrypt(cipher, nonce, CryptoBox). The public
-		// CryptoBox.encrypt/decrypt wrappers always dispatch to the default (BC) provider, so the
+		// CryptoBox.encrypt/decrypt wrappers always dispatch to the default provider, so the
 		// libsodium implementation of these two methods is only reachable by calling LS directly.
 		byte[] seedA = rb(32);
 		byte[] seedB = rb(32);
@@ -383,6 +384,63 @@ public class CryptoCompatibilityTest {
 		}
 	}
 
+	@Test
+	void boxBufferVariantsMatch() {
+		// BC serves the buffer variants from its reusable per-thread secretbox state; LS here only has
+		// the SPI default, which adapts the array methods - so this pins the one against the other,
+		// with the ranges inside larger buffers and past the first keystream block.
+		byte[] seedA = rb(32);
+		byte[] seedB = rb(32);
+		CryptoBox.PrivateKey bcSkA = boxSk(BC, seedA);
+		CryptoBox.PrivateKey bcSkB = boxSk(BC, seedB);
+		CryptoBox.PrivateKey lsSkA = boxSk(LS, seedA);
+		CryptoBox.PrivateKey lsSkB = boxSk(LS, seedB);
+		CryptoBox.Nonce nonce = BC.boxNonceFromBytes(rb(24));
+		CryptoBox.Nonce lsNonce = LS.boxNonceFromBytes(nonce.bytes());
+
+		try (CryptoBox bcEnc = BC.boxBeforeNm(BC.boxPublicKeyFromSecretKey(bcSkB), bcSkA);
+				CryptoBox bcDec = BC.boxBeforeNm(BC.boxPublicKeyFromSecretKey(bcSkA), bcSkB);
+				CryptoBox lsEnc = LS.boxBeforeNm(LS.boxPublicKeyFromSecretKey(lsSkB), lsSkA);
+				CryptoBox lsDec = LS.boxBeforeNm(LS.boxPublicKeyFromSecretKey(lsSkA), lsSkB)) {
+			for (int size : SIZES) {
+				byte[] msg = rb(size);
+				byte[] framed = new byte[7 + size + 5];
+				System.arraycopy(msg, 0, framed, 7, size);
+
+				byte[] bcOut = new byte[3 + BouncyCastleCryptoProvider.BOX_MAC_BYTES + size];
+				byte[] lsOut = new byte[3 + BouncyCastleCryptoProvider.BOX_MAC_BYTES + size];
+				assertEquals(size + BouncyCastleCryptoProvider.BOX_MAC_BYTES,
+						BC.boxEncrypt(framed, 7, size, nonce, bcEnc, bcOut, 3), "BC length size=" + size);
+				LS.boxEncrypt(framed, 7, size, lsNonce, lsEnc, lsOut, 3);
+				assertArrayEquals(lsOut, bcOut, "buffer ciphertext size=" + size);
+				assertArrayEquals(BC.boxEncrypt(msg, nonce, bcEnc),
+						Arrays.copyOfRange(bcOut, 3, bcOut.length), "buffer == array size=" + size);
+
+				byte[] bcPlain = new byte[size + 2];
+				assertEquals(size, BC.boxDecrypt(lsOut, 3, lsOut.length - 3, nonce, bcDec, bcPlain, 2), "BC open size=" + size);
+				assertArrayEquals(msg, Arrays.copyOfRange(bcPlain, 2, bcPlain.length), "BC opens LS size=" + size);
+				byte[] lsPlain = new byte[size];
+				assertEquals(size, LS.boxDecrypt(bcOut, 3, bcOut.length - 3, lsNonce, lsDec, lsPlain, 0), "LS open size=" + size);
+				assertArrayEquals(msg, lsPlain, "LS opens BC size=" + size);
+
+				// in place: the plaintext lands at the start of the ciphertext range
+				byte[] inPlace = bcOut.clone();
+				assertEquals(size, BC.boxDecrypt(inPlace, 3, inPlace.length - 3, nonce, bcDec, inPlace, 3));
+				assertArrayEquals(msg, Arrays.copyOfRange(inPlace, 3, 3 + size), "in place size=" + size);
+
+				// a failed open reports -1 and leaves the output alone
+				bcOut[bcOut.length - 1] ^= 0x01;
+				byte[] untouched = new byte[size];
+				Arrays.fill(untouched, (byte) 0x5a);
+				byte[] expected = untouched.clone();
+				assertEquals(-1, BC.boxDecrypt(bcOut, 3, bcOut.length - 3, nonce, bcDec, untouched, 0), "tampered size=" + size);
+				assertArrayEquals(expected, untouched, "tampered output size=" + size);
+			}
+
+			assertEquals(-1, BC.boxDecrypt(new byte[8], 0, 8, nonce, bcDec, new byte[0], 0), "too short");
+		}
+	}
+
 	@Test
 	void boxFromBytesRoundTrips() {
 		byte[] seedA = rb(32);
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.utils.Hex;
+
+/**
+ * The batch equation has one job: to say "all valid" exactly when every entry passes the Bouncy Castle
+ * single verification. Where the two could part ways - scalars that only agree mod L, points with a
+ * small-order component - is where these look.
+ */
+public class Ed25519BatchVerifierTests {
+	private static final CryptoProvider bc = new BouncyCastleCryptoProvider();
+
+	private static final BigInteger L = BigInteger.TWO.pow(252).add(new BigInteger("27742317777372353535851937790883648493"));
+
+	private record Entries(byte[][] messages, byte[][] signatures, byte[][] keys) {
+		static Entries of(int n, boolean sharedKey) {
+			Entries entries = new Entries(new byte[n][], new byte[n][], new byte[n][]);
+			Signature.PrivateKey shared = bc.ed25519SecretKeyFromSeed(Random.randomBytes(CryptoProvider.SIGN_SEED_BYTES));
+			for (int i = 0; i < n; i++) {
+				Signature.PrivateKey key = sharedKey ? shared : bc.ed25519SecretKeyFromSeed(Random.randomBytes(CryptoProvider.SIGN_SEED_BYTES));
+				entries.messages[i] = Random.randomBytes(i * 7);
+				entries.signatures[i] = bc.ed25519Sign(entries.messages[i], key);
+				entries.keys[i] = bc.ed25519PublicKeyFromSecretKey(key).bytes();
+			}
+			return entries;
+		}
+
+		boolean[] verifySingly() {
+			boolean[] results = new boolean[messages.length];
+			for (int i = 0; i < results.length; i++) {
+				try {
+					results[i] = bc.ed25519Verify(messages[i], signatures[i], bc.ed25519PublicKeyFromBytes(keys[i]));
+				} catch (IllegalArgumentException e) {
+					results[i] = false;
+				}
+			}
+			return results;
+		}
+
+		boolean verifyBatch() {
+			return Ed25519BatchVerifier.verify(messages, signatures, keys);
+		}
+	}
+
+	@Test
+	void acceptsValidBatches() {
+		for (boolean sharedKey : new boolean[] { true, false }) {
+			for (int n : new int[] { 1, 2, 17, 64 }) {
+				Entries entries = Entries.of(n, sharedKey);
+				assertTrue(entries.verifyBatch(), n + " entries, shared key: " + sharedKey);
+			}
+		}
+	}
+
+	@Test
+	void rejectsABatchWithOneBadEntryAndTheProviderFindsIt() {
+		for (boolean sharedKey : new boolean[] { true, false }) {
+			for (int bad = 0; bad < 8; bad++) {
+				Entries entries = Entries.of(8, sharedKey);
+				switch (bad % 4) {
+					case 0 -> entries.signatures[bad][bad] ^= 0x01;          // R
+					case 1 -> entries.signatures[bad][40] ^= 0x01;           // S
+					case 2 -> entries.messages[bad] = Random.randomBytes(9); // message
+					default -> entries.keys[bad] = Entries.of(1, false).keys[0];  // key
+				}
+
+				assertFalse(entries.verifyBatch());
+				boolean[] expected = entries.verifySingly();
+				assertFalse(expected[bad]);
+				assertArrayEquals(expected, bc.ed25519VerifyBatch(entries.messages, entries.signatures, entries.keys));
+			}
+		}
+	}
+
+	@Test
+	void rejectsAnUnreducedScalar() {
+		// S + L satisfies the equation mod L just as S does; the single check refuses S >= L, and a
+		// batch that only ever reduces its scalars would not notice.
+		Entries entries = Entries.of(2, true);
+		byte[] signature = entries.signatures[1];
+		BigInteger s = littleEndian(signature, 32).add(L);
+		byte[] unreduced = toLittleEndian(s);
+		System.arraycopy(unreduced, 0, signature, 32, 32);
+
+		assertArrayEquals(new boolean[] { true, false }, entries.verifySingly());
+		assertFalse(entries.verifyBatch());
+	}
+
+	@Test
+	void rejectsASmallOrderKey() {
+		// The neutral element as a public key, and a "signature" R = B, S = 1 that needs no secret at
+		// all: S·B - R - k·A is zero for every message. The single check rejects the key outright.
+		byte[] message = Hex.decode("deadbeef");
+		byte[] key = Hex.decode("0100000000000000000000000000000000000000000000000000000000000000");
+		byte[] signature = Hex.decode("5866666666666666666666666666666666666666666666666666666666666666" +
+				"0100000000000000000000000000000000000000000000000000000000000000");
+		assertThrows(IllegalArgumentException.class, () -> bc.ed25519PublicKeyFromBytes(key));
+
+		Entries entries = Entries.of(2, false);
+		entries.messages[1] = message;
+		entries.signatures[1] = signature;
+		entries.keys[1] = key;
+		assertFalse(entries.verifyBatch());
+		assertArrayEquals(new boolean[] { true, false }, bc.ed25519VerifyBatch(entries.messages, entries.signatures, entries.keys));
+	}
+
+	@Test
+	void rejectsANonCanonicalR() {
+		Entries entries = Entries.of(2, true);
+		byte[] signature = entries.signatures[1];
+		// y = p + 1, which reduces to the valid y = 1 but is not its canonical encoding
+		byte[] nonCanonical = Hex.decode("eeffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f");
+		System.arraycopy(nonCanonical, 0, signature, 0, 32);
+
+		assertArrayEquals(new boolean[] { true, false }, entries.verifySingly());
+		assertFalse(entries.verifyBatch());
+	}
+
+	@Test
+	void isCofactoredLikeTheSingleCheck() {
+		// R = r·B + T with T of order 8, and S = r + k·a: the cofactored equation holds, the
+		// cofactorless one does not. Bouncy Castle's single check is cofactored and accepts it, so the
+		// batch must accept it too - whatever it is batched with.
+		byte[] message = "torsion".getBytes();
+		byte[] key = Hex.decode("a2fa2f4a355ba2e907a53009e9e37caddf7ac7e66a08ba07631f553072b3f24c");
+		byte[] signature = Hex.decode("d63c01223147541df4e170763e9e2788a8bf5971f52a93c5829dbe6f5ff6bba9" +
+				"346de464bc6d320635e2a5e8f73b51a4d9c1c054ca7b991c6f393e1abea4540e");
+		assertTrue(bc.ed25519Verify(message, signature, bc.ed25519PublicKeyFromBytes(key)));
+
+		for (boolean sharedKey : new boolean[] { true, false }) {
+			Entries entries = Entries.of(3, sharedKey);
+			entries.messages[1] = message;
+			entries.signatures[1] = signature;
+			entries.keys[1] = key;
+			assertTrue(entries.verifyBatch());
+		}
+	}
+
+	@Test
+	void providerResultsMatchSingleVerification() {
+		Entries entries = Entries.of(16, true);
+		assertArrayEquals(entries.verifySingly(), bc.ed25519VerifyBatch(entries.messages, entries.signatures, entries.keys));
+		assertEquals(16, bc.ed25519VerifyBatch(entries.messages, entries.signatures, entries.keys).length);
+	}
+
+	@Test
+	void providerSinglesOutEveryBadEntry() {
+		// The halving must find the bad entries wherever they sit and however many there are: none, one
+		// at either end or inside, neighbours, a bad half, every entry.
+		int[][] patterns = { {}, { 0 }, { 32 }, { 13 }, { 5, 6 }, { 1, 17, 30 }, { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 } };
+		for (int n : new int[] { 2, 3, 16, 33 }) {
+			for (int[] bad : patterns) {
+				Entries entries = Entries.of(n, n % 2 == 0);
+				for (int i : bad) {
+					if (i < n)
+						entries.signatures[i][40] ^= 0x01;
+				}
+
+				assertArrayEquals(entries.verifySingly(), bc.ed25519VerifyBatch(entries.messages, entries.signatures, entries.keys),
+						n + " entries, bad: " + Arrays.toString(bad));
+			}
+		}
+	}
+
+	private static BigInteger littleEndian(byte[] bytes, int offset) {
+		byte[] be = new byte[32];
+		for (int i = 0; i < 32; i++)
+			be[i] = bytes[offset + 31 - i];
+		return new BigInteger(1, be);
+	}
+
+	private static byte[] toLittleEndian(BigInteger value) {
+		byte[] be = value.toByteArray();
+		byte[] le = new byte[32];
+		for (int i = 0; i < 32 && i < be.length; i++)
+			le[i] = be[be.length - 1 - i];
+		return le;
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.utils.Hex;
+
+/**
+ * Proves that the native {@link LibsodiumCryptoProvider} produces exactly what the pure-Java
+ * {@link BouncyCastleCryptoProvider} produces, primitive by primitive, so a node can switch between
+ * them - or talk to a node running the other one - without a single byte changing on the wire.
+ * Skipped when libsodium is not installed.
+ */
+public class LibsodiumCryptoProviderTests {
+	private static final CryptoProvider BC = new BouncyCastleCryptoProvider();
+	private static CryptoProvider NATIVE;
+	private static final SecureRandom RND = new SecureRandom();
+
+	// libsodium crypto_pwhash INTERACTIVE limits for Argon2id.
+	private static final long OPS = 2L;
+	private static final long MEM = 67108864L;
+
+	private static final int[] SIZES = {0, 1, 15, 16, 17, 63, 64, 65, 255, 256, 1000, 4096};
+
+	@BeforeAll
+	static void setup() {
+		assumeTrue(LibsodiumCryptoProvider.isAvailable(), "libsodium is not available");
+		NATIVE = new LibsodiumCryptoProvider();
+	}
+
+	private static byte[] rb(int n) {
+		byte[] b = new byte[n];
+		RND.nextBytes(b);
+		return b;
+	}
+
+	@Test
+	void ed25519Matches() {
+		for (int i = 0; i < 8; i++) {
+			byte[] seed = rb(32);
+			Signature.PrivateKey bcSk = BC.ed25519SecretKeyFromSeed(seed);
+			Signature.PrivateKey nSk = NATIVE.ed25519SecretKeyFromSeed(seed);
+			assertArrayEquals(bcSk.bytes(), nSk.bytes(), "secret key from seed");
+			assertArrayEquals(bcSk.seed(), nSk.seed(), "seed");
+			assertArrayEquals(bcSk.bytes(), NATIVE.ed25519SecretKeyFromBytes(bcSk.bytes()).bytes(), "secret key from bytes");
+
+			Signature.PublicKey bcPk = BC.ed25519PublicKeyFromSecretKey(bcSk);
+			Signature.PublicKey nPk = NATIVE.ed25519PublicKeyFromSecretKey(nSk);
+			assertArrayEquals(bcPk.bytes(), nPk.bytes(), "public key");
+
+			for (int size : SIZES) {
+				byte[] msg = rb(size);
+				byte[] bcSig = BC.ed25519Sign(msg, bcSk);
+				byte[] nSig = NATIVE.ed25519Sign(msg, nSk);
+				assertArrayEquals(bcSig, nSig, "signature size=" + size);
+				assertTrue(NATIVE.ed25519Verify(msg, bcSig, nPk), "native verifies BC size=" + size);
+				assertTrue(BC.ed25519Verify(msg, nSig, bcPk), "BC verifies native size=" + size);
+
+				nSig[0] ^= 0x01;
+				assertFalse(NATIVE.ed25519Verify(msg, nSig, nPk), "tampered signature size=" + size);
+			}
+		}
+	}
+
+	@Test
+	void ed25519AcceptsWhatBouncyCastleAccepts() {
+		// R = r·B + T with T of order 8: only the cofactored check accepts it. libsodium's own check is
+		// cofactorless, so the provider must settle its rejection the Bouncy Castle way.
+		byte[] message = "torsion".getBytes();
+		byte[] key = Hex.decode("a2fa2f4a355ba2e907a53009e9e37caddf7ac7e66a08ba07631f553072b3f24c");
+		byte[] signature = Hex.decode("d63c01223147541df4e170763e9e2788a8bf5971f52a93c5829dbe6f5ff6bba9" +
+				"346de464bc6d320635e2a5e8f73b51a4d9c1c054ca7b991c6f393e1abea4540e");
+		assertTrue(BC.ed25519Verify(message, signature, BC.ed25519PublicKeyFromBytes(key)));
+		assertTrue(NATIVE.ed25519Verify(message, signature, NATIVE.ed25519PublicKeyFromBytes(key)));
+
+		// The identity as key, with R = B and S = 1: the equation holds, but the key has small order.
+		// Bouncy Castle refuses it as a key already, libsodium builds it and must fail the signature.
+		byte[] identity = new byte[32];
+		identity[0] = 1;
+		byte[] trivial = new byte[64];
+		System.arraycopy(Hex.decode("5866666666666666666666666666666666666666666666666666666666666666"), 0, trivial, 0, 32);
+		trivial[32] = 1;
+		assertThrows(IllegalArgumentException.class, () -> BC.ed25519PublicKeyFromBytes(identity));
+		assertFalse(NATIVE.ed25519Verify(message, trivial, NATIVE.ed25519PublicKeyFromBytes(identity)));
+	}
+
+	@Test
+	void kdfAndConversionsMatch() {
+		byte[] master = rb(32);
+		byte[] ctx = "boson-kd".getBytes(StandardCharsets.US_ASCII);
+		for (long id : new long[] {0L, 1L, 0xFFFFFFFFL, Long.MAX_VALUE, -1L})
+			for (int len : new int[] {16, 32, 64})
+				assertArrayEquals(BC.kdfDeriveFromKey(master, id, ctx, len), NATIVE.kdfDeriveFromKey(master, id, ctx, len),
+						"kdf id=" + id + " len=" + len);
+
+		byte[] seed = rb(32);
+		Signature.PrivateKey bcSk = BC.ed25519SecretKeyFromSeed(seed);
+		Signature.PrivateKey nSk = NATIVE.ed25519SecretKeyFromSeed(seed);
+		assertArrayEquals(BC.signSecretKeyToBoxSecretKey(bcSk).bytes(), NATIVE.signSecretKeyToBoxSecretKey(nSk).bytes());
+		assertArrayEquals(BC.signPublicKeyToBoxPublicKey(BC.ed25519PublicKeyFromSecretKey(bcSk)).bytes(),
+				NATIVE.signPublicKeyToBoxPublicKey(NATIVE.ed25519PublicKeyFromSecretKey(nSk)).bytes());
+
+		assertArrayEquals(BC.boxSecretKeyFromSeed(seed).bytes(), NATIVE.boxSecretKeyFromSeed(seed).bytes());
+		assertArrayEquals(BC.boxPublicKeyFromSecretKey(BC.boxSecretKeyFromSeed(seed)).bytes(),
+				NATIVE.boxPublicKeyFromSecretKey(NATIVE.boxSecretKeyFromSeed(seed)).bytes());
+	}
+
+	@Test
+	void cryptoBoxMatches() {
+		CryptoBox.PrivateKey skA = BC.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PrivateKey skB = BC.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PublicKey pkA = BC.boxPublicKeyFromSecretKey(skA);
+		CryptoBox.PublicKey pkB = BC.boxPublicKeyFromSecretKey(skB);
+		CryptoBox.Nonce nonce = BC.boxNonceFromBytes(rb(24));
+
+		try (CryptoBox bcEnc = BC.boxBeforeNm(pkB, skA);
+			 CryptoBox nEnc = NATIVE.boxBeforeNm(pkB, skA);
+			 CryptoBox nDec = NATIVE.boxBeforeNm(pkA, skB)) {
+			assertArrayEquals(BC.boxKeyBytes(bcEnc), NATIVE.boxKeyBytes(nEnc), "beforenm shared key");
+			assertArrayEquals(NATIVE.boxKeyBytes(nEnc), NATIVE.boxKeyBytes(nDec), "shared key is symmetric");
+
+			for (int size : SIZES) {
+				byte[] msg = rb(size);
+				byte[] bcCipher = BC.boxEncrypt(msg, nonce, bcEnc);
+				assertArrayEquals(bcCipher, NATIVE.boxEncrypt(msg, nonce, nEnc), "afternm size=" + size);
+				assertArrayEquals(bcCipher, NATIVE.boxEncrypt(msg, nonce, pkB, skA), "explicit keys size=" + size);
+				assertArrayEquals(msg, NATIVE.boxDecrypt(bcCipher, nonce, nDec), "afternm open size=" + size);
+				assertArrayEquals(msg, NATIVE.boxDecrypt(bcCipher, nonce, pkA, skB), "explicit open size=" + size);
+
+				bcCipher[bcCipher.length - 1] ^= 0x01;
+				assertNull(NATIVE.boxDecrypt(bcCipher, nonce, nDec), "tampered size=" + size);
+			}
+
+			assertNull(NATIVE.boxDecrypt(new byte[BouncyCastleCryptoProvider.BOX_MAC_BYTES - 1], nonce, nDec), "too short");
+			assertThrows(IllegalStateException.class, () -> NATIVE.boxEncrypt(rb(8), nonce, bcEnc), "foreign box");
+		}
+
+		assertArrayEquals(BC.boxNonceFromBytes(new byte[24]).increment().bytes(),
+				NATIVE.boxNonceFromBytes(new byte[24]).increment().bytes(), "nonce increment");
+	}
+
+	@Test
+	void cryptoBoxRebuiltFromKeyBytes() {
+		CryptoBox.PrivateKey skA = BC.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PublicKey pkB = BC.boxPublicKeyFromSecretKey(BC.boxSecretKeyFromSeed(rb(32)));
+		CryptoBox.Nonce nonce = BC.boxNonceFromBytes(rb(24));
+		byte[] msg = rb(100);
+
+		try (CryptoBox bcEnc = BC.boxBeforeNm(pkB, skA);
+			 CryptoBox nEnc = NATIVE.boxBeforeNm(pkB, skA);
+			 CryptoBox bcCopy = BC.boxFromKeyBytes(NATIVE.boxKeyBytes(nEnc));
+			 CryptoBox nCopy = NATIVE.boxFromKeyBytes(BC.boxKeyBytes(bcEnc))) {
+			byte[] cipher = BC.boxEncrypt(msg, nonce, bcEnc);
+			assertArrayEquals(cipher, BC.boxEncrypt(msg, nonce, bcCopy));
+			assertArrayEquals(cipher, NATIVE.boxEncrypt(msg, nonce, nCopy));
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> NATIVE.boxFromKeyBytes(new byte[31]));
+		assertThrows(IllegalArgumentException.class, () -> BC.boxFromKeyBytes(new byte[33]));
+	}
+
+	@Test
+	void cryptoBoxBufferVariantsMatch() {
+		CryptoBox.PrivateKey skA = BC.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PrivateKey skB = BC.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PublicKey pkA = BC.boxPublicKeyFromSecretKey(skA);
+		CryptoBox.PublicKey pkB = BC.boxPublicKeyFromSecretKey(skB);
+		CryptoBox.Nonce nonce = BC.boxNonceFromBytes(rb(24));
+
+		try (CryptoBox bcEnc = BC.boxBeforeNm(pkB, skA);
+			 CryptoBox nEnc = NATIVE.boxBeforeNm(pkB, skA);
+			 CryptoBox nDec = NATIVE.boxBeforeNm(pkA, skB)) {
+			for (int size : SIZES) {
+				byte[] msg = rb(size);
+				byte[] framed = new byte[5 + size + 9];
+				System.arraycopy(msg, 0, framed, 5, size);
+
+				byte[] out = new byte[24 + BouncyCastleCryptoProvider.BOX_MAC_BYTES + size];
+				NATIVE.boxEncrypt(framed, 5, size, nonce, nEnc, out, 24);
+				assertArrayEquals(BC.boxEncrypt(msg, nonce, bcEnc), Arrays.copyOfRange(out, 24, out.length),
+						"buffer afternm size=" + size);
+
+				byte[] plain = new byte[size + 4];
+				assertEquals(size, NATIVE.boxDecrypt(out, 24, out.length - 24, nonce, nDec, plain, 4), "open size=" + size);
+				assertArrayEquals(msg, Arrays.copyOfRange(plain, 4, plain.length), "buffer open size=" + size);
+
+				out[out.length - 1] ^= 0x01;
+				byte[] untouched = new byte[size];
+				Arrays.fill(untouched, (byte) 0x5a);
+				byte[] expected = untouched.clone();
+				assertEquals(-1, NATIVE.boxDecrypt(out, 24, out.length - 24, nonce, nDec, untouched, 0), "tampered size=" + size);
+				assertArrayEquals(expected, untouched, "tampered output size=" + size);
+			}
+		}
+	}
+
+	@Test
+	void sealedBoxInteroperates() {
+		CryptoBox.PrivateKey sk = NATIVE.boxSecretKeyFromSeed(rb(32));
+		CryptoBox.PublicKey pk = NATIVE.boxPublicKeyFromSecretKey(sk);
+		byte[] msg = "boson sealed box".getBytes(StandardCharsets.UTF_8);
+
+		assertArrayEquals(msg, BC.boxSealOpen(NATIVE.boxSeal(msg, pk), pk, sk), "BC opens native");
+		assertArrayEquals(msg, NATIVE.boxSealOpen(BC.boxSeal(msg, pk), pk, sk), "native opens BC");
+		assertNull(NATIVE.boxSealOpen(new byte[40], pk, sk), "garbage rejected");
+	}
+
+	@Test
+	void pwHashMatches() {
+		byte[] pw = "correct horse battery staple".getBytes(StandardCharsets.UTF_8);
+		byte[] salt = rb(16);
+		for (int alg : new int[] {CryptoProvider.PWHASH_ALG_ARGON2I13, CryptoProvider.PWHASH_ALG_ARGON2ID13})
+			assertArrayEquals(BC.pwHash(pw, 32, salt, 3, 8192 * 1024, alg), NATIVE.pwHash(pw, 32, salt, 3, 8192 * 1024, alg),
+					"raw hash alg=" + alg);
+
+		String nPhc = NATIVE.pwHashString(pw, OPS, MEM, CryptoProvider.PWHASH_ALG_ARGON2ID13);
+		assertTrue(nPhc.startsWith("$argon2id$v=19$m=65536,t=2,p=1$"), nPhc);
+		assertTrue(BC.pwHashVerify(nPhc, pw), "BC verifies native");
+		String bcPhc = BC.pwHashString(pw, OPS, MEM, CryptoProvider.PWHASH_ALG_ARGON2ID13);
+		assertTrue(NATIVE.pwHashVerify(bcPhc, pw), "native verifies BC");
+		assertFalse(NATIVE.pwHashVerify(bcPhc, "wrong".getBytes(StandardCharsets.UTF_8)), "wrong password");
+		assertFalse(NATIVE.pwHashVerify("not a hash", pw), "malformed hash");
+
+		assertEquals(BC.pwHashNeedsRehash(bcPhc, OPS, MEM), NATIVE.pwHashNeedsRehash(bcPhc, OPS, MEM));
+		assertEquals(BC.pwHashNeedsRehash(bcPhc, OPS + 1, MEM), NATIVE.pwHashNeedsRehash(bcPhc, OPS + 1, MEM));
+		assertTrue(NATIVE.pwHashNeedsRehash("not a hash", OPS, MEM));
+	}
+
+	@Test
+	void secretStreamInteroperates() {
+		byte[] key = rb(CryptoProvider.SECRET_STREAM_KEY_BYTES);
+		byte[] ad = "header".getBytes(StandardCharsets.UTF_8);
+
+		for (boolean nativePush : new boolean[] {true, false}) {
+			CryptoProvider pusher = nativePush ? NATIVE : BC;
+			CryptoProvider puller = nativePush ? BC : NATIVE;
+
+			CryptoProvider.SecretStreamState push = pusher.secretStreamInitPush(key);
+			CryptoProvider.SecretStreamState pull = puller.secretStreamInitPull(push.header(), key);
+			for (int i = 0; i < SIZES.length; i++) {
+				byte[] msg = rb(SIZES[i]);
+				boolean last = i == SIZES.length - 1;
+				byte[] additional = i % 2 == 0 ? ad : null;
+				byte[] cipher = push.push(msg, additional, last);
+				assertEquals(msg.length + CryptoProvider.SECRET_STREAM_ABYTES, cipher.length);
+				assertArrayEquals(msg, pull.pull(cipher, additional), "block " + i + " native push=" + nativePush);
+			}
+			assertTrue(push.isComplete());
+			assertTrue(pull.isComplete());
+			push.destroy();
+			pull.destroy();
+			assertTrue(push.isDestroyed());
+		}
+
+		CryptoProvider.SecretStreamState push = NATIVE.secretStreamInitPush(key);
+		CryptoProvider.SecretStreamState pull = NATIVE.secretStreamInitPull(push.header(), key);
+		byte[] cipher = push.push(rb(32), null, false);
+		cipher[5] ^= 0x01;
+		assertThrows(IllegalStateException.class, () -> pull.pull(cipher, null), "tampered block");
+	}
+
+	@Test
+	void keysAreWipedOnDestroy() {
+		Signature.PrivateKey sk = NATIVE.ed25519SecretKeyFromSeed(rb(32));
+		Signature.PrivateKey copy = BC.ed25519SecretKeyFromBytes(sk.bytes());
+		assertTrue(sk.equals(copy), "equal across providers");
+		sk.destroy();
+		assertTrue(sk.isDestroyed());
+		assertThrows(IllegalStateException.class, sk::bytes);
+		assertFalse(sk.equals(copy));
+
+		CryptoBox box = NATIVE.boxBeforeNm(NATIVE.boxPublicKeyFromSecretKey(NATIVE.boxSecretKeyFromSeed(rb(32))),
+				NATIVE.boxSecretKeyFromSeed(rb(32)));
+		box.close();
+		assertTrue(box.isDestroyed());
+		assertThrows(IllegalStateException.class, () -> NATIVE.boxKeyBytes(box));
+	}
+
+	@Test
+	void providersAreSelectedByName() {
+		CryptoProvider saved = CryptoProviders.getDefault();
+		try {
+			assertEquals("libsodium", CryptoProviders.available().get(0).name(), "native is preferred");
+
+			// auto keeps whatever is active, it does not re-resolve to the preferred provider
+			CryptoProviders.setDefault(BC);
+			assertSame(BC, CryptoProviders.select(CryptoProviders.AUTO));
+			assertSame(BC, CryptoProviders.getDefault());
+
+			// the first choice may switch the provider
+			CryptoProviders.setDefault(BC);
+			assertEquals("libsodium", CryptoProviders.select("libsodium").name());
+
+			// selecting the active provider keeps the instance, so existing boxes stay usable
+			CryptoProvider active = CryptoProviders.getDefault();
+			assertSame(active, CryptoProviders.select("LIBSODIUM"));
+			assertSame(active, CryptoProviders.select(CryptoProviders.AUTO));
+
+			// once chosen, the provider cannot be pulled from under the boxes already built
+			assertThrows(IllegalStateException.class, () -> CryptoProviders.select("bc"));
+			assertThrows(IllegalArgumentException.class, () -> CryptoProviders.select("openssl"));
+			assertSame(active, CryptoProviders.getDefault());
+		} finally {
+			CryptoProviders.setDefault(saved);
+		}
+	}
+}
@@ -99,6 +99,77 @@ public class SignatureTests {
 		assertTrue(result);
 	}
 
+	@Test
+	public void checkVerifyCached() {
+		var kp = Signature.KeyPair.random();
+		byte[] m = Hex.decode("deadbeef");
+		byte[] s = kp.privateKey().sign(m);
+		byte[] forged = s.clone();
+		forged[0] ^= 0x01;
+
+		for (int i = 0; i < 2; i++) { // the second round is answered from the cache, if enabled
+			assertTrue(Signature.verifyCached(m, s, kp.publicKey().bytes()));
+			assertFalse(Signature.verifyCached(m, forged, kp.publicKey().bytes()));
+		}
+		assertFalse(Signature.verifyCached(m, Arrays.copyOf(s, 10), kp.publicKey().bytes()));
+		assertFalse(Signature.verifyCached(m, s, new byte[10]));
+		assertFalse(Signature.verifyCached(m, s, Signature.KeyPair.random().publicKey().bytes()));
+	}
+
+	@Test
+	public void checkBatchVerify() {
+		var kp1 = Signature.KeyPair.random();
+		var kp2 = Signature.KeyPair.random();
+		byte[] m1 = Hex.decode("deadbeef");
+		byte[] m2 = Hex.decode("cafebabe");
+		byte[] s1 = kp1.privateKey().sign(m1);
+		byte[] s2 = kp2.privateKey().sign(m2);
+
+		var batch = new Signature.Batch();
+		assertTrue(batch.verifyAll());
+		assertEquals(0, batch.verify().length);
+
+		assertEquals(0, batch.add(m1, s1, kp1.publicKey()));
+		assertEquals(1, batch.add(m2, s2, kp2.publicKey().bytes()));
+		assertEquals(2, batch.add(m1.clone(), s1.clone(), kp1.publicKey().bytes())); // duplicate
+		assertEquals(3, batch.size());
+		assertTrue(batch.verifyAll());
+		assertArrayEquals(new boolean[] { true, true, true }, batch.verify());
+
+		byte[] forged = s2.clone();
+		forged[0] ^= 0x01;
+		batch.add(m2, forged, kp2.publicKey());         // bad signature
+		batch.add(m1, s1, kp2.publicKey());             // wrong key
+		batch.add(m1, Arrays.copyOf(s1, 10), kp1.publicKey()); // wrong length
+		batch.add(m1, s1, new byte[10]);                // wrong key length
+		assertFalse(batch.verifyAll());
+		assertArrayEquals(new boolean[] { true, true, true, false, false, false, false }, batch.verify());
+	}
+
+	@Test
+	public void checkBatchVerifyWithUndecodableKey() {
+		// Roughly half of all 32-byte strings are not the encoding of a curve point. Found with the
+		// Bouncy Castle provider, which rejects one when decoding; the native one only fails to verify.
+		CryptoProvider bc = new BouncyCastleCryptoProvider();
+		byte[] bad;
+		do {
+			bad = Random.randomBytes(Signature.PublicKey.BYTES);
+			try {
+				bc.ed25519PublicKeyFromBytes(bad);
+				bad = null;
+			} catch (IllegalArgumentException expected) {
+				// found one
+			}
+		} while (bad == null);
+
+		var kp = Signature.KeyPair.random();
+		byte[] m = Hex.decode("deadbeef");
+		var batch = new Signature.Batch();
+		batch.add(m, kp.privateKey().sign(m), kp.publicKey());
+		batch.add(m, kp.privateKey().sign(m), bad);
+		assertArrayEquals(new boolean[] { true, false }, batch.verify());
+	}
+
 	@Test
 	public void testDestroy() {
 		var keyPair = Signature.KeyPair.random();
@@ -433,6 +433,27 @@ public class SodiumCryptoProvider implements CryptoProvider {
 		}
 	}
 
+	@Override
+	public CryptoBox boxFromKeyBytes(byte[] sharedKey) {
+		if (sharedKey.length != BOX_SHARED_KEY_BYTES)
+			throw new IllegalArgumentException("Invalid shared key length: " + sharedKey.length);
+
+		// Nor can a Box be built from key bytes: precompute one from a throwaway key pair, then
+		// overwrite its shared key in place through the same private 'ctx' pointer.
+		Box.KeyPair keyPair = Box.KeyPair.random();
+		Box sodiumBox = Box.forKeys(keyPair.publicKey(), keyPair.secretKey());
+		try {
+			Field ctxField = Box.class.getDeclaredField("ctx");
+			ctxField.setAccessible(true);
+			Pointer ctx = (Pointer) ctxField.get(sodiumBox);
+			ctx.put(0, sharedKey, 0, sharedKey.length);
+			return new SodiumCryptoBox(sodiumBox);
+		} catch (Exception e) {
+			sodiumBox.close();
+			throw new IllegalStateException("Failed to rebuild CryptoBox from key bytes", e);
+		}
+	}
+
 	@Override
 	public byte[] boxEncrypt(byte[] message, CryptoBox.Nonce nonce, CryptoBox box) {
 		return boxOf(box).encrypt(message, nonceOf(nonce));
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.Identity;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+
+public class VerifiedSignaturesTests {
+	@BeforeEach
+	void setup() {
+		assumeTrue(VerifiedSignatures.isEnabled(), "verified signature cache is disabled");
+		VerifiedSignatures.clear();
+	}
+
+	@Test
+	void remembersSuccessesOnly() {
+		var kp = Signature.KeyPair.random();
+		byte[] message = Random.randomBytes(64);
+		byte[] signature = kp.privateKey().sign(message);
+		byte[] forged = signature.clone();
+		forged[5] ^= 0x01;
+
+		var good = VerifiedSignatures.key(kp.publicKey().bytes(), message, signature);
+		var bad = VerifiedSignatures.key(kp.publicKey().bytes(), message, forged);
+		assertFalse(VerifiedSignatures.contains(good));
+
+		var batch = new Signature.Batch();
+		batch.add(message, signature, kp.publicKey());
+		batch.add(message, forged, kp.publicKey());
+		assertArrayEquals(new boolean[] { true, false }, batch.verify());
+		assertTrue(VerifiedSignatures.contains(good));
+		assertFalse(VerifiedSignatures.contains(bad));
+
+		// answered from the cache the second time, with the same results
+		assertArrayEquals(new boolean[] { true, false }, batch.verify());
+
+		VerifiedSignatures.clear();
+		assertFalse(VerifiedSignatures.contains(good));
+	}
+
+	@Test
+	void keyBindsEveryPart() {
+		var kp = Signature.KeyPair.random();
+		var other = Signature.KeyPair.random();
+		byte[] message = Random.randomBytes(32);
+		byte[] signature = kp.privateKey().sign(message);
+		var key = VerifiedSignatures.key(kp.publicKey().bytes(), message, signature);
+
+		byte[] otherMessage = message.clone();
+		otherMessage[0] ^= 0x01;
+		assertNotEquals(key, VerifiedSignatures.key(other.publicKey().bytes(), message, signature));
+		assertNotEquals(key, VerifiedSignatures.key(kp.publicKey().bytes(), otherMessage, signature));
+
+		// a remembered success does not vouch for the same signature over another message
+		var batch = new Signature.Batch();
+		batch.add(message, signature, kp.publicKey());
+		assertTrue(batch.verifyAll());
+		var replayed = new Signature.Batch();
+		replayed.add(otherMessage, signature, kp.publicKey());
+		assertFalse(replayed.verifyAll());
+		replayed = new Signature.Batch();
+		replayed.add(message, signature, other.publicKey());
+		assertFalse(replayed.verifyAll());
+	}
+
+	@Test
+	void recordsAreVerifiedOnce() {
+		Identity owner = new CryptoIdentity();
+		Identity node = new CryptoIdentity();
+		PeerInfo peer = PeerInfo.builder().identity(owner).node(node).endpoint("tcp://203.0.113.126:5678").build();
+		Value value = Value.signedBuilder().data(Random.randomBytes(48)).build();
+		VerifiedSignatures.clear();
+
+		assertTrue(peer.isValid());
+		assertEquals(2, VerifiedSignatures.size()); // node and peer signature
+		assertTrue(value.isValid());
+		assertEquals(3, VerifiedSignatures.size());
+
+		// Same records, same answers, nothing new to remember.
+		assertTrue(peer.isValid());
+		assertTrue(PeerInfo.isValid(List.of(peer, peer)));
+		assertTrue(value.isValid());
+		assertEquals(3, VerifiedSignatures.size());
+	}
+}
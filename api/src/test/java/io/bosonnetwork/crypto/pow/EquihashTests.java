@@ -1,7 +1,9 @@
 package io.bosonnetwork.crypto.pow;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -56,6 +58,21 @@ public class EquihashTests {
 		}
 	}
 
+	@Test
+	void solveIsDeterministic() {
+		Puzzle puzzle = solvablePuzzle();
+
+		List<int[]> again = Equihash.solve(puzzle.input(), N, K);
+		assertEquals(puzzle.solutions().size(), again.size());
+		for (int i = 0; i < again.size(); i++)
+			assertArrayEquals(puzzle.solutions().get(i), again.get(i));
+	}
+
+	@Test
+	void abandonedSolveStopsEarly() {
+		assertNull(Equihash.solve(Random.randomBytesSecure(104), N, K, () -> true));
+	}
+
 	@Test
 	void tamperedSolutionFailsVerification() {
 		Puzzle puzzle = solvablePuzzle();
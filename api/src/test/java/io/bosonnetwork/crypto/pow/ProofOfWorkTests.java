@@ -1,10 +1,18 @@
 package io.bosonnetwork.crypto.pow;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.Test;
 
 import io.bosonnetwork.crypto.Random;
@@ -83,4 +91,60 @@ public class ProofOfWorkTests {
 		assertTrue(ProofOfWork.meetsEffort(
 				ProofOfWork.effortHash(seed, sol.powNonce(), sol.indices()), effort));
 	}
+
+	@Test
+	void parallelSolveFindsTheSameNonce() {
+		byte[] seed = ProofOfWork.seed(Random.randomBytesSecure(32),
+				Random.randomBytesSecure(32), Random.randomBytesSecure(32));
+
+		int effort = 4;
+		ProofOfWork.Solution sequential = ProofOfWork.solve(seed, N, K, effort, 4096, 1);
+		ProofOfWork.Solution parallel = ProofOfWork.solve(seed, N, K, effort, 4096, 4);
+		assertNotNull(sequential);
+		assertNotNull(parallel);
+		assertEquals(sequential.powNonce(), parallel.powNonce());
+		assertArrayEquals(sequential.indices(), parallel.indices());
+	}
+
+	@Test
+	void parallelSolveHonoursNonceBudget() {
+		byte[] seed = ProofOfWork.seed(Random.randomBytesSecure(32),
+				Random.randomBytesSecure(32), Random.randomBytesSecure(32));
+
+		// An effort no 48-bit puzzle will meet in a handful of nonces.
+		assertNull(ProofOfWork.solve(seed, N, K, 64, 16, 4));
+	}
+
+	@Test
+	void parallelSolveRejectsBadParallelism() {
+		byte[] seed = ProofOfWork.seed(Random.randomBytesSecure(32),
+				Random.randomBytesSecure(32), Random.randomBytesSecure(32));
+
+		assertThrows(IllegalArgumentException.class, () -> ProofOfWork.solve(seed, N, K, 0, 16, 0));
+	}
+
+	@Test
+	void parallelSolveIsCancelledByInterrupt() throws Exception {
+		byte[] seed = ProofOfWork.seed(Random.randomBytesSecure(32),
+				Random.randomBytesSecure(32), Random.randomBytesSecure(32));
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Thread solver = new Thread(() -> {
+			try {
+				ProofOfWork.solve(seed, N, K, 64, Long.MAX_VALUE, 2);
+			} catch (Throwable t) {
+				failure.set(t);
+				interrupted.set(Thread.currentThread().isInterrupted());
+			}
+		});
+		solver.start();
+		Thread.sleep(200);
+		solver.interrupt();
+		solver.join(10_000);
+
+		assertFalse(solver.isAlive());
+		assertInstanceOf(CancellationException.class, failure.get());
+		assertTrue(interrupted.get());
+	}
 }
@@ -1,5 +1,6 @@
 package io.bosonnetwork.crypto.pow;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -56,4 +57,20 @@ public class RegistrationPowClientTests {
 				challengeNonce, r.powNonce(), effort);
 		assertTrue(deviceKey.publicKey().verify(deviceMsg, deviceSig));
 	}
+
+	@Test
+	void solveResultDoesNotDependOnParallelism() {
+		byte[] superNodeId = Signature.KeyPair.random().publicKey().bytes();
+		Signature.KeyPair userKey = Signature.KeyPair.random();
+		byte[] challengeNonce = Random.randomBytesSecure(PowChallenge.NONCE_BYTES);
+		int effort = 3;
+
+		RegistrationPowClient.Result single = RegistrationPowClient.solve(superNodeId, userKey, N, K,
+				effort, challengeNonce, 4096, 1);
+		RegistrationPowClient.Result multi = RegistrationPowClient.solve(superNodeId, userKey, N, K,
+				effort, challengeNonce, 4096, 3);
+
+		assertArrayEquals(single.powNonce(), multi.powNonce());
+		assertArrayEquals(single.solution(), multi.solution());
+	}
 }
@@ -1,12 +1,15 @@
 package io.bosonnetwork.vertx;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.vertx.core.Context;
 import io.vertx.core.Future;
@@ -270,4 +273,63 @@ public class ContextualFutureTests {
 			context.verify(() -> assertEquals("Foo bar", completedFuture.join()));
 		});
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testCancel() {
+		Promise<String> source = Promise.promise();
+		AtomicInteger cancelled = new AtomicInteger();
+		ContextualFuture<String> future = ContextualFuture.cancellable(source.future(), cancelled::incrementAndGet);
+
+		assertFalse(future.isCancelled());
+		assertTrue(future.cancel(false));
+		assertTrue(future.isCancelled());
+		assertTrue(future.isDone());
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(1, cancelled.get());
+
+		// A second cancel still reports the cancelled state, but tells the producer only once.
+		assertTrue(future.cancel(true));
+		assertEquals(1, cancelled.get());
+
+		assertThrows(CancellationException.class, future::get);
+		assertThrows(CancellationException.class, future::join);
+
+		// The producer is not the one that was cancelled: it may still complete its own promise.
+		assertTrue(source.tryComplete("late"));
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	void testCancelAfterCompletion() throws Exception {
+		AtomicInteger cancelled = new AtomicInteger();
+		ContextualFuture<String> future = ContextualFuture.cancellable(Future.succeededFuture("Foo bar"),
+				cancelled::incrementAndGet);
+
+		assertFalse(future.cancel(false));
+		assertFalse(future.isCancelled());
+		assertEquals("Foo bar", future.get());
+		assertEquals(0, cancelled.get());
+
+		// Not created by cancellable(): the future is controlled elsewhere and cannot be cancelled from here.
+		Promise<String> promise = Promise.promise();
+		ContextualFuture<String> mapped = ContextualFuture.of(promise.future().map(String::trim));
+		assertFalse(mapped.cancel(false));
+		assertFalse(mapped.isDone());
+	}
+
+	@Test
+	void testCancelLeavesTheProducersPromiseAlone() throws Exception {
+		// promise.future() is the promise itself in Vert.x 5; cancelling a plain wrapper must not settle it
+		Promise<String> promise = Promise.promise();
+		ContextualFuture<String> future = ContextualFuture.of(promise.future());
+
+		assertFalse(future.cancel(true));
+		assertFalse(future.isCancelled());
+		assertFalse(future.isDone());
+
+		// The producer completes as it always has, without an IllegalStateException
+		promise.complete("Foo bar");
+		assertEquals("Foo bar", future.get());
+		assertFalse(future.cancel(false));
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.vertx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+import io.bosonnetwork.crypto.SecretStream;
+
+/**
+ * Tests for {@link SecretStreamWriteStream} and {@link SecretStreamReadStream}, mostly through
+ * {@code pipeTo} between the in-memory streams, with chunk sizes chosen so that neither side's chunks
+ * line up with the records.
+ */
+@ExtendWith(VertxExtension.class)
+public class SecretStreamPipeTest {
+	private static final int RECORD_SIZE = 4096;
+
+	private static byte[] randomBytes(int n) {
+		byte[] b = new byte[n];
+		new Random(n).nextBytes(b);
+		return b;
+	}
+
+	private static byte[] key() {
+		return randomBytes(SecretStream.KEY_BYTES);
+	}
+
+	private static Future<Buffer> encrypt(byte[] key, byte[] plain) {
+		BufferWriteStream sink = new BufferWriteStream();
+		return new BufferReadStream(Buffer.buffer(plain), 0, plain.length, 7000)
+				.pipeTo(new SecretStreamWriteStream(sink, key, RECORD_SIZE))
+				.compose(v -> sink.getBuffer());
+	}
+
+	private static Future<Buffer> decrypt(byte[] key, Buffer cipher) {
+		BufferWriteStream sink = new BufferWriteStream();
+		return new SecretStreamReadStream(new BufferReadStream(cipher, 0, cipher.length(), 333), key)
+				.pipeTo(sink)
+				.compose(v -> sink.getBuffer());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, RECORD_SIZE - 1, RECORD_SIZE, RECORD_SIZE * 3, 1024 * 1024 + 123 })
+	void roundTrip(int size, Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		byte[] plain = randomBytes(size);
+
+		vertx.runOnContext(v -> encrypt(key, plain)
+				.compose(cipher -> {
+					tc.verify(() -> {
+						// header, then one length prefix and one tag per record - plus an empty final
+						// record when the plaintext ends on a record boundary.
+						int records = size / RECORD_SIZE + 1;
+						assertEquals(SecretStream.HEADER_BYTES + size + records * (Integer.BYTES + SecretStream.ABYTES),
+								cipher.length());
+					});
+					return decrypt(key, cipher);
+				})
+				.onComplete(tc.succeeding(decrypted -> tc.verify(() -> {
+					assertArrayEquals(plain, decrypted.getBytes());
+					tc.completeNow();
+				}))));
+	}
+
+	private void assertDecryptFails(Vertx vertx, VertxTestContext tc, byte[] key, Buffer cipher, String message) {
+		vertx.runOnContext(v -> {
+			Promise<Throwable> failed = Promise.promise();
+			SecretStreamReadStream in = new SecretStreamReadStream(new BufferReadStream(cipher, 0, cipher.length(), 333), key);
+			in.exceptionHandler(failed::tryComplete);
+			in.endHandler(x -> tc.failNow("stream must not end normally"));
+			in.handler(chunk -> {});
+			failed.future().onComplete(tc.succeeding(t -> tc.verify(() -> {
+				assertInstanceOf(IllegalStateException.class, t);
+				assertTrue(t.getMessage().contains(message), t.getMessage());
+				tc.completeNow();
+			})));
+		});
+	}
+
+	@Test
+	void truncatedStreamIsReported(Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		vertx.runOnContext(v -> encrypt(key, randomBytes(RECORD_SIZE * 2 + 10)).onComplete(tc.succeeding(cipher ->
+				// Cut cleanly after the second record: every record that arrives authenticates, but the
+				// final one never does.
+				assertDecryptFails(vertx, tc, key,
+						cipher.getBuffer(0, SecretStream.HEADER_BYTES + 2 * (Integer.BYTES + RECORD_SIZE + SecretStream.ABYTES)),
+						"truncated"))));
+	}
+
+	@Test
+	void tamperedRecordIsReported(Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		vertx.runOnContext(v -> encrypt(key, randomBytes(RECORD_SIZE + 10)).onComplete(tc.succeeding(cipher -> {
+			int at = SecretStream.HEADER_BYTES + Integer.BYTES + 100;
+			cipher.setByte(at, (byte) (cipher.getByte(at) ^ 1));
+			assertDecryptFails(vertx, tc, key, cipher, "");
+		})));
+	}
+
+	@Test
+	void trailingDataIsReported(Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		vertx.runOnContext(v -> encrypt(key, randomBytes(100)).onComplete(tc.succeeding(cipher ->
+				assertDecryptFails(vertx, tc, key, cipher.copy().appendBytes(new byte[8]), "after the final record"))));
+	}
+
+	@Test
+	void oversizedRecordIsRejectedBeforeBuffering(Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		vertx.runOnContext(v -> encrypt(key, randomBytes(100)).onComplete(tc.succeeding(cipher -> {
+			// Claim a record far larger than the reader allows; only the prefix has to arrive to refuse it.
+			Buffer forged = cipher.getBuffer(0, SecretStream.HEADER_BYTES).appendInt(Integer.MAX_VALUE);
+			assertDecryptFails(vertx, tc, key, forged, "Invalid record length");
+		})));
+	}
+
+	@Test
+	void fetchDeliversOneRecordAtATime(Vertx vertx, VertxTestContext tc) {
+		byte[] key = key();
+		byte[] plain = randomBytes(RECORD_SIZE * 3);
+
+		vertx.runOnContext(v -> encrypt(key, plain).onComplete(tc.succeeding(cipher -> {
+			List<Buffer> received = new ArrayList<>();
+			SecretStreamReadStream in = new SecretStreamReadStream(
+					new BufferReadStream(cipher, 0, cipher.length(), cipher.length()), key);
+			in.exceptionHandler(tc::failNow);
+			in.pause();
+			in.handler(received::add);
+			in.endHandler(x -> tc.verify(() -> {
+				assertEquals(3, received.size());
+				Buffer all = Buffer.buffer();
+				received.forEach(all::appendBuffer);
+				assertArrayEquals(plain, all.getBytes());
+				tc.completeNow();
+			}));
+
+			// The whole ciphertext arrives in one chunk, so any record beyond the demand would show here.
+			vertx.setTimer(50, t1 -> {
+				tc.verify(() -> assertEquals(0, received.size()));
+				in.fetch(1);
+				vertx.setTimer(50, t2 -> {
+					tc.verify(() -> assertEquals(1, received.size()));
+					in.resume();
+				});
+			});
+		})));
+	}
+
+	@Test
+	void validatesArguments(Vertx vertx, VertxTestContext tc) {
+		vertx.runOnContext(v -> tc.verify(() -> {
+			BufferWriteStream sink = new BufferWriteStream();
+			BufferReadStream source = new BufferReadStream(Buffer.buffer(new byte[4]));
+			assertThrows(NullPointerException.class, () -> new SecretStreamWriteStream(null, key()));
+			assertThrows(IllegalArgumentException.class, () -> new SecretStreamWriteStream(sink, new byte[3]));
+			assertThrows(IllegalArgumentException.class, () -> new SecretStreamWriteStream(sink, key(), 0));
+			assertThrows(IllegalArgumentException.class,
+					() -> new SecretStreamWriteStream(sink, key(), SecretStreamWriteStream.MAX_RECORD_SIZE + 1));
+			assertThrows(IllegalArgumentException.class, () -> new SecretStreamReadStream(source, new byte[3]));
+			assertThrows(IllegalArgumentException.class, () -> new SecretStreamReadStream(source, key(), 0));
+			tc.completeNow();
+		}));
+	}
+}
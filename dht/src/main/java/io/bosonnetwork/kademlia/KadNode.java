@@ -5,10 +5,12 @@ import java.io.PrintStream;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.net.StandardProtocolFamily;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -18,13 +20,21 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.micrometer.backends.BackendRegistries;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
@@ -45,16 +55,31 @@ import io.bosonnetwork.Value;
 import io.bosonnetwork.Version;
 import io.bosonnetwork.crypto.CachedCryptoIdentity;
 import io.bosonnetwork.crypto.CryptoException;
+import io.bosonnetwork.crypto.CryptoProvider;
+import io.bosonnetwork.crypto.CryptoProviders;
 import io.bosonnetwork.kademlia.impl.DHT;
 import io.bosonnetwork.kademlia.impl.DHTConnectionStatusListener;
 import io.bosonnetwork.kademlia.impl.KadConstants;
 import io.bosonnetwork.kademlia.impl.Network;
 import io.bosonnetwork.kademlia.impl.TokenManager;
+import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.metrics.MicrometerDHTMetrics;
+import io.bosonnetwork.kademlia.metrics.MicrometerRoutingMetrics;
+import io.bosonnetwork.kademlia.metrics.MicrometerStorageMetrics;
+import io.bosonnetwork.kademlia.metrics.RoutingMetrics;
+import io.bosonnetwork.kademlia.metrics.StorageMetrics;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
+import io.bosonnetwork.kademlia.routing.RoutingTableStats;
+import io.bosonnetwork.kademlia.rpc.PacketBudget;
+import io.bosonnetwork.kademlia.rpc.RpcServer;
 import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.kademlia.security.FileBlacklist;
 import io.bosonnetwork.kademlia.storage.DataStorage;
+import io.bosonnetwork.kademlia.storage.StorageSnapshot;
+import io.bosonnetwork.kademlia.tasks.DualStackLookup;
 import io.bosonnetwork.kademlia.tasks.EligiblePeers;
 import io.bosonnetwork.kademlia.tasks.EligibleValue;
+import io.bosonnetwork.kademlia.tasks.LookupTracer;
 import io.bosonnetwork.utils.AddressUtils;
 import io.bosonnetwork.utils.Variable;
 import io.bosonnetwork.vertx.BosonVerticle;
@@ -67,7 +92,9 @@ public class KadNode extends BosonVerticle implements Node {
 	// in the version field, so they belong to this class rather than to KadConstants.
 	public static final String NAME = "Orca";
 	public static final String SHORT_NAME = "OR";
-	public static final int VERSION_NUMBER = 1;
+	// 2: accepts AEAD-framed messages (see CipherSuite). Peers read the bump as the capability flag,
+	// so it moves only with a wire-visible change.
+	public static final int VERSION_NUMBER = 2;
 	public static final int VERSION = Version.build(SHORT_NAME, VERSION_NUMBER);
 
 	private final NodeConfiguration config;
@@ -83,11 +110,30 @@ public class KadNode extends BosonVerticle implements Node {
 	private volatile @Nullable DHT dht6;
 
 	private LookupOption defaultLookupOption;
+	// Whether the lookups of a dual-stack node share their decisions across the two families, see
+	// setDualStackLookup. Read on the node's context when a lookup starts.
+	private volatile boolean dualStackLookup;
+	// Shared by both DHTs, so the traces of either family are read from one place. Samples nothing until
+	// a rate is set.
+	private final LookupTracer lookupTracer;
 
 	private  @Nullable Blacklist blacklist;
 
 	private TokenManager tokenManager;
 	private DataStorage storage;
+	private StorageMetrics storageMetrics;
+	private @Nullable RoutingMetrics routingMetrics4;
+	private @Nullable RoutingMetrics routingMetrics6;
+	private @Nullable DHTMetrics dhtMetrics4;
+	private @Nullable DHTMetrics dhtMetrics6;
+
+	// Where setPrometheusEndpoint asked the scrape endpoint to listen, read at deployment. The server and,
+	// when Vert.x publishes to no Prometheus registry, the registry the node keeps for it, are confined
+	// to the node's context like the rest of the deployment.
+	private volatile @Nullable InetSocketAddress prometheusEndpoint;
+	private volatile int prometheusPort = -1;
+	private @Nullable HttpServer prometheusServer;
+	private @Nullable PrometheusMeterRegistry ownPrometheusRegistry;
 
 	private final List<Long> timers;
 
@@ -115,6 +161,16 @@ public class KadNode extends BosonVerticle implements Node {
 
 	private static final Logger log = LoggerFactory.getLogger(KadNode.class);
 
+	// Names of the routing table attachments in storage snapshots.
+	private static final String SNAPSHOT_ROUTING_TABLE_4 = "routingtable4";
+	private static final String SNAPSHOT_ROUTING_TABLE_6 = "routingtable6";
+
+	// The encrypted crypto context cache in the data directory, see persistCryptoContexts.
+	private static final String CRYPTO_CONTEXTS_FILE = "crypto.cache";
+
+	// The operator's blacklist in the data directory, followed while the node runs, see openBlacklist.
+	private static final String BLACKLIST_FILE = "blacklist.yaml";
+
 	public KadNode(NodeConfiguration config) {
 		Objects.requireNonNull(config, "Configuration can not be null");
 		try {
@@ -124,6 +180,18 @@ public class KadNode extends BosonVerticle implements Node {
 			throw new IllegalArgumentException("Invalid configuration", e);
 		}
 
+		// Before the identity: the encryption contexts it caches belong to the provider that built them.
+		// The provider is process-wide, so a node that names one other than the provider already in
+		// use - pinned by the system property, or chosen by an earlier node - is refused rather than
+		// switching it under the boxes of that node.
+		try {
+			CryptoProvider crypto = CryptoProviders.select(config.cryptoProvider());
+			log.info("Crypto provider: {}", crypto.name());
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			log.error("Invalid configuration: {}", e.getMessage(), e);
+			throw new IllegalArgumentException("Invalid configuration", e);
+		}
+
 		this.identity = new CachedCryptoIdentity(config.keyPair(), null);
 		this.config = config;
 
@@ -181,6 +249,7 @@ public class KadNode extends BosonVerticle implements Node {
 
 		this.defaultLookupOption = LookupOption.CONSERVATIVE;
 		this.connectionStatusListener = new ListenerProxy();
+		this.lookupTracer = new LookupTracer();
 		this.running = false;
 
 		this.timers = new ArrayList<>(4);
@@ -323,6 +392,83 @@ public class KadNode extends BosonVerticle implements Node {
 		return defaultLookupOption;
 	}
 
+	/**
+	 * Makes the findNode, findValue and findPeer lookups of a dual-stack node share one set of
+	 * decisions across the IPv4 and IPv6 DHTs.
+	 * <p>
+	 * By default the two families look up independently: each asks the closest nodes its own routing
+	 * table knows of, and a node reachable on both is asked twice, once per socket. With this enabled a
+	 * node is asked by whichever family reaches it first, its answer counts for both, every request
+	 * asks for both families' nodes, and the half of an answer that belongs to the other family is
+	 * handed to it - see {@link io.bosonnetwork.kademlia.tasks.DualStackLookup}. Announces keep looking
+	 * up per family, since a node asked by the sibling has handed out no write token to this one.
+	 * </p>
+	 *
+	 * <p>
+	 * Off by default. Has no effect on a node running a single family, and applies to lookups started
+	 * after the call.
+	 * </p>
+	 *
+	 * @param enabled {@code true} to share lookups across the two families.
+	 */
+	public void setDualStackLookup(boolean enabled) {
+		this.dualStackLookup = enabled;
+	}
+
+	/**
+	 * Whether the lookups of a dual-stack node share their decisions across the two families.
+	 *
+	 * @return {@code true} if enabled, see {@link #setDualStackLookup(boolean)}.
+	 */
+	public boolean isDualStackLookup() {
+		return dualStackLookup;
+	}
+
+	/**
+	 * Sets where this node serves its metrics for Prometheus to scrape, as {@code GET /metrics} in the
+	 * Prometheus text format.
+	 * <p>
+	 * The endpoint serves the Prometheus registry Vert.x publishes to, when the Vert.x instance was
+	 * created with Micrometer Prometheus options - its own meters and the node's together. Otherwise the
+	 * node keeps a Prometheus registry of its own and publishes its meters there rather than to whatever
+	 * Vert.x was given, so that asking for an endpoint is enough to get one. Scraping runs on a worker
+	 * thread: rendering a registry with per-method latency histograms for two families is not work for
+	 * an event loop.
+	 * </p>
+	 * <p>
+	 * Off by default. Applies from the next start.
+	 * </p>
+	 *
+	 * @param endpoint the address to listen on, port 0 for any free port, or null for no endpoint.
+	 */
+	public void setPrometheusEndpoint(@Nullable InetSocketAddress endpoint) {
+		this.prometheusEndpoint = endpoint;
+	}
+
+	/**
+	 * Returns the port the Prometheus scrape endpoint is listening on.
+	 *
+	 * @return the bound port, or -1 when the endpoint is not running.
+	 */
+	public int getPrometheusPort() {
+		return prometheusPort;
+	}
+
+	/**
+	 * Returns the tracer this node's lookups are sampled into.
+	 * <p>
+	 * Off until {@link LookupTracer#setSampleRate(double)} is given a rate above zero; from then on that
+	 * share of the lookups started on either family records every call it makes - the candidate, its
+	 * distance to the target, the round trip, the outcome and how many new candidates the answer brought
+	 * - and the most recent traces are kept for reading or {@linkplain LookupTracer#export exporting}.
+	 * </p>
+	 *
+	 * @return the lookup tracer, never null.
+	 */
+	public LookupTracer getLookupTracer() {
+		return lookupTracer;
+	}
+
 	/**
 	 * Whether this node runs an IPv4 stack.
 	 *
@@ -425,14 +571,23 @@ public class KadNode extends BosonVerticle implements Node {
 		String storageURI = config.database().uri();
 		// fix the sqlite database file location
 		if (storageURI.startsWith("jdbc:sqlite:")) {
-			Path dbFile = Path.of(storageURI.substring("jdbc:sqlite:".length()));
+			// keep the parameters (pragmas, shards) out of the file path
+			int q = storageURI.indexOf('?');
+			String params = q < 0 ? "" : storageURI.substring(q);
+			Path dbFile = Path.of(storageURI.substring("jdbc:sqlite:".length(), q < 0 ? storageURI.length() : q));
 			if (!dbFile.isAbsolute())
-				storageURI = "jdbc:sqlite:" + config.dataDir().resolve(dbFile).toAbsolutePath();
+				storageURI = "jdbc:sqlite:" + config.dataDir().resolve(dbFile).toAbsolutePath() + params;
 		}
 		storage = DataStorage.create(storageURI, config.database().poolSize(), config.database().schema());
 
-		// TODO: empty blacklist for now
-		blacklist = Blacklist.empty();
+		// Storage metrics follow the Vert.x Micrometer backend: enabled when the Vert.x instance was
+		// created with Micrometer metrics options, published to the same registry as its own metrics -
+		// or to the node's own Prometheus registry when an endpoint was asked for and Vert.x has none.
+		MeterRegistry registry = metricsRegistry();
+		if (registry != null) {
+			storageMetrics = new MicrometerStorageMetrics(registry, Tags.of("node", getId().toString()));
+			storage.setMetrics(storageMetrics);
+		}
 
 		// KademliaOptions is unwrapped here and nowhere else: everything below this point receives the
 		// individual values, so no DHT-internal component depends on the configuration type.
@@ -455,27 +610,56 @@ public class KadNode extends BosonVerticle implements Node {
 		this.announceDispatching = false;
 		this.announceGeneration++;
 
-		return storage.initialize(vertx, MAX_VALUE_AGE, MAX_PEER_AGE).compose(unused -> {
+		return storage.initialize(vertx, MAX_VALUE_AGE, MAX_PEER_AGE).compose(unused ->
+			// Before the DHTs: each pings its reloaded routing table as soon as it is up.
+			restoreCryptoContexts()
+		).compose(unused ->
+			// Before the DHTs too: they take the blacklist at construction.
+			openBlacklist()
+		).compose(unused -> {
 			ArrayList<Future<Void>> futures = new ArrayList<>(2);
 			connectionStatusListener.setContext(vertxContext);
+			// One budget for the node, not one per family: the two sockets share the uplink it measures.
+			PacketBudget packetBudget = RpcServer.createPacketBudget(config.security().spamThrottling(),
+					config.security().developerMode());
 			if (host4 != null) {
+				if (registry != null)
+					dhtMetrics4 = new MicrometerDHTMetrics(registry, Tags.of("node", getId().toString(), "network", "ipv4"));
+
 				dht4 = new DHT(identity, Network.IPv4, host4, port, config.bootstraps(),
 						alpha, k, replacements, concurrentTasks,
 						storage, config.dataDir().resolve("dht4.cache"),
 						tokenManager, blacklist, config.security().spamThrottling(),
-						config.security().suspiciousNodeDetector(), config.security().developerMode(), null);
+						config.security().suspiciousNodeDetector(), config.security().boundedSuspiciousNodeDetector(),
+						config.security().developerMode(), packetBudget, dhtMetrics4);
 
 				dht4.setConnectionStatusListener(connectionStatusListener);
+				dht4.setLookupTracer(lookupTracer);
+				if (registry != null) {
+					routingMetrics4 = new MicrometerRoutingMetrics(registry,
+							Tags.of("node", getId().toString(), "network", "ipv4"));
+					dht4.setRoutingMetrics(routingMetrics4);
+				}
 			}
 
 			if (host6 != null) {
+				if (registry != null)
+					dhtMetrics6 = new MicrometerDHTMetrics(registry, Tags.of("node", getId().toString(), "network", "ipv6"));
+
 				dht6 = new DHT(identity, Network.IPv6, host6, port, config.bootstraps(),
 						alpha, k, replacements, concurrentTasks,
 						storage, config.dataDir().resolve("dht6.cache"),
 						tokenManager, blacklist, config.security().spamThrottling(),
-						config.security().suspiciousNodeDetector(), config.security().developerMode(), null);
+						config.security().suspiciousNodeDetector(), config.security().boundedSuspiciousNodeDetector(),
+						config.security().developerMode(), packetBudget, dhtMetrics6);
 
 				dht6.setConnectionStatusListener(connectionStatusListener);
+				dht6.setLookupTracer(lookupTracer);
+				if (registry != null) {
+					routingMetrics6 = new MicrometerRoutingMetrics(registry,
+							Tags.of("node", getId().toString(), "network", "ipv6"));
+					dht6.setRoutingMetrics(routingMetrics6);
+				}
 			}
 
 			if (dht4 != null && dht6 != null) {
@@ -509,7 +693,9 @@ public class KadNode extends BosonVerticle implements Node {
 			}
 
 			return Future.all(futures);
-		}).transform(ar -> {
+		}).compose(unused ->
+			startPrometheusEndpoint(registry)
+		).transform(ar -> {
 			if (ar.succeeded()) {
 				long timer = vertx.setPeriodic(KadConstants.STORAGE_EXPIRE_INITIAL_DELAY,
 						KadConstants.STORAGE_EXPIRE_INTERVAL, unused -> storage.purge());
@@ -526,6 +712,12 @@ public class KadNode extends BosonVerticle implements Node {
 				);
 				timers.add(timer);
 
+				if (blacklist instanceof FileBlacklist fileBlacklist) {
+					timer = vertx.setPeriodic(FileBlacklist.RELOAD_CHECK_INTERVAL, FileBlacklist.RELOAD_CHECK_INTERVAL,
+							unused -> reloadBlacklist(fileBlacklist));
+					timers.add(timer);
+				}
+
 				running = true;
 				log.info("Kademlia node started.");
 				return Future.succeededFuture();
@@ -563,7 +755,7 @@ public class KadNode extends BosonVerticle implements Node {
 	protected Future<Void> undeploy() {
 		running = false;
 
-		return Future.succeededFuture().andThen(ar -> {
+		return stopPrometheusEndpoint().andThen(ar -> {
 			if (!timers.isEmpty()) {
 				timers.forEach(vertx::cancelTimer);
 				timers.clear();
@@ -601,14 +793,214 @@ public class KadNode extends BosonVerticle implements Node {
 				return null;
 			});
 		}).compose(v ->
+			// After the DHTs, so the cache holds every context they used, and before clearCache below.
+			saveCryptoContexts()
+		).compose(v ->
 			storage == null ? Future.succeededFuture() :
 					storage.close().andThen(ar -> storage = null).otherwiseEmpty()
 		).andThen(ar -> {
+			if (storageMetrics != null) {
+				storageMetrics.close();
+				storageMetrics = null;
+			}
+			if (routingMetrics4 != null) {
+				routingMetrics4.close();
+				routingMetrics4 = null;
+			}
+			if (routingMetrics6 != null) {
+				routingMetrics6.close();
+				routingMetrics6 = null;
+			}
+			if (dhtMetrics4 != null) {
+				dhtMetrics4.close();
+				dhtMetrics4 = null;
+			}
+			if (dhtMetrics6 != null) {
+				dhtMetrics6.close();
+				dhtMetrics6 = null;
+			}
+			if (ownPrometheusRegistry != null) {
+				ownPrometheusRegistry.close();
+				ownPrometheusRegistry = null;
+			}
 			tokenManager = null;
 			identity.clearCache();
 		});
 	}
 
+	/**
+	 * Returns the registry the node publishes its meters to for this deployment.
+	 *
+	 * @return the Vert.x Micrometer backend's registry, the node's own Prometheus registry when a scrape
+	 *         endpoint was asked for and Vert.x publishes to no Prometheus registry, or null for no metrics.
+	 */
+	private @Nullable MeterRegistry metricsRegistry() {
+		MeterRegistry registry = BackendRegistries.getDefaultNow();
+		if (prometheusEndpoint == null || prometheusRegistry(registry) != null)
+			return registry;
+
+		if (registry != null)
+			log.info("Vert.x metrics are not published to Prometheus, the node's metrics are scraped from its own registry");
+
+		ownPrometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		return ownPrometheusRegistry;
+	}
+
+	private static @Nullable PrometheusMeterRegistry prometheusRegistry(@Nullable MeterRegistry registry) {
+		if (registry instanceof PrometheusMeterRegistry prometheus)
+			return prometheus;
+
+		if (registry instanceof CompositeMeterRegistry composite) {
+			for (MeterRegistry child : composite.getRegistries()) {
+				if (child instanceof PrometheusMeterRegistry prometheus)
+					return prometheus;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Starts the Prometheus scrape endpoint, if one was asked for.
+	 * <p>
+	 * Part of the deployment rather than a best effort beside it: an operator who asked for an endpoint
+	 * and got none would see the node as healthy and its metrics as absent, and a port already taken is
+	 * the kind of misconfiguration best reported at start.
+	 * </p>
+	 *
+	 * @param registry the registry the node's meters were published to.
+	 * @return a future completed once the endpoint is listening, or at once when there is none.
+	 */
+	private Future<Void> startPrometheusEndpoint(@Nullable MeterRegistry registry) {
+		InetSocketAddress endpoint = prometheusEndpoint;
+		PrometheusMeterRegistry prometheus = prometheusRegistry(registry);
+		if (endpoint == null || prometheus == null)
+			return Future.succeededFuture();
+
+		HttpServer server = vertx.createHttpServer().requestHandler(request -> {
+			if (!request.path().equals("/metrics")) {
+				request.response().setStatusCode(404).end();
+				return;
+			}
+
+			vertx.executeBlocking(prometheus::scrape, false).onComplete(ar -> {
+				if (ar.succeeded())
+					request.response().putHeader("Content-Type", "text/plain; version=0.0.4; charset=utf-8").end(ar.result());
+				else
+					request.response().setStatusCode(500).end();
+			});
+		});
+
+		return server.listen(endpoint.getPort(), endpoint.getHostString()).map(s -> {
+			prometheusServer = s;
+			prometheusPort = s.actualPort();
+			log.info("Prometheus metrics endpoint listening on {}:{}", endpoint.getHostString(), prometheusPort);
+			return null;
+		});
+	}
+
+	private Future<Void> stopPrometheusEndpoint() {
+		HttpServer server = prometheusServer;
+		if (server == null)
+			return Future.succeededFuture();
+
+		prometheusServer = null;
+		prometheusPort = -1;
+		return server.close().otherwiseEmpty();
+	}
+
+	/**
+	 * Restores the crypto contexts saved by the previous run, when the configuration asks for it.
+	 * <p>
+	 * The file is read and decrypted on a worker thread, and deleted once read: the keys in it are
+	 * now in memory, and the next shutdown writes a fresh file. A file that cannot be read - written
+	 * by another identity, or corrupt - costs only the agreements it would have saved, so failures
+	 * are logged and the start goes on.
+	 * </p>
+	 *
+	 * @return a future completed once the restore has finished, successfully or not.
+	 */
+	private Future<Void> restoreCryptoContexts() {
+		if (!config.persistCryptoContexts())
+			return Future.succeededFuture();
+
+		Path file = config.dataDir().resolve(CRYPTO_CONTEXTS_FILE);
+		return vertx.executeBlocking(() -> {
+			if (!Files.exists(file))
+				return 0;
+
+			byte[] data = Files.readAllBytes(file);
+			Files.delete(file);
+			return identity.importCache(data);
+		}).andThen(ar -> {
+			if (ar.succeeded())
+				log.info("Restored {} crypto contexts from {}", ar.result(), file);
+			else
+				log.warn("Failed to restore crypto contexts from {}", file, ar.cause());
+		}).<Void>mapEmpty().otherwiseEmpty();
+	}
+
+	/**
+	 * Opens the blacklist file in the data directory.
+	 * <p>
+	 * The file need not exist: the list then starts empty and is still followed, so an operator can
+	 * ban a host or a range on a running node by creating it. A file that exists but does not parse
+	 * fails the start - it is the operator's stated intent, and running without it would look like
+	 * it had been applied.
+	 * </p>
+	 *
+	 * @return a future completed once {@link #blacklist} is set.
+	 */
+	private Future<Void> openBlacklist() {
+		Path file = config.dataDir().resolve(BLACKLIST_FILE);
+		return vertx.executeBlocking(() -> FileBlacklist.open(file)).andThen(ar -> {
+			if (ar.succeeded())
+				blacklist = ar.result();
+			else
+				log.error("Failed to load the blacklist from {}", file, ar.cause());
+		}).mapEmpty();
+	}
+
+	/**
+	 * Picks up an edit to the blacklist file. Off the event loop, since it touches the file system; a
+	 * malformed edit leaves the previous list in force.
+	 */
+	private void reloadBlacklist(FileBlacklist fileBlacklist) {
+		vertx.executeBlocking(fileBlacklist::reloadIfModified).andThen(ar -> {
+			if (ar.failed())
+				log.warn("Failed to reload the blacklist, keeping the current one", ar.cause());
+			else if (ar.result())
+				log.info("Reloaded the blacklist");
+		});
+	}
+
+	/**
+	 * Saves the cached crypto contexts, encrypted under the node's own key, when the configuration
+	 * asks for it. Like the routing table snapshot, failures are logged and swallowed: a lost file
+	 * costs the next start its key agreements, and must not turn a clean shutdown into a failed one.
+	 *
+	 * @return a future completed once the write has finished, successfully or not.
+	 */
+	private Future<Void> saveCryptoContexts() {
+		if (!config.persistCryptoContexts())
+			return Future.succeededFuture();
+
+		Path file = config.dataDir().resolve(CRYPTO_CONTEXTS_FILE);
+		return vertx.executeBlocking(() -> {
+			byte[] data = identity.exportCache();
+			if (data == null)
+				return 0;
+
+			Path tmp = file.resolveSibling(CRYPTO_CONTEXTS_FILE + ".tmp");
+			Files.write(tmp, data);
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			return data.length;
+		}).andThen(ar -> {
+			if (ar.failed())
+				log.warn("Failed to save crypto contexts to {}", file, ar.cause());
+		}).<Void>mapEmpty().otherwiseEmpty();
+	}
+
 	@Override
 	public boolean isRunning() {
 		return running;
@@ -654,8 +1046,11 @@ public class KadNode extends BosonVerticle implements Node {
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 
 		Promise<Optional<NodeInfo>> promise = Promise.promise();
-		runOnContext(v -> doFindNode(id, lookupOption).onComplete(promise));
-		return ContextualFuture.of(promise.future());
+		Promise<Void> cancellation = Promise.promise();
+		runOnContext(v -> doFindNode(id, lookupOption, cancellation.future())
+				.andThen(ar -> cancellation.tryComplete())
+				.onComplete(promise));
+		return ContextualFuture.cancellable(promise.future(), cancellation::tryComplete);
 	}
 
 	/**
@@ -673,16 +1068,33 @@ public class KadNode extends BosonVerticle implements Node {
 		});
 	}
 
-	private Future<Optional<NodeInfo>> doFindNode(Id id, LookupOption option) {
+	/**
+	 * Looks a node up on every running DHT.
+	 * <p>
+	 * {@code cancellation} is how the lookups below are told to stop, and the public entry points
+	 * complete it on two occasions: the caller cancelled its future, or the result settled. The second
+	 * is the one that matters on a dual-stack node. An eager lookup settles on the first family that
+	 * answers, and the other family's lookup used to run on to convergence - its task slot, its
+	 * outstanding calls and their throttle budget all spent on an answer that was already going to be
+	 * dropped. The same applies to doFindValue and doFindPeer.
+	 * </p>
+	 *
+	 * @param id           the node id.
+	 * @param option       the lookup option.
+	 * @param cancellation completes when the result is no longer wanted.
+	 * @return a future with the node found, if any.
+	 */
+	private Future<Optional<NodeInfo>> doFindNode(Id id, LookupOption option, Future<Void> cancellation) {
 		if (dht4 == null && dht6 == null)
 			return Future.failedFuture(new IllegalStateException("No DHT available"));
 
 		if (dht4 == null || dht6 == null) {
 			DHT dht = dht4 != null ? dht4 : dht6;
-			return dht.findNode(id, option).map(n -> Optional.ofNullable(toPublicNodeInfo(n)));
+			return dht.findNode(id, option, cancellation).map(n -> Optional.ofNullable(toPublicNodeInfo(n)));
 		} else {
-			Future<@Nullable NodeInfo> future4 = dht4.findNode(id, option);
-			Future<@Nullable NodeInfo> future6 = dht6.findNode(id, option);
+			DualStackLookup dualStack = dualStackLookup ? new DualStackLookup() : null;
+			Future<@Nullable NodeInfo> future4 = dht4.findNode(id, option, cancellation, dualStack);
+			Future<@Nullable NodeInfo> future6 = dht6.findNode(id, option, cancellation, dualStack);
 
 			if (option == LookupOption.CONSERVATIVE) {
 				// Tolerate a single-family failure: merge whatever succeeded and only fail if BOTH fail.
@@ -719,6 +1131,7 @@ public class KadNode extends BosonVerticle implements Node {
 
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 		Promise<Value> promise = Promise.promise();
+		Promise<Void> cancellation = Promise.promise();
 
 		runOnContext(v -> {
 			EligibleValue eligible = new EligibleValue(id, expectedSequenceNumber);
@@ -737,7 +1150,9 @@ public class KadNode extends BosonVerticle implements Node {
 					local.set(value);
 				}
 
-				return doFindValue(id, expectedSequenceNumber, lookupOption, eligible).map(eligible);
+				return doFindValue(id, expectedSequenceNumber, lookupOption, eligible, cancellation.future())
+						.andThen(ar -> cancellation.tryComplete())
+						.map(eligible);
 			}).compose(vv -> {
 				if (eligible.isEmpty() || (local.isPresent() && eligible.getValue().equals(local.get())))
 					return Future.succeededFuture(eligible.getValue());
@@ -746,27 +1161,29 @@ public class KadNode extends BosonVerticle implements Node {
 			}).onComplete(promise);
 		});
 
-		return ContextualFuture.of(promise.future().map(Optional::ofNullable));
+		return ContextualFuture.cancellable(promise.future().map(Optional::ofNullable), cancellation::tryComplete);
 	}
 
-	private Future<Void> doFindValue(Id id, int expectedSequenceNumber, LookupOption option, EligibleValue result) {
+	private Future<Void> doFindValue(Id id, int expectedSequenceNumber, LookupOption option, EligibleValue result,
+			Future<Void> cancellation) {
 		if (dht4 == null && dht6 == null)
 			return Future.failedFuture(new IllegalStateException("No DHT available"));
 
 		if (dht4 == null || dht6 == null) {
 			DHT dht = dht4 != null ? dht4 : dht6;
-			return dht.findValue(id, expectedSequenceNumber, option).map(v -> {
+			return dht.findValue(id, expectedSequenceNumber, option, cancellation).map(v -> {
 				if (v != null)
 					result.update(v);
 				return null;
 			});
 		} else {
-			Future<Void> future4 = dht4.findValue(id, expectedSequenceNumber, option).map(v -> {
+			DualStackLookup dualStack = dualStackLookup ? new DualStackLookup() : null;
+			Future<Void> future4 = dht4.findValue(id, expectedSequenceNumber, option, cancellation, dualStack).map(v -> {
 				if (v != null)
 					result.update(v);
 				return null;
 			});
-			Future<Void> future6 = dht6.findValue(id, expectedSequenceNumber, option).map(v -> {
+			Future<Void> future6 = dht6.findValue(id, expectedSequenceNumber, option, cancellation, dualStack).map(v -> {
 				if (v != null)
 					result.update(v);
 				return null;
@@ -913,6 +1330,7 @@ public class KadNode extends BosonVerticle implements Node {
 
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 		Promise<List<PeerInfo>> promise = Promise.promise();
+		Promise<Void> cancellation = Promise.promise();
 
 		runOnContext(v -> {
 			EligiblePeers eligible = new EligiblePeers(id, expectedSequenceNumber, expectedPeerCount);
@@ -928,7 +1346,9 @@ public class KadNode extends BosonVerticle implements Node {
 						return Future.succeededFuture(eligible);
 				}
 
-				return doFindPeer(id, expectedSequenceNumber, expectedPeerCount, lookupOption, eligible)
+				return doFindPeer(id, expectedSequenceNumber, expectedPeerCount, lookupOption, eligible,
+								cancellation.future())
+						.andThen(ar -> cancellation.tryComplete())
 						.map(eligible);
 			}).compose(el -> {
 				if (eligible.isEmpty())
@@ -941,28 +1361,29 @@ public class KadNode extends BosonVerticle implements Node {
 			}).onComplete(promise);
 		});
 
-		return ContextualFuture.of(promise.future());
+		return ContextualFuture.cancellable(promise.future(), cancellation::tryComplete);
 	}
 
 	private Future<Void> doFindPeer(Id id, int expectedSequenceNumber, int expectedCount,
-											  LookupOption option, EligiblePeers result) {
+											  LookupOption option, EligiblePeers result, Future<Void> cancellation) {
 		if (dht4 == null && dht6 == null)
 			return Future.failedFuture(new IllegalStateException("No DHT available"));
 
 		if (dht4 == null || dht6 == null) {
 			DHT dht = dht4 != null ? dht4 : dht6;
-			return dht.findPeer(id, expectedSequenceNumber, expectedCount, option).map(peers -> {
+			return dht.findPeer(id, expectedSequenceNumber, expectedCount, option, cancellation).map(peers -> {
 				if (!peers.isEmpty())
 					result.add(peers);
 				return null;
 			});
 		} else {
-			Future<Void> future4 = dht4.findPeer(id, expectedSequenceNumber, expectedCount, option).map(peers -> {
+			DualStackLookup dualStack = dualStackLookup ? new DualStackLookup() : null;
+			Future<Void> future4 = dht4.findPeer(id, expectedSequenceNumber, expectedCount, option, cancellation, dualStack).map(peers -> {
 				if (!peers.isEmpty())
 					result.add(peers);
 				return null;
 			});
-			Future<Void> future6 = dht6.findPeer(id, expectedSequenceNumber, expectedCount, option).map(peers -> {
+			Future<Void> future6 = dht6.findPeer(id, expectedSequenceNumber, expectedCount, option, cancellation, dualStack).map(peers -> {
 				if (!peers.isEmpty())
 					result.add(peers);
 				return null;
@@ -1245,24 +1666,164 @@ public class KadNode extends BosonVerticle implements Node {
 		Objects.requireNonNull(family, "Invalid protocol family");
 		Objects.requireNonNull(out, "Invalid output stream");
 
-		Future<Void> future = switch (family) {
-			// Read the field once: undeploy clears it, and a second read could see the null.
+		return ContextualFuture.of(withDHT(family, dht -> dht.dumpRoutingTable(out)));
+	}
+
+	/**
+	 * Samples the routing table of one address family: bucket fill, RTT percentiles and loss, entry ages,
+	 * churn, and the RTT distribution the call timeouts are derived from - see {@link RoutingTableStats}.
+	 * These are the same numbers the Micrometer metrics export, when the Vert.x instance has them enabled.
+	 *
+	 * @param family the address family of the routing table.
+	 * @return a future with the sample.
+	 */
+	public ContextualFuture<RoutingTableStats> getRoutingTableStats(StandardProtocolFamily family) {
+		Objects.requireNonNull(family, "Invalid protocol family");
+		return ContextualFuture.of(withDHT(family, DHT::getRoutingTableStats));
+	}
+
+	/**
+	 * Picks up to {@code max} contacts of the routing table of one address family at random, and reports
+	 * the RTT, loss and age the table holds for each.
+	 *
+	 * @param family the address family of the routing table.
+	 * @param max    the most contacts to return; 0 or less for the whole table.
+	 * @return a future with the sampled contacts, in table order.
+	 */
+	public ContextualFuture<List<RoutingTableStats.Peer>> samplePeers(StandardProtocolFamily family, int max) {
+		Objects.requireNonNull(family, "Invalid protocol family");
+		return ContextualFuture.of(withDHT(family, dht -> dht.samplePeers(max)));
+	}
+
+	private <T> Future<T> withDHT(StandardProtocolFamily family, Function<DHT, Future<T>> action) {
+		// Read the field once: undeploy clears it, and a second read could see the null.
+		return switch (family) {
 			case INET -> {
 				DHT dht = dht4;
-				yield dht != null ? dht.dumpRoutingTable(out) :
+				yield dht != null ? action.apply(dht) :
 						Future.failedFuture(new IllegalStateException("No DHT/IPv4 available"));
 			}
 			case INET6 -> {
 				DHT dht = dht6;
-				yield dht != null ? dht.dumpRoutingTable(out) :
+				yield dht != null ? action.apply(dht) :
 						Future.failedFuture(new IllegalStateException("No DHT/IPv6 available"));
 			}
 			default -> Future.failedFuture(new IllegalArgumentException("Unsupported protocol family"));
 		};
+	}
+
+	/**
+	 * Writes a binary snapshot of this node's storage and routing tables to {@code file}.
+	 * <p>
+	 * The snapshot is written to a temporary file next to the target and moved into place once
+	 * complete, so an interrupted export never leaves a truncated snapshot under the final name.
+	 * Records are streamed from storage in pages; see {@link StorageSnapshot} for the format.
+	 * </p>
+	 *
+	 * @param file the snapshot file to write; replaced if it exists.
+	 * @return a future that completes with the number of records written.
+	 */
+	public ContextualFuture<StorageSnapshot.Summary> exportSnapshot(Path file) {
+		Objects.requireNonNull(file, "file");
+		checkRunning();
+
+		Path target = file.toAbsolutePath();
+		DHT v4 = dht4;
+		DHT v6 = dht6;
+
+		Future<StorageSnapshot.Summary> future = vertx.executeBlocking(() -> {
+			Files.createDirectories(target.getParent());
+			Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+			return new SnapshotExport(temp, new StorageSnapshot.Writer(Files.newOutputStream(temp),
+					System.currentTimeMillis()));
+		}).compose(export -> {
+			Future<Void> attachments = Future.succeededFuture();
+			if (v4 != null)
+				attachments = attachments.compose(v -> v4.encodeRoutingTable()).compose(data ->
+						vertx.executeBlocking(() -> export.writeAttachment(SNAPSHOT_ROUTING_TABLE_4, data)));
+			if (v6 != null)
+				attachments = attachments.compose(v -> v6.encodeRoutingTable()).compose(data ->
+						vertx.executeBlocking(() -> export.writeAttachment(SNAPSHOT_ROUTING_TABLE_6, data)));
+
+			return attachments.compose(v -> storage.exportSnapshot(export.writer))
+					.compose(v -> vertx.executeBlocking(() -> export.commit(target)))
+					.andThen(ar -> {
+						if (ar.failed())
+							vertx.executeBlocking(export::discard);
+					});
+		});
+
+		return ContextualFuture.of(future);
+	}
+
+	/**
+	 * Loads a snapshot written by {@link #exportSnapshot(Path)} into this node.
+	 * <p>
+	 * Records are upserted into the existing storage, and routing table entries are merged into the
+	 * live tables of the matching families with the same staleness rules as the on-disk cache.
+	 * Import into an empty database drops and rebuilds the secondary indexes around the bulk load.
+	 * </p>
+	 *
+	 * @param file the snapshot file to read.
+	 * @return a future that completes with the number of records imported.
+	 */
+	public ContextualFuture<StorageSnapshot.Summary> importSnapshot(Path file) {
+		Objects.requireNonNull(file, "file");
+		checkRunning();
+
+		DHT v4 = dht4;
+		DHT v6 = dht6;
+
+		Future<StorageSnapshot.Summary> future = vertx.executeBlocking(() ->
+				new StorageSnapshot.Reader(Files.newInputStream(file))
+		).compose(reader -> {
+			List<Future<Integer>> restores = new ArrayList<>();
+			return storage.importSnapshot(reader, attachment -> {
+				DHT dht = switch (attachment.name()) {
+					case SNAPSHOT_ROUTING_TABLE_4 -> v4;
+					case SNAPSHOT_ROUTING_TABLE_6 -> v6;
+					default -> null;
+				};
+
+				if (dht != null)
+					restores.add(dht.restoreRoutingTable(attachment.data()));
+				else
+					log.debug("Ignored snapshot attachment {}", attachment.name());
+			}).compose(summary -> Future.all(restores).map(summary))
+			.eventually(() -> vertx.executeBlocking(() -> {
+				reader.close();
+				return null;
+			}));
+		});
 
 		return ContextualFuture.of(future);
 	}
 
+	// A snapshot being written to its temporary file; only touched from worker threads.
+	private record SnapshotExport(Path temp, StorageSnapshot.Writer writer) {
+		Void writeAttachment(String name, byte[] data) throws IOException {
+			if (data.length > 0)
+				writer.write(new StorageSnapshot.Attachment(name, data));
+			return null;
+		}
+
+		StorageSnapshot.Summary commit(Path target) throws IOException {
+			StorageSnapshot.Summary summary = writer.finish();
+			writer.close();
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			return summary;
+		}
+
+		Void discard() throws IOException {
+			try {
+				writer.close();
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+			return null;
+		}
+	}
+
 	@Override
 	public byte[] sign(byte[] data) {
 		return identity.sign(data);
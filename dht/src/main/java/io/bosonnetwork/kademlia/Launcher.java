@@ -24,6 +24,7 @@ package io.bosonnetwork.kademlia;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -43,6 +44,9 @@ import io.bosonnetwork.vertx.ContextualFuture;
  */
 public class Launcher {
 	private static KadNode node;
+	// Not part of NodeConfiguration: the scrape endpoint is how this launcher exposes a node, not
+	// something the node needs to know to run.
+	private static InetSocketAddress prometheusEndpoint;
 
 	private static NodeConfiguration buildConfigFromArgs(String[] args) throws IllegalArgumentException {
 		NodeConfiguration.Builder builder = NodeConfiguration.builder();
@@ -125,6 +129,20 @@ public class Launcher {
 						throw new IllegalArgumentException("Failed to parse bootstrap node " + bootstrapValue, e);
 					}
 				}
+				case "--prometheus" -> {
+					if (i + 1 >= args.length)
+						throw new IllegalArgumentException("Missing value for prometheus option");
+
+					String endpoint = args[++i];
+					int colon = endpoint.lastIndexOf(':');
+					try {
+						prometheusEndpoint = colon < 0 ?
+								new InetSocketAddress("0.0.0.0", Integer.parseInt(endpoint)) :
+								new InetSocketAddress(endpoint.substring(0, colon), Integer.parseInt(endpoint.substring(colon + 1)));
+					} catch (IllegalArgumentException e) {
+						throw new IllegalArgumentException("Invalid prometheus endpoint '" + endpoint + "'. Expected [HOST:]PORT", e);
+					}
+				}
 				case "--developerMode" -> builder.developerMode(true);
 				case "--help", "-h" -> {
 					printUsage();
@@ -176,6 +194,8 @@ public class Launcher {
 		System.out.println("  -p, --port <PORT>         UDP port to listen on.");
 		System.out.println("  -d, --data-dir <DIR>      Directory for node data and persistent storage.");
 		System.out.println("  -b, --bootstrap <NODE>    Bootstrap node (Format: ID:ADDRESS:PORT).");
+		System.out.println("      --prometheus <[HOST:]PORT>");
+		System.out.println("                            Serve metrics for Prometheus at /metrics.");
 		System.out.println("      --developerMode       Enable developer mode.");
 		System.out.println("  -h, --help                Display this help message and exit.");
 	}
@@ -221,6 +241,7 @@ public class Launcher {
 			try {
 				System.out.println("Starting Boson DHT node...");
 				node = new KadNode(config);
+				node.setPrometheusEndpoint(prometheusEndpoint);
 				node.start().get();
 
 				System.out.println("Node is running.");
@@ -231,6 +252,8 @@ public class Launcher {
 				System.out.println("  IPv4: " + (host4 != null ? host4 + ":" + port : "N/A"));
 				System.out.println("  IPv6: " + (host6 != null ? host6 + ":" + port : "N/A"));
 				System.out.println("  Data directory: " + dataDir.toAbsolutePath());
+				if (node.getPrometheusPort() > 0)
+					System.out.println("  Prometheus: " + prometheusEndpoint.getHostString() + ":" + node.getPrometheusPort() + "/metrics");
 
 				synchronized(shutdown) {
 					try {
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Verifies the signed records of inbound write requests - the value of a STORE VALUE, the peer of an
+ * ANNOUNCE PEER - in batches, one worker dispatch per batch.
+ * <p>
+ * A record's signature is checked off the event loop, and used to be checked one request per dispatch.
+ * Requests come in bursts instead: a publisher announcing to its k closest nodes reaches each of them
+ * with one request, but a node close to a popular key, or in the path of a re-announce sweep, takes
+ * many within one read of the socket. Every record submitted while the event loop works through such a
+ * burst is collected, and when the loop next gets to its task queue - after the datagrams already read,
+ * not after any wait of its own - the lot is split into batches of at most {@value #MAX_BATCH_SIZE},
+ * each dispatched to a worker of its own and checked as one {@link io.bosonnetwork.crypto.Signature.Batch},
+ * where a crypto provider with a batch equation verifies it for a fraction of the cost of the records
+ * one by one. The cap keeps a large burst spread over the worker pool, as the per-request dispatches
+ * were, instead of queueing it all behind one worker. A batch of one, the common case on a quiet node,
+ * takes the plain single check.
+ * <p>
+ * Every record still gets a verdict of its own: a bad record fails its own request and no other.
+ * <p>
+ * Not thread-safe; {@link #verify} must be called on the DHT's event loop, and the futures it returns
+ * complete there as well.
+ *
+ * @param <T> the type of the records.
+ */
+final class BatchVerifier<T> {
+	// Large enough to share the fixed cost of the batch equation, small enough that a burst still
+	// spreads over the worker pool
+	static final int MAX_BATCH_SIZE = 64;
+
+	private final KadContext context;
+	private final Predicate<T> single;
+	private final Function<List<T>, boolean[]> batch;
+
+	private List<T> records = new ArrayList<>();
+	private List<Promise<Boolean>> verdicts = new ArrayList<>();
+
+	/**
+	 * Creates a batch verifier.
+	 *
+	 * @param context the context whose event loop collects the records and whose worker pool verifies them.
+	 * @param single  the check of one record.
+	 * @param batch   the check of several records at once, with a result for each, in order.
+	 */
+	BatchVerifier(KadContext context, Predicate<T> single, Function<List<T>, boolean[]> batch) {
+		this.context = context;
+		this.single = single;
+		this.batch = batch;
+	}
+
+	/**
+	 * Queues a record for verification with the others submitted in the same event-loop turn.
+	 *
+	 * @param record the record to verify.
+	 * @return a future of whether the record is valid; failed only if the check itself threw.
+	 */
+	Future<Boolean> verify(T record) {
+		if (records.isEmpty())
+			context.runOnContext(this::flush);
+
+		Promise<Boolean> verdict = Promise.promise();
+		records.add(record);
+		verdicts.add(verdict);
+		return verdict.future();
+	}
+
+	private void flush() {
+		List<T> pending = records;
+		List<Promise<Boolean>> promises = verdicts;
+		records = new ArrayList<>();
+		verdicts = new ArrayList<>();
+
+		// Batches of even size rather than full ones and a remainder: 65 records go as 33 + 32, not 64 + 1
+		int batches = (pending.size() + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE;
+		for (int i = 0; i < batches; i++) {
+			int from = pending.size() * i / batches;
+			int to = pending.size() * (i + 1) / batches;
+			dispatch(pending.subList(from, to), promises.subList(from, to));
+		}
+	}
+
+	private void dispatch(List<T> pending, List<Promise<Boolean>> promises) {
+		context.executeBlocking(() -> pending.size() == 1 ?
+				new boolean[] { single.test(pending.get(0)) } : batch.apply(pending), false).onComplete(ar -> {
+			for (int i = 0; i < promises.size(); i++) {
+				if (ar.succeeded())
+					promises.get(i).complete(ar.result()[i]);
+				else
+					promises.get(i).fail(ar.cause());
+			}
+		});
+	}
+}
@@ -2,14 +2,10 @@ package io.bosonnetwork.kademlia.impl;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -18,7 +14,9 @@ import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 import io.vertx.core.Context;
 import io.vertx.core.Future;
@@ -37,11 +35,13 @@ import io.bosonnetwork.LookupOption;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.PeerInfo;
 import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CachedCryptoIdentity;
 import io.bosonnetwork.kademlia.exceptions.InvalidPeerException;
 import io.bosonnetwork.kademlia.exceptions.InvalidTokenException;
 import io.bosonnetwork.kademlia.exceptions.InvalidValueException;
 import io.bosonnetwork.kademlia.exceptions.KadException;
 import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.metrics.RoutingMetrics;
 import io.bosonnetwork.kademlia.protocol.AnnouncePeerRequest;
 import io.bosonnetwork.kademlia.protocol.Error;
 import io.bosonnetwork.kademlia.protocol.FindNodeRequest;
@@ -53,15 +53,21 @@ import io.bosonnetwork.kademlia.protocol.StoreValueRequest;
 import io.bosonnetwork.kademlia.routing.KBucket;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.routing.RoutingTable;
+import io.bosonnetwork.kademlia.routing.RoutingTableJournal;
+import io.bosonnetwork.kademlia.routing.RoutingTableStats;
+import io.bosonnetwork.kademlia.rpc.PacketBudget;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
 import io.bosonnetwork.kademlia.rpc.RpcCallListener;
 import io.bosonnetwork.kademlia.rpc.RpcServer;
 import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.kademlia.security.SketchSuspiciousNodeDetector;
 import io.bosonnetwork.kademlia.security.SuspiciousNodeDetector;
 import io.bosonnetwork.kademlia.storage.DataStorage;
 import io.bosonnetwork.kademlia.tasks.AnnounceTask;
 import io.bosonnetwork.kademlia.tasks.ClosestSet;
+import io.bosonnetwork.kademlia.tasks.DualStackLookup;
 import io.bosonnetwork.kademlia.tasks.EligiblePeers;
+import io.bosonnetwork.kademlia.tasks.LookupTracer;
 import io.bosonnetwork.kademlia.tasks.NodeLookupTask;
 import io.bosonnetwork.kademlia.tasks.PeerAnnounceTask;
 import io.bosonnetwork.kademlia.tasks.PeerLookupTask;
@@ -102,11 +108,17 @@ public class DHT extends BosonVerticle {
 	private final boolean enableSpamThrottling;
 	private final boolean enableSuspiciousNodeTracking;
 	private final boolean enableDeveloperMode;
+	// Shared with the sibling: both families go out over the same uplink. See PacketBudget.
+	private final PacketBudget packetBudget;
 	private final DHTMetrics metrics;
 
 	private final KadContext kadContext;
 	private RpcServer rpcServer;
 
+	// Signature checks of the inbound write requests, batched per event-loop turn.
+	private final BatchVerifier<Value> valueVerifier;
+	private final BatchVerifier<PeerInfo> peerVerifier;
+
 	// Read from the sibling's context in populateClosestNodes, written from the KadNode context
 	// during deployment; volatile so the wiring and unwiring are visible to both event loops.
 	private volatile @Nullable DHT sibling;
@@ -114,6 +126,9 @@ public class DHT extends BosonVerticle {
 	private volatile boolean running;
 	private ConnectionStatus status;
 	private DHTConnectionStatusListener connectionStatusListener;
+	private @Nullable RoutingMetrics routingMetrics;
+	// Read on this DHT's context whenever a lookup is created, set from the node's before deployment.
+	private volatile @Nullable LookupTracer lookupTracer;
 
 	private List<NodeInfo> bootstrapNodes;
 	private List<Id> bootstrapIds;
@@ -138,6 +153,8 @@ public class DHT extends BosonVerticle {
 	private final RoutingTable routingTable;
 	private long lastMaintenance;
 	private final Path persistFile;
+	// Null exactly when persistFile is: what is written there, and in the journal beside it.
+	private final @Nullable RoutingTableJournal routingTableJournal;
 
 	// True when this run began by loading a persisted routing table that actually held contacts - not
 	// merely that a file was there, and not that the table is non-empty, which it structurally always
@@ -151,6 +168,13 @@ public class DHT extends BosonVerticle {
 
 	private TaskManager taskManager;
 
+	// Per deployment, like taskManager: it is drawn on the RPC server's packet budget, and both are
+	// replaced on a redeploy.
+	private MaintenanceScheduler maintenanceScheduler;
+
+	// Per deployment too: its churn baseline is the table it first saw, and a redeploy reloads the table.
+	private RoutingTableStats.Sampler routingTableSampler;
+
 	private final Map<KBucket, Task<?>> maintenanceTasks = new IdentityHashMap<>();
 
 	/**
@@ -167,6 +191,9 @@ public class DHT extends BosonVerticle {
 	 */
 	private String lastChurnedAddress;
 
+	// The maintenance scheduler key of the periodic random lookup. A string so the scheduler's log reads.
+	private static final String RANDOM_LOOKUP = "Periodic: random node lookup";
+
 	private static final Logger log = LoggerFactory.getLogger(DHT.class);
 
 	// Package-private: DHTSiblingTests drives populateClosestNodes directly.
@@ -193,13 +220,18 @@ public class DHT extends BosonVerticle {
 	 * @param k                 the Kademlia bucket size, at least 1.
 	 * @param replacements      the per-bucket replacement cache size, at least 1.
 	 * @param concurrentTasks   the ceiling on concurrently running tasks, at least 1; further tasks are queued.
+	 * @param boundedSuspiciousNodeDetector whether suspicious node tracking counts in a fixed-size sketch,
+	 *                          see {@link SuspiciousNodeDetector#createBounded()}.
+	 * @param packetBudget      the node-wide outbound packet budget, shared with the sibling DHT; null to give
+	 *                          this DHT one of its own, see {@link RpcServer#createPacketBudget}.
 	 * @throws IllegalArgumentException if any Kademlia parameter is less than 1.
 	 */
 	public DHT(Identity identity, Network network, String host, int port, Collection<NodeInfo> bootstrapNodes,
 	           int alpha, int k, int replacements, int concurrentTasks,
 	           DataStorage storage, Path persistFile, TokenManager tokenManager,
 	           Blacklist blacklist, boolean enableSpamThrottling, boolean enableSuspiciousNodeTracking,
-	           boolean enableDeveloperMode, DHTMetrics metrics) {
+	           boolean boundedSuspiciousNodeDetector, boolean enableDeveloperMode, PacketBudget packetBudget,
+	           DHTMetrics metrics) {
 		if (alpha < 1)
 			throw new IllegalArgumentException("Invalid alpha: " + alpha);
 		if (k < 1)
@@ -215,12 +247,15 @@ public class DHT extends BosonVerticle {
 		this.port = port;
 		this.storage = storage;
 		this.persistFile = persistFile;
+		this.routingTableJournal = persistFile != null ? new RoutingTableJournal(persistFile) : null;
 		this.tokenManager = tokenManager;
 		this.blacklist = blacklist;
 
 		this.enableSpamThrottling = enableSpamThrottling;
 		this.enableSuspiciousNodeTracking = enableSuspiciousNodeTracking;
 		this.enableDeveloperMode = enableDeveloperMode;
+		this.packetBudget = packetBudget != null ? packetBudget :
+				RpcServer.createPacketBudget(enableSpamThrottling, enableDeveloperMode);
 		this.metrics = metrics;
 
 		this.alpha = alpha;
@@ -251,18 +286,36 @@ public class DHT extends BosonVerticle {
 		this.bootstrapIds = List.of();
 
 		// Initialize suspicious node tracker
-		this.suspiciousNodeDetector = enableSuspiciousNodeTracking ?
-				SuspiciousNodeDetector.create() : SuspiciousNodeDetector.disabled();
+		this.suspiciousNodeDetector = !enableSuspiciousNodeTracking ? SuspiciousNodeDetector.disabled() :
+				boundedSuspiciousNodeDetector ? SuspiciousNodeDetector.createBounded() : SuspiciousNodeDetector.create();
 
 		if (bootstrapNodes != null && !bootstrapNodes.isEmpty())
 			addBootstrapNodes(bootstrapNodes);
 
 		this.kadContext = new KadContext(this);
+		this.valueVerifier = new BatchVerifier<>(kadContext, Value::isValid, Value::isEachValid);
+		this.peerVerifier = new BatchVerifier<>(kadContext, PeerInfo::isValid, PeerInfo::isEachValid);
 
 		// TODO: improve
 		this.nodeInfo = NodeInfo.of(identity.getId(), host, port);
 	}
 
+	/**
+	 * Creates a DHT whose suspicious node tracking, when enabled, uses the default, per-source detector.
+	 *
+	 * @see #DHT(Identity, Network, String, int, Collection, int, int, int, int, DataStorage, Path, TokenManager,
+	 *      Blacklist, boolean, boolean, boolean, boolean, PacketBudget, DHTMetrics)
+	 */
+	public DHT(Identity identity, Network network, String host, int port, Collection<NodeInfo> bootstrapNodes,
+	           int alpha, int k, int replacements, int concurrentTasks,
+	           DataStorage storage, Path persistFile, TokenManager tokenManager,
+	           Blacklist blacklist, boolean enableSpamThrottling, boolean enableSuspiciousNodeTracking,
+	           boolean enableDeveloperMode, DHTMetrics metrics) {
+		this(identity, network, host, port, bootstrapNodes, alpha, k, replacements, concurrentTasks,
+				storage, persistFile, tokenManager, blacklist, enableSpamThrottling, enableSuspiciousNodeTracking,
+				false, enableDeveloperMode, null, metrics);
+	}
+
 	public final int getAlpha() {
 		return alpha;
 	}
@@ -359,6 +412,30 @@ public class DHT extends BosonVerticle {
 		this.connectionStatusListener = listener;
 	}
 
+	/**
+	 * Sets where the periodic routing table samples are exported, see {@link RoutingMetrics}. Set before
+	 * deployment; without it the table is only sampled on demand.
+	 *
+	 * @param routingMetrics the routing table metrics, or null for none.
+	 */
+	public void setRoutingMetrics(@Nullable RoutingMetrics routingMetrics) {
+		this.routingMetrics = routingMetrics;
+	}
+
+	/**
+	 * Sets the tracer this DHT's lookups are sampled into. The node shares one between its DHTs, so a
+	 * trace of either family is read from the same place.
+	 *
+	 * @param lookupTracer the lookup tracer, or null to trace nothing.
+	 */
+	public void setLookupTracer(@Nullable LookupTracer lookupTracer) {
+		this.lookupTracer = lookupTracer;
+	}
+
+	@Nullable LookupTracer getLookupTracer() {
+		return lookupTracer;
+	}
+
 	@Override
 	protected Future<Void> deploy() {
 		if (running)
@@ -407,7 +484,7 @@ public class DHT extends BosonVerticle {
 		}
 
 		return loaded.compose(unused -> {
-			rpcServer = new RpcServer(kadContext, host, port, blacklist, enableSpamThrottling, metrics);
+			rpcServer = new RpcServer(kadContext, host, port, blacklist, enableSpamThrottling, packetBudget, metrics);
 			rpcServer.setMessageHandler(this::onMessage);
 			rpcServer.setCallSentHandler(this::onSend);
 			rpcServer.setCallTimeoutHandler(this::onTimeout);
@@ -423,6 +500,8 @@ public class DHT extends BosonVerticle {
 			running = true;
 
 			this.taskManager = new TaskManager(kadContext);
+			this.maintenanceScheduler = new MaintenanceScheduler(kadContext, rpcServer.getPacketBudget());
+			this.routingTableSampler = new RoutingTableStats.Sampler();
 			setStatus(ConnectionStatus.Connecting);
 
 			rpcServer.setReachableHandler(reachable -> {
@@ -439,8 +518,10 @@ public class DHT extends BosonVerticle {
 			// One future for the whole sweep, not one per bucket: this gates the connection status, and
 			// the status question is answered by the first cached contact that answers rather than by
 			// the last one to time out. See pingRoutingTable.
+			// The sweep waits for the crypto warm-up: it is about to encrypt for every loaded contact, and
+			// whatever the warm-up has not derived yet the sweep would derive on this event loop.
 			if (loadedRoutingTable)
-				connectFutures.add(pingRoutingTable());
+				connectFutures.add(warmCryptoContexts().compose(warmed -> pingRoutingTable()));
 
 			Future<Void> bootstrapFuture = doBootstrap(bootstrapNodes);
 			connectFutures.add(bootstrapFuture);
@@ -479,6 +560,13 @@ public class DHT extends BosonVerticle {
 
 			cancelPeriodicTasks();
 
+			if (maintenanceScheduler != null) {
+				maintenanceScheduler.clear();
+				maintenanceScheduler = null;
+			}
+
+			routingTableSampler = null;
+
 			if (taskManager != null) {
 				taskManager.cancelAll();
 				taskManager = null;
@@ -503,6 +591,45 @@ public class DHT extends BosonVerticle {
 		});
 	}
 
+	/**
+	 * Derives the crypto contexts of the loaded routing table on worker threads, ahead of the warm-start
+	 * ping sweep.
+	 * <p>
+	 * Only a {@link CachedCryptoIdentity} has anything to warm. The contacts are split across at most
+	 * {@link KadConstants#CRYPTO_WARMUP_PARALLELISM} unordered blocking tasks; contacts whose context
+	 * was restored from disk or derived by the sibling DHT are already cached and cost nothing. The
+	 * warm-up is an optimization only, so it never fails: a context it did not derive is derived on
+	 * first use, as before.
+	 * </p>
+	 *
+	 * @return a future completed once every warm-up task has finished.
+	 */
+	private Future<Void> warmCryptoContexts() {
+		if (!(identity instanceof CachedCryptoIdentity cached))
+			return Future.succeededFuture();
+
+		List<Id> ids = new ArrayList<>(routingTable.getNumberOfEntries());
+		routingTable.forEachBucket(bucket -> bucket.entries().forEach(entry -> ids.add(entry.getId())));
+		if (ids.isEmpty())
+			return Future.succeededFuture();
+
+		int parallelism = Math.min(KadConstants.CRYPTO_WARMUP_PARALLELISM, ids.size());
+		int chunk = (ids.size() + parallelism - 1) / parallelism;
+		List<Future<Integer>> futures = new ArrayList<>(parallelism);
+		for (int from = 0; from < ids.size(); from += chunk) {
+			List<Id> part = ids.subList(from, Math.min(from + chunk, ids.size()));
+			futures.add(kadContext.executeBlocking(() -> cached.warmCache(part), false));
+		}
+
+		long started = System.nanoTime();
+		return Future.join(futures).transform(ar -> {
+			int derived = futures.stream().filter(Future::succeeded).mapToInt(Future::result).sum();
+			log.debug("DHT {} derived {} crypto contexts for {} loaded contacts in {} ms", network, derived,
+					ids.size(), (System.nanoTime() - started) / 1_000_000);
+			return Future.succeededFuture();
+		});
+	}
+
 	/**
 	 * Writes the routing table out as the last step of undeploy.
 	 * <p>
@@ -524,19 +651,25 @@ public class DHT extends BosonVerticle {
 	}
 
 	private void setupPeriodicTasks() {
-		long timer = kadContext.setPeriodic(KadConstants.DHT_UPDATE_INTERVAL, KadConstants.DHT_UPDATE_INTERVAL, this::update);
+		// The three timers that put traffic on the wire start at a per-node phase rather than one period
+		// after deployment. The period is unchanged, so each still fires at its documented rate; what the
+		// phase removes is a fleet deployed at once keeping every tick in step for as long as it runs.
+		long timer = kadContext.setPeriodic(MaintenanceScheduler.phase(KadConstants.DHT_UPDATE_INTERVAL),
+				KadConstants.DHT_UPDATE_INTERVAL, this::update);
 		timers.add(timer);
 
 		// deep lookup to make ourselves known to random parts of the keyspace
-		timer = kadContext.setPeriodic(KadConstants.RANDOM_LOOKUP_INTERVAL, KadConstants.RANDOM_LOOKUP_INTERVAL, this::randomLookup);
+		timer = kadContext.setPeriodic(MaintenanceScheduler.phase(KadConstants.RANDOM_LOOKUP_INTERVAL),
+				KadConstants.RANDOM_LOOKUP_INTERVAL, this::randomLookup);
 		timers.add(timer);
 
 		// Do random node ping to check socket liveness
-		timer = kadContext.setPeriodic(KadConstants.RANDOM_PING_INTERVAL, KadConstants.RANDOM_PING_INTERVAL, this::randomPing);
+		timer = kadContext.setPeriodic(MaintenanceScheduler.phase(KadConstants.RANDOM_PING_INTERVAL),
+				KadConstants.RANDOM_PING_INTERVAL, this::randomPing);
 		timers.add(timer);
 
 		if (enableSuspiciousNodeTracking) {
-			timer = kadContext.setPeriodic(KadConstants.SUSPICIOUS_NODES_PURGE_INITIAL_DELAY, KadConstants.SUSPICIOUS_NODES_PURGE_INTERVAL, unused -> suspiciousNodeDetector.purge());
+			timer = kadContext.setPeriodic(KadConstants.SUSPICIOUS_NODES_PURGE_INITIAL_DELAY, KadConstants.SUSPICIOUS_NODES_PURGE_INTERVAL, this::purgeSuspiciousNodes);
 			timers.add(timer);
 		}
 
@@ -544,6 +677,31 @@ public class DHT extends BosonVerticle {
 			timer = kadContext.setPeriodic(KadConstants.ROUTING_TABLE_PERSIST_INITIAL_DELAY, KadConstants.ROUTING_TABLE_PERSIST_INTERVAL, this::persistRoutingTable);
 			timers.add(timer);
 		}
+
+		if (routingMetrics != null) {
+			timer = kadContext.setPeriodic(0, KadConstants.ROUTING_TABLE_STATS_INTERVAL, this::exportRoutingTableStats);
+			timers.add(timer);
+		}
+	}
+
+	private void purgeSuspiciousNodes(long unusedTimerId) {
+		suspiciousNodeDetector.purge();
+
+		// Only the bounded detector has a size worth watching; the default one is as big as its tables.
+		if (metrics != null && suspiciousNodeDetector instanceof SketchSuspiciousNodeDetector sketch)
+			metrics.suspiciousNodesSampled(sketch.getStats());
+	}
+
+	private void exportRoutingTableStats(long unusedTimerId) {
+		RoutingMetrics metrics = routingMetrics;
+		if (!running || metrics == null || routingTableSampler == null)
+			return;
+
+		metrics.routingTableSampled(sampleRoutingTable());
+	}
+
+	private RoutingTableStats sampleRoutingTable() {
+		return routingTableSampler.sample(routingTable, rpcServer.getTimeoutStats(), System.currentTimeMillis());
 	}
 
 	private void cancelPeriodicTasks() {
@@ -648,13 +806,32 @@ public class DHT extends BosonVerticle {
 		List<KBucket> candidates = new ArrayList<>();
 		routingTable.maintenance(bootstrapIds, candidates::add);
 
+		// A bucket still waiting for its turn from the last pass is already taken care of; selecting it
+		// again would spend a slot of this pass's budget on a job the scheduler then refuses as a duplicate.
+		MaintenanceScheduler scheduler = maintenanceScheduler;
+		if (scheduler == null)
+			return;
+		candidates.removeIf(scheduler::isScheduled);
+
 		// removeOnTimeout stays false here, unlike the warm-start sweep. This is steady state: a single
 		// timeout is weak evidence, and entries that keep failing are demoted by the routing table
 		// anyway. Purging a stale cache is the sweep's job and the sweep now finishes it, so there is
 		// nothing left here for a one-shot to clean up.
+		//
+		// Scheduled rather than dispatched: the refreshes are spread across the interval up to the next
+		// pass, so the pass no longer puts its whole refresh on the wire at once - see MaintenanceScheduler.
+		// Whether the bucket still needs it is decided when its turn comes, by tryPingMaintenance itself,
+		// since minutes of ordinary traffic may have refreshed it in the meantime. The same minutes may have
+		// split or merged it, so the bucket is looked up again by prefix and a job whose bucket no longer
+		// exists is dropped: the next pass selects whatever replaced it. The packet estimate is a ping per
+		// entry plus the replacement probe.
 		for (KBucket bucket : selectBucketsToRefresh(candidates))
-			tryPingMaintenance(bucket, false, false, true,
-					"RoutingTable maintenance: refreshing bucket - " + bucket.prefix());
+			scheduler.schedule(bucket, bucket.size() + 1, KadConstants.ROUTING_TABLE_MAINTENANCE_INTERVAL, () -> {
+				KBucket live = routingTable.bucketOf(bucket.prefix());
+				if (live.equals(bucket))
+					tryPingMaintenance(live, false, false, true,
+							"RoutingTable maintenance: refreshing bucket - " + live.prefix());
+			});
 	}
 
 	/**
@@ -672,8 +849,9 @@ public class DHT extends BosonVerticle {
 	 * </p>
 	 * <p>
 	 * <b>The budget is against live tasks, not against this pass.</b> {@code maintenanceTasks} holds
-	 * exactly the refreshes still running, so subtracting it bounds the work in flight no matter how
-	 * passes overlap. A per-pass budget would only bound the burst if every task always finished inside
+	 * exactly the refreshes still running, and the maintenance scheduler the ones still waiting for their
+	 * turn, so subtracting both bounds the work outstanding no matter how passes overlap. A per-pass
+	 * budget would only bound the burst if every task always finished inside
 	 * {@link KadConstants#ROUTING_TABLE_MAINTENANCE_INTERVAL}, which is true of today's constants and
 	 * is not a property worth depending on.
 	 * </p>
@@ -702,7 +880,8 @@ public class DHT extends BosonVerticle {
 		// A quarter of the slots, matching MAX_BUCKET_FILLS_PER_BOOTSTRAP at the default and holding the
 		// same relation at any configured value. Half, as the warm-start sweep takes, would be too much
 		// for work that runs forever rather than once.
-		int budget = Math.max(1, concurrentTasks / 4) - maintenanceTasks.size();
+		int queued = maintenanceScheduler != null ? maintenanceScheduler.size() : 0;
+		int budget = Math.max(1, concurrentTasks / 4) - maintenanceTasks.size() - queued;
 		if (budget <= 0)
 			return List.of();
 
@@ -754,12 +933,28 @@ public class DHT extends BosonVerticle {
 		return dispatchTask(task, false);
 	}
 
+	/**
+	 * Queues a lookup for a random id, to make ourselves known to random parts of the keyspace.
+	 * <p>
+	 * Through the maintenance scheduler rather than straight to the task manager, so it takes its turn
+	 * among the bucket refreshes and waits for the packet budget like them. Reachability is checked again
+	 * when the turn comes, since that can be a while.
+	 * </p>
+	 *
+	 * @param unusedTimerId the periodic timer id, unused.
+	 */
 	private void randomLookup(long unusedTimerId) {
-		if (rpcServer.isReachable()) {
+		MaintenanceScheduler scheduler = maintenanceScheduler;
+		if (rpcServer.isReachable() && scheduler != null) {
 			log.info("Periodic: random lookup ...");
-			NodeLookupTask task = new NodeLookupTask(kadContext, Id.random())
-					.setName("Periodic: random node Lookup");
-			dispatchTask(task);
+			scheduler.schedule(RANDOM_LOOKUP, k, KadConstants.DHT_UPDATE_INTERVAL, () -> {
+				if (!rpcServer.isReachable())
+					return;
+
+				NodeLookupTask task = new NodeLookupTask(kadContext, Id.random())
+						.setName("Periodic: random node Lookup");
+				dispatchTask(task);
+			});
 		} else {
 			log.info("Periodic: not performing random lookup, node is unreachable.");
 		}
@@ -801,70 +996,56 @@ public class DHT extends BosonVerticle {
 	}
 
 	/**
-	 * Encodes the routing table and writes it to {@code persistFile}.
+	 * Writes what changed in the routing table since the last persist to {@code persistFile} and its
+	 * journal.
 	 * <p>
-	 * The two halves run in different places on purpose. Encoding walks the buckets and their entries -
-	 * single-threaded state owned by this verticle - so it happens here, on this context, before any
-	 * worker is involved. Only the file write goes to a worker thread, because that is the part that
-	 * blocks. Handing the whole job to {@code executeBlocking} would take the I/O off the event loop by
-	 * putting the table traversal on a worker instead, which trades a blocked event loop for a data
-	 * race; doing neither would put a file write on the event loop every ten minutes for the life of
-	 * the node.
+	 * The two halves run in different places on purpose. Working out what to write walks the buckets and
+	 * their entries - single-threaded state owned by this verticle - so it happens here, on this context,
+	 * before any worker is involved. Only the file write goes to a worker thread, because that is the part
+	 * that blocks. Handing the whole job to {@code executeBlocking} would take the I/O off the event loop by
+	 * putting the table traversal on a worker instead, which trades a blocked event loop for a data race;
+	 * doing neither would put a file write on the event loop every ten minutes for the life of the node.
 	 * </p>
 	 * <p>
-	 * The write is staged through a temporary file in the same directory and moved into place
-	 * atomically, so an interrupted write cannot leave a truncated table to be read back at the next
-	 * start. Callers own the failure policy - both of them log and continue.
+	 * Most of these writes are a short append to the journal rather than the whole table - see
+	 * {@link RoutingTableJournal} for the format and for when it compacts. A write that fails makes the
+	 * next one a compaction, since the journal can no longer be trusted to hold what was handed to it.
+	 * Callers own the failure policy - both of them log and continue.
 	 * </p>
 	 * <p>
 	 * Only called where {@code persistFile} is known to be set: the periodic timer is registered only
 	 * when it is, and the shutdown path checks it first.
 	 * </p>
 	 *
-	 * @return a future completed when the file has been written, failed if it could not be.
+	 * @return a future completed when the files have been written, failed if they could not be.
 	 */
 	private Future<Void> saveRoutingTable() {
-		byte[] data = routingTable.save();
-		// Nothing worth writing, and no worker taken to discover that. Note this leaves any previously
-		// written file in place rather than truncating it: a node that empties its table has not learned
-		// that its last known contacts are bad, only that it currently has none.
-		if (data == null || data.length == 0)
+		RoutingTableJournal journal = routingTableJournal;
+		// Nothing changed, or nothing worth writing, and no worker taken to discover that. Note an empty
+		// table leaves the files in place rather than truncating them: a node that empties its table has
+		// not learned that its last known contacts are bad, only that it currently has none.
+		RoutingTableJournal.Write write = journal.prepare(routingTable);
+		if (write == null)
 			return Future.succeededFuture();
 
-		return kadContext.executeBlocking(() -> {
-			if (Files.exists(persistFile)) {
-				if (!Files.isRegularFile(persistFile))
-					throw new IOException("Routing table file is not a regular file: " + persistFile);
-			} else {
-				Files.createDirectories(persistFile.getParent());
-			}
-
-			Path tempFile = Files.createTempFile(persistFile.getParent(), persistFile.getFileName().toString(),
-					"-" + System.currentTimeMillis());
-			try (OutputStream out = Files.newOutputStream(tempFile)) {
-				out.write(data);
-				out.close();
-				Files.move(tempFile, persistFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-			} finally {
-				// Force delete the tempFile if error occurred
-				Files.deleteIfExists(tempFile);
-			}
-
+		return kadContext.<Void>executeBlocking(() -> {
+			journal.write(write);
 			return null;
-		});
+		}).onFailure(cause -> journal.invalidate());
 	}
 
 	/**
-	 * Reads {@code persistFile} and loads it into the routing table.
+	 * Reads {@code persistFile} and its journal and loads them into the routing table.
 	 * <p>
 	 * The mirror of {@link #saveRoutingTable()}, split the same way and for the same reason: the read
-	 * blocks and runs on a worker, the parse inserts into the buckets and runs back here, on the context
+	 * blocks and runs on a worker, the restore inserts into the buckets and runs back here, on the context
 	 * that owns them.
 	 * </p>
 	 * <p>
 	 * A missing file is not a failure - it is the normal first start - and neither is a corrupt one,
-	 * which {@link RoutingTable#load(byte[])} reports by logging and keeping whatever it could read. The
-	 * future fails only if the file exists and cannot be read at all.
+	 * which {@link RoutingTable#load(byte[])} reports by logging and keeping whatever it could read, nor
+	 * a torn journal, which is replayed up to the tear. The future fails only if a file exists and cannot
+	 * be read at all.
 	 * </p>
 	 *
 	 * @return a future carrying how much the cache contributed: the number of entries and replacements
@@ -873,16 +1054,8 @@ public class DHT extends BosonVerticle {
 	 *         a table that restored nothing is indistinguishable from a fresh one.
 	 */
 	private Future<Integer> loadRoutingTable() {
-		return kadContext.executeBlocking(() -> {
-			if (Files.notExists(persistFile) || !Files.isRegularFile(persistFile))
-				return null;
-			return Files.readAllBytes(persistFile);
-		}).map(serialized -> {
-			if (serialized != null && serialized.length > 0)
-				return routingTable.load(serialized);
-			else
-				return 0;
-		});
+		RoutingTableJournal journal = routingTableJournal;
+		return kadContext.executeBlocking(journal::read).map(contents -> journal.load(routingTable, contents));
 	}
 
 	public Future<Void> bootstrap(Collection<NodeInfo> nodes) {
@@ -1891,7 +2064,7 @@ public class DHT extends BosonVerticle {
 		FindValueRequest body = request.getBody();
 		Id target = body.getTarget();
 		int expectedSequenceNumber = body.getExpectedSequenceNumber();
-		storage.getValue(target).compose(value -> {
+		timedStorage(() -> storage.getValue(target)).compose(value -> {
 			if (value != null && valueFits(value) && (!value.isMutable() || expectedSequenceNumber < 0 ||
 					value.getSequenceNumber() >= expectedSequenceNumber))
 				return Future.succeededFuture(Message.findValueResponse(request.getTxid(), value));
@@ -1956,16 +2129,15 @@ public class DHT extends BosonVerticle {
 		if (!verifyToken(request, body.getToken(), value.getId(), "STORE VALUE"))
 			return;
 
-		kadContext.executeBlocking(() -> {
-			if (!value.isValid())
-				throw new InvalidValueException("Invalid value for STORE VALUE request");
+		// Off the event loop, together with the other writes of this turn - see BatchVerifier.
+		valueVerifier.verify(value).compose(valid -> {
+			if (!valid)
+				return Future.failedFuture(new InvalidValueException("Invalid value for STORE VALUE request"));
 
-			return value;
-		}, false).compose(validated ->
 			// Atomic validate-and-store: existence check + immutable/CAS/owner validation + write in one
 			// transaction (see DataStorage#putValue). failIfNotOwner=false: keep our own value on conflict.
-			storage.putValue(validated, body.getExpectedSequenceNumber(), false, false)
-		).transform(ar -> {
+			return timedStorage(() -> storage.putValue(value, body.getExpectedSequenceNumber(), false, false));
+		}).transform(ar -> {
 			Message response = ar.succeeded() ? Message.storeValueResponse(request.getTxid()) :
 					exceptionToError(request.getMethod(), request.getTxid(), ar.cause());
 			response.setRemote(request.getId(), request.getRemoteAddress());
@@ -1978,7 +2150,7 @@ public class DHT extends BosonVerticle {
 		Id target = body.getTarget();
 		int expectedSequenceNumber = body.getExpectedSequenceNumber();
 		int expectedCount = peersPerResponse(body.getExpectedCount());
-		storage.getPeers(target, expectedSequenceNumber, expectedCount).map(this::fitPeers).compose(peers -> {
+		timedStorage(() -> storage.getPeers(target, expectedSequenceNumber, expectedCount)).map(this::fitPeers).compose(peers -> {
 			if (!peers.isEmpty())
 				return Future.succeededFuture(Message.findPeerResponse(request.getTxid(), peers));
 
@@ -2012,15 +2184,13 @@ public class DHT extends BosonVerticle {
 		if (!verifyToken(request, body.getToken(), peer.getId(), "ANNOUNCE PEER"))
 			return;
 
-		kadContext.executeBlocking(() -> {
-			if (!peer.isValid())
-				throw new InvalidPeerException("Invalid value for ANNOUNCE PEER request");
+		peerVerifier.verify(peer).compose(valid -> {
+			if (!valid)
+				return Future.failedFuture(new InvalidPeerException("Invalid value for ANNOUNCE PEER request"));
 
-			return peer;
-		}, false).compose(validated ->
 			// Atomic validate-and-store (see DataStorage#putPeer). failIfNotOwner=false: keep our own peer on conflict.
-			storage.putPeer(validated, body.getExpectedSequenceNumber(), false, false)
-		).transform(ar -> {
+			return timedStorage(() -> storage.putPeer(peer, body.getExpectedSequenceNumber(), false, false));
+		}).transform(ar -> {
 			Message response = ar.succeeded() ? Message.announcePeerResponse(request.getTxid()) :
 					exceptionToError(request.getMethod(), request.getTxid(), ar.cause());
 			response.setRemote(request.getId(), request.getRemoteAddress());
@@ -2028,6 +2198,23 @@ public class DHT extends BosonVerticle {
 		});
 	}
 
+	/**
+	 * Runs the storage operation behind an inbound request, timed as the {@link DHTMetrics.Stage#STORAGE}
+	 * stage of the packet pipeline.
+	 *
+	 * @param operation the storage operation.
+	 * @param <T>       the type of its result.
+	 * @return the operation's future.
+	 */
+	private <T> Future<T> timedStorage(Supplier<Future<T>> operation) {
+		if (metrics == null)
+			return operation.get();
+
+		long started = System.nanoTime();
+		return operation.get().andThen(ar ->
+				metrics.stageCompleted(DHTMetrics.Stage.STORAGE, System.nanoTime() - started));
+	}
+
 	private void onUnknownMethod(Message request) {
 		Message response = Message.error(request.getMethod(), request.getTxid(), ErrorCode.MethodUnknown.value(),
 				"Unknown method: " + request.getMethod());
@@ -2474,7 +2661,71 @@ public class DHT extends BosonVerticle {
 		return localIsV4 ? new ClosestNodes(local, sibling) : new ClosestNodes(sibling, local);
 	}
 
+	/**
+	 * Binds a lookup task to its caller's cancellation signal.
+	 * <p>
+	 * A lookup nobody is waiting for any more still holds what every lookup holds: a task slot, up to
+	 * alpha outstanding calls and their share of the outbound throttle. The caller going away - a
+	 * cancelled future, or the other address family answering first - used to release none of it; the
+	 * task ran on to convergence or timeout and its answer was dropped. Cancelling the task cancels its
+	 * nested task and its outstanding calls, and the RPC server gives back their slots as they end.
+	 * </p>
+	 * <p>
+	 * The cancellation is a signal, not a result: whatever it completes with, the task is cancelled. It
+	 * is listened to for as long as it is pending, so a caller passing one is expected to complete it
+	 * once the lookup is of no more interest either way, rather than hold it open indefinitely.
+	 * </p>
+	 *
+	 * <p>
+	 * Bound only once the task is dispatched: a task that was never queued has a caller already failed
+	 * by the dispatch path, and cancelling it later would settle that caller a second time.
+	 * </p>
+	 *
+	 * @param task         the dispatched lookup task.
+	 * @param cancellation completes when the caller no longer wants the result; {@code null} for never.
+	 */
+	private void cancelWith(Task<?> task, @Nullable Future<?> cancellation) {
+		if (cancellation == null)
+			return;
+
+		// The signal may complete on any thread; the task belongs to this context. A signal that is
+		// already complete runs this at once, which cancels a task that was queued but never started.
+		cancellation.onComplete(ar -> runOnContext(v -> task.cancel()));
+	}
+
 	public Future<@Nullable NodeInfo> findNode(Id id, LookupOption option) {
+		return findNode(id, option, null);
+	}
+
+	/**
+	 * Looks up a node, abandoning the lookup when the caller does.
+	 *
+	 * @param id           the node id.
+	 * @param option       the lookup option.
+	 * @param cancellation completes when the caller no longer wants the result, which cancels the
+	 *                     lookup task and the calls it has in flight; {@code null} for never.
+	 * @return a future with the node, or {@code null} if it was not found. A lookup cancelled before it
+	 *         started fails with a {@link CancellationException}; one cancelled while running completes
+	 *         with what it had found so far.
+	 */
+	public Future<@Nullable NodeInfo> findNode(Id id, LookupOption option, @Nullable Future<?> cancellation) {
+		return findNode(id, option, cancellation, null);
+	}
+
+	/**
+	 * Looks up a node as one half of a dual-stack lookup: the task shares its decisions about who has
+	 * been asked with the same lookup on the sibling family's DHT, through {@code dualStack}. The caller
+	 * passes the same instance to both DHTs.
+	 *
+	 * @param id           the node id.
+	 * @param option       the lookup option.
+	 * @param cancellation completes when the caller no longer wants the result; {@code null} for never.
+	 * @param dualStack    the state shared with the sibling lookup; {@code null} for a lookup of this
+	 *                     family alone.
+	 * @return a future with the node, or {@code null} if it was not found.
+	 */
+	public Future<@Nullable NodeInfo> findNode(Id id, LookupOption option, @Nullable Future<?> cancellation,
+			@Nullable DualStackLookup dualStack) {
 		Promise<NodeInfo> promise = Promise.promise();
 
 		runOnContext(v -> {
@@ -2495,15 +2746,54 @@ public class DHT extends BosonVerticle {
 					.addListener(t ->
 							promise.complete(t.getResult())
 					);
+			if (dualStack != null)
+				task.setDualStack(dualStack);
 
-			if (!dispatchTask(task))
+			if (cancellation != null && cancellation.isComplete())
+				promise.fail(new CancellationException("Lookup node " + id + " was cancelled"));
+			else if (!dispatchTask(task))
 				promise.fail(new IllegalStateException("DHT is not running"));
+			else
+				cancelWith(task, cancellation);
 		});
 
 		return promise.future();
 	}
 
 	public Future<Value> findValue(Id id, int expectedSequenceNumber, LookupOption option) {
+		return findValue(id, expectedSequenceNumber, option, null);
+	}
+
+	/**
+	 * Looks up a value, abandoning the lookup when the caller does - see
+	 * {@link #findNode(Id, LookupOption, Future)}.
+	 *
+	 * @param id                     the value id.
+	 * @param expectedSequenceNumber the lowest sequence number of interest, or -1 for any.
+	 * @param option                 the lookup option.
+	 * @param cancellation           completes when the caller no longer wants the result; {@code null}
+	 *                               for never.
+	 * @return a future with the value found, or {@code null}.
+	 */
+	public Future<Value> findValue(Id id, int expectedSequenceNumber, LookupOption option,
+			@Nullable Future<?> cancellation) {
+		return findValue(id, expectedSequenceNumber, option, cancellation, null);
+	}
+
+	/**
+	 * Looks up a value as one half of a dual-stack lookup - see
+	 * {@link #findNode(Id, LookupOption, Future, DualStackLookup)}.
+	 *
+	 * @param id                     the value id.
+	 * @param expectedSequenceNumber the lowest sequence number of interest, or -1 for any.
+	 * @param option                 the lookup option.
+	 * @param cancellation           completes when the caller no longer wants the result; {@code null}
+	 *                               for never.
+	 * @param dualStack              the state shared with the sibling lookup; {@code null} for none.
+	 * @return a future with the value found, or {@code null}.
+	 */
+	public Future<Value> findValue(Id id, int expectedSequenceNumber, LookupOption option,
+			@Nullable Future<?> cancellation, @Nullable DualStackLookup dualStack) {
 		Promise<Value> promise = Promise.promise();
 
 		runOnContext(v -> {
@@ -2513,9 +2803,15 @@ public class DHT extends BosonVerticle {
 					.addListener(t ->
 							promise.complete(t.getResult().getValue())
 					);
+			if (dualStack != null)
+				task.setDualStack(dualStack);
 
-			if (!dispatchTask(task))
+			if (cancellation != null && cancellation.isComplete())
+				promise.fail(new CancellationException("Lookup value " + id + " was cancelled"));
+			else if (!dispatchTask(task))
 				promise.fail(new IllegalStateException("DHT is not running"));
+			else
+				cancelWith(task, cancellation);
 		});
 
 		return promise.future();
@@ -2614,6 +2910,41 @@ public class DHT extends BosonVerticle {
 
 	@SuppressWarnings("unused")
 	public Future<List<PeerInfo>> findPeer(Id id, int expectedSequenceNumber, int expectedCount, LookupOption option) {
+		return findPeer(id, expectedSequenceNumber, expectedCount, option, null);
+	}
+
+	/**
+	 * Looks up peers, abandoning the lookup when the caller does - see
+	 * {@link #findNode(Id, LookupOption, Future)}.
+	 *
+	 * @param id                     the peer id.
+	 * @param expectedSequenceNumber the lowest sequence number of interest, or -1 for any.
+	 * @param expectedCount          the number of peers wanted, 0 for the default.
+	 * @param option                 the lookup option.
+	 * @param cancellation           completes when the caller no longer wants the result; {@code null}
+	 *                               for never.
+	 * @return a future with the peers found.
+	 */
+	public Future<List<PeerInfo>> findPeer(Id id, int expectedSequenceNumber, int expectedCount, LookupOption option,
+			@Nullable Future<?> cancellation) {
+		return findPeer(id, expectedSequenceNumber, expectedCount, option, cancellation, null);
+	}
+
+	/**
+	 * Looks up peers as one half of a dual-stack lookup - see
+	 * {@link #findNode(Id, LookupOption, Future, DualStackLookup)}.
+	 *
+	 * @param id                     the peer id.
+	 * @param expectedSequenceNumber the lowest sequence number of interest, or -1 for any.
+	 * @param expectedCount          the number of peers wanted, 0 for the default.
+	 * @param option                 the lookup option.
+	 * @param cancellation           completes when the caller no longer wants the result; {@code null}
+	 *                               for never.
+	 * @param dualStack              the state shared with the sibling lookup; {@code null} for none.
+	 * @return a future with the peers found.
+	 */
+	public Future<List<PeerInfo>> findPeer(Id id, int expectedSequenceNumber, int expectedCount, LookupOption option,
+			@Nullable Future<?> cancellation, @Nullable DualStackLookup dualStack) {
 		Promise<List<PeerInfo>> promise = Promise.promise();
 
 		// Resolved here rather than taken as given: this entry point is public and, unlike KadNode's, had
@@ -2627,9 +2958,15 @@ public class DHT extends BosonVerticle {
 					option != LookupOption.CONSERVATIVE)
 					.setName("Lookup peer: " + id)
 					.addListener(t -> promise.complete(t.getResult().getPeers()));
+			if (dualStack != null)
+				task.setDualStack(dualStack);
 
-			if (!dispatchTask(task))
+			if (cancellation != null && cancellation.isComplete())
+				promise.fail(new CancellationException("Lookup peer " + id + " was cancelled"));
+			else if (!dispatchTask(task))
 				promise.fail(new IllegalStateException("DHT is not running"));
+			else
+				cancelWith(task, cancellation);
 		});
 
 		return promise.future();
@@ -2678,6 +3015,43 @@ public class DHT extends BosonVerticle {
 		return promise.future();
 	}
 
+	/**
+	 * Samples the routing table now - see {@link RoutingTableStats}. Also advances the churn counters the
+	 * periodic export reports, which only makes them finer.
+	 *
+	 * @return a future with the sample; failed if the DHT is not running.
+	 */
+	public Future<RoutingTableStats> getRoutingTableStats() {
+		Promise<RoutingTableStats> promise = Promise.promise();
+		runOnContext(v -> {
+			if (!running || routingTableSampler == null)
+				promise.fail(new IllegalStateException("DHT is not running"));
+			else
+				promise.complete(sampleRoutingTable());
+		});
+
+		return promise.future();
+	}
+
+	/**
+	 * Picks contacts of the routing table at random and reports what is known of each - see
+	 * {@link RoutingTableStats#samplePeers}.
+	 *
+	 * @param max the most contacts to return; 0 or less for the whole table.
+	 * @return a future with the sampled contacts, in table order; failed if the DHT is not running.
+	 */
+	public Future<List<RoutingTableStats.Peer>> samplePeers(int max) {
+		Promise<List<RoutingTableStats.Peer>> promise = Promise.promise();
+		runOnContext(v -> {
+			if (!running)
+				promise.fail(new IllegalStateException("DHT is not running"));
+			else
+				promise.complete(RoutingTableStats.samplePeers(routingTable, max, System.currentTimeMillis()));
+		});
+
+		return promise.future();
+	}
+
 	public Future<Void> dumpRoutingTable(PrintStream out) {
 		Promise<Void> promise = Promise.promise();
 		// Read once, and require it to be present: before deployment both sides of this comparison
@@ -2696,4 +3070,47 @@ public class DHT extends BosonVerticle {
 
 		return promise.future();
 	}
+
+	/**
+	 * Encodes the current routing table in the same format as the persistent cache snapshot, for
+	 * inclusion in a storage snapshot. The encoding runs on the DHT context, where the routing
+	 * table is owned; the caller receives an empty array when there is nothing worth keeping.
+	 *
+	 * @return a future that completes with the encoded routing table
+	 */
+	public Future<byte[]> encodeRoutingTable() {
+		Promise<byte[]> promise = Promise.promise();
+		Context ctx = vertxContext;
+		if (ctx != null && Vertx.currentContext() == ctx) {
+			byte[] data = routingTable.save();
+			promise.complete(data != null ? data : new byte[0]);
+		} else {
+			runOnContext(v -> {
+				byte[] data = routingTable.save();
+				promise.complete(data != null ? data : new byte[0]);
+			});
+		}
+
+		return promise.future();
+	}
+
+	/**
+	 * Merges a routing table previously produced by {@link #encodeRoutingTable()} into the live
+	 * table. Entries that are stale or belong to a different node id are dropped by
+	 * {@link RoutingTable#load(byte[])}, exactly as when loading the cache file on start.
+	 *
+	 * @param data the encoded routing table
+	 * @return a future that completes with the number of entries loaded
+	 */
+	public Future<Integer> restoreRoutingTable(byte[] data) {
+		Promise<Integer> promise = Promise.promise();
+		Context ctx = vertxContext;
+		if (ctx != null && Vertx.currentContext() == ctx) {
+			promise.complete(routingTable.load(data));
+		} else {
+			runOnContext(v -> promise.complete(routingTable.load(data)));
+		}
+
+		return promise.future();
+	}
 }
@@ -640,6 +640,31 @@ public final class KadConstants {
 	 */
 	public static final int ROUTING_TABLE_PERSIST_INTERVAL = 10 * 60 * 1000;        // 10 minutes
 
+	/**
+	 * Interval between routing table samples taken for the metrics exporter.
+	 * <p>
+	 * A sample is a walk of the table on the event loop, so it is not free, but it is a read of at most a
+	 * few thousand entries. The churn it reports is the difference between consecutive samples, so this is
+	 * also the resolution of the churn counters: a contact that comes and goes within one interval is not
+	 * counted. A minute is finer than anything the tuning decisions are made on.
+	 * </p>
+	 */
+	public static final int ROUTING_TABLE_STATS_INTERVAL = 60 * 1000;                // 1 minute
+
+	/**
+	 * How many worker threads may derive crypto contexts for a reloaded routing table at once.
+	 * <p>
+	 * <b>Why bounded.</b> Each context is an X25519 agreement; a reloaded table is a few hundred of
+	 * them, and the warm start pings every one. Derived on the event loop they arrive as one
+	 * multi-second CPU spike; derived ahead of the ping sweep on all cores they become a spike on
+	 * every core instead. Half the cores, and never more than the default worker pool can spare,
+	 * finishes a full table in well under a second while leaving the rest of the machine - and the
+	 * worker pool the storage runs on - alone.
+	 * </p>
+	 */
+	public static final int CRYPTO_WARMUP_PARALLELISM =
+			Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() / 2, 8));
+
 	/**
 	 * Minimum time between routing-table maintenance passes.
 	 * <p>
@@ -648,6 +673,10 @@ public final class KadConstants {
 	 * {@link #BUCKET_REFRESH_INTERVAL}. Set well below that interval so a bucket becoming stale is
 	 * acted on promptly rather than waiting most of another refresh window.
 	 * </p>
+	 * <p>
+	 * It is also the window a pass's refreshes are spread across: they are queued with the maintenance
+	 * scheduler and go out one at a time over the four minutes, not together on the tick that found them.
+	 * </p>
 	 */
 	public static final int ROUTING_TABLE_MAINTENANCE_INTERVAL = 4 * 60 * 1000;     // 4 minutes
 
@@ -13,6 +13,7 @@ import org.jspecify.annotations.Nullable;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.Identity;
 import io.bosonnetwork.kademlia.security.SuspiciousNodeDetector;
+import io.bosonnetwork.kademlia.tasks.LookupTracer;
 import io.bosonnetwork.kademlia.utils.Timer;
 
 /**
@@ -137,6 +138,19 @@ public class KadContext implements Timer, Executor {
 		return requireDht().getSuspiciousNodeDetector();
 	}
 
+	/**
+	 * Returns the tracer new lookups are sampled into, see {@link LookupTracer}.
+	 * <p>
+	 * Null-tolerant like {@link #getSibling()}: tracing is an observer, and a context without a DHT, or a
+	 * DHT its node never gave a tracer, simply traces nothing.
+	 * </p>
+	 *
+	 * @return the owning DHT's lookup tracer, or null if there is none.
+	 */
+	public @Nullable LookupTracer getLookupTracer() {
+		return dht != null ? dht.getLookupTracer() : null;
+	}
+
 	/**
 	 * Returns the Kademlia concurrency parameter (alpha): how many RPCs a task keeps in flight.
 	 *
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.kademlia.rpc.PacketBudget;
+import io.bosonnetwork.kademlia.utils.Timer;
+
+/**
+ * Spreads the node's background work across the interval it belongs to, instead of starting it all on the
+ * tick that found it.
+ * <p>
+ * <b>What it replaces.</b> A maintenance pass used to turn every bucket it selected into a
+ * {@code PingRefreshTask} on the spot, so each pass put its whole refresh on the wire within a second or
+ * two and then nothing for four minutes. Every timer behind it fired on a fixed period from deployment,
+ * so a fleet rolled out together did the same thing at the same instant, forever. Peers see that as a
+ * burst against their inbound throttle, and a burst that trips it comes back to us as timeouts charged to
+ * healthy entries.
+ * </p>
+ * <p>
+ * <b>How the spread works.</b> Each job is queued with the window it has to finish in, and the queue is
+ * drained one job per slot. A slot is the time left divided by the jobs still waiting - see
+ * {@link #nextSlot} - so {@code n} jobs scheduled together land roughly one {@code window / n} apart and
+ * the last one close to the end of the window, which is when the next pass comes round to schedule more.
+ * Each slot is jittered by {@link #SLOT_JITTER_PERCENT} either side, so two nodes with the same queue do
+ * not stay in step; {@link #phase} does the same for the periodic timers that feed it.
+ * </p>
+ * <p>
+ * <b>The budget.</b> Before a job runs, the scheduler asks the node-wide {@link PacketBudget} whether the
+ * packets it expects to send fit. The budget is charged by everything the RPC server sends, so user traffic
+ * and the answers we give to others are what fill it, and maintenance is what waits. Waiting is bounded,
+ * though: a job that has been held for a whole extra window runs anyway. Refresh is what keeps the routing
+ * table usable, and a node too busy ever to refresh it would eventually be too badly connected to stay busy.
+ * </p>
+ * <p>
+ * Jobs are keyed, and a key already waiting is not queued twice: the periodic pass that selects a bucket
+ * again before its first turn came is simply told it is already taken care of. Single-threaded, like
+ * everything else the DHT owns, and every job runs on the DHT's context.
+ * </p>
+ */
+final class MaintenanceScheduler {
+	/** The shortest gap between two jobs, in milliseconds, however crowded the queue. */
+	static final long MIN_SLOT = 250;
+
+	/**
+	 * How far an individual slot may fall either side of its nominal length, as a percentage of it.
+	 * Symmetric for the reason {@link KadConstants#BOOTSTRAP_INTERVAL_JITTER_PERCENT} gives: the average
+	 * spacing stays where the window puts it, and only the individual slot is randomised.
+	 */
+	static final int SLOT_JITTER_PERCENT = 50;
+
+	private record Job(int packets, long deadline, long window, Runnable action) {}
+
+	private final Timer timer;
+	private final PacketBudget budget;
+	private final LongSupplier clock;
+
+	/** Waiting jobs, in the order they were scheduled. */
+	private final Map<Object, Job> queue;
+
+	/** The armed slot timer, or -1. */
+	private long timerId;
+	/** When the armed slot fires, on {@link #clock}. */
+	private long fireAt;
+
+	private static final Logger log = LoggerFactory.getLogger(MaintenanceScheduler.class);
+
+	MaintenanceScheduler(Timer timer, PacketBudget budget, LongSupplier clock) {
+		this.timer = timer;
+		this.budget = budget;
+		this.clock = clock;
+		this.queue = new LinkedHashMap<>();
+		this.timerId = -1;
+	}
+
+	MaintenanceScheduler(Timer timer, PacketBudget budget) {
+		// Monotonic, unlike the currentTimeMillis the older maintenance state is kept in: a deadline that
+		// jumped with the wall clock would either fire the whole queue at once or hold it for the jump.
+		this(timer, budget, () -> System.nanoTime() / 1_000_000);
+	}
+
+	/**
+	 * A per-node phase for a periodic timer: somewhere between half and one and a half periods.
+	 * <p>
+	 * Used as the initial delay, so the long-run cadence is the nominal period while nodes that were
+	 * deployed together start - and so stay - out of step with each other.
+	 * </p>
+	 *
+	 * @param period the timer's period, in milliseconds.
+	 * @return the initial delay to use, in milliseconds.
+	 */
+	static long phase(long period) {
+		return period / 2 + ThreadLocalRandom.current().nextLong(period + 1);
+	}
+
+	/**
+	 * Queues a job to run at its turn within the given window.
+	 *
+	 * @param key identifies the job; a key already waiting is not queued again.
+	 * @param packets roughly how many datagrams the job will send, for the budget.
+	 * @param window how long, from now, the job may be spread over, in milliseconds.
+	 * @param action the job.
+	 * @return true if the job was queued, false if its key was already waiting.
+	 */
+	boolean schedule(Object key, int packets, long window, Runnable action) {
+		if (queue.containsKey(key))
+			return false;
+
+		long now = clock.getAsLong();
+		Job job = new Job(packets, now + window, window, action);
+		queue.put(key, job);
+
+		// A job due before the armed slot pulls the slot in. It does not jump the queue - the head still
+		// runs first, just sooner - but nothing waits past its own deadline on the head's account.
+		if (timerId != -1 && job.deadline < fireAt) {
+			timer.cancelTimer(timerId);
+			timerId = -1;
+		}
+
+		arm(now);
+		return true;
+	}
+
+	/**
+	 * Whether a job with the given key is waiting.
+	 *
+	 * @param key the job key.
+	 * @return true if it is queued and has not run yet.
+	 */
+	boolean isScheduled(Object key) {
+		return queue.containsKey(key);
+	}
+
+	/**
+	 * The number of jobs waiting.
+	 *
+	 * @return the queue length.
+	 */
+	int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Drops every waiting job and disarms the slot timer, for a DHT that is stopping.
+	 */
+	void clear() {
+		queue.clear();
+		if (timerId != -1) {
+			timer.cancelTimer(timerId);
+			timerId = -1;
+		}
+	}
+
+	/**
+	 * The nominal length of the next slot, never shorter than {@link #MIN_SLOT}. Package-private so the
+	 * spread can be checked without waiting for it.
+	 * <p>
+	 * The job at position {@code i} runs after {@code i + 1} slots, so the slot that has it finish on time
+	 * is its remaining time divided by {@code i + 1}, and the slot taken is the smallest of those. For a
+	 * queue scheduled together that is simply the window divided by the queue length; a job with a
+	 * shorter window behind it shortens every slot ahead of it instead of waiting them out. The walk is
+	 * over a queue the refresh budget keeps to a handful of jobs.
+	 * </p>
+	 *
+	 * @param now the current time, on the scheduler's clock.
+	 * @return the slot length in milliseconds, or -1 if nothing is waiting.
+	 */
+	long nextSlot(long now) {
+		if (queue.isEmpty())
+			return -1;
+
+		long slot = Long.MAX_VALUE;
+		int position = 1;
+		for (Job job : queue.values())
+			slot = Math.min(slot, (job.deadline - now) / position++);
+
+		return Math.max(MIN_SLOT, slot);
+	}
+
+	private void arm(long now) {
+		if (timerId != -1)
+			return;
+
+		long slot = nextSlot(now);
+		if (slot < 0)
+			return;
+
+		long jitter = slot * SLOT_JITTER_PERCENT / 100;
+		long delay = Math.max(MIN_SLOT, slot + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1));
+		arm(now, delay);
+	}
+
+	private void arm(long now, long delay) {
+		fireAt = now + delay;
+		timerId = timer.setTimer(delay, this::fire);
+	}
+
+	private void fire(long id) {
+		if (id != timerId)
+			return;
+
+		timerId = -1;
+		Iterator<Map.Entry<Object, Job>> it = queue.entrySet().iterator();
+		if (!it.hasNext())
+			return;
+
+		Map.Entry<Object, Job> head = it.next();
+		Job job = head.getValue();
+		long now = clock.getAsLong();
+
+		long wait = budget.delayFor(job.packets);
+		if (wait > 0 && now < job.deadline + job.window) {
+			log.debug("Maintenance job {} deferred {}ms for the packet budget", head.getKey(), wait);
+			arm(now, Math.max(MIN_SLOT, wait));
+			return;
+		}
+
+		it.remove();
+		try {
+			job.action.run();
+		} catch (Exception e) {
+			// One job failing must not strand the rest of the queue behind a timer that was never re-armed.
+			log.error("Maintenance job {} failed", head.getKey(), e);
+		}
+
+		arm(clock.getAsLong());
+	}
+}
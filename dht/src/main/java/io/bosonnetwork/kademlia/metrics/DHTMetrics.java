@@ -1,8 +1,12 @@
 package io.bosonnetwork.kademlia.metrics;
 
+import java.util.function.IntSupplier;
+
 import io.vertx.core.net.SocketAddress;
 
 import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.rpc.LoadMonitor;
+import io.bosonnetwork.kademlia.security.SketchSuspiciousNodeDetector;
 import io.bosonnetwork.metrics.Metrics;
 
 public interface DHTMetrics extends Metrics {
@@ -15,6 +19,26 @@ public interface DHTMetrics extends Metrics {
 		NO_MATCHED_CALL
 	}
 
+	/**
+	 * The stages of the packet pipeline, as timed by {@link #stageCompleted}.
+	 */
+	enum Stage {
+		/** The admission checks on the event loop: throttle, size, blacklist and suspicious-node detector. */
+		THROTTLE,
+		/** Decrypting an inbound datagram, on a worker. */
+		DECRYPT,
+		/** Parsing a decrypted message, on a worker. */
+		PARSE,
+		/** Handling a parsed message back on the event loop, up to the point it is handed on. */
+		DISPATCH,
+		/** The storage operation behind a request, from issue to completion. */
+		STORAGE,
+		/** Serializing and encrypting an outbound message, on a worker. */
+		ENCODE,
+		/** Writing an encoded datagram to the socket, from issue to completion. */
+		SEND
+	}
+
 	/**
 	 * Called when bytes have been read
 	 *
@@ -77,6 +101,65 @@ public interface DHTMetrics extends Metrics {
 	default void throttledOutbound(String host, int delay) {
 	}
 
+	/**
+	 * Called when a stage of the packet pipeline has completed for one message.
+	 *
+	 * @param stage the stage
+	 * @param nanos the time the stage took
+	 */
+	default void stageCompleted(Stage stage, long nanos) {
+	}
+
+	/**
+	 * Called when a job of the packet pipeline has been picked up by a worker.
+	 *
+	 * @param nanos the time the job waited for a worker
+	 */
+	default void workerQueueTime(long nanos) {
+	}
+
+	/**
+	 * Registers the depth of the worker queue, which is sampled when the metrics are read.
+	 *
+	 * @param depth supplier of the number of jobs waiting for a worker
+	 */
+	default void workerQueueRegistered(IntSupplier depth) {
+	}
+
+	/**
+	 * Called on each firing of the event-loop lag probe.
+	 *
+	 * @param nanos how much later than due the probe fired
+	 */
+	default void eventLoopLag(long nanos) {
+	}
+
+	/**
+	 * Called when the overload level of the packet pipeline has changed.
+	 *
+	 * @param level the new level
+	 */
+	default void loadLevelChanged(LoadMonitor.Level level) {
+	}
+
+	/**
+	 * Called when an inbound request has been refused because the pipeline is overloaded.
+	 *
+	 * @param request  the request refused
+	 * @param answered whether the sender was answered with an error, rather than the request dropped
+	 */
+	default void requestShed(Message request, boolean answered) {
+	}
+
+	/**
+	 * Called periodically, on the DHT's event loop, with the state of the bounded suspicious node
+	 * detector; never called when the node runs the default detector or none.
+	 *
+	 * @param stats the detector's current size, error bound and event counts
+	 */
+	default void suspiciousNodesSampled(SketchSuspiciousNodeDetector.Stats stats) {
+	}
+
 	/**
 	 * Called when exceptions occur for a specific connection.
 	 *
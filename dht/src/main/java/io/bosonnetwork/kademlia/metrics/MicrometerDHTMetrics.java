@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.net.SocketAddress;
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.rpc.LoadMonitor;
+import io.bosonnetwork.kademlia.rpc.RpcCall;
+import io.bosonnetwork.kademlia.rpc.RpcServer;
+import io.bosonnetwork.kademlia.security.SketchSuspiciousNodeDetector;
+
+/**
+ * {@link DHTMetrics} backed by a Micrometer {@link MeterRegistry}, normally the registry of the
+ * Vert.x Micrometer metrics backend.
+ * <ul>
+ *   <li>{@code boson.dht.bytes} - bytes received, sent and dropped, per {@code direction}</li>
+ *   <li>{@code boson.dht.messages} - datagrams received and sent, per {@code direction}</li>
+ *   <li>{@code boson.dht.messages.dropped} - datagrams dropped on arrival, per {@code reason}</li>
+ *   <li>{@code boson.dht.messages.send.failures} - sends that failed, per {@code exception} class</li>
+ *   <li>{@code boson.dht.requests} - requests received and sent, per {@code direction} and {@code method}</li>
+ *   <li>{@code boson.dht.responses} - responses and errors received and sent, per {@code direction},
+ *       {@code method} and {@code type}</li>
+ *   <li>{@code boson.dht.rpc.latency} - round trip of our calls that were answered, per {@code method} and
+ *       {@code type}, as a percentile histogram</li>
+ *   <li>{@code boson.dht.rpc.timeouts} - our calls that were never answered, per {@code method}</li>
+ *   <li>{@code boson.dht.rpc.calls} - our calls by {@code outcome}, answered or lost, and by whether the
+ *       {@code peer} was verified reachable when the call was made; the loss rate is the rate of the lost
+ *       ones over both</li>
+ *   <li>{@code boson.dht.throttled} - datagrams throttled, per {@code direction}</li>
+ *   <li>{@code boson.dht.throttle.delay} - how long the outbound throttle parked a call</li>
+ *   <li>{@code boson.dht.exceptions} - unexpected errors on the socket, per {@code exception} class</li>
+ *   <li>{@code boson.dht.pipeline.stage} - time spent in each {@code stage} of the packet pipeline</li>
+ *   <li>{@code boson.dht.worker.queue.time} - how long pipeline jobs waited for a worker</li>
+ *   <li>{@code boson.dht.worker.queue.depth} - pipeline jobs waiting for a worker</li>
+ *   <li>{@code boson.dht.eventloop.lag} - how late the event-loop probe fired</li>
+ *   <li>{@code boson.dht.load.level} - the overload level: 0 normal, 1 elevated, 2 severe</li>
+ *   <li>{@code boson.dht.requests.shed} - inbound requests refused under load, per {@code method} and
+ *       {@code action}, rejected with an error or dropped</li>
+ *   <li>{@code boson.dht.suspicious.sketch.bytes}, {@code .window.events} and {@code .overcount.bound} -
+ *       the bounded suspicious node detector's memory, the events its counts cover and how far a count
+ *       may err high</li>
+ *   <li>{@code boson.dht.suspicious.sources} - sources the bounded detector holds exactly, per
+ *       {@code state}, tracked or banned</li>
+ *   <li>{@code boson.dht.suspicious.events} - suspicious events the bounded detector has counted, per
+ *       {@code type}, and the sources it has promoted out of the sketch</li>
+ * </ul>
+ * <p>
+ * The {@code boson.dht.suspicious} meters only appear once the DHT reports a sample, which it does only
+ * when the bounded detector is configured.
+ * </p>
+ * <p>
+ * <b>Bounded cardinality.</b> No meter is tagged with a peer's address or id, although most callbacks are
+ * handed one: on a node that talks to the whole network that would be a time series per peer, which is
+ * how a metrics backend is brought down. Every tag above takes its values from a closed set - the
+ * protocol's methods, message types and drop reasons - except the exception classes, which are bounded
+ * by the code. Per-family figures come from the common tags: one instance serves one DHT, and
+ * {@code KadNode} tags each with its network.
+ * </p>
+ * <p>
+ * <b>Latency matching.</b> A response is matched to its request by the RPC server, on the transaction id,
+ * before this is told about it; the latency is read off the call that match produced. Keeping a second
+ * table of transaction ids here would duplicate the server's pending calls, and unlike them would leak
+ * every call cancelled before it ended.
+ * </p>
+ * <p>
+ * <b>Hot path.</b> Every per-message meter is registered up front and reached by array index, so a
+ * callback costs a counter increment and no registry lookup.
+ * </p>
+ */
+public class MicrometerDHTMetrics implements DHTMetrics {
+	private static final Message.Method[] METHODS = Message.Method.values();
+
+	private final MeterRegistry registry;
+	private final Tags tags;
+	private final List<Meter> meters = new CopyOnWriteArrayList<>();
+
+	private final Counter bytesRead;
+	private final Counter bytesWritten;
+	private final Counter bytesDropped;
+	private final Counter messagesReceived;
+	private final Counter messagesSent;
+	private final Map<Reason, Counter> dropped;
+	private final Map<Class<?>, Counter> sendFailures = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Counter> exceptions = new ConcurrentHashMap<>();
+
+	// Indexed by method ordinal
+	private final Counter[] requestsReceived;
+	private final Counter[] requestsSent;
+	private final Counter[] responsesReceived;
+	private final Counter[] responsesSent;
+	private final Counter[] errorsReceived;
+	private final Counter[] errorsSent;
+	private final Timer[] responseLatency;
+	private final Timer[] errorLatency;
+	private final Counter[] timeouts;
+
+	private final Counter verifiedAnswered;
+	private final Counter verifiedLost;
+	private final Counter unverifiedAnswered;
+	private final Counter unverifiedLost;
+
+	private final Counter throttledInbound;
+	private final Counter throttledOutbound;
+	private final DistributionSummary throttleDelay;
+
+	// Indexed by stage ordinal
+	private final Timer[] stages;
+	private final Timer queueTime;
+	private final Timer loopLag;
+	private final AtomicInteger loadLevel = new AtomicInteger();
+	// Indexed by method ordinal
+	private final Counter[] rejected;
+	private final Counter[] shedDropped;
+	private volatile SketchSuspiciousNodeDetector.@Nullable Stats suspiciousNodes;
+
+	/**
+	 * Creates the metrics on the given registry.
+	 *
+	 * @param registry the registry to publish to
+	 * @param tags     common tags added to every meter, e.g. the node id and the network
+	 */
+	public MicrometerDHTMetrics(MeterRegistry registry, Tags tags) {
+		this.registry = registry;
+		this.tags = tags;
+
+		bytesRead = counter("boson.dht.bytes", "Bytes of DHT datagrams", "bytes", Tags.of("direction", "in"));
+		bytesWritten = counter("boson.dht.bytes", "Bytes of DHT datagrams", "bytes", Tags.of("direction", "out"));
+		bytesDropped = counter("boson.dht.bytes", "Bytes of DHT datagrams", "bytes", Tags.of("direction", "dropped"));
+		messagesReceived = counter("boson.dht.messages", "DHT datagrams", null, Tags.of("direction", "in"));
+		messagesSent = counter("boson.dht.messages", "DHT datagrams", null, Tags.of("direction", "out"));
+
+		dropped = new EnumMap<>(Reason.class);
+		for (Reason reason : Reason.values())
+			dropped.put(reason, counter("boson.dht.messages.dropped", "DHT datagrams dropped on arrival", null,
+					Tags.of("reason", reason.name().toLowerCase())));
+
+		requestsReceived = perMethod("boson.dht.requests", "DHT requests", Tags.of("direction", "in"));
+		requestsSent = perMethod("boson.dht.requests", "DHT requests", Tags.of("direction", "out"));
+		responsesReceived = perMethod("boson.dht.responses", "DHT responses",
+				Tags.of("direction", "in", "type", "response"));
+		responsesSent = perMethod("boson.dht.responses", "DHT responses",
+				Tags.of("direction", "out", "type", "response"));
+		errorsReceived = perMethod("boson.dht.responses", "DHT responses",
+				Tags.of("direction", "in", "type", "error"));
+		errorsSent = perMethod("boson.dht.responses", "DHT responses",
+				Tags.of("direction", "out", "type", "error"));
+		timeouts = perMethod("boson.dht.rpc.timeouts", "DHT calls never answered", Tags.empty());
+
+		responseLatency = new Timer[METHODS.length];
+		errorLatency = new Timer[METHODS.length];
+		for (Message.Method method : METHODS) {
+			responseLatency[method.ordinal()] = latency(method, "response");
+			errorLatency[method.ordinal()] = latency(method, "error");
+		}
+
+		verifiedAnswered = counter("boson.dht.rpc.calls", "DHT calls by outcome", null,
+				Tags.of("peer", "verified", "outcome", "answered"));
+		verifiedLost = counter("boson.dht.rpc.calls", "DHT calls by outcome", null,
+				Tags.of("peer", "verified", "outcome", "lost"));
+		unverifiedAnswered = counter("boson.dht.rpc.calls", "DHT calls by outcome", null,
+				Tags.of("peer", "unverified", "outcome", "answered"));
+		unverifiedLost = counter("boson.dht.rpc.calls", "DHT calls by outcome", null,
+				Tags.of("peer", "unverified", "outcome", "lost"));
+
+		throttledInbound = counter("boson.dht.throttled", "DHT datagrams throttled", null,
+				Tags.of("direction", "in"));
+		throttledOutbound = counter("boson.dht.throttled", "DHT datagrams throttled", null,
+				Tags.of("direction", "out"));
+		throttleDelay = DistributionSummary.builder("boson.dht.throttle.delay")
+				.description("How long the outbound throttle parked a DHT call")
+				.baseUnit("milliseconds")
+				.tags(tags)
+				.register(registry);
+		meters.add(throttleDelay);
+
+		stages = new Timer[Stage.values().length];
+		for (Stage stage : Stage.values()) {
+			stages[stage.ordinal()] = Timer.builder("boson.dht.pipeline.stage")
+					.description("Time spent in a stage of the DHT packet pipeline")
+					.tags(tags)
+					.tag("stage", stage.name().toLowerCase())
+					.register(registry);
+			meters.add(stages[stage.ordinal()]);
+		}
+
+		// The two saturation signals get histograms, the stages do not: a tail in either of these is the
+		// overload, while a stage's mean and max already say which one it sits in.
+		queueTime = saturation("boson.dht.worker.queue.time", "Time DHT pipeline jobs waited for a worker");
+		loopLag = saturation("boson.dht.eventloop.lag", "How late the DHT event-loop probe fired");
+		meters.add(Gauge.builder("boson.dht.load.level", loadLevel, AtomicInteger::get)
+				.description("Overload level of the DHT packet pipeline: 0 normal, 1 elevated, 2 severe")
+				.tags(tags)
+				.register(registry));
+
+		rejected = perMethod("boson.dht.requests.shed", "DHT requests refused under load",
+				Tags.of("action", "rejected"));
+		shedDropped = perMethod("boson.dht.requests.shed", "DHT requests refused under load",
+				Tags.of("action", "dropped"));
+	}
+
+	public MicrometerDHTMetrics(MeterRegistry registry) {
+		this(registry, Tags.empty());
+	}
+
+	private Counter counter(String name, String description, @Nullable String baseUnit, Tags extra) {
+		Counter counter = Counter.builder(name)
+				.description(description)
+				.baseUnit(baseUnit)
+				.tags(tags)
+				.tags(extra)
+				.register(registry);
+		meters.add(counter);
+		return counter;
+	}
+
+	private Counter[] perMethod(String name, String description, Tags extra) {
+		Counter[] counters = new Counter[METHODS.length];
+		for (Message.Method method : METHODS)
+			counters[method.ordinal()] = counter(name, description, null,
+					extra.and("method", method.name().toLowerCase()));
+		return counters;
+	}
+
+	private Timer latency(Message.Method method, String type) {
+		// Bounded by the call timeout: nothing answered later than that is matched to a call
+		Timer timer = Timer.builder("boson.dht.rpc.latency")
+				.description("Round-trip time of answered DHT calls")
+				.tags(tags)
+				.tag("method", method.name().toLowerCase())
+				.tag("type", type)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofMillis(1))
+				.maximumExpectedValue(Duration.ofMillis(RpcServer.RPC_CALL_TIMEOUT_MAX))
+				.register(registry);
+		meters.add(timer);
+		return timer;
+	}
+
+	private Timer saturation(String name, String description) {
+		Timer timer = Timer.builder(name)
+				.description(description)
+				.tags(tags)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)))
+				.maximumExpectedValue(Duration.ofMillis(RpcServer.RPC_CALL_TIMEOUT_MAX))
+				.register(registry);
+		meters.add(timer);
+		return timer;
+	}
+
+	private Counter byClass(Map<Class<?>, Counter> counters, String name, String description, Throwable error) {
+		return counters.computeIfAbsent(error.getClass(), c -> counter(name, description, null,
+				Tags.of("exception", c.getSimpleName())));
+	}
+
+	@Override
+	public void bytesRead(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesRead.increment(numberOfBytes);
+	}
+
+	@Override
+	public void bytesDropped(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesDropped.increment(numberOfBytes);
+	}
+
+	@Override
+	public void bytesWritten(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesWritten.increment(numberOfBytes);
+	}
+
+	@Override
+	public void messageReceived(SocketAddress remoteAddress) {
+		messagesReceived.increment();
+	}
+
+	@Override
+	public void messageDropped(SocketAddress remoteAddress, Reason reason) {
+		dropped.get(reason).increment();
+	}
+
+	@Override
+	public void messageSent(SocketAddress remoteAddress) {
+		messagesSent.increment();
+	}
+
+	@Override
+	public void messageSendFailed(SocketAddress remoteAddress, Throwable error) {
+		byClass(sendFailures, "boson.dht.messages.send.failures", "DHT datagrams that failed to send", error)
+				.increment();
+	}
+
+	@Override
+	public void requestReceived(Message request) {
+		requestsReceived[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void responseSent(Message response) {
+		(response.isError() ? errorsSent : responsesSent)[response.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void requestSent(Message request) {
+		requestsSent[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void responseReceived(Message response) {
+		int method = response.getMethod().ordinal();
+		(response.isError() ? errorsReceived : responsesReceived)[method].increment();
+
+		RpcCall call = response.getAssociatedCall();
+		long rtt = call != null ? call.getRTT() : -1;
+		if (rtt >= 0)
+			(response.isError() ? errorLatency : responseLatency)[method].record(rtt, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void responseTimeout(Message request) {
+		timeouts[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void verifiedLossRateUpdate(double rate) {
+		(rate > 0 ? verifiedLost : verifiedAnswered).increment();
+	}
+
+	@Override
+	public void unverifiedLossRateUpdate(double rate) {
+		(rate > 0 ? unverifiedLost : unverifiedAnswered).increment();
+	}
+
+	@Override
+	public void throttledInbound(String host) {
+		throttledInbound.increment();
+	}
+
+	@Override
+	public void throttledOutbound(String host, int delay) {
+		throttledOutbound.increment();
+		throttleDelay.record(delay);
+	}
+
+	@Override
+	public void stageCompleted(Stage stage, long nanos) {
+		stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void workerQueueTime(long nanos) {
+		queueTime.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void workerQueueRegistered(IntSupplier depth) {
+		// Gauges hold their state object weakly by default, and nothing else references the supplier
+		meters.add(Gauge.builder("boson.dht.worker.queue.depth", depth, IntSupplier::getAsInt)
+				.description("DHT pipeline jobs waiting for a worker")
+				.tags(tags)
+				.strongReference(true)
+				.register(registry));
+	}
+
+	@Override
+	public void eventLoopLag(long nanos) {
+		loopLag.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void loadLevelChanged(LoadMonitor.Level level) {
+		loadLevel.set(level.ordinal());
+	}
+
+	@Override
+	public void requestShed(Message request, boolean answered) {
+		(answered ? rejected : shedDropped)[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void suspiciousNodesSampled(SketchSuspiciousNodeDetector.Stats stats) {
+		// Only ever called on the DHT's event loop, so registering on the first sample needs no guard.
+		boolean first = suspiciousNodes == null;
+		suspiciousNodes = stats;
+		if (!first)
+			return;
+
+		suspiciousGauge("boson.dht.suspicious.sketch.bytes", "Memory held by the suspicious node sketch",
+				"bytes", Tags.empty(), SketchSuspiciousNodeDetector.Stats::sketchBytes);
+		suspiciousGauge("boson.dht.suspicious.window.events", "Suspicious events the sketch's counts cover",
+				null, Tags.empty(), SketchSuspiciousNodeDetector.Stats::windowEvents);
+		suspiciousGauge("boson.dht.suspicious.overcount.bound", "How far a sketch count may err high",
+				null, Tags.empty(), SketchSuspiciousNodeDetector.Stats::overcountBound);
+		suspiciousGauge("boson.dht.suspicious.sources", "Sources the suspicious node detector holds exactly",
+				null, Tags.of("state", "tracked"), SketchSuspiciousNodeDetector.Stats::trackedSources);
+		suspiciousGauge("boson.dht.suspicious.sources", "Sources the suspicious node detector holds exactly",
+				null, Tags.of("state", "banned"), SketchSuspiciousNodeDetector.Stats::bannedSources);
+
+		suspiciousCounter("promotion", SketchSuspiciousNodeDetector.Stats::promotions);
+		suspiciousCounter("malformed", SketchSuspiciousNodeDetector.Stats::malformedMessages);
+		suspiciousCounter("inconsistent", SketchSuspiciousNodeDetector.Stats::inconsistencies);
+		suspiciousCounter("identity_churn", SketchSuspiciousNodeDetector.Stats::identityChurns);
+		suspiciousCounter("misbehavior", SketchSuspiciousNodeDetector.Stats::misbehaviors);
+	}
+
+	private void suspiciousGauge(String name, String description, @Nullable String unit, Tags extra,
+								 ToDoubleFunction<SketchSuspiciousNodeDetector.Stats> value) {
+		meters.add(Gauge.builder(name, this, m -> {
+					SketchSuspiciousNodeDetector.Stats stats = m.suspiciousNodes;
+					return stats == null ? Double.NaN : value.applyAsDouble(stats);
+				})
+				.description(description)
+				.baseUnit(unit)
+				.tags(tags)
+				.tags(extra)
+				.register(registry));
+	}
+
+	private void suspiciousCounter(String type, ToDoubleFunction<SketchSuspiciousNodeDetector.Stats> value) {
+		meters.add(FunctionCounter.builder("boson.dht.suspicious.events", this, m -> {
+					SketchSuspiciousNodeDetector.Stats stats = m.suspiciousNodes;
+					return stats == null ? 0 : value.applyAsDouble(stats);
+				})
+				.description("Suspicious events counted by the bounded suspicious node detector")
+				.tags(tags)
+				.tag("type", type)
+				.register(registry));
+	}
+
+	@Override
+	public void exceptionOccurred(Throwable error) {
+		byClass(exceptions, "boson.dht.exceptions", "Unexpected errors on the DHT socket", error).increment();
+	}
+
+	@Override
+	public void close() {
+		meters.forEach(registry::remove);
+		meters.clear();
+		sendFailures.clear();
+		exceptions.clear();
+		suspiciousNodes = null;
+	}
+}
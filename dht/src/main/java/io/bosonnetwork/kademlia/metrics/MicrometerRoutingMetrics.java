@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.kademlia.routing.RoutingTableStats;
+import io.bosonnetwork.kademlia.utils.TimeoutSampler;
+
+/**
+ * {@link RoutingMetrics} backed by a Micrometer {@link MeterRegistry}, normally the registry of the
+ * Vert.x Micrometer metrics backend.
+ * <p>
+ * Every meter reads the last sample, so the values move at the sampling interval and a scrape never
+ * touches the routing table:
+ * <ul>
+ *   <li>{@code boson.dht.routing.bucket.entries} - main entries, per bucket</li>
+ *   <li>{@code boson.dht.routing.bucket.fill} - main entries over k, per bucket</li>
+ *   <li>{@code boson.dht.routing.bucket.replacements} - replacements, per bucket</li>
+ *   <li>{@code boson.dht.routing.bucket.failing} - main entries with unanswered requests, per bucket</li>
+ *   <li>{@code boson.dht.routing.bucket.rtt} - percentiles of the entries' average RTT, per bucket</li>
+ *   <li>{@code boson.dht.routing.entry.age} - main entries younger than each bound, cumulative, with
+ *       {@code le} in seconds in the manner of a Prometheus histogram</li>
+ *   <li>{@code boson.dht.routing.churn} - ids that joined or left the main entries or replacements</li>
+ *   <li>{@code boson.dht.routing.promotions} - replacements promoted to main entries</li>
+ *   <li>{@code boson.dht.rpc.rtt} - the RPC server's RTT distribution, the one the timeouts come from</li>
+ *   <li>{@code boson.dht.rpc.rtt.samples} - RTTs that distribution was built from</li>
+ *   <li>{@code boson.dht.rpc.timeout} - the timeout currently given to new calls</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Buckets are tagged with their index in the table. Buckets split and merge, so an index is a distance
+ * band rather than a fixed bucket, and an index the table no longer has reports NaN until it comes back.
+ * One instance serves one DHT; tell the two families apart with the common tags.
+ * </p>
+ */
+public class MicrometerRoutingMetrics implements RoutingMetrics {
+	private final MeterRegistry registry;
+	private final Tags tags;
+
+	private final List<Meter> meters = new CopyOnWriteArrayList<>();
+	// Bucket meters are registered as the table first grows to each index, and kept afterwards.
+	private int bucketMeters;
+
+	private volatile @Nullable RoutingTableStats stats;
+
+	/**
+	 * Creates the metrics on the given registry.
+	 *
+	 * @param registry the registry to publish to
+	 * @param tags     common tags added to every meter, e.g. the node id and the network
+	 */
+	public MicrometerRoutingMetrics(MeterRegistry registry, Tags tags) {
+		this.registry = registry;
+		this.tags = tags;
+
+		long[] bounds = RoutingTableStats.AGE_BOUNDS;
+		for (int i = 0; i <= bounds.length; i++) {
+			final int slots = i + 1;
+			gauge("boson.dht.routing.entry.age", "Routing table entries younger than the bound",
+					Tags.of("le", i < bounds.length ? Long.toString(bounds[i]) : "+Inf"),
+					s -> cumulative(s.getAgeHistogram(), slots));
+		}
+
+		churn("entries", "added", RoutingTableStats.Churn::entriesAdded);
+		churn("entries", "removed", RoutingTableStats.Churn::entriesRemoved);
+		churn("replacements", "added", RoutingTableStats.Churn::replacementsAdded);
+		churn("replacements", "removed", RoutingTableStats.Churn::replacementsRemoved);
+		meters.add(FunctionCounter.builder("boson.dht.routing.promotions", this,
+						m -> m.read(s -> s.getChurn().promotions()))
+				.description("Replacements promoted to main routing table entries")
+				.tags(tags)
+				.register(registry));
+
+		rtt("0.1", TimeoutSampler.Stats::p10);
+		rtt("0.5", TimeoutSampler.Stats::p50);
+		rtt("0.9", TimeoutSampler.Stats::p90);
+		rtt("0.99", TimeoutSampler.Stats::p99);
+		gauge("boson.dht.rpc.rtt.samples", "RTTs the RPC timeout estimate was built from", Tags.empty(),
+				s -> s.getRtt().samples());
+		gauge("boson.dht.rpc.timeout", "Timeout given to new RPC calls, in milliseconds", Tags.empty(),
+				s -> s.getRtt().stallTimeout());
+	}
+
+	public MicrometerRoutingMetrics(MeterRegistry registry) {
+		this(registry, Tags.empty());
+	}
+
+	private void gauge(String name, String description, Tags extra, ToDoubleFunction<RoutingTableStats> value) {
+		// Gauges hold their state object weakly by default, and nothing else references the lambda's target
+		meters.add(Gauge.builder(name, this, m -> m.read(value))
+				.description(description)
+				.tags(tags)
+				.tags(extra)
+				.strongReference(true)
+				.register(registry));
+	}
+
+	private void churn(String list, String change, ToDoubleFunction<RoutingTableStats.Churn> value) {
+		meters.add(FunctionCounter.builder("boson.dht.routing.churn", this,
+						m -> m.read(s -> value.applyAsDouble(s.getChurn())))
+				.description("Ids that joined or left the routing table, counted between samples")
+				.tags(tags)
+				.tag("list", list)
+				.tag("change", change)
+				.register(registry));
+	}
+
+	private void rtt(String quantile, ToDoubleFunction<TimeoutSampler.Stats> value) {
+		gauge("boson.dht.rpc.rtt", "RPC round-trip time distribution, in milliseconds", Tags.of("quantile", quantile),
+				s -> value.applyAsDouble(s.getRtt()));
+	}
+
+	private void bucketGauges(int index) {
+		Tags bucket = Tags.of("bucket", Integer.toString(index));
+		bucketGauge(index, "boson.dht.routing.bucket.entries", "Main entries in a routing table bucket", bucket,
+				RoutingTableStats.Bucket::entries);
+		gauge("boson.dht.routing.bucket.fill", "Main entries in a routing table bucket over k", bucket, s ->
+				index < s.getBuckets().size() ? (double) s.getBuckets().get(index).entries() / s.getK() : Double.NaN);
+		bucketGauge(index, "boson.dht.routing.bucket.replacements", "Replacements in a routing table bucket",
+				bucket, RoutingTableStats.Bucket::replacements);
+		bucketGauge(index, "boson.dht.routing.bucket.failing",
+				"Main entries of a routing table bucket with requests unanswered", bucket,
+				RoutingTableStats.Bucket::failing);
+		bucketRtt(index, bucket, "0.5", RoutingTableStats.Bucket::rttP50);
+		bucketRtt(index, bucket, "0.9", RoutingTableStats.Bucket::rttP90);
+		bucketRtt(index, bucket, "0.99", RoutingTableStats.Bucket::rttP99);
+	}
+
+	private void bucketGauge(int index, String name, String description, Tags bucket,
+							 ToDoubleFunction<RoutingTableStats.Bucket> value) {
+		gauge(name, description, bucket, s ->
+				index < s.getBuckets().size() ? value.applyAsDouble(s.getBuckets().get(index)) : Double.NaN);
+	}
+
+	private void bucketRtt(int index, Tags bucket, String quantile, ToDoubleFunction<RoutingTableStats.Bucket> value) {
+		// -1 means nothing measured, which is not a latency
+		bucketGauge(index, "boson.dht.routing.bucket.rtt",
+				"Average RTT of the entries of a routing table bucket, in milliseconds",
+				bucket.and("quantile", quantile), b -> {
+					double rtt = value.applyAsDouble(b);
+					return rtt < 0 ? Double.NaN : rtt;
+				});
+	}
+
+	private double read(ToDoubleFunction<RoutingTableStats> value) {
+		RoutingTableStats s = stats;
+		return s == null ? Double.NaN : value.applyAsDouble(s);
+	}
+
+	private static double cumulative(long[] histogram, int slots) {
+		long sum = 0;
+		for (int i = 0; i < slots; i++)
+			sum += histogram[i];
+		return sum;
+	}
+
+	@Override
+	public void routingTableSampled(RoutingTableStats stats) {
+		this.stats = stats;
+
+		// Only ever called on the DHT's event loop, so the count needs no guard.
+		while (bucketMeters < stats.getBuckets().size())
+			bucketGauges(bucketMeters++);
+	}
+
+	@Override
+	public void close() {
+		meters.forEach(registry::remove);
+		meters.clear();
+		stats = null;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link StorageMetrics} backed by a Micrometer {@link MeterRegistry}, normally the registry of the
+ * Vert.x Micrometer metrics backend.
+ * <p>
+ * Latencies are published as percentile histograms so the tail can be aggregated across nodes by
+ * the monitoring system rather than estimated per node:
+ * <ul>
+ *   <li>{@code boson.storage.operations} - timer per operation and outcome</li>
+ *   <li>{@code boson.storage.rows} - rows returned or changed, per operation</li>
+ *   <li>{@code boson.storage.pool.wait} - time to obtain a connection, per read/write</li>
+ *   <li>{@code boson.storage.transaction.retries} - transient write failures retried, per operation</li>
+ *   <li>{@code boson.storage.queue.depth} - pending operations of each registered queue</li>
+ * </ul>
+ * </p>
+ */
+public class MicrometerStorageMetrics implements StorageMetrics {
+	private final MeterRegistry registry;
+	private final Tags tags;
+
+	// The meters are looked up on every operation; caching them keeps the hot path to a map hit
+	// instead of a registry lookup that builds a new meter id each time.
+	private final Map<String, Timer> succeeded = new ConcurrentHashMap<>();
+	private final Map<String, Timer> failed = new ConcurrentHashMap<>();
+	private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+	private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+	private final List<Gauge> queues = new CopyOnWriteArrayList<>();
+	private final Timer readWait;
+	private final Timer writeWait;
+
+	/**
+	 * Creates the metrics on the given registry.
+	 *
+	 * @param registry the registry to publish to
+	 * @param tags     common tags added to every meter, e.g. the node id
+	 */
+	public MicrometerStorageMetrics(MeterRegistry registry, Tags tags) {
+		this.registry = registry;
+		this.tags = tags;
+		this.readWait = poolWaitTimer("read");
+		this.writeWait = poolWaitTimer("write");
+	}
+
+	public MicrometerStorageMetrics(MeterRegistry registry) {
+		this(registry, Tags.empty());
+	}
+
+	private Timer poolWaitTimer(String mode) {
+		return Timer.builder("boson.storage.pool.wait")
+				.description("Time storage operations waited for a database connection")
+				.tags(tags)
+				.tag("mode", mode)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private Timer operationTimer(String operation, String outcome) {
+		return Timer.builder("boson.storage.operations")
+				.description("Latency of storage operations")
+				.tags(tags)
+				.tag("operation", operation)
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	@Override
+	public void operationCompleted(String operation, long nanos, boolean succeeded) {
+		Timer timer = succeeded ?
+				this.succeeded.computeIfAbsent(operation, op -> operationTimer(op, "success")) :
+				this.failed.computeIfAbsent(operation, op -> operationTimer(op, "failure"));
+		timer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void rowsTouched(String operation, long count) {
+		rows.computeIfAbsent(operation, op -> DistributionSummary.builder("boson.storage.rows")
+				.description("Rows returned or changed by storage operations")
+				.baseUnit("rows")
+				.tags(tags)
+				.tag("operation", op)
+				.publishPercentileHistogram()
+				.register(registry)
+		).record(count);
+	}
+
+	@Override
+	public void connectionAcquired(boolean write, long nanos) {
+		(write ? writeWait : readWait).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void transactionRetried(String operation) {
+		retries.computeIfAbsent(operation, op -> Counter.builder("boson.storage.transaction.retries")
+				.description("Write transactions retried after a transient failure")
+				.tags(tags)
+				.tag("operation", op)
+				.register(registry)
+		).increment();
+	}
+
+	@Override
+	public void queueRegistered(String queue, IntSupplier depth) {
+		// Gauges hold their state object weakly by default, and nothing else references the supplier
+		queues.add(Gauge.builder("boson.storage.queue.depth", depth, IntSupplier::getAsInt)
+				.description("Storage operations waiting in a queue")
+				.tags(tags)
+				.tag("queue", queue)
+				.strongReference(true)
+				.register(registry));
+	}
+
+	@Override
+	public void close() {
+		succeeded.values().forEach(registry::remove);
+		failed.values().forEach(registry::remove);
+		rows.values().forEach(registry::remove);
+		retries.values().forEach(registry::remove);
+		queues.forEach(registry::remove);
+		registry.remove(readWait);
+		registry.remove(writeWait);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.metrics;
+
+import io.bosonnetwork.kademlia.routing.RoutingTableStats;
+import io.bosonnetwork.metrics.Metrics;
+
+/**
+ * Metrics SPI of a DHT's routing table.
+ * <p>
+ * The table is owned by its DHT's event loop and cannot be read from a scrape thread, so it is not exposed
+ * live: the DHT samples it periodically on its own thread and hands each sample over here. Everything a
+ * sample carries is immutable, so an implementation may keep the last one and read it from any thread.
+ * </p>
+ */
+public interface RoutingMetrics extends Metrics {
+	/**
+	 * Called on the DHT's event loop each time the routing table has been sampled.
+	 *
+	 * @param stats the sample, including the RPC server's RTT statistics.
+	 */
+	default void routingTableSampled(RoutingTableStats stats) {
+	}
+}
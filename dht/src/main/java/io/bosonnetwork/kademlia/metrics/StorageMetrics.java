@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.metrics;
+
+import java.util.function.IntSupplier;
+
+import io.bosonnetwork.metrics.Metrics;
+
+/**
+ * Metrics SPI of the node storage.
+ * <p>
+ * Operations are identified by the same names the storage uses in its error messages, e.g.
+ * {@code putPeer} or {@code getValues/announcedBefore/paginated}, so the set of names is small and
+ * fixed. All callbacks may be invoked from any event-loop or worker thread.
+ * </p>
+ */
+public interface StorageMetrics extends Metrics {
+	/**
+	 * Called when a storage operation has completed.
+	 *
+	 * @param operation the operation name
+	 * @param nanos     the elapsed time from the call to the completion, including the wait for a
+	 *                  connection and any transaction retries
+	 * @param succeeded whether the operation succeeded
+	 */
+	default void operationCompleted(String operation, long nanos, boolean succeeded) {
+	}
+
+	/**
+	 * Called when a successful storage operation has returned or changed rows.
+	 *
+	 * @param operation the operation name
+	 * @param rows      the number of rows returned by a query, or changed by an update
+	 */
+	default void rowsTouched(String operation, long rows) {
+	}
+
+	/**
+	 * Called when a connection has been handed to an operation.
+	 *
+	 * @param write whether the connection was taken for a write transaction
+	 * @param nanos the time the operation waited for it, including any write queue it sat in
+	 */
+	default void connectionAcquired(boolean write, long nanos) {
+	}
+
+	/**
+	 * Called when a write transaction failed transiently (lock contention, serialization failure or
+	 * deadlock) and is run again.
+	 *
+	 * @param operation the operation name
+	 */
+	default void transactionRetried(String operation) {
+	}
+
+	/**
+	 * Registers a queue of pending operations, whose depth is sampled when the metrics are read.
+	 *
+	 * @param queue the queue name, unique within the node
+	 * @param depth supplier of the current queue depth
+	 */
+	default void queueRegistered(String queue, IntSupplier depth) {
+	}
+}
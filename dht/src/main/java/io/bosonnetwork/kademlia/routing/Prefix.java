@@ -92,16 +92,18 @@ public class Prefix extends Id {
 	 * @throws IllegalArgumentException If the id is null or depth is out of range.
 	 */
 	public Prefix(Id id, int depth) {
+		super(prefixBytes(id, depth));
+		this.depth = depth;
+	}
+
+	private static byte[] prefixBytes(Id id, int depth) {
 		if (id == null)
 			throw new IllegalArgumentException("id cannot be null");
 
 		if (depth < -1 || depth >= Id.SIZE)
 			throw new IllegalArgumentException("Depth must be in range [-1, " + Id.SIZE + ")");
 
-		if (depth != -1)
-			bitsCopy(id, this, depth);
-
-		this.depth = depth;
+		return depth == -1 ? new byte[Id.BYTES] : bitsCopy(id, Id.zero(), depth);
 	}
 
 	/**
@@ -186,14 +188,15 @@ public class Prefix extends Id {
 		if (!isSplittable())
 			throw new IllegalStateException("Prefix is not splittable (depth >= " + (Id.SIZE - 1) + ")");
 
+		// Built from the bytes rather than patched afterwards: an id's words are derived on construction.
 		final int branchDepth = depth + 1;
-		Prefix branch = new Prefix(this, branchDepth);
+		byte[] bytes = bytesUnsafe().clone();
 		if (highBranch)
-			branch.bytesUnsafe()[branchDepth / 8] |= (byte) (0x80 >> (branchDepth % 8));
+			bytes[branchDepth / 8] |= (byte) (0x80 >> (branchDepth % 8));
 		else
-			branch.bytesUnsafe()[branchDepth / 8] &= (byte) ~(0x80 >> (branchDepth % 8));
+			bytes[branchDepth / 8] &= (byte) ~(0x80 >> (branchDepth % 8));
 
-		return branch;
+		return new Prefix(bytes, branchDepth);
 	}
 
 	/**
@@ -223,10 +226,7 @@ public class Prefix extends Id {
 		Id id = Id.random();
 
 		// Copy the prefix bits to ensure the random Id falls within this prefix
-		if (depth != -1)
-			bitsCopy(this, id, depth);
-
-		return id;
+		return depth == -1 ? id : Id.of(bitsCopy(this, id, depth));
 	}
 
 	/**
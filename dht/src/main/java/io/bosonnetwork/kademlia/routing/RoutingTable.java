@@ -23,11 +23,10 @@
 
 package io.bosonnetwork.kademlia.routing;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.io.UncheckedIOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -35,12 +34,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
 import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
@@ -110,6 +110,13 @@ public class RoutingTable {
 	 */
 	private final Map<InetAddress, Integer> sourceCounts;
 
+	/** First bytes of the binary encoding: "BRT" and the format version. */
+	static final int SNAPSHOT_MAGIC = 0x42525401;
+	/** The binary encoding's header: magic, node id, timestamp and the two record counts. */
+	static final int SNAPSHOT_HEADER_BYTES = Integer.BYTES + Id.BYTES + Long.BYTES + Integer.BYTES * 2;
+	/** A saved table older than this is put back through {@link #put} rather than into its recorded buckets. */
+	private static final long MAX_RESTORE_AGE = 24 * 60 * 60 * 1000;
+
 	protected static final Logger log = LoggerFactory.getLogger(RoutingTable.class);
 
 	/**
@@ -781,15 +788,21 @@ public class RoutingTable {
 	 * file read is exactly what keeping the two apart avoids.
 	 * </p>
 	 * <p>
-	 * Damaged input is survivable by design. A truncated or corrupt encoding is logged and abandoned
-	 * partway, keeping whatever was already restored - a cache that turns out to be unusable should cost
-	 * a node its warm start, not its startup. The count that comes back is what makes that survivable
-	 * case answerable: a caller cannot tell an empty cache from a broken one by looking at the table
+	 * Two encodings are accepted: the binary one {@link #save()} writes now, and the CBOR map it used to
+	 * write, so that a cache left by an older node still warm-starts a newer one. They are told apart by
+	 * the first bytes - a CBOR map never begins with {@link #SNAPSHOT_MAGIC}.
+	 * </p>
+	 * <p>
+	 * Damaged input is survivable by design. A corrupt encoding is logged and abandoned - partway for
+	 * CBOR, keeping whatever was already restored; before the first entry for the binary form, whose
+	 * checksum covers the whole thing - because a cache that turns out to be unusable should cost a node
+	 * its warm start, not its startup. The count that comes back is what makes that survivable case
+	 * answerable: a caller cannot tell an empty cache from a broken one by looking at the table
 	 * afterwards, because a table that restored nothing looks exactly like the one it started with.
 	 * </p>
 	 *
-	 * @param data the saved routing table, in the CBOR format {@link #save()} produces; null or empty
-	 *             restores nothing.
+	 * @param data the saved routing table, in either format described above; null or empty restores
+	 *             nothing.
 	 * @return how many entries and replacements were read out of the encoding - what this call
 	 *         contributed, not what the table now holds. Zero means the cache was empty, unreadable, or
 	 *         damaged before its first entry, and the three are deliberately not distinguished: to every
@@ -800,7 +813,26 @@ public class RoutingTable {
 		if (data == null || data.length == 0)
 			return 0;
 
-		final long MAX_AGE = 24 * 60 * 60 * 1000;
+		try {
+			if (Snapshot.isBinary(data)) {
+				Snapshot snapshot = Snapshot.decode(data);
+				return restore(snapshot.nodeId(), snapshot.timestamp(), snapshot.records());
+			}
+
+			return loadCbor(data);
+		} catch (IOException e) {
+			log.error("Can not load the routing table.", e);
+			return 0;
+		}
+	}
+
+	/**
+	 * Restores the CBOR encoding older nodes wrote, keeping whatever was restored before any damage.
+	 *
+	 * @param data the CBOR-encoded routing table.
+	 * @return how many entries and replacements were restored.
+	 */
+	private int loadCbor(byte[] data) {
 		int totalEntries = 0;
 		int totalReplacements = 0;
 
@@ -825,10 +857,8 @@ public class RoutingTable {
 				throw new IOException("Invalid nodeId", e);
 			}
 
-			boolean idMatched = nodeId.equals(localId);
 			long timestamp = timestampNode.asLong();
-			long age = System.currentTimeMillis() - timestamp;
-			boolean staled = age > MAX_AGE;
+			boolean warm = isWarm(nodeId, timestamp);
 
 			JsonNode nodes = root.get("entries");
 			if (nodes == null || !nodes.isArray())
@@ -839,28 +869,9 @@ public class RoutingTable {
 				Map<String, Object> map = mapper.convertValue(node, Json.mapType());
 				KBucketEntry entry = KBucketEntry.fromMap(map);
 				if (entry != null) {
-					boolean stored;
-					if (idMatched && !staled) {
-						KBucket bucket = bucketOf(entry.getId());
-						while (bucket.isFull()) {
-							split(bucket);
-							bucket = bucketOf(entry.getId());
-						}
-
-						// The warm path reaches the bucket directly, so it has to carry the diversity budget
-						// itself - a table saved before this limit existed, or under a wider one, would
-						// otherwise walk straight back in.
-						stored = withinDiversityBudget(entry, bucket) && bucket.put(entry);
-						if (stored)
-							countSource(entry);
-					} else {
-						// TODO: need to improve
-						stored = put(entry);
-					}
-
 					// Counted when stored rather than when read: what the caller does with this number is
 					// decide whether it has a table to work with.
-					if (stored)
+					if (restoreEntry(entry, warm))
 						totalEntries++;
 				} else {
 					log.warn("Invalid entry: {}", node);
@@ -876,13 +887,8 @@ public class RoutingTable {
 					Map<String, Object> map = mapper.convertValue(node, Json.mapType());
 					KBucketEntry entry = KBucketEntry.fromMap(map);
 					if (entry != null) {
-						KBucket bucket = bucketOf(entry.getId());
-						if (bucket.find(entry.getId(), entry.getAddress()) == null
-								&& withinDiversityBudget(entry, bucket)
-								&& bucket.putAsReplacement(entry)) {
-							countSource(entry);
+						if (restoreReplacement(entry))
 							totalReplacements++;
-						}
 					} else {
 						log.warn("Invalid replacement entry: {}", node);
 					}
@@ -899,7 +905,114 @@ public class RoutingTable {
 	}
 
 	/**
-	 * Encodes the current state of the routing table as CBOR, for a later {@link #load(byte[])}.
+	 * Restores a run of binary records into the buckets, straight from the buffer.
+	 * <p>
+	 * Two passes over the same bytes rather than one pass into two lists: the entries have to be in place
+	 * before the replacements, since a replacement is only taken by a bucket that exists and is full, and
+	 * the flag that says which is which sits at a fixed offset in every record. Nothing is built along the
+	 * way but the entries themselves.
+	 * </p>
+	 *
+	 * @param nodeId    the id of the node that saved the records.
+	 * @param timestamp when they were saved.
+	 * @param records   the records, from the buffer's position to its limit.
+	 * @return how many entries and replacements were restored.
+	 */
+	int restore(Id nodeId, long timestamp, ByteBuffer records) {
+		final boolean warm = isWarm(nodeId, timestamp);
+		final int start = records.position();
+		final int end = start + (records.remaining() / KBucketEntry.RECORD_BYTES) * KBucketEntry.RECORD_BYTES;
+
+		int totalEntries = 0;
+		int totalReplacements = 0;
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean replacements = pass == 1;
+			for (int pos = start; pos < end; pos += KBucketEntry.RECORD_BYTES) {
+				boolean replacement = (records.get(pos + KBucketEntry.RECORD_FLAGS_OFFSET) & KBucketEntry.FLAG_REPLACEMENT) != 0;
+				if (replacement != replacements)
+					continue;
+
+				records.position(pos);
+				KBucketEntry entry = KBucketEntry.read(records);
+				if (entry == null) {
+					log.warn("Invalid {} record at offset {}", replacement ? "replacement" : "entry", pos - start);
+					continue;
+				}
+
+				if (replacement) {
+					if (restoreReplacement(entry))
+						totalReplacements++;
+				} else {
+					if (restoreEntry(entry, warm))
+						totalEntries++;
+				}
+			}
+		}
+
+		records.position(end);
+		log.info("Loaded {} entries {} replacements from the saved routing table, it was {} old.",
+				totalEntries, totalReplacements, Duration.ofMillis(System.currentTimeMillis() - timestamp));
+
+		return totalEntries + totalReplacements;
+	}
+
+	/**
+	 * Whether a saved table may go back into its recorded buckets: it was saved by this node, and
+	 * recently enough that its shape still says something about the network.
+	 */
+	private boolean isWarm(Id nodeId, long timestamp) {
+		return nodeId.equals(localId) && System.currentTimeMillis() - timestamp <= MAX_RESTORE_AGE;
+	}
+
+	/**
+	 * Restores one saved entry.
+	 *
+	 * @param entry the entry read back.
+	 * @param warm  whether to put it straight into its recorded bucket, or through {@link #put}.
+	 * @return true if the table took it.
+	 */
+	private boolean restoreEntry(KBucketEntry entry, boolean warm) {
+		if (!warm) {
+			// TODO: need to improve
+			return put(entry);
+		}
+
+		KBucket bucket = bucketOf(entry.getId());
+		while (bucket.isFull()) {
+			split(bucket);
+			bucket = bucketOf(entry.getId());
+		}
+
+		// The warm path reaches the bucket directly, so it has to carry the diversity budget itself - a
+		// table saved before this limit existed, or under a wider one, would otherwise walk straight back in.
+		boolean stored = withinDiversityBudget(entry, bucket) && bucket.put(entry);
+		if (stored)
+			countSource(entry);
+
+		return stored;
+	}
+
+	/**
+	 * Restores one saved replacement, if its bucket has neither it nor the room for it elsewhere.
+	 *
+	 * @param entry the replacement read back.
+	 * @return true if the table took it.
+	 */
+	private boolean restoreReplacement(KBucketEntry entry) {
+		KBucket bucket = bucketOf(entry.getId());
+		if (bucket.find(entry.getId(), entry.getAddress()) == null
+				&& withinDiversityBudget(entry, bucket)
+				&& bucket.putAsReplacement(entry)) {
+			countSource(entry);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Encodes the current state of the routing table, for a later {@link #load(byte[])}.
 	 * <p>
 	 * Returns the bytes rather than storing them anywhere. Persisting them is the caller's business:
 	 * this class is the routing table, not its storage, and the one caller that does persist has to
@@ -910,10 +1023,26 @@ public class RoutingTable {
 	 * Entries needing replacement are left out, so what comes back is the contacts worth trying again
 	 * rather than a faithful image of the table.
 	 * </p>
+	 * <p>
+	 * The encoding is a fixed header, one {@link KBucketEntry#RECORD_BYTES}-byte record per contact and
+	 * a CRC32C of everything before it:
+	 * </p>
+	 * <pre>
+	 *   magic         4 bytes, {@link #SNAPSHOT_MAGIC}
+	 *   nodeId       32 bytes
+	 *   timestamp     8 bytes
+	 *   entries       4 bytes
+	 *   replacements  4 bytes
+	 *   records       (entries + replacements) * RECORD_BYTES
+	 *   crc32c        4 bytes
+	 * </pre>
+	 * <p>
+	 * It replaced a CBOR map per entry: the size is known before the first byte is written, and reading
+	 * it back is a walk by offset instead of a parse into a tree. {@link #load(byte[])} still reads the
+	 * old form.
+	 * </p>
 	 *
 	 * @return the encoded routing table, or null if it holds no entries worth saving.
-	 * @throws UncheckedIOException if the encoding fails, which means a defect in the encoder or in an
-	 *                              entry rather than an I/O problem - nothing is being written here.
 	 */
 	public byte @Nullable [] save() {
 		if (getNumberOfEntries() == 0) {
@@ -921,61 +1050,101 @@ public class RoutingTable {
 			return null;
 		}
 
-		long now = System.currentTimeMillis();
-		ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+		int entries = 0;
+		int replacements = 0;
+		for (KBucket bucket : buckets) {
+			for (KBucketEntry entry : bucket.entries()) {
+				if (!entry.needsReplacement())
+					entries++;
+			}
 
-		try {
-			CBORGenerator gen = Json.cborFactory().createGenerator(out);
-			gen.writeStartObject();
-			gen.writeBinaryField("nodeId", localId.bytesUnsafe());
-			gen.writeNumberField("timestamp", now);
-
-			gen.writeFieldName("entries");
-			gen.writeStartArray();
-			for (KBucket bucket : buckets) {
-				for (KBucketEntry entry : bucket.entries()) {
-					if (entry.needsReplacement())
-						continue;
-
-					gen.writeStartObject();
-
-					Map<String, Object> map = entry.toMap();
-					for (Map.Entry<String, Object> kv : map.entrySet()) {
-						gen.writeFieldName(kv.getKey());
-						gen.writeObject(kv.getValue());
-					}
+			replacements += bucket.replacementSize();
+		}
 
-					gen.writeEndObject();
-				}
-			}
-			gen.writeEndArray();
-
-			gen.writeFieldName("replacements");
-			gen.writeStartArray();
-			for (KBucket bucket : buckets) {
-				for (KBucketEntry entry : bucket.replacements()) {
-					gen.writeStartObject();
-
-					Map<String, Object> map = entry.toMap();
-					for (Map.Entry<String, Object> kv : map.entrySet()) {
-						gen.writeFieldName(kv.getKey());
-						gen.writeObject(kv.getValue());
-					}
+		ByteBuffer buf = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES +
+				(entries + replacements) * KBucketEntry.RECORD_BYTES + Integer.BYTES);
+		buf.putInt(SNAPSHOT_MAGIC);
+		buf.put(localId.bytesUnsafe());
+		buf.putLong(System.currentTimeMillis());
+		buf.putInt(entries);
+		buf.putInt(replacements);
+		forEachRecord((entry, replacement) -> entry.write(buf, replacement));
 
-					gen.writeEndObject();
-				}
+		CRC32C crc = new CRC32C();
+		crc.update(buf.array(), 0, buf.position());
+		buf.putInt((int) crc.getValue());
+
+		return buf.array();
+	}
+
+	/**
+	 * Visits every contact {@link #save()} would write: the entries that do not need replacing, then the
+	 * replacements.
+	 *
+	 * @param consumer receives each entry, and whether it is a replacement.
+	 */
+	void forEachRecord(BiConsumer<KBucketEntry, Boolean> consumer) {
+		for (KBucket bucket : buckets) {
+			for (KBucketEntry entry : bucket.entries()) {
+				if (!entry.needsReplacement())
+					consumer.accept(entry, false);
 			}
-			gen.writeEndArray();
+		}
 
-			gen.writeEndObject();
-			gen.close();
-		} catch (IOException e) {
-			// Encoding to memory: an IOException here is not an I/O failure, it is a bug in the encoder
-			// or in an entry's toMap(). Nothing the caller could do about it differs from any other bug.
-			throw new UncheckedIOException("Can not encode the routing table", e);
+		for (KBucket bucket : buckets) {
+			for (KBucketEntry entry : bucket.replacements())
+				consumer.accept(entry, true);
 		}
+	}
 
-		return out.toByteArray();
+	/**
+	 * The binary encoding {@link #save()} produces, with its header read and its checksum verified.
+	 *
+	 * @param nodeId    the id of the node that saved it.
+	 * @param timestamp when it was saved.
+	 * @param records   the records, from the buffer's position to its limit.
+	 */
+	record Snapshot(Id nodeId, long timestamp, ByteBuffer records) {
+		/**
+		 * Whether the data starts like the binary encoding, as opposed to the CBOR one.
+		 *
+		 * @param data the encoded routing table.
+		 * @return true if it carries the binary magic.
+		 */
+		static boolean isBinary(byte[] data) {
+			return data.length >= Integer.BYTES && ByteBuffer.wrap(data).getInt(0) == SNAPSHOT_MAGIC;
+		}
+
+		/**
+		 * Checks and opens the binary encoding. Nothing is restored from a snapshot that fails here.
+		 *
+		 * @param data the encoded routing table.
+		 * @return the header fields and a buffer over the records.
+		 * @throws IOException if the data is truncated, or its checksum or counts do not match.
+		 */
+		static Snapshot decode(byte[] data) throws IOException {
+			if (!isBinary(data))
+				throw new IOException("Not a binary routing table");
+			if (data.length < SNAPSHOT_HEADER_BYTES + Integer.BYTES)
+				throw new IOException("Truncated routing table: " + data.length + " bytes");
+
+			CRC32C crc = new CRC32C();
+			crc.update(data, 0, data.length - Integer.BYTES);
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			if ((int) crc.getValue() != buf.getInt(data.length - Integer.BYTES))
+				throw new IOException("Routing table checksum mismatch");
+
+			buf.position(Integer.BYTES);
+			Id nodeId = Id.of(data, buf.position());
+			buf.position(buf.position() + Id.BYTES);
+			long timestamp = buf.getLong();
+			long count = (long) buf.getInt() + buf.getInt();
+			if (count < 0 || SNAPSHOT_HEADER_BYTES + count * KBucketEntry.RECORD_BYTES + Integer.BYTES != data.length)
+				throw new IOException("Routing table record count does not match its size");
+
+			buf.limit(data.length - Integer.BYTES);
+			return new Snapshot(nodeId, timestamp, buf.slice());
+		}
 	}
 
 	@Override
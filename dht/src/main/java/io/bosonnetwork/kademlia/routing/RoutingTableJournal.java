@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.routing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+
+/**
+ * Persists a routing table as a snapshot and an append-only journal of what changed since.
+ * <p>
+ * The table used to be rewritten whole every ten minutes, whatever had happened to it. On a quiet node
+ * that is the same few hundred kilobytes written again and again; on a busy one most of it is still the
+ * same contacts, with fresher timestamps. Here the snapshot is {@link RoutingTable#save()}'s binary
+ * encoding, written only at a compaction, and each persist in between appends a batch holding just the
+ * difference from what is already on disk:
+ * </p>
+ * <ul>
+ *   <li>{@link #OP_PUT} - a contact that is new, or whose address changed: its full record.</li>
+ *   <li>{@link #OP_UPDATE} - a contact whose liveness changed (last seen, failures, RTT, reachability):
+ *       its id and the mutable tail of its record.</li>
+ *   <li>{@link #OP_REMOVE} - a contact that is gone: its id.</li>
+ * </ul>
+ * <p>
+ * The difference is taken against a copy of the records last written, not by hooking every path that
+ * changes the table. There are a dozen of those, several inside {@link KBucket}, and a journal that
+ * depended on each of them remembering to report would be wrong the first time one did not. Comparing
+ * costs a walk of the table on its own thread - which the full encoding it replaces did anyway - and
+ * keeps what is written, the part that blocks, proportional to churn.
+ * </p>
+ * <p>
+ * A compaction rewrites the snapshot and starts an empty journal. It happens on the first persist after
+ * a start or a failed write, and whenever the journal would grow past the snapshot it extends: beyond
+ * that point replaying it costs more than reading a fresh snapshot would, so the rewrite pays for itself.
+ * </p>
+ * <p>
+ * Crash safety rests on two things. Both files are replaced atomically at a compaction, and the journal
+ * names the snapshot it extends by its timestamp, so a crash between the two writes leaves a journal that
+ * is ignored rather than replayed over the wrong base. And every batch carries its length and a CRC32C, so
+ * a crash partway through an append leaves a torn tail that replay stops at, keeping every batch before it.
+ * </p>
+ * <p>
+ * The two halves are split as the rest of the routing package is: {@link #prepare(RoutingTable)} and
+ * {@link #load(RoutingTable, Contents)} walk the table and belong on its thread, {@link #write(Write)} and
+ * {@link #read()} touch only the files and belong on a worker. The worker methods use nothing but final
+ * fields and their argument.
+ * </p>
+ */
+public class RoutingTableJournal {
+	/** Appended to the snapshot file's name to name its journal. */
+	public static final String JOURNAL_SUFFIX = ".journal";
+
+	/** First bytes of a journal: "BRTJ". */
+	static final int JOURNAL_MAGIC = 0x4252544A;
+	/** Magic, then the timestamp of the snapshot the journal extends. */
+	static final int JOURNAL_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+	/** Length and CRC32C of a batch body, ahead of the body itself. */
+	static final int BATCH_HEADER_BYTES = Integer.BYTES * 2;
+
+	static final byte OP_PUT = 1;
+	static final byte OP_UPDATE = 2;
+	static final byte OP_REMOVE = 3;
+
+	private static final int PUT_BYTES = 1 + KBucketEntry.RECORD_BYTES;
+	private static final int UPDATE_BYTES = 1 + Id.BYTES + KBucketEntry.RECORD_MUTABLE_BYTES;
+	private static final int REMOVE_BYTES = 1 + Id.BYTES;
+
+	private static final Logger log = LoggerFactory.getLogger(RoutingTableJournal.class);
+
+	private final Path snapshotFile;
+	private final Path journalFile;
+
+	/** The records as the files on disk hold them, by id. Only touched on the table's thread. */
+	private Map<Id, byte[]> persisted;
+	/** Timestamp of the snapshot on disk, 0 if none has been written by this instance. */
+	private long generation;
+	private long snapshotBytes;
+	private long journalBytes;
+	private boolean compactNext;
+
+	/**
+	 * What one persist has to put on disk: a whole snapshot, or a batch to append to the journal.
+	 *
+	 * @param compaction true for a snapshot, which also starts a new journal.
+	 * @param generation the timestamp of the snapshot, for a compaction; of the one being extended otherwise.
+	 * @param data       the snapshot, or the framed batch.
+	 */
+	public record Write(boolean compaction, long generation, byte[] data) {
+	}
+
+	/**
+	 * The two files as read from disk, either of which may be missing.
+	 *
+	 * @param snapshot the snapshot file's bytes, or {@code null}.
+	 * @param journal  the journal file's bytes, or {@code null}.
+	 */
+	public record Contents(byte @Nullable [] snapshot, byte @Nullable [] journal) {
+	}
+
+	/**
+	 * Creates a journal over the given snapshot file; the journal lives next to it.
+	 *
+	 * @param snapshotFile where the snapshot is kept.
+	 */
+	public RoutingTableJournal(Path snapshotFile) {
+		this.snapshotFile = snapshotFile;
+		this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + JOURNAL_SUFFIX);
+		this.persisted = new HashMap<>();
+		this.compactNext = true;
+	}
+
+	public Path getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	public Path getJournalFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Works out what the next persist has to write, and assumes it will be written.
+	 * <p>
+	 * Must run on the thread that owns the table. If the write then fails, call {@link #invalidate()}: the
+	 * records this compared against have moved on to what was handed out, so without it the next batch
+	 * would be a difference from a state the disk never reached.
+	 * </p>
+	 *
+	 * @param table the routing table to persist.
+	 * @return what to write, or {@code null} if nothing changed or the table holds nothing worth saving -
+	 *         in which case whatever is on disk is left as it is, as {@link RoutingTable#save()} does.
+	 */
+	public @Nullable Write prepare(RoutingTable table) {
+		if (table.getNumberOfEntries() == 0)
+			return null;
+
+		Map<Id, byte[]> current = new HashMap<>(Math.max(16, persisted.size() * 4 / 3 + 1));
+		List<byte[]> puts = new ArrayList<>();
+		List<byte[]> updates = new ArrayList<>();
+		ByteBuffer scratch = ByteBuffer.allocate(KBucketEntry.RECORD_BYTES);
+
+		table.forEachRecord((entry, replacement) -> {
+			scratch.clear();
+			entry.write(scratch, replacement);
+
+			byte[] old = persisted.get(entry.getId());
+			if (old != null && Arrays.equals(old, scratch.array())) {
+				current.put(entry.getId(), old);
+				return;
+			}
+
+			byte[] record = scratch.array().clone();
+			current.put(entry.getId(), record);
+			if (old == null || !Arrays.equals(old, 0, KBucketEntry.RECORD_MUTABLE_OFFSET,
+					record, 0, KBucketEntry.RECORD_MUTABLE_OFFSET))
+				puts.add(record);
+			else
+				updates.add(record);
+		});
+
+		List<Id> removes = new ArrayList<>();
+		for (Id id : persisted.keySet()) {
+			if (!current.containsKey(id))
+				removes.add(id);
+		}
+
+		long batchBytes = BATCH_HEADER_BYTES + Long.BYTES + (long) puts.size() * PUT_BYTES +
+				(long) updates.size() * UPDATE_BYTES + (long) removes.size() * REMOVE_BYTES;
+
+		if (compactNext || generation == 0 || journalBytes + batchBytes > snapshotBytes) {
+			byte[] snapshot = table.save();
+			if (snapshot == null)
+				return null;
+
+			persisted = current;
+			generation = ByteBuffer.wrap(snapshot).getLong(Integer.BYTES + Id.BYTES);
+			snapshotBytes = snapshot.length;
+			journalBytes = JOURNAL_HEADER_BYTES;
+			compactNext = false;
+			log.debug("Compacting the routing table journal: {} records in {} bytes", current.size(), snapshot.length);
+			return new Write(true, generation, snapshot);
+		}
+
+		persisted = current;
+		if (puts.isEmpty() && updates.isEmpty() && removes.isEmpty())
+			return null;
+
+		ByteBuffer batch = ByteBuffer.allocate((int) batchBytes);
+		batch.position(BATCH_HEADER_BYTES);
+		batch.putLong(System.currentTimeMillis());
+		for (byte[] record : puts) {
+			batch.put(OP_PUT);
+			batch.put(record);
+		}
+		for (byte[] record : updates) {
+			batch.put(OP_UPDATE);
+			batch.put(record, 0, Id.BYTES);
+			batch.put(record, KBucketEntry.RECORD_MUTABLE_OFFSET, KBucketEntry.RECORD_MUTABLE_BYTES);
+		}
+		for (Id id : removes) {
+			batch.put(OP_REMOVE);
+			batch.put(id.bytesUnsafe());
+		}
+
+		int bodyLength = batch.position() - BATCH_HEADER_BYTES;
+		CRC32C crc = new CRC32C();
+		crc.update(batch.array(), BATCH_HEADER_BYTES, bodyLength);
+		batch.putInt(0, bodyLength);
+		batch.putInt(Integer.BYTES, (int) crc.getValue());
+
+		journalBytes += batchBytes;
+		log.debug("Journaling routing table changes: {} added, {} updated, {} removed",
+				puts.size(), updates.size(), removes.size());
+		return new Write(false, generation, batch.array());
+	}
+
+	/**
+	 * Forces the next {@link #prepare(RoutingTable)} to compact, after a write that did not make it to
+	 * disk. Must run on the table's thread.
+	 */
+	public void invalidate() {
+		compactNext = true;
+	}
+
+	/**
+	 * Puts a prepared write on disk. Blocks; must not run on the table's thread.
+	 * <p>
+	 * A compaction stages each file through a temporary one in the same directory and moves it into
+	 * place, the snapshot first: a crash before the journal follows leaves the previous journal, whose
+	 * header names the previous snapshot and is therefore ignored. An append goes straight onto the end
+	 * of the journal, which must already exist - if it has gone, the batch has nothing to extend and the
+	 * write fails, so the caller invalidates and the next persist compacts.
+	 * </p>
+	 *
+	 * @param write what {@link #prepare(RoutingTable)} returned.
+	 * @throws IOException if the files could not be written.
+	 */
+	public void write(Write write) throws IOException {
+		if (write.compaction()) {
+			replace(snapshotFile, write.data());
+
+			ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+			header.putInt(JOURNAL_MAGIC);
+			header.putLong(write.generation());
+			replace(journalFile, header.array());
+			return;
+		}
+
+		if (!Files.isRegularFile(journalFile))
+			throw new IOException("Routing table journal is missing: " + journalFile);
+
+		try (OutputStream out = Files.newOutputStream(journalFile, StandardOpenOption.APPEND)) {
+			out.write(write.data());
+		}
+	}
+
+	private static void replace(Path file, byte[] data) throws IOException {
+		if (Files.exists(file)) {
+			if (!Files.isRegularFile(file))
+				throw new IOException("Routing table file is not a regular file: " + file);
+		} else {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+
+		Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+				"-" + System.currentTimeMillis());
+		try {
+			Files.write(tempFile, data);
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Force delete the tempFile if error occurred
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Reads both files. Blocks; must not run on the table's thread. A missing file is not an error - it
+	 * is the normal first start, or an older node that never wrote a journal.
+	 *
+	 * @return the files' contents.
+	 * @throws IOException if a file exists and cannot be read.
+	 */
+	public Contents read() throws IOException {
+		return new Contents(readIfExists(snapshotFile), readIfExists(journalFile));
+	}
+
+	private static byte @Nullable [] readIfExists(Path file) throws IOException {
+		if (Files.notExists(file) || !Files.isRegularFile(file))
+			return null;
+
+		return Files.readAllBytes(file);
+	}
+
+	/**
+	 * Restores the snapshot and everything journaled after it into the table. Must run on the table's thread.
+	 * <p>
+	 * Without a journal this is the snapshot's own streaming load. With one, the snapshot's records are
+	 * keyed by id, the batches are applied over them in order, and what is left goes to the table in one
+	 * pass - the table sees each contact once, in its final state, rather than every state it passed
+	 * through. A snapshot in the older CBOR encoding is loaded as such; no journal can extend it.
+	 * </p>
+	 * <p>
+	 * Whatever is loaded, the next persist compacts. The table may have refused some of what was on disk,
+	 * and starting over from what it actually holds is simpler than carrying the difference.
+	 * </p>
+	 *
+	 * @param table    the routing table to restore into.
+	 * @param contents what {@link #read()} returned.
+	 * @return how many entries and replacements the table took, as {@link RoutingTable#load(byte[])}.
+	 */
+	public int load(RoutingTable table, Contents contents) {
+		persisted = new HashMap<>();
+		generation = 0;
+		compactNext = true;
+
+		byte[] data = contents.snapshot();
+		if (data == null || data.length == 0)
+			return 0;
+
+		if (!RoutingTable.Snapshot.isBinary(data))
+			return table.load(data);
+
+		RoutingTable.Snapshot snapshot;
+		try {
+			snapshot = RoutingTable.Snapshot.decode(data);
+		} catch (IOException e) {
+			log.error("Can not load the routing table.", e);
+			return 0;
+		}
+
+		byte[] journal = contents.journal();
+		if (!isJournalOf(journal, snapshot.timestamp()))
+			return table.restore(snapshot.nodeId(), snapshot.timestamp(), snapshot.records());
+
+		Map<Id, byte[]> records = new LinkedHashMap<>();
+		ByteBuffer buf = snapshot.records();
+		while (buf.remaining() >= KBucketEntry.RECORD_BYTES) {
+			byte[] record = new byte[KBucketEntry.RECORD_BYTES];
+			buf.get(record);
+			records.put(Id.of(record, 0), record);
+		}
+
+		long timestamp = replay(journal, records, snapshot.timestamp());
+
+		ByteBuffer merged = ByteBuffer.allocate(records.size() * KBucketEntry.RECORD_BYTES);
+		for (byte[] record : records.values())
+			merged.put(record);
+		merged.flip();
+
+		return table.restore(snapshot.nodeId(), timestamp, merged);
+	}
+
+	/**
+	 * Whether a journal was written over the snapshot with the given timestamp.
+	 */
+	private static boolean isJournalOf(byte @Nullable [] journal, long generation) {
+		if (journal == null || journal.length < JOURNAL_HEADER_BYTES)
+			return false;
+
+		ByteBuffer buf = ByteBuffer.wrap(journal);
+		if (buf.getInt() != JOURNAL_MAGIC) {
+			log.warn("Ignoring a routing table journal with an unknown format");
+			return false;
+		}
+
+		if (buf.getLong() != generation) {
+			log.info("Ignoring a routing table journal left over from an earlier snapshot");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Applies the journal's batches to the records, in order, stopping at the first that is torn.
+	 *
+	 * @param journal   the journal, header included.
+	 * @param records   the records by id, updated in place.
+	 * @param timestamp the snapshot's timestamp.
+	 * @return the timestamp of the last batch applied, or the snapshot's if none was.
+	 */
+	private static long replay(byte[] journal, Map<Id, byte[]> records, long timestamp) {
+		ByteBuffer buf = ByteBuffer.wrap(journal);
+		buf.position(JOURNAL_HEADER_BYTES);
+
+		int batches = 0;
+		CRC32C crc = new CRC32C();
+		while (buf.remaining() >= BATCH_HEADER_BYTES) {
+			int length = buf.getInt();
+			int checksum = buf.getInt();
+			if (length < Long.BYTES || length > buf.remaining()) {
+				log.warn("Routing table journal ends in a torn batch after {} batches, ignoring the rest", batches);
+				return timestamp;
+			}
+
+			crc.reset();
+			crc.update(journal, buf.position(), length);
+			if ((int) crc.getValue() != checksum) {
+				log.warn("Routing table journal batch {} fails its checksum, ignoring the rest", batches);
+				return timestamp;
+			}
+
+			int end = buf.position() + length;
+			long batchTimestamp = buf.getLong();
+			while (buf.position() < end) {
+				byte op = buf.get();
+				int size = switch (op) {
+					case OP_PUT -> KBucketEntry.RECORD_BYTES;
+					case OP_UPDATE -> Id.BYTES + KBucketEntry.RECORD_MUTABLE_BYTES;
+					case OP_REMOVE -> Id.BYTES;
+					default -> -1;
+				};
+
+				// The checksum passed, so this is a format problem rather than damage: a batch from a
+				// newer writer. What came before it is still good.
+				if (size < 0 || buf.position() + size > end) {
+					log.warn("Routing table journal batch {} has an unknown operation {}, ignoring the rest", batches, op);
+					return timestamp;
+				}
+
+				Id id = Id.of(journal, buf.position());
+				switch (op) {
+					case OP_PUT -> {
+						byte[] record = new byte[KBucketEntry.RECORD_BYTES];
+						buf.get(record);
+						records.put(id, record);
+					}
+					case OP_UPDATE -> {
+						// The arrays are this replay's own copies, so they are updated in place. An update
+						// for a contact that is not there has nothing to apply to and is skipped.
+						byte[] record = records.get(id);
+						buf.position(buf.position() + Id.BYTES);
+						if (record != null)
+							buf.get(record, KBucketEntry.RECORD_MUTABLE_OFFSET, KBucketEntry.RECORD_MUTABLE_BYTES);
+						else
+							buf.position(buf.position() + KBucketEntry.RECORD_MUTABLE_BYTES);
+					}
+					default -> {
+						buf.position(buf.position() + Id.BYTES);
+						records.remove(id);
+					}
+				}
+			}
+
+			timestamp = batchTimestamp;
+			batches++;
+		}
+
+		log.debug("Replayed {} routing table journal batches", batches);
+		return timestamp;
+	}
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.routing;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.utils.TimeoutSampler;
+
+/**
+ * A point-in-time picture of a routing table and of the round-trip times its RPC server has measured, as
+ * plain numbers: per-bucket fill, RTT percentiles and loss, the age distribution of the entries, and how
+ * much the table has churned.
+ * <p>
+ * This is what the tuning knobs are read against. k says how full the buckets can get and the fill says
+ * whether they do; alpha and the call timeout trade latency for traffic, and the RTT percentiles per bucket
+ * and overall say which way that trade is leaning; the age histogram and the churn say how long a contact
+ * actually lasts on this network, which is what the refresh intervals assume.
+ * </p>
+ * <p>
+ * Taken on the table's own thread by a {@link Sampler} and immutable afterwards, so it can be handed to a
+ * metrics exporter, a shell or a monitoring endpoint on any thread. Nothing here is live.
+ * </p>
+ */
+public final class RoutingTableStats {
+	/**
+	 * Upper bounds of the entry age histogram, in seconds: a minute, five, fifteen - one refresh interval -
+	 * an hour, six and a day. {@link #getAgeHistogram()} has one more slot, for everything older.
+	 */
+	public static final long[] AGE_BOUNDS = { 60, 300, 900, 3600, 6 * 3600, 24 * 3600 };
+
+	/**
+	 * One bucket.
+	 *
+	 * @param index        the bucket's position in the table, from the far end of the keyspace towards ours.
+	 *                     Positions shift when buckets split and merge, so a series per index is a series
+	 *                     per distance band rather than per bucket.
+	 * @param depth        the depth of the bucket's prefix, -1 for the one bucket of an unsplit table.
+	 * @param home         whether the bucket covers the local id.
+	 * @param entries      the number of main entries.
+	 * @param replacements the number of replacements.
+	 * @param reachable    main entries that have answered us.
+	 * @param failing      main entries with at least one request unanswered since they last answered.
+	 * @param oldest       the age of the oldest main entry in milliseconds, 0 for an empty bucket.
+	 * @param rttSamples   main entries with a measured RTT, over which the percentiles are taken.
+	 * @param rttP50       the median of the entries' average RTTs in milliseconds, -1 if none was measured.
+	 * @param rttP90       the 90th percentile, -1 if none was measured.
+	 * @param rttP99       the 99th percentile, -1 if none was measured. With k entries this is the slowest.
+	 */
+	public record Bucket(int index, int depth, boolean home, int entries, int replacements, int reachable,
+						 int failing, long oldest, int rttSamples, int rttP50, int rttP90, int rttP99) {
+	}
+
+	/**
+	 * How much the table has changed since its sampler started, counted as the differences between
+	 * consecutive samples. Contacts that came and went between two samples are not seen, so these are lower
+	 * bounds, and sampling more often tightens them.
+	 *
+	 * @param entriesAdded        ids that became main entries, including promotions.
+	 * @param entriesRemoved      ids that stopped being main entries.
+	 * @param replacementsAdded   ids that became replacements.
+	 * @param replacementsRemoved ids that stopped being replacements, including promotions.
+	 * @param promotions          replacements that became main entries.
+	 */
+	public record Churn(long entriesAdded, long entriesRemoved, long replacementsAdded, long replacementsRemoved,
+						long promotions) {
+	}
+
+	/**
+	 * One contact, as the table currently knows it.
+	 *
+	 * @param id             the node id.
+	 * @param address        the node address.
+	 * @param bucket         the index of the bucket holding it.
+	 * @param replacement    whether it is a replacement rather than a main entry.
+	 * @param reachable      whether it has answered us.
+	 * @param rtt            its average RTT in milliseconds, -1 if never measured.
+	 * @param failedRequests requests unanswered since it last answered.
+	 * @param age            milliseconds since the table first learned of it.
+	 * @param idle           milliseconds since it was last heard from.
+	 */
+	public record Peer(Id id, InetSocketAddress address, int bucket, boolean replacement, boolean reachable,
+					   int rtt, int failedRequests, long age, long idle) {
+	}
+
+	private final long timestamp;
+	private final int k;
+	private final List<Bucket> buckets;
+	private final long[] ageHistogram;
+	private final Churn churn;
+	private final TimeoutSampler.Stats rtt;
+
+	private RoutingTableStats(long timestamp, int k, List<Bucket> buckets, long[] ageHistogram, Churn churn,
+							  TimeoutSampler.Stats rtt) {
+		this.timestamp = timestamp;
+		this.k = k;
+		this.buckets = buckets;
+		this.ageHistogram = ageHistogram;
+		this.churn = churn;
+		this.rtt = rtt;
+	}
+
+	/**
+	 * Returns when the sample was taken.
+	 *
+	 * @return the wall-clock time in milliseconds.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the bucket capacity of the table, against which {@link Bucket#entries()} is a fill ratio.
+	 *
+	 * @return k.
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Returns the buckets in table order.
+	 *
+	 * @return the buckets, unmodifiable.
+	 */
+	public List<Bucket> getBuckets() {
+		return buckets;
+	}
+
+	/**
+	 * Returns the number of main entries in the table.
+	 *
+	 * @return the entry count.
+	 */
+	public int getEntries() {
+		return buckets.stream().mapToInt(Bucket::entries).sum();
+	}
+
+	/**
+	 * Returns the number of replacements in the table.
+	 *
+	 * @return the replacement count.
+	 */
+	public int getReplacements() {
+		return buckets.stream().mapToInt(Bucket::replacements).sum();
+	}
+
+	/**
+	 * Returns how many main entries fall in each age band: slot {@code i} counts the entries younger than
+	 * {@code AGE_BOUNDS[i]} seconds and not younger than the bound before it, and the last slot the rest.
+	 *
+	 * @return the counts, one longer than {@link #AGE_BOUNDS}; a copy.
+	 */
+	public long[] getAgeHistogram() {
+		return ageHistogram.clone();
+	}
+
+	/**
+	 * Returns the churn counted since the sampler started.
+	 *
+	 * @return the churn.
+	 */
+	public Churn getChurn() {
+		return churn;
+	}
+
+	/**
+	 * Returns the RPC server's RTT statistics, the distribution the call timeouts are derived from.
+	 *
+	 * @return the RTT statistics.
+	 */
+	public TimeoutSampler.Stats getRtt() {
+		return rtt;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder repr = new StringBuilder(1024);
+		repr.append("buckets: ").append(buckets.size())
+				.append(", entries: ").append(getEntries())
+				.append(", replacements: ").append(getReplacements())
+				.append(", k: ").append(k).append('\n');
+
+		repr.append("rtt: samples=").append(rtt.samples())
+				.append(" mean=").append(rtt.mean())
+				.append(" p10=").append(rtt.p10())
+				.append(" p50=").append(rtt.p50())
+				.append(" p90=").append(rtt.p90())
+				.append(" p99=").append(rtt.p99())
+				.append(" timeout=").append(rtt.stallTimeout()).append('\n');
+
+		repr.append("churn: ").append(churn).append('\n');
+
+		repr.append("age:");
+		for (int i = 0; i < ageHistogram.length; i++) {
+			repr.append(i < AGE_BOUNDS.length ? " <" + AGE_BOUNDS[i] + "s=" : " older=").append(ageHistogram[i]);
+		}
+		repr.append('\n');
+
+		for (Bucket bucket : buckets)
+			repr.append(bucket).append('\n');
+
+		return repr.toString();
+	}
+
+	/**
+	 * Takes samples of one routing table, and remembers enough of the last one to count churn.
+	 * <p>
+	 * The churn is a difference of id sets, not a count kept by the buckets. An entry leaves a bucket by
+	 * half a dozen paths - removal, bad-entry replacement, replacement eviction, promotion, merge, cleanup -
+	 * and a counter on each of them is one more thing every future path has to remember; the table already
+	 * prefers a walk to a maintained counter for the same reason. The price is that churn between two samples
+	 * is invisible, which is acceptable for numbers read on the scale of minutes.
+	 * </p>
+	 * <p>
+	 * Not thread-safe: use it on the table's thread. The first sample only sets the baseline - a table
+	 * restored from disk is not churn.
+	 * </p>
+	 */
+	public static final class Sampler {
+		private Set<Id> lastEntries;
+		private Set<Id> lastReplacements;
+
+		private long entriesAdded;
+		private long entriesRemoved;
+		private long replacementsAdded;
+		private long replacementsRemoved;
+		private long promotions;
+
+		/**
+		 * Samples the table.
+		 *
+		 * @param table the routing table.
+		 * @param rtt   the RPC server's RTT statistics, carried along unchanged.
+		 * @param now   the current wall-clock time in milliseconds; entry timestamps are on the same clock.
+		 * @return the sample.
+		 */
+		public RoutingTableStats sample(RoutingTable table, TimeoutSampler.Stats rtt, long now) {
+			List<KBucket> tableBuckets = table.buckets();
+			List<Bucket> buckets = new ArrayList<>(tableBuckets.size());
+			long[] ages = new long[AGE_BOUNDS.length + 1];
+			Set<Id> entryIds = new HashSet<>();
+			Set<Id> replacementIds = new HashSet<>();
+
+			for (int i = 0; i < tableBuckets.size(); i++) {
+				KBucket bucket = tableBuckets.get(i);
+				List<KBucketEntry> entries = bucket.entries();
+
+				int reachable = 0;
+				int failing = 0;
+				long oldest = 0;
+				int[] rtts = new int[entries.size()];
+				int measured = 0;
+
+				for (KBucketEntry entry : entries) {
+					entryIds.add(entry.getId());
+					if (entry.isReachable())
+						reachable++;
+					if (entry.failedRequests() > 0)
+						failing++;
+
+					long age = Math.max(0, now - entry.creationTime());
+					oldest = Math.max(oldest, age);
+					ages[ageSlot(age)]++;
+
+					int entryRtt = entry.getRTT(-1);
+					if (entryRtt >= 0)
+						rtts[measured++] = entryRtt;
+				}
+
+				for (KBucketEntry entry : bucket.replacements())
+					replacementIds.add(entry.getId());
+
+				Arrays.sort(rtts, 0, measured);
+				buckets.add(new Bucket(i, bucket.prefix().getDepth(), bucket.isHomeBucket(), entries.size(),
+						bucket.replacementSize(), reachable, failing, oldest, measured,
+						percentile(rtts, measured, 50), percentile(rtts, measured, 90),
+						percentile(rtts, measured, 99)));
+			}
+
+			if (lastEntries != null) {
+				for (Id id : entryIds) {
+					if (!lastEntries.contains(id)) {
+						entriesAdded++;
+						if (lastReplacements.contains(id))
+							promotions++;
+					}
+				}
+
+				for (Id id : lastEntries) {
+					if (!entryIds.contains(id))
+						entriesRemoved++;
+				}
+
+				for (Id id : replacementIds) {
+					if (!lastReplacements.contains(id))
+						replacementsAdded++;
+				}
+
+				for (Id id : lastReplacements) {
+					if (!replacementIds.contains(id))
+						replacementsRemoved++;
+				}
+			}
+
+			lastEntries = entryIds;
+			lastReplacements = replacementIds;
+
+			return new RoutingTableStats(now, table.getK(), List.copyOf(buckets), ages,
+					new Churn(entriesAdded, entriesRemoved, replacementsAdded, replacementsRemoved, promotions), rtt);
+		}
+	}
+
+	/**
+	 * Picks up to {@code max} contacts of the table, main entries and replacements alike, uniformly at
+	 * random. A sample rather than the table because the table of a well-connected node runs to thousands of
+	 * contacts, and the question is usually what a typical one looks like, not which one it is.
+	 * <p>
+	 * Call on the table's thread.
+	 * </p>
+	 *
+	 * @param table the routing table.
+	 * @param max   the most contacts to return; 0 or less for all of them.
+	 * @param now   the current wall-clock time in milliseconds.
+	 * @return the sampled contacts, in table order.
+	 */
+	public static List<Peer> samplePeers(RoutingTable table, int max, long now) {
+		List<KBucket> buckets = table.buckets();
+		List<Peer> sample = new ArrayList<>();
+		java.util.Random random = Random.random();
+		int seen = 0;
+
+		for (int i = 0; i < buckets.size(); i++) {
+			KBucket bucket = buckets.get(i);
+			for (int pass = 0; pass < 2; pass++) {
+				boolean replacement = pass == 1;
+				for (KBucketEntry entry : replacement ? bucket.replacements() : bucket.entries()) {
+					// Reservoir sampling: one walk, no copy of the table, every contact equally likely.
+					int slot = max <= 0 || seen < max ? seen : random.nextInt(seen + 1);
+					seen++;
+					if (max > 0 && slot >= max)
+						continue;
+
+					Peer peer = new Peer(entry.getId(), entry.getAddress(), i, replacement, entry.isReachable(),
+							entry.getRTT(-1), entry.failedRequests(), Math.max(0, now - entry.creationTime()),
+							Math.max(0, now - entry.lastSeen()));
+					if (slot == sample.size())
+						sample.add(peer);
+					else
+						sample.set(slot, peer);
+				}
+			}
+		}
+
+		// The reservoir leaves the sample in no useful order; stable, so a full walk stays in table order.
+		sample.sort(Comparator.comparingInt(Peer::bucket));
+		return sample;
+	}
+
+	private static int ageSlot(long ageMillis) {
+		long seconds = ageMillis / 1000;
+		for (int i = 0; i < AGE_BOUNDS.length; i++) {
+			if (seconds < AGE_BOUNDS[i])
+				return i;
+		}
+
+		return AGE_BOUNDS.length;
+	}
+
+	// Nearest-rank percentile of the first n values, which are sorted.
+	private static int percentile(int[] sorted, int n, int percent) {
+		if (n == 0)
+			return -1;
+
+		int rank = (int) Math.ceil(percent / 100.0 * n);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.rpc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.protocol.Message;
+
+/**
+ * How close the packet pipeline is to saturation, and which inbound requests to refuse because of it.
+ * <p>
+ * The pipeline has two resources that run out, and they run out differently. The event loop reads every
+ * datagram and runs every continuation, so when it falls behind, everything falls behind with it - and the
+ * only symptom from outside is the delay between a timer's due time and its firing. The worker pool does
+ * the decrypt, parse and encode, and when it falls behind, jobs wait in its queue while the loop keeps
+ * handing it more. Neither shows up anywhere a remote peer can see except as calls that time out, which is
+ * the problem this exists to fix.
+ * </p>
+ * <p>
+ * So three signals are kept: the event-loop lag, sampled by a probe timer; the time jobs spend waiting for
+ * a worker; and how many are waiting. Lag and queue time are smoothed, so a single GC pause or a cold
+ * key agreement does not register as overload; depth is taken as it stands, because it is the one signal
+ * that still moves when the pool has stopped completing anything at all. The worst of the three sets the
+ * {@link Level}, and a level is left only once every signal has fallen below half of what entered it, so a
+ * node hovering at a threshold does not flap.
+ * </p>
+ * <p>
+ * <b>Shedding order.</b> What is refused first is what costs the most and is lost the least:
+ * </p>
+ * <ul>
+ *   <li>{@link Level#ELEVATED} refuses STORE_VALUE and ANNOUNCE_PEER. Each is a signature check on a worker
+ *       and a storage transaction, the most expensive requests a node serves, and each is repeated by its
+ *       sender on a schedule - a refused write is a write delayed, not lost. They are answered with an
+ *       error, so the sender moves on now instead of waiting out a timeout.</li>
+ *   <li>{@link Level#SEVERE} also refuses FIND_VALUE and FIND_PEER, storage reads a lookup can get from
+ *       its other candidates, and drops what it refuses rather than answering it: at this level even the
+ *       encode of an error is work the pool has no room for.</li>
+ *   <li>Nothing sheds PING or FIND_NODE. They are answered from memory, and they are what keeps this node
+ *       in other nodes' routing tables - refusing them to survive a spike would have the network route
+ *       around the node long after the spike had passed. Responses to our own calls are never shed either:
+ *       they are work this node asked for, and dropping them turns its own lookups into timeouts.</li>
+ * </ul>
+ * <p>
+ * <b>Threads.</b> The probe, the level and the queue-time smoothing belong to the owning event loop. The
+ * depth counter is the exception and is atomic: it is raised on the loop when a job is handed over and
+ * lowered on whichever worker picks it up, which is the only point at which "waiting" ends.
+ * </p>
+ */
+public final class LoadMonitor {
+	/** Interval of the event-loop lag probe (100 milliseconds). */
+	static final long PROBE_INTERVAL = 100;
+
+	/** Smoothed event-loop lag that enters {@link Level#ELEVATED}. */
+	static final long LAG_ELEVATED = TimeUnit.MILLISECONDS.toNanos(50);
+	/** Smoothed event-loop lag that enters {@link Level#SEVERE}. */
+	static final long LAG_SEVERE = TimeUnit.MILLISECONDS.toNanos(200);
+	/** Smoothed worker queue time that enters {@link Level#ELEVATED}. */
+	static final long QUEUE_TIME_ELEVATED = TimeUnit.MILLISECONDS.toNanos(50);
+	/** Smoothed worker queue time that enters {@link Level#SEVERE}. */
+	static final long QUEUE_TIME_SEVERE = TimeUnit.MILLISECONDS.toNanos(200);
+	/**
+	 * Jobs waiting for a worker that enter {@link Level#ELEVATED}.
+	 * <p>
+	 * A job is a few microseconds of crypto, so a pool of the default twenty workers clears this backlog in
+	 * well under the queue-time threshold above. A queue that stays this deep is a pool that is not
+	 * keeping up, whatever the queue time of the jobs that did complete says.
+	 * </p>
+	 */
+	static final int QUEUE_DEPTH_ELEVATED = 512;
+	/** Jobs waiting for a worker that enter {@link Level#SEVERE}. */
+	static final int QUEUE_DEPTH_SEVERE = 2048;
+	/** Weight of a new sample in the smoothed signals: one eighth, as TCP smooths its RTT. */
+	private static final int SMOOTHING_SHIFT = 3;
+
+	/**
+	 * The overload level of the pipeline.
+	 */
+	public enum Level {
+		/** Keeping up; nothing is refused. */
+		NORMAL,
+		/** Falling behind; storage writes are refused. */
+		ELEVATED,
+		/** Overloaded; storage reads are dropped as well. */
+		SEVERE
+	}
+
+	private final boolean shedding;
+	private final @Nullable DHTMetrics metrics;
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	/** Smoothed event-loop lag, in nanoseconds. */
+	private long loopLag;
+	/** Smoothed worker queue time, in nanoseconds. */
+	private long queueTime;
+	/** When the probe last fired, or 0 before the first firing. */
+	private long lastProbe;
+	private Level level = Level.NORMAL;
+
+	/**
+	 * Creates a monitor.
+	 *
+	 * @param shedding whether {@link #shouldShed} ever refuses anything; the signals are measured either way.
+	 * @param metrics  the metrics collector, or null for none.
+	 */
+	public LoadMonitor(boolean shedding, @Nullable DHTMetrics metrics) {
+		this.shedding = shedding;
+		this.metrics = metrics;
+
+		if (metrics != null)
+			metrics.workerQueueRegistered(queueDepth::get);
+	}
+
+	/**
+	 * Whether this monitor refuses requests at all.
+	 *
+	 * @return true if requests are shed under load.
+	 */
+	public boolean isShedding() {
+		return shedding;
+	}
+
+	/**
+	 * Gets the current overload level.
+	 *
+	 * @return the level.
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the number of jobs handed to the worker pool and not yet picked up.
+	 *
+	 * @return the queue depth.
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * Gets the smoothed event-loop lag.
+	 *
+	 * @return the lag, in nanoseconds.
+	 */
+	public long getLoopLag() {
+		return loopLag;
+	}
+
+	/**
+	 * Gets the smoothed time jobs wait for a worker.
+	 *
+	 * @return the queue time, in nanoseconds.
+	 */
+	public long getQueueTime() {
+		return queueTime;
+	}
+
+	/**
+	 * Records a job handed to the worker pool. Called on the event loop, just before the hand-over.
+	 *
+	 * @return the hand-over time, to be given back to {@link #dequeued} by the worker.
+	 */
+	long enqueued() {
+		queueDepth.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records a job picked up by a worker. Called on the worker, first thing.
+	 *
+	 * @param enqueuedAt the time {@link #enqueued} returned for the job.
+	 * @return the time the job waited, to be given to {@link #queueTimeObserved} back on the event loop.
+	 */
+	long dequeued(long enqueuedAt) {
+		queueDepth.decrementAndGet();
+		return System.nanoTime() - enqueuedAt;
+	}
+
+	/**
+	 * Folds the queue time of one job into the smoothed figure. Called on the event loop.
+	 *
+	 * @param nanos the time the job waited for a worker.
+	 */
+	void queueTimeObserved(long nanos) {
+		queueTime += (nanos - queueTime) >> SMOOTHING_SHIFT;
+
+		if (metrics != null)
+			metrics.workerQueueTime(nanos);
+	}
+
+	/**
+	 * Samples the event-loop lag and re-evaluates the level. Called by the probe timer, every
+	 * {@link #PROBE_INTERVAL} milliseconds.
+	 * <p>
+	 * The lag is how much later than the interval this firing came. That is the delay every other task on
+	 * the loop is seeing at the same moment, since a timer waits in the same queue they do.
+	 * </p>
+	 *
+	 * @param now the current {@link System#nanoTime}.
+	 */
+	void probe(long now) {
+		if (lastProbe != 0) {
+			long lag = Math.max(0, now - lastProbe - TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL));
+			loopLag += (lag - loopLag) >> SMOOTHING_SHIFT;
+
+			if (metrics != null)
+				metrics.eventLoopLag(lag);
+		}
+		lastProbe = now;
+
+		evaluate();
+	}
+
+	/**
+	 * Re-evaluates the level from the current signals.
+	 */
+	void evaluate() {
+		int depth = queueDepth.get();
+		Level entered = max(levelOf(loopLag, LAG_ELEVATED, LAG_SEVERE),
+				max(levelOf(queueTime, QUEUE_TIME_ELEVATED, QUEUE_TIME_SEVERE),
+						levelOf(depth, QUEUE_DEPTH_ELEVATED, QUEUE_DEPTH_SEVERE)));
+		// The level the signals still hold at half the thresholds: the current level stands down no
+		// further than that.
+		Level held = max(levelOf(loopLag * 2, LAG_ELEVATED, LAG_SEVERE),
+				max(levelOf(queueTime * 2, QUEUE_TIME_ELEVATED, QUEUE_TIME_SEVERE),
+						levelOf(depth * 2L, QUEUE_DEPTH_ELEVATED, QUEUE_DEPTH_SEVERE)));
+
+		Level next = max(entered, held.compareTo(level) < 0 ? held : level);
+		if (next != level) {
+			level = next;
+			if (metrics != null)
+				metrics.loadLevelChanged(next);
+		}
+	}
+
+	/**
+	 * Resets every signal, for a server that is stopped and may be started again.
+	 */
+	void clear() {
+		loopLag = 0;
+		queueTime = 0;
+		lastProbe = 0;
+		if (level != Level.NORMAL) {
+			level = Level.NORMAL;
+			if (metrics != null)
+				metrics.loadLevelChanged(level);
+		}
+		// The depth is left alone: it counts jobs already in the pool, and each of them still lowers it.
+	}
+
+	/**
+	 * Whether an inbound request should be refused at the current level - see the shedding order above.
+	 *
+	 * @param method the method of the request.
+	 * @return true to refuse it.
+	 */
+	public boolean shouldShed(Message.Method method) {
+		if (!shedding || level == Level.NORMAL)
+			return false;
+
+		return switch (method) {
+			case STORE_VALUE, ANNOUNCE_PEER -> true;
+			case FIND_VALUE, FIND_PEER -> level == Level.SEVERE;
+			default -> false;
+		};
+	}
+
+	private static Level levelOf(long value, long elevated, long severe) {
+		return value >= severe ? Level.SEVERE : value >= elevated ? Level.ELEVATED : Level.NORMAL;
+	}
+
+	private static Level max(Level a, Level b) {
+		return a.compareTo(b) >= 0 ? a : b;
+	}
+}
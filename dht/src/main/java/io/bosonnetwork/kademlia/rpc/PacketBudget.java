@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.rpc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The node-wide outbound packet budget: how many datagrams per second this node means to emit in total,
+ * whoever asked for them.
+ * <p>
+ * The per-target outbound throttle bounds what one peer receives from us; it says nothing about what we
+ * emit overall, and that is what a node's own background work has to be measured against. Maintenance is
+ * traffic nobody is waiting for, so it is the traffic that should give way - but only if it can see the
+ * traffic it is giving way to. {@link RpcServer} charges every datagram it puts on the wire here, requests
+ * and responses alike, and the maintenance scheduler asks before it starts anything. User traffic is never
+ * refused by this: it only spends the budget, and what it spends is what maintenance waits for.
+ * </p>
+ * <p>
+ * One budget serves the whole node: {@code KadNode} creates it and hands the same instance to both DHTs,
+ * and so to both RPC servers, because the IPv4 and IPv6 sockets share one uplink. A budget per family would
+ * let each stack's maintenance spend the room the other one's user traffic had already used.
+ * </p>
+ * <p>
+ * Stored the way {@code DefaultSpamThrottle} stores a source: one theoretical arrival time on the
+ * {@link System#nanoTime} clock, pushed one emission interval out per packet and brought back by the clock.
+ * There is a single bucket rather than a map of them; the two DHTs run on event loops of their own, so
+ * that one arrival time is updated by compare-and-set.
+ * </p>
+ */
+public final class PacketBudget {
+	/** One packet's worth of debt, in nanoseconds; zero for an unlimited budget. */
+	private final long emissionInterval;
+	/** The burst ceiling, in nanoseconds of debt. */
+	private final long burstCeiling;
+	/**
+	 * The debt ceiling. User traffic is never refused, so without one a long busy spell would leave a debt
+	 * that kept maintenance waiting long after the spell ended. Two bursts' worth is enough to register as
+	 * sustained load and is paid back within a couple of burst windows.
+	 */
+	private final long debtCeiling;
+
+	/**
+	 * The instant the budget is back to zero debt. Starts at the far past rather than at zero, because
+	 * {@link System#nanoTime} has an arbitrary origin and may well be negative.
+	 */
+	private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Creates a budget.
+	 *
+	 * @param limitPerSecond the sustained packet rate.
+	 * @param burstCapacity the packets that may go out back to back before the rate applies.
+	 * @throws IllegalArgumentException if either value is non-positive or the burst is below the rate.
+	 */
+	public PacketBudget(int limitPerSecond, int burstCapacity) {
+		if (limitPerSecond <= 0 || burstCapacity <= 0 || burstCapacity < limitPerSecond)
+			throw new IllegalArgumentException("limitPerSecond and burstCapacity must be > 0 and burstCapacity must be >= limitPerSecond");
+
+		this.emissionInterval = TimeUnit.SECONDS.toNanos(1) / limitPerSecond;
+		this.burstCeiling = emissionInterval * burstCapacity;
+		this.debtCeiling = burstCeiling * 2;
+	}
+
+	private PacketBudget() {
+		this.emissionInterval = 0;
+		this.burstCeiling = 0;
+		this.debtCeiling = 0;
+	}
+
+	/**
+	 * Creates a budget that is never spent, for a server running without throttling.
+	 *
+	 * @return an unlimited budget.
+	 */
+	public static PacketBudget unlimited() {
+		return new PacketBudget();
+	}
+
+	/**
+	 * Whether this budget ever holds anything back.
+	 *
+	 * @return true if this is the unlimited budget.
+	 */
+	public boolean isUnlimited() {
+		return emissionInterval == 0;
+	}
+
+	/**
+	 * Charges one datagram that has gone out.
+	 */
+	public void charge() {
+		charge(System.nanoTime());
+	}
+
+	void charge(long now) {
+		if (emissionInterval == 0)
+			return;
+
+		long current, next;
+		do {
+			current = tat.get();
+			next = Math.min(Math.max(current, now) + emissionInterval, now + debtCeiling);
+		} while (!tat.compareAndSet(current, next));
+	}
+
+	/**
+	 * How long discretionary work of the given size should wait before it goes out.
+	 * <p>
+	 * Advisory: nothing is reserved, and the packets are charged when they are actually sent. A caller that
+	 * gets zero and then sends less than it asked for has not taken anything from anyone.
+	 * </p>
+	 *
+	 * @param packets the datagrams the work is expected to send.
+	 * @return the wait in milliseconds, or 0 if the budget has room now.
+	 */
+	public long delayFor(int packets) {
+		return delayFor(packets, System.nanoTime());
+	}
+
+	long delayFor(int packets, long now) {
+		if (emissionInterval == 0)
+			return 0;
+
+		// Work larger than the whole burst could never fit; it is asked to wait for an empty bucket instead.
+		long cost = Math.min(emissionInterval * packets, burstCeiling);
+		long debt = Math.max(tat.get(), now) - now;
+		long excess = debt + cost - burstCeiling;
+		return excess <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(excess));
+	}
+
+	/**
+	 * Forgets everything charged so far, for a server that is being restarted.
+	 */
+	public void clear() {
+		tat.set(Long.MIN_VALUE);
+	}
+}
@@ -26,12 +26,14 @@ package io.bosonnetwork.kademlia.rpc;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.datagram.DatagramPacket;
@@ -44,8 +46,10 @@ import org.slf4j.LoggerFactory;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.Identity;
 import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.crypto.CipherSuite;
 import io.bosonnetwork.crypto.CryptoBox;
 import io.bosonnetwork.crypto.CryptoException;
+import io.bosonnetwork.kademlia.KadNode;
 import io.bosonnetwork.kademlia.exceptions.MessageTooBigException;
 import io.bosonnetwork.kademlia.impl.ErrorCode;
 import io.bosonnetwork.kademlia.impl.KadContext;
@@ -128,6 +132,18 @@ public class RpcServer implements Measured {
 	static final int OUTBOUND_LIMIT_PER_SECOND = 32;
 	/** Outbound burst capacity per target unit. Held at the network default - see above. */
 	static final int OUTBOUND_BURST_CAPACITY = 128;
+	/**
+	 * Datagrams per second this node aims to emit in total - see {@link PacketBudget}.
+	 * <p>
+	 * Unlike the two pairs above this is about no one's limit but our own uplink and the neighbourhood's
+	 * patience, and it binds only background work: user traffic spends it and is never refused by it. Set
+	 * well above what maintenance needs on its own, so an idle node is never held back, and low enough that
+	 * a node under real load visibly defers its refreshes rather than adding them on top.
+	 * </p>
+	 */
+	static final int PACKET_BUDGET_PER_SECOND = 256;
+	/** Burst capacity of the node-wide packet budget: four seconds at the rate above. */
+	static final int PACKET_BUDGET_BURST_CAPACITY = 1024;
 	/**
 	 * Floor for the active-call table, and its size for any ordinary node.
 	 * <p>
@@ -179,9 +195,20 @@ public class RpcServer implements Measured {
 	/** Throttle for outgoing messages, maybe disabled with a disabled SpamThrottle implementation. */
 	private final SpamThrottle outboundThrottle;
 
+	/** Node-wide outbound packet budget, unlimited whenever the throttles are disabled. */
+	private final PacketBudget packetBudget;
+
+	/** Whether the packet budget was created for this server alone, rather than shared with the node's other. */
+	private final boolean ownsPacketBudget;
+
 	/** Metrics collector, null if metrics are disabled. */
 	private final DHTMetrics metrics;
 
+	/** Saturation of the packet pipeline, and the inbound requests to refuse because of it. */
+	private final LoadMonitor loadMonitor;
+	/** Timer ID of the event-loop lag probe. */
+	private long loadProbeTimer;
+
 	/** Datagram socket for sending and receiving messages, null when stopped. */
 	private DatagramSocket socket;
 
@@ -287,10 +314,12 @@ public class RpcServer implements Measured {
 	 * @param port                        the port to bind the server
 	 * @param blacklist                   the blacklist for banning malicious nodes
 	 * @param enableSpamThrottling        whether to enable spam throttling
+	 * @param packetBudget                the node-wide packet budget, shared with the node's other server;
+	 *                                    see {@link #createPacketBudget}. Null to give this server one of its own.
 	 * @param metrics                     the metrics collector, null to disable metrics
 	 */
 	public RpcServer(KadContext context, String host, int port, Blacklist blacklist, boolean enableSpamThrottling,
-					 DHTMetrics metrics) {
+					 PacketBudget packetBudget, DHTMetrics metrics) {
 		this.context = context;
 		this.network = context.getNetwork();
 		this.identity = context.getIdentity();
@@ -309,11 +338,19 @@ public class RpcServer implements Measured {
 		if (enableSpamThrottling && !context.isDeveloperMode()) {
 			this.inboundThrottle = SpamThrottle.create(INBOUND_LIMIT_PER_SECOND, INBOUND_BURST_CAPACITY);
 			this.outboundThrottle = SpamThrottle.create(OUTBOUND_LIMIT_PER_SECOND, OUTBOUND_BURST_CAPACITY);
+			this.loadMonitor = new LoadMonitor(true, metrics);
 		} else {
 			this.inboundThrottle = SpamThrottle.disabled();
 			this.outboundThrottle = SpamThrottle.disabled();
+			// Measured all the same, but never shedding: a developer-mode node is typically one of many
+			// sharing a machine, where the load is the test harness's and refusing it only fails the test.
+			this.loadMonitor = new LoadMonitor(false, metrics);
 		}
 
+		this.ownsPacketBudget = packetBudget == null;
+		this.packetBudget = ownsPacketBudget ?
+				createPacketBudget(enableSpamThrottling, context.isDeveloperMode()) : packetBudget;
+
 		// Read once, like TaskManager reads concurrentTasks: both values are final on the DHT, so there is
 		// nothing to keep fresh. The long is for the multiplication only - neither factor has an upper
 		// bound in the configuration, and a table sized past what an int can hold is not a table anyway.
@@ -329,6 +366,29 @@ public class RpcServer implements Measured {
 		this.running = false;
 	}
 
+	/**
+	 * Constructs an RPC server with a packet budget of its own, for a server that is the node's only one.
+	 *
+	 * @see #RpcServer(KadContext, String, int, Blacklist, boolean, PacketBudget, DHTMetrics)
+	 */
+	public RpcServer(KadContext context, String host, int port, Blacklist blacklist, boolean enableSpamThrottling,
+					 DHTMetrics metrics) {
+		this(context, host, port, blacklist, enableSpamThrottling, null, metrics);
+	}
+
+	/**
+	 * Creates the node-wide packet budget, to be shared by every RPC server of one node. It is limited on
+	 * exactly the terms the throttles are: with spam throttling on and developer mode off.
+	 *
+	 * @param enableSpamThrottling whether the node throttles spam
+	 * @param developerMode        whether the node runs in developer mode
+	 * @return a new budget, unlimited unless throttling applies
+	 */
+	public static PacketBudget createPacketBudget(boolean enableSpamThrottling, boolean developerMode) {
+		return enableSpamThrottling && !developerMode ?
+				new PacketBudget(PACKET_BUDGET_PER_SECOND, PACKET_BUDGET_BURST_CAPACITY) : PacketBudget.unlimited();
+	}
+
 	/**
 	 * Gets the ID of the local node.
 	 *
@@ -445,6 +505,34 @@ public class RpcServer implements Measured {
 		this.reachableHandler = reachableHandler;
 	}
 
+	/**
+	 * Returns the node-wide outbound packet budget, which every datagram this server sends is charged to.
+	 *
+	 * @return the packet budget, never null.
+	 */
+	public PacketBudget getPacketBudget() {
+		return packetBudget;
+	}
+
+	/**
+	 * Returns the current statistics of the round-trip times this server has measured, from which it derives
+	 * the timeout of every call it sends. Call on the server's context.
+	 *
+	 * @return the RTT statistics.
+	 */
+	public TimeoutSampler.Stats getTimeoutStats() {
+		return timeoutSampler.stats();
+	}
+
+	/**
+	 * Gets the load monitor of the packet pipeline.
+	 *
+	 * @return the load monitor.
+	 */
+	public LoadMonitor getLoadMonitor() {
+		return loadMonitor;
+	}
+
 	/**
 	 * Checks if the server is currently reachable.
 	 *
@@ -628,6 +716,8 @@ public class RpcServer implements Measured {
 				// Schedule periodic reachability checks
 				reachableCheckTimer = context.setPeriodic(REACHABILITY_CHECK_INTERVAL * 2,
 						REACHABILITY_CHECK_INTERVAL, this::checkReachability);
+				loadProbeTimer = context.setPeriodic(LoadMonitor.PROBE_INTERVAL,
+						unused -> loadMonitor.probe(System.nanoTime()));
 
 				log.info("RPC server started at {}:{}", host, port);
 			} else {
@@ -652,9 +742,14 @@ public class RpcServer implements Measured {
 			running = false;
 
 			context.cancelTimer(reachableCheckTimer);
+			context.cancelTimer(loadProbeTimer);
+			loadMonitor.clear();
 
 			inboundThrottle.clear();
 			outboundThrottle.clear();
+			// A shared budget still carries the other server's traffic, so only a private one is reset.
+			if (ownsPacketBudget)
+				packetBudget.clear();
 
 			// Cancel rather than drop. A call outstanding when the socket closes can never be answered,
 			// and its timeout timer belongs to the verticle context, which Vert.x tears down on undeploy
@@ -696,6 +791,7 @@ public class RpcServer implements Measured {
 	 * @param packet the received datagram packet
 	 */
 	private void handlePacket(DatagramPacket packet) {
+		long arrived = metrics != null ? System.nanoTime() : 0;
 		receivedPackets++;
 
 		Buffer buffer = packet.data();
@@ -723,6 +819,7 @@ public class RpcServer implements Measured {
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.THROTTLED);
+				metrics.throttledInbound(source);
 			}
 			return;
 		}
@@ -762,7 +859,7 @@ public class RpcServer implements Measured {
 		}
 
 		// Extract and validate remote ID
-		Id remoteId = Id.of(buffer.getBytes(0, Id.BYTES));
+		Id remoteId = Id.of(buffer, 0);
 		if (blacklist.isBanned(remoteId, source)) {
 			log.debug("Ignored packet from blacklisted node {}@{}", remoteId, remoteAddress);
 			if (metrics != null) {
@@ -795,7 +892,9 @@ public class RpcServer implements Measured {
 		// alone at low load - 5.95 us round trip with a single request in flight - but that is latency
 		// on an idle node, not throughput, and Vert.x amortizes it once completions batch: 1.26 us at
 		// eight in flight, 0.27 us at sixty-four. Against RTTs measured in milliseconds, the idle-node
-		// latency does not matter.
+		// latency does not matter. The native libsodium provider, selected automatically when the
+		// library is installed, shrinks the crypto share of these figures but not the argument: the
+		// loop still only pays for the handoff.
 		//
 		// It also covers the case that hurts most. The shared key is cached per peer, so the numbers
 		// above are the warm path; a first contact costs about 82 us for the Ed25519-to-Curve25519
@@ -806,212 +905,288 @@ public class RpcServer implements Measured {
 		// matched by transaction id rather than by arrival. Ordered would serialize the pool behind one
 		// queue and leave this strictly worse than the inline version it replaced, since the event loop
 		// was already serial.
+		//
+		// The stage timers below follow the figures above: each stage is timed on the thread it runs on,
+		// and the queue time is what the handoff costs a packet in latency on top of the loop-side cost -
+		// the figure that grows when the pool stops keeping up.
+		if (metrics != null)
+			metrics.stageCompleted(DHTMetrics.Stage.THROTTLE, System.nanoTime() - arrived);
+
+		long enqueuedAt = loadMonitor.enqueued();
+		// Written on the worker, read back on the loop; the future's completion orders the two.
+		long[] queued = new long[1];
 		context.executeBlocking(() -> {
+			queued[0] = loadMonitor.dequeued(enqueuedAt);
+			long started = metrics != null ? System.nanoTime() : 0;
+
 			// Decrypt and parse message
 			byte[] encryptedMsg = buffer.getBytes(Id.BYTES, buffer.length());
 			byte[] decryptedMsg = identity.decrypt(remoteId, encryptedMsg);
+			long decrypted = metrics != null ? System.nanoTime() : 0;
 			Message message = Message.parse(decryptedMsg, remoteId);
 			message.setId(remoteId);
 			message.setRemote(remoteId, remoteAddress);
+			// The version sits inside the authenticated payload, so this cannot be steered by anyone
+			// but the peer itself. Following every message rather than the first one also lets a peer
+			// that was downgraded in place fall back on its next packet.
+			identity.setCipherSuite(remoteId, cipherSuiteFor(message.getVersion()));
+
+			if (metrics != null) {
+				metrics.stageCompleted(DHTMetrics.Stage.DECRYPT, decrypted - started);
+				metrics.stageCompleted(DHTMetrics.Stage.PARSE, System.nanoTime() - decrypted);
+			}
 			return message;
 		}, false).andThen(ar -> {
-			if (ar.succeeded()) {
-				Message message = ar.result();
-				log.trace("Received {}:{} from {}@{} : {}", message.getMethod(), message.getType(),
-						remoteId, remoteAddress, message);
-
-				// Identity accounting, before the message is dispatched. The detector answers with the id
-				// this endpoint used to present, and a non-null answer means the binding a listener may be
-				// holding for that address is no longer the one that is there.
-				//
-				// The stale binding is what goes to the handler, not the new one: it names the entry the
-				// change invalidates, and the listener has no other way to find it - a routing table is
-				// keyed on id, not on address.
-				Id previousId = suspiciousNodeDetector.observed(remoteAddress, remoteId);
-				if (previousId != null && churnHandler != null)
-					// Unproven: this message authenticates the id that sent it and nothing about where it
-					// came from.
-					churnHandler.accept(NodeInfo.of(previousId, remoteAddress.hostAddress(), remoteAddress.port()), false);
-
-				// Handle request messages
-				if (message.isRequest()) {
-					if (metrics != null)
-						metrics.requestReceived(message);
-
-					// Incoming requests, no need to match them to pending requests
-					if (messageHandler != null)
-						messageHandler.accept(message);
+			loadMonitor.queueTimeObserved(queued[0]);
+			long dispatched = metrics != null ? System.nanoTime() : 0;
+			try {
+				handleMessage(ar, remoteId, remoteAddress, buffer);
+			} finally {
+				if (metrics != null)
+					metrics.stageCompleted(DHTMetrics.Stage.DISPATCH, System.nanoTime() - dispatched);
+			}
+		});
+	}
 
+	/**
+	 * Handles the outcome of decrypting and parsing an inbound datagram, back on the event loop: hands a
+	 * request to the message handler and matches a response to the call it answers.
+	 *
+	 * @param ar            the parsed message, or why there is none.
+	 * @param remoteId      the id the datagram names as its sender.
+	 * @param remoteAddress the address it came from.
+	 * @param buffer        the datagram itself.
+	 */
+	private void handleMessage(AsyncResult<Message> ar, Id remoteId, SocketAddress remoteAddress, Buffer buffer) {
+		if (ar.succeeded()) {
+			Message message = ar.result();
+			log.trace("Received {}:{} from {}@{} : {}", message.getMethod(), message.getType(),
+					remoteId, remoteAddress, message);
+
+			// Identity accounting, before the message is dispatched. The detector answers with the id
+			// this endpoint used to present, and a non-null answer means the binding a listener may be
+			// holding for that address is no longer the one that is there.
+			//
+			// The stale binding is what goes to the handler, not the new one: it names the entry the
+			// change invalidates, and the listener has no other way to find it - a routing table is
+			// keyed on id, not on address.
+			Id previousId = suspiciousNodeDetector.observed(remoteAddress, remoteId);
+			if (previousId != null && churnHandler != null)
+				// Unproven: this message authenticates the id that sent it and nothing about where it
+				// came from.
+				churnHandler.accept(NodeInfo.of(previousId, remoteAddress.hostAddress(), remoteAddress.port()), false);
+
+			// Handle request messages
+			if (message.isRequest()) {
+				if (metrics != null)
+					metrics.requestReceived(message);
+
+				if (loadMonitor.shouldShed(message.getMethod())) {
+					shed(message);
 					return;
 				}
 
-				// Handle response or error messages
-				// check if this is a response to an outstanding request
-				RpcCall call = pendingCalls.get(message.getTxid());
-				if (call != null) {
-					// the message matches transaction ID and origin == destination
-					//
-					// Compared on the address and port rather than with SocketAddress.equals, which compares
-					// the *host* - and a SocketAddress remembers the name it was built from. The response
-					// side always carries a literal, having just come off the wire; the request side carries
-					// whatever NodeInfo was given, and NodeInfo.of(id, host, port) keeps a hostname. So for
-					// any peer configured by name - a bootstrap, most obviously - equals() was false for the
-					// same endpoint, and every answer it sent fell through to the branch below: dropped,
-					// timed out, and the peer reported and demoted for answering from the address we sent to.
-					if (sameEndpoint(message, call.getRequest())) {
-						// Solicited traffic is not charged to the unsolicited budget. This packet answers a
-						// call we made, from the address we sent it to, so it is work we asked for - and how
-						// much of it we can ask for is bounded by the outbound throttle, not by this one.
-						// Refund the charge handlePacket levied on arrival: one packet, for the one packet
-						// that proved itself.
-						//
-						// A refund rather than an exemption, because the budget is spent before the packet
-						// can be identified - the throttle check runs ahead of the decrypt that reveals the
-						// transaction id. So a response arriving while its source is already at the ceiling
-						// is still dropped; what this prevents is a conversation we started from consuming
-						// that source's budget at all.
-						//
-						// All three outcomes below are refunded, including the two that are misbehavior:
-						// they are still traffic we solicited, the detector punishes them on the channel
-						// built for it, and a rate penalty is the wrong instrument for an offense that is
-						// not about rate.
-						//
-						// The call's target address rather than the packet's source: the test above has
-						// already established they are the same, and this one is an InetAddress we hold,
-						// so the hot path parses no host string.
-						inboundThrottle.decrement(call.getTarget().getIpAddress());
-
-						if (message.getMethod() != call.getRequest().getMethod()) {
-							log.warn("Got response with wrong method {} from {}@{} for {}",
-									message.getMethod(), remoteId, remoteAddress, call.getRequest().getMethod());
-							// This is a terminal error for the call: remove it from the pending map
-							// (race-safe, mirroring the normal response path) so it is not leaked.
-							if (pendingCalls.remove(message.getTxid(), call))
-								call.respondWrongMethod(message);
-							// Proven source: this matched an outstanding call and came back from the address
-							// that call was sent to, so the address receives our traffic and the evidence
-							// cannot have been aimed at a bystander.
-							suspiciousNodeDetector.misbehaved(remoteAddress, remoteId);
-							return;
-						}
+				// Incoming requests, no need to match them to pending requests
+				if (messageHandler != null)
+					messageHandler.accept(message);
 
-						// Proven identity churn
-						if (!remoteId.equals(call.getTargetId())) {
-							log.warn("Got response with churning id {} -> {} from {}",
-									call.getTargetId(), remoteId, remoteAddress);
-							// This is a terminal error for the call: remove it from the pending map
-							// Still feed the response to the call to finish the call?!
-							if (pendingCalls.remove(message.getTxid(), call))
-								call.respondChurningId(message);
-
-							// Reaching this branch proves more than the address receiving our traffic, and the
-							// stronger fact is the one to rely on: the responder decrypted a request
-							// encrypted to call.getTargetId(), so it holds that key, and it encrypted this
-							// reply under a different id, so it holds that one too. One party is answering
-							// under a second identity it also controls. Nobody can arrange this for a
-							// bystander: naming an honest node under an id it does not hold produces a
-							// request that node cannot decrypt, so it never answers and is never charged.
-							suspiciousNodeDetector.misbehaved(remoteAddress, remoteId);
-
-							// Proven: this arrived from the address we sent the call to, answering a
-							// transaction id we chose, so no third party could have aimed it.
-							if (churnHandler != null)
-								churnHandler.accept(NodeInfo.of(call.getTargetId(), remoteAddress.hostAddress(), remoteAddress.port()), true);
-
-							return;
-						}
+				return;
+			}
 
-						// Remove call to prevent timeout race, defense against timeout race
-						if (pendingCalls.remove(message.getTxid(), call)) {
-							call.respond(message);
+			// Handle response or error messages
+			// check if this is a response to an outstanding request
+			RpcCall call = pendingCalls.get(message.getTxid());
+			if (call != null) {
+				// the message matches transaction ID and origin == destination
+				//
+				// Compared on the address and port rather than with SocketAddress.equals, which compares
+				// the *host* - and a SocketAddress remembers the name it was built from. The response
+				// side always carries a literal, having just come off the wire; the request side carries
+				// whatever NodeInfo was given, and NodeInfo.of(id, host, port) keeps a hostname. So for
+				// any peer configured by name - a bootstrap, most obviously - equals() was false for the
+				// same endpoint, and every answer it sent fell through to the branch below: dropped,
+				// timed out, and the peer reported and demoted for answering from the address we sent to.
+				if (sameEndpoint(message, call.getRequest())) {
+					// Solicited traffic is not charged to the unsolicited budget. This packet answers a
+					// call we made, from the address we sent it to, so it is work we asked for - and how
+					// much of it we can ask for is bounded by the outbound throttle, not by this one.
+					// Refund the charge handlePacket levied on arrival: one packet, for the one packet
+					// that proved itself.
+					//
+					// A refund rather than an exemption, because the budget is spent before the packet
+					// can be identified - the throttle check runs ahead of the decrypt that reveals the
+					// transaction id. So a response arriving while its source is already at the ceiling
+					// is still dropped; what this prevents is a conversation we started from consuming
+					// that source's budget at all.
+					//
+					// All three outcomes below are refunded, including the two that are misbehavior:
+					// they are still traffic we solicited, the detector punishes them on the channel
+					// built for it, and a rate penalty is the wrong instrument for an offense that is
+					// not about rate.
+					//
+					// The call's target address rather than the packet's source: the test above has
+					// already established they are the same, and this one is an InetAddress we hold,
+					// so the hot path parses no host string.
+					inboundThrottle.decrement(call.getTarget().getIpAddress());
+
+					if (message.getMethod() != call.getRequest().getMethod()) {
+						log.warn("Got response with wrong method {} from {}@{} for {}",
+								message.getMethod(), remoteId, remoteAddress, call.getRequest().getMethod());
+						// This is a terminal error for the call: remove it from the pending map
+						// (race-safe, mirroring the normal response path) so it is not leaked.
+						if (pendingCalls.remove(message.getTxid(), call))
+							call.respondWrongMethod(message);
+						// Proven source: this matched an outstanding call and came back from the address
+						// that call was sent to, so the address receives our traffic and the evidence
+						// cannot have been aimed at a bystander.
+						suspiciousNodeDetector.misbehaved(remoteAddress, remoteId);
+						return;
+					}
 
-							if (messageHandler != null)
-								messageHandler.accept(message);
+					// Proven identity churn
+					if (!remoteId.equals(call.getTargetId())) {
+						log.warn("Got response with churning id {} -> {} from {}",
+								call.getTargetId(), remoteId, remoteAddress);
+						// This is a terminal error for the call: remove it from the pending map
+						// Still feed the response to the call to finish the call?!
+						if (pendingCalls.remove(message.getTxid(), call))
+							call.respondChurningId(message);
+
+						// Reaching this branch proves more than the address receiving our traffic, and the
+						// stronger fact is the one to rely on: the responder decrypted a request
+						// encrypted to call.getTargetId(), so it holds that key, and it encrypted this
+						// reply under a different id, so it holds that one too. One party is answering
+						// under a second identity it also controls. Nobody can arrange this for a
+						// bystander: naming an honest node under an id it does not hold produces a
+						// request that node cannot decrypt, so it never answers and is never charged.
+						suspiciousNodeDetector.misbehaved(remoteAddress, remoteId);
+
+						// Proven: this arrived from the address we sent the call to, answering a
+						// transaction id we chose, so no third party could have aimed it.
+						if (churnHandler != null)
+							churnHandler.accept(NodeInfo.of(call.getTargetId(), remoteAddress.hostAddress(), remoteAddress.port()), true);
 
-							// Update the timeout sampler for non-known nodes to avoid skewing RTT estimates
-							if(!call.isReachableAtCreationTime())
-								timeoutSampler.updateAndRecalc(call.getRTT());
+						return;
+					}
 
-							if (metrics != null) {
-								metrics.responseReceived(message);
+					// Remove call to prevent timeout race, defense against timeout race
+					if (pendingCalls.remove(message.getTxid(), call)) {
+						call.respond(message);
 
-								// Update loss rate: 0f for successful response, 1f for timeout
-								if (call.isReachableAtCreationTime())
-									metrics.verifiedLossRateUpdate(0f);
-								else
-									metrics.unverifiedLossRateUpdate(0f);
-							}
-						}
+						if (messageHandler != null)
+							messageHandler.accept(message);
 
-						return;
-					}
+						// Update the timeout sampler for non-known nodes to avoid skewing RTT estimates
+						if(!call.isReachableAtCreationTime())
+							timeoutSampler.updateAndRecalc(call.getRTT());
 
-					// Handle inconsistent socket (e.g., NAT issues or attack)
-					// - the message is not a request
-					// - the transaction ID matched
-					// - response source did not match request destination
-					// this happening by chance is exceedingly unlikely indicates either port-mangling NAT,
-					// a multihomed host listening on any-local address or some kind of attack
-					log.warn("Node address not consistent, ignored. request: {} <- response: {}@{}",
-							call.getTarget(), remoteId, remoteAddress);
-					// Unproven source, and unproven for the very reason this branch exists: the packet came
-					// from somewhere other than where the call was sent, so nothing here says the sender
-					// receives traffic at the address it used.
-					suspiciousNodeDetector.inconsistent(remoteAddress, remoteId);
+						if (metrics != null) {
+							metrics.responseReceived(message);
 
-					if (metrics != null) {
-						metrics.bytesDropped(remoteAddress, buffer.length());
-						metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INCONSISTENT);
+							// Update loss rate: 0f for successful response, 1f for timeout
+							if (call.isReachableAtCreationTime())
+								metrics.verifiedLossRateUpdate(0f);
+							else
+								metrics.unverifiedLossRateUpdate(0f);
+						}
 					}
 
-					// but expect an upcoming timeout if it's really just a misbehaving node
-					call.respondInconsistentSocket(message);
 					return;
 				}
 
-				// No matched call
-				// - call already timed out
-				// - stray response, uptime is high enough that it's a stray from a restart
-				//
-				// Deliberately not reported to the suspicious-node detector. Both causes above are normal
-				// operation rather than misbehavior, and the source is unproven either way, so counting it
-				// would charge an address for a race it did not cause.
-				// DEBUG: reaching this needs no call of ours, only a packet that decrypts, and anyone can
-				// encrypt to our public key - so the rate is the sender's to choose. Both causes above
-				// are normal operation anyway.
-				log.debug("Cannot find RPC call for {}[txid:{}] from {}",
-						message.getType(), message.getTxid(), remoteAddress);
+				// Handle inconsistent socket (e.g., NAT issues or attack)
+				// - the message is not a request
+				// - the transaction ID matched
+				// - response source did not match request destination
+				// this happening by chance is exceedingly unlikely indicates either port-mangling NAT,
+				// a multihomed host listening on any-local address or some kind of attack
+				log.warn("Node address not consistent, ignored. request: {} <- response: {}@{}",
+						call.getTarget(), remoteId, remoteAddress);
+				// Unproven source, and unproven for the very reason this branch exists: the packet came
+				// from somewhere other than where the call was sent, so nothing here says the sender
+				// receives traffic at the address it used.
+				suspiciousNodeDetector.inconsistent(remoteAddress, remoteId);
+
 				if (metrics != null) {
 					metrics.bytesDropped(remoteAddress, buffer.length());
-					metrics.messageDropped(remoteAddress, DHTMetrics.Reason.NO_MATCHED_CALL);
+					metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INCONSISTENT);
 				}
+
+				// but expect an upcoming timeout if it's really just a misbehaving node
+				call.respondInconsistentSocket(message);
+				return;
+			}
+
+			// No matched call
+			// - call already timed out
+			// - stray response, uptime is high enough that it's a stray from a restart
+			//
+			// Deliberately not reported to the suspicious-node detector. Both causes above are normal
+			// operation rather than misbehavior, and the source is unproven either way, so counting it
+			// would charge an address for a race it did not cause.
+			// DEBUG: reaching this needs no call of ours, only a packet that decrypts, and anyone can
+			// encrypt to our public key - so the rate is the sender's to choose. Both causes above
+			// are normal operation anyway.
+			log.debug("Cannot find RPC call for {}[txid:{}] from {}",
+					message.getType(), message.getTxid(), remoteAddress);
+			if (metrics != null) {
+				metrics.bytesDropped(remoteAddress, buffer.length());
+				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.NO_MATCHED_CALL);
+			}
+		} else {
+			Throwable e = ar.cause();
+			if (e instanceof CryptoException) {
+				log.debug("Decrypt packet error from {}, ignored", remoteAddress);
+			} else if (e instanceof IllegalArgumentException) {
+				if (log.isTraceEnabled()) // log the parse error for debugging
+					log.trace("Parse message error from {}@{}, ignored", remoteId, remoteAddress, e.getCause());
+
+				log.debug("Invalid message from {}@{}, ignored", remoteId, remoteAddress);
 			} else {
-				Throwable e = ar.cause();
-				if (e instanceof CryptoException) {
-					log.debug("Decrypt packet error from {}, ignored", remoteAddress);
-				} else if (e instanceof IllegalArgumentException) {
-					if (log.isTraceEnabled()) // log the parse error for debugging
-						log.trace("Parse message error from {}@{}, ignored", remoteId, remoteAddress, e.getCause());
-
-					log.debug("Invalid message from {}@{}, ignored", remoteId, remoteAddress);
-				} else {
-					// The one branch here that stays a warning. A packet that fails to decrypt or to parse
-					// is the sender's doing and says nothing about us, but anything else coming out of the
-					// decode is our own parser doing something it was not written to do - and that is worth
-					// a line and a stack trace however often it arrives.
-					log.warn("Invalid message from {}@{}, ignored", remoteId, remoteAddress, e);
-				}
+				// The one branch here that stays a warning. A packet that fails to decrypt or to parse
+				// is the sender's doing and says nothing about us, but anything else coming out of the
+				// decode is our own parser doing something it was not written to do - and that is worth
+				// a line and a stack trace however often it arrives.
+				log.warn("Invalid message from {}@{}, ignored", remoteId, remoteAddress, e);
+			}
 
-				// Unproven source. A decryption failure says nothing about the sender at all - the id in
-				// the first 32 bytes is whatever it chose to write there - and a parse failure identifies
-				// the sender's key without saying anything about where the packet came from.
-				suspiciousNodeDetector.malformedMessage(remoteAddress);
-				if (metrics != null) {
-					metrics.bytesDropped(remoteAddress, buffer.length());
-					metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INVALID);
-				}
+			// Unproven source. A decryption failure says nothing about the sender at all - the id in
+			// the first 32 bytes is whatever it chose to write there - and a parse failure identifies
+			// the sender's key without saying anything about where the packet came from.
+			suspiciousNodeDetector.malformedMessage(remoteAddress);
+			if (metrics != null) {
+				metrics.bytesDropped(remoteAddress, buffer.length());
+				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INVALID);
 			}
-		});
+		}
+	}
+
+	/**
+	 * Refuses an inbound request because the pipeline is overloaded - see {@link LoadMonitor} for which
+	 * requests and why.
+	 * <p>
+	 * Below {@link LoadMonitor.Level#SEVERE} the sender is told, with a server error: the alternative is a
+	 * timeout, which costs it the full call timeout and charges this node as unreachable. At SEVERE the
+	 * request is dropped instead, because answering is an encode on the very pool that is behind.
+	 * </p>
+	 *
+	 * @param request the request to refuse.
+	 */
+	private void shed(Message request) {
+		boolean answer = loadMonitor.getLevel() != LoadMonitor.Level.SEVERE;
+		// DEBUG: under load this fires for every refused request, and a log line each is more load.
+		log.debug("Shed {} request from {}@{}, load {}", request.getMethod(), request.getId(),
+				request.getRemoteAddress(), loadMonitor.getLevel());
+
+		if (metrics != null)
+			metrics.requestShed(request, answer);
+
+		if (answer) {
+			Message error = Message.error(request.getMethod(), request.getTxid(), ErrorCode.ServerError.value(),
+					"Server overloaded, try again later");
+			error.setRemote(request.getId(), request.getRemoteAddress());
+			sendMessage(error);
+		}
 	}
 
 	/**
@@ -1073,8 +1248,14 @@ public class RpcServer implements Measured {
 				// remove before they drive the call to its final state, and so does the send-failure
 				// path, so a call that was answered - or answered wrongly, or refused before it was ever
 				// pending - is already gone from here and must not be charged as a loss.
-				if (!pendingCalls.remove(c.getTxid(), c))
+				if (!pendingCalls.remove(c.getTxid(), c)) {
+					// Or it was never sent: a task that gives up cancels the calls the throttle parked
+					// along with the ones in flight. Only cancellation reaches a parked call, so only it
+					// pays for the scan.
+					if (state == RpcCall.State.CANCELED)
+						unpark(c);
 					return;
+				}
 
 				// A timeout is the only final state that says anything about the node. A cancellation
 				// says something about us - stop(), or a task giving up - and charging it to the routing
@@ -1086,6 +1267,8 @@ public class RpcServer implements Measured {
 					callTimeoutHandler.accept(c);
 
 				if (metrics != null) {
+					metrics.responseTimeout(c.getRequest());
+
 					// Update loss rate: 0f for successful response, 1f for timeout
 					if (c.isReachableAtCreationTime())
 						metrics.verifiedLossRateUpdate(1f);
@@ -1143,9 +1326,14 @@ public class RpcServer implements Measured {
 			// anything being captured but the call. The put runs before the handler can: this is the event
 			// loop, and the delay is positive.
 			long timerId = context.setTimer(delay, id -> {
-				delayedCalls.remove(id);
+				// A cancelled call has already been unparked, and this timer with it; the check is for
+				// anything that ends a parked call some other way.
+				if (delayedCalls.remove(id) == null)
+					return;
+
 				outboundThrottle.decrement(call.getTarget().getIpAddress());
-				dispatchCall(call);
+				if (!call.getState().isFinal())
+					dispatchCall(call);
 			});
 			delayedCalls.put(timerId, call);
 
@@ -1191,6 +1379,33 @@ public class RpcServer implements Measured {
 		}).map(call);
 	}
 
+	/**
+	 * Releases a parked call that ended before the throttle let it go.
+	 * <p>
+	 * A parked call holds a slot under {@code maxActiveCalls} and a count in the outbound throttle, and
+	 * both used to be held until its release timer fired - at which point the call, long since cancelled,
+	 * was handed to the socket anyway. Cancelling the timer here gives both back at once and keeps the
+	 * request off the wire.
+	 * </p>
+	 * <p>
+	 * A linear scan, because the map is keyed by timer id. It is bounded by {@code maxActiveCalls} and
+	 * runs only for cancelled calls that were not in flight, which is rare next to the calls answered.
+	 * </p>
+	 *
+	 * @param call the call that was cancelled.
+	 */
+	private void unpark(RpcCall call) {
+		for (Iterator<Map.Entry<Long, RpcCall>> it = delayedCalls.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Long, RpcCall> entry = it.next();
+			if (entry.getValue() == call) {
+				it.remove();
+				context.cancelTimer(entry.getKey());
+				outboundThrottle.decrement(call.getTarget().getIpAddress());
+				return;
+			}
+		}
+	}
+
 	/**
 	 * Sends a message to a remote node, encrypting the content.
 	 *
@@ -1207,21 +1422,43 @@ public class RpcServer implements Measured {
 		//
 		// Only the encoding moves. The socket write below runs on the event loop, where it belongs: the
 		// datagram socket is not ours to touch from a pool thread.
-		return context.executeBlocking(() -> encode(message), false).compose(datagram -> {
+		long enqueuedAt = loadMonitor.enqueued();
+		long[] queued = new long[1];
+		return context.executeBlocking(() -> {
+			queued[0] = loadMonitor.dequeued(enqueuedAt);
+			if (metrics == null)
+				return encode(message);
+
+			long started = System.nanoTime();
+			Datagram datagram = encode(message);
+			metrics.stageCompleted(DHTMetrics.Stage.ENCODE, System.nanoTime() - started);
+			return datagram;
+		}, false).andThen(ar -> loadMonitor.queueTimeObserved(queued[0])).compose(datagram -> {
 			// Not necessarily the message that was passed in: an oversized response is replaced by an
 			// error, and everything below reports what actually went on the wire.
 			Message sent = datagram.message();
 			Buffer buffer = datagram.buffer();
 			SocketAddress remote = sent.getRemoteAddress();
+			long sending = metrics != null ? System.nanoTime() : 0;
 			return socket.send(buffer, remote.port(), remote.host()).andThen(ar -> {
+				if (metrics != null)
+					metrics.stageCompleted(DHTMetrics.Stage.SEND, System.nanoTime() - sending);
+
 				if (ar.succeeded()) {
 					log.trace("Sent {}/{} to {}@{}: {}", sent.getMethod(), sent.getType(),
 							sent.getRemoteId(), remote, sent);
 
+					packetBudget.charge();
+
 					if (metrics != null) {
 						metrics.bytesWritten(remote, buffer.length());
 						metrics.messageSent(remote);
-						metrics.requestSent(sent);
+						// Both directions of the exchange leave through here, and the two are counted
+						// apart: one is work this node asked for, the other work it was asked to do.
+						if (sent.isRequest())
+							metrics.requestSent(sent);
+						else
+							metrics.responseSent(sent);
 					}
 				} else {
 					if (log.isDebugEnabled())
@@ -1262,6 +1499,33 @@ public class RpcServer implements Measured {
 	 */
 	private record Datagram(Message message, Buffer buffer) { }
 
+	/**
+	 * Picks the cipher suite to use toward a peer that sent a message with the given version.
+	 * <p>
+	 * Orca nodes from version 2 on accept the AEAD frames; everything else - older Orca nodes, Meerkat,
+	 * and senders that leave the version out - gets the XSalsa20-Poly1305 box every implementation
+	 * understands. Among the AEAD suites AES-256-GCM comes first because it is the one with hardware
+	 * support on the servers super nodes run on; ChaCha20-Poly1305 covers JVMs without it.
+	 * </p>
+	 * <p>
+	 * Only the sending side follows this choice. Receiving accepts every suite regardless, so the two
+	 * ends of a link never have to agree at the same moment.
+	 * </p>
+	 *
+	 * @param version the version carried by the peer's last message.
+	 * @return the suite to encrypt with toward that peer.
+	 */
+	static CipherSuite cipherSuiteFor(int version) {
+		if ((version >>> 16) != (KadNode.VERSION >>> 16) || (version & 0x0000FFFF) < 2)
+			return CipherSuite.XSALSA20_POLY1305;
+
+		if (CipherSuite.AES_256_GCM.isAvailable())
+			return CipherSuite.AES_256_GCM;
+		if (CipherSuite.CHACHA20_POLY1305.isAvailable())
+			return CipherSuite.CHACHA20_POLY1305;
+		return CipherSuite.XSALSA20_POLY1305;
+	}
+
 	/**
 	 * Serializes, size-checks and encrypts a message into the datagram that will be sent.
 	 * <p>
@@ -1290,6 +1554,7 @@ public class RpcServer implements Measured {
 	private Datagram encode(Message message) throws MessageTooBigException, CryptoException {
 		byte[] plainMsg = message.toBytes();
 		// The datagram this becomes: sender id || nonce || MAC || ciphertext, per CryptoIdentity.encrypt.
+		// The AEAD suites frame as nonce || ciphertext || tag, which is the same size.
 		int datagramSize = Id.BYTES + CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES + plainMsg.length;
 		if (datagramSize > network.maxPacketSize())
 			return encode(tooBigToSend(message, datagramSize));
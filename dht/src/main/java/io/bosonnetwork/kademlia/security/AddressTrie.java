@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.security;
+
+import java.util.Collection;
+
+/**
+ * A compressed binary prefix trie over IP addresses, answering "does any configured range cover this
+ * address" in one walk from the root.
+ *
+ * <p>Both families share one 128-bit key space: an IPv4 address is held in its IPv4-mapped form,
+ * {@code ::ffff:a.b.c.d}, and an IPv4 {@code /n} is the mapped {@code /96+n}. That keeps a single trie and a
+ * single walk, and it also means a sender that shows up under a mapped IPv6 literal is caught by the IPv4
+ * range its address belongs to, which two separate tables would miss.</p>
+ *
+ * <p>Each node carries its whole prefix and a precomputed mask, so a chain of single-child nodes collapses
+ * into one comparison, and a walk is bounded by the number of distinct branch points above the address - at
+ * most the prefix length, in practice a handful. A blacklist has one verdict per range, so the longest
+ * matching prefix and the first matching prefix give the same answer, and the walk stops at the first
+ * range it enters; for the same reason a range nested inside one already present is not stored at all.</p>
+ *
+ * <p>Immutable once constructed. The node fields are only written by the constructor and reached through a
+ * final field, so an instance may be shared between threads without further synchronization. Changing the
+ * set of ranges means building a new trie and swapping the reference, which is what {@link FileBlacklist}
+ * does.</p>
+ *
+ * <p>The lookup parses the address literal directly into two longs. There is no {@link java.net.InetAddress}
+ * in between, no string formatting and no allocation: this runs for every datagram the node receives.</p>
+ */
+final class AddressTrie {
+	private static final long IPV4_MAPPED = 0x0000ffff00000000L;
+	private static final int IPV4_MAPPED_BITS = 96;
+
+	// Parse output for the lookup path: the high and low halves of the address. Per thread, because the
+	// trie is shared by both DHTs' event loops.
+	private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+	private static final class Node {
+		final long hi;
+		final long lo;
+		final long maskHi;
+		final long maskLo;
+		final int bits;
+		boolean terminal;
+		Node zero;
+		Node one;
+
+		Node(long hi, long lo, int bits, boolean terminal) {
+			this.maskHi = maskHi(bits);
+			this.maskLo = maskLo(bits);
+			this.hi = hi & maskHi;
+			this.lo = lo & maskLo;
+			this.bits = bits;
+			this.terminal = terminal;
+		}
+
+		boolean covers(long hi, long lo) {
+			return ((hi ^ this.hi) & maskHi) == 0 && ((lo ^ this.lo) & maskLo) == 0;
+		}
+	}
+
+	private final Node root;
+	private final int size;
+
+	/**
+	 * Builds a trie from configured host entries.
+	 *
+	 * <p>Entries that are not address literals - host names - are skipped, not rejected: the blacklist
+	 * still matches those by name. An entry that names a prefix length is a range by intent, so one whose
+	 * address or length does not parse is an error rather than a name.</p>
+	 *
+	 * @param entries address literals, with or without a {@code /length} suffix, and host names.
+	 * @throws IllegalArgumentException if an entry with a {@code /} is not a valid CIDR range.
+	 */
+	AddressTrie(Collection<String> entries) {
+		long[] address = new long[2];
+		Node root = null;
+		int size = 0;
+		for (String entry : entries) {
+			int bits = parseRange(entry, address);
+			if (bits < 0)
+				continue;
+
+			root = insert(root, address[0], address[1], bits);
+			size++;
+		}
+
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of address entries the trie was built from, nested ranges included.
+	 *
+	 * @return the number of address and range entries.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether an address literal falls within any range in the trie.
+	 *
+	 * @param host an IPv4 or IPv6 literal as it arrives from the socket; a scope suffix is ignored.
+	 * @return {@code true} if the address is covered, {@code false} if not or if {@code host} is not an
+	 *         address literal.
+	 */
+	boolean contains(String host) {
+		if (root == null)
+			return false;
+
+		long[] address = SCRATCH.get();
+		return parseAddress(host, host.length(), address) && contains(address[0], address[1]);
+	}
+
+	private boolean contains(long hi, long lo) {
+		Node node = root;
+		while (node != null) {
+			if (!node.covers(hi, lo))
+				return false;
+
+			if (node.terminal)
+				return true;
+
+			node = bit(hi, lo, node.bits) == 0 ? node.zero : node.one;
+		}
+
+		return false;
+	}
+
+	private static Node insert(Node node, long hi, long lo, int bits) {
+		if (node == null)
+			return new Node(hi, lo, bits, true);
+
+		int common = Math.min(commonPrefix(node.hi, node.lo, hi, lo), Math.min(node.bits, bits));
+		if (common == node.bits) {
+			// Inside this node's prefix. Already covered if it is a range; otherwise descend.
+			if (node.terminal)
+				return node;
+
+			if (bits == node.bits) {
+				// A branch point becoming a range swallows everything below it.
+				node.terminal = true;
+				node.zero = node.one = null;
+				return node;
+			}
+
+			if (bit(hi, lo, node.bits) == 0)
+				node.zero = insert(node.zero, hi, lo, bits);
+			else
+				node.one = insert(node.one, hi, lo, bits);
+
+			return node;
+		}
+
+		if (common == bits) {
+			// The new range contains this whole subtree.
+			return new Node(hi, lo, bits, true);
+		}
+
+		// The two diverge inside this node's prefix: split there.
+		Node branch = new Node(hi, lo, common, false);
+		Node leaf = new Node(hi, lo, bits, true);
+		if (bit(hi, lo, common) == 0) {
+			branch.zero = leaf;
+			branch.one = node;
+		} else {
+			branch.zero = node;
+			branch.one = leaf;
+		}
+
+		return branch;
+	}
+
+	private static int commonPrefix(long aHi, long aLo, long bHi, long bLo) {
+		long x = aHi ^ bHi;
+		if (x != 0)
+			return Long.numberOfLeadingZeros(x);
+
+		x = aLo ^ bLo;
+		return x == 0 ? 128 : 64 + Long.numberOfLeadingZeros(x);
+	}
+
+	private static int bit(long hi, long lo, int index) {
+		return (int) (index < 64 ? hi >>> (63 - index) : lo >>> (127 - index)) & 1;
+	}
+
+	private static long maskHi(int bits) {
+		return bits == 0 ? 0 : bits >= 64 ? -1L : -1L << (64 - bits);
+	}
+
+	private static long maskLo(int bits) {
+		return bits <= 64 ? 0 : -1L << (128 - bits);
+	}
+
+	/**
+	 * Parses a configured entry: an address literal, optionally followed by {@code /length}.
+	 *
+	 * @param entry   the entry.
+	 * @param address receives the high and low halves of the address, IPv4 in mapped form.
+	 * @return the prefix length in the 128-bit key space, or -1 if the entry is not an address.
+	 * @throws IllegalArgumentException if the entry has a {@code /} but is not a valid range.
+	 */
+	static int parseRange(String entry, long[] address) {
+		int slash = entry.indexOf('/');
+		int end = slash < 0 ? entry.length() : slash;
+		if (!parseAddress(entry, end, address)) {
+			if (slash < 0)
+				return -1;
+
+			throw new IllegalArgumentException("Invalid address range: " + entry);
+		}
+
+		boolean ipv4 = entry.lastIndexOf(':', end - 1) < 0;
+		int max = ipv4 ? 32 : 128;
+		int bits = max;
+		if (slash >= 0) {
+			try {
+				bits = Integer.parseInt(entry, slash + 1, entry.length(), 10);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid prefix length: " + entry);
+			}
+
+			if (bits < 0 || bits > max)
+				throw new IllegalArgumentException("Invalid prefix length: " + entry);
+		}
+
+		return ipv4 ? IPV4_MAPPED_BITS + bits : bits;
+	}
+
+	/**
+	 * Parses an IPv4 or IPv6 literal in {@code s[0, end)} into two longs.
+	 *
+	 * @param s       the string holding the literal.
+	 * @param end     the end of the literal within {@code s}.
+	 * @param address receives the high and low halves of the address, IPv4 in mapped form.
+	 * @return {@code true} if the text is an address literal.
+	 */
+	static boolean parseAddress(String s, int end, long[] address) {
+		if (s.lastIndexOf(':', end - 1) < 0) {
+			long v4 = parseIPv4(s, 0, end);
+			if (v4 < 0)
+				return false;
+
+			address[0] = 0;
+			address[1] = IPV4_MAPPED | v4;
+			return true;
+		}
+
+		// A zone index names an interface on this host, not part of the address.
+		int scope = s.indexOf('%');
+		if (scope >= 0 && scope < end)
+			end = scope;
+
+		// Groups before "::" accumulate in head, groups after it in tail; the gap is whatever is left.
+		long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+		int headGroups = 0, tailGroups = 0;
+		boolean gap = false;
+
+		int i = 0;
+		if (end >= 2 && s.charAt(0) == ':' && s.charAt(1) == ':') {
+			gap = true;
+			i = 2;
+		}
+
+		while (i < end) {
+			int start = i;
+			long value = 0;
+			int digit;
+			while (i < end && (digit = hex(s.charAt(i))) >= 0) {
+				value = (value << 4) | digit;
+				i++;
+			}
+
+			int width = 16;
+			if (i < end && s.charAt(i) == '.') {
+				// Trailing dotted quad, as in ::ffff:192.0.2.1 - the last two groups.
+				value = parseIPv4(s, start, end);
+				if (value < 0)
+					return false;
+
+				width = 32;
+				i = end;
+			} else if (i == start || i - start > 4) {
+				return false;
+			}
+
+			if (gap) {
+				tailHi = (tailHi << width) | (tailLo >>> (64 - width));
+				tailLo = (tailLo << width) | value;
+				tailGroups += width / 16;
+			} else {
+				headHi = (headHi << width) | (headLo >>> (64 - width));
+				headLo = (headLo << width) | value;
+				headGroups += width / 16;
+			}
+
+			if (headGroups + tailGroups > 8)
+				return false;
+
+			if (i == end)
+				break;
+
+			if (s.charAt(i++) != ':' || i == end)
+				return false;
+
+			if (s.charAt(i) == ':') {
+				if (gap)
+					return false;
+
+				gap = true;
+				i++;
+			}
+		}
+
+		if (!gap) {
+			if (headGroups != 8)
+				return false;
+
+			address[0] = headHi;
+			address[1] = headLo;
+			return true;
+		}
+
+		if (headGroups + tailGroups > 7)
+			return false;
+
+		// Move head up past the gap and the tail: a 128-bit shift by 16 to 128 bits.
+		int shift = 16 * (8 - headGroups);
+		if (shift >= 128) {
+			headHi = headLo = 0;
+		} else if (shift >= 64) {
+			headHi = headLo << (shift - 64);
+			headLo = 0;
+		} else {
+			headHi = (headHi << shift) | (headLo >>> (64 - shift));
+			headLo <<= shift;
+		}
+
+		address[0] = headHi | tailHi;
+		address[1] = headLo | tailLo;
+		return true;
+	}
+
+	// Character.digit would also take non-ASCII digits, which no address literal contains.
+	private static int hex(char c) {
+		if (c >= '0' && c <= '9')
+			return c - '0';
+		if (c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		if (c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		return -1;
+	}
+
+	private static long parseIPv4(String s, int start, int end) {
+		long value = 0;
+		int parts = 0;
+		int i = start;
+		while (true) {
+			int from = i;
+			int octet = 0;
+			while (i < end && i - from < 3) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9')
+					break;
+
+				octet = octet * 10 + (c - '0');
+				i++;
+			}
+
+			if (i == from || octet > 255)
+				return -1;
+
+			value = (value << 8) | octet;
+			if (++parts == 4)
+				return i == end ? value : -1;
+
+			if (i == end || s.charAt(i++) != '.')
+				return -1;
+		}
+	}
+}
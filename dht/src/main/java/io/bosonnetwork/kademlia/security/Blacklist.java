@@ -40,7 +40,8 @@ import io.bosonnetwork.Id;
  *
  * <p>The unit is also different, and deliberately so: a literal host string as configured, not the
  * {@link SourceKey} the detector and the throttle count in. An operator banning an address means that
- * address, and widening it to a /64 would ban neighbours they did not name.</p>
+ * address, and widening it to a /64 would ban neighbours they did not name. An operator who does mean a
+ * network says so with a CIDR range, which {@link FileBlacklist} accepts wherever it accepts a host.</p>
  */
 public interface Blacklist {
 	/**
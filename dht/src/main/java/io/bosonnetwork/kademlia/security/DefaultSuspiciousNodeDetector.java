@@ -88,12 +88,12 @@ public class DefaultSuspiciousNodeDetector implements SuspiciousNodeDetector {
 	 * it, at any deployment size, so there is nothing here to tune.
 	 * </p>
 	 */
-	private static final int SAME_ID_SOURCE_THRESHOLD = 8;
+	static final int SAME_ID_SOURCE_THRESHOLD = 8;
 	/** Default hits charged to one source before it is acted on. */
-	private static final int DEFAULT_OBSERVATION_HIT_THRESHOLD = 32;
-	private static final long DEFAULT_OBSERVATION_PERIOD = 15 * 60 * 1000;
-	private static final long DEFAULT_BAN_DURATION = 30 * 60 * 1000;
-	private static final long DEFAULT_SUPPRESSION_DURATION = 60 * 1000;
+	static final int DEFAULT_OBSERVATION_HIT_THRESHOLD = 32;
+	static final long DEFAULT_OBSERVATION_PERIOD = 15 * 60 * 1000;
+	static final long DEFAULT_BAN_DURATION = 30 * 60 * 1000;
+	static final long DEFAULT_SUPPRESSION_DURATION = 60 * 1000;
 
 	/**
 	 * Ceiling on the escalated suppression of an unproven source, as a multiple of the base duration.
@@ -103,7 +103,7 @@ public class DefaultSuspiciousNodeDetector implements SuspiciousNodeDetector {
 	 * ceiling the escalation is just a slower path back to the leverage this tiering exists to remove.
 	 * </p>
 	 */
-	private static final int MAX_SUPPRESSION_ESCALATION = 8;
+	static final int MAX_SUPPRESSION_ESCALATION = 8;
 
 	/**
 	 * Caps on the two tables.
@@ -213,7 +213,7 @@ public class DefaultSuspiciousNodeDetector implements SuspiciousNodeDetector {
 	 *
 	 * @param <V> the value type.
 	 */
-	private static class BoundedMap<V> extends LinkedHashMap<String, V> {
+	static class BoundedMap<V> extends LinkedHashMap<String, V> {
 		private static final long serialVersionUID = 1L;
 
 		private final int capacity;
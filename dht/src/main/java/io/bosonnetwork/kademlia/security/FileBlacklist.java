@@ -35,6 +35,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -48,37 +49,78 @@ import io.bosonnetwork.json.Json;
  * A thread-safe file-based blacklist for managing banned hosts and IDs using a copy-on-write strategy.
  * Optimized for frequent reads with synchronized writes to ensure thread safety.
  *
- * <p>Reads go to a volatile immutable set and take no lock at all; a write builds a whole new set under a
- * monitor and publishes it. That trade is right here because bans are configured rarely and consulted per
- * packet, and it is what lets the read path stay a plain field access.</p>
+ * <p>Reads go to a volatile immutable snapshot and take no lock at all; a write builds a whole new snapshot
+ * under a monitor and publishes it. That trade is right here because bans are configured rarely and
+ * consulted per packet, and it is what lets the read path stay a plain field access. Everything a check
+ * reads - the host entries, the address ranges built from them and the ids - is in the one snapshot, so a
+ * reload replaces all of it at once and a packet is never judged against half of an old file and half of a
+ * new one.</p>
+ *
+ * <p>A host entry is an IPv4 or IPv6 address, a CIDR range such as {@code 192.0.2.0/24} or
+ * {@code 2001:db8::/32}, or a host name. Addresses and ranges go into an {@link AddressTrie} and are matched
+ * on the address bits, so {@code ::1} and {@code 0:0:0:0:0:0:0:1} are the same entry and an IPv4-mapped
+ * sender is caught by its IPv4 range. Names are matched as the exact string, as before.</p>
+ *
+ * <p>A blacklist {@link #load(Path) loaded} or {@link #open(Path) opened} from a file remembers it, and
+ * {@link #reloadIfModified()} picks up an edit without a restart. The file is the source of truth: a reload
+ * replaces the snapshot wholesale, dropping anything {@link #ban(Id)} added since that the file does not
+ * name.</p>
  *
  * @see Blacklist
  */
 public class FileBlacklist implements Blacklist {
-	private volatile Set<String> hosts;
-	private volatile Set<Id> ids;
+	/**
+	 * How often a node should call {@link #reloadIfModified()}: the longest an edit to the file goes
+	 * unnoticed. A check is one {@code stat}, so this is about how soon an operator expects a ban to
+	 * bite, not about cost.
+	 */
+	public static final int RELOAD_CHECK_INTERVAL = 30 * 1000;	// 30 seconds
+
+	private volatile Snapshot snapshot;
+
+	// The file this was loaded from and its modification time at that load, or null for an in-memory list.
+	// Written under the monitor by reload, read by reloadIfModified.
+	private volatile Path file;
+	private volatile long lastModified;
+
+	private record Snapshot(Set<String> hosts, Set<Id> ids, AddressTrie addresses, Set<String> names) {
+		static Snapshot of(Set<String> hosts, Set<Id> ids) {
+			AddressTrie addresses = new AddressTrie(hosts);
+			long[] scratch = new long[2];
+			// Only what the trie cannot hold is left for the by-name lookup; usually nothing.
+			Set<String> names = addresses.size() == hosts.size() ? Set.of() : hosts.stream()
+					.filter(host -> AddressTrie.parseRange(host, scratch) < 0)
+					.collect(Collectors.toUnmodifiableSet());
+			return new Snapshot(hosts, ids, addresses, names);
+		}
+	}
 
 	/**
 	 * Constructs a FileBlacklist with the specified hosts and IDs.
 	 *
-	 * @param hosts List of IP hosts or hostnames to blacklist. Can be null or empty.
+	 * @param hosts List of IP hosts, CIDR ranges or hostnames to blacklist. Can be null or empty.
 	 * @param ids List of IDs to blacklist. Can be null or empty.
+	 * @throws IllegalArgumentException if a host entry is a malformed CIDR range.
 	 */
 	@JsonCreator
 	protected FileBlacklist(@JsonProperty("hosts") List<String> hosts, @JsonProperty("ids") List<Id> ids) {
-		this.hosts = hosts == null || hosts.isEmpty() ? Set.of() : Set.copyOf(hosts);
-		this.ids = ids == null || ids.isEmpty() ? Set.of() : Set.copyOf(ids);
+		this.snapshot = Snapshot.of(hosts == null || hosts.isEmpty() ? Set.of() : Set.copyOf(hosts),
+				ids == null || ids.isEmpty() ? Set.of() : Set.copyOf(ids));
 	}
 
 	/**
 	 * Checks if the specified host is banned.
 	 *
+	 * <p>An address literal is checked against every configured address and range; anything else against
+	 * the configured names.</p>
+	 *
 	 * @param host The IP host or hostname to check.
 	 * @return true if the host is banned, false otherwise.
 	 */
 	@Override
 	public boolean isBanned(String host) {
-		return hosts.contains(host);
+		Snapshot current = snapshot;
+		return current.addresses.contains(host) || (!current.names.isEmpty() && current.names.contains(host));
 	}
 
 	/**
@@ -89,25 +131,40 @@ public class FileBlacklist implements Blacklist {
 	 */
 	@Override
 	public boolean isBanned(Id id) {
-		return ids.contains(id);
+		return snapshot.ids.contains(id);
+	}
+
+	/**
+	 * Checks if the specified host or ID is banned, against a single snapshot.
+	 *
+	 * @param id   The ID to check.
+	 * @param host The IP host or hostname to check.
+	 * @return true if the host or ID is banned, false otherwise.
+	 */
+	@Override
+	public boolean isBanned(Id id, String host) {
+		Snapshot current = snapshot;
+		return current.ids.contains(id) || current.addresses.contains(host) ||
+				(!current.names.isEmpty() && current.names.contains(host));
 	}
 
 	/**
 	 * Adds a host to the blacklist.
 	 *
-	 * @param host The IP host or hostname to ban.
+	 * @param host The IP host, CIDR range or hostname to ban.
+	 * @throws IllegalArgumentException if {@code host} is a malformed CIDR range.
 	 */
 	@Override
 	public void ban(String host) {
 		Objects.requireNonNull(host, "host");
 
-		if (hosts.contains(host))
+		if (snapshot.hosts.contains(host))
 			return;
 
 		synchronized (this) {
-			Set<String> newHosts = new HashSet<>(hosts);
+			Set<String> newHosts = new HashSet<>(snapshot.hosts);
 			newHosts.add(host);
-			this.hosts = Collections.unmodifiableSet(newHosts);
+			this.snapshot = Snapshot.of(Collections.unmodifiableSet(newHosts), snapshot.ids);
 		}
 	}
 
@@ -120,32 +177,38 @@ public class FileBlacklist implements Blacklist {
 	public void ban(Id id) {
 		Objects.requireNonNull(id, "id");
 
-		if (ids.contains(id))
+		if (snapshot.ids.contains(id))
 			return;
 
 		synchronized (this) {
-			Set<Id> newIds = new HashSet<>(ids);
+			Set<Id> newIds = new HashSet<>(snapshot.ids);
 			newIds.add(id);
-			this.ids = Collections.unmodifiableSet(newIds);
+			// The hosts are unchanged, so the trie is too.
+			Snapshot current = snapshot;
+			this.snapshot = new Snapshot(current.hosts, Collections.unmodifiableSet(newIds), current.addresses,
+					current.names);
 		}
 	}
 
 	/**
 	 * Removes a host from the blacklist.
 	 *
-	 * @param host The IP host or hostname to unban.
+	 * <p>Removes the entry as written. An address inside a banned range stays banned until the range
+	 * itself is removed.</p>
+	 *
+	 * @param host The IP host, CIDR range or hostname to unban.
 	 */
 	@Override
 	public void unban(String host) {
 		Objects.requireNonNull(host, "host");
 
-		if (!hosts.contains(host))
+		if (!snapshot.hosts.contains(host))
 			return;
 
 		synchronized (this) {
-			Set<String> newHosts = new HashSet<>(hosts);
+			Set<String> newHosts = new HashSet<>(snapshot.hosts);
 			newHosts.remove(host);
-			this.hosts = Collections.unmodifiableSet(newHosts);
+			this.snapshot = Snapshot.of(Collections.unmodifiableSet(newHosts), snapshot.ids);
 		}
 	}
 
@@ -158,13 +221,15 @@ public class FileBlacklist implements Blacklist {
 	public void unban(Id id) {
 		Objects.requireNonNull(id, "id");
 
-		if (!ids.contains(id))
+		if (!snapshot.ids.contains(id))
 			return;
 
 		synchronized (this) {
-			Set<Id> newIds = new HashSet<>(ids);
+			Set<Id> newIds = new HashSet<>(snapshot.ids);
 			newIds.remove(id);
-			this.ids = Collections.unmodifiableSet(newIds);
+			Snapshot current = snapshot;
+			this.snapshot = new Snapshot(current.hosts, Collections.unmodifiableSet(newIds), current.addresses,
+					current.names);
 		}
 	}
 
@@ -175,7 +240,8 @@ public class FileBlacklist implements Blacklist {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(hosts, ids);
+		Snapshot current = snapshot;
+		return Objects.hash(current.hosts, current.ids);
 	}
 
 	/**
@@ -189,8 +255,11 @@ public class FileBlacklist implements Blacklist {
 		if (this == obj)
 			return true;
 
-		if (obj instanceof FileBlacklist that)
-			return Objects.equals(hosts, that.hosts) && Objects.equals(ids, that.ids);
+		if (obj instanceof FileBlacklist that) {
+			Snapshot a = snapshot;
+			Snapshot b = that.snapshot;
+			return Objects.equals(a.hosts, b.hosts) && Objects.equals(a.ids, b.ids);
+		}
 
 
 		return false;
@@ -201,13 +270,13 @@ public class FileBlacklist implements Blacklist {
 	@JsonProperty("hosts")
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private Set<String> getHosts() {
-		return hosts;
+		return snapshot.hosts;
 	}
 
 	@JsonProperty("ids")
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	private Set<Id> getIds() {
-		return ids;
+		return snapshot.ids;
 	}
 
 	/**
@@ -252,10 +321,72 @@ public class FileBlacklist implements Blacklist {
 		if (Files.notExists(file) || !Files.isRegularFile(file))
 			throw new IllegalArgumentException("File `" + file + "` does not exist or is not a regular file");
 
+		// Read before parsing: an edit landing during the parse is then seen by the next check.
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		FileBlacklist blacklist = read(file);
+		blacklist.file = file;
+		blacklist.lastModified = modified;
+		return blacklist;
+	}
+
+	/**
+	 * Opens a blacklist bound to a file that may not exist yet.
+	 * <p>
+	 * Loads the file if it is there, and otherwise starts empty; either way
+	 * {@link #reloadIfModified()} follows the file from then on, so an operator can create it
+	 * on a running node.
+	 *
+	 * @param file the path to the JSON/YAML file to follow.
+	 * @return the blacklist, empty if the file does not exist yet.
+	 * @throws NullPointerException if {@code file} is {@code null}.
+	 * @throws IOException              if the file exists and an I/O error occurs while reading or parsing.
+	 */
+	public static FileBlacklist open(Path file) throws IOException {
+		Objects.requireNonNull(file, "file");
+
+		if (Files.exists(file))
+			return load(file);
+
+		FileBlacklist blacklist = new FileBlacklist(null, null);
+		blacklist.file = file;
+		return blacklist;
+	}
+
+	/**
+	 * Reloads the file this blacklist was loaded from, if it has changed since the last load.
+	 * <p>
+	 * Cheap when nothing changed - one {@code stat} - so a node can call it on a timer. The new
+	 * contents replace the current snapshot in one write: a concurrent check sees either the old
+	 * list or the new one. If the file is unreadable or malformed, the current list stays in force
+	 * and the exception is thrown; a file that has disappeared is treated as unchanged rather than
+	 * empty, since an editor replacing it is briefly indistinguishable from a deletion.
+	 *
+	 * @return {@code true} if the list was reloaded.
+	 * @throws IOException if the file changed but could not be read or parsed.
+	 */
+	public boolean reloadIfModified() throws IOException {
+		Path file = this.file;
+		if (file == null || !Files.isRegularFile(file))
+			return false;
+
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		if (modified == lastModified)
+			return false;
+
+		FileBlacklist loaded = read(file);
+		synchronized (this) {
+			this.snapshot = loaded.snapshot;
+			this.lastModified = modified;
+		}
+
+		return true;
+	}
+
+	private static FileBlacklist read(Path file) throws IOException {
 		ObjectMapper mapper = file.getFileName().endsWith(".json") ? Json.objectMapper() : Json.yamlMapper();
 		try (InputStream in = new FileInputStream(file.toFile())) {
 			// no need using NIO, simple file I/O is enough
 			return mapper.readValue(in, FileBlacklist.class);
 		}
 	}
-}
\ No newline at end of file
+}
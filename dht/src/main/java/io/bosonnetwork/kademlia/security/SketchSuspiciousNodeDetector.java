@@ -0,0 +1,526 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.security;
+
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.DEFAULT_BAN_DURATION;
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.DEFAULT_OBSERVATION_HIT_THRESHOLD;
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.DEFAULT_OBSERVATION_PERIOD;
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.DEFAULT_SUPPRESSION_DURATION;
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.MAX_SUPPRESSION_ESCALATION;
+import static io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.SAME_ID_SOURCE_THRESHOLD;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.net.SocketAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.BoundedMap;
+import io.bosonnetwork.kademlia.security.DefaultSuspiciousNodeDetector.SuspiciousActivity;
+
+/**
+ * A {@link SuspiciousNodeDetector} whose memory is fixed at construction, whatever the traffic.
+ *
+ * <p>The same policy as {@link DefaultSuspiciousNodeDetector} - the same two tiers, the same escalation,
+ * the same Sybil budget and same-id mass ban - with different bookkeeping under it. The default keeps one
+ * exact record per source, capped and evicted least-recently-used. Under a flood of spoofed source
+ * addresses that cap is exactly what gets exercised: every forged address takes a slot, and the records
+ * that get evicted are the history of the sources that were actually misbehaving. Such a flood costs the
+ * sender nothing, because no source address on it has to be real.</p>
+ *
+ * <p>Here the unproven hits go into a count-min sketch instead: a few rows of counters, indexed by
+ * independent hashes of the source, with the estimate taken as the minimum over the rows. Any number of
+ * distinct sources fits, and forged ones cannot push anything out. The price is that an estimate can only
+ * err high, by an amount bounded in terms of the traffic counted - {@link #getStats()} reports that bound
+ * for the live traffic. Conservative update - raising only the counters that are at the minimum - keeps the
+ * actual error well under it on the skewed traffic this sees.</p>
+ *
+ * <p>Only a source whose estimate reaches the hit threshold gets an exact record. That small table of
+ * heavy hitters is what remembers an escalation level, what the same-id scan reads, and what decides
+ * every ban. A proven observation goes there directly: a proven source has answered a call this node
+ * made, so proven sources cannot be forged in bulk, and the same-id scan needs their ids. The table is
+ * capped like the default's, but only sources that paid the threshold can enter it.</p>
+ *
+ * <p><strong>Windows.</strong> A sketch cannot forget one key, only everything. So it counts in two
+ * windows of one observation period each, and the estimate is the sum of the two. The older window is
+ * dropped at each boundary, so a hit stops counting between one and two periods after it was counted.
+ * A heavy hitter's record lasts two quiet periods instead of one, long enough that the pre-promotion hits
+ * in the sketch have been dropped by the time the record is. Forgiveness therefore takes up to twice as
+ * long as in the default.</p>
+ *
+ * <p><strong>What memory is fixed.</strong> The sketch ({@code 2 x depth x width} ints), the endpoint table
+ * the churn accounting uses (a direct-mapped array that overwrites on collision, where the default keeps a
+ * capped map), and the heavy-hitter and ban tables at their caps. Overwriting and eviction both fail open,
+ * for the reason the default gives.</p>
+ *
+ * <p><strong>Thread Safety:</strong> Not thread-safe, like the default. It should be confined to one
+ * thread or externally synchronized.</p>
+ */
+public class SketchSuspiciousNodeDetector implements SuspiciousNodeDetector {
+	/**
+	 * Default counters per sketch row. With conservative update a row of this width stays accurate into
+	 * the tens of thousands of distinct unproven sources per observation period. Past that, the
+	 * estimates drift up toward the threshold: unproven sources start being suppressed, and the error
+	 * bound in {@link #getStats()} shows it happening.
+	 */
+	static final int DEFAULT_SKETCH_WIDTH = 4096;
+	/** Rows per sketch: the bound in {@link Stats#overcountBound()} holds with probability 1 - e^-4, ~98%. */
+	static final int SKETCH_DEPTH = 4;
+	/** Exact records for sources that reached the threshold, or that were proven. */
+	static final int MAX_TRACKED_SOURCES = 1024;
+	static final int MAX_BANNED_SOURCES = 2048;
+	/** Slots in the endpoint table; a power of two. */
+	static final int ENDPOINT_SLOTS = 8192;
+
+	private final long observationPeriod;
+	private final int observationHitThreshold;
+	private final long banDuration;
+	private final long suppressionDuration;
+
+	private final int width;
+	// Row i of a sketch is [i * width, (i + 1) * width).
+	private int[] current;
+	private int[] previous;
+	private long windowStart;
+	private long currentEvents;
+	private long previousEvents;
+	// Secret per instance: a sender that cannot predict where a source lands cannot aim collisions at it.
+	private final long seed;
+
+	private final Map<String, Tracked> trackedSources;
+	private final Map<String, Long> bannedSources;
+	// Direct-mapped: slot = hash & mask, and the whole hash is the tag that tells one endpoint from another.
+	private final long[] endpointTags;
+	private final Id[] endpointIds;
+
+	private long malformedMessages;
+	private long inconsistencies;
+	private long identityChurns;
+	private long misbehaviors;
+	private long promotions;
+
+	private static final Logger log = LoggerFactory.getLogger(SketchSuspiciousNodeDetector.class);
+
+	/**
+	 * A heavy hitter's exact record, the counterpart of the default's observation record.
+	 */
+	private static class Tracked {
+		// Written by proven observations only, for the same reason as in the default.
+		private Id lastId;
+		private SuspiciousActivity lastActivity;
+		private int hits;
+		private int escalation;
+		private long expirationTime;
+	}
+
+	/**
+	 * A snapshot of the detector's size and accuracy.
+	 *
+	 * @param sketchWidth       counters per sketch row.
+	 * @param sketchDepth       rows per sketch.
+	 * @param sketchBytes       memory held by the two windows' counters.
+	 * @param windowEvents      unproven hits currently counted, over both windows.
+	 * @param overcountBound    how far above its true count any one source's estimate may read:
+	 *                          {@code e * windowEvents / sketchWidth}. Compare it with the hit threshold -
+	 *                          once it approaches the threshold, sources that did nothing may be suppressed.
+	 * @param confidence        the probability the bound holds for a given source, {@code 1 - e^-depth}.
+	 * @param trackedSources    exact records currently held.
+	 * @param bannedSources     ban table entries, expired ones included until the next purge.
+	 * @param promotions        sources moved from the sketch into the exact table since construction.
+	 * @param malformedMessages malformed messages counted since construction.
+	 * @param inconsistencies   unproven inconsistencies counted since construction.
+	 * @param identityChurns    identity changes at an endpoint counted since construction.
+	 * @param misbehaviors      proven misbehaviors counted since construction.
+	 */
+	public record Stats(int sketchWidth, int sketchDepth, long sketchBytes, long windowEvents,
+						double overcountBound, double confidence, int trackedSources, int bannedSources,
+						long promotions, long malformedMessages, long inconsistencies, long identityChurns,
+						long misbehaviors) {
+	}
+
+	/**
+	 * Constructs a detector with custom observation, ban and suppression parameters and sketch width.
+	 *
+	 * @param observationPeriod Length (in milliseconds) of one counting window; hits count for one to two
+	 *        of these, and a heavy hitter's record lasts two quiet periods.
+	 * @param observationHitThreshold Number of suspicious events required to act on a source.
+	 * @param banDuration Duration (in milliseconds) a node remains banned after proven misbehavior.
+	 * @param suppressionDuration Base duration (in milliseconds) an unproven source is suppressed for,
+	 *        doubling on each repeat while its record lasts.
+	 * @param sketchWidth Counters per sketch row; rounded up to a power of two.
+	 * @throws IllegalArgumentException if any parameter is non-positive.
+	 */
+	protected SketchSuspiciousNodeDetector(long observationPeriod, int observationHitThreshold,
+			long banDuration, long suppressionDuration, int sketchWidth) {
+		if (observationPeriod <= 0 || observationHitThreshold <= 0 || banDuration <= 0 || suppressionDuration <= 0)
+			throw new IllegalArgumentException("Observation period, hits, ban and suppression durations must be positive");
+		if (sketchWidth <= 0 || sketchWidth > 1 << 24)
+			throw new IllegalArgumentException("Invalid sketch width: " + sketchWidth);
+
+		this.observationPeriod = observationPeriod;
+		this.observationHitThreshold = observationHitThreshold;
+		this.banDuration = banDuration;
+		this.suppressionDuration = suppressionDuration;
+
+		int width = Integer.highestOneBit(sketchWidth);
+		this.width = width == sketchWidth ? width : width << 1;
+		this.current = new int[SKETCH_DEPTH * this.width];
+		this.previous = new int[SKETCH_DEPTH * this.width];
+		this.windowStart = System.currentTimeMillis();
+		this.seed = Random.secureRandom().nextLong();
+
+		trackedSources = new BoundedMap<>(MAX_TRACKED_SOURCES);
+		bannedSources = new BoundedMap<>(MAX_BANNED_SOURCES);
+		endpointTags = new long[ENDPOINT_SLOTS];
+		endpointIds = new Id[ENDPOINT_SLOTS];
+	}
+
+	/**
+	 * Constructs a detector with custom observation, ban and suppression parameters and the default
+	 * sketch width.
+	 *
+	 * @see #SketchSuspiciousNodeDetector(long, int, long, long, int)
+	 */
+	protected SketchSuspiciousNodeDetector(long observationPeriod, int observationHitThreshold,
+			long banDuration, long suppressionDuration) {
+		this(observationPeriod, observationHitThreshold, banDuration, suppressionDuration, DEFAULT_SKETCH_WIDTH);
+	}
+
+	/**
+	 * Constructs a detector with the default parameters of {@link DefaultSuspiciousNodeDetector} and the
+	 * default sketch width.
+	 */
+	protected SketchSuspiciousNodeDetector() {
+		this(DEFAULT_OBSERVATION_PERIOD, DEFAULT_OBSERVATION_HIT_THRESHOLD, DEFAULT_BAN_DURATION,
+				DEFAULT_SUPPRESSION_DURATION);
+	}
+
+	@Override
+	public boolean isBanned(String host) {
+		return isBannedSource(SourceKey.of(host), System.currentTimeMillis());
+	}
+
+	@Override
+	public void malformedMessage(SocketAddress addr) {
+		malformedMessages++;
+		observe(addr, null, SuspiciousActivity.MALFORMED_MESSAGE, false);
+	}
+
+	@Override
+	public void inconsistent(SocketAddress addr, Id id) {
+		inconsistencies++;
+		observe(addr, id, SuspiciousActivity.INCONSISTENT, false);
+	}
+
+	@Override
+	public void misbehaved(SocketAddress addr, Id id) {
+		misbehaviors++;
+		observe(addr, id, SuspiciousActivity.INCONSISTENT, true);
+	}
+
+	/**
+	 * Records that a source presented a node id, counting a hit only when the id changed at its endpoint.
+	 * <p>
+	 * As in the default, detection is per {@code ip:port} and the charge is per source. The endpoint table
+	 * is direct-mapped: two endpoints landing in one slot take turns in it, and each turn forgets the other's
+	 * id, so a collision can hide a change but never invent one.
+	 * </p>
+	 */
+	@Override
+	public Id observed(SocketAddress addr, Id id) {
+		if (id == null)
+			return null;
+
+		String source = SourceKey.of(addr.hostAddress());
+		if (isBannedSource(source, System.currentTimeMillis()))
+			return null;
+
+		long tag = hash(addr.hostAddress() + ':' + addr.port());
+		int slot = (int) tag & (ENDPOINT_SLOTS - 1);
+		Id previous = endpointTags[slot] == tag ? endpointIds[slot] : null;
+		endpointTags[slot] = tag;
+		endpointIds[slot] = id;
+
+		if (previous == null || previous.equals(id))
+			return null;
+
+		log.trace("Endpoint {} changed id: {} -> {}", addr, previous, id);
+		identityChurns++;
+		observe(addr, null, SuspiciousActivity.IDENTITY_CHURN, false);
+		return previous;
+	}
+
+	private void observe(SocketAddress addr, Id id, SuspiciousActivity activity, boolean proven) {
+		String source = SourceKey.of(addr.hostAddress());
+		long now = System.currentTimeMillis();
+		if (isBannedSource(source, now))
+			return;
+
+		Tracked tracked = trackedSources.get(source);
+		if (tracked != null && now > tracked.expirationTime) {
+			trackedSources.remove(source);
+			tracked = null;
+		}
+
+		if (tracked == null) {
+			int carried = 0;
+			if (!proven) {
+				int estimate = count(source, now);
+				if (estimate < observationHitThreshold)
+					return;
+
+				// Promoted with what the sketch counted, less this hit, which hit() adds.
+				carried = estimate - 1;
+				promotions++;
+				log.trace("Source {} promoted from the sketch at {} hits", source, estimate);
+			}
+
+			tracked = new Tracked();
+			tracked.hits = carried;
+			trackedSources.put(source, tracked);
+		}
+
+		tracked.lastActivity = activity;
+		if (proven && id != null)
+			tracked.lastId = id;
+
+		hit(source, tracked, now, proven, activity);
+		tracked.expirationTime = now + 2 * observationPeriod;
+
+		if (proven && id != null)
+			banSourcesClaiming(id, now);
+	}
+
+	/**
+	 * Counts one hit for a source in the sketch and returns its estimated hits over both windows.
+	 */
+	private int count(String source, long now) {
+		rotate(now);
+
+		long h = hash(source);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 32) | 1;
+		int mask = width - 1;
+
+		int least = Integer.MAX_VALUE;
+		int older = Integer.MAX_VALUE;
+		for (int row = 0, offset = 0; row < SKETCH_DEPTH; row++, offset += width) {
+			int index = offset + ((h1 + row * h2) & mask);
+			least = Math.min(least, current[index]);
+			older = Math.min(older, previous[index]);
+		}
+
+		// Conservative update: only the counters at the minimum were possibly this source's alone.
+		int updated = least == Integer.MAX_VALUE ? least : least + 1;
+		for (int row = 0, offset = 0; row < SKETCH_DEPTH; row++, offset += width) {
+			int index = offset + ((h1 + row * h2) & mask);
+			if (current[index] < updated)
+				current[index] = updated;
+		}
+
+		currentEvents++;
+		return (int) Math.min((long) updated + older, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Moves the windows forward to cover {@code now}. Boundaries stay on multiples of the period from
+	 * the first window, so a hit is dropped no later than two periods after it was counted, however
+	 * irregularly this is reached.
+	 */
+	private void rotate(long now) {
+		long elapsed = now - windowStart;
+		if (elapsed < observationPeriod)
+			return;
+
+		if (elapsed >= 2 * observationPeriod) {
+			Arrays.fill(current, 0);
+			Arrays.fill(previous, 0);
+			previousEvents = 0;
+			windowStart = now - elapsed % observationPeriod;
+		} else {
+			int[] reused = previous;
+			previous = current;
+			current = reused;
+			Arrays.fill(current, 0);
+			previousEvents = currentEvents;
+			windowStart += observationPeriod;
+		}
+
+		currentEvents = 0;
+	}
+
+	private long hash(String key) {
+		// FNV-1a over the chars from a secret start, then a 64-bit finalizer to spread it over both halves.
+		long h = seed;
+		for (int i = 0; i < key.length(); i++)
+			h = (h ^ key.charAt(i)) * 0x100000001b3L;
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Counts one hit against a tracked source and acts if it has reached the threshold. The same
+	 * decision as the default's.
+	 */
+	private void hit(String source, Tracked tracked, long now, boolean proven, SuspiciousActivity activity) {
+		if (++tracked.hits < observationHitThreshold)
+			return;
+
+		if (proven) {
+			log.info("Source {} banned for {}ms: activity={}, hits={}", source, banDuration, activity, tracked.hits);
+			banSource(source, now + banDuration);
+		} else {
+			tracked.escalation = tracked.escalation == 0 ? 1 :
+					Math.min(tracked.escalation * 2, MAX_SUPPRESSION_ESCALATION);
+			long duration = suppressionDuration * tracked.escalation;
+			log.info("Source {} suppressed for {}ms: activity={}, hits={}", source, duration, activity, tracked.hits);
+			banSource(source, now + duration);
+		}
+
+		tracked.hits = 0;
+	}
+
+	private void banSourcesClaiming(Id id, long now) {
+		List<String> sources = new ArrayList<>(SAME_ID_SOURCE_THRESHOLD);
+		for (Map.Entry<String, Tracked> entry : trackedSources.entrySet()) {
+			if (id.equals(entry.getValue().lastId))
+				sources.add(entry.getKey());
+		}
+
+		if (sources.size() < SAME_ID_SOURCE_THRESHOLD)
+			return;
+
+		log.info("Id {} answered from {} proven sources, banning all of them for {}ms", id, sources.size(),
+				banDuration);
+		for (String source : sources) {
+			log.debug("Source {} banned for presenting id {}", source, id);
+			trackedSources.remove(source);
+			banSource(source, now + banDuration);
+		}
+	}
+
+	private boolean isBannedSource(String source, long now) {
+		Long expiration = bannedSources.get(source);
+		return expiration != null && now < expiration;
+	}
+
+	private void banSource(String source, long expirationTime) {
+		// Never shorten, as in the default.
+		bannedSources.merge(source, expirationTime, Math::max);
+	}
+
+	/**
+	 * Returns the number of sources holding an exact record: heavy hitters and proven sources. Sources
+	 * counted only in the sketch are not sources in this sense - the sketch does not know which it holds.
+	 *
+	 * @return the count of tracked sources.
+	 */
+	@Override
+	public long getObservedSize() {
+		return trackedSources.size();
+	}
+
+	@Override
+	public long getBannedSize() {
+		return bannedSources.size();
+	}
+
+	/**
+	 * Returns the detector's size and accuracy figures.
+	 *
+	 * @return a snapshot of the current stats.
+	 */
+	public Stats getStats() {
+		rotate(System.currentTimeMillis());
+		long events = currentEvents + previousEvents;
+		return new Stats(width, SKETCH_DEPTH, 2L * SKETCH_DEPTH * width * Integer.BYTES, events,
+				Math.E * events / width, 1 - Math.exp(-SKETCH_DEPTH), trackedSources.size(), bannedSources.size(),
+				promotions, malformedMessages, inconsistencies, identityChurns, misbehaviors);
+	}
+
+	/**
+	 * Removes already-expired records and bans, and moves the windows forward. Memory in the tables only;
+	 * the sketch's size never changes.
+	 */
+	@Override
+	public void purge() {
+		long now = System.currentTimeMillis();
+		rotate(now);
+		trackedSources.entrySet().removeIf(entry -> now > entry.getValue().expirationTime);
+		bannedSources.entrySet().removeIf(entry -> now > entry.getValue());
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(current, 0);
+		Arrays.fill(previous, 0);
+		currentEvents = 0;
+		previousEvents = 0;
+		windowStart = System.currentTimeMillis();
+		trackedSources.clear();
+		bannedSources.clear();
+		Arrays.fill(endpointTags, 0);
+		Arrays.fill(endpointIds, null);
+	}
+
+	@Override
+	public String toString() {
+		Stats stats = getStats();
+		StringBuilder repr = new StringBuilder(64 * trackedSources.size() + 48 * bannedSources.size() + 160);
+		long now = System.currentTimeMillis();
+
+		repr.append("Sketch[").append(stats.sketchDepth()).append('x').append(stats.sketchWidth())
+				.append("]: events=").append(stats.windowEvents())
+				.append(", overcount<=").append(String.format("%.1f", stats.overcountBound()))
+				.append(", promotions=").append(stats.promotions()).append('\n');
+
+		if (!trackedSources.isEmpty()) {
+			repr.append("Tracked[").append(trackedSources.size()).append("]:\n");
+			trackedSources.forEach((source, tracked) ->
+					repr.append("  ").append(source).append(", ")
+							.append(tracked.lastActivity).append(", ")
+							.append(tracked.hits).append(", ")
+							.append(Duration.ofMillis(tracked.expirationTime - now)).append("\n"));
+		}
+
+		if (!bannedSources.isEmpty()) {
+			repr.append("Banned[").append(bannedSources.size()).append("]:\n");
+			bannedSources.forEach((source, exp) ->
+					repr.append("  ").append(source).append(", ").append(Duration.ofMillis(exp - now)).append("\n"));
+		}
+
+		return repr.toString();
+	}
+}
@@ -81,6 +81,35 @@ public interface SuspiciousNodeDetector {
 		return new DefaultSuspiciousNodeDetector();
 	}
 
+	/**
+	 * Constructs a detector whose memory is fixed whatever the traffic, with custom parameters.
+	 *
+	 * <p>The same policy as {@link #create(long, int, long, long)}, counting unproven sources in a
+	 * count-min sketch rather than one record each, so that a flood of forged source addresses cannot
+	 * evict the history of real ones. Estimates can read high; see {@link SketchSuspiciousNodeDetector}
+	 * for the trade and {@link SketchSuspiciousNodeDetector#getStats()} for its live size.</p>
+	 *
+	 * @param observationPeriod Length (in milliseconds) of one counting window.
+	 * @param observationHitThreshold Number of suspicious events required to act on a source.
+	 * @param banDuration Duration (in milliseconds) a node remains banned after proven misbehavior.
+	 * @param suppressionDuration Base duration (in milliseconds) an unproven source is suppressed for.
+	 * @throws IllegalArgumentException if any parameter is non-positive.
+	 */
+	static SuspiciousNodeDetector createBounded(long observationPeriod, int observationHitThreshold,
+			long banDuration, long suppressionDuration) {
+		return new SketchSuspiciousNodeDetector(observationPeriod, observationHitThreshold, banDuration,
+				suppressionDuration);
+	}
+
+	/**
+	 * Constructs a fixed-memory detector with the default parameters.
+	 *
+	 * @see #createBounded(long, int, long, long)
+	 */
+	static SuspiciousNodeDetector createBounded() {
+		return new SketchSuspiciousNodeDetector();
+	}
+
 	/**
 	 * Returns a detector that observes nothing and bans nobody.
 	 *
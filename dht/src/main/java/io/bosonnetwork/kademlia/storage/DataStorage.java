@@ -24,6 +24,7 @@ package io.bosonnetwork.kademlia.storage;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -31,6 +32,7 @@ import io.vertx.core.Vertx;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.PeerInfo;
 import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.metrics.StorageMetrics;
 
 /**
  * Interface for a Kademlia local storage system.
@@ -55,6 +57,14 @@ public interface DataStorage {
 	 */
 	Future<Void> close();
 
+	/**
+	 * Sets the metrics collector of the storage operations. Should be called before
+	 * {@link #initialize(Vertx, long, long)}; operations started earlier are not measured.
+	 *
+	 * @param metrics the metrics collector, null to disable metrics
+	 */
+	void setMetrics(StorageMetrics metrics);
+
 	/**
 	 * Retrieves the current schema version of the storage system.
 	 *
@@ -307,6 +317,34 @@ public interface DataStorage {
 	 */
 	Future<Boolean> removePeers(Id id);
 
+	/**
+	 * Writes every stored value and peer, with its persistence flag and timestamps, to a snapshot.
+	 * <p>
+	 * The records are appended to the writer as they are read, a page at a time, so the storage is
+	 * never held in memory. The writer is neither finished nor closed: the caller may add attachments
+	 * before or after, and owns the end of the snapshot.
+	 * </p>
+	 *
+	 * @param writer the snapshot writer
+	 * @return a {@link Future} containing the number of records written by this call
+	 */
+	Future<StorageSnapshot.Summary> exportSnapshot(StorageSnapshot.Writer writer);
+
+	/**
+	 * Bulk loads the values and peers of a snapshot, read to its end.
+	 * <p>
+	 * Records are upserted, so importing into a storage that already holds data merges the two under
+	 * the usual sequence number rules. Importing into an empty storage is the fast path: the secondary
+	 * indexes are dropped for the load and built once after it.
+	 * </p>
+	 *
+	 * @param reader      the snapshot reader
+	 * @param attachments receives the attachments of the snapshot, in the order they are read
+	 * @return a {@link Future} containing the number of records imported
+	 */
+	Future<StorageSnapshot.Summary> importSnapshot(StorageSnapshot.Reader reader,
+												   Consumer<StorageSnapshot.Attachment> attachments);
+
 	/**
 	 * Checks if the provided storage URI is supported by this implementation.
 	 *
@@ -320,6 +358,10 @@ public interface DataStorage {
 
 	/**
 	 * Creates a new DataStorage instance based on the provided URI.
+	 * <p>
+	 * A SQLite URI with a {@code shards} parameter, e.g. {@code jdbc:sqlite:node.db?shards=8}, creates
+	 * a {@link ShardedSQLiteStorage} partitioning the records across that many database files.
+	 * </p>
 	 *
 	 * @param uri      the storage connection URI
 	 * @param poolSize the connection pool size
@@ -330,8 +372,11 @@ public interface DataStorage {
 	static DataStorage create(String uri, int poolSize, String schema) {
 		Objects.requireNonNull(uri, "url");
 
-		if (uri.startsWith(SQLiteStorage.STORAGE_URI_PREFIX))
-			return new SQLiteStorage(uri, poolSize);
+		if (uri.startsWith(SQLiteStorage.STORAGE_URI_PREFIX)) {
+			int shards = ShardedSQLiteStorage.shardsOf(uri);
+			return shards > 1 ? new ShardedSQLiteStorage(uri, shards, poolSize) :
+					new SQLiteStorage(ShardedSQLiteStorage.withoutShards(uri), poolSize);
+		}
 		else if (uri.startsWith(PostgresStorage.STORAGE_URI_PREFIX))
 			return new PostgresStorage(uri, poolSize, schema);
 		else
@@ -23,14 +23,20 @@
 package io.bosonnetwork.kademlia.storage;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlConnection;
 import io.vertx.sqlclient.templates.SqlTemplate;
 import org.slf4j.Logger;
 
@@ -43,13 +49,24 @@ import io.bosonnetwork.kademlia.exceptions.ImmutableSubstitutionException;
 import io.bosonnetwork.kademlia.exceptions.KadException;
 import io.bosonnetwork.kademlia.exceptions.NotOwnerException;
 import io.bosonnetwork.kademlia.exceptions.SequenceNotExpectedException;
+import io.bosonnetwork.kademlia.metrics.StorageMetrics;
 
 public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
+	// Rows per page of a snapshot export, and records per transaction of a snapshot import
+	private static final int SNAPSHOT_BATCH_SIZE = 1024;
+	// Attempts of a write transaction failing transiently, and the back-off step between them
+	private static final int MAX_TRANSACTION_ATTEMPTS = 3;
+	private static final long TRANSACTION_RETRY_DELAY = 20;
+
+	protected Vertx vertx;
 	protected long valueExpiration;
 	protected long peerInfoExpiration;
 
 	protected int schemaVersion;
 
+	/** Metrics collector, null if metrics are disabled. */
+	protected StorageMetrics metrics;
+
 	protected abstract Logger getLogger();
 
 	protected abstract void init(Vertx vertx);
@@ -66,6 +83,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	public Future<Integer> initialize(Vertx vertx, long valueExpiration, long peerInfoExpiration) {
 		init(vertx);
 
+		this.vertx = vertx;
 		this.valueExpiration = valueExpiration;
 		this.peerInfoExpiration = peerInfoExpiration;
 
@@ -89,19 +107,120 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		return schemaVersion;
 	}
 
+	@Override
+	public void setMetrics(StorageMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Runs a named read operation on a connection, see {@link #withConnection(Function)}.
+	 * <p>
+	 * When metrics are enabled, the latency of the operation, the time it waited for the connection
+	 * and the rows it returned are recorded under the operation name.
+	 * </p>
+	 */
+	protected <T> Future<T> withConnection(String operation, Function<SqlConnection, Future<T>> function) {
+		StorageMetrics metrics = this.metrics;
+		if (metrics == null)
+			return withConnection(function);
+
+		long start = System.nanoTime();
+		return measured(operation, start, withConnection(c -> {
+			metrics.connectionAcquired(false, System.nanoTime() - start);
+			return function.apply(c);
+		}), metrics, DatabaseStorage::rowsOf);
+	}
+
+	/**
+	 * Runs a named write operation in a transaction, see {@link #withTransaction(Function)}.
+	 * <p>
+	 * A transaction failing transiently - lock contention, a serialization failure or a deadlock, as
+	 * told by {@link SqlDialect#isTransientFailure(Throwable)} - is run again after a short back-off,
+	 * so the function must not have side effects outside the database. When metrics are enabled, the
+	 * latency of the whole operation including retries, the time each attempt waited for the
+	 * connection, the retries and the rows changed are recorded under the operation name.
+	 * </p>
+	 */
+	protected <T> Future<T> withTransaction(String operation, Function<SqlConnection, Future<T>> function) {
+		return withTransaction(operation, function, DatabaseStorage::rowsOf);
+	}
+
+	protected <T> Future<T> withTransaction(String operation, Function<SqlConnection, Future<T>> function,
+											ToLongFunction<T> rows) {
+		StorageMetrics metrics = this.metrics;
+		if (metrics == null)
+			return transaction(operation, function, null, 1);
+
+		long start = System.nanoTime();
+		return measured(operation, start, transaction(operation, function, metrics, 1), metrics, rows);
+	}
+
+	private <T> Future<T> transaction(String operation, Function<SqlConnection, Future<T>> function,
+									  StorageMetrics metrics, int attempt) {
+		Future<T> future;
+		if (metrics == null) {
+			future = withTransaction(function);
+		} else {
+			long requested = System.nanoTime();
+			future = withTransaction(c -> {
+				metrics.connectionAcquired(true, System.nanoTime() - requested);
+				return function.apply(c);
+			});
+		}
+
+		return future.recover(cause -> {
+			if (attempt >= MAX_TRANSACTION_ATTEMPTS || !getDialect().isTransientFailure(cause))
+				return Future.failedFuture(cause);
+
+			getLogger().debug("{} failed transiently, retrying (attempt {}): {}", operation, attempt + 1, cause.getMessage());
+			if (metrics != null)
+				metrics.transactionRetried(operation);
+
+			return vertx.timer(TRANSACTION_RETRY_DELAY * attempt)
+					.compose(v -> transaction(operation, function, metrics, attempt + 1));
+		});
+	}
+
+	private static <T> Future<T> measured(String operation, long start, Future<T> future,
+										  StorageMetrics metrics, ToLongFunction<T> rows) {
+		return future.andThen(ar -> {
+			metrics.operationCompleted(operation, System.nanoTime() - start, ar.succeeded());
+			if (ar.succeeded())
+				metrics.rowsTouched(operation, rows.applyAsLong(ar.result()));
+		});
+	}
+
+	// Rows behind an operation result: the listed records, a removal that hit, or the one record
+	// stored or found.
+	private static long rowsOf(Object result) {
+		if (result == null)
+			return 0;
+		else if (result instanceof Collection<?> c)
+			return c.size();
+		else if (result instanceof Boolean b)
+			return b ? 1 : 0;
+		else
+			return 1;
+	}
+
+	// Rows changed by an announced time update, which returns the new time or 0 if nothing matched
+	private static long announcedRows(Long announced) {
+		return announced != 0 ? 1 : 0;
+	}
+
 	@Override
 	public Future<Void> purge() {
 		long now = System.currentTimeMillis();
 
 		getLogger().info("Purging expired values and peers...");
-		return withTransaction(c ->
+		return withTransaction("purge", c ->
 				SqlTemplate.forUpdate(c, getDialect().deleteNonPersistentValuesAnnouncedBefore())
 						.execute(Map.of("updatedBefore", now - valueExpiration))
 						.compose(r ->
 								SqlTemplate.forUpdate(c, getDialect().deleteNonPersistentPeersAnnouncedBefore())
 										.execute(Map.of("updatedBefore", now - peerInfoExpiration))
-										.map((Void) null)
-						)
+										.map(r2 -> r.rowCount() + r2.rowCount())
+						), Integer::longValue
 		).recover(cause ->
 				Future.failedFuture(new DataStorageException("purge database failed", cause))
 		).mapEmpty();
@@ -115,7 +234,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Value> putValue(Value value, boolean persistent) {
 		getLogger().debug("Putting value with id: {}, persistent: {}", value.getId(), persistent);
-		return withTransaction(c ->
+		return withTransaction("putValue", c ->
 					SqlTemplate.forUpdate(c, getDialect().upsertValue())
 							.execute(valueToMap(value, persistent))
 							.map(v -> value)
@@ -130,7 +249,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 				value.getId(), expectedSequenceNumber, persistent);
 		// Read, validate, and write within a single transaction so concurrent stores of the same id
 		// cannot interleave between the existence check and the write.
-		return withTransaction(c ->
+		return withTransaction("putValue/atomic", c ->
 				SqlTemplate.forQuery(c, getDialect().selectValue())
 						.execute(Map.of("id", value.getId().bytesUnsafe()))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToValue))
@@ -161,7 +280,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Value> getValue(Id id) {
 		getLogger().debug("Getting value with id: {}", id);
-		return withConnection(c ->
+		return withConnection("getValue", c ->
 				SqlTemplate.forQuery(c, getDialect().selectValue())
 						.execute(Map.of("id", id.bytesUnsafe()))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToValue))
@@ -172,7 +291,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<Value>> getValues() {
-		return withConnection(c ->
+		return withConnection("getValues/all", c ->
 				c.query(getDialect().selectAllValues())
 						.execute()
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
@@ -183,7 +302,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<Value>> getValues(int offset, int limit) {
-		return withConnection(c ->
+		return withConnection("getValues/all/paginated", c ->
 				SqlTemplate.forQuery(c, getDialect().selectAllValuesPaginated())
 						.execute(Map.of("limit", limit, "offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
@@ -194,7 +313,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<Value>> getValues(boolean persistent, long announcedBefore) {
-		return withConnection(c ->
+		return withConnection("getValues/announcedBefore", c ->
 				SqlTemplate.forQuery(c, getDialect().selectValuesByPersistentAndAnnouncedBefore())
 						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
@@ -205,7 +324,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit) {
-		return withConnection(c ->
+		return withConnection("getValues/announcedBefore/paginated", c ->
 				SqlTemplate.forQuery(c, getDialect().selectValuesByPersistentAndAnnouncedBeforePaginated())
 						.execute(Map.of(
 								"persistent", persistent,
@@ -222,10 +341,10 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	public Future<Long> updateValueAnnouncedTime(Id id) {
 		getLogger().debug("Updating value announced time with id: {}", id);
 		long now = System.currentTimeMillis();
-		return withTransaction(c ->
+		return withTransaction("updateValueAnnouncedTime", c ->
 				SqlTemplate.forUpdate(c, getDialect().updateValueAnnounced())
 						.execute(Map.of("id", id.bytesUnsafe(), "updated", now))
-						.map(r -> r.rowCount() > 0 ? now : 0L)
+						.map(r -> r.rowCount() > 0 ? now : 0L), DatabaseStorage::announcedRows
 		).recover(cause ->
 				Future.failedFuture(new DataStorageException("updateValueAnnouncedTime failed", cause))
 		);
@@ -234,7 +353,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Boolean> removeValue(Id id) {
 		getLogger().debug("Removing value with id: {}", id);
-		return withTransaction(c ->
+		return withTransaction("removeValue", c ->
 				SqlTemplate.forUpdate(c, getDialect().deleteValue())
 						.execute(Map.of("id", id.bytesUnsafe()))
 						.map(this::hasAffectedRows)
@@ -251,7 +370,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<PeerInfo> putPeer(PeerInfo peerInfo, boolean persistent) {
 		getLogger().debug("Putting peer with id: {} @ {}, persistent: {}", peerInfo.getId(), peerInfo.getNodeId(), persistent);
-		return withTransaction(c ->
+		return withTransaction("putPeer", c ->
 					SqlTemplate.forUpdate(c, getDialect().upsertPeer())
 							.execute(peerToMap(peerInfo, persistent))
 							.map(v -> peerInfo)
@@ -267,7 +386,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 		List<Map<String, Object>> params = peerInfos.stream().map(p -> peerToMap(p, false)).toList();
 
-		return withTransaction(c ->
+		return withTransaction("putPeers", c ->
 				SqlTemplate.forUpdate(c, getDialect().upsertPeer())
 						.executeBatch(params)
 						.map(v -> peerInfos)
@@ -280,7 +399,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	public Future<PeerInfo> putPeer(PeerInfo peerInfo, int expectedSequenceNumber, boolean persistent, boolean failIfNotOwner) {
 		getLogger().debug("Atomically putting peer with id: {}:{}, expectedSeq: {}, persistent: {}",
 				peerInfo.getId(), peerInfo.getFingerprint(), expectedSequenceNumber, persistent);
-		return withTransaction(c ->
+		return withTransaction("putPeer/atomic", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeer())
 						.execute(Map.of("id", peerInfo.getId().bytesUnsafe(), "fingerprint", peerInfo.getFingerprint()))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToPeer))
@@ -315,7 +434,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id, Id nodeId) {
 		getLogger().debug("Getting peer with id: {} @ {}", id, nodeId);
-		return withConnection(c ->
+		return withConnection("getPeers/id&nodeId", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByIdAndNodeId())
 						.execute(Map.of("id", id.bytesUnsafe(), "nodeId", nodeId.bytesUnsafe()))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
@@ -327,7 +446,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id) {
 		getLogger().debug("Getting peers with id: {}", id);
-		return withConnection(c ->
+		return withConnection("getPeers/id", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersById())
 						.execute(Map.of("id", id.bytesUnsafe()))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
@@ -339,7 +458,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit) {
 		getLogger().debug("Getting peers with id: {}, expectedSequenceNumber: {}, limit{}", id, expectedSequenceNumber, limit);
-		return withConnection(c ->
+		return withConnection("getPeers/id&expectedSequenceNumber", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByIdAndSequenceNumberWithLimit())
 						.execute(Map.of("id", id.bytesUnsafe(),
 								"expectedSequenceNumber", expectedSequenceNumber,
@@ -352,7 +471,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<PeerInfo>> getPeers() {
-		return withConnection(c ->
+		return withConnection("getPeers/all", c ->
 				c.query(getDialect().selectAllPeers())
 						.execute()
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
@@ -363,7 +482,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(int offset, int limit) {
-		return withConnection(c ->
+		return withConnection("getPeers/all/paginated", c ->
 				SqlTemplate.forQuery(c, getDialect().selectAllPeersPaginated())
 						.execute(Map.of("limit", limit, "offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
@@ -374,7 +493,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore) {
-		return withConnection(c ->
+		return withConnection("getPeers/announcedBefore", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByPersistentAndAnnouncedBefore())
 						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
@@ -385,7 +504,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit) {
-		return withConnection(c ->
+		return withConnection("getPeers/announcedBefore/paginated", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByPersistentAndAnnouncedBeforePaginated())
 						.execute(Map.of(
 								"persistent", persistent,
@@ -402,10 +521,10 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	public Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint) {
 		getLogger().debug("Updating peer announced time with id: {}:{}", id, fingerprint);
 		long now = System.currentTimeMillis();
-		return withTransaction(c ->
+		return withTransaction("updatePeerAnnouncedTime", c ->
 				SqlTemplate.forUpdate(c, getDialect().updatePeerAnnounced())
 						.execute(Map.of("id", id.bytesUnsafe(), "fingerprint", fingerprint, "updated", now))
-						.map(r -> r.rowCount() > 0 ? now : 0L)
+						.map(r -> r.rowCount() > 0 ? now : 0L), DatabaseStorage::announcedRows
 		).recover(cause ->
 				Future.failedFuture(new DataStorageException("updatePeerAnnouncedTime failed", cause))
 		);
@@ -413,7 +532,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	@Override
 	public Future<PeerInfo> getPeer(Id id, long fingerprint) {
-		return withConnection(c ->
+		return withConnection("getPeer", c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeer())
 						.execute(Map.of("id", id.bytesUnsafe(), "fingerprint", fingerprint))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToPeer))
@@ -425,7 +544,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Boolean> removePeer(Id id, long fingerprint) {
 		getLogger().debug("Removing peer with id: {}:{}", id, fingerprint);
-		return withTransaction(c ->
+		return withTransaction("removePeer", c ->
 				SqlTemplate.forUpdate(c, getDialect().deletePeer())
 						.execute(Map.of("id", id.bytesUnsafe(), "fingerprint", fingerprint))
 						.map(this::hasAffectedRows)
@@ -437,7 +556,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Boolean> removePeers(Id id) {
 		getLogger().debug("Removing peers with id: {}", id);
-		return withTransaction(c ->
+		return withTransaction("removePeers/id", c ->
 				SqlTemplate.forUpdate(c, getDialect().deletePeersById())
 						.execute(Map.of("id", id.bytesUnsafe()))
 						.map(this::hasAffectedRows)
@@ -446,7 +565,201 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		);
 	}
 
+	@Override
+	public Future<StorageSnapshot.Summary> exportSnapshot(StorageSnapshot.Writer writer) {
+		getLogger().info("Exporting values and peers to the snapshot...");
+		return exportValues(writer, new byte[0], 0).compose(values ->
+				exportPeers(writer, new byte[0], Long.MIN_VALUE, 0).map(peers -> new StorageSnapshot.Summary(values, peers))
+		).recover(cause ->
+				Future.failedFuture(new DataStorageException("exportSnapshot failed", cause))
+		);
+	}
+
+	// Keyset pagination rather than offsets: a page costs the same wherever it is, and rows written
+	// while the export runs cannot shift the pages under it.
+	private Future<Long> exportValues(StorageSnapshot.Writer writer, byte[] after, long exported) {
+		return withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().selectValuesAfter())
+						.execute(Map.of("after", after, "limit", SNAPSHOT_BATCH_SIZE))
+						.map(rows -> findMany(rows, DatabaseStorage::rowToValueRecord))
+		).compose(records -> {
+			if (records.isEmpty())
+				return Future.succeededFuture(exported);
+
+			byte[] last = records.get(records.size() - 1).value().getId().bytesUnsafe();
+			return vertx.executeBlocking(() -> {
+				for (StorageSnapshot.ValueRecord record : records)
+					writer.write(record);
+				return null;
+			}).compose(v -> records.size() < SNAPSHOT_BATCH_SIZE ?
+					Future.succeededFuture(exported + records.size()) :
+					exportValues(writer, last, exported + records.size()));
+		});
+	}
+
+	private Future<Long> exportPeers(StorageSnapshot.Writer writer, byte[] afterId, long afterFingerprint, long exported) {
+		return withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().selectPeersAfter())
+						.execute(Map.of("afterId", afterId, "afterFingerprint", afterFingerprint, "limit", SNAPSHOT_BATCH_SIZE))
+						.map(rows -> findMany(rows, DatabaseStorage::rowToPeerRecord))
+		).compose(records -> {
+			if (records.isEmpty())
+				return Future.succeededFuture(exported);
+
+			PeerInfo last = records.get(records.size() - 1).peer();
+			return vertx.executeBlocking(() -> {
+				for (StorageSnapshot.PeerRecord record : records)
+					writer.write(record);
+				return null;
+			}).compose(v -> records.size() < SNAPSHOT_BATCH_SIZE ?
+					Future.succeededFuture(exported + records.size()) :
+					exportPeers(writer, last.getId().bytesUnsafe(), last.getFingerprint(), exported + records.size()));
+		});
+	}
+
+	@Override
+	public Future<StorageSnapshot.Summary> importSnapshot(StorageSnapshot.Reader reader,
+														  Consumer<StorageSnapshot.Attachment> attachments) {
+		getLogger().info("Importing values and peers from the snapshot...");
+		return beginBulkLoad().compose(indexes ->
+				importBlocks(reader, attachments, new StorageSnapshot.Summary(0, 0))
+						.eventually(() -> endBulkLoad(indexes))
+		).recover(cause ->
+				Future.failedFuture(new DataStorageException("importSnapshot failed", cause))
+		);
+	}
+
+	private Future<StorageSnapshot.Summary> importBlocks(StorageSnapshot.Reader reader,
+														 Consumer<StorageSnapshot.Attachment> attachments,
+														 StorageSnapshot.Summary imported) {
+		return vertx.executeBlocking(reader::next).compose(entries -> {
+			if (entries == null) {
+				getLogger().info("Imported {} values and {} peers from the snapshot", imported.values(), imported.peers());
+				return Future.succeededFuture(imported);
+			}
+
+			List<StorageSnapshot.ValueRecord> values = new ArrayList<>();
+			List<StorageSnapshot.PeerRecord> peers = new ArrayList<>();
+			for (StorageSnapshot.Entry entry : entries) {
+				if (entry instanceof StorageSnapshot.ValueRecord value)
+					values.add(value);
+				else if (entry instanceof StorageSnapshot.PeerRecord peer)
+					peers.add(peer);
+				else if (entry instanceof StorageSnapshot.Attachment attachment)
+					attachments.accept(attachment);
+			}
+
+			return importRecords(values, peers).compose(v -> importBlocks(reader, attachments,
+					imported.plus(new StorageSnapshot.Summary(values.size(), peers.size()))));
+		});
+	}
+
+	/**
+	 * Upserts a batch of snapshot records, in transactions of a bounded size.
+	 */
+	Future<Void> importRecords(List<StorageSnapshot.ValueRecord> values, List<StorageSnapshot.PeerRecord> peers) {
+		Future<Void> chain = Future.succeededFuture();
+		for (int i = 0; i < values.size(); i += SNAPSHOT_BATCH_SIZE) {
+			List<Map<String, Object>> params = values.subList(i, Math.min(i + SNAPSHOT_BATCH_SIZE, values.size()))
+					.stream().map(r -> valueToMap(r.value(), r.persistent(), r.created(), r.updated())).toList();
+			chain = chain.compose(v -> withTransaction(c ->
+					SqlTemplate.forUpdate(c, getDialect().upsertValue()).executeBatch(params).mapEmpty()));
+		}
+
+		for (int i = 0; i < peers.size(); i += SNAPSHOT_BATCH_SIZE) {
+			List<Map<String, Object>> params = peers.subList(i, Math.min(i + SNAPSHOT_BATCH_SIZE, peers.size()))
+					.stream().map(r -> peerToMap(r.peer(), r.persistent(), r.created(), r.updated())).toList();
+			chain = chain.compose(v -> withTransaction(c ->
+					SqlTemplate.forUpdate(c, getDialect().upsertPeer()).executeBatch(params).mapEmpty()));
+		}
+
+		return chain;
+	}
+
+	/**
+	 * Prepares a bulk load: if the storage is empty, drops the secondary indexes so the load does not
+	 * maintain them row by row.
+	 *
+	 * @return a future of the definitions of the dropped indexes, to hand to {@link #endBulkLoad(List)}
+	 */
+	Future<List<String>> beginBulkLoad() {
+		String selectIndexes = getDialect().selectSecondaryIndexes();
+		if (selectIndexes == null)
+			return Future.succeededFuture(List.of());
+
+		return withConnection(c ->
+				c.query(getDialect().selectHasRecords()).execute().map(this::findBoolean)
+		).compose(hasRecords -> {
+			if (hasRecords)
+				return Future.succeededFuture(List.of());
+
+			return withTransaction(c ->
+					c.query(selectIndexes).execute().compose(rows -> {
+						List<String> definitions = new ArrayList<>();
+						Future<Void> chain = Future.succeededFuture();
+						for (Row row : rows) {
+							String name = row.getString(0);
+							definitions.add(row.getString(1));
+							chain = chain.compose(v -> c.query("DROP INDEX IF EXISTS " + name).execute().mapEmpty());
+						}
+
+						return chain.map(v -> definitions);
+					})
+			);
+		});
+	}
+
+	/**
+	 * Rebuilds the indexes dropped by {@link #beginBulkLoad()}.
+	 */
+	Future<Void> endBulkLoad(List<String> indexes) {
+		if (indexes.isEmpty())
+			return Future.succeededFuture();
+
+		getLogger().info("Rebuilding {} indexes after the bulk load...", indexes.size());
+		return withTransaction(c -> {
+			Future<Void> chain = Future.succeededFuture();
+			for (String definition : indexes)
+				chain = chain.compose(v -> c.query(definition).execute().mapEmpty());
+			return chain;
+		});
+	}
+
+	/**
+	 * A stored record with its announced ({@code updated}) time. Listings of several databases are
+	 * merged on it to restore the order the dialect queries define for a single database.
+	 *
+	 * @param item      the stored record
+	 * @param announced the announced time, in milliseconds
+	 * @param <T>       the record type
+	 */
+	record Announced<T>(T item, long announced) {}
+
+	// Listings that keep the announced time, for a storage that merges several databases; the
+	// caller supplies the operation name and the dialect query, and wraps the failure with its own
+	// context.
+	Future<List<Announced<Value>>> getAnnouncedValues(String operation, String sql, Map<String, Object> params) {
+		return withConnection(operation, c ->
+				SqlTemplate.forQuery(c, sql)
+						.execute(params)
+						.map(rows -> findMany(rows, row -> new Announced<>(rowToValue(row), row.getLong("updated"))))
+		);
+	}
+
+	Future<List<Announced<PeerInfo>>> getAnnouncedPeers(String operation, String sql, Map<String, Object> params) {
+		return withConnection(operation, c ->
+				SqlTemplate.forQuery(c, sql)
+						.execute(params)
+						.map(rows -> findMany(rows, row -> new Announced<>(rowToPeer(row), row.getLong("updated"))))
+		);
+	}
+
 	protected static Map<String, Object> valueToMap(Value value, boolean persistent) {
+		long now = System.currentTimeMillis();
+		return valueToMap(value, persistent, now, now);
+	}
+
+	protected static Map<String, Object> valueToMap(Value value, boolean persistent, long created, long updated) {
 		Map<String, Object> map = new HashMap<>();
 		map.put("id", value.getId().bytesUnsafe());
 		map.put("publicKey", value.getPublicKey() != null ? value.getPublicKey().bytesUnsafe() : null);
@@ -457,9 +770,8 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		map.put("signature", value.getSignature());
 		map.put("data", value.getData());
 		map.put("persistent", persistent);
-		long now = System.currentTimeMillis();
-		map.put("created", now);
-		map.put("updated", now);
+		map.put("created", created);
+		map.put("updated", updated);
 		return map;
 	}
 
@@ -476,6 +788,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	}
 
 	protected static Map<String, Object> peerToMap(PeerInfo peerInfo, boolean persistent) {
+		long now = System.currentTimeMillis();
+		return peerToMap(peerInfo, persistent, now, now);
+	}
+
+	protected static Map<String, Object> peerToMap(PeerInfo peerInfo, boolean persistent, long created, long updated) {
 		Map<String, Object> map = new HashMap<>();
 		map.put("id", peerInfo.getId().bytesUnsafe());
 		map.put("fingerprint", peerInfo.getFingerprint());
@@ -492,9 +809,8 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		map.put("endpoint", peerInfo.getEndpoint());
 		map.put("extra", peerInfo.hasExtra() ? peerInfo.getExtraData() : null);
 		map.put("persistent", persistent);
-		long now = System.currentTimeMillis();
-		map.put("created", now);
-		map.put("updated", now);
+		map.put("created", created);
+		map.put("updated", updated);
 		return map;
 	}
 
@@ -512,6 +828,22 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		return PeerInfo.of(id, privateKey, sequenceNumber, nodeId, nodeSignature, signature, fingerprint, endpoint, extra);
 	}
 
+	protected static StorageSnapshot.ValueRecord rowToValueRecord(Row row) {
+		return new StorageSnapshot.ValueRecord(rowToValue(row), getBoolean(row, "persistent"),
+				row.getLong("created"), row.getLong("updated"));
+	}
+
+	protected static StorageSnapshot.PeerRecord rowToPeerRecord(Row row) {
+		return new StorageSnapshot.PeerRecord(rowToPeer(row), getBoolean(row, "persistent"),
+				row.getLong("created"), row.getLong("updated"));
+	}
+
+	// SQLite has no boolean type and hands the column back as an integer
+	private static boolean getBoolean(Row row, String column) {
+		Object value = row.getValue(column);
+		return value instanceof Boolean b ? b : value instanceof Number n && n.intValue() != 0;
+	}
+
 	private static Id getId(Row row, String column) {
 		Buffer buf = row.getBuffer(column);
 		return buf == null ? null : Id.of(buf.getBytes());
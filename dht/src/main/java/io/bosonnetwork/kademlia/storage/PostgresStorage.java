@@ -29,6 +29,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgException;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.PoolOptions;
 import io.vertx.sqlclient.SqlClient;
@@ -70,7 +71,24 @@ public class PostgresStorage extends DatabaseStorage implements DataStorage {
 				.connectingTo(connectOptions)
 				.using(vertx)
 				.build();
-		sqlDialect = new SqlDialect() {};
+		sqlDialect = new SqlDialect() {
+			@Override
+			public boolean isTransientFailure(Throwable cause) {
+				// serialization_failure and deadlock_detected, e.g. two batched peer upserts locking
+				// the same rows in a different order
+				return cause instanceof PgException e &&
+						("40001".equals(e.getSqlState()) || "40P01".equals(e.getSqlState()));
+			}
+
+			@Override
+			public String selectSecondaryIndexes() {
+				return """
+						SELECT indexname, indexdef FROM pg_indexes
+							WHERE schemaname = current_schema() AND tablename IN ('valores', 'peers')
+								AND indexname LIKE 'idx\\_%'
+						""";
+			}
+		};
 	}
 
 	@Override
@@ -24,31 +24,82 @@ package io.bosonnetwork.kademlia.storage;
 
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.jdbcclient.JDBCPool;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.PoolOptions;
 import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.SqlConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sqlite.SQLiteDataSource;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
 
+import io.bosonnetwork.kademlia.metrics.StorageMetrics;
 import io.bosonnetwork.utils.FileUtils;
 
+/**
+ * SQLite backed {@link DataStorage}.
+ * <p>
+ * SQLite serializes writers on the WAL lock no matter how many connections are open, so handing
+ * writes to a shared pool only makes them fight over that lock with busy retries while the readers
+ * in the same pool wait behind them. The storage therefore splits the two:
+ * <ul>
+ *   <li>all writes ({@link #withTransaction}) go through a queue drained by one dedicated writer
+ *       connection. Whatever is queued while a batch is committing is taken as the next batch and
+ *       executed in a single transaction, each write inside its own savepoint so a failed write is
+ *       rolled back alone and fails only its own future.</li>
+ *   <li>all reads ({@link #withConnection}) go to a separate pool of read-only connections, which
+ *       in WAL mode never block on, and are never blocked by, the writer.</li>
+ * </ul>
+ * A write's future completes only after the batch holding it has committed, so a read issued after
+ * it observes the write.
+ * </p>
+ */
 public class SQLiteStorage extends DatabaseStorage implements DataStorage {
 	protected static final String STORAGE_URI_PREFIX = "jdbc:sqlite:";
 
+	private static final int DEFAULT_READER_POOL_SIZE = 4;
+	// Upper bound of writes committed in one transaction, keeps a single commit (and the
+	// latency of the first write in it) bounded under a sustained write burst.
+	private static final int MAX_WRITE_BATCH = 64;
+	private static final String WRITE_SAVEPOINT = "batched_write";
+
 	private final String connectionUri;
 	private final int poolSize;
-	private Pool client;
+	private Pool writer;
+	private Pool reader;
 	private SqlDialect sqlDialect;
 
+	private final Queue<WriteTask<?>> writeQueue = new ConcurrentLinkedQueue<>();
+	// The queue's size() walks the queue, this is what the metrics sample instead
+	private final AtomicInteger pendingWrites = new AtomicInteger();
+	private final AtomicBoolean writing = new AtomicBoolean(false);
+
 	private static final Logger log = LoggerFactory.getLogger(SQLiteStorage.class);
 
+	/**
+	 * Creates the storage.
+	 *
+	 * @param connectionUri the SQLite JDBC URI
+	 * @param poolSize      the size of the read-only connection pool; writes always use one dedicated
+	 *                      connection
+	 */
 	protected SQLiteStorage(String connectionUri, int poolSize) {
 		this.connectionUri = connectionUri;
-		this.poolSize = poolSize > 0 ? poolSize : 1;
+		this.poolSize = poolSize > 0 ? poolSize : DEFAULT_READER_POOL_SIZE;
 	}
 
 	protected SQLiteStorage(String connectionUri) {
@@ -59,19 +110,57 @@ public class SQLiteStorage extends DatabaseStorage implements DataStorage {
 	protected void init(Vertx vertx) {
 		// Vert.x 5.x style
 		// noinspection DuplicatedCode
-		SQLiteDataSource dataSource = new SQLiteDataSource();
-		dataSource.setUrl(connectionUri);
-		dataSource.setJournalMode("WAL");
-		dataSource.setEnforceForeignKeys(true);
-		dataSource.setBusyTimeout(5000);
-		dataSource.setLockingMode("NORMAL");
-		dataSource.setSharedCache(false);
-		dataSource.setFullSync(true);
-
-		// Single connection recommended for SQLite
-		PoolOptions poolOptions = new PoolOptions().setMaxSize(poolSize);
-		client = JDBCPool.pool(vertx, dataSource, poolOptions);
-		sqlDialect = new SqlDialect() {};
+		SQLiteDataSource writerDataSource = new SQLiteDataSource();
+		writerDataSource.setUrl(connectionUri);
+		writerDataSource.setJournalMode("WAL");
+		writerDataSource.setEnforceForeignKeys(true);
+		writerDataSource.setBusyTimeout(5000);
+		writerDataSource.setLockingMode("NORMAL");
+		writerDataSource.setSharedCache(false);
+		writerDataSource.setFullSync(true);
+
+		// The single writer, also used by the schema migration
+		writer = JDBCPool.pool(vertx, writerDataSource, new PoolOptions().setMaxSize(1));
+
+		if (isInMemory()) {
+			// Every connection to an in-memory database opens its own private database
+			reader = writer;
+		} else {
+			// The journal mode is persistent in the database file, set once by the writer; the
+			// connections are opened lazily, so after the migration has created the file.
+			SQLiteDataSource readerDataSource = new SQLiteDataSource();
+			readerDataSource.setUrl(connectionUri);
+			readerDataSource.setReadOnly(true);
+			readerDataSource.setEnforceForeignKeys(true);
+			readerDataSource.setBusyTimeout(5000);
+			readerDataSource.setLockingMode("NORMAL");
+			readerDataSource.setSharedCache(false);
+
+			reader = JDBCPool.pool(vertx, readerDataSource, new PoolOptions().setMaxSize(poolSize));
+		}
+
+		sqlDialect = new SqlDialect() {
+			@Override
+			public boolean isTransientFailure(Throwable cause) {
+				// SQLITE_BUSY or SQLITE_LOCKED, including their extended codes, when another process
+				// holds the database lock longer than the busy timeout
+				for (Throwable t = cause; t != null; t = t.getCause()) {
+					if (t instanceof SQLiteException e) {
+						int code = e.getResultCode().code & 0xFF;
+						return code == SQLiteErrorCode.SQLITE_BUSY.code || code == SQLiteErrorCode.SQLITE_LOCKED.code;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public String selectSecondaryIndexes() {
+				return """
+						SELECT name, sql FROM sqlite_master
+							WHERE type = 'index' AND tbl_name IN ('valores', 'peers') AND sql IS NOT NULL
+						""";
+			}
+		};
 
 		/*/
 		// Vert.x 4.x style
@@ -81,6 +170,10 @@ public class SQLiteStorage extends DatabaseStorage implements DataStorage {
 		*/
 	}
 
+	private boolean isInMemory() {
+		return connectionUri.contains(":memory:") || connectionUri.contains("mode=memory");
+	}
+
 	@Override
 	protected Path getMigrationPath() {
 		URL migrationResource = getClass().getResource("/db/kadnode/sqlite");
@@ -94,9 +187,138 @@ public class SQLiteStorage extends DatabaseStorage implements DataStorage {
 		}
 	}
 
+	/**
+	 * Returns the writer connection pool.
+	 *
+	 * @return the writer pool
+	 */
 	@Override
 	public SqlClient getClient() {
-		return client;
+		return writer;
+	}
+
+	/**
+	 * Executes the function on a read-only connection.
+	 */
+	@Override
+	public <T> Future<T> withConnection(Function<SqlConnection, Future<T>> function) {
+		if (reader == null)
+			return Future.failedFuture(new IllegalStateException("Storage not initialized"));
+
+		return reader.withConnection(c -> prepareConnection(c).compose(v -> function.apply(c)));
+	}
+
+	/**
+	 * Queues the function for the writer connection. It is executed in the next write batch,
+	 * inside its own savepoint of the batch transaction; the returned future completes after
+	 * the batch has committed.
+	 */
+	@Override
+	public <T> Future<T> withTransaction(Function<SqlConnection, Future<T>> function) {
+		if (writer == null)
+			return Future.failedFuture(new IllegalStateException("Storage not initialized"));
+
+		WriteTask<T> task = new WriteTask<>(function);
+		writeQueue.add(task);
+		pendingWrites.incrementAndGet();
+		drainWrites();
+		return task.future();
+	}
+
+	private void drainWrites() {
+		if (writeQueue.isEmpty() || !writing.compareAndSet(false, true))
+			return;
+
+		List<WriteTask<?>> batch = new ArrayList<>();
+		WriteTask<?> task;
+		while (batch.size() < MAX_WRITE_BATCH && (task = writeQueue.poll()) != null)
+			batch.add(task);
+		pendingWrites.addAndGet(-batch.size());
+
+		if (batch.isEmpty()) {
+			writing.set(false);
+			// a task may have been queued between the poll and the reset
+			drainWrites();
+			return;
+		}
+
+		if (batch.size() > 1)
+			log.trace("Committing {} batched writes", batch.size());
+
+		writer.withTransaction(c -> prepareConnection(c).compose(v -> {
+			Future<Void> chain = Future.succeededFuture();
+			for (WriteTask<?> t : batch)
+				chain = chain.compose(x -> t.execute(c));
+			return chain;
+		})).onComplete(ar -> {
+			Throwable failure = ar.failed() ? ar.cause() : null;
+			if (failure != null)
+				log.warn("Write batch of {} failed", batch.size(), failure);
+
+			batch.forEach(t -> t.complete(failure));
+			writing.set(false);
+			drainWrites();
+		});
+	}
+
+	private static class WriteTask<T> {
+		private final Function<SqlConnection, Future<T>> function;
+		private final Promise<T> promise;
+		private AsyncResult<T> result;
+
+		WriteTask(Function<SqlConnection, Future<T>> function) {
+			this.function = function;
+			this.promise = Promise.promise();
+		}
+
+		Future<T> future() {
+			return promise.future();
+		}
+
+		// Runs the write in its own savepoint. A failure of the write itself is recorded and only its
+		// changes are rolled back; the returned future fails only if the savepoint handling failed,
+		// which leaves the batch transaction unusable.
+		Future<Void> execute(SqlConnection connection) {
+			return connection.query("SAVEPOINT " + WRITE_SAVEPOINT).execute()
+					.compose(v -> function.apply(connection))
+					.transform(ar -> {
+						result = ar;
+						if (ar.succeeded())
+							return connection.query("RELEASE SAVEPOINT " + WRITE_SAVEPOINT).execute().mapEmpty();
+						else
+							return connection.query("ROLLBACK TO SAVEPOINT " + WRITE_SAVEPOINT).execute()
+									.compose(v -> connection.query("RELEASE SAVEPOINT " + WRITE_SAVEPOINT).execute())
+									.mapEmpty();
+					});
+		}
+
+		void complete(Throwable batchFailure) {
+			if (result != null && result.failed())
+				promise.fail(result.cause());
+			else if (batchFailure != null)
+				promise.fail(batchFailure);
+			else
+				promise.complete(result.result());
+		}
+	}
+
+	@Override
+	public void setMetrics(StorageMetrics metrics) {
+		super.setMetrics(metrics);
+		if (metrics != null)
+			metrics.queueRegistered("sqlite-writer:" + getDatabaseName(), pendingWrites::get);
+	}
+
+	// The database file name, telling the shards of a sharded storage apart
+	private String getDatabaseName() {
+		if (isInMemory())
+			return "memory";
+
+		String path = connectionUri.substring(STORAGE_URI_PREFIX.length());
+		int query = path.indexOf('?');
+		if (query >= 0)
+			path = path.substring(0, query);
+		return Path.of(path).getFileName().toString();
 	}
 
 	@Override
@@ -108,4 +330,13 @@ public class SQLiteStorage extends DatabaseStorage implements DataStorage {
 	protected Logger getLogger() {
 		return log;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public Future<Void> close() {
+		if (writer == null)
+			return Future.succeededFuture();
+
+		Future<Void> closeReader = reader != writer ? reader.close() : Future.succeededFuture();
+		return Future.all(closeReader, writer.close()).mapEmpty();
+	}
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.metrics.StorageMetrics;
+import io.bosonnetwork.kademlia.storage.DatabaseStorage.Announced;
+
+/**
+ * A {@link DataStorage} that partitions values and peers across several SQLite databases by the
+ * leading bits of their {@link Id}.
+ * <p>
+ * One SQLite database serializes every write on its WAL lock, so a node storing many millions of
+ * records is bound to one writer no matter how many cores it has. Each shard here is a complete
+ * {@link SQLiteStorage} with its own writer and reader pool: operations on one id go to the one shard
+ * owning it, the bulk scans and {@link #purge()} run on all shards in parallel, and the listings are
+ * merged back into the order a single database returns them in.
+ * </p>
+ * <p>
+ * Sharding is selected with the {@code shards} parameter of a SQLite URI, which must be a power of two
+ * from 2 to 256, e.g. {@code jdbc:sqlite:/var/lib/boson/node.db?shards=8}. Shard {@code i} is stored
+ * in {@code node.shard-i-of-8.db} next to the configured file. The shard count is part of the file
+ * names, because a record is only found in the shard its id maps to: changing the count starts with
+ * a fresh set of databases instead of silently missing the existing records.
+ * </p>
+ */
+public class ShardedSQLiteStorage implements DataStorage {
+	static final String SHARDS_PARAMETER = "shards";
+	private static final int MAX_SHARDS = 256;
+
+	private static final Comparator<Announced<Value>> VALUES_NEWEST_FIRST =
+			Comparator.<Announced<Value>>comparingLong(a -> -a.announced())
+					.thenComparing(a -> a.item().getId());
+	private static final Comparator<Announced<Value>> VALUES_OLDEST_FIRST =
+			Comparator.<Announced<Value>>comparingLong(Announced::announced)
+					.thenComparing(a -> a.item().getId());
+	private static final Comparator<Announced<PeerInfo>> PEERS_NEWEST_FIRST =
+			Comparator.<Announced<PeerInfo>>comparingLong(a -> -a.announced())
+					.thenComparing(a -> a.item().getId())
+					.thenComparingLong(a -> a.item().getFingerprint());
+	private static final Comparator<Announced<PeerInfo>> PEERS_OLDEST_FIRST =
+			Comparator.<Announced<PeerInfo>>comparingLong(Announced::announced)
+					.thenComparing(a -> a.item().getId())
+					.thenComparingLong(a -> a.item().getFingerprint());
+
+	private final List<SQLiteStorage> shards;
+	private final int shardBits;
+	private Vertx vertx;
+
+	private static final Logger log = LoggerFactory.getLogger(ShardedSQLiteStorage.class);
+
+	/**
+	 * Creates the sharded storage.
+	 *
+	 * @param connectionUri the SQLite JDBC URI of the base database file
+	 * @param shards        the number of shards, a power of two from 2 to 256
+	 * @param poolSize      the read-only connection pool size of each shard
+	 * @throws IllegalArgumentException if the shard count is invalid or the URI is an in-memory database
+	 */
+	protected ShardedSQLiteStorage(String connectionUri, int shards, int poolSize) {
+		if (shards < 2 || shards > MAX_SHARDS || Integer.bitCount(shards) != 1)
+			throw new IllegalArgumentException("Invalid shard count: " + shards +
+					", must be a power of two from 2 to " + MAX_SHARDS);
+
+		this.shardBits = Integer.numberOfTrailingZeros(shards);
+		this.shards = new ArrayList<>(shards);
+		for (int i = 0; i < shards; i++)
+			this.shards.add(new SQLiteStorage(shardUri(connectionUri, i, shards), poolSize));
+	}
+
+	/**
+	 * Gets the shard count requested by the {@code shards} parameter of a SQLite URI.
+	 *
+	 * @param uri the SQLite JDBC URI
+	 * @return the requested shard count, or {@code 1} if the URI does not request sharding
+	 * @throws IllegalArgumentException if the parameter is not a number
+	 */
+	static int shardsOf(String uri) {
+		String value = parameters(uri).get(SHARDS_PARAMETER);
+		if (value == null)
+			return 1;
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid shard count: " + value, e);
+		}
+	}
+
+	/**
+	 * Removes the {@code shards} parameter from a SQLite URI; the JDBC driver does not know it.
+	 *
+	 * @param uri the SQLite JDBC URI
+	 * @return the URI without the {@code shards} parameter
+	 */
+	static String withoutShards(String uri) {
+		int q = uri.indexOf('?');
+		if (q < 0)
+			return uri;
+
+		StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+		for (String param : uri.substring(q + 1).split("&")) {
+			if (!param.isEmpty() && !param.startsWith(SHARDS_PARAMETER + "="))
+				query.add(param);
+		}
+
+		return uri.substring(0, q) + query;
+	}
+
+	private static Map<String, String> parameters(String uri) {
+		int q = uri.indexOf('?');
+		if (q < 0)
+			return Map.of();
+
+		Map<String, String> params = new HashMap<>();
+		for (String param : uri.substring(q + 1).split("&")) {
+			int eq = param.indexOf('=');
+			if (eq > 0)
+				params.put(param.substring(0, eq), param.substring(eq + 1));
+		}
+
+		return params;
+	}
+
+	static String shardUri(String uri, int index, int count) {
+		String base = withoutShards(uri);
+		int q = base.indexOf('?');
+		String query = q < 0 ? "" : base.substring(q);
+		String file = (q < 0 ? base : base.substring(0, q)).substring(SQLiteStorage.STORAGE_URI_PREFIX.length());
+		if (file.isEmpty() || file.contains(":memory:") || query.contains("mode=memory"))
+			throw new IllegalArgumentException("Sharding requires a file database: " + uri);
+
+		String suffix = ".shard-" + index + "-of-" + count;
+		int dot = file.lastIndexOf('.');
+		int separator = Math.max(file.lastIndexOf('/'), file.lastIndexOf('\\'));
+		String shardFile = dot > separator + 1 ?
+				file.substring(0, dot) + suffix + file.substring(dot) : file + suffix;
+
+		return SQLiteStorage.STORAGE_URI_PREFIX + shardFile + query;
+	}
+
+	/**
+	 * Gets the number of shards.
+	 *
+	 * @return the shard count
+	 */
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	private SQLiteStorage shardOf(Id id) {
+		return shards.get((id.bytesUnsafe()[0] & 0xFF) >>> (Byte.SIZE - shardBits));
+	}
+
+	private <T> Future<List<T>> fanOut(Function<SQLiteStorage, Future<T>> operation) {
+		List<Future<T>> futures = new ArrayList<>(shards.size());
+		for (SQLiteStorage shard : shards)
+			futures.add(operation.apply(shard));
+
+		return Future.all(futures).map(cf -> cf.list());
+	}
+
+	// Each shard returns its first offset + limit records in the global order, so the merged
+	// page is exact: no record of the requested page can sort below that prefix of its shard.
+	private static <T> Future<List<T>> merge(Future<List<List<Announced<T>>>> results,
+											 Comparator<Announced<T>> order, int offset, int limit) {
+		return results.map(lists -> {
+			List<Announced<T>> merged = new ArrayList<>();
+			lists.forEach(merged::addAll);
+			// concatenated sorted runs, the list sort merges them in near linear time
+			merged.sort(order);
+
+			int from = Math.min(offset, merged.size());
+			int to = (int) Math.min((long) from + limit, merged.size());
+			return merged.subList(from, to).stream().map(Announced::item).toList();
+		});
+	}
+
+	private static int prefixLimit(int offset, int limit) {
+		if (offset < 0)
+			throw new IllegalArgumentException("Invalid offset: " + offset);
+		if (limit <= 0)
+			throw new IllegalArgumentException("Invalid limit: " + limit);
+
+		return (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+	}
+
+	private static <T> Future<T> failed(String operation, Throwable cause) {
+		return Future.failedFuture(new DataStorageException(operation + " failed", cause));
+	}
+
+	@Override
+	public Future<Integer> initialize(Vertx vertx, long valueExpiration, long peerInfoExpiration) {
+		this.vertx = vertx;
+		return fanOut(shard -> shard.initialize(vertx, valueExpiration, peerInfoExpiration)).map(versions -> {
+			log.info("Sharded storage is ready, {} shards", shards.size());
+			return versions.get(0);
+		});
+	}
+
+	@Override
+	public void setMetrics(StorageMetrics metrics) {
+		// Every shard records under the same operation names, so a listing fanned out across the
+		// shards is measured once per shard; each shard registers its own write queue.
+		shards.forEach(shard -> shard.setMetrics(metrics));
+	}
+
+	@Override
+	public Future<Void> close() {
+		return fanOut(SQLiteStorage::close).mapEmpty();
+	}
+
+	@Override
+	public int getSchemaVersion() {
+		return shards.get(0).getSchemaVersion();
+	}
+
+	@Override
+	public Future<Void> purge() {
+		return fanOut(SQLiteStorage::purge).mapEmpty();
+	}
+
+	@Override
+	public Future<StorageSnapshot.Summary> exportSnapshot(StorageSnapshot.Writer writer) {
+		// One shard after another: they share the writer
+		Future<StorageSnapshot.Summary> chain = Future.succeededFuture(new StorageSnapshot.Summary(0, 0));
+		for (SQLiteStorage shard : shards)
+			chain = chain.compose(exported -> shard.exportSnapshot(writer).map(exported::plus));
+		return chain;
+	}
+
+	@Override
+	public Future<StorageSnapshot.Summary> importSnapshot(StorageSnapshot.Reader reader,
+														  Consumer<StorageSnapshot.Attachment> attachments) {
+		log.info("Importing values and peers from the snapshot into {} shards...", shards.size());
+		return fanOut(SQLiteStorage::beginBulkLoad).compose(indexes ->
+				importBlocks(reader, attachments, new StorageSnapshot.Summary(0, 0)).eventually(() -> {
+					List<Future<Void>> futures = new ArrayList<>(shards.size());
+					for (int i = 0; i < shards.size(); i++)
+						futures.add(shards.get(i).endBulkLoad(indexes.get(i)));
+					return Future.join(futures);
+				})
+		).recover(cause -> failed("importSnapshot", cause));
+	}
+
+	// Blocks are read one at a time and each is loaded into the shards in parallel
+	private Future<StorageSnapshot.Summary> importBlocks(StorageSnapshot.Reader reader,
+														 Consumer<StorageSnapshot.Attachment> attachments,
+														 StorageSnapshot.Summary imported) {
+		return vertx.executeBlocking(reader::next).compose(entries -> {
+			if (entries == null) {
+				log.info("Imported {} values and {} peers from the snapshot", imported.values(), imported.peers());
+				return Future.succeededFuture(imported);
+			}
+
+			Map<SQLiteStorage, List<StorageSnapshot.ValueRecord>> values = new HashMap<>();
+			Map<SQLiteStorage, List<StorageSnapshot.PeerRecord>> peers = new HashMap<>();
+			long valueCount = 0;
+			long peerCount = 0;
+			for (StorageSnapshot.Entry entry : entries) {
+				if (entry instanceof StorageSnapshot.ValueRecord value) {
+					values.computeIfAbsent(shardOf(value.value().getId()), s -> new ArrayList<>()).add(value);
+					valueCount++;
+				} else if (entry instanceof StorageSnapshot.PeerRecord peer) {
+					peers.computeIfAbsent(shardOf(peer.peer().getId()), s -> new ArrayList<>()).add(peer);
+					peerCount++;
+				} else if (entry instanceof StorageSnapshot.Attachment attachment) {
+					attachments.accept(attachment);
+				}
+			}
+
+			StorageSnapshot.Summary total = imported.plus(new StorageSnapshot.Summary(valueCount, peerCount));
+			return fanOut(shard -> shard.importRecords(values.getOrDefault(shard, List.of()), peers.getOrDefault(shard, List.of())))
+					.compose(v -> importBlocks(reader, attachments, total));
+		});
+	}
+
+	@Override
+	public Future<Value> putValue(Value value) {
+		return shardOf(value.getId()).putValue(value);
+	}
+
+	@Override
+	public Future<Value> putValue(Value value, boolean persistent) {
+		return shardOf(value.getId()).putValue(value, persistent);
+	}
+
+	@Override
+	public Future<Value> putValue(Value value, int expectedSequenceNumber, boolean persistent, boolean failIfNotOwner) {
+		return shardOf(value.getId()).putValue(value, expectedSequenceNumber, persistent, failIfNotOwner);
+	}
+
+	@Override
+	public Future<Value> getValue(Id id) {
+		return shardOf(id).getValue(id);
+	}
+
+	@Override
+	public Future<List<Value>> getValues() {
+		return merge(fanOut(shard -> shard.getAnnouncedValues("getValues/all", shard.getDialect().selectAllValues(), Map.of())),
+				VALUES_NEWEST_FIRST, 0, Integer.MAX_VALUE
+		).recover(cause -> failed("getValues/all", cause));
+	}
+
+	@Override
+	public Future<List<Value>> getValues(int offset, int limit) {
+		Map<String, Object> params = Map.of("limit", prefixLimit(offset, limit), "offset", 0);
+		return merge(fanOut(shard -> shard.getAnnouncedValues("getValues/all/paginated",
+						shard.getDialect().selectAllValuesPaginated(), params)),
+				VALUES_NEWEST_FIRST, offset, limit
+		).recover(cause -> failed("getValues/all/paginated", cause));
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore) {
+		Map<String, Object> params = Map.of("persistent", persistent, "updatedBefore", announcedBefore);
+		return merge(fanOut(shard -> shard.getAnnouncedValues("getValues/announcedBefore",
+						shard.getDialect().selectValuesByPersistentAndAnnouncedBefore(), params)),
+				VALUES_OLDEST_FIRST, 0, Integer.MAX_VALUE
+		).recover(cause -> failed("getValues/announcedBefore", cause));
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit) {
+		Map<String, Object> params = Map.of(
+				"persistent", persistent,
+				"updatedBefore", announcedBefore,
+				"limit", prefixLimit(offset, limit),
+				"offset", 0);
+		return merge(fanOut(shard -> shard.getAnnouncedValues("getValues/announcedBefore/paginated",
+						shard.getDialect().selectValuesByPersistentAndAnnouncedBeforePaginated(), params)),
+				VALUES_OLDEST_FIRST, offset, limit
+		).recover(cause -> failed("getValues/announcedBefore/paginated", cause));
+	}
+
+	@Override
+	public Future<Long> updateValueAnnouncedTime(Id id) {
+		return shardOf(id).updateValueAnnouncedTime(id);
+	}
+
+	@Override
+	public Future<Boolean> removeValue(Id id) {
+		return shardOf(id).removeValue(id);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo) {
+		return shardOf(peerInfo.getId()).putPeer(peerInfo);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo, boolean persistent) {
+		return shardOf(peerInfo.getId()).putPeer(peerInfo, persistent);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo, int expectedSequenceNumber, boolean persistent, boolean failIfNotOwner) {
+		return shardOf(peerInfo.getId()).putPeer(peerInfo, expectedSequenceNumber, persistent, failIfNotOwner);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> putPeers(List<PeerInfo> peerInfos) {
+		if (peerInfos.isEmpty())
+			return Future.succeededFuture(peerInfos);
+
+		Map<SQLiteStorage, List<PeerInfo>> partitions = new HashMap<>();
+		for (PeerInfo peerInfo : peerInfos)
+			partitions.computeIfAbsent(shardOf(peerInfo.getId()), s -> new ArrayList<>()).add(peerInfo);
+
+		List<Future<List<PeerInfo>>> futures = new ArrayList<>(partitions.size());
+		partitions.forEach((shard, partition) -> futures.add(shard.putPeers(partition)));
+		return Future.all(futures).map(v -> peerInfos);
+	}
+
+	@Override
+	public Future<PeerInfo> getPeer(Id id, long fingerprint) {
+		return shardOf(id).getPeer(id, fingerprint);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id) {
+		return shardOf(id).getPeers(id);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit) {
+		return shardOf(id).getPeers(id, expectedSequenceNumber, limit);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, Id nodeId) {
+		return shardOf(id).getPeers(id, nodeId);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers() {
+		return merge(fanOut(shard -> shard.getAnnouncedPeers("getPeers/all", shard.getDialect().selectAllPeers(), Map.of())),
+				PEERS_NEWEST_FIRST, 0, Integer.MAX_VALUE
+		).recover(cause -> failed("getPeers/all", cause));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(int offset, int limit) {
+		Map<String, Object> params = Map.of("limit", prefixLimit(offset, limit), "offset", 0);
+		return merge(fanOut(shard -> shard.getAnnouncedPeers("getPeers/all/paginated",
+						shard.getDialect().selectAllPeersPaginated(), params)),
+				PEERS_NEWEST_FIRST, offset, limit
+		).recover(cause -> failed("getPeers/all/paginated", cause));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore) {
+		Map<String, Object> params = Map.of("persistent", persistent, "updatedBefore", announcedBefore);
+		return merge(fanOut(shard -> shard.getAnnouncedPeers("getPeers/announcedBefore",
+						shard.getDialect().selectPeersByPersistentAndAnnouncedBefore(), params)),
+				PEERS_OLDEST_FIRST, 0, Integer.MAX_VALUE
+		).recover(cause -> failed("getPeers/announcedBefore", cause));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit) {
+		Map<String, Object> params = Map.of(
+				"persistent", persistent,
+				"updatedBefore", announcedBefore,
+				"limit", prefixLimit(offset, limit),
+				"offset", 0);
+		return merge(fanOut(shard -> shard.getAnnouncedPeers("getPeers/announcedBefore/paginated",
+						shard.getDialect().selectPeersByPersistentAndAnnouncedBeforePaginated(), params)),
+				PEERS_OLDEST_FIRST, offset, limit
+		).recover(cause -> failed("getPeers/announcedBefore/paginated", cause));
+	}
+
+	@Override
+	public Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint) {
+		return shardOf(id).updatePeerAnnouncedTime(id, fingerprint);
+	}
+
+	@Override
+	public Future<Boolean> removePeer(Id id, long fingerprint) {
+		return shardOf(id).removePeer(id, fingerprint);
+	}
+
+	@Override
+	public Future<Boolean> removePeers(Id id) {
+		return shardOf(id).removePeers(id);
+	}
+}
@@ -1,6 +1,17 @@
 package io.bosonnetwork.kademlia.storage;
 
 public interface SqlDialect {
+	/**
+	 * Tells whether a failed write transaction may succeed if simply run again: lock contention,
+	 * a serialization failure or a deadlock, as opposed to a constraint violation or a bug.
+	 *
+	 * @param cause the failure of the transaction
+	 * @return true if the transaction is worth retrying
+	 */
+	default boolean isTransientFailure(Throwable cause) {
+		return false;
+	}
+
 	default String upsertValue() {
 		return """
 				INSERT INTO valores (
@@ -172,7 +183,7 @@ public interface SqlDialect {
 	}
 
 	default String selectAllPeersPaginated() {
-		return "SELECT * FROM peers ORDER BY updated DESC, id, node_id LIMIT #{limit} OFFSET #{offset}";
+		return "SELECT * FROM peers ORDER BY updated DESC, id, fingerprint LIMIT #{limit} OFFSET #{offset}";
 	}
 
 	default String updatePeerAnnounced() {
@@ -190,4 +201,32 @@ public interface SqlDialect {
 	default String deleteNonPersistentPeersAnnouncedBefore() {
 		return "DELETE FROM peers WHERE persistent = FALSE AND updated < #{updatedBefore}";
 	}
-}
\ No newline at end of file
+
+	/** Keyset pagination over all values in id order, for snapshots: stable while rows are updated. */
+	default String selectValuesAfter() {
+		return "SELECT * FROM valores WHERE id > #{after} ORDER BY id LIMIT #{limit}";
+	}
+
+	/** Keyset pagination over all peers in (id, fingerprint) order, for snapshots. */
+	default String selectPeersAfter() {
+		return """
+				SELECT * FROM peers
+					WHERE id > #{afterId} OR (id = #{afterId} AND fingerprint > #{afterFingerprint})
+					ORDER BY id, fingerprint
+					LIMIT #{limit}
+				""";
+	}
+
+	default String selectHasRecords() {
+		return "SELECT EXISTS (SELECT 1 FROM valores) OR EXISTS (SELECT 1 FROM peers)";
+	}
+
+	/**
+	 * Lists the secondary indexes of the storage tables as (name, definition) rows, the definition being
+	 * the statement that recreates the index. A bulk load into empty tables drops them and builds them
+	 * once afterward. {@code null} if the dialect cannot list them, which keeps the indexes in place.
+	 */
+	default String selectSecondaryIndexes() {
+		return null;
+	}
+}
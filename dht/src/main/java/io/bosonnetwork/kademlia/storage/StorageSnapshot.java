@@ -0,0 +1,551 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+
+/**
+ * A compact, checksummed, streaming binary snapshot of a node's stored values and peers, plus named
+ * opaque attachments (the node uses them for its routing tables).
+ * <p>
+ * Layout, all integers big-endian:
+ * <pre>
+ *   header: magic "BSNP" (4) | version (1) | timestamp (8)
+ *   block:  type (1) | record count (4) | payload length (4) | payload | CRC32C of the preceding fields (4)
+ *   ...
+ *   end:    a block of type 0 holding the total value and peer counts
+ * </pre>
+ * A block holds records of one type only. Every block is verified before any of its records is
+ * handed out, so a reader applies nothing from a damaged block, and the end block is what tells a
+ * complete snapshot from a truncated one. Records keep the persistence flag and the created and
+ * announced times, so an imported node re-announces on the schedule of the node it was cloned from.
+ * </p>
+ * <p>
+ * A snapshot is trusted input, the same as the database file it replaces: the checksums catch
+ * damage, not forgery, and signatures are not re-verified on import.
+ * </p>
+ */
+public final class StorageSnapshot {
+	private static final int MAGIC = 0x42534E50; // "BSNP"
+	private static final int VERSION = 1;
+
+	private static final int BLOCK_END = 0;
+	private static final int BLOCK_VALUES = 1;
+	private static final int BLOCK_PEERS = 2;
+	private static final int BLOCK_ATTACHMENT = 3;
+
+	// A block is flushed once its payload reaches this size, which bounds the memory of both sides.
+	private static final int BLOCK_SIZE = 256 * 1024;
+	// Anything larger is not a block this writer produced.
+	private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private static final int FLAG_PERSISTENT = 0x01;
+	private static final int FLAG_PUBLIC_KEY = 0x02;
+	private static final int FLAG_PRIVATE_KEY = 0x04;
+	private static final int FLAG_RECIPIENT = 0x08;
+	private static final int FLAG_NONCE = 0x10;
+	private static final int FLAG_SIGNATURE = 0x20;
+	private static final int FLAG_NODE = 0x40;
+	private static final int FLAG_EXTRA = 0x80;
+
+	private StorageSnapshot() {
+	}
+
+	/**
+	 * An entry of a snapshot.
+	 */
+	public sealed interface Entry permits ValueRecord, PeerRecord, Attachment {
+	}
+
+	/**
+	 * A stored value with its storage metadata.
+	 *
+	 * @param value      the value
+	 * @param persistent whether the value is stored persistently
+	 * @param created    the creation time, in milliseconds
+	 * @param updated    the announced time, in milliseconds
+	 */
+	public record ValueRecord(Value value, boolean persistent, long created, long updated) implements Entry {
+	}
+
+	/**
+	 * A stored peer with its storage metadata.
+	 *
+	 * @param peer       the peer
+	 * @param persistent whether the peer is stored persistently
+	 * @param created    the creation time, in milliseconds
+	 * @param updated    the announced time, in milliseconds
+	 */
+	public record PeerRecord(PeerInfo peer, boolean persistent, long created, long updated) implements Entry {
+	}
+
+	/**
+	 * A named opaque blob carried along with the stored records.
+	 *
+	 * @param name the attachment name
+	 * @param data the attachment content
+	 */
+	public record Attachment(String name, byte[] data) implements Entry {
+		public Attachment {
+			Objects.requireNonNull(name, "name");
+			Objects.requireNonNull(data, "data");
+		}
+	}
+
+	/**
+	 * The number of records written to or read from a snapshot.
+	 *
+	 * @param values the number of values
+	 * @param peers  the number of peers
+	 */
+	public record Summary(long values, long peers) {
+		public Summary plus(Summary other) {
+			return new Summary(values + other.values, peers + other.peers);
+		}
+	}
+
+	/**
+	 * Writes a snapshot to a stream. Not thread safe; all methods block on the stream.
+	 */
+	public static final class Writer implements Closeable {
+		private final DataOutputStream out;
+		private final ByteArrayOutputStream payload;
+		private final DataOutputStream block;
+		private final CRC32C crc;
+		private int blockType;
+		private int blockCount;
+		private long values;
+		private long peers;
+		private boolean finished;
+
+		/**
+		 * Creates a writer and writes the snapshot header.
+		 *
+		 * @param out       the stream to write to; closed by {@link #close()}
+		 * @param timestamp the snapshot time, in milliseconds
+		 * @throws IOException if the header cannot be written
+		 */
+		public Writer(OutputStream out, long timestamp) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+			this.payload = new ByteArrayOutputStream(BLOCK_SIZE + 4096);
+			this.block = new DataOutputStream(payload);
+			this.crc = new CRC32C();
+			this.blockType = -1;
+
+			this.out.writeInt(MAGIC);
+			this.out.writeByte(VERSION);
+			this.out.writeLong(timestamp);
+		}
+
+		/**
+		 * Appends a value record.
+		 *
+		 * @param record the value record
+		 * @throws IOException if the record cannot be written
+		 */
+		public void write(ValueRecord record) throws IOException {
+			startRecord(BLOCK_VALUES);
+
+			Value value = record.value();
+			int flags = (record.persistent() ? FLAG_PERSISTENT : 0) |
+					(value.getPublicKey() != null ? FLAG_PUBLIC_KEY : 0) |
+					(value.getPrivateKey() != null ? FLAG_PRIVATE_KEY : 0) |
+					(value.getRecipient() != null ? FLAG_RECIPIENT : 0) |
+					(value.getNonce() != null ? FLAG_NONCE : 0) |
+					(value.getSignature() != null ? FLAG_SIGNATURE : 0);
+			block.writeByte(flags);
+			if (value.getPublicKey() != null)
+				block.write(value.getPublicKey().bytesUnsafe());
+			if (value.getPrivateKey() != null)
+				writeBytes(block, value.getPrivateKey());
+			if (value.getRecipient() != null)
+				block.write(value.getRecipient().bytesUnsafe());
+			if (value.getNonce() != null)
+				writeBytes(block, value.getNonce());
+			writeVarint(block, value.getSequenceNumber());
+			if (value.getSignature() != null)
+				writeBytes(block, value.getSignature());
+			writeBytes(block, value.getData());
+			block.writeLong(record.created());
+			block.writeLong(record.updated());
+
+			values++;
+			endRecord();
+		}
+
+		/**
+		 * Appends a peer record.
+		 *
+		 * @param record the peer record
+		 * @throws IOException if the record cannot be written
+		 */
+		public void write(PeerRecord record) throws IOException {
+			startRecord(BLOCK_PEERS);
+
+			PeerInfo peer = record.peer();
+			int flags = (record.persistent() ? FLAG_PERSISTENT : 0) |
+					(peer.getPrivateKey() != null ? FLAG_PRIVATE_KEY : 0) |
+					(peer.isAuthenticated() ? FLAG_NODE : 0) |
+					(peer.hasExtra() ? FLAG_EXTRA : 0);
+			block.writeByte(flags);
+			block.write(peer.getId().bytesUnsafe());
+			block.writeLong(peer.getFingerprint());
+			if (peer.getPrivateKey() != null)
+				writeBytes(block, peer.getPrivateKey());
+			writeVarint(block, peer.getSequenceNumber());
+			if (peer.isAuthenticated()) {
+				block.write(peer.getNodeId().bytesUnsafe());
+				writeBytes(block, peer.getNodeSignature());
+			}
+			writeBytes(block, peer.getSignature());
+			block.writeUTF(peer.getEndpoint());
+			if (peer.hasExtra())
+				writeBytes(block, peer.getExtraData());
+			block.writeLong(record.created());
+			block.writeLong(record.updated());
+
+			peers++;
+			endRecord();
+		}
+
+		/**
+		 * Appends an attachment, in a block of its own.
+		 *
+		 * @param attachment the attachment
+		 * @throws IOException if the attachment cannot be written
+		 */
+		public void write(Attachment attachment) throws IOException {
+			if (attachment.data().length > MAX_BLOCK_SIZE - 1024)
+				throw new IOException("Attachment too large: " + attachment.name());
+
+			flushBlock();
+			startRecord(BLOCK_ATTACHMENT);
+			block.writeUTF(attachment.name());
+			writeBytes(block, attachment.data());
+			endRecord();
+			flushBlock();
+		}
+
+		/**
+		 * Writes the end of the snapshot and flushes the stream. Nothing can be written afterward.
+		 *
+		 * @return the number of records written
+		 * @throws IOException if the end cannot be written
+		 */
+		public Summary finish() throws IOException {
+			ensureOpen();
+			flushBlock();
+
+			blockType = BLOCK_END;
+			blockCount = 0;
+			block.writeLong(values);
+			block.writeLong(peers);
+			flushBlock();
+
+			out.flush();
+			finished = true;
+			return new Summary(values, peers);
+		}
+
+		@Override
+		public void close() throws IOException {
+			finished = true;
+			out.close();
+		}
+
+		private void ensureOpen() throws IOException {
+			if (finished)
+				throw new IOException("Snapshot already finished");
+		}
+
+		private void startRecord(int type) throws IOException {
+			ensureOpen();
+			if (blockType != type) {
+				flushBlock();
+				blockType = type;
+			}
+		}
+
+		private void endRecord() throws IOException {
+			blockCount++;
+			if (payload.size() >= BLOCK_SIZE)
+				flushBlock();
+		}
+
+		private void flushBlock() throws IOException {
+			if (blockType < 0 || (blockType != BLOCK_END && blockCount == 0))
+				return;
+
+			block.flush();
+			crc.reset();
+			crc.update(blockType);
+			updateInt(crc, blockCount);
+			updateInt(crc, payload.size());
+			byte[] bytes = payload.toByteArray();
+			crc.update(bytes);
+
+			out.writeByte(blockType);
+			out.writeInt(blockCount);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			out.writeInt((int) crc.getValue());
+
+			payload.reset();
+			blockType = -1;
+			blockCount = 0;
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a stream, one verified block at a time. Not thread safe; all methods block
+	 * on the stream.
+	 */
+	public static final class Reader implements Closeable {
+		private final DataInputStream in;
+		private final long timestamp;
+		private final CRC32C crc;
+		private long values;
+		private long peers;
+		private boolean ended;
+
+		/**
+		 * Creates a reader and reads the snapshot header.
+		 *
+		 * @param in the stream to read from; closed by {@link #close()}
+		 * @throws IOException if the stream does not start with a snapshot header of a known version
+		 */
+		public Reader(InputStream in) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+			this.crc = new CRC32C();
+
+			try {
+				if (this.in.readInt() != MAGIC)
+					throw new IOException("Not a storage snapshot");
+
+				int version = this.in.readUnsignedByte();
+				if (version != VERSION)
+					throw new IOException("Unsupported snapshot version: " + version);
+
+				this.timestamp = this.in.readLong();
+			} catch (EOFException e) {
+				throw new IOException("Not a storage snapshot", e);
+			}
+		}
+
+		/**
+		 * Gets the time the snapshot was taken.
+		 *
+		 * @return the snapshot time, in milliseconds
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Reads and verifies the next block.
+		 *
+		 * @return the entries of the block, all of the same type, or {@code null} at the end of the
+		 *         snapshot
+		 * @throws IOException if the snapshot is truncated or damaged
+		 */
+		public List<Entry> next() throws IOException {
+			if (ended)
+				return null;
+
+			byte[] bytes;
+			int type;
+			int count;
+			try {
+				type = in.readUnsignedByte();
+				count = in.readInt();
+				int length = in.readInt();
+				if (count < 0 || length < 0 || length > MAX_BLOCK_SIZE)
+					throw new IOException("Corrupted snapshot block");
+
+				bytes = new byte[length];
+				in.readFully(bytes);
+
+				crc.reset();
+				crc.update(type);
+				updateInt(crc, count);
+				updateInt(crc, length);
+				crc.update(bytes);
+				if (in.readInt() != (int) crc.getValue())
+					throw new IOException("Snapshot block checksum mismatch");
+			} catch (EOFException e) {
+				throw new IOException("Truncated snapshot", e);
+			}
+
+			DataInputStream block = new DataInputStream(new ByteArrayInputStream(bytes));
+			List<Entry> entries = new ArrayList<>(count);
+			try {
+				switch (type) {
+					case BLOCK_END -> {
+						long totalValues = block.readLong();
+						long totalPeers = block.readLong();
+						if (totalValues != values || totalPeers != peers)
+							throw new IOException("Snapshot record count mismatch");
+
+						ended = true;
+						return null;
+					}
+					case BLOCK_VALUES -> {
+						for (int i = 0; i < count; i++)
+							entries.add(readValue(block));
+						values += count;
+					}
+					case BLOCK_PEERS -> {
+						for (int i = 0; i < count; i++)
+							entries.add(readPeer(block));
+						peers += count;
+					}
+					case BLOCK_ATTACHMENT -> {
+						for (int i = 0; i < count; i++)
+							entries.add(new Attachment(block.readUTF(), readBytes(block)));
+					}
+					default -> throw new IOException("Unknown snapshot block type: " + type);
+				}
+			} catch (EOFException e) {
+				throw new IOException("Corrupted snapshot block", e);
+			} catch (IllegalArgumentException | NullPointerException e) {
+				// rejected by the Value/PeerInfo factories
+				throw new IOException("Invalid snapshot record", e);
+			}
+
+			if (block.available() != 0)
+				throw new IOException("Corrupted snapshot block");
+
+			return entries;
+		}
+
+		private static ValueRecord readValue(DataInputStream block) throws IOException {
+			int flags = block.readUnsignedByte();
+			Id publicKey = (flags & FLAG_PUBLIC_KEY) != 0 ? readId(block) : null;
+			byte[] privateKey = (flags & FLAG_PRIVATE_KEY) != 0 ? readBytes(block) : null;
+			Id recipient = (flags & FLAG_RECIPIENT) != 0 ? readId(block) : null;
+			byte[] nonce = (flags & FLAG_NONCE) != 0 ? readBytes(block) : null;
+			int sequenceNumber = readVarint(block);
+			byte[] signature = (flags & FLAG_SIGNATURE) != 0 ? readBytes(block) : null;
+			byte[] data = readBytes(block);
+			long created = block.readLong();
+			long updated = block.readLong();
+
+			Value value = Value.of(publicKey, privateKey, recipient, nonce, sequenceNumber, signature, data);
+			return new ValueRecord(value, (flags & FLAG_PERSISTENT) != 0, created, updated);
+		}
+
+		private static PeerRecord readPeer(DataInputStream block) throws IOException {
+			int flags = block.readUnsignedByte();
+			Id id = readId(block);
+			long fingerprint = block.readLong();
+			byte[] privateKey = (flags & FLAG_PRIVATE_KEY) != 0 ? readBytes(block) : null;
+			int sequenceNumber = readVarint(block);
+			Id nodeId = null;
+			byte[] nodeSignature = null;
+			if ((flags & FLAG_NODE) != 0) {
+				nodeId = readId(block);
+				nodeSignature = readBytes(block);
+			}
+			byte[] signature = readBytes(block);
+			String endpoint = block.readUTF();
+			byte[] extra = (flags & FLAG_EXTRA) != 0 ? readBytes(block) : null;
+			long created = block.readLong();
+			long updated = block.readLong();
+
+			PeerInfo peer = PeerInfo.of(id, privateKey, sequenceNumber, nodeId, nodeSignature, signature,
+					fingerprint, endpoint, extra);
+			return new PeerRecord(peer, (flags & FLAG_PERSISTENT) != 0, created, updated);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private static void updateInt(CRC32C crc, int value) {
+		crc.update(value >>> 24);
+		crc.update(value >>> 16);
+		crc.update(value >>> 8);
+		crc.update(value);
+	}
+
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new IOException("Malformed varint");
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int length = readVarint(in);
+		if (length < 0 || length > in.available())
+			throw new IOException("Corrupted snapshot block");
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static Id readId(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[Id.BYTES];
+		in.readFully(bytes);
+		return Id.of(bytes);
+	}
+}
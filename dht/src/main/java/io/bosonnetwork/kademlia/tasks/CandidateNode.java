@@ -90,6 +90,18 @@ public class CandidateNode extends NodeInfo implements CallTarget {
 		pinged++;
 	}
 
+	/**
+	 * Marks the node as being asked by the sibling family's lookup - see {@link DualStackLookup}.
+	 * <p>
+	 * In flight as far as this lookup's queue is concerned, so it is not picked again, but not an attempt:
+	 * the ping count is left alone, since nothing this lookup sent has gone unanswered. Undone by
+	 * {@link #clearSent()} if the sibling gives the node up.
+	 * </p>
+	 */
+	public void setSentBySibling() {
+		lastSent = System.currentTimeMillis();
+	}
+
 	/**
 	 * Clears the sent status, allowing the node to be retried.
 	 */
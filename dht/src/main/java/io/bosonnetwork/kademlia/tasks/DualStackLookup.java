@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.tasks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.kademlia.impl.Network;
+
+/**
+ * The shared decisions of one logical lookup run by both address families at once.
+ * <p>
+ * A dual-stack node runs a lookup as two tasks, one per DHT, each on its own context and its own routing
+ * table. Ids are the same in both families, though, and most of the nodes either task talks to are
+ * dual-stack themselves - so two independent tasks ask the same nodes the same question twice, once per
+ * family, and each throws away the half of every answer that belongs to the other. This object is what the
+ * two tasks share so that neither does.
+ * </p>
+ * <p>
+ * <b>Every node is asked once, over whichever family gets to it first.</b> Before a task sends to a
+ * candidate it claims the id here. If the sibling task holds the claim, the candidate is not asked again:
+ * once the sibling's call is answered the node is credited straight into this task's closest set, and
+ * while it is in flight the candidate is parked, taking no slot of this task's concurrency. The family
+ * that gets there first is in practice the faster one, since its answers arrive sooner and its queue moves
+ * on sooner. A family whose call fails - an error, a timeout that retires the candidate, a task that ends
+ * with the call still out - gives the claim up, and the sibling's parked candidate is released to be asked
+ * over its own family instead. So a node that is only good on one family is still reached on that one.
+ * </p>
+ * <p>
+ * <b>Each answer feeds both tasks.</b> The requests ask for nodes of both families, and the half of a
+ * response that belongs to the sibling is forwarded to it rather than dropped. The two candidate queues and
+ * closest sets stay per family - each task still contacts only addresses of its own family through its own
+ * socket, and neither routing table is touched - but together they converge over one set of ids.
+ * </p>
+ * <p>
+ * <b>Only for lookups whose closest set is not written to afterwards.</b> A credited node answered the
+ * sibling, not this task, so it holds no token for this family: a lookup feeding an announce must not be
+ * shared, and {@code KadNode} only shares its plain find operations.
+ * </p>
+ * <p>
+ * Thread-safe: the two tasks run on different event loops. Whatever is delivered to a task is delivered on
+ * that task's own context.
+ * </p>
+ */
+public final class DualStackLookup {
+	/** What a claim found. */
+	enum Claim {
+		/** This family holds the id and should ask it. */
+		OWN,
+		/** The sibling has asked the id and is still waiting for the answer. */
+		SIBLING_PENDING,
+		/** The sibling has asked the id and been answered. */
+		SIBLING_ANSWERED
+	}
+
+	private record Holder(Network network, boolean answered) {}
+
+	private final Map<Id, Holder> claims;
+
+	private volatile LookupTask<?, ?> task4;
+	private volatile LookupTask<?, ?> task6;
+
+	/**
+	 * Creates the shared state for one logical lookup. Hand the same instance to the lookup task of each
+	 * family before either is dispatched.
+	 */
+	public DualStackLookup() {
+		this.claims = new ConcurrentHashMap<>();
+	}
+
+	void attach(LookupTask<?, ?> task) {
+		if (task.getContext().getNetwork().isIPv4())
+			task4 = task;
+		else
+			task6 = task;
+	}
+
+	/**
+	 * Gives up every claim a finished task still holds unanswered, and stops delivering to it.
+	 *
+	 * @param task the task that ended.
+	 */
+	void detach(LookupTask<?, ?> task) {
+		Network network = task.getContext().getNetwork();
+		if (network.isIPv4())
+			task4 = null;
+		else
+			task6 = null;
+
+		Holder pending = new Holder(network, false);
+		claims.forEach((id, holder) -> {
+			if (holder.equals(pending))
+				release(id, network);
+		});
+	}
+
+	/**
+	 * Claims an id for the given family, unless the sibling already has it.
+	 *
+	 * @param id the node to ask.
+	 * @param network the family asking.
+	 * @return what the claim found.
+	 */
+	Claim claim(Id id, Network network) {
+		Holder holder = claims.putIfAbsent(id, new Holder(network, false));
+		if (holder == null || holder.network == network)
+			return Claim.OWN;
+
+		return holder.answered ? Claim.SIBLING_ANSWERED : Claim.SIBLING_PENDING;
+	}
+
+	/**
+	 * Records that the family holding an id was answered by it, crediting the sibling.
+	 *
+	 * @param id the node that answered.
+	 * @param network the family it answered.
+	 */
+	void answered(Id id, Network network) {
+		if (claims.replace(id, new Holder(network, false), new Holder(network, true))) {
+			LookupTask<?, ?> sibling = sibling(network);
+			if (sibling != null)
+				sibling.getContext().runOnContext(() -> sibling.siblingAnswered(id));
+		}
+	}
+
+	/**
+	 * Gives up a claim whose call failed, so the sibling may ask the node over its own family.
+	 *
+	 * @param id the node.
+	 * @param network the family that gave up.
+	 */
+	void release(Id id, Network network) {
+		if (claims.remove(id, new Holder(network, false))) {
+			LookupTask<?, ?> sibling = sibling(network);
+			if (sibling != null)
+				sibling.getContext().runOnContext(() -> sibling.siblingReleased(id));
+		}
+	}
+
+	/**
+	 * Hands the sibling the nodes of its family that an answer to this one carried.
+	 *
+	 * @param network the family that received them.
+	 * @param nodes the sibling family's nodes.
+	 */
+	void forward(Network network, List<NodeInfo> nodes) {
+		if (nodes.isEmpty())
+			return;
+
+		LookupTask<?, ?> sibling = sibling(network);
+		if (sibling != null)
+			sibling.getContext().runOnContext(() -> sibling.siblingNodes(nodes));
+	}
+
+	private LookupTask<?, ?> sibling(Network network) {
+		return network.isIPv4() ? task6 : task4;
+	}
+}
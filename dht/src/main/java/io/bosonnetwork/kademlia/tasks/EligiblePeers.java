@@ -146,7 +146,8 @@ public class EligiblePeers {
 	 * All peers in the collection are validated first. If any peer is invalid
 	 * (target ID mismatch, sequence number below the expected minimum when enabled,
 	 * or {@link PeerInfo#isValid()} returns false), the method returns {@code false}
-	 * and no peers are added.
+	 * and no peers are added. The signatures of all the peers are verified together, see
+	 * {@link PeerInfo#isValid(Collection)}.
 	 * <p>
 	 * Only if all peers pass validation will they be merged into the eligible set.
 	 * <p>
@@ -165,14 +166,17 @@ public class EligiblePeers {
 	 *         {@code false} if any peer is invalid and the operation is aborted
 	 */
 	public boolean add(Collection<PeerInfo> peers) {
-		// check first, should drop the result on any ineligible peer
+		// check first, should drop the result on any ineligible peer; the cheap checks go ahead of the
+		// signatures, which are verified for the whole response in one batch
 		for (PeerInfo p : peers) {
 			if (!p.getId().equals(target) ||
-					(expectedSequenceNumber >= 0 && p.getSequenceNumber() < expectedSequenceNumber) ||
-					!p.isValid())
+					(expectedSequenceNumber >= 0 && p.getSequenceNumber() < expectedSequenceNumber))
 				return false;
 		}
 
+		if (!PeerInfo.isValid(peers))
+			return false;
+
 		peers.forEach(p -> {
 			String key = p.getId().toString() + ":" + p.getFingerprint();
 			eligible.compute(key, (k, v) ->
@@ -22,6 +22,9 @@
 
 package io.bosonnetwork.kademlia.tasks;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.bosonnetwork.Id;
 import io.bosonnetwork.Value;
 
@@ -29,6 +32,13 @@ import io.bosonnetwork.Value;
  * This class tracks a single value eligible for a Kademlia value lookup or store task.
  * It enforces target ID matching, minimum sequence number, and validity checks.
  * It keeps at most one value, preferring the one with the highest sequence number.
+ * <p>
+ * Values can be checked as they arrive ({@link #update}) or offered to be checked later, together
+ * ({@link #offer}). A lookup that stops at the first eligible value needs the verdict at once; one that
+ * asks every close node for the latest version only needs it when the lookup is over, and by then it
+ * holds an answer from most of them - usually the same value over and over, sometimes a few versions.
+ * Checked as one {@link io.bosonnetwork.crypto.Signature.Batch}, the repeats cost nothing and the rest
+ * share one batch equation where the crypto provider has one.
  */
 public class EligibleValue {
 	/**
@@ -46,6 +56,13 @@ public class EligibleValue {
 	 */
 	private Value value;
 
+	/**
+	 * Offered values that passed the cheap checks and await their signature check, with what to do
+	 * about each one that fails it.
+	 */
+	private final List<Value> offered = new ArrayList<>();
+	private final List<Runnable> onInvalid = new ArrayList<>();
+
 	/**
 	 * Constructs an EligibleValue tracker for the given target ID and expected sequence number.
 	 *
@@ -64,6 +81,7 @@ public class EligibleValue {
 	 * @return true if no eligible value has been accepted yet, false otherwise
 	 */
 	public boolean isEmpty() {
+		verifyOffered();
 		return value == null;
 	}
 
@@ -98,18 +116,66 @@ public class EligibleValue {
 	 * @return true if the value was accepted (either set or replaced existing), false otherwise
 	 */
 	public boolean update(Value v) {
-		if (!v.getId().equals(target) ||
-				(v.isMutable() && expectedSequenceNumber >= 0 && v.getSequenceNumber() < expectedSequenceNumber) ||
-				!v.isValid())
+		if (!isCandidate(v) || !v.isValid())
+			return false;
+
+		accept(v);
+		return true;
+	}
+
+	/**
+	 * Offers a value to be checked later, with every other offered value, as one batch.
+	 * <p>
+	 * The checks that need no signature verification - the target and the sequence number, as in
+	 * {@link #update} - are made at once, and a value that fails them is refused here. The rest is
+	 * verified the next time the result is read, through {@link #isEmpty()} or {@link #getValue()};
+	 * a value that verifies then is accepted as {@link #update} would have, and for one that does not,
+	 * the given action runs instead.
+	 *
+	 * @param v         the value to consider for acceptance
+	 * @param onInvalid what to do if the value's signature turns out not to verify; runs on the thread
+	 *                  that reads the result
+	 * @return false if the value is refused without a signature check, true if it awaits one
+	 */
+	public boolean offer(Value v, Runnable onInvalid) {
+		if (!isCandidate(v))
 			return false;
 
+		offered.add(v);
+		this.onInvalid.add(onInvalid);
+		return true;
+	}
+
+	private boolean isCandidate(Value v) {
+		return v.getId().equals(target) &&
+				(!v.isMutable() || expectedSequenceNumber < 0 || v.getSequenceNumber() >= expectedSequenceNumber);
+	}
+
+	private void accept(Value v) {
 		if (this.value == null)
 			this.value = v;
 
 		if (v.getSequenceNumber() > this.value.getSequenceNumber())
 			this.value = v;
+	}
 
-		return true;
+	private void verifyOffered() {
+		if (offered.isEmpty())
+			return;
+
+		// Taken out first: an action may read the result again
+		List<Value> values = new ArrayList<>(offered);
+		List<Runnable> actions = new ArrayList<>(onInvalid);
+		offered.clear();
+		onInvalid.clear();
+
+		boolean[] valid = Value.isEachValid(values);
+		for (int i = 0; i < valid.length; i++) {
+			if (valid[i])
+				accept(values.get(i));
+			else
+				actions.get(i).run();
+		}
 	}
 
 	/**
@@ -118,6 +184,7 @@ public class EligibleValue {
 	 * @return the accepted eligible value, or null if none has been accepted yet
 	 */
 	public Value getValue() {
+		verifyOffered();
 		return value;
 	}
 }
\ No newline at end of file
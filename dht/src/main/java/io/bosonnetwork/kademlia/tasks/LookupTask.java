@@ -32,12 +32,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.kademlia.impl.KadConstants;
 import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.impl.Network;
 import io.bosonnetwork.kademlia.protocol.FindNodeResponse;
 import io.bosonnetwork.kademlia.protocol.LookupResponse;
 import io.bosonnetwork.kademlia.protocol.Message;
@@ -99,9 +101,15 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	private final ClosestSet closest;
 	/** Queue of candidate nodes to query, prioritized by distance to the target. */
 	private final ClosestCandidates candidates;
+	/** The state shared with the other family's half of this lookup, or null for a single-family lookup. */
+	private @Nullable DualStackLookup dualStack;
 
 	/** Current iteration count. */
 	private int iterationCount = 0;
+	/** The record of this lookup's calls when it was sampled for tracing, null otherwise and once it has ended. */
+	private @Nullable LookupTrace trace;
+	/** How many eligible nodes have been offered to the candidate queue, for a trace's per-hop count. */
+	private int candidatesLearned;
 
 	/** The result of the lookup, set by subclasses. */
 	protected R result;
@@ -154,6 +162,15 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 
 		this.closest = new ClosestSet(target, k);
 		this.candidates = new ClosestCandidates(target, candidateCapacity(k), context.isDeveloperMode());
+
+		// Decided once, here, so an unsampled lookup pays for the decision and nothing else: every hook
+		// below is a null check on a field that stays null.
+		LookupTracer tracer = context.getLookupTracer();
+		if (tracer != null) {
+			this.trace = tracer.begin(this);
+			if (trace != null)
+				addListener(t -> endTrace(tracer));
+		}
 	}
 
 	/**
@@ -176,6 +193,48 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 		return Math.min(3 * k, KadConstants.MAX_LOOKUP_CANDIDATES);
 	}
 
+	/**
+	 * Makes this task one half of a lookup run over both address families - see {@link DualStackLookup}.
+	 * <p>
+	 * Set before the task is dispatched, on both halves, with the same instance. Not for a lookup whose
+	 * closest set an announce is built from: a node credited from the sibling holds no token here.
+	 * </p>
+	 *
+	 * @param dualStack the state shared with the other family's task.
+	 * @return this task for method chaining
+	 */
+	public S setDualStack(DualStackLookup dualStack) {
+		this.dualStack = dualStack;
+		dualStack.attach(this);
+		return addListener(t -> dualStack.detach(this));
+	}
+
+	/**
+	 * Whether this is one half of a dual-stack lookup.
+	 */
+	boolean isDualStack() {
+		return dualStack != null;
+	}
+
+	/**
+	 * Whether requests should ask for IPv4 nodes: for an IPv4 lookup, or for either half of a dual-stack
+	 * one, whose sibling takes the other family's nodes.
+	 *
+	 * @return true to set the IPv4 want flag.
+	 */
+	protected boolean wantIPv4() {
+		return dualStack != null || getContext().getNetwork().isIPv4();
+	}
+
+	/**
+	 * Whether requests should ask for IPv6 nodes - see {@link #wantIPv4()}.
+	 *
+	 * @return true to set the IPv6 want flag.
+	 */
+	protected boolean wantIPv6() {
+		return dualStack != null || getContext().getNetwork().isIPv6();
+	}
+
 	/**
 	 * Returns the target ID of the lookup.
 	 *
@@ -244,6 +303,7 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 		if (!eligible.isEmpty()) {
 			getLogger().debug("{}#{} adding {} eligible candidates to queue", getName(), getId(), eligible.size());
 			candidates.add(eligible);
+			candidatesLearned += eligible.size();
 		}
 	}
 
@@ -329,7 +389,20 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	 * @return the nodes to offer {@link #addCandidates}, empty if there are none to take.
 	 */
 	protected List<NodeInfo> acceptResponse(Message response) {
-		List<NodeInfo> nodes = response.<LookupResponse>getBody().getNodes(getContext().getNetwork());
+		return acceptResponse(response, getContext().getNetwork());
+	}
+
+	/**
+	 * Reads the nodes of one family a lookup response offers, under the limits {@link #acceptResponse(Message)}
+	 * documents. The family is a parameter for the dual-stack case, where the sibling's half of the answer is
+	 * read here and handed over.
+	 *
+	 * @param response the lookup response to read.
+	 * @param network the family whose nodes to read.
+	 * @return the nodes to offer, empty if there are none to take.
+	 */
+	private List<NodeInfo> acceptResponse(Message response, Network network) {
+		List<NodeInfo> nodes = response.<LookupResponse>getBody().getNodes(network);
 		if (nodes.isEmpty()) {
 			getLogger().debug("{}#{} empty node list in response from {}", getName(), getId(), response.getId());
 			return List.of();
@@ -352,7 +425,7 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 		if (nodes.size() <= Math.min(KadConstants.MAX_NODES_PER_SOURCE_PER_RESPONSE, maxAccepted))
 			return nodes;
 
-		if (!sourceGroupCountCheck(nodes)) {
+		if (!sourceGroupCountCheck(nodes, network)) {
 			getContext().getSuspiciousNodeDetector().misbehaved(response.getRemoteAddress(), response.getId());
 			getLogger().debug("{}#{} dropping response from {} carrying too many nodes from same source",
 					getName(), getId(), response.getId());
@@ -381,11 +454,12 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	 * </p>
 	 *
 	 * @param nodes the nodes the response offered, at most {@link KadConstants#MAX_NODES_PER_RESPONSE}.
+	 * @param network the family the nodes were read for.
 	 * @return true if no source unit is over budget, false if one of them is.
 	 */
-	private boolean sourceGroupCountCheck(List<NodeInfo> nodes) {
+	private boolean sourceGroupCountCheck(List<NodeInfo> nodes, Network network) {
 		Map<InetAddress, Integer> sourceGroupCount = new HashMap<>();
-		StandardProtocolFamily family = getContext().getNetwork().protocolFamily();
+		StandardProtocolFamily family = network.protocolFamily();
 
 		for (NodeInfo node : nodes) {
 			InetAddress address = node.getIpAddress(family);
@@ -417,11 +491,122 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 
 	/**
 	 * Retrieves the next candidate node to query, prioritized by distance to the target.
+	 * <p>
+	 * In a dual-stack lookup a candidate the sibling family has already asked is not returned: it is
+	 * credited if the sibling was answered and parked if the answer is still out, and the next one is
+	 * tried. See {@link DualStackLookup}.
+	 * </p>
 	 *
 	 * @return the next candidate node, or null if none available
 	 */
 	protected CandidateNode getNextCandidate() {
-		return candidates.next();
+		if (dualStack == null)
+			return candidates.next();
+
+		Network network = getContext().getNetwork();
+		CandidateNode cn;
+		while ((cn = candidates.next()) != null) {
+			switch (dualStack.claim(cn.getId(), network)) {
+				case OWN -> {
+					return cn;
+				}
+				case SIBLING_ANSWERED -> creditSibling(cn);
+				case SIBLING_PENDING -> cn.setSentBySibling();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Moves a candidate the sibling family was answered by into the closest set, as if it had answered here.
+	 */
+	private void creditSibling(CandidateNode cn) {
+		getLogger().debug("{}#{} candidate {} answered the sibling lookup, add it to closest", getName(), getId(), cn.getId());
+		removeCandidate(cn.getId());
+		cn.setReplied();
+		addClosest(cn);
+	}
+
+	/**
+	 * The sibling was answered by a node: credit it if it is parked here. Runs on this task's context.
+	 */
+	void siblingAnswered(Id id) {
+		if (!isRunning())
+			return;
+
+		CandidateNode cn = getCandidate(id);
+		if (cn != null && cn.isSent()) {
+			creditSibling(cn);
+			wake();
+		}
+	}
+
+	/**
+	 * The sibling gave a node up: unpark it so this family can ask. Runs on this task's context.
+	 */
+	void siblingReleased(Id id) {
+		if (!isRunning())
+			return;
+
+		CandidateNode cn = getCandidate(id);
+		if (cn != null && cn.isSent()) {
+			cn.clearSent();
+			wake();
+		}
+	}
+
+	/**
+	 * Nodes of this family from an answer the sibling received. Runs on this task's context.
+	 */
+	void siblingNodes(List<NodeInfo> nodes) {
+		if (!isRunning())
+			return;
+
+		addCandidates(nodes);
+		wake();
+	}
+
+	/**
+	 * Drops a candidate whose call could not be sent - the send-failure handler of every lookup.
+	 *
+	 * @param id the candidate's id.
+	 */
+	protected void sendFailed(Id id) {
+		if (trace != null) {
+			CandidateNode cn = getCandidate(id);
+			trace.sendFailed(id, cn != null ? cn.getAddress(getContext().getNetwork().protocolFamily()) : null);
+		}
+
+		removeCandidate(id);
+		releaseClaim(id);
+	}
+
+	/**
+	 * Hands the trace to the tracer once the task has ended, whichever way it ended.
+	 */
+	private void endTrace(LookupTracer tracer) {
+		if (trace != null) {
+			trace.end(this);
+			tracer.finish(trace);
+			trace = null;
+		}
+	}
+
+	/**
+	 * Records how a call ended, if this lookup is traced.
+	 */
+	private void traceHop(RpcCall call, LookupTrace.Outcome outcome, int learned) {
+		if (trace != null)
+			trace.hop(call, outcome, learned);
+	}
+
+	/**
+	 * Gives up this family's claim on a node that will not be asked again here.
+	 */
+	private void releaseClaim(Id id) {
+		if (dualStack != null)
+			dualStack.release(id, getContext().getNetwork());
 	}
 
 	/**
@@ -452,7 +637,9 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	 */
 	@Override
 	protected void callCanceled(RpcCall call) {
+		traceHop(call, LookupTrace.Outcome.CANCELED, 0);
 		removeCandidate(call.getTargetId());
+		releaseClaim(call.getTargetId());
 	}
 
 	/**
@@ -613,7 +800,9 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	@Override
 	protected void callError(RpcCall call) {
 		getLogger().debug("{}#{} RPC error for candidate {}", getName(), getId(), call.getTargetId());
+		traceHop(call, LookupTrace.Outcome.ERROR, 0);
 		removeCandidate(call.getTargetId());
+		releaseClaim(call.getTargetId());
 	}
 
 	/**
@@ -632,14 +821,19 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 	 */
 	@Override
 	protected void callTimeout(RpcCall call) {
+		traceHop(call, LookupTrace.Outcome.TIMEOUT, 0);
+
 		CandidateNode cn = getCandidate(call.getTargetId());
-		if (cn == null)
+		if (cn == null) {
 			// Already gone: pruned to make room, or dropped by whatever else reached it first.
+			releaseClaim(call.getTargetId());
 			return;
+		}
 
 		if (cn.isUnreachable()) {
 			getLogger().debug("{}#{} removing unreachable candidate {}", getName(), getId(), cn.getId());
 			removeCandidate(cn.getId());
+			releaseClaim(cn.getId());
 		} else {
 			getLogger().debug("{}#{} candidate {} timeout, mark it as unsent to retry in next iteration",
 					getName(), getId(), cn.getId());
@@ -668,7 +862,9 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 		if (call.isIdMismatched()) {
 			getLogger().debug("{}#{} ignoring response from {} that answered as {}",
 					getName(), getId(), call.getTargetId(), call.getResponse().getId());
+			traceHop(call, LookupTrace.Outcome.MISMATCHED, 0);
 			removeCandidate(call.getTargetId());
+			releaseClaim(call.getTargetId());
 			return;
 		}
 
@@ -686,7 +882,17 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 			addClosest(cn);
 		}
 
+		if (dualStack != null) {
+			// Credited on the sibling whether or not the candidate was still queued here: the node answered,
+			// which is all the sibling needs to know. The other half of the answer goes to the sibling too.
+			Network network = getContext().getNetwork();
+			dualStack.answered(call.getTargetId(), network);
+			dualStack.forward(network, acceptResponse(call.getResponse(), network.isIPv4() ? Network.IPv6 : Network.IPv4));
+		}
+
+		int learnedBefore = candidatesLearned;
 		handleResponse(call);
+		traceHop(call, LookupTrace.Outcome.RESPONDED, candidatesLearned - learnedBefore);
 	}
 
 	/**
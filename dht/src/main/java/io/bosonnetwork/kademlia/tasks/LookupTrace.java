@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.tasks;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jspecify.annotations.Nullable;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.rpc.RpcCall;
+
+/**
+ * The record of one sampled lookup: every call it made, in the order the calls ended, and how it ended.
+ * <p>
+ * <b>Why it exists.</b> A lookup knows exactly which candidates it asked, which of them answered, how
+ * long each took and what each contributed, and then throws all of it away - what reached the log was
+ * {@link LookupTask#getStatus()}, a snapshot of the queues with none of the timing. A slow lookup at
+ * the tail of the distribution looks like any other one there, and whether it waited on one dead node
+ * three times or walked twenty hops through a sparse region could only be guessed. A trace keeps the
+ * sequence.
+ * </p>
+ * <p>
+ * <b>Threading.</b> Written only by its task, on the task's context, until {@link LookupTracer#finish}
+ * hands it over; that hand-over goes through the tracer's lock, and nothing writes to it afterwards, so
+ * whoever reads it from the tracer sees it complete. The task holds no reference to the trace once it
+ * has been finished, and the trace holds none to the task - a retained trace keeps only what it copied.
+ * </p>
+ */
+public final class LookupTrace {
+	/**
+	 * The most calls one trace records. A lookup's calls are bounded by its iteration budget times
+	 * alpha; this is above that at the default parameters, and past it only the count is kept.
+	 */
+	public static final int MAX_HOPS = 128;
+
+	/**
+	 * How a call ended, from the lookup's point of view.
+	 */
+	public enum Outcome {
+		/** The node answered as itself. */
+		RESPONDED,
+		/** Something answered from the node's address with a different id; the answer was ignored. */
+		MISMATCHED,
+		/** No answer within the call timeout. */
+		TIMEOUT,
+		/** The node answered with an error. */
+		ERROR,
+		/** The call was cancelled before it ended, with its task or by the RPC server stopping. */
+		CANCELED,
+		/** The call never went out. */
+		SEND_FAILED
+	}
+
+	/**
+	 * One call of the lookup.
+	 *
+	 * @param node     the candidate asked.
+	 * @param address  the address the call went to, or null if it never got one.
+	 * @param distance the candidate's approximate distance to the target, in bits: 0 is the target itself.
+	 * @param sentTime when the call went out, in milliseconds since the epoch, or -1 if it did not.
+	 * @param endTime  when the lookup learned the outcome, in milliseconds since the epoch.
+	 * @param outcome  how the call ended.
+	 * @param learned  how many new candidates the answer added to the lookup's queue.
+	 */
+	public record Hop(Id node, @Nullable InetSocketAddress address, int distance, long sentTime, long endTime,
+					  Outcome outcome, int learned) {
+		/**
+		 * Returns the call's round trip: from send to the outcome for an answered call, or to the point it
+		 * was given up on for one that was not.
+		 *
+		 * @return the round trip in milliseconds, or -1 if the call never went out.
+		 */
+		public long rtt() {
+			return sentTime < 0 ? -1 : endTime - sentTime;
+		}
+	}
+
+	private final long traceIdHigh;
+	private final long traceIdLow;
+	private final long spanId;
+
+	private final String kind;
+	private final Id target;
+	private final Network network;
+
+	private final List<Hop> hops;
+	private int droppedHops;
+
+	// Copied from the task when the trace is finished.
+	private long taskId;
+	private String name;
+	private long startTime;
+	private long endTime;
+	private String state;
+	private LookupTask.@Nullable CompletionReason completionReason;
+	private int closest;
+	private boolean dualStack;
+
+	LookupTrace(String kind, Id target, Network network) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		this.traceIdHigh = random.nextLong();
+		this.traceIdLow = random.nextLong();
+		this.spanId = random.nextLong();
+
+		this.kind = kind;
+		this.target = target;
+		this.network = network;
+		this.hops = new ArrayList<>();
+	}
+
+	/**
+	 * Records the end of one call. Runs on the task's context.
+	 */
+	void hop(RpcCall call, Outcome outcome, int learned) {
+		if (hops.size() >= MAX_HOPS) {
+			droppedHops++;
+			return;
+		}
+
+		long sent = call.getSentTime();
+		long end = call.getResponseTime() > 0 ? call.getResponseTime() : System.currentTimeMillis();
+		hops.add(new Hop(call.getTargetId(), call.getTarget().getAddress(), target.approxDistance(call.getTargetId()),
+				sent, end, outcome, learned));
+	}
+
+	/**
+	 * Records a call that could not be sent. Runs on the task's context.
+	 */
+	void sendFailed(Id node, @Nullable InetSocketAddress address) {
+		if (hops.size() >= MAX_HOPS) {
+			droppedHops++;
+			return;
+		}
+
+		hops.add(new Hop(node, address, target.approxDistance(node), -1, System.currentTimeMillis(),
+				Outcome.SEND_FAILED, 0));
+	}
+
+	/**
+	 * Copies what the trace reports about the task itself, once the task has ended.
+	 */
+	void end(LookupTask<?, ?> task) {
+		this.taskId = task.getId();
+		this.name = task.getName();
+		this.startTime = task.getStartTime();
+		this.endTime = task.getEndTime() > 0 ? task.getEndTime() : System.currentTimeMillis();
+		this.state = task.getState().name();
+		this.completionReason = task.getCompletionReason();
+		this.closest = task.getClosestSet().size();
+		this.dualStack = task.isDualStack();
+	}
+
+	/**
+	 * Returns the trace id, 32 hex digits, in the form OpenTelemetry uses.
+	 *
+	 * @return the trace id.
+	 */
+	public String getTraceId() {
+		return String.format("%016x%016x", traceIdHigh, traceIdLow);
+	}
+
+	/**
+	 * Returns the id of the lookup's own span, 16 hex digits.
+	 *
+	 * @return the span id.
+	 */
+	public String getSpanId() {
+		return String.format("%016x", spanId);
+	}
+
+	/**
+	 * Returns the id of the span of the given hop, 16 hex digits. Derived from the lookup's span id
+	 * rather than drawn, so the same trace exports the same ids every time.
+	 *
+	 * @param index the hop's index.
+	 * @return the hop's span id.
+	 */
+	public String getHopSpanId(int index) {
+		return String.format("%016x", spanId + index + 1);
+	}
+
+	/**
+	 * Returns the id of the traced task.
+	 *
+	 * @return the task id.
+	 */
+	public long getTaskId() {
+		return taskId;
+	}
+
+	/**
+	 * Returns the traced task's name.
+	 *
+	 * @return the task name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns what kind of lookup this was: the task's class, {@code NodeLookupTask} and the like.
+	 *
+	 * @return the lookup kind.
+	 */
+	public String getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the lookup's target.
+	 *
+	 * @return the target id.
+	 */
+	public Id getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the network the lookup ran on.
+	 *
+	 * @return the network.
+	 */
+	public Network getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Whether the lookup shared its decisions with the other family's half, see {@link DualStackLookup}.
+	 * The two halves are traced, and sampled, independently.
+	 *
+	 * @return {@code true} for one half of a dual-stack lookup.
+	 */
+	public boolean isDualStack() {
+		return dualStack;
+	}
+
+	/**
+	 * Returns when the lookup started.
+	 *
+	 * @return the start time in milliseconds since the epoch.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns when the lookup ended.
+	 *
+	 * @return the end time in milliseconds since the epoch.
+	 */
+	public long getEndTime() {
+		return endTime;
+	}
+
+	/**
+	 * Returns how long the lookup ran.
+	 *
+	 * @return the duration in milliseconds.
+	 */
+	public long getDuration() {
+		return endTime - startTime;
+	}
+
+	/**
+	 * Returns the state the task ended in, {@code COMPLETED} or {@code CANCELED}.
+	 *
+	 * @return the final task state.
+	 */
+	public String getState() {
+		return state;
+	}
+
+	/**
+	 * Returns which termination rule ended the lookup.
+	 *
+	 * @return the completion reason, or null for a lookup that was cancelled before deciding.
+	 */
+	public LookupTask.@Nullable CompletionReason getCompletionReason() {
+		return completionReason;
+	}
+
+	/**
+	 * Returns how many nodes the lookup's closest set held when it ended.
+	 *
+	 * @return the closest set size.
+	 */
+	public int getClosest() {
+		return closest;
+	}
+
+	/**
+	 * Returns the recorded calls, in the order they ended.
+	 *
+	 * @return the hops, unmodifiable.
+	 */
+	public List<Hop> getHops() {
+		return Collections.unmodifiableList(hops);
+	}
+
+	/**
+	 * Returns how many calls ended after {@link #MAX_HOPS} had been recorded, and were only counted.
+	 *
+	 * @return the number of unrecorded hops.
+	 */
+	public int getDroppedHops() {
+		return droppedHops;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder repr = new StringBuilder();
+		repr.append(name).append('#').append(taskId)
+				.append(" [").append(kind).append(", ").append(network)
+				.append(dualStack ? ", dual-stack" : "").append("] target: ").append(target)
+				.append(", ").append(getDuration()).append("ms, ")
+				.append(completionReason != null ? completionReason : state)
+				.append(", closest: ").append(closest)
+				.append(", hops: ").append(hops.size() + droppedHops).append('\n');
+
+		for (Hop hop : hops) {
+			long offset = (hop.sentTime() < 0 ? hop.endTime() : hop.sentTime()) - startTime;
+			repr.append(String.format("    +%5dms %s %s d=%d %s", offset, hop.node(),
+					hop.address() != null ? hop.address() : "<none>", hop.distance(), hop.outcome()));
+			if (hop.rtt() >= 0)
+				repr.append(" rtt=").append(hop.rtt()).append("ms");
+			if (hop.learned() > 0)
+				repr.append(" learned=").append(hop.learned());
+			repr.append('\n');
+		}
+		if (droppedHops > 0)
+			repr.append("    ... ").append(droppedHops).append(" more\n");
+
+		return repr.toString();
+	}
+}
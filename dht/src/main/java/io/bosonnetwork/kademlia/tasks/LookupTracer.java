@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.tasks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.bosonnetwork.json.Json;
+
+/**
+ * Samples lookups into {@link LookupTrace}s and keeps the most recent of them.
+ * <p>
+ * <b>Opt-in, and cheap when off.</b> The sample rate starts at zero. A lookup that is not sampled costs
+ * one volatile read when it is created and a null check per call after that; nothing is allocated for
+ * it. A sampled lookup allocates one record per call it makes, bounded by {@link LookupTrace#MAX_HOPS}.
+ * Sampling rather than tracing everything is what lets this stay on in production, which is the only
+ * place a slow tail worth diagnosing is found: at a rate of 0.01 a node running a few lookups a second
+ * keeps a rolling window of the last several hours.
+ * </p>
+ * <p>
+ * <b>Ring-buffered.</b> Finished traces go into a buffer of fixed {@link #getCapacity() capacity}; the
+ * oldest is dropped when it is full. Nothing is written anywhere unless asked for, through
+ * {@link #export(Collection, Writer)}.
+ * </p>
+ * <p>
+ * <b>Export format.</b> One JSON object per line, each an OTLP/JSON {@code ExportTraceServiceRequest}
+ * holding one trace: a span for the lookup and a child span for every call it made. That is what the
+ * OpenTelemetry Collector's {@code otlpjsonfile} receiver reads, so an exported file can be replayed into
+ * any tracing backend; it is equally readable as plain JSON lines by {@code jq}.
+ * </p>
+ * <p>
+ * Thread-safe, and shared by both DHTs of a node: lookups on either context finish into it.
+ * </p>
+ */
+public class LookupTracer {
+	/** How many finished traces are kept by default. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final String SCOPE = "io.bosonnetwork.kademlia";
+
+	private final int capacity;
+	private final ArrayDeque<LookupTrace> traces;
+	private volatile double sampleRate;
+
+	/**
+	 * Creates a tracer that keeps the given number of finished traces, sampling nothing until
+	 * {@link #setSampleRate(double)} is called.
+	 *
+	 * @param capacity the number of traces kept, at least 1.
+	 */
+	public LookupTracer(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+		this.capacity = capacity;
+		this.traces = new ArrayDeque<>(capacity);
+		this.sampleRate = 0.0;
+	}
+
+	/**
+	 * Creates a tracer that keeps {@link #DEFAULT_CAPACITY} finished traces.
+	 */
+	public LookupTracer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Sets the share of lookups traced. Applies to lookups created after the call.
+	 *
+	 * @param rate between 0, which turns tracing off, and 1, which traces every lookup.
+	 */
+	public void setSampleRate(double rate) {
+		if (!(rate >= 0.0 && rate <= 1.0))
+			throw new IllegalArgumentException("Invalid sample rate: " + rate);
+
+		this.sampleRate = rate;
+	}
+
+	/**
+	 * Returns the share of lookups traced.
+	 *
+	 * @return the sample rate, 0 when tracing is off.
+	 */
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * Returns how many finished traces are kept.
+	 *
+	 * @return the buffer capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Decides whether a new lookup is traced, and if so starts its trace.
+	 *
+	 * @param task the lookup being created.
+	 * @return the trace to record into, or null if the lookup is not sampled.
+	 */
+	LookupTrace begin(LookupTask<?, ?> task) {
+		double rate = sampleRate;
+		if (rate <= 0.0 || (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate))
+			return null;
+
+		return new LookupTrace(task.getClass().getSimpleName(), task.getTarget(),
+				task.getContext().getNetwork());
+	}
+
+	/**
+	 * Takes a trace whose lookup has ended, evicting the oldest when the buffer is full.
+	 *
+	 * @param trace the finished trace.
+	 */
+	void finish(LookupTrace trace) {
+		synchronized (traces) {
+			if (traces.size() >= capacity)
+				traces.pollFirst();
+			traces.addLast(trace);
+		}
+	}
+
+	/**
+	 * Returns the most recently finished traces, oldest first.
+	 *
+	 * @param max the most traces to return, 0 for all that are kept.
+	 * @return the traces.
+	 */
+	public List<LookupTrace> recent(int max) {
+		synchronized (traces) {
+			List<LookupTrace> all = new ArrayList<>(traces);
+			return max <= 0 || max >= all.size() ? all : all.subList(all.size() - max, all.size());
+		}
+	}
+
+	/**
+	 * Returns the slowest of the kept traces, slowest first - where a tail latency problem shows.
+	 *
+	 * @param max the most traces to return, 0 for all that are kept.
+	 * @return the traces.
+	 */
+	public List<LookupTrace> slowest(int max) {
+		List<LookupTrace> all = recent(0);
+		all.sort(Comparator.comparingLong(LookupTrace::getDuration).reversed());
+		return max <= 0 || max >= all.size() ? all : all.subList(0, max);
+	}
+
+	/**
+	 * Drops every kept trace.
+	 */
+	public void clear() {
+		synchronized (traces) {
+			traces.clear();
+		}
+	}
+
+	/**
+	 * Writes traces as OTLP/JSON lines, one {@code ExportTraceServiceRequest} per trace. The writer is
+	 * flushed but not closed.
+	 *
+	 * @param traces the traces to write.
+	 * @param out    where to write them.
+	 * @throws IOException if writing fails.
+	 */
+	public static void export(Collection<LookupTrace> traces, Writer out) throws IOException {
+		for (LookupTrace trace : traces) {
+			try (JsonGenerator gen = Json.jsonFactory().createGenerator(out)) {
+				gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				writeRequest(gen, trace);
+			}
+			out.write('\n');
+		}
+		out.flush();
+	}
+
+	private static void writeRequest(JsonGenerator gen, LookupTrace trace) throws IOException {
+		gen.writeStartObject();
+		gen.writeArrayFieldStart("resourceSpans");
+		gen.writeStartObject();
+
+		gen.writeObjectFieldStart("resource");
+		gen.writeArrayFieldStart("attributes");
+		attribute(gen, "service.name", "boson-dht");
+		gen.writeEndArray();
+		gen.writeEndObject();
+
+		gen.writeArrayFieldStart("scopeSpans");
+		gen.writeStartObject();
+		gen.writeObjectFieldStart("scope");
+		gen.writeStringField("name", SCOPE);
+		gen.writeEndObject();
+		gen.writeArrayFieldStart("spans");
+		writeLookupSpan(gen, trace);
+		List<LookupTrace.Hop> hops = trace.getHops();
+		for (int i = 0; i < hops.size(); i++)
+			writeHopSpan(gen, trace, i, hops.get(i));
+		gen.writeEndArray();
+		gen.writeEndObject();
+		gen.writeEndArray();
+
+		gen.writeEndObject();
+		gen.writeEndArray();
+		gen.writeEndObject();
+	}
+
+	private static void writeLookupSpan(JsonGenerator gen, LookupTrace trace) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("traceId", trace.getTraceId());
+		gen.writeStringField("spanId", trace.getSpanId());
+		gen.writeStringField("name", trace.getKind());
+		gen.writeNumberField("kind", 1); // SPAN_KIND_INTERNAL
+		gen.writeStringField("startTimeUnixNano", nanos(trace.getStartTime()));
+		gen.writeStringField("endTimeUnixNano", nanos(trace.getEndTime()));
+
+		gen.writeArrayFieldStart("attributes");
+		attribute(gen, "boson.task.id", trace.getTaskId());
+		attribute(gen, "boson.task.name", trace.getName());
+		attribute(gen, "boson.task.state", trace.getState());
+		attribute(gen, "boson.lookup.target", trace.getTarget().toString());
+		attribute(gen, "boson.lookup.network", trace.getNetwork().toString());
+		attribute(gen, "boson.lookup.dual_stack", trace.isDualStack());
+		if (trace.getCompletionReason() != null)
+			attribute(gen, "boson.lookup.completion", trace.getCompletionReason().name());
+		attribute(gen, "boson.lookup.closest", trace.getClosest());
+		attribute(gen, "boson.lookup.hops", trace.getHops().size() + trace.getDroppedHops());
+		if (trace.getDroppedHops() > 0)
+			attribute(gen, "boson.lookup.hops.dropped", trace.getDroppedHops());
+		gen.writeEndArray();
+
+		gen.writeObjectFieldStart("status");
+		// STATUS_CODE_OK for a lookup that ran to a decision, STATUS_CODE_ERROR for one that was cancelled
+		gen.writeNumberField("code", trace.getCompletionReason() != null ? 1 : 2);
+		gen.writeEndObject();
+		gen.writeEndObject();
+	}
+
+	private static void writeHopSpan(JsonGenerator gen, LookupTrace trace, int index, LookupTrace.Hop hop)
+			throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("traceId", trace.getTraceId());
+		gen.writeStringField("spanId", trace.getHopSpanId(index));
+		gen.writeStringField("parentSpanId", trace.getSpanId());
+		gen.writeStringField("name", "call");
+		gen.writeNumberField("kind", 3); // SPAN_KIND_CLIENT
+		gen.writeStringField("startTimeUnixNano", nanos(hop.sentTime() < 0 ? hop.endTime() : hop.sentTime()));
+		gen.writeStringField("endTimeUnixNano", nanos(hop.endTime()));
+
+		gen.writeArrayFieldStart("attributes");
+		attribute(gen, "boson.node.id", hop.node().toString());
+		if (hop.address() != null) {
+			attribute(gen, "network.peer.address", hop.address().getAddress().getHostAddress());
+			attribute(gen, "network.peer.port", hop.address().getPort());
+		}
+		attribute(gen, "boson.hop.distance", hop.distance());
+		attribute(gen, "boson.hop.outcome", hop.outcome().name());
+		if (hop.rtt() >= 0)
+			attribute(gen, "boson.hop.rtt_ms", hop.rtt());
+		attribute(gen, "boson.hop.learned", hop.learned());
+		gen.writeEndArray();
+
+		gen.writeObjectFieldStart("status");
+		gen.writeNumberField("code", hop.outcome() == LookupTrace.Outcome.RESPONDED ? 1 : 2);
+		gen.writeEndObject();
+		gen.writeEndObject();
+	}
+
+	// OTLP/JSON carries 64-bit integers as strings
+	private static String nanos(long millis) {
+		return Long.toString(millis * 1_000_000L);
+	}
+
+	private static void attribute(JsonGenerator gen, String key, String value) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("key", key);
+		gen.writeObjectFieldStart("value");
+		gen.writeStringField("stringValue", value);
+		gen.writeEndObject();
+		gen.writeEndObject();
+	}
+
+	private static void attribute(JsonGenerator gen, String key, long value) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("key", key);
+		gen.writeObjectFieldStart("value");
+		gen.writeStringField("intValue", Long.toString(value));
+		gen.writeEndObject();
+		gen.writeEndObject();
+	}
+
+	private static void attribute(JsonGenerator gen, String key, boolean value) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("key", key);
+		gen.writeObjectFieldStart("value");
+		gen.writeBooleanField("boolValue", value);
+		gen.writeEndObject();
+		gen.writeEndObject();
+	}
+}
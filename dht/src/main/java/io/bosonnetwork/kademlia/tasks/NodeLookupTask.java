@@ -32,7 +32,6 @@ import org.slf4j.LoggerFactory;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.kademlia.impl.KadContext;
-import io.bosonnetwork.kademlia.impl.Network;
 import io.bosonnetwork.kademlia.protocol.Message;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.routing.KClosestNodes;
@@ -190,12 +189,11 @@ public class NodeLookupTask extends LookupTask<NodeInfo, NodeLookupTask> {
 			}
 
 			// Send a FIND_NODE request to the candidate
-			Network network = getContext().getNetwork();
 			Message request = Message.findNodeRequest(getTarget(),
-					network.isIPv4(), network.isIPv6(), doesWantToken());
+					wantIPv4(), wantIPv6(), doesWantToken());
 
 			log.debug("{}#{} sending FIND_NODE RPC to candidate {}", getName(), getId(), cn.getId());
-			sendCall(cn, request, c -> cn.setSent(), (c, e) -> removeCandidate(cn.getId()));
+			sendCall(cn, request, c -> cn.setSent(), (c, e) -> sendFailed(cn.getId()));
 		}
 	}
 
@@ -208,19 +206,34 @@ public class NodeLookupTask extends LookupTask<NodeInfo, NodeLookupTask> {
 	@Override
 	protected void handleResponse(RpcCall call) {
 		Message response = call.getResponse();
-		// This task runs on a single-protocol DHT instance, so it only requested and only consumes nodes
-		// for its own network (n4 for IPv4, n6 for IPv6) - the lookup is correct per stack.
-		// Known limitation (not a correctness issue): nodes of the sibling protocol that a dual-stack peer
-		// may also return are not cross-forwarded to the sibling DHT instance. Cross-pollinating v4/v6
-		// discovery between sibling instances is a future efficiency optimization.
+		// Only this task's own family is consumed here - the lookup is correct per stack. In a dual-stack
+		// lookup the other family's half of the answer has already been handed to the sibling task by
+		// LookupTask.callResponded; see DualStackLookup.
 		List<NodeInfo> nodes = acceptResponse(response);
 		if (nodes.isEmpty())
 			return;
 
 		log.debug("{}#{} adding {} candidates from response by {}", getName(), getId(), nodes.size(), call.getTargetId());
 		addCandidates(nodes);
+		matchTarget(nodes);
+	}
+
+	/**
+	 * Nodes the sibling family's task was told about. Checked for the target like an answer of our own,
+	 * since in a dual-stack lookup the answer naming it may well have gone to the sibling.
+	 *
+	 * @param nodes nodes of this family.
+	 */
+	@Override
+	void siblingNodes(List<NodeInfo> nodes) {
+		if (isRunning())
+			matchTarget(nodes);
+
+		super.siblingNodes(nodes);
+	}
 
-		if (wantTarget) {
+	private void matchTarget(List<NodeInfo> nodes) {
+		if (wantTarget && result == null) {
 			// Check for nodes matching the target Id
 			for (NodeInfo node : nodes) {
 				if (node.getId().equals(getTarget())) {
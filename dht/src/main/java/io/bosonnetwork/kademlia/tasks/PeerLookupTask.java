@@ -32,7 +32,6 @@ import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.PeerInfo;
 import io.bosonnetwork.kademlia.impl.KadContext;
-import io.bosonnetwork.kademlia.impl.Network;
 import io.bosonnetwork.kademlia.protocol.FindPeerResponse;
 import io.bosonnetwork.kademlia.protocol.Message;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
@@ -101,9 +100,8 @@ public class PeerLookupTask extends LookupTask<EligiblePeers, PeerLookupTask> {
 			}
 
 			log.debug("{}#{} sending FIND_PEER RPC to {}", getName(), getId(), cn.getId());
-			Network network = getContext().getNetwork();
-			Message request = Message.findPeerRequest(getTarget(), network.isIPv4(), network.isIPv6(), expectedSequenceNumber, expectedCount);
-			sendCall(cn, request, c -> cn.setSent(), (c, e) -> removeCandidate(cn.getId()));
+			Message request = Message.findPeerRequest(getTarget(), wantIPv4(), wantIPv6(), expectedSequenceNumber, expectedCount);
+			sendCall(cn, request, c -> cn.setSent(), (c, e) -> sendFailed(cn.getId()));
 		}
 	}
 
@@ -421,6 +421,19 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		}
 	}
 
+	/**
+	 * Asks for an iteration from outside the call lifecycle.
+	 * <p>
+	 * For state a task learns without a call of its own changing state - today, what a sibling lookup
+	 * hands over. Iteration is otherwise driven only by call state changes, so a task with nothing in flight
+	 * would sit on the new state until its deadline. Ignored once the task has ended.
+	 * </p>
+	 */
+	protected final void wake() {
+		if (isRunning())
+			tryIterate();
+	}
+
 	/**
 	 * Runs one iteration: completes the task if it is done, otherwise sends what it can and checks again.
 	 * <p>
@@ -32,7 +32,6 @@ import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.Value;
 import io.bosonnetwork.kademlia.impl.KadContext;
-import io.bosonnetwork.kademlia.impl.Network;
 import io.bosonnetwork.kademlia.protocol.FindValueResponse;
 import io.bosonnetwork.kademlia.protocol.Message;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
@@ -96,10 +95,9 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 			}
 
 			log.debug("{}#{} sending FIND_VALUE RPC to {}", getName(), getId(), cn.getId());
-			Network network = getContext().getNetwork();
 			Message request = Message.findValueRequest(getTarget(),
-					network.isIPv4(), network.isIPv6(), expectedSequenceNumber);
-			sendCall(cn, request, c -> cn.setSent(), (c, e) -> removeCandidate(cn.getId()));
+					wantIPv4(), wantIPv6(), expectedSequenceNumber);
+			sendCall(cn, request, c -> cn.setSent(), (c, e) -> sendFailed(cn.getId()));
 		}
 	}
 
@@ -108,6 +106,11 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 	 * Drops the entire response if the value has a mismatched ID, invalid signature, or outdated
 	 * sequence number, as the node is considered unqualified. Reached only for a response from the node the
 	 * call was sent to; see {@link LookupTask#handleResponse}.
+	 * <p>
+	 * A lookup that is done on the first eligible value checks each value as it arrives. One that goes on
+	 * for the latest version only offers them to the result, which verifies every signature as one batch
+	 * when the result is read at the end, and reports a sender whose value failed then; see
+	 * {@link EligibleValue#offer}.
 	 *
 	 * @param call the RPC call with a response
 	 */
@@ -117,21 +120,21 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 		FindValueResponse body = response.getBody();
 		if (body.hasValue()) {
 			Value value = body.getValue();
-			if (!result.update(value)) {
-				log.warn("{}#{} dropping response from {} due to ineligible value(id | sequenceNumber | signature mismatch)",
-						getName(), getId(), call.getTargetId());
-				getContext().getSuspiciousNodeDetector().misbehaved(response.getRemoteAddress(), response.getId());
+			if (!doneOnEligibleResult) {
+				if (!result.offer(value, () -> rejectValue(call)))
+					rejectValue(call);
+				else
+					log.trace("{}#{} value offered, continuing iteration for precise result", getName(), getId());
 				return;
 			}
 
-			if (!result.isEmpty()) {
-				if (doneOnEligibleResult) {
-					log.debug("{}#{} value is eligible, done on result", getName(), getId());
-					lookupDone = true;
-				} else {
-					log.trace("{}#{} value is eligible, continuing iteration for precise result", getName(), getId());
-				}
+			if (!result.update(value)) {
+				rejectValue(call);
+				return;
 			}
+
+			log.debug("{}#{} value is eligible, done on result", getName(), getId());
+			lookupDone = true;
 		} else {
 			List<NodeInfo> nodes = acceptResponse(response);
 			if (nodes.isEmpty())
@@ -151,6 +154,13 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 		}
 	}
 
+	private void rejectValue(RpcCall call) {
+		Message response = call.getResponse();
+		log.warn("{}#{} dropping response from {} due to ineligible value(id | sequenceNumber | signature mismatch)",
+				getName(), getId(), call.getTargetId());
+		getContext().getSuspiciousNodeDetector().misbehaved(response.getRemoteAddress(), response.getId());
+	}
+
 	/**
 	 * Returns the logger for this task.
 	 *
@@ -330,6 +330,37 @@ public class TimeoutSampler {
 		return snapshot;
 	}
 
+	/**
+	 * What the sampler currently believes about round-trip times, as plain numbers for export.
+	 * <p>
+	 * Read from the last snapshot rather than the live bins, so the quantiles are the ones the stall
+	 * timeout is actually being derived from, and they move at the same 16-sample cadence it does.
+	 * Quantiles are bin midpoints, so they are as coarse as the bin size.
+	 * </p>
+	 *
+	 * @param samples      the number of RTTs recorded since the last reset.
+	 * @param mean         the mean RTT in milliseconds.
+	 * @param p10          the 10th percentile in milliseconds - the timeout baseline.
+	 * @param p50          the median in milliseconds.
+	 * @param p90          the 90th percentile in milliseconds - the timeout ceiling.
+	 * @param p99          the 99th percentile in milliseconds.
+	 * @param stallTimeout the timeout currently handed to new calls, in milliseconds.
+	 */
+	public record Stats(long samples, int mean, int p10, int p50, int p90, int p99, long stallTimeout) {
+	}
+
+	/**
+	 * Takes a copy of the current statistics. Not thread-safe, like the rest of the sampler: call it on the
+	 * thread that records the samples.
+	 *
+	 * @return the statistics.
+	 */
+	public Stats stats() {
+		Snapshot s = snapshot;
+		return new Stats(updateCount, (int) s.mean, (int) s.getQuantile(0.1f), (int) s.getQuantile(0.5f),
+				(int) s.getQuantile(0.9f), (int) s.getQuantile(0.99f), getStallTimeout());
+	}
+
 	/**
 	 * Estimates the current stall timeout using the observed RTT distribution.
 	 * Uses the higher of (10th percentile + baseline) or 90th percentile,
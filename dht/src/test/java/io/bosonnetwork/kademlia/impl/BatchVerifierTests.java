@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+
+@ExtendWith(VertxExtension.class)
+class BatchVerifierTests {
+	private static Value signed(String data) {
+		return Value.signedBuilder().data(data.getBytes()).build();
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testRecordsOfOneTurnAreVerifiedAsOneBatch(Vertx vertx, VertxTestContext context) {
+		Context vertxContext = vertx.getOrCreateContext();
+		KadContext kadContext = new TestKadContext(vertxContext, new CryptoIdentity(), Network.IPv4);
+		List<Integer> batches = new ArrayList<>();
+		BatchVerifier<Value> verifier = new BatchVerifier<>(kadContext, v -> {
+			batches.add(1);
+			return v.isValid();
+		}, values -> {
+			batches.add(values.size());
+			return Value.isEachValid(values);
+		});
+
+		Value good = signed("good");
+		Value other = signed("other");
+		Value forged = Value.of(good.getPublicKey(), good.getSequenceNumber(), other.getSignature(), "forged".getBytes());
+
+		vertxContext.runOnContext(unused -> {
+			// Three writes in one turn share a batch, and each still gets its own verdict
+			Future<Boolean> f1 = verifier.verify(good);
+			Future<Boolean> f2 = verifier.verify(forged);
+			Future<Boolean> f3 = verifier.verify(other);
+			Future.all(f1, f2, f3).compose(all -> {
+				context.verify(() -> {
+					assertTrue(f1.result());
+					assertFalse(f2.result());
+					assertTrue(f3.result());
+				});
+				// A write alone in its turn takes the single check
+				return verifier.verify(good);
+			}).onComplete(context.succeeding(alone -> context.verify(() -> {
+				assertTrue(alone);
+				assertEquals(List.of(3, 1), batches);
+				context.completeNow();
+			})));
+		});
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testABurstIsSplitIntoCappedBatches(Vertx vertx, VertxTestContext context) {
+		Context vertxContext = vertx.getOrCreateContext();
+		KadContext kadContext = new TestKadContext(vertxContext, new CryptoIdentity(), Network.IPv4);
+		// the batches run on workers of their own, in parallel
+		List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+		BatchVerifier<Value> verifier = new BatchVerifier<>(kadContext, v -> {
+			batches.add(1);
+			return v.isValid();
+		}, values -> {
+			batches.add(values.size());
+			return Value.isEachValid(values);
+		});
+
+		int burst = 2 * BatchVerifier.MAX_BATCH_SIZE + 2;
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < burst; i++)
+			values.add(signed("burst " + i));
+		int forged = burst - 1;
+		values.set(forged, Value.of(values.get(0).getPublicKey(), values.get(0).getSequenceNumber(),
+				values.get(1).getSignature(), "forged".getBytes()));
+
+		vertxContext.runOnContext(unused -> {
+			List<Future<Boolean>> verdicts = new ArrayList<>();
+			values.forEach(v -> verdicts.add(verifier.verify(v)));
+			Future.all(verdicts).onComplete(context.succeeding(all -> context.verify(() -> {
+				for (int i = 0; i < burst; i++)
+					assertEquals(i != forged, verdicts.get(i).result(), "record " + i);
+
+				// three even batches rather than two full ones and a remainder of two
+				List<Integer> sizes = new ArrayList<>(batches);
+				Collections.sort(sizes);
+				assertEquals(List.of(43, 43, 44), sizes);
+				context.completeNow();
+			})));
+		});
+	}
+}
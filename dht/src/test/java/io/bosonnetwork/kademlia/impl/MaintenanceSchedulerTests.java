@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.kademlia.rpc.PacketBudget;
+import io.bosonnetwork.kademlia.utils.Timer;
+
+/**
+ * Covers {@link MaintenanceScheduler} - that background work queued together goes out spread across its
+ * window rather than at once, and waits for the packet budget without waiting for it forever.
+ * <p>
+ * Runs on a hand-cranked clock and timer, so the spread is measured exactly rather than slept through.
+ * </p>
+ */
+public class MaintenanceSchedulerTests {
+	private static final long WINDOW = 60_000;
+
+	/** A timer that fires only when the test advances the clock past it. */
+	private static class ManualTimer implements Timer {
+		long now;
+		private long nextId;
+		private final TreeMap<Long, List<Object[]>> due = new TreeMap<>();
+
+		@Override
+		public long setPeriodic(long initialDelay, long delay, Consumer<Long> handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long setPeriodic(long delay, Consumer<Long> handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long setTimer(long delay, Consumer<Long> handler) {
+			long id = nextId++;
+			due.computeIfAbsent(now + delay, t -> new ArrayList<>()).add(new Object[] { id, handler });
+			return id;
+		}
+
+		@Override
+		public boolean cancelTimer(long timerId) {
+			return due.values().stream().anyMatch(list -> list.removeIf(t -> (long) t[0] == timerId));
+		}
+
+		boolean armed() {
+			return due.values().stream().anyMatch(list -> !list.isEmpty());
+		}
+
+		@SuppressWarnings("unchecked")
+		void advanceTo(long time) {
+			while (!due.isEmpty() && due.firstKey() <= time) {
+				var entry = due.pollFirstEntry();
+				now = entry.getKey();
+				for (Object[] t : entry.getValue())
+					((Consumer<Long>) t[1]).accept((long) t[0]);
+			}
+			now = time;
+		}
+	}
+
+	@Test
+	void testJobsAreSpreadAcrossTheWindow() {
+		ManualTimer timer = new ManualTimer();
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, PacketBudget.unlimited(), () -> timer.now);
+
+		List<Long> ran = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+			scheduler.schedule(i, 1, WINDOW, () -> ran.add(timer.now));
+
+		assertEquals(8, scheduler.size());
+		assertEquals(WINDOW / 8, scheduler.nextSlot(0));
+
+		timer.advanceTo(WINDOW / 4);
+		assertTrue(ran.size() < 8, "the queue must not be drained at once");
+
+		timer.advanceTo(2 * WINDOW);
+		assertEquals(8, ran.size());
+		assertEquals(0, scheduler.size());
+		assertFalse(timer.armed());
+
+		// Each slot is at most one and a half nominal slots, and the nominal slot only shrinks towards the
+		// deadline, so the whole queue finishes inside one and a half windows even at the worst draw.
+		assertTrue(ran.get(ran.size() - 1) <= WINDOW * 3 / 2, "last job ran at " + ran.get(ran.size() - 1));
+		// And no two jobs went out closer together than the floor.
+		for (int i = 1; i < ran.size(); i++)
+			assertTrue(ran.get(i) - ran.get(i - 1) >= MaintenanceScheduler.MIN_SLOT);
+	}
+
+	@Test
+	void testDuplicateKeyIsNotQueued() {
+		ManualTimer timer = new ManualTimer();
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, PacketBudget.unlimited(), () -> timer.now);
+
+		assertTrue(scheduler.schedule("bucket", 1, WINDOW, () -> {}));
+		assertFalse(scheduler.schedule("bucket", 1, WINDOW, () -> {}));
+		assertTrue(scheduler.isScheduled("bucket"));
+		assertEquals(1, scheduler.size());
+
+		timer.advanceTo(2 * WINDOW);
+		assertFalse(scheduler.isScheduled("bucket"));
+		assertTrue(scheduler.schedule("bucket", 1, WINDOW, () -> {}));
+	}
+
+	/**
+	 * A job due well before the armed slot must not wait for it.
+	 */
+	@Test
+	void testShortWindowPullsTheSlotIn() {
+		ManualTimer timer = new ManualTimer();
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, PacketBudget.unlimited(), () -> timer.now);
+
+		List<String> ran = new ArrayList<>();
+		scheduler.schedule("slow", 1, 10 * WINDOW, () -> ran.add("slow"));
+		scheduler.schedule("urgent", 1, 1_000, () -> ran.add("urgent"));
+
+		timer.advanceTo(5_000);
+		assertEquals(List.of("slow", "urgent"), ran);
+	}
+
+	/**
+	 * The budget defers a job while user traffic holds it, and only for one extra window: refresh has to
+	 * happen eventually, however busy the node is.
+	 */
+	@Test
+	void testBudgetDefersButDoesNotStarve() {
+		ManualTimer timer = new ManualTimer();
+		PacketBudget budget = new PacketBudget(1, 1);
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, budget, () -> timer.now);
+
+		List<Long> ran = new ArrayList<>();
+		scheduler.schedule("bucket", 1, WINDOW, () -> ran.add(timer.now));
+
+		// Keep the budget spent for the whole test, the way a node under sustained load would.
+		for (long t = 0; t <= 3 * WINDOW && ran.isEmpty(); t += MaintenanceScheduler.MIN_SLOT) {
+			budget.charge();
+			budget.charge();
+			timer.advanceTo(t);
+		}
+
+		assertEquals(1, ran.size());
+		assertTrue(ran.get(0) >= 2 * WINDOW, "ran at " + ran.get(0));
+	}
+
+	@Test
+	void testAFailingJobDoesNotStrandTheQueue() {
+		ManualTimer timer = new ManualTimer();
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, PacketBudget.unlimited(), () -> timer.now);
+
+		List<String> ran = new ArrayList<>();
+		scheduler.schedule("bad", 1, WINDOW, () -> { throw new IllegalStateException("boom"); });
+		scheduler.schedule("good", 1, WINDOW, () -> ran.add("good"));
+
+		timer.advanceTo(2 * WINDOW);
+		assertEquals(List.of("good"), ran);
+	}
+
+	@Test
+	void testClear() {
+		ManualTimer timer = new ManualTimer();
+		MaintenanceScheduler scheduler = new MaintenanceScheduler(timer, PacketBudget.unlimited(), () -> timer.now);
+
+		List<String> ran = new ArrayList<>();
+		scheduler.schedule("a", 1, WINDOW, () -> ran.add("a"));
+		scheduler.clear();
+
+		assertEquals(0, scheduler.size());
+		assertFalse(timer.armed());
+		timer.advanceTo(2 * WINDOW);
+		assertTrue(ran.isEmpty());
+	}
+
+	@Test
+	void testPhaseStaysWithinHalfAPeriodOfIt() {
+		for (int i = 0; i < 1000; i++) {
+			long phase = MaintenanceScheduler.phase(30_000);
+			assertTrue(phase >= 15_000 && phase <= 45_000, "phase " + phase);
+		}
+	}
+}
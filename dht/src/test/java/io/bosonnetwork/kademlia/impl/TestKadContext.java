@@ -8,12 +8,14 @@ import org.jspecify.annotations.NonNull;
 
 import io.bosonnetwork.Identity;
 import io.bosonnetwork.kademlia.security.SuspiciousNodeDetector;
+import io.bosonnetwork.kademlia.tasks.LookupTracer;
 
 public class TestKadContext extends KadContext {
 	private final Context vertxContext;
 	private final Identity identity;
 	private final Network network;
 	private SuspiciousNodeDetector suspiciousNodeDetector;
+	private LookupTracer lookupTracer;
 	private int alpha;
 	private int k;
 	private int replacements;
@@ -43,6 +45,16 @@ public class TestKadContext extends KadContext {
 		return this;
 	}
 
+	@Override
+	public LookupTracer getLookupTracer() {
+		return lookupTracer;
+	}
+
+	public TestKadContext setLookupTracer(LookupTracer lookupTracer) {
+		this.lookupTracer = lookupTracer;
+		return this;
+	}
+
 	public TestKadContext setAlpha(int alpha) {
 		this.alpha = alpha;
 		return this;
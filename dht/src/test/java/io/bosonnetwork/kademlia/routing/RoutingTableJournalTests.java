@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.json.Json;
+
+/**
+ * The binary snapshot and the journal appended between compactions: what is written for each kind of
+ * change, and that a restart puts back the table as it was at the last batch that made it to disk.
+ */
+class RoutingTableJournalTests {
+	private static final int K = 32;
+	private static final int REPLACEMENTS = 8;
+
+	@TempDir
+	Path dir;
+
+	private Id localId;
+	private RoutingTable table;
+	private RoutingTableJournal journal;
+	private int nextHost;
+
+	@BeforeEach
+	void setup() {
+		localId = Id.random();
+		table = new RoutingTable(localId, K, REPLACEMENTS);
+		journal = new RoutingTableJournal(dir.resolve("dht4.cache"));
+		nextHost = 1;
+	}
+
+	/** A reachable contact on a host of its own, so the diversity budget never decides a test here. */
+	private KBucketEntry newEntry() {
+		int host = nextHost++;
+		KBucketEntry entry = new KBucketEntry(Id.random(),
+				new InetSocketAddress("45." + (host >> 8 & 0xFF) + "." + (host & 0xFF) + ".9", 39001));
+		entry.onResponded(40);
+		return entry;
+	}
+
+	private List<KBucketEntry> fill(int count) {
+		List<KBucketEntry> entries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			KBucketEntry entry = newEntry();
+			if (table.put(entry))
+				entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static Set<Id> ids(RoutingTable table) {
+		Set<Id> ids = new HashSet<>();
+		table.forEachRecord((entry, replacement) -> ids.add(entry.getId()));
+		return ids;
+	}
+
+	private RoutingTable restart() throws IOException {
+		RoutingTable loaded = new RoutingTable(localId, K, REPLACEMENTS);
+		RoutingTableJournal reopened = new RoutingTableJournal(journal.getSnapshotFile());
+		reopened.load(loaded, reopened.read());
+		return loaded;
+	}
+
+	private RoutingTableJournal.Write persist() throws IOException {
+		RoutingTableJournal.Write write = journal.prepare(table);
+		if (write != null)
+			journal.write(write);
+		return write;
+	}
+
+	@Test
+	void testBinarySnapshotRoundTrip() {
+		fill(100);
+		table.getEntry(ids(table).iterator().next(), true).onTimeout();
+
+		byte[] data = table.save();
+		assertNotNull(data);
+		assertTrue(RoutingTable.Snapshot.isBinary(data));
+
+		RoutingTable loaded = new RoutingTable(localId, K, REPLACEMENTS);
+		assertEquals(ids(table).size(), loaded.load(data));
+		assertEquals(ids(table), ids(loaded));
+
+		table.forEachRecord((entry, replacement) -> {
+			KBucketEntry restored = loaded.getEntry(entry.getId(), true);
+			assertEquals(entry.getAddress(), restored.getAddress());
+			assertEquals(entry.getRTT(), restored.getRTT());
+			assertEquals(entry.lastSeen(), restored.lastSeen());
+			assertEquals(entry.failedRequests(), restored.failedRequests());
+			assertEquals(entry.isReachable(), restored.isReachable());
+		});
+	}
+
+	@Test
+	void testDamagedSnapshotRestoresNothing() {
+		fill(20);
+		byte[] data = table.save();
+		assertNotNull(data);
+		data[RoutingTable.SNAPSHOT_HEADER_BYTES + 40] ^= 0x10;
+
+		RoutingTable loaded = new RoutingTable(localId, K, REPLACEMENTS);
+		assertEquals(0, loaded.load(data), "a snapshot failing its checksum must not be trusted in part");
+		assertEquals(0, loaded.getNumberOfEntries());
+	}
+
+	/**
+	 * A cache written by an older node, as a CBOR map, still warm-starts a newer one.
+	 */
+	@Test
+	void testLegacyCborSnapshotStillLoads() throws Exception {
+		List<KBucketEntry> entries = fill(10);
+
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("nodeId", localId.getBytes());
+		root.put("timestamp", System.currentTimeMillis());
+		root.put("entries", entries.stream().map(KBucketEntry::toMap).toList());
+		root.put("replacements", List.of());
+		Files.write(journal.getSnapshotFile(), Json.cborMapper().writeValueAsBytes(root));
+
+		RoutingTable loaded = restart();
+		assertEquals(ids(table), ids(loaded));
+	}
+
+	@Test
+	void testChangesAreJournaledNotRewritten() throws IOException {
+		List<KBucketEntry> entries = fill(120);
+
+		RoutingTableJournal.Write first = persist();
+		assertNotNull(first);
+		assertTrue(first.compaction(), "the first persist has nothing to extend, so it writes a snapshot");
+		assertNull(journal.prepare(table), "nothing changed, so nothing is written");
+
+		KBucketEntry removed = entries.get(0);
+		assertTrue(table.remove(removed.getId()));
+		KBucketEntry updated = entries.get(1);
+		table.onResponded(updated.getId(), 900);
+		KBucketEntry added = newEntry();
+		assertTrue(table.put(added));
+
+		RoutingTableJournal.Write batch = persist();
+		assertNotNull(batch);
+		assertFalse(batch.compaction());
+		assertEquals(first.generation(), batch.generation());
+		assertEquals(RoutingTableJournal.BATCH_HEADER_BYTES + Long.BYTES
+				+ (1 + KBucketEntry.RECORD_BYTES)
+				+ (1 + Id.BYTES + KBucketEntry.RECORD_MUTABLE_BYTES)
+				+ (1 + Id.BYTES), batch.data().length,
+				"one put, one update and one remove, and nothing else");
+
+		RoutingTable loaded = restart();
+		assertEquals(ids(table), ids(loaded));
+		assertNull(loaded.getEntry(removed.getId(), true));
+		assertNotNull(loaded.getEntry(added.getId(), true));
+		assertEquals(table.getEntry(updated.getId(), true).getRTT(), loaded.getEntry(updated.getId(), true).getRTT());
+	}
+
+	/**
+	 * A crash partway through an append leaves a torn batch at the end. Everything before it is kept.
+	 */
+	@Test
+	void testTornBatchIsIgnored() throws IOException {
+		fill(40);
+		persist();
+
+		KBucketEntry kept = newEntry();
+		assertTrue(table.put(kept));
+		persist();
+
+		KBucketEntry torn = newEntry();
+		assertTrue(table.put(torn));
+		persist();
+
+		Path file = journal.getJournalFile();
+		byte[] data = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(data, data.length - 3));
+
+		RoutingTable loaded = restart();
+		assertNotNull(loaded.getEntry(kept.getId(), true));
+		assertNull(loaded.getEntry(torn.getId(), true));
+	}
+
+	/**
+	 * A crash between the two writes of a compaction leaves the previous journal next to the new snapshot.
+	 * It names the snapshot it was written over, so it is recognised and not replayed.
+	 */
+	@Test
+	void testJournalOfAnotherSnapshotIsIgnored() throws IOException {
+		List<KBucketEntry> entries = fill(40);
+		persist();
+
+		KBucketEntry removed = entries.get(0);
+		table.remove(removed.getId());
+		persist();
+
+		Path file = journal.getJournalFile();
+		byte[] data = Files.readAllBytes(file);
+		ByteBuffer.wrap(data).putLong(Integer.BYTES, 1L);
+		Files.write(file, data);
+
+		RoutingTable loaded = restart();
+		assertNotNull(loaded.getEntry(removed.getId(), true), "a journal of another snapshot was replayed");
+	}
+
+	@Test
+	void testFailedWriteCompactsNext() throws IOException {
+		fill(40);
+		persist();
+
+		Files.delete(journal.getJournalFile());
+		table.put(newEntry());
+		RoutingTableJournal.Write write = journal.prepare(table);
+		assertNotNull(write);
+		assertFalse(write.compaction());
+		assertThrows(IOException.class, () -> journal.write(write));
+
+		journal.invalidate();
+		RoutingTableJournal.Write retry = persist();
+		assertNotNull(retry);
+		assertTrue(retry.compaction());
+		assertEquals(ids(table), ids(restart()));
+	}
+
+	/**
+	 * A journal is only worth appending to while it is smaller than the snapshot it extends.
+	 */
+	@Test
+	void testGrowthPastTheSnapshotCompacts() throws IOException {
+		List<KBucketEntry> entries = fill(30);
+		persist();
+
+		boolean compacted = false;
+		for (int round = 0; round < 10 && !compacted; round++) {
+			for (KBucketEntry entry : entries)
+				table.onResponded(entry.getId(), 100 + round);
+
+			RoutingTableJournal.Write write = persist();
+			assertNotNull(write);
+			compacted = write.compaction();
+		}
+
+		assertTrue(compacted, "the journal grew past its snapshot without a compaction");
+		assertTrue(Files.size(journal.getJournalFile()) < Files.size(journal.getSnapshotFile()));
+		assertEquals(ids(table), ids(restart()));
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.kademlia.metrics.MicrometerRoutingMetrics;
+import io.bosonnetwork.kademlia.utils.TimeoutSampler;
+
+/**
+ * The routing table sample: per-bucket fill, RTT and loss, the age histogram, churn as the difference
+ * between samples, the random peer view, and the Micrometer meters that read it.
+ */
+class RoutingTableStatsTests {
+	private static final int K = 8;
+	private static final int REPLACEMENTS = 4;
+	private static final TimeoutSampler.Stats RTT = new TimeoutSampler.Stats(0, 0, 0, 0, 0, 0, 3000);
+
+	private RoutingTable table;
+	private int nextHost;
+
+	@BeforeEach
+	void setup() {
+		table = new RoutingTable(Id.random(), K, REPLACEMENTS);
+		nextHost = 1;
+	}
+
+	/** A contact on a host of its own, so the diversity budget never decides a test here. */
+	private KBucketEntry newEntry(int rtt) {
+		int host = nextHost++;
+		KBucketEntry entry = new KBucketEntry(Id.random(),
+				new InetSocketAddress("45." + (host >> 8 & 0xFF) + "." + (host & 0xFF) + ".9", 39001));
+		if (rtt >= 0)
+			entry.onResponded(rtt);
+		return entry;
+	}
+
+	@Test
+	void testBucketFigures() {
+		for (int rtt : new int[] { 40, 10, 30, 20 })
+			assertTrue(table.put(newEntry(rtt)));
+
+		// Not reachable yet, so it is filed as a replacement.
+		KBucketEntry unverified = newEntry(-1);
+		assertTrue(table.put(unverified));
+
+		KBucketEntry first = table.buckets().get(0).entries().get(0);
+		table.onTimeout(first.getId());
+
+		RoutingTableStats stats = new RoutingTableStats.Sampler().sample(table, RTT, System.currentTimeMillis());
+		assertEquals(K, stats.getK());
+		assertEquals(1, stats.getBuckets().size());
+		assertEquals(4, stats.getEntries());
+		assertEquals(1, stats.getReplacements());
+
+		RoutingTableStats.Bucket bucket = stats.getBuckets().get(0);
+		assertEquals(0, bucket.index());
+		assertEquals(-1, bucket.depth());
+		assertEquals(4, bucket.reachable());
+		assertEquals(1, bucket.failing());
+		assertEquals(4, bucket.rttSamples());
+		assertEquals(20, bucket.rttP50());
+		assertEquals(40, bucket.rttP90());
+		assertEquals(40, bucket.rttP99());
+		assertEquals(RTT, stats.getRtt());
+	}
+
+	@Test
+	void testAnEmptyBucketHasNoRtt() {
+		RoutingTableStats stats = new RoutingTableStats.Sampler().sample(table, RTT, System.currentTimeMillis());
+		RoutingTableStats.Bucket bucket = stats.getBuckets().get(0);
+		assertEquals(0, bucket.rttSamples());
+		assertEquals(-1, bucket.rttP50());
+		assertEquals(-1, bucket.rttP99());
+		assertEquals(0, bucket.oldest());
+	}
+
+	@Test
+	void testAgeHistogram() {
+		for (int i = 0; i < 3; i++)
+			table.put(newEntry(10));
+
+		// Ten minutes on: past the five-minute bound, short of the fifteen-minute one.
+		long now = System.currentTimeMillis() + 10 * 60 * 1000;
+		RoutingTableStats stats = new RoutingTableStats.Sampler().sample(table, RTT, now);
+
+		long[] ages = stats.getAgeHistogram();
+		assertEquals(RoutingTableStats.AGE_BOUNDS.length + 1, ages.length);
+		assertEquals(3, ages[2]);
+		assertEquals(3, java.util.Arrays.stream(ages).sum());
+		assertTrue(stats.getBuckets().get(0).oldest() >= 10 * 60 * 1000);
+	}
+
+	@Test
+	void testChurnIsTheDifferenceBetweenSamples() {
+		List<KBucketEntry> entries = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			KBucketEntry entry = newEntry(10);
+			table.put(entry);
+			entries.add(entry);
+		}
+		KBucketEntry replacement = newEntry(-1);
+		table.put(replacement);
+
+		RoutingTableStats.Sampler sampler = new RoutingTableStats.Sampler();
+		// The first sample is the baseline: a table loaded from disk is not churn.
+		RoutingTableStats.Churn churn = sampler.sample(table, RTT, System.currentTimeMillis()).getChurn();
+		assertEquals(new RoutingTableStats.Churn(0, 0, 0, 0, 0), churn);
+
+		table.remove(entries.get(0).getId());
+		table.put(newEntry(10));
+		table.put(newEntry(10));
+		// Answers, and the bucket has room: promoted.
+		table.onResponded(replacement.getId(), 15);
+		table.put(newEntry(-1));
+
+		churn = sampler.sample(table, RTT, System.currentTimeMillis()).getChurn();
+		assertEquals(3, churn.entriesAdded());
+		assertEquals(1, churn.entriesRemoved());
+		assertEquals(1, churn.replacementsAdded());
+		assertEquals(1, churn.replacementsRemoved());
+		assertEquals(1, churn.promotions());
+
+		// Cumulative: nothing changed since, nothing more is counted.
+		assertEquals(churn, sampler.sample(table, RTT, System.currentTimeMillis()).getChurn());
+	}
+
+	@Test
+	void testSamplePeers() {
+		for (int i = 0; i < 40; i++)
+			table.put(newEntry(10 + i));
+		int total = table.getNumberOfEntries() + table.getNumberOfReplacements();
+		assertTrue(total > 10);
+
+		long now = System.currentTimeMillis();
+		List<RoutingTableStats.Peer> all = RoutingTableStats.samplePeers(table, 0, now);
+		assertEquals(total, all.size());
+
+		List<RoutingTableStats.Peer> some = RoutingTableStats.samplePeers(table, 10, now);
+		assertEquals(10, some.size());
+		Set<Id> ids = new HashSet<>();
+		for (int i = 0; i < some.size(); i++) {
+			RoutingTableStats.Peer peer = some.get(i);
+			assertTrue(ids.add(peer.id()));
+			assertTrue(table.contains(peer.id(), true));
+			assertTrue(peer.rtt() >= 10);
+			if (i > 0)
+				assertTrue(some.get(i - 1).bucket() <= peer.bucket());
+		}
+	}
+
+	@Test
+	void testMicrometerMetricsReadTheLastSample() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerRoutingMetrics metrics = new MicrometerRoutingMetrics(registry, Tags.of("network", "ipv4"));
+
+		// Nothing sampled yet: the meters exist, and say so.
+		assertTrue(Double.isNaN(registry.get("boson.dht.rpc.timeout").gauge().value()));
+
+		for (int rtt : new int[] { 40, 10, 30, 20 })
+			table.put(newEntry(rtt));
+
+		RoutingTableStats.Sampler sampler = new RoutingTableStats.Sampler();
+		metrics.routingTableSampled(sampler.sample(table, RTT, System.currentTimeMillis()));
+		table.put(newEntry(50));
+		metrics.routingTableSampled(sampler.sample(table, RTT, System.currentTimeMillis()));
+
+		assertEquals(5.0, registry.get("boson.dht.routing.bucket.entries").tag("bucket", "0").gauge().value());
+		assertEquals(5.0 / K, registry.get("boson.dht.routing.bucket.fill").tag("bucket", "0").gauge().value());
+		assertEquals(30.0, registry.get("boson.dht.routing.bucket.rtt")
+				.tags("bucket", "0", "quantile", "0.5").gauge().value());
+		assertEquals(5.0, registry.get("boson.dht.routing.entry.age").tag("le", "60").gauge().value());
+		assertEquals(5.0, registry.get("boson.dht.routing.entry.age").tag("le", "+Inf").gauge().value());
+		assertEquals(1.0, registry.get("boson.dht.routing.churn")
+				.tags("list", "entries", "change", "added").functionCounter().count());
+		assertEquals(3000.0, registry.get("boson.dht.rpc.timeout").tag("network", "ipv4").gauge().value());
+
+		metrics.close();
+		assertFalse(registry.getMeters().stream().anyMatch(m -> m.getId().getName().startsWith("boson.dht")));
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.impl.ErrorCode;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.impl.TestKadContext;
+import io.bosonnetwork.kademlia.metrics.MicrometerDHTMetrics;
+import io.bosonnetwork.kademlia.protocol.Error;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.security.Blacklist;
+
+@ExtendWith(VertxExtension.class)
+class LoadMonitorTests {
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(LoadMonitor.PROBE_INTERVAL);
+
+	@Test
+	void testLoopLagRaisesTheLevelAndItStandsDownWithHysteresis() {
+		LoadMonitor monitor = new LoadMonitor(true, null);
+		long now = TimeUnit.SECONDS.toNanos(1);
+		monitor.probe(now);
+
+		// One late firing is smoothed away rather than taken as overload
+		monitor.probe(now += INTERVAL + TimeUnit.MILLISECONDS.toNanos(300));
+		assertEquals(LoadMonitor.Level.NORMAL, monitor.getLevel());
+
+		while (monitor.getLevel() != LoadMonitor.Level.SEVERE)
+			monitor.probe(now += INTERVAL + TimeUnit.MILLISECONDS.toNanos(300));
+		assertTrue(monitor.getLoopLag() >= LoadMonitor.LAG_SEVERE);
+
+		// On time again: the lag decays below the SEVERE threshold, but not yet below half of it
+		while (monitor.getLoopLag() >= LoadMonitor.LAG_SEVERE)
+			monitor.probe(now += INTERVAL);
+		assertEquals(LoadMonitor.Level.SEVERE, monitor.getLevel());
+
+		while (monitor.getLoopLag() > 0)
+			monitor.probe(now += INTERVAL);
+		assertEquals(LoadMonitor.Level.NORMAL, monitor.getLevel());
+	}
+
+	@Test
+	void testWritesAreShedBeforeReadsAndRoutingIsNeverShed() {
+		LoadMonitor monitor = new LoadMonitor(true, null);
+		for (Message.Method method : Message.Method.values())
+			assertFalse(monitor.shouldShed(method));
+
+		for (int i = 0; i < LoadMonitor.QUEUE_DEPTH_ELEVATED; i++)
+			monitor.enqueued();
+		monitor.evaluate();
+		assertEquals(LoadMonitor.Level.ELEVATED, monitor.getLevel());
+		assertTrue(monitor.shouldShed(Message.Method.STORE_VALUE));
+		assertTrue(monitor.shouldShed(Message.Method.ANNOUNCE_PEER));
+		assertFalse(monitor.shouldShed(Message.Method.FIND_VALUE));
+		assertFalse(monitor.shouldShed(Message.Method.FIND_PEER));
+
+		for (int i = LoadMonitor.QUEUE_DEPTH_ELEVATED; i < LoadMonitor.QUEUE_DEPTH_SEVERE; i++)
+			monitor.enqueued();
+		monitor.evaluate();
+		assertEquals(LoadMonitor.Level.SEVERE, monitor.getLevel());
+		assertTrue(monitor.shouldShed(Message.Method.FIND_VALUE));
+		assertTrue(monitor.shouldShed(Message.Method.FIND_PEER));
+		assertFalse(monitor.shouldShed(Message.Method.PING));
+		assertFalse(monitor.shouldShed(Message.Method.FIND_NODE));
+
+		// Draining the queue brings it back
+		long enqueuedAt = System.nanoTime();
+		while (monitor.getQueueDepth() > 0)
+			monitor.dequeued(enqueuedAt);
+		monitor.evaluate();
+		assertEquals(LoadMonitor.Level.NORMAL, monitor.getLevel());
+	}
+
+	@Test
+	void testAMonitorThatDoesNotShedStillMeasures() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerDHTMetrics metrics = new MicrometerDHTMetrics(registry);
+		LoadMonitor monitor = new LoadMonitor(false, metrics);
+
+		for (int i = 0; i < LoadMonitor.QUEUE_DEPTH_SEVERE; i++)
+			monitor.enqueued();
+		monitor.evaluate();
+		monitor.queueTimeObserved(TimeUnit.MILLISECONDS.toNanos(5));
+
+		assertEquals(LoadMonitor.Level.SEVERE, monitor.getLevel());
+		assertFalse(monitor.shouldShed(Message.Method.STORE_VALUE));
+
+		assertEquals(LoadMonitor.QUEUE_DEPTH_SEVERE, registry.get("boson.dht.worker.queue.depth").gauge().value());
+		assertEquals(2.0, registry.get("boson.dht.load.level").gauge().value());
+		assertEquals(1, registry.get("boson.dht.worker.queue.time").timer().count());
+
+		metrics.close();
+		assertTrue(registry.getMeters().isEmpty());
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testAnOverloadedServerRefusesWritesAndStillAnswersPings(Vertx vertx, VertxTestContext context) {
+		Context vertxContext = vertx.getOrCreateContext();
+		CryptoIdentity responderIdentity = new CryptoIdentity();
+
+		MeterRegistry registry = new SimpleMeterRegistry();
+		RpcServer caller = new RpcServer(new TestKadContext(vertxContext, new CryptoIdentity(), Network.IPv4)
+				.setDeveloperMode(false), "127.0.0.1", 39213, Blacklist.empty(), true, null);
+		RpcServer responder = new RpcServer(new TestKadContext(vertxContext, responderIdentity, Network.IPv4)
+				.setDeveloperMode(false), "127.0.0.1", 39214,
+				Blacklist.empty(), true, new MicrometerDHTMetrics(registry));
+		responder.setMessageHandler(message -> {
+			if (message.isRequest())
+				responder.sendMessage(Message.pingResponse(message.getTxid())
+						.setRemote(message.getId(), message.getRemoteAddress()));
+		});
+
+		NodeInfo target = NodeInfo.of(responderIdentity.getId(), "127.0.0.1", 39214);
+		Value value = Value.of(Id.random(), Random.randomBytes(64));
+		RpcCall store = new RpcCall(target, Message.storeValueRequest(value, 0, -1));
+		RpcCall ping = new RpcCall(target, Message.pingRequest());
+
+		vertxContext.runOnContext(unused -> responder.start()
+				.compose(v -> caller.start())
+				.compose(v -> {
+					LoadMonitor monitor = responder.getLoadMonitor();
+					for (int i = 0; i < LoadMonitor.QUEUE_DEPTH_ELEVATED; i++)
+						monitor.enqueued();
+					monitor.evaluate();
+					return Future.all(ended(store), ended(ping), caller.sendCall(store), caller.sendCall(ping));
+				})
+				.onComplete(context.succeeding(results -> {
+					context.verify(() -> {
+						assertEquals(RpcCall.State.ERROR, store.getState());
+						Error error = store.getResponse().getBody();
+						assertEquals(ErrorCode.ServerError.value(), error.getCode());
+						assertEquals(RpcCall.State.RESPONDED, ping.getState());
+
+						assertEquals(1.0, registry.get("boson.dht.requests.shed")
+								.tags("method", "store_value", "action", "rejected").counter().count());
+						assertEquals(0.0, registry.get("boson.dht.requests.shed")
+								.tags("method", "ping", "action", "rejected").counter().count());
+					});
+					Future.all(caller.stop(), responder.stop()).onComplete(ar -> context.completeNow());
+				})));
+	}
+
+	private static Future<RpcCall.State> ended(RpcCall call) {
+		Promise<RpcCall.State> ended = Promise.promise();
+		call.addListener(new RpcCallListener() {
+			@Override
+			public void onStateChange(RpcCall c, RpcCall.State previous, RpcCall.State state) {
+				if (state.isFinal())
+					ended.tryComplete(state);
+			}
+		});
+		return ended.future();
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Covers {@link PacketBudget} - the node-wide outbound budget that background work waits on and user
+ * traffic only spends. Driven with explicit instants, so nothing here depends on how fast the test runs.
+ */
+public class PacketBudgetTests {
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void testRoomUntilTheBurstIsSpent() {
+		PacketBudget budget = new PacketBudget(100, 200);
+		// Deliberately negative: nanoTime has no fixed origin.
+		long now = -5 * SECOND;
+
+		assertEquals(0, budget.delayFor(200, now));
+		for (int i = 0; i < 150; i++)
+			budget.charge(now);
+
+		assertEquals(0, budget.delayFor(50, now));
+		// 51 packets would be one past the burst, and at 100/s one packet is 10ms.
+		assertEquals(10, budget.delayFor(51, now));
+	}
+
+	@Test
+	void testTheClockPaysTheDebtBack() {
+		PacketBudget budget = new PacketBudget(100, 200);
+		long now = 0;
+		for (int i = 0; i < 200; i++)
+			budget.charge(now);
+
+		assertTrue(budget.delayFor(10, now) > 0);
+		assertEquals(0, budget.delayFor(10, now + SECOND / 10));
+	}
+
+	/**
+	 * User traffic is never refused, so it can run past the burst - but only so far, or a busy spell
+	 * would keep maintenance waiting long after it ended.
+	 */
+	@Test
+	void testDebtIsCapped() {
+		PacketBudget budget = new PacketBudget(100, 200);
+		long now = 0;
+		for (int i = 0; i < 100_000; i++)
+			budget.charge(now);
+
+		// Capped at two bursts: one burst past the ceiling, which is two seconds at 100/s.
+		assertEquals(2000 + 10, budget.delayFor(1, now));
+		assertEquals(0, budget.delayFor(1, now + 4 * SECOND));
+	}
+
+	@Test
+	void testWorkLargerThanTheBurstWaitsForAnEmptyBucket() {
+		PacketBudget budget = new PacketBudget(100, 200);
+		assertEquals(0, budget.delayFor(1000, 0));
+
+		budget.charge(0);
+		assertEquals(10, budget.delayFor(1000, 0));
+	}
+
+	@Test
+	void testChargesFromBothFamiliesAllCount() throws Exception {
+		// Shared by the IPv4 and IPv6 servers, which charge it from their own event loops.
+		PacketBudget budget = new PacketBudget(100, 200);
+		Runnable family = () -> {
+			for (int i = 0; i < 150; i++)
+				budget.charge(0);
+		};
+
+		Thread ipv4 = new Thread(family);
+		Thread ipv6 = new Thread(family);
+		ipv4.start();
+		ipv6.start();
+		ipv4.join();
+		ipv6.join();
+
+		// 300 packets is a 3s debt; one more is 1.01s past the 2s burst. A lost update would show as less.
+		assertEquals(1010, budget.delayFor(1, 0));
+	}
+
+	@Test
+	void testClear() {
+		PacketBudget budget = new PacketBudget(100, 200);
+		for (int i = 0; i < 400; i++)
+			budget.charge(0);
+
+		budget.clear();
+		assertEquals(0, budget.delayFor(200, 0));
+	}
+
+	@Test
+	void testUnlimited() {
+		PacketBudget budget = PacketBudget.unlimited();
+		assertTrue(budget.isUnlimited());
+		for (int i = 0; i < 100_000; i++)
+			budget.charge(0);
+
+		assertEquals(0, budget.delayFor(Integer.MAX_VALUE, 0));
+	}
+
+	@Test
+	void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new PacketBudget(0, 10));
+		assertThrows(IllegalArgumentException.class, () -> new PacketBudget(10, 5));
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.Inet4Address;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.datagram.DatagramSocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+import io.bosonnetwork.CryptoContext;
+import io.bosonnetwork.Id;
+import io.bosonnetwork.Identity;
+import io.bosonnetwork.Version;
+import io.bosonnetwork.crypto.CachedCryptoIdentity;
+import io.bosonnetwork.crypto.CipherSuite;
+import io.bosonnetwork.crypto.CryptoBox;
+import io.bosonnetwork.crypto.CryptoException;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.kademlia.KadNode;
+import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.impl.TestKadContext;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.utils.AddressUtils;
+import io.bosonnetwork.vertx.BosonVerticle;
+
+/**
+ * The cipher suite toward a peer follows the version the peer announces: AEAD for Orca 2 and later,
+ * the XSalsa20-Poly1305 box for everyone else.
+ * <p>
+ * The peer here is a bare socket rather than a second server, so that the version on the wire is
+ * whatever the test writes - an older node cannot be simulated with this build's own messages, which
+ * always carry the current version.
+ * </p>
+ */
+@ExtendWith(VertxExtension.class)
+public class RpcServerCipherSuiteTests {
+	private static final int SERVER_PORT = 8892;
+	private static final int PEER_PORT = 8893;
+
+	@SuppressWarnings("ConstantConditions")
+	private static final String localAddr = AddressUtils.getDefaultRouteAddress(Inet4Address.class).getHostAddress();
+
+	static class PingNode extends BosonVerticle {
+		final Identity identity = new CachedCryptoIdentity(Caffeine.newBuilder());
+
+		private KadContext kadContext;
+		private RpcServer rpcServer;
+
+		@Override
+		protected void prepare(Vertx vertx, Context context) {
+			super.prepare(vertx, context);
+
+			kadContext = new TestKadContext(context, identity, Network.IPv4).setDeveloperMode(false);
+			rpcServer = new RpcServer(kadContext, localAddr, SERVER_PORT, Blacklist.empty(), true, null);
+			rpcServer.setMessageHandler(message -> {
+				if (message.isRequest() && message.getMethod() == Message.Method.PING) {
+					Message response = Message.pingResponse(message.getTxid());
+					response.setRemote(message.getId(), message.getRemoteAddress());
+					rpcServer.sendMessage(response);
+				}
+			});
+		}
+
+		@Override
+		protected Future<Void> deploy() {
+			return rpcServer.start();
+		}
+
+		@Override
+		protected Future<Void> undeploy() {
+			if (rpcServer != null)
+				return rpcServer.stop().andThen(ar -> rpcServer = null);
+			else
+				return Future.succeededFuture();
+		}
+	}
+
+	@Test
+	void testCipherSuiteForVersion() {
+		CipherSuite aead = CipherSuite.AES_256_GCM.isAvailable() ? CipherSuite.AES_256_GCM :
+				CipherSuite.CHACHA20_POLY1305.isAvailable() ? CipherSuite.CHACHA20_POLY1305 :
+				CipherSuite.XSALSA20_POLY1305;
+
+		assertEquals(aead, RpcServer.cipherSuiteFor(KadNode.VERSION));
+		assertEquals(aead, RpcServer.cipherSuiteFor(Version.build(KadNode.SHORT_NAME, 7)));
+		assertEquals(CipherSuite.XSALSA20_POLY1305, RpcServer.cipherSuiteFor(Version.build(KadNode.SHORT_NAME, 1)));
+		assertEquals(CipherSuite.XSALSA20_POLY1305, RpcServer.cipherSuiteFor(Version.build("MK", 2)));
+		assertEquals(CipherSuite.XSALSA20_POLY1305, RpcServer.cipherSuiteFor(0));
+	}
+
+	/**
+	 * Sends one ping with the given version from the bare peer and returns the reply's encrypted part
+	 * (everything after the sender id).
+	 */
+	private static Future<byte[]> ping(DatagramSocket socket, AtomicReference<Promise<Buffer>> reply,
+									   CryptoIdentity peer, Id server, int version) throws CryptoException {
+		Message ping = Message.parse("{\"y\":33,\"t\":10,\"v\":" + version + "}");
+		Buffer datagram = Buffer.buffer()
+				.appendBytes(peer.getId().bytesUnsafe())
+				.appendBytes(peer.encrypt(server, ping.toBytes()));
+
+		Promise<Buffer> promise = Promise.promise();
+		reply.set(promise);
+		return socket.send(datagram, SERVER_PORT, localAddr)
+				.compose(unused -> promise.future())
+				.map(buffer -> buffer.getBytes(Id.BYTES, buffer.length()));
+	}
+
+	private static void assertPingResponse(byte[] plain) {
+		Message response = Message.parse(plain);
+		assertEquals(Message.Type.RESPONSE, response.getType());
+		assertEquals(Message.Method.PING, response.getMethod());
+		assertEquals(10, response.getTxid());
+	}
+
+	// Opens a frame with the box alone, the way a node that predates the cipher suites does.
+	private static byte[] openWithBox(CryptoIdentity peer, Id server, byte[] frame) throws CryptoException {
+		byte[] nonce = Arrays.copyOfRange(frame, 0, CryptoBox.Nonce.BYTES);
+		byte[] cipher = Arrays.copyOfRange(frame, CryptoBox.Nonce.BYTES, frame.length);
+		return peer.decrypt(server, nonce, cipher);
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testSuiteFollowsPeerVersion(Vertx vertx, VertxTestContext context) throws Exception {
+		assumeTrue(CipherSuite.AES_256_GCM.isAvailable());
+
+		PingNode server = new PingNode();
+		CryptoIdentity peer = new CryptoIdentity();
+		Id serverId = server.identity.getId();
+
+		AtomicReference<Promise<Buffer>> reply = new AtomicReference<>();
+		DatagramSocket socket = vertx.createDatagramSocket();
+		socket.handler(packet -> reply.get().tryComplete(packet.data()));
+
+		vertx.deployVerticle(server)
+				.compose(unused -> socket.listen(PEER_PORT, localAddr))
+				.compose(unused -> {
+					try {
+						// An Orca 2 peer: answered with AES-GCM, which the box alone cannot open.
+						return ping(socket, reply, peer, serverId, KadNode.VERSION);
+					} catch (CryptoException e) {
+						return Future.failedFuture(e);
+					}
+				})
+				.compose(frame -> {
+					context.verify(() -> {
+						assertEquals(CipherSuite.AES_256_GCM, server.identity.getCipherSuite(peer.getId()));
+						assertThrows(CryptoException.class, () -> openWithBox(peer, serverId, frame));
+						try (CryptoContext ctx = peer.createCryptoContext(serverId)) {
+							assertPingResponse(ctx.decrypt(frame));
+						}
+					});
+
+					try {
+						// The same peer, downgraded in place: the next reply is back on the box.
+						return ping(socket, reply, peer, serverId, Version.build(KadNode.SHORT_NAME, 1));
+					} catch (CryptoException e) {
+						return Future.failedFuture(e);
+					}
+				})
+				.compose(frame -> {
+					context.verify(() -> {
+						assertEquals(CipherSuite.XSALSA20_POLY1305, server.identity.getCipherSuite(peer.getId()));
+						byte[] plain = openWithBox(peer, serverId, frame);
+						assertPingResponse(plain);
+						assertArrayEquals(plain, peer.decrypt(serverId, frame));
+					});
+					return socket.close();
+				})
+				.compose(unused -> vertx.undeploy(server.deploymentID()))
+				.onComplete(context.succeedingThenComplete());
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.impl.TestKadContext;
+import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.metrics.MicrometerDHTMetrics;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.kademlia.security.SketchSuspiciousNodeDetector;
+
+@ExtendWith(VertxExtension.class)
+class RpcServerMetricsTests {
+	private static double count(MeterRegistry registry, String name, String... tags) {
+		return registry.get(name).tags(tags).counter().count();
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testAnExchangeIsCountedOnBothSidesAndTimed(Vertx vertx, VertxTestContext context) {
+		Context vertxContext = vertx.getOrCreateContext();
+		CryptoIdentity responderIdentity = new CryptoIdentity();
+
+		MeterRegistry callerRegistry = new SimpleMeterRegistry();
+		MeterRegistry responderRegistry = new SimpleMeterRegistry();
+		RpcServer caller = new RpcServer(new TestKadContext(vertxContext, new CryptoIdentity(), Network.IPv4)
+				.setDeveloperMode(false), "127.0.0.1", 39211,
+				Blacklist.empty(), true, new MicrometerDHTMetrics(callerRegistry, Tags.of("network", "ipv4")));
+		RpcServer responder = new RpcServer(new TestKadContext(vertxContext, responderIdentity, Network.IPv4)
+				.setDeveloperMode(false), "127.0.0.1", 39212,
+				Blacklist.empty(), true, new MicrometerDHTMetrics(responderRegistry, Tags.of("network", "ipv4")));
+		responder.setMessageHandler(message -> {
+			if (message.isRequest())
+				responder.sendMessage(Message.pingResponse(message.getTxid())
+						.setRemote(message.getId(), message.getRemoteAddress()));
+		});
+
+		RpcCall call = new RpcCall(NodeInfo.of(responderIdentity.getId(), "127.0.0.1", 39212), Message.pingRequest());
+		Promise<RpcCall.State> ended = Promise.promise();
+		call.addListener(new RpcCallListener() {
+			@Override
+			public void onStateChange(RpcCall c, RpcCall.State previous, RpcCall.State state) {
+				if (state.isFinal())
+					ended.tryComplete(state);
+			}
+		});
+
+		vertxContext.runOnContext(unused -> responder.start()
+				.compose(v -> caller.start())
+				.compose(v -> caller.sendCall(call))
+				.onFailure(context::failNow));
+
+		// The responder counts its response once the send completes, which may trail the answer's arrival
+		ended.future().compose(state -> {
+			Promise<RpcCall.State> settled = Promise.promise();
+			vertx.setTimer(200, id -> settled.complete(state));
+			return settled.future();
+		}).onComplete(context.succeeding(state -> {
+			context.verify(() -> {
+				assertEquals(RpcCall.State.RESPONDED, state);
+
+				assertEquals(1.0, count(callerRegistry, "boson.dht.requests", "direction", "out", "method", "ping"));
+				assertEquals(1.0, count(callerRegistry, "boson.dht.responses",
+						"direction", "in", "type", "response", "method", "ping"));
+				assertEquals(1, callerRegistry.get("boson.dht.rpc.latency")
+						.tags("method", "ping", "type", "response").timer().count());
+				assertTrue(count(callerRegistry, "boson.dht.bytes", "direction", "out") > 0);
+				assertEquals(1.0, callerRegistry.get("boson.dht.rpc.calls").tag("outcome", "answered")
+						.counters().stream().mapToDouble(Counter::count).sum());
+
+				assertEquals(1.0, count(responderRegistry, "boson.dht.requests", "direction", "in", "method", "ping"));
+				// A response is not a request, though both leave through the same send
+				assertEquals(0.0, count(responderRegistry, "boson.dht.requests", "direction", "out", "method", "ping"));
+				assertEquals(1.0, count(responderRegistry, "boson.dht.responses",
+						"direction", "out", "type", "response", "method", "ping"));
+
+				// Bounded cardinality: the peer's address is never a tag value
+				for (MeterRegistry registry : new MeterRegistry[] { callerRegistry, responderRegistry }) {
+					for (Meter meter : registry.getMeters()) {
+						for (Tag tag : meter.getId().getTags())
+							assertFalse(tag.getValue().contains("127.0.0.1"), meter.getId().toString());
+					}
+				}
+			});
+			Future.all(caller.stop(), responder.stop()).onComplete(ar -> context.completeNow());
+		}));
+	}
+
+	@Test
+	void testDropsTimeoutsAndThrottlingAreCounted() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerDHTMetrics metrics = new MicrometerDHTMetrics(registry);
+		SocketAddress remote = SocketAddress.inetSocketAddress(39001, "100.1.1.8");
+
+		metrics.messageDropped(remote, DHTMetrics.Reason.THROTTLED);
+		metrics.messageDropped(remote, DHTMetrics.Reason.THROTTLED);
+		metrics.messageDropped(remote, DHTMetrics.Reason.BANNED);
+		metrics.bytesDropped(remote, 120);
+		metrics.responseTimeout(Message.findNodeRequest(new CryptoIdentity().getId(), true, false, false));
+		metrics.throttledInbound("100.1.1.8");
+		metrics.throttledOutbound("100.1.1.8", 250);
+		metrics.verifiedLossRateUpdate(1.0);
+
+		assertEquals(2.0, count(registry, "boson.dht.messages.dropped", "reason", "throttled"));
+		assertEquals(1.0, count(registry, "boson.dht.messages.dropped", "reason", "banned"));
+		assertEquals(0.0, count(registry, "boson.dht.messages.dropped", "reason", "invalid"));
+		assertEquals(120.0, count(registry, "boson.dht.bytes", "direction", "dropped"));
+		assertEquals(1.0, count(registry, "boson.dht.rpc.timeouts", "method", "find_node"));
+		assertEquals(1.0, count(registry, "boson.dht.throttled", "direction", "in"));
+		assertEquals(1.0, count(registry, "boson.dht.throttled", "direction", "out"));
+		assertEquals(250.0, registry.get("boson.dht.throttle.delay").summary().totalAmount());
+		assertEquals(1.0, count(registry, "boson.dht.rpc.calls", "peer", "verified", "outcome", "lost"));
+
+		metrics.close();
+		assertTrue(registry.getMeters().isEmpty());
+	}
+
+	@Test
+	void testSuspiciousNodeStatsAreExportedOnceSampled() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerDHTMetrics metrics = new MicrometerDHTMetrics(registry);
+		assertTrue(registry.find("boson.dht.suspicious.sketch.bytes").meters().isEmpty(),
+				"a node on the default detector must not export an empty sketch");
+
+		metrics.suspiciousNodesSampled(new SketchSuspiciousNodeDetector.Stats(4096, 4, 131072, 10,
+				6.6, 0.98, 3, 1, 2, 5, 4, 0, 1));
+		assertEquals(131072.0, registry.get("boson.dht.suspicious.sketch.bytes").gauge().value());
+		assertEquals(3.0, registry.get("boson.dht.suspicious.sources").tags("state", "tracked").gauge().value());
+		assertEquals(5.0, registry.get("boson.dht.suspicious.events").tags("type", "malformed")
+				.functionCounter().count());
+
+		metrics.suspiciousNodesSampled(new SketchSuspiciousNodeDetector.Stats(4096, 4, 131072, 12,
+				7.9, 0.98, 4, 1, 3, 7, 4, 0, 1));
+		assertEquals(12.0, registry.get("boson.dht.suspicious.window.events").gauge().value());
+		assertEquals(7.0, registry.get("boson.dht.suspicious.events").tags("type", "malformed")
+				.functionCounter().count());
+
+		metrics.close();
+		assertTrue(registry.getMeters().isEmpty());
+	}
+}
@@ -3,12 +3,19 @@ package io.bosonnetwork.kademlia.security;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 import net.datafaker.Faker;
@@ -103,4 +110,189 @@ public class BlacklistTests {
 		for (var id : bannedIds)
 			assertFalse(blacklist.isBanned(id));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testCidrRanges() {
+		var blacklist = Blacklist.create();
+		blacklist.ban("10.0.0.0/8");
+		blacklist.ban("192.0.2.128/25");
+		blacklist.ban("198.51.100.7");
+		blacklist.ban("2001:db8::/32");
+		blacklist.ban("2001:db9:1:2::/64");
+		blacklist.ban("bad.example.com");
+
+		assertTrue(blacklist.isBanned("10.0.0.1"));
+		assertTrue(blacklist.isBanned("10.255.255.255"));
+		assertFalse(blacklist.isBanned("11.0.0.0"));
+		assertFalse(blacklist.isBanned("9.255.255.255"));
+
+		assertTrue(blacklist.isBanned("192.0.2.128"));
+		assertTrue(blacklist.isBanned("192.0.2.255"));
+		assertFalse(blacklist.isBanned("192.0.2.127"));
+
+		assertTrue(blacklist.isBanned("198.51.100.7"));
+		assertFalse(blacklist.isBanned("198.51.100.8"));
+
+		// Matched on the bits, whatever the spelling.
+		assertTrue(blacklist.isBanned("2001:db8::1"));
+		assertTrue(blacklist.isBanned("2001:DB8:ffff:0:0:0:0:1"));
+		assertTrue(blacklist.isBanned("2001:db8:0:0:0:0:0:0%eth0"));
+		assertFalse(blacklist.isBanned("2001:db7:ffff::1"));
+		assertTrue(blacklist.isBanned("2001:db9:1:2:abcd::"));
+		assertFalse(blacklist.isBanned("2001:db9:1:3::"));
+
+		// An IPv4-mapped sender is caught by its IPv4 range.
+		assertTrue(blacklist.isBanned("::ffff:10.1.2.3"));
+		assertTrue(blacklist.isBanned("0:0:0:0:0:ffff:a01:203"));
+		assertFalse(blacklist.isBanned("::10.1.2.3"));
+
+		// Names still match by name, and only exactly.
+		assertTrue(blacklist.isBanned("bad.example.com"));
+		assertFalse(blacklist.isBanned("good.example.com"));
+		assertFalse(blacklist.isBanned("10.0.0.1.example.com"));
+
+		var id = Id.random();
+		assertFalse(blacklist.isBanned(id, "172.16.0.1"));
+		assertTrue(blacklist.isBanned(id, "10.9.9.9"));
+
+		// Removing the range, not an address inside it, is what lifts the ban.
+		blacklist.unban("10.0.0.1");
+		assertTrue(blacklist.isBanned("10.0.0.1"));
+		blacklist.unban("10.0.0.0/8");
+		assertFalse(blacklist.isBanned("10.0.0.1"));
+	}
+
+	@Test
+	void testNestedAndOverlappingRanges() {
+		var blacklist = Blacklist.create();
+		blacklist.ban("2001:db8:1:2::/64");
+		blacklist.ban("2001:db8::/32");
+		blacklist.ban("0.0.0.0/0");
+
+		assertTrue(blacklist.isBanned("2001:db8:ffff::1"));
+		assertTrue(blacklist.isBanned("203.0.113.9"));
+		assertFalse(blacklist.isBanned("2001:db9::1"));
+
+		blacklist.unban("2001:db8::/32");
+		assertTrue(blacklist.isBanned("2001:db8:1:2::5"));
+		assertFalse(blacklist.isBanned("2001:db8:1:3::5"));
+
+		blacklist.ban("::/0");
+		assertTrue(blacklist.isBanned("2001:db9::1"));
+		assertTrue(blacklist.isBanned("::"));
+	}
+
+	@Test
+	void testMalformedRangesAreRejected() {
+		var blacklist = Blacklist.create();
+		for (var range : List.of("10.0.0.0/33", "2001:db8::/129", "10.0.0.0/", "10.0.0.0/x", "bad.example.com/8",
+				"10.0.0.256/8", "2001:db8:::/32", "1:2:3:4:5:6:7:8:9/64"))
+			assertThrows(IllegalArgumentException.class, () -> blacklist.ban(range), range);
+
+		assertFalse(blacklist.isBanned("10.0.0.1"));
+	}
+
+	@Test
+	void testParsedLiteralsMatchInetAddress() throws Exception {
+		long[] address = new long[2];
+		var random = new Random(41);
+		for (int i = 0; i < 2000; i++) {
+			byte[] bytes = new byte[random.nextBoolean() ? 4 : 16];
+			random.nextBytes(bytes);
+			// Zero runs, so the compressed form gets exercised.
+			if (bytes.length == 16 && random.nextBoolean())
+				Arrays.fill(bytes, random.nextInt(8), 8 + random.nextInt(8), (byte) 0);
+
+			var inet = InetAddress.getByAddress(bytes);
+			for (var literal : List.of(inet.getHostAddress(), compressed(bytes))) {
+				assertTrue(AddressTrie.parseAddress(literal, literal.length(), address), literal);
+
+				byte[] mapped = new byte[16];
+				if (bytes.length == 4) {
+					mapped[10] = mapped[11] = (byte) 0xff;
+					System.arraycopy(bytes, 0, mapped, 12, 4);
+				} else {
+					System.arraycopy(bytes, 0, mapped, 0, 16);
+				}
+				var buffer = ByteBuffer.wrap(mapped);
+				assertEquals(buffer.getLong(0), address[0], literal);
+				assertEquals(buffer.getLong(8), address[1], literal);
+			}
+		}
+
+		for (var invalid : List.of("", ":", ":::", "1::2::3", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "12345::",
+				"1.2.3", "1.2.3.4.5", "1..2.3", "256.1.1.1", "1.2.3.4:", "::g", "::1.2.3", "1:2:3:4:5:6:7:1.2.3.4",
+				"example.com"))
+			assertFalse(AddressTrie.parseAddress(invalid, invalid.length(), address), invalid);
+	}
+
+	// RFC 5952 style: the longest run of zero groups collapsed, which getHostAddress() never does.
+	private static String compressed(byte[] bytes) throws Exception {
+		if (bytes.length == 4)
+			return InetAddress.getByAddress(bytes).getHostAddress();
+
+		int[] groups = new int[8];
+		for (int i = 0; i < 8; i++)
+			groups[i] = ((bytes[i * 2] & 0xff) << 8) | (bytes[i * 2 + 1] & 0xff);
+
+		int bestStart = -1, bestLength = 0;
+		for (int i = 0; i < 8; ) {
+			int j = i;
+			while (j < 8 && groups[j] == 0)
+				j++;
+			if (j - i > bestLength) {
+				bestStart = i;
+				bestLength = j - i;
+			}
+			i = j == i ? i + 1 : j;
+		}
+
+		var sb = new StringBuilder();
+		for (int i = 0; i < 8; i++) {
+			if (bestLength > 1 && i == bestStart) {
+				sb.append("::");
+				i += bestLength - 1;
+				continue;
+			}
+			if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':')
+				sb.append(':');
+			sb.append(Integer.toHexString(groups[i]));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	void testHotReload() throws Exception {
+		var file = testDir.resolve("reload.yaml");
+		Files.deleteIfExists(file);
+
+		var blacklist = FileBlacklist.open(file);
+		assertFalse(blacklist.isBanned("203.0.113.1"));
+		assertFalse(blacklist.reloadIfModified());
+
+		var id = Id.random();
+		Files.writeString(file, "hosts:\n  - 203.0.113.0/24\nids:\n  - " + id + "\n");
+		assertTrue(blacklist.reloadIfModified());
+		assertTrue(blacklist.isBanned("203.0.113.1"));
+		assertTrue(blacklist.isBanned(id));
+		assertFalse(blacklist.reloadIfModified());
+
+		// A malformed edit leaves the list in force.
+		Files.writeString(file, "hosts:\n  - 203.0.113.0/99\n");
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+		assertThrows(IOException.class, blacklist::reloadIfModified);
+		assertTrue(blacklist.isBanned("203.0.113.1"));
+
+		Files.writeString(file, "hosts:\n  - 2001:db8::/32\n");
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 4000));
+		assertTrue(blacklist.reloadIfModified());
+		assertFalse(blacklist.isBanned("203.0.113.1"));
+		assertFalse(blacklist.isBanned(id));
+		assertTrue(blacklist.isBanned("2001:db8::1"));
+
+		// Gone is not empty.
+		Files.delete(file);
+		assertFalse(blacklist.reloadIfModified());
+		assertTrue(blacklist.isBanned("2001:db8::1"));
+	}
+}
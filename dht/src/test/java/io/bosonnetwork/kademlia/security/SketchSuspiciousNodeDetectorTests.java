@@ -0,0 +1,236 @@
+package io.bosonnetwork.kademlia.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.net.SocketAddress;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import io.bosonnetwork.Id;
+
+/**
+ * The sketch detector must keep the default's policy - see SuspiciousNodeDetectorTests for the reasoning
+ * behind each rule - while holding its memory fixed under a flood of forged sources.
+ */
+public class SketchSuspiciousNodeDetectorTests {
+	private static final long OBSERVATION_PERIOD = 60 * 1000;
+	private static final int HITS = 32;
+	private static final long BAN_DURATION = 60 * 1000;
+	private static final long SUPPRESSION_DURATION = 1000;
+
+	private SketchSuspiciousNodeDetector detector;
+
+	@BeforeEach
+	void setup() {
+		detector = (SketchSuspiciousNodeDetector) SuspiciousNodeDetector.createBounded(OBSERVATION_PERIOD, HITS,
+				BAN_DURATION, SUPPRESSION_DURATION);
+	}
+
+	private static SocketAddress addr(String host) {
+		return SocketAddress.inetSocketAddress(39001, host);
+	}
+
+	private static SocketAddress forged(int i) {
+		return SocketAddress.inetSocketAddress(39001, "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff));
+	}
+
+	private static void hit(Runnable event, int times) {
+		for (int i = 0; i < times; i++)
+			event.run();
+	}
+
+	@Test
+	@Timeout(value = 60, unit = TimeUnit.SECONDS)
+	public void testUnprovenHitsSuppressBrieflyAndEscalate() throws Exception {
+		var source = addr("192.168.8.3");
+
+		hit(() -> detector.malformedMessage(source), HITS - 1);
+		assertFalse(detector.isBanned(source.host()), "one under the threshold must still be served");
+		assertEquals(0, detector.getObservedSize(), "below the threshold a source lives in the sketch only");
+
+		detector.malformedMessage(source);
+		assertTrue(detector.isBanned(source.host()));
+		assertEquals(1, detector.getObservedSize(), "reaching the threshold earns an exact record");
+
+		Thread.sleep(SUPPRESSION_DURATION + 300);
+		assertFalse(detector.isBanned(source.host()));
+
+		// Counted exactly from here on, and a repeat costs more.
+		hit(() -> detector.malformedMessage(source), HITS);
+		assertTrue(detector.isBanned(source.host()));
+		Thread.sleep(SUPPRESSION_DURATION + 300);
+		assertTrue(detector.isBanned(source.host()), "a repeat offence must be suppressed for longer");
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testProvenMisbehaviourEarnsTheFullBan() throws Exception {
+		var node = addr("192.168.8.2");
+		hit(() -> detector.misbehaved(node, Id.random()), HITS);
+
+		assertTrue(detector.isBanned(node.host()));
+		Thread.sleep(SUPPRESSION_DURATION * 3);
+		assertTrue(detector.isBanned(node.host()), "a proven source must serve the full ban");
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testSameIdMassBanNeedsProvenSources() {
+		Id id = Id.random();
+		for (var i = 0; i < 12; i++)
+			detector.inconsistent(addr("192.168.10." + i), id);
+		assertEquals(0, detector.getBannedSize());
+
+		for (var i = 0; i < DefaultSuspiciousNodeDetector.SAME_ID_SOURCE_THRESHOLD; i++)
+			detector.misbehaved(addr("192.168.11." + i), id);
+
+		assertEquals(DefaultSuspiciousNodeDetector.SAME_ID_SOURCE_THRESHOLD, detector.getBannedSize());
+		for (var i = 0; i < DefaultSuspiciousNodeDetector.SAME_ID_SOURCE_THRESHOLD; i++)
+			assertTrue(detector.isBanned("192.168.11." + i));
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testIdentityChurnIsChargedToTheSource() {
+		var endpoint = addr("192.168.15.1");
+		Id previous = Id.random();
+		assertNull(detector.observed(endpoint, previous));
+		for (var i = 0; i < HITS - 1; i++) {
+			Id next = Id.random();
+			assertEquals(previous, detector.observed(endpoint, next));
+			previous = next;
+		}
+		assertFalse(detector.isBanned(endpoint.host()));
+
+		detector.observed(endpoint, Id.random());
+		assertTrue(detector.isBanned(endpoint.host()));
+
+		// Distinct endpoints behind one address are distinct peers.
+		for (var port = 39001; port < 39001 + HITS * 2; port++)
+			assertNull(detector.observed(SocketAddress.inetSocketAddress(port, "192.168.15.2"), Id.random()));
+		assertFalse(detector.isBanned("192.168.15.2"));
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testIPv6SourcesCountPerSlash64() {
+		for (var i = 0; i < HITS; i++)
+			detector.malformedMessage(addr("2001:db8:1:1::" + Integer.toHexString(i + 1)));
+
+		assertTrue(detector.isBanned("2001:db8:1:1::99"));
+		assertFalse(detector.isBanned("2001:db8:1:2::1"));
+	}
+
+	@Test
+	@Timeout(value = 60, unit = TimeUnit.SECONDS)
+	public void testForgedFloodNeitherGrowsMemoryNorEvictsHistory() {
+		// A real offender with history: proven, so it holds an exact record.
+		var offender = addr("192.168.20.1");
+		hit(() -> detector.misbehaved(offender, Id.random()), HITS - 1);
+		assertEquals(1, detector.getObservedSize());
+
+		long sketchBytes = detector.getStats().sketchBytes();
+
+		// Far more distinct forged sources than the default's table holds, one hit each.
+		int flood = DefaultSuspiciousNodeDetector.MAX_OBSERVED_SOURCES * 2;
+		for (var i = 0; i < flood; i++)
+			detector.malformedMessage(forged(i));
+
+		SketchSuspiciousNodeDetector.Stats stats = detector.getStats();
+		assertEquals(sketchBytes, stats.sketchBytes(), "the sketch does not grow");
+		assertEquals(flood, stats.windowEvents());
+		assertEquals(flood, stats.malformedMessages());
+		assertEquals(0, stats.promotions(), "one hit each must not promote anybody");
+		assertEquals(1, detector.getObservedSize(), "the flood must not take exact records");
+		assertEquals(0, detector.getBannedSize());
+		assertTrue(stats.overcountBound() < HITS, "the flood is within what this width can count accurately");
+
+		// The offender's history survived the flood: one more proven hit bans it.
+		detector.misbehaved(offender, Id.random());
+		assertTrue(detector.isBanned(offender.host()));
+
+		// And an unrelated source is not held for the flood's sake.
+		detector.malformedMessage(addr("172.16.0.1"));
+		assertFalse(detector.isBanned("172.16.0.1"));
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testSketchedHitsExpireWithTheWindows() throws Exception {
+		var d = SuspiciousNodeDetector.createBounded(300, HITS, BAN_DURATION, SUPPRESSION_DURATION);
+		var source = addr("192.168.21.1");
+
+		hit(() -> d.malformedMessage(source), HITS - 1);
+		// Two windows on, every hit counted before is gone.
+		Thread.sleep(700);
+		d.malformedMessage(source);
+		assertFalse(d.isBanned(source.host()), "hits older than two windows must not count");
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testStats() {
+		var stats = detector.getStats();
+		assertEquals(SketchSuspiciousNodeDetector.DEFAULT_SKETCH_WIDTH, stats.sketchWidth());
+		assertEquals(SketchSuspiciousNodeDetector.SKETCH_DEPTH, stats.sketchDepth());
+		assertEquals(2L * stats.sketchDepth() * stats.sketchWidth() * Integer.BYTES, stats.sketchBytes());
+		assertEquals(0, stats.windowEvents());
+		assertEquals(0.0, stats.overcountBound());
+		assertTrue(stats.confidence() > 0.98);
+
+		detector.malformedMessage(addr("192.168.22.1"));
+		detector.inconsistent(addr("192.168.22.2"), Id.random());
+		detector.misbehaved(addr("192.168.22.3"), Id.random());
+
+		stats = detector.getStats();
+		assertEquals(2, stats.windowEvents(), "proven hits are counted exactly, not in the sketch");
+		assertEquals(1, stats.malformedMessages());
+		assertEquals(1, stats.inconsistencies());
+		assertEquals(1, stats.misbehaviors());
+		assertEquals(1, stats.trackedSources());
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testNonPowerOfTwoWidthRoundsUp() {
+		var sized = new SketchSuspiciousNodeDetector(OBSERVATION_PERIOD, HITS, BAN_DURATION,
+				SUPPRESSION_DURATION, 3000);
+		var stats = sized.getStats();
+		assertEquals(4096, stats.sketchWidth());
+		assertEquals(2L * stats.sketchDepth() * 4096 * Integer.BYTES, stats.sketchBytes());
+
+		// Enough distinct sources to land in every column: each must index inside the rounded-up rows.
+		for (int i = 0; i < 20_000; i++)
+			sized.malformedMessage(forged(i));
+		assertEquals(20_000, sized.getStats().windowEvents());
+
+		var source = addr("192.168.30.1");
+		hit(() -> sized.malformedMessage(source), HITS);
+		assertTrue(sized.isBanned(source.host()));
+	}
+
+	@Test
+	@Timeout(value = 30, unit = TimeUnit.SECONDS)
+	public void testClear() {
+		var source = addr("192.168.13.1");
+		hit(() -> detector.malformedMessage(source), HITS);
+		assertTrue(detector.isBanned(source.host()));
+
+		detector.clear();
+		assertEquals(0, detector.getObservedSize());
+		assertEquals(0, detector.getBannedSize());
+		assertEquals(0, detector.getStats().windowEvents());
+		assertFalse(detector.isBanned(source.host()));
+
+		// The sketch was cleared too: starting again takes the full threshold.
+		hit(() -> detector.malformedMessage(source), HITS - 1);
+		assertFalse(detector.isBanned(source.host()));
+	}
+}
@@ -65,6 +65,7 @@ public class DataStorageTests {
 	private static DataStorage inMemoryStorage;
 	private static DataStorage sqliteStorage;
 	private static DataStorage postgresStorage;
+	private static DataStorage shardedStorage;
 
 	private static List<Value> values;
 	private static List<Value> persistentValues;
@@ -119,6 +120,14 @@ public class DataStorageTests {
 		}));
 		futures.add(future2);
 
+		var shardedURI = "jdbc:sqlite:" + testDir.resolve("sharded.db") + "?shards=4";
+		shardedStorage = DataStorage.create(shardedURI, 0, null);
+		var future3 = shardedStorage.initialize(vertx, valueExpiration, peerInfoExpiration).onComplete(context.succeeding(version -> {
+			context.verify(() -> assertEquals(CURRENT_SCHEMA_VERSION, version));
+			dataStorages.add(Arguments.of("ShardedSQLiteStorage", shardedStorage));
+		}));
+		futures.add(future3);
+
 		Future.all(futures).onSuccess(unused -> {
 			try {
 				nodeIdentities = IntStream.range(0, 32).mapToObj(i -> new CryptoIdentity())
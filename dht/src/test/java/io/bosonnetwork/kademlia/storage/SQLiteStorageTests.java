@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.exceptions.SequenceNotExpectedException;
+
+/**
+ * Tests for the single-writer / read-only-pool split of {@link SQLiteStorage}: concurrent writes are
+ * batched into shared transactions, yet each write still succeeds or fails on its own.
+ */
+@ExtendWith(VertxExtension.class)
+class SQLiteStorageTests {
+	private static Future<DataStorage> newStorage(Vertx vertx) throws Exception {
+		Path dir = Files.createTempDirectory("boson-sqlite-storage");
+		DataStorage storage = new SQLiteStorage("jdbc:sqlite:" + dir.resolve("storage.db"), 2);
+		return storage.initialize(vertx, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1))
+				.map(v -> storage);
+	}
+
+	@Test
+	@Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+	void concurrentWritesAreAllCommitted(Vertx vertx, VertxTestContext context) throws Exception {
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			values.add(Value.immutableBuilder().data(("batched value " + i).getBytes()).build());
+
+		newStorage(vertx).compose(storage -> {
+			// Issued all at once: the writer takes them in batches while readers keep reading
+			List<Future<?>> futures = new ArrayList<>();
+			for (Value value : values) {
+				futures.add(storage.putValue(value));
+				futures.add(storage.getValue(value.getId()));
+			}
+
+			return Future.all(futures)
+					.compose(v -> storage.getValues())
+					.andThen(ar -> storage.close());
+		}).onComplete(context.succeeding(stored -> {
+			context.verify(() -> {
+				assertEquals(values.size(), stored.size());
+				assertTrue(stored.containsAll(values));
+			});
+			context.completeNow();
+		}));
+	}
+
+	@Test
+	@Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+	void failedWriteDoesNotAffectItsBatch(Vertx vertx, VertxTestContext context) throws Exception {
+		Value existing = Value.signedBuilder().sequenceNumber(5).data("v5".getBytes()).build();
+		Value stale = existing.update().data("v6".getBytes()).build();
+		Value before = Value.immutableBuilder().data("before".getBytes()).build();
+		Value after = Value.immutableBuilder().data("after".getBytes()).build();
+
+		newStorage(vertx).compose(storage -> storage.putValue(existing).compose(stored -> {
+			// Queued back to back, so the three writes share a batch
+			Future<Value> f1 = storage.putValue(before);
+			Future<Value> f2 = storage.putValue(stale, 4, false, true);
+			Future<Value> f3 = storage.putValue(after);
+
+			return Future.join(f1, f2, f3).transform(ar -> {
+				context.verify(() -> {
+					assertTrue(f1.succeeded());
+					assertTrue(f2.failed());
+					assertInstanceOf(SequenceNotExpectedException.class, f2.cause());
+					assertTrue(f3.succeeded());
+				});
+
+				return Future.all(storage.getValue(before.getId()), storage.getValue(after.getId()),
+						storage.getValue(existing.getId()));
+			}).andThen(ar -> storage.close());
+		})).onComplete(context.succeeding(results -> {
+			context.verify(() -> {
+				assertNotNull(results.resultAt(0));
+				assertNotNull(results.resultAt(1));
+				assertEquals(existing, results.resultAt(2));
+			});
+			context.completeNow();
+		}));
+	}
+}
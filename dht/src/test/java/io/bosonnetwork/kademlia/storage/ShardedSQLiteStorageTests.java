@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.crypto.Signature;
+
+@ExtendWith(VertxExtension.class)
+class ShardedSQLiteStorageTests {
+	@Test
+	void shardUris() {
+		assertEquals(1, ShardedSQLiteStorage.shardsOf("jdbc:sqlite:/data/node.db"));
+		assertEquals(8, ShardedSQLiteStorage.shardsOf("jdbc:sqlite:/data/node.db?shards=8"));
+		assertEquals("jdbc:sqlite:/data/node.db?cache_size=2000",
+				ShardedSQLiteStorage.withoutShards("jdbc:sqlite:/data/node.db?shards=8&cache_size=2000"));
+		assertEquals("jdbc:sqlite:/data/node.db", ShardedSQLiteStorage.withoutShards("jdbc:sqlite:/data/node.db?shards=8"));
+
+		assertEquals("jdbc:sqlite:/data/node.shard-3-of-8.db",
+				ShardedSQLiteStorage.shardUri("jdbc:sqlite:/data/node.db?shards=8", 3, 8));
+		assertEquals("jdbc:sqlite:/data/v1.0/node.shard-0-of-2?cache_size=2000",
+				ShardedSQLiteStorage.shardUri("jdbc:sqlite:/data/v1.0/node?shards=2&cache_size=2000", 0, 2));
+
+		assertThrows(IllegalArgumentException.class, () -> ShardedSQLiteStorage.shardUri("jdbc:sqlite::memory:", 0, 2));
+		assertThrows(IllegalArgumentException.class, () -> DataStorage.create("jdbc:sqlite:/data/node.db?shards=6", 0, null));
+		assertThrows(IllegalArgumentException.class, () -> DataStorage.create("jdbc:sqlite:/data/node.db?shards=x", 0, null));
+
+		assertInstanceOf(SQLiteStorage.class, DataStorage.create("jdbc:sqlite:/data/node.db?shards=1", 0, null));
+		assertInstanceOf(ShardedSQLiteStorage.class, DataStorage.create("jdbc:sqlite:/data/node.db?shards=16", 0, null));
+	}
+
+	@Test
+	@Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+	void pagesAcrossShardsMatchTheGlobalOrder(Vertx vertx, VertxTestContext context) throws Exception {
+		Path dir = Files.createTempDirectory("boson-sharded-storage");
+		DataStorage storage = DataStorage.create("jdbc:sqlite:" + dir.resolve("node.db") + "?shards=4", 0, null);
+
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 64; i++)
+			values.add(Value.immutableBuilder().data(("sharded value " + i).getBytes()).build());
+
+		storage.initialize(vertx, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1)).compose(version -> {
+			Future<Void> chain = Future.succeededFuture();
+			for (Value value : values)
+				chain = chain.compose(v -> storage.putValue(value, true).mapEmpty());
+			return chain;
+		}).compose(v -> storage.getValues(true, Long.MAX_VALUE)).compose(all -> {
+			List<Future<List<Value>>> pages = new ArrayList<>();
+			for (int offset = 0; offset < all.size(); offset += 10)
+				pages.add(storage.getValues(true, Long.MAX_VALUE, offset, 10));
+
+			return Future.all(pages).map(cf -> {
+				List<Value> paged = new ArrayList<>();
+				for (int i = 0; i < pages.size(); i++)
+					paged.addAll(cf.<List<Value>>resultAt(i));
+
+				context.verify(() -> {
+					assertEquals(values.size(), all.size());
+					assertTrue(all.containsAll(values));
+					assertEquals(all, paged);
+				});
+				return (Void) null;
+			});
+		}).compose(v -> storage.close()).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	@Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+	void peerPagesBreakTiesLikeTheMerge(Vertx vertx, VertxTestContext context) throws Exception {
+		Path dir = Files.createTempDirectory("boson-sharded-storage");
+		DataStorage storage = DataStorage.create("jdbc:sqlite:" + dir.resolve("node.db") + "?shards=4", 0, null);
+
+		// Announcements of one peer id by different nodes, all stamped alike: the merge orders them by
+		// fingerprint, so each shard must cut its page by fingerprint too, not by the random node ids.
+		Signature.KeyPair key = Signature.KeyPair.random();
+		long announced = System.currentTimeMillis();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (StorageSnapshot.Writer writer = new StorageSnapshot.Writer(out, announced)) {
+			for (int i = 0; i < 24; i++) {
+				PeerInfo peer = PeerInfo.builder().key(key).fingerprint(i).node(new CryptoIdentity())
+						.endpoint("tcp://203.0.113.10:" + (39001 + i)).build();
+				writer.write(new StorageSnapshot.PeerRecord(peer, true, announced, announced));
+			}
+			writer.finish();
+		}
+
+		storage.initialize(vertx, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1)).compose(version -> {
+			try {
+				return storage.importSnapshot(new StorageSnapshot.Reader(new ByteArrayInputStream(out.toByteArray())), a -> {});
+			} catch (IOException e) {
+				return Future.failedFuture(e);
+			}
+		}).compose(v -> storage.getPeers()).compose(all -> {
+			List<Future<List<PeerInfo>>> pages = new ArrayList<>();
+			for (int offset = 0; offset < all.size(); offset += 5)
+				pages.add(storage.getPeers(offset, 5));
+
+			return Future.all(pages).map(cf -> {
+				List<PeerInfo> paged = new ArrayList<>();
+				for (int i = 0; i < pages.size(); i++)
+					paged.addAll(cf.<List<PeerInfo>>resultAt(i));
+
+				context.verify(() -> {
+					assertEquals(24, all.size());
+					assertEquals(all, paged);
+				});
+				return (Void) null;
+			});
+		}).compose(v -> storage.close()).onComplete(context.succeedingThenComplete());
+	}
+}
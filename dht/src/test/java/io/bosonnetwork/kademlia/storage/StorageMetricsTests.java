@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.sqlclient.SqlConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.metrics.MicrometerStorageMetrics;
+
+@ExtendWith(VertxExtension.class)
+class StorageMetricsTests {
+	private static final long EXPIRATION = TimeUnit.MINUTES.toMillis(30);
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void operationsAreMeasured(Vertx vertx, VertxTestContext context) throws Exception {
+		Path dir = Files.createTempDirectory("boson-storage-metrics");
+		MeterRegistry registry = new SimpleMeterRegistry();
+		DataStorage storage = DataStorage.create("jdbc:sqlite:" + dir.resolve("node.db"), 0, null);
+		storage.setMetrics(new MicrometerStorageMetrics(registry));
+
+		storage.initialize(vertx, EXPIRATION, EXPIRATION).compose(version -> {
+			Future<Void> chain = Future.succeededFuture();
+			for (int i = 0; i < 8; i++) {
+				Value value = Value.immutableBuilder().data(("measured value " + i).getBytes()).build();
+				chain = chain.compose(v -> storage.putValue(value, true).mapEmpty());
+			}
+			return chain;
+		}).compose(v -> storage.getValues(true, Long.MAX_VALUE)
+		).compose(values -> storage.purge()).map(v -> {
+			context.verify(() -> {
+				assertEquals(8, operations(registry, "putValue", "success").count());
+				assertEquals(1, operations(registry, "getValues/announcedBefore", "success").count());
+				assertEquals(1, operations(registry, "purge", "success").count());
+
+				assertEquals(8.0, registry.get("boson.storage.rows")
+						.tag("operation", "getValues/announcedBefore").summary().totalAmount());
+				// persistent values are never purged
+				assertEquals(0.0, registry.get("boson.storage.rows")
+						.tag("operation", "purge").summary().totalAmount());
+
+				assertEquals(9, registry.get("boson.storage.pool.wait").tag("mode", "write").timer().count());
+				assertEquals(1, registry.get("boson.storage.pool.wait").tag("mode", "read").timer().count());
+				assertEquals(0.0, registry.get("boson.storage.queue.depth")
+						.tag("queue", "sqlite-writer:node.db").gauge().value());
+			});
+			return null;
+		}).eventually(storage::close).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void transientFailuresAreRetried(Vertx vertx, VertxTestContext context) throws Exception {
+		Path dir = Files.createTempDirectory("boson-storage-metrics");
+		MeterRegistry registry = new SimpleMeterRegistry();
+		AtomicInteger busy = new AtomicInteger();
+		SQLiteStorage storage = new SQLiteStorage("jdbc:sqlite:" + dir.resolve("node.db")) {
+			@Override
+			public <T> Future<T> withTransaction(Function<SqlConnection, Future<T>> function) {
+				if (busy.getAndDecrement() > 0)
+					return Future.failedFuture(new SQLiteException("database is locked", SQLiteErrorCode.SQLITE_BUSY));
+
+				return super.withTransaction(function);
+			}
+		};
+		storage.setMetrics(new MicrometerStorageMetrics(registry));
+
+		Value value = Value.immutableBuilder().data("retried value".getBytes()).build();
+		storage.initialize(vertx, EXPIRATION, EXPIRATION).compose(version -> {
+			busy.set(2);
+			return storage.putValue(value);
+		}).compose(v -> {
+			busy.set(5);
+			return storage.removeValue(value.getId()).transform(ar -> {
+				context.verify(() -> assertTrue(ar.failed()));
+				return Future.succeededFuture();
+			});
+		}).compose(v -> storage.getValue(value.getId())).map(stored -> {
+			context.verify(() -> {
+				assertNotNull(stored);
+				assertEquals(2.0, registry.get("boson.storage.transaction.retries")
+						.tag("operation", "putValue").counter().count());
+				assertEquals(2.0, registry.get("boson.storage.transaction.retries")
+						.tag("operation", "removeValue").counter().count());
+				assertEquals(1, operations(registry, "putValue", "success").count());
+				assertEquals(1, operations(registry, "removeValue", "failure").count());
+
+				assertTrue(storage.getDialect().isTransientFailure(
+						new SQLiteException("busy", SQLiteErrorCode.SQLITE_BUSY_SNAPSHOT)));
+				assertFalse(storage.getDialect().isTransientFailure(
+						new SQLiteException("constraint", SQLiteErrorCode.SQLITE_CONSTRAINT)));
+			});
+			return null;
+		}).eventually(storage::close).onComplete(context.succeedingThenComplete());
+	}
+
+	private static Timer operations(MeterRegistry registry, String operation, String outcome) {
+		return registry.get("boson.storage.operations").tag("operation", operation).tag("outcome", outcome).timer();
+	}
+}
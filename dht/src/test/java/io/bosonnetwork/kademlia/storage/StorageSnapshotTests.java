@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+
+@ExtendWith(VertxExtension.class)
+class StorageSnapshotTests {
+	private static final long EXPIRATION = TimeUnit.MINUTES.toMillis(30);
+
+	@Test
+	void recordsRoundTrip() throws IOException {
+		Value value = Value.immutableBuilder().data("snapshot value".getBytes()).build();
+		PeerInfo peer = PeerInfo.builder().endpoint("tcp://203.0.113.1:39001").build();
+		byte[] attachment = { 1, 2, 3, 4 };
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StorageSnapshot.Writer writer = new StorageSnapshot.Writer(out, 1234L);
+		writer.write(new StorageSnapshot.Attachment("test", attachment));
+		writer.write(new StorageSnapshot.ValueRecord(value, true, 10, 20));
+		writer.write(new StorageSnapshot.PeerRecord(peer, false, 30, 40));
+		StorageSnapshot.Summary summary = writer.finish();
+		writer.close();
+		assertEquals(new StorageSnapshot.Summary(1, 1), summary);
+
+		List<StorageSnapshot.Entry> entries = readAll(out.toByteArray());
+		assertEquals(3, entries.size());
+
+		StorageSnapshot.Attachment a = assertInstanceOf(StorageSnapshot.Attachment.class, entries.get(0));
+		assertEquals("test", a.name());
+		assertArrayEquals(attachment, a.data());
+
+		StorageSnapshot.ValueRecord v = assertInstanceOf(StorageSnapshot.ValueRecord.class, entries.get(1));
+		assertEquals(value, v.value());
+		assertTrue(v.persistent());
+		assertEquals(10, v.created());
+		assertEquals(20, v.updated());
+
+		StorageSnapshot.PeerRecord p = assertInstanceOf(StorageSnapshot.PeerRecord.class, entries.get(2));
+		assertEquals(peer, p.peer());
+		assertEquals(30, p.created());
+		assertEquals(40, p.updated());
+	}
+
+	@Test
+	void corruptedSnapshotsAreRejected() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StorageSnapshot.Writer writer = new StorageSnapshot.Writer(out, System.currentTimeMillis());
+		for (int i = 0; i < 16; i++)
+			writer.write(new StorageSnapshot.ValueRecord(
+					Value.immutableBuilder().data(("value " + i).getBytes()).build(), false, i, i));
+		writer.finish();
+		writer.close();
+		byte[] snapshot = out.toByteArray();
+
+		byte[] flipped = snapshot.clone();
+		flipped[flipped.length / 2] ^= 0x40;
+		assertThrows(IOException.class, () -> readAll(flipped));
+
+		byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 8);
+		assertThrows(IOException.class, () -> readAll(truncated));
+
+		assertThrows(IOException.class, () -> readAll(new byte[] { 'n', 'o', 'p', 'e' }));
+	}
+
+	@Test
+	@Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+	void storageRoundTrip(Vertx vertx, VertxTestContext context) throws Exception {
+		Path dir = Files.createTempDirectory("boson-storage-snapshot");
+		DataStorage source = DataStorage.create("jdbc:sqlite:" + dir.resolve("source.db"), 0, null);
+		DataStorage target = DataStorage.create("jdbc:sqlite:" + dir.resolve("target.db") + "?shards=4", 0, null);
+
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 1500; i++)
+			values.add(Value.immutableBuilder().data(("snapshot value " + i).getBytes()).build());
+		List<PeerInfo> peers = new ArrayList<>();
+		for (int i = 0; i < 300; i++)
+			peers.add(PeerInfo.builder().endpoint("tcp://203.0.113." + (i % 250) + ":" + (30000 + i)).build());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		List<StorageSnapshot.Attachment> attachments = new ArrayList<>();
+
+		source.initialize(vertx, EXPIRATION, EXPIRATION).compose(version -> {
+			Future<Void> chain = Future.succeededFuture();
+			for (int i = 0; i < values.size(); i++) {
+				Value value = values.get(i);
+				boolean persistent = i % 3 == 0;
+				chain = chain.compose(v -> source.putValue(value, persistent).mapEmpty());
+			}
+			for (PeerInfo peer : peers)
+				chain = chain.compose(v -> source.putPeer(peer).mapEmpty());
+			return chain;
+		}).compose(v -> {
+			try {
+				StorageSnapshot.Writer writer = new StorageSnapshot.Writer(out, System.currentTimeMillis());
+				writer.write(new StorageSnapshot.Attachment("extra", new byte[] { 42 }));
+				return source.exportSnapshot(writer).compose(summary -> {
+					try {
+						context.verify(() -> assertEquals(writer.finish(), summary));
+						writer.close();
+						return Future.succeededFuture(summary);
+					} catch (IOException e) {
+						return Future.failedFuture(e);
+					}
+				});
+			} catch (IOException e) {
+				return Future.failedFuture(e);
+			}
+		}).compose(exported -> target.initialize(vertx, EXPIRATION, EXPIRATION).compose(version -> {
+			try {
+				StorageSnapshot.Reader reader = new StorageSnapshot.Reader(new ByteArrayInputStream(out.toByteArray()));
+				return target.importSnapshot(reader, attachments::add);
+			} catch (IOException e) {
+				return Future.failedFuture(e);
+			}
+		}).map(imported -> {
+			context.verify(() -> {
+				assertEquals(new StorageSnapshot.Summary(values.size(), peers.size()), exported);
+				assertEquals(exported, imported);
+			});
+			return null;
+		})).compose(v -> Future.all(target.getValues(), target.getValues(true, Long.MAX_VALUE), target.getPeers())
+		).map(cf -> {
+			List<Value> all = cf.resultAt(0);
+			List<Value> persistent = cf.resultAt(1);
+			List<PeerInfo> allPeers = cf.resultAt(2);
+			context.verify(() -> {
+				assertEquals(new HashSet<>(values), new HashSet<>(all));
+				assertEquals(values.size() / 3, persistent.size());
+				assertEquals(new HashSet<>(peers), new HashSet<>(allPeers));
+				assertEquals(1, attachments.size());
+				assertEquals("extra", attachments.get(0).name());
+			});
+			return null;
+		}).eventually(() -> Future.join(source.close(), target.close()))
+		.onComplete(context.succeedingThenComplete());
+	}
+
+	private static List<StorageSnapshot.Entry> readAll(byte[] snapshot) throws IOException {
+		List<StorageSnapshot.Entry> entries = new ArrayList<>();
+		try (StorageSnapshot.Reader reader = new StorageSnapshot.Reader(new ByteArrayInputStream(snapshot))) {
+			List<StorageSnapshot.Entry> block;
+			while ((block = reader.next()) != null)
+				entries.addAll(block);
+			assertNull(reader.next());
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,164 @@
+package io.bosonnetwork.kademlia.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.impl.TestKadContext;
+import io.bosonnetwork.kademlia.rpc.RpcCall;
+
+class DualStackLookupTests {
+	private static final Vertx vertx = Vertx.vertx();
+
+	static class IdleLookupTask extends LookupTask<Object, IdleLookupTask> {
+		private static final Logger log = LoggerFactory.getLogger(IdleLookupTask.class);
+
+		IdleLookupTask(KadContext context, Id target) {
+			super(context, target, false);
+		}
+
+		@Override
+		protected void sendRequests() { }
+
+		@Override
+		protected Future<RpcCall> sendCall(RpcCall call) {
+			return Future.succeededFuture(call);
+		}
+
+		@Override
+		protected Logger getLogger() {
+			return log;
+		}
+	}
+
+	@AfterAll
+	static void tearDown() {
+		vertx.close();
+	}
+
+	private static IdleLookupTask task(Network network) {
+		KadContext context = new TestKadContext(vertx.getOrCreateContext(), new CryptoIdentity(), network);
+		return new IdleLookupTask(context, Id.random());
+	}
+
+	@Test
+	void testTheFirstFamilyToClaimANodeOwnsIt() {
+		DualStackLookup dualStack = new DualStackLookup();
+		Id id = Id.random();
+
+		assertEquals(DualStackLookup.Claim.OWN, dualStack.claim(id, Network.IPv4));
+		// Asking again over the same family is a retry, not a conflict.
+		assertEquals(DualStackLookup.Claim.OWN, dualStack.claim(id, Network.IPv4));
+		assertEquals(DualStackLookup.Claim.SIBLING_PENDING, dualStack.claim(id, Network.IPv6));
+	}
+
+	@Test
+	void testAnAnswerIsCreditedToTheSibling() {
+		DualStackLookup dualStack = new DualStackLookup();
+		Id id = Id.random();
+
+		dualStack.claim(id, Network.IPv4);
+		// Only the holder's answer counts; the sibling never asked.
+		dualStack.answered(id, Network.IPv6);
+		assertEquals(DualStackLookup.Claim.SIBLING_PENDING, dualStack.claim(id, Network.IPv6));
+
+		dualStack.answered(id, Network.IPv4);
+		assertEquals(DualStackLookup.Claim.SIBLING_ANSWERED, dualStack.claim(id, Network.IPv6));
+	}
+
+	@Test
+	void testAFailedCallHandsTheNodeToTheSibling() {
+		DualStackLookup dualStack = new DualStackLookup();
+		Id failed = Id.random();
+		Id answered = Id.random();
+
+		dualStack.claim(failed, Network.IPv4);
+		dualStack.release(failed, Network.IPv4);
+		assertEquals(DualStackLookup.Claim.OWN, dualStack.claim(failed, Network.IPv6));
+
+		// A node that has answered stays credited: nothing the holder does later takes that back.
+		dualStack.claim(answered, Network.IPv4);
+		dualStack.answered(answered, Network.IPv4);
+		dualStack.release(answered, Network.IPv4);
+		assertEquals(DualStackLookup.Claim.SIBLING_ANSWERED, dualStack.claim(answered, Network.IPv6));
+	}
+
+	@Test
+	void testAFinishedTaskGivesUpItsPendingClaims() {
+		DualStackLookup dualStack = new DualStackLookup();
+		IdleLookupTask task4 = task(Network.IPv4);
+		dualStack.attach(task4);
+
+		Id pending = Id.random();
+		Id answered = Id.random();
+		dualStack.claim(pending, Network.IPv4);
+		dualStack.claim(answered, Network.IPv4);
+		dualStack.answered(answered, Network.IPv4);
+
+		dualStack.detach(task4);
+
+		assertEquals(DualStackLookup.Claim.OWN, dualStack.claim(pending, Network.IPv6));
+		assertEquals(DualStackLookup.Claim.SIBLING_ANSWERED, dualStack.claim(answered, Network.IPv6));
+	}
+
+	@Test
+	void testTheTaskDoesNotAskWhatTheSiblingAsked() {
+		DualStackLookup dualStack = new DualStackLookup();
+		IdleLookupTask task6 = task(Network.IPv6).setDualStack(dualStack);
+
+		Id answered = Id.random();
+		Id pending = Id.random();
+		Id free = Id.random();
+		dualStack.claim(answered, Network.IPv4);
+		dualStack.answered(answered, Network.IPv4);
+		dualStack.claim(pending, Network.IPv4);
+
+		task6.addCandidates(List.of(
+				NodeInfo.of(answered, "2400:cb00::1", 39001),
+				NodeInfo.of(pending, "2400:cb00::2", 39002),
+				NodeInfo.of(free, "2400:cb00::3", 39003)));
+
+		CandidateNode next = task6.getNextCandidate();
+		assertNotNull(next);
+		assertEquals(free, next.getId());
+		next.setSent();
+		assertNull(task6.getNextCandidate());
+
+		// Credited into the closest set without a call of its own...
+		assertTrue(task6.getClosestSet().contains(answered));
+		assertNull(task6.getCandidate(answered));
+		// ...and parked while the sibling waits, holding no request slot and no ping.
+		CandidateNode parked = task6.getCandidate(pending);
+		assertNotNull(parked);
+		assertTrue(parked.isSent());
+		assertEquals(0, parked.getPinged());
+		assertFalse(task6.getClosestSet().contains(pending));
+	}
+
+	@Test
+	void testBothFamiliesAreRequestedOnlyInADualStackLookup() {
+		IdleLookupTask single = task(Network.IPv6);
+		assertFalse(single.wantIPv4());
+		assertTrue(single.wantIPv6());
+
+		IdleLookupTask shared = task(Network.IPv6).setDualStack(new DualStackLookup());
+		assertTrue(shared.wantIPv4());
+		assertTrue(shared.wantIPv6());
+	}
+}
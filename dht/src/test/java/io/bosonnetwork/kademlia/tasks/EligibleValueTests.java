@@ -22,10 +22,13 @@
 
 package io.bosonnetwork.kademlia.tasks;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 
 import io.bosonnetwork.Id;
@@ -102,4 +105,29 @@ class EligibleValueTests {
 
 		assertTrue(eligible.update(value));
 	}
+
+	@Test
+	void testOfferedValuesAreVerifiedTogetherWhenTheResultIsRead() {
+		// The same rules as update, only the signature check is held back until the lookup reads its
+		// result - and a sender whose value fails it is still reported, just later.
+		Value v1 = signed(1);
+		Value v2 = v1.update().data("a later version".getBytes()).build();
+		Value forged = Value.of(v1.getPublicKey(), 3, v2.getSignature(), "not what was signed".getBytes());
+
+		EligibleValue eligible = new EligibleValue(v1.getId(), 1);
+		AtomicInteger rejected = new AtomicInteger();
+		assertTrue(eligible.offer(v1, rejected::incrementAndGet));
+		assertTrue(eligible.offer(v2, rejected::incrementAndGet));
+		assertTrue(eligible.offer(v1, rejected::incrementAndGet)); // the same answer from another node
+		assertTrue(eligible.offer(forged, rejected::incrementAndGet));
+		assertFalse(eligible.offer(immutable(), rejected::incrementAndGet)); // another target, refused at once
+		assertEquals(0, rejected.get());
+
+		assertSame(v2, eligible.getValue());
+		assertEquals(1, rejected.get());
+
+		// Verified once: reading again changes nothing
+		assertFalse(eligible.isEmpty());
+		assertEquals(1, rejected.get());
+	}
 }
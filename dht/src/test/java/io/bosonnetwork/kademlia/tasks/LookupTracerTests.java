@@ -0,0 +1,180 @@
+package io.bosonnetwork.kademlia.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.json.Json;
+import io.bosonnetwork.kademlia.impl.Network;
+import io.bosonnetwork.kademlia.impl.TestKadContext;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.rpc.RpcCall;
+
+class LookupTracerTests {
+	private static final Vertx vertx = Vertx.vertx();
+
+	static class TracedLookupTask extends LookupTask<Object, TracedLookupTask> {
+		private static final Logger log = LoggerFactory.getLogger(TracedLookupTask.class);
+
+		TracedLookupTask(TestKadContext context, Id target) {
+			super(context, target, false);
+		}
+
+		@Override
+		protected void sendRequests() { }
+
+		@Override
+		protected Future<RpcCall> sendCall(RpcCall call) {
+			return Future.succeededFuture(call);
+		}
+
+		@Override
+		protected Logger getLogger() {
+			return log;
+		}
+	}
+
+	@AfterAll
+	static void tearDown() {
+		vertx.close();
+	}
+
+	private static TracedLookupTask task(LookupTracer tracer) {
+		TestKadContext context = new TestKadContext(vertx.getOrCreateContext(), new CryptoIdentity(), Network.IPv4)
+				.setLookupTracer(tracer);
+		return new TracedLookupTask(context, Id.random());
+	}
+
+	@Test
+	void testNothingIsSampledByDefault() {
+		LookupTracer tracer = new LookupTracer();
+		assertEquals(0.0, tracer.getSampleRate());
+
+		task(tracer).start();
+		assertTrue(tracer.recent(0).isEmpty());
+	}
+
+	@Test
+	void testInvalidSampleRateIsRejected() {
+		LookupTracer tracer = new LookupTracer();
+		assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(-0.1));
+		assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(1.1));
+		assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(Double.NaN));
+	}
+
+	@Test
+	void testASampledLookupRecordsEveryCallAndHowItEnded() {
+		LookupTracer tracer = new LookupTracer();
+		tracer.setSampleRate(1.0);
+
+		TracedLookupTask task = task(tracer);
+		NodeInfo slow = NodeInfo.of(Id.random(), "100.1.1.8", 39001);
+		NodeInfo failing = NodeInfo.of(Id.random(), "100.1.1.9", 39002);
+		task.addCandidates(List.of(slow, failing));
+
+		// Timed out while still worth retrying, then again once it is not.
+		CandidateNode cn = task.getCandidate(slow.getId());
+		assertNotNull(cn);
+		task.callTimeout(new RpcCall(cn, Message.pingRequest()));
+		cn.setSent();
+		cn.setSent();
+		cn.setSent();
+		task.callTimeout(new RpcCall(cn, Message.pingRequest()));
+		task.callError(new RpcCall(task.getCandidate(failing.getId()), Message.pingRequest()));
+
+		// Nothing left to ask: the lookup ends on its first iteration, and the trace with it.
+		task.start();
+		assertTrue(task.isComplete());
+
+		List<LookupTrace> traces = tracer.recent(0);
+		assertEquals(1, traces.size());
+		LookupTrace trace = traces.get(0);
+		assertEquals("TracedLookupTask", trace.getKind());
+		assertEquals(task.getId(), trace.getTaskId());
+		assertEquals(task.getTarget(), trace.getTarget());
+		assertEquals(Network.IPv4, trace.getNetwork());
+		assertEquals("COMPLETED", trace.getState());
+		assertEquals(LookupTask.CompletionReason.NO_CANDIDATES, trace.getCompletionReason());
+
+		List<LookupTrace.Hop> hops = trace.getHops();
+		assertEquals(List.of(LookupTrace.Outcome.TIMEOUT, LookupTrace.Outcome.TIMEOUT, LookupTrace.Outcome.ERROR),
+				hops.stream().map(LookupTrace.Hop::outcome).toList());
+		assertEquals(slow.getId(), hops.get(0).node());
+		assertEquals(slow.getAddress(), hops.get(0).address());
+		assertEquals(task.getTarget().approxDistance(slow.getId()), hops.get(0).distance());
+		// Never put on the wire by this test, so there is no round trip to report.
+		assertEquals(-1, hops.get(0).rtt());
+		assertEquals(failing.getId(), hops.get(2).node());
+	}
+
+	@Test
+	void testTheBufferKeepsTheMostRecentTraces() {
+		LookupTracer tracer = new LookupTracer(2);
+		tracer.setSampleRate(1.0);
+
+		TracedLookupTask first = task(tracer);
+		TracedLookupTask second = task(tracer);
+		TracedLookupTask third = task(tracer);
+		first.start();
+		second.start();
+		third.start();
+
+		assertEquals(List.of(second.getId(), third.getId()),
+				tracer.recent(0).stream().map(LookupTrace::getTaskId).toList());
+		assertEquals(List.of(third.getId()), tracer.recent(1).stream().map(LookupTrace::getTaskId).toList());
+		assertEquals(2, tracer.slowest(0).size());
+
+		tracer.clear();
+		assertTrue(tracer.recent(0).isEmpty());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testExportWritesOneOtlpRequestPerTrace() throws Exception {
+		LookupTracer tracer = new LookupTracer();
+		tracer.setSampleRate(1.0);
+
+		TracedLookupTask task = task(tracer);
+		NodeInfo node = NodeInfo.of(Id.random(), "100.1.1.8", 39001);
+		task.addCandidates(List.of(node));
+		task.callError(new RpcCall(task.getCandidate(node.getId()), Message.pingRequest()));
+		task.start();
+		task(tracer).start();
+
+		StringWriter out = new StringWriter();
+		LookupTracer.export(tracer.recent(0), out);
+		String[] lines = out.toString().split("\n");
+		assertEquals(2, lines.length);
+
+		LookupTrace trace = tracer.recent(0).get(0);
+		Map<String, Object> request = Json.parse(lines[0]);
+		Map<String, Object> resourceSpans = ((List<Map<String, Object>>) request.get("resourceSpans")).get(0);
+		Map<String, Object> scopeSpans = ((List<Map<String, Object>>) resourceSpans.get("scopeSpans")).get(0);
+		List<Map<String, Object>> spans = (List<Map<String, Object>>) scopeSpans.get("spans");
+
+		// The lookup, then one child span per call.
+		assertEquals(2, spans.size());
+		assertEquals(trace.getTraceId(), spans.get(0).get("traceId"));
+		assertEquals(32, trace.getTraceId().length());
+		assertEquals(trace.getSpanId(), spans.get(0).get("spanId"));
+		assertEquals(trace.getTraceId(), spans.get(1).get("traceId"));
+		assertEquals(trace.getSpanId(), spans.get(1).get("parentSpanId"));
+		assertEquals(trace.getHopSpanId(0), spans.get(1).get("spanId"));
+		assertEquals(String.valueOf(trace.getStartTime() * 1_000_000L), spans.get(0).get("startTimeUnixNano"));
+	}
+}
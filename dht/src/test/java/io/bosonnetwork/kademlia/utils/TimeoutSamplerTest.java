@@ -103,4 +103,24 @@ public class TimeoutSamplerTest {
 
 		System.out.println(ss);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testStatsAreTheSnapshotTheTimeoutIsDerivedFrom() {
+		TimeoutSampler ts = new TimeoutSampler(BIN_SIZE, TIMEOUT_MIN, TIMEOUT_MAX, TIMEOUT_BASELINE_MIN);
+
+		IntStream.range(0, 10).forEach(i -> ts.decay());
+		IntStream.range(0, 900).forEach(i -> ts.updateAndRecalc(1000));
+		IntStream.range(0, 100).forEach(i -> ts.updateAndRecalc(4000));
+
+		TimeoutSampler.Stats stats = ts.stats();
+		TimeoutSampler.Snapshot ss = ts.getStats();
+		assertEquals(1000, stats.samples());
+		assertEquals((int) ss.getQuantile(0.1f), stats.p10());
+		assertEquals((int) ss.getQuantile(0.5f), stats.p50());
+		assertEquals((int) ss.getQuantile(0.9f), stats.p90());
+		assertEquals((int) ss.getQuantile(0.99f), stats.p99());
+		assertEquals(1025, stats.p50());
+		assertEquals(4025, stats.p99());
+		assertEquals(ts.getStallTimeout(), stats.stallTimeout());
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.shell;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import io.bosonnetwork.kademlia.tasks.LookupTrace;
+import io.bosonnetwork.kademlia.tasks.LookupTracer;
+
+/**
+ * @hidden
+ */
+@Command(name = "lookuptrace", mixinStandardHelpOptions = true, version = "Boson lookuptrace 2.0",
+		description = "Sample lookups and show or export their per-hop traces.")
+public class LookupTraceCommand implements Callable<Integer> {
+	@Option(names = { "-r", "--rate" }, description = "share of lookups to trace, 0 (off) to 1 (all)")
+	private Double rate = null;
+
+	@Option(names = { "-n", "--count" }, description = "how many traces to show or export, 0 for all kept, default 10")
+	private int count = 10;
+
+	@Option(names = { "-s", "--slowest" }, description = "pick the slowest traces kept instead of the most recent")
+	private boolean slowest = false;
+
+	@Option(names = { "-o", "--export" }, description = "write the traces to this file as OTLP/JSON lines instead of showing them")
+	private Path export = null;
+
+	@Option(names = { "-c", "--clear" }, description = "drop every trace kept")
+	private boolean clear = false;
+
+	@Override
+	public Integer call() throws Exception {
+		LookupTracer tracer = Main.getBosonNode().getLookupTracer();
+
+		if (rate != null) {
+			tracer.setSampleRate(rate);
+			System.out.println("Lookup trace sample rate: " + rate);
+		}
+
+		if (clear) {
+			tracer.clear();
+			System.out.println("Lookup traces cleared");
+		}
+
+		if (rate != null || clear)
+			return 0;
+
+		List<LookupTrace> traces = slowest ? tracer.slowest(count) : tracer.recent(count);
+		if (export != null) {
+			try (Writer out = Files.newBufferedWriter(export, StandardCharsets.UTF_8)) {
+				LookupTracer.export(traces, out);
+			}
+			System.out.println(traces.size() + " lookup traces exported to " + export);
+			return 0;
+		}
+
+		System.out.println("Sample rate: " + tracer.getSampleRate() + ", showing " + traces.size() + " traces");
+		for (LookupTrace trace : traces)
+			System.out.println(trace);
+
+		return 0;
+	}
+}
@@ -76,6 +76,7 @@ import io.bosonnetwork.utils.ApplicationLock;
 			AnnouncePeerCommand.class,
 			FindNodeCommand.class,
 			RoutingTableCommand.class,
+			LookupTraceCommand.class,
 			StorageCommand.class,
 			StopCommand.class,
 			DisplayCacheCommand.class,
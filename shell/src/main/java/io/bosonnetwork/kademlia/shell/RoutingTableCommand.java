@@ -27,8 +27,10 @@ import java.net.StandardProtocolFamily;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
 import io.bosonnetwork.kademlia.KadNode;
+import io.bosonnetwork.kademlia.routing.RoutingTableStats;
 
 /**
  * @hidden
@@ -36,21 +38,42 @@ import io.bosonnetwork.kademlia.KadNode;
 @Command(name = "routingtable", mixinStandardHelpOptions = true, version = "Boson routingtable 2.0",
 		description = "Display the routing tables.")
 public class RoutingTableCommand implements Callable<Integer> {
+	@Option(names = { "-s", "--stats" }, description = "show bucket fill, RTT, age and churn statistics instead of the entries")
+	private boolean stats = false;
+
+	@Option(names = { "-p", "--peers" }, description = "show this many randomly sampled peers with their RTT and loss, 0 for all")
+	private Integer peers = null;
+
 	@Override
 	public Integer call() throws Exception {
 		KadNode node = Main.getBosonNode();
 		if (node.isIPv4Enabled()) {
 			System.out.println("Routing table for IPv4: ");
-			node.dumpRoutingTable(StandardProtocolFamily.INET, System.out).get();
+			display(node, StandardProtocolFamily.INET);
 			System.out.println();
 		}
 
 		if (node.isIPv6Enabled()) {
 			System.out.println("Routing table for IPv6: ");
-			node.dumpRoutingTable(StandardProtocolFamily.INET6, System.out).get();
+			display(node, StandardProtocolFamily.INET6);
 			System.out.println();
 		}
 
 		return 0;
 	}
+
+	private void display(KadNode node, StandardProtocolFamily family) throws Exception {
+		if (!stats && peers == null) {
+			node.dumpRoutingTable(family, System.out).get();
+			return;
+		}
+
+		if (stats)
+			System.out.print(node.getRoutingTableStats(family).get());
+
+		if (peers != null) {
+			for (RoutingTableStats.Peer peer : node.samplePeers(family, peers).get())
+				System.out.println(peer);
+		}
+	}
 }
@@ -23,6 +23,7 @@
 
 package io.bosonnetwork.kademlia.shell;
 
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
@@ -30,6 +31,9 @@ import picocli.CommandLine.Parameters;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.kademlia.storage.DataStorage;
+import io.bosonnetwork.kademlia.storage.StorageSnapshot;
+import io.bosonnetwork.kademlia.shell.StorageCommand.ExportCommand;
+import io.bosonnetwork.kademlia.shell.StorageCommand.ImportCommand;
 import io.bosonnetwork.kademlia.shell.StorageCommand.ListPeerCommand;
 import io.bosonnetwork.kademlia.shell.StorageCommand.ListValueCommand;
 import io.bosonnetwork.kademlia.shell.StorageCommand.PeerCommand;
@@ -44,7 +48,9 @@ import io.bosonnetwork.vertx.ContextualFuture;
 			ListValueCommand.class,
 			ValueCommand.class,
 			ListPeerCommand.class,
-			PeerCommand.class
+			PeerCommand.class,
+			ExportCommand.class,
+			ImportCommand.class
 		})
 public class StorageCommand {
 	/**
@@ -160,4 +166,38 @@ public class StorageCommand {
 			return 0;
 		}
 	}
+
+	/**
+	 * @hidden
+	 */
+	@Command(name = "export", mixinStandardHelpOptions = true, version = "Boson export 2.0",
+			description = "Export the local storage and routing tables to a snapshot file.")
+	public static class ExportCommand implements Callable<Integer> {
+		@Parameters(paramLabel = "FILE", index = "0", description = "The snapshot file.")
+		private Path file = null;
+
+		@Override
+		public Integer call() throws Exception {
+			StorageSnapshot.Summary summary = Main.getBosonNode().exportSnapshot(file).get();
+			System.out.println("Exported " + summary.values() + " values and " + summary.peers() + " peers.");
+			return 0;
+		}
+	}
+
+	/**
+	 * @hidden
+	 */
+	@Command(name = "import", mixinStandardHelpOptions = true, version = "Boson import 2.0",
+			description = "Import a snapshot file into the local storage and routing tables.")
+	public static class ImportCommand implements Callable<Integer> {
+		@Parameters(paramLabel = "FILE", index = "0", description = "The snapshot file.")
+		private Path file = null;
+
+		@Override
+		public Integer call() throws Exception {
+			StorageSnapshot.Summary summary = Main.getBosonNode().importSnapshot(file).get();
+			System.out.println("Imported " + summary.values() + " values and " + summary.peers() + " peers.");
+			return 0;
+		}
+	}
 }